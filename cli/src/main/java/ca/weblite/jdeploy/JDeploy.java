@@ -10,13 +10,17 @@ import ca.weblite.jdeploy.cli.config.CliConfigLoader;
 import ca.weblite.jdeploy.cli.controllers.*;
 import ca.weblite.jdeploy.cli.services.AppXmlPropertyExtractor;
 import ca.weblite.jdeploy.cli.services.CLIOneTimePasswordProvider;
+import ca.weblite.jdeploy.factories.JDeployProjectFactory;
 import ca.weblite.jdeploy.factories.PublishTargetFactory;
 import ca.weblite.jdeploy.gui.JDeployMainMenu;
 import ca.weblite.jdeploy.gui.JDeployProjectEditor;
+import ca.weblite.jdeploy.models.JDeployProject;
 import ca.weblite.jdeploy.npm.NPM;
 import ca.weblite.jdeploy.npm.TerminalLoginLauncher;
+import ca.weblite.jdeploy.packaging.ClassPathFinder;
 import ca.weblite.jdeploy.packaging.JarFinder;
 import ca.weblite.jdeploy.packaging.PackageService;
+import ca.weblite.jdeploy.packaging.PackageWatchService;
 import ca.weblite.jdeploy.packaging.PackagingContext;
 import ca.weblite.jdeploy.publishTargets.PublishTarget;
 import ca.weblite.jdeploy.publishTargets.PublishTargetInterface;
@@ -314,6 +318,17 @@ public class JDeploy implements BundleConstants {
         }
     }
 
+    private void _packageWatch(File directory) throws IOException, InterruptedException {
+        BundlerSettings bundlerSettings = new BundlerSettings();
+        if (System.getProperty("jdeploy.compressBundles") != null) {
+            bundlerSettings.setCompressBundles(Boolean.parseBoolean(System.getProperty("jdeploy.compressBundles")));
+        }
+        DIContext.get(PackageWatchService.class).watch(
+                () -> PackagingContext.builder().directory(directory).build(),
+                bundlerSettings
+        );
+    }
+
     private void _verify(String[] args) throws Exception {
         String[] verifyArgs = new String[args.length-1];
         System.arraycopy(args, 1, verifyArgs, 0, verifyArgs.length);
@@ -552,6 +567,31 @@ public class JDeploy implements BundleConstants {
         combined.addAll(Arrays.asList(webApps));
         
         out.println("If jdeploy were to run on this directory without specifying the jar or war in the package.json, it would choose " + shallowest(combined.toArray(new File[combined.size()])));
+
+        scanNativeLibraries(context);
+    }
+
+    /**
+     * Reports the native libraries in the app jar and its Class-Path dependencies, and how much
+     * the platform-specific bundles leave out.
+     */
+    private void scanNativeLibraries(PackagingContext context) throws IOException {
+        File jar = DIContext.get(JarFinder.class).findJarFile(context);
+        if (jar == null) {
+            return;
+        }
+        List<File> jars = new ArrayList<>();
+        jars.add(jar);
+        for (String path : DIContext.get(ClassPathFinder.class).findClassPath(jar)) {
+            File dependency = new File(path);
+            jars.add(dependency.isAbsolute() ? dependency : new File(jar.getAbsoluteFile().getParentFile(), path));
+        }
+        JDeployProject project = null;
+        File packageJson = new File(context.directory, "package.json");
+        if (packageJson.isFile()) {
+            project = DIContext.get(JDeployProjectFactory.class).createProject(packageJson.toPath());
+        }
+        DIContext.get(NativeLibraryScanner.class).scan(jars, project).print(out);
     }
 
     private void help(Options opts) {
@@ -561,6 +601,7 @@ public class JDeploy implements BundleConstants {
                 + "Commands:\n"
                 + "  init : Initialize the project\n"
                 + "  package : Prepare for install.  This copies necessary files into bin directory.\n"
+                + "  package --watch : Package, then keep jdeploy-bundle up to date as the project is rebuilt\n"
                 + "  install : Installs the app locally using npm link (so its CLI commands are on $PATH)\n"
                 + "  install --native : Full native install (native launchers, GUI integration, services, AI tool MCP, etc.)\n"
                 + "  install --native --ai-tools=claude-code,cursor : Native install plus configure MCP server for specified AI tools\n"
@@ -919,6 +960,7 @@ public class JDeploy implements BundleConstants {
             opts.addOption(null, "package", true, "Package name for verify commands");
             opts.addOption(null, "source", true, "GitHub source URL for verify commands");
             opts.addOption("v", "verbose", false, "Show verbose output for verify commands");
+            opts.addOption(null, "watch", false, "Keep packaging as the project changes (package command)");
             opts.addOption(org.apache.commons.cli.Option.builder()
                     .longOpt("windows")
                     .hasArg()
@@ -946,6 +988,7 @@ public class JDeploy implements BundleConstants {
             String verifyPackage = null;
             String verifySource = null;
             boolean verboseFlag = false;
+            boolean watchFlag = false;
             String windowsMode = null;
             boolean runOnWindows = false;
             String linuxMode = null;
@@ -1000,6 +1043,7 @@ public class JDeploy implements BundleConstants {
                 verifyPackage = line.getOptionValue("package", null);
                 verifySource = line.getOptionValue("source", null);
                 verboseFlag = line.hasOption("verbose");
+                watchFlag = line.hasOption("watch");
                 runOnWindows = line.hasOption("windows");
                 windowsMode = line.getOptionValue("windows", "headless");
                 runOnLinux = line.hasOption("linux");
@@ -1114,7 +1158,11 @@ public class JDeploy implements BundleConstants {
                 System.arraycopy(args, 1, jpackageArgs, 0, jpackageArgs.length);
                 prog.jpackageCLI(context, jpackageArgs);
             } else if ("package".equals(args[0])) {
-                prog._package(context);
+                if (watchFlag) {
+                    prog._packageWatch(new File(".").getAbsoluteFile());
+                } else {
+                    prog._package(context);
+                }
             } else if ("init".equals(args[0])) {
                 String commandName = null;
                 if (args.length > 1) {
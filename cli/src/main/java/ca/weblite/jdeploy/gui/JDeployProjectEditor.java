@@ -8,6 +8,7 @@ import ca.weblite.jdeploy.gui.controllers.GenerateGithubWorkflowController;
 import ca.weblite.jdeploy.gui.controllers.PublishActionHandler;
 import ca.weblite.jdeploy.gui.controllers.VerifyWebsiteController;
 import ca.weblite.jdeploy.gui.navigation.EditorPanelRegistry;
+import ca.weblite.jdeploy.gui.navigation.LazyNavigablePanel;
 import ca.weblite.jdeploy.gui.navigation.NavigablePanelAdapter;
 import ca.weblite.jdeploy.gui.navigation.NavigationHost;
 import ca.weblite.jdeploy.gui.navigation.SidePanelNavigationHost;
@@ -378,31 +379,6 @@ public class JDeployProjectEditor {
         );
         projectMetadataPanel.addChangeListener(evt -> setModified());
 
-        // Setup Java Runtime Panel
-        javaRuntimePanel = new JavaRuntimePanel(
-            frame,
-            projectDir,
-            jarFile -> {
-                PublishingCoordinator.ValidationResult result = publishingCoordinator.validateJar(jarFile);
-                if (result.isValid()) {
-                    return JavaRuntimePanel.ValidationResult.success();
-                } else {
-                    return JavaRuntimePanel.ValidationResult.failure(result.getErrorMessage());
-                }
-            }
-        );
-        javaRuntimePanel.addChangeListener(evt -> setModified());
-
-        // Setup Repository Settings Panel
-        repositorySettingsPanel = new RepositorySettingsPanel(
-            frame,
-            homepage -> handleVerifyHomepage()
-        );
-        repositorySettingsPanel.addChangeListener(evt -> {
-            setModified();
-            queueHomepageVerification();
-        });
-
         queueHomepageVerification();
 
         // Create panel registry and populate with all panels
@@ -503,10 +479,31 @@ public class JDeployProjectEditor {
         return publish;
     }
 
+    /**
+     * Registers the editor's panels.  Every panel except the first is built the first time it is
+     * shown, so opening the editor only constructs the tab the user sees.  Until then, its field
+     * in this class is null.
+     */
     private EditorPanelRegistry createPanelRegistry() {
         EditorPanelRegistry registry = new EditorPanelRegistry();
         File projectDir = packageJSONFile.getAbsoluteFile().getParentFile();
 
+        // Panels from a previous load of package.json must not be used any more
+        javaRuntimePanel = null;
+        repositorySettingsPanel = null;
+        splashScreensPanel = null;
+        filetypesPanel = null;
+        urlSchemesPanel = null;
+        cliCommandsPanel = null;
+        aiIntegrationsPanel = null;
+        helperActionsPanel = null;
+        runtimeArgsPanel = null;
+        cheerpJSettingsPanel = null;
+        permissionsPanel = null;
+        bundleFiltersPanel = null;
+        downloadPageSettingsPanel = null;
+        publishSettingsPanel = null;
+
         // Project Metadata Panel
         registry.register(NavigablePanelAdapter.forPackageJsonPanel(
             "Project",
@@ -519,183 +516,286 @@ public class JDeployProjectEditor {
         ));
 
         // Java Runtime Panel
-        registry.register(NavigablePanelAdapter.forJdeployPanel(
+        registry.register(new LazyNavigablePanel(
             "Build",
             MenuBarBuilder.JDEPLOY_WEBSITE_URL + "docs/help/#_the_details_tab",
             FontIcon.of(Material.BUILD),
-            javaRuntimePanel.getRoot(),
-            json -> javaRuntimePanel.load(json),
-            json -> javaRuntimePanel.save(json),
-            listener -> javaRuntimePanel.addChangeListener(listener)
+            () -> {
+                javaRuntimePanel = new JavaRuntimePanel(
+                    frame,
+                    projectDir,
+                    jarFile -> {
+                        PublishingCoordinator.ValidationResult result = publishingCoordinator.validateJar(jarFile);
+                        if (result.isValid()) {
+                            return JavaRuntimePanel.ValidationResult.success();
+                        } else {
+                            return JavaRuntimePanel.ValidationResult.failure(result.getErrorMessage());
+                        }
+                    }
+                );
+                return NavigablePanelAdapter.forJdeployPanel(
+                    "Build",
+                    null,
+                    javaRuntimePanel.getRoot(),
+                    json -> javaRuntimePanel.load(json),
+                    json -> javaRuntimePanel.save(json),
+                    listener -> javaRuntimePanel.addChangeListener(listener)
+                );
+            }
         ));
 
         // Repository Settings Panel
-        registry.register(NavigablePanelAdapter.forPackageJsonPanel(
+        registry.register(new LazyNavigablePanel(
             "Repository",
             MenuBarBuilder.JDEPLOY_WEBSITE_URL + "docs/help/#_the_details_tab",
             FontIcon.of(Material.CLOUD),
-            repositorySettingsPanel.getRoot(),
-            json -> repositorySettingsPanel.load(json),
-            json -> repositorySettingsPanel.save(json),
-            listener -> repositorySettingsPanel.addChangeListener(listener)
+            () -> {
+                repositorySettingsPanel = new RepositorySettingsPanel(
+                    frame,
+                    homepage -> handleVerifyHomepage()
+                );
+                // The verification queued on startup had no panel to update
+                queueHomepageVerification();
+                return NavigablePanelAdapter.forPackageJsonPanel(
+                    "Repository",
+                    null,
+                    repositorySettingsPanel.getRoot(),
+                    json -> repositorySettingsPanel.load(json),
+                    json -> repositorySettingsPanel.save(json),
+                    listener -> repositorySettingsPanel.addChangeListener(evt -> {
+                        listener.actionPerformed(evt);
+                        queueHomepageVerification();
+                    })
+                );
+            }
         ));
 
         // Splash Screens Panel
-        splashScreensPanel = new SplashScreensPanel(projectDir, frame);
-        registry.register(NavigablePanelAdapter.forJdeployPanel(
+        registry.register(new LazyNavigablePanel(
             "Splash Screens",
             MenuBarBuilder.JDEPLOY_WEBSITE_URL + "docs/help/#splashscreens",
             FontIcon.of(Material.IMAGE),
-            splashScreensPanel.getRoot(),
-            json -> splashScreensPanel.load(json),
-            json -> splashScreensPanel.save(json),
-            listener -> splashScreensPanel.addChangeListener(listener)
+            () -> {
+                splashScreensPanel = new SplashScreensPanel(projectDir, frame);
+                return NavigablePanelAdapter.forJdeployPanel(
+                    "Splash Screens",
+                    null,
+                    splashScreensPanel.getRoot(),
+                    json -> splashScreensPanel.load(json),
+                    json -> splashScreensPanel.save(json),
+                    listener -> splashScreensPanel.addChangeListener(listener)
+                );
+            }
         ));
 
         // Filetypes Panel
-        filetypesPanel = new FiletypesPanel(projectDir);
-        registry.register(NavigablePanelAdapter.forJdeployPanel(
+        registry.register(new LazyNavigablePanel(
             "Filetypes",
             null,
             FontIcon.of(Material.INSERT_DRIVE_FILE),
-            filetypesPanel.getRoot(),
-            json -> filetypesPanel.load(json),
-            json -> filetypesPanel.save(json),
-            listener -> filetypesPanel.addChangeListener(listener)
+            () -> {
+                filetypesPanel = new FiletypesPanel(projectDir);
+                return NavigablePanelAdapter.forJdeployPanel(
+                    "Filetypes",
+                    null,
+                    filetypesPanel.getRoot(),
+                    json -> filetypesPanel.load(json),
+                    json -> filetypesPanel.save(json),
+                    listener -> filetypesPanel.addChangeListener(listener)
+                );
+            }
         ));
 
         // URL Schemes Panel
-        urlSchemesPanel = new UrlSchemesPanel();
-        registry.register(NavigablePanelAdapter.forJdeployPanel(
+        registry.register(new LazyNavigablePanel(
             "URLs",
             MenuBarBuilder.JDEPLOY_WEBSITE_URL + "docs/help/#_the_urls_tab",
             FontIcon.of(Material.LINK),
-            urlSchemesPanel.getRoot(),
-            json -> urlSchemesPanel.load(json),
-            json -> urlSchemesPanel.save(json),
-            listener -> urlSchemesPanel.addChangeListener(listener)
+            () -> {
+                urlSchemesPanel = new UrlSchemesPanel();
+                return NavigablePanelAdapter.forJdeployPanel(
+                    "URLs",
+                    null,
+                    urlSchemesPanel.getRoot(),
+                    json -> urlSchemesPanel.load(json),
+                    json -> urlSchemesPanel.save(json),
+                    listener -> urlSchemesPanel.addChangeListener(listener)
+                );
+            }
         ));
 
         // CLI Commands Panel
-        cliCommandsPanel = new CliCommandsPanel();
-        registry.register(NavigablePanelAdapter.forJdeployPanel(
+        registry.register(new LazyNavigablePanel(
             "CLI Commands",
             MenuBarBuilder.JDEPLOY_WEBSITE_URL + "docs/help/#commands",
             FontIcon.of(Material.CODE),
-            cliCommandsPanel.getRoot(),
-            json -> cliCommandsPanel.load(json),
-            json -> cliCommandsPanel.save(json),
-            listener -> cliCommandsPanel.addChangeListener(listener)
+            () -> {
+                cliCommandsPanel = new CliCommandsPanel();
+                return NavigablePanelAdapter.forJdeployPanel(
+                    "CLI Commands",
+                    null,
+                    cliCommandsPanel.getRoot(),
+                    json -> cliCommandsPanel.load(json),
+                    json -> cliCommandsPanel.save(json),
+                    listener -> cliCommandsPanel.addChangeListener(listener)
+                );
+            }
         ));
 
         // AI Integrations Panel
-        aiIntegrationsPanel = new AiIntegrationsPanel(projectDir);
-        registry.register(NavigablePanelAdapter.forJdeployPanel(
+        registry.register(new LazyNavigablePanel(
             "AI Integrations",
             MenuBarBuilder.JDEPLOY_WEBSITE_URL + "docs/help/#ai-integrations",
             FontIcon.of(Material.MEMORY),
-            aiIntegrationsPanel.getRoot(),
-            json -> aiIntegrationsPanel.load(json),
-            json -> aiIntegrationsPanel.save(json),
-            listener -> aiIntegrationsPanel.addChangeListener(listener)
+            () -> {
+                aiIntegrationsPanel = new AiIntegrationsPanel(projectDir);
+                return NavigablePanelAdapter.forJdeployPanel(
+                    "AI Integrations",
+                    null,
+                    aiIntegrationsPanel.getRoot(),
+                    json -> aiIntegrationsPanel.load(json),
+                    json -> aiIntegrationsPanel.save(json),
+                    listener -> aiIntegrationsPanel.addChangeListener(listener)
+                );
+            }
         ));
 
         // Helper Actions Panel
-        helperActionsPanel = new HelperActionsPanel();
-        registry.register(NavigablePanelAdapter.forJdeployPanel(
+        registry.register(new LazyNavigablePanel(
             "Helper Actions",
             null,
             FontIcon.of(Material.TOUCH_APP),
-            helperActionsPanel.getRoot(),
-            json -> helperActionsPanel.load(json),
-            json -> helperActionsPanel.save(json),
-            listener -> helperActionsPanel.addChangeListener(listener)
+            () -> {
+                helperActionsPanel = new HelperActionsPanel();
+                return NavigablePanelAdapter.forJdeployPanel(
+                    "Helper Actions",
+                    null,
+                    helperActionsPanel.getRoot(),
+                    json -> helperActionsPanel.load(json),
+                    json -> helperActionsPanel.save(json),
+                    listener -> helperActionsPanel.addChangeListener(listener)
+                );
+            }
         ));
 
         // Runtime Args Panel
-        runtimeArgsPanel = new RuntimeArgsPanel();
-        registry.register(NavigablePanelAdapter.forJdeployPanel(
+        registry.register(new LazyNavigablePanel(
             "Runtime Args",
             MenuBarBuilder.JDEPLOY_WEBSITE_URL + "docs/help/#runargs",
             FontIcon.of(Material.SETTINGS),
-            runtimeArgsPanel.getRoot(),
-            json -> runtimeArgsPanel.load(json),
-            json -> runtimeArgsPanel.save(json),
-            listener -> runtimeArgsPanel.addChangeListener(listener)
+            () -> {
+                runtimeArgsPanel = new RuntimeArgsPanel();
+                return NavigablePanelAdapter.forJdeployPanel(
+                    "Runtime Args",
+                    null,
+                    runtimeArgsPanel.getRoot(),
+                    json -> runtimeArgsPanel.load(json),
+                    json -> runtimeArgsPanel.save(json),
+                    listener -> runtimeArgsPanel.addChangeListener(listener)
+                );
+            }
         ));
 
         // CheerpJ Settings Panel
         if (context.shouldDisplayCheerpJPanel()) {
-            cheerpJSettingsPanel = new CheerpJSettingsPanel();
-            registry.register(NavigablePanelAdapter.forJdeployPanel(
+            registry.register(new LazyNavigablePanel(
                 "CheerpJ",
                 MenuBarBuilder.JDEPLOY_WEBSITE_URL + "docs/help/#cheerpj",
                 FontIcon.of(Material.WEB),
-                cheerpJSettingsPanel.getRoot(),
-                json -> cheerpJSettingsPanel.load(json),
-                json -> cheerpJSettingsPanel.save(json),
-                listener -> cheerpJSettingsPanel.addChangeListener(listener),
+                () -> {
+                    cheerpJSettingsPanel = new CheerpJSettingsPanel();
+                    return NavigablePanelAdapter.forJdeployPanel(
+                        "CheerpJ",
+                        null,
+                        cheerpJSettingsPanel.getRoot(),
+                        json -> cheerpJSettingsPanel.load(json),
+                        json -> cheerpJSettingsPanel.save(json),
+                        listener -> cheerpJSettingsPanel.addChangeListener(listener)
+                    );
+                },
                 () -> context.shouldDisplayCheerpJPanel()
             ));
         }
 
         // Permissions Panel
-        permissionsPanel = new PermissionsPanel();
-        registry.register(NavigablePanelAdapter.forPackageJsonPanel(
+        registry.register(new LazyNavigablePanel(
             "Permissions",
             null,
             FontIcon.of(Material.SECURITY),
-            permissionsPanel,
-            json -> permissionsPanel.loadPermissions(json),
-            json -> permissionsPanel.savePermissions(json),
-            listener -> permissionsPanel.addChangeListener(listener)
+            () -> {
+                permissionsPanel = new PermissionsPanel();
+                return NavigablePanelAdapter.forPackageJsonPanel(
+                    "Permissions",
+                    null,
+                    permissionsPanel,
+                    json -> permissionsPanel.loadPermissions(json),
+                    json -> permissionsPanel.savePermissions(json),
+                    listener -> permissionsPanel.addChangeListener(listener)
+                );
+            }
         ));
 
         // Bundle Filters Panel
-        bundleFiltersPanel = new BundleFiltersPanel(projectDir);
-        bundleFiltersPanel.setNpmEnabledChecker(() -> publishSettingsPanel != null && publishSettingsPanel.getNpmCheckbox().isSelected());
-        registry.register(NavigablePanelAdapter.forJdeployPanel(
+        registry.register(new LazyNavigablePanel(
             "Platform-Specific Bundles",
             null,
             FontIcon.of(Material.DEVICES),
-            bundleFiltersPanel.getRoot(),
-            json -> bundleFiltersPanel.loadConfiguration(packageJSON),
-            json -> {
-                bundleFiltersPanel.saveConfiguration(json);
-                bundleFiltersPanel.saveAllFiles();
-            },
-            listener -> bundleFiltersPanel.setOnChangeCallback(() -> listener.actionPerformed(null)),
-            () -> bundleFiltersPanel.refreshUI(),
-            () -> true
+            () -> {
+                bundleFiltersPanel = new BundleFiltersPanel(projectDir);
+                bundleFiltersPanel.setNpmEnabledChecker(this::isNpmPublishingEnabled);
+                return NavigablePanelAdapter.forJdeployPanel(
+                    "Platform-Specific Bundles",
+                    null,
+                    null,
+                    bundleFiltersPanel.getRoot(),
+                    json -> bundleFiltersPanel.loadConfiguration(packageJSON),
+                    json -> {
+                        bundleFiltersPanel.saveConfiguration(json);
+                        bundleFiltersPanel.saveAllFiles();
+                    },
+                    listener -> bundleFiltersPanel.setOnChangeCallback(() -> listener.actionPerformed(null)),
+                    () -> bundleFiltersPanel.refreshUI(),
+                    () -> true
+                );
+            }
         ));
 
         // Download Page Settings Panel
-        downloadPageSettingsPanel = new DownloadPageSettingsPanel(loadDownloadPageSettings());
-        registry.register(NavigablePanelAdapter.forJdeployPanel(
+        registry.register(new LazyNavigablePanel(
             "Download Page",
             null,
             FontIcon.of(Material.CLOUD_DOWNLOAD),
-            downloadPageSettingsPanel,
-            json -> {
-                DownloadPageSettings settings = loadDownloadPageSettings();
-                downloadPageSettingsPanel.setSettings(settings);
-            },
-            json -> saveDownloadPageSettings(downloadPageSettingsPanel.getSettings()),
-            listener -> downloadPageSettingsPanel.addChangeListener(e -> listener.actionPerformed(null))
+            () -> {
+                downloadPageSettingsPanel = new DownloadPageSettingsPanel(loadDownloadPageSettings());
+                return NavigablePanelAdapter.forJdeployPanel(
+                    "Download Page",
+                    null,
+                    downloadPageSettingsPanel,
+                    json -> {
+                        DownloadPageSettings settings = loadDownloadPageSettings();
+                        downloadPageSettingsPanel.setSettings(settings);
+                    },
+                    json -> saveDownloadPageSettings(downloadPageSettingsPanel.getSettings()),
+                    listener -> downloadPageSettingsPanel.addChangeListener(e -> listener.actionPerformed(null))
+                );
+            }
         ));
 
         // Publish Settings Panel (conditional)
         if (context.shouldDisplayPublishSettingsTab()) {
-            publishSettingsPanel = createPublishSettingsPanel();
             PublishTargetServiceInterface publishTargetService = DIContext.get(PublishTargetServiceInterface.class);
-            registry.register(NavigablePanelAdapter.forPackageJsonPanel(
+            registry.register(new LazyNavigablePanel(
                 "Publish Settings",
                 null,
                 FontIcon.of(Material.CLOUD_UPLOAD),
-                publishSettingsPanel,
-                json -> publishSettingsPanel.load(json),
-                json -> publishTargetService.updatePublishTargetsForPackageJson(json, publishSettingsPanel.getPublishTargets()),
-                listener -> publishSettingsPanel.addChangeListener(listener),
+                () -> NavigablePanelAdapter.forPackageJsonPanel(
+                    "Publish Settings",
+                    null,
+                    createPublishSettingsPanel(),
+                    json -> publishSettingsPanel.load(json),
+                    json -> publishTargetService.updatePublishTargetsForPackageJson(json, publishSettingsPanel.getPublishTargets()),
+                    listener -> publishSettingsPanel.addChangeListener(listener)
+                ),
                 () -> context.shouldDisplayPublishSettingsTab()
             ));
         }
@@ -703,6 +803,23 @@ public class JDeployProjectEditor {
         return registry;
     }
 
+    /**
+     * Whether npm publishing is turned on, as shown in the Publish Settings tab if it has been
+     * built, or as saved in package.json otherwise.
+     */
+    private boolean isNpmPublishingEnabled() {
+        if (!context.shouldDisplayPublishSettingsTab()) {
+            return false;
+        }
+        if (publishSettingsPanel != null) {
+            return publishSettingsPanel.getNpmCheckbox().isSelected();
+        }
+        return DIContext.get(PublishTargetServiceInterface.class)
+                .getTargetsForPackageJson(packageJSON, false)
+                .stream()
+                .anyMatch(target -> target.getType() == PublishTargetType.NPM);
+    }
+
     private PublishSettingsPanel createPublishSettingsPanel() {
         PublishTargetFactory factory = DIContext.get(PublishTargetFactory.class);
         PublishTargetServiceInterface publishTargetService = DIContext.get(PublishTargetServiceInterface.class);
@@ -0,0 +1,170 @@
+package ca.weblite.jdeploy.gui.navigation;
+
+import org.json.JSONObject;
+
+import javax.swing.Icon;
+import javax.swing.JComponent;
+import javax.swing.JPanel;
+import java.awt.BorderLayout;
+import java.awt.event.ActionListener;
+import java.awt.event.HierarchyEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * {@link NavigablePanel} that defers building the real panel until it is first shown.
+ *
+ * <p>The navigation host receives an empty placeholder as the root component.  The first time the
+ * placeholder is shown or the panel is selected, the factory builds the real panel, which is then
+ * given the change listeners and configuration that were passed to this panel so far.  Opening the
+ * editor therefore only pays for the tab that is visible.</p>
+ *
+ * <p>Until it is built, {@link #save(JSONObject, JSONObject)} does nothing: the user can't have
+ * changed a panel they haven't seen, so its settings are still in the configuration objects exactly
+ * as they were loaded.</p>
+ */
+public class LazyNavigablePanel implements NavigablePanel {
+
+    private final String title;
+    private final String helpUrl;
+    private final Icon icon;
+    private final Supplier<NavigablePanel> factory;
+    private final Supplier<Boolean> displayCondition;
+    private final JPanel placeholder;
+    private final List<ActionListener> changeListeners = new ArrayList<>();
+
+    private NavigablePanel delegate;
+    private boolean loaded;
+    private JSONObject loadedPackageJSON;
+    private JSONObject loadedJdeploy;
+
+    /**
+     * Creates a panel that is always displayed.
+     *
+     * @param title the panel title, must not be null
+     * @param helpUrl the help URL, may be null
+     * @param icon the icon for display in navigation UI, may be null
+     * @param factory builds the real panel; called at most once, on the event dispatch thread
+     */
+    public LazyNavigablePanel(String title, String helpUrl, Icon icon, Supplier<NavigablePanel> factory) {
+        this(title, helpUrl, icon, factory, () -> true);
+    }
+
+    /**
+     * Creates a panel that is displayed depending on a condition.
+     *
+     * @param title the panel title, must not be null
+     * @param helpUrl the help URL, may be null
+     * @param icon the icon for display in navigation UI, may be null
+     * @param factory builds the real panel; called at most once, on the event dispatch thread
+     * @param displayCondition supplier that determines whether this panel should be displayed
+     */
+    public LazyNavigablePanel(String title,
+                              String helpUrl,
+                              Icon icon,
+                              Supplier<NavigablePanel> factory,
+                              Supplier<Boolean> displayCondition) {
+        this.title = Objects.requireNonNull(title, "title");
+        this.helpUrl = helpUrl;
+        this.icon = icon;
+        this.factory = Objects.requireNonNull(factory, "factory");
+        this.displayCondition = Objects.requireNonNull(displayCondition, "displayCondition");
+        this.placeholder = new JPanel(new BorderLayout());
+        placeholder.setOpaque(false);
+        placeholder.addHierarchyListener(evt -> {
+            if ((evt.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0 && placeholder.isShowing()) {
+                ensureBuilt();
+            }
+        });
+    }
+
+    @Override
+    public String getTitle() {
+        return title;
+    }
+
+    @Override
+    public String getHelpUrl() {
+        return helpUrl;
+    }
+
+    @Override
+    public Icon getIcon() {
+        return icon;
+    }
+
+    @Override
+    public JComponent getRoot() {
+        return placeholder;
+    }
+
+    @Override
+    public void load(JSONObject packageJSON, JSONObject jdeploy) {
+        loaded = true;
+        loadedPackageJSON = packageJSON;
+        loadedJdeploy = jdeploy;
+        if (delegate != null) {
+            delegate.load(packageJSON, jdeploy);
+        }
+    }
+
+    @Override
+    public void save(JSONObject packageJSON, JSONObject jdeploy) {
+        if (delegate != null) {
+            delegate.save(packageJSON, jdeploy);
+        }
+    }
+
+    @Override
+    public void addChangeListener(ActionListener listener) {
+        changeListeners.add(listener);
+        if (delegate != null) {
+            delegate.addChangeListener(listener);
+        }
+    }
+
+    @Override
+    public boolean shouldDisplay() {
+        return displayCondition.get();
+    }
+
+    @Override
+    public Runnable getOnSelected() {
+        return () -> {
+            ensureBuilt();
+            Runnable onSelected = delegate.getOnSelected();
+            if (onSelected != null) {
+                onSelected.run();
+            }
+        };
+    }
+
+    /**
+     * @return true if the real panel has been built
+     */
+    public boolean isBuilt() {
+        return delegate != null;
+    }
+
+    /**
+     * Builds the real panel if that hasn't happened yet, in the same order the registry would
+     * have set it up: change listeners first, then the configuration.
+     */
+    public void ensureBuilt() {
+        if (delegate != null) {
+            return;
+        }
+        delegate = Objects.requireNonNull(factory.get(), "factory returned null");
+        for (ActionListener listener : changeListeners) {
+            delegate.addChangeListener(listener);
+        }
+        if (loaded) {
+            delegate.load(loadedPackageJSON, loadedJdeploy);
+        }
+        placeholder.add(delegate.getRoot(), BorderLayout.CENTER);
+        placeholder.revalidate();
+        placeholder.repaint();
+    }
+}
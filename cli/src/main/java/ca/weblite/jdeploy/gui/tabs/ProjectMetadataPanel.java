@@ -1,8 +1,8 @@
 package ca.weblite.jdeploy.gui.tabs;
 
 import ca.weblite.jdeploy.gui.util.SwingUtils;
+import ca.weblite.jdeploy.gui.util.ThumbnailLoader;
 import ca.weblite.jdeploy.interop.FileChooserInterop;
-import net.coobird.thumbnailator.Thumbnails;
 import org.apache.commons.io.FileUtils;
 import org.json.JSONObject;
 
@@ -16,9 +16,12 @@ import java.util.HashSet;
 import java.util.Set;
 
 public class ProjectMetadataPanel {
+    private static final int ICON_SIZE = 128;
+    
     private final JFrame parentFrame;
     private final File projectDirectory;
     private final FileChooserInterop fileChooserInterop;
+    private final ThumbnailLoader thumbnailLoader;
     
     private JPanel root;
     private JTextField name;
@@ -34,9 +37,19 @@ public class ProjectMetadataPanel {
     private ActionListener changeListener;
     
     public ProjectMetadataPanel(JFrame parentFrame, File projectDirectory, FileChooserInterop fileChooserInterop) {
+        this(parentFrame, projectDirectory, fileChooserInterop, ThumbnailLoader.getDefault());
+    }
+    
+    public ProjectMetadataPanel(
+            JFrame parentFrame,
+            File projectDirectory,
+            FileChooserInterop fileChooserInterop,
+            ThumbnailLoader thumbnailLoader
+    ) {
         this.parentFrame = parentFrame;
         this.projectDirectory = projectDirectory;
         this.fileChooserInterop = fileChooserInterop;
+        this.thumbnailLoader = thumbnailLoader;
         initializeUI();
     }
     
@@ -131,7 +144,7 @@ public class ProjectMetadataPanel {
         JPanel iconPanel = new JPanel();
         iconPanel.setBorder(BorderFactory.createTitledBorder("Icon"));
         icon = new JButton();
-        icon.setPreferredSize(new Dimension(128, 128));
+        icon.setPreferredSize(new Dimension(ICON_SIZE, ICON_SIZE));
         initializeIconButton();
         iconPanel.add(icon);
         root.add(iconPanel);
@@ -148,13 +161,7 @@ public class ProjectMetadataPanel {
     private void initializeIconButton() {
         File iconFile = getIconFile();
         if (iconFile.exists()) {
-            try {
-                icon.setIcon(new ImageIcon(Thumbnails.of(iconFile).size(128, 128).asBufferedImage()));
-                icon.setText("");
-            } catch (Exception ex) {
-                System.err.println("Failed to load icon image: " + ex.getMessage());
-                icon.setText("Select icon...");
-            }
+            showIcon(false);
         } else {
             icon.setText("Select icon...");
         }
@@ -162,6 +169,33 @@ public class ProjectMetadataPanel {
         icon.addActionListener(evt -> handleIconSelection());
     }
     
+    /**
+     * Shows the project icon on the button once it has been decoded in the background.
+     *
+     * @param reportErrors true to tell the user if the icon can't be read, rather than only logging it
+     */
+    private void showIcon(boolean reportErrors) {
+        thumbnailLoader.load(getIconFile(), ICON_SIZE, ICON_SIZE,
+            thumbnail -> {
+                icon.setIcon(thumbnail);
+                icon.setText("");
+            },
+            ex -> {
+                System.err.println("Failed to load icon image: " + ex.getMessage());
+                icon.setIcon(null);
+                icon.setText("Select icon...");
+                if (reportErrors) {
+                    JOptionPane.showMessageDialog(
+                        parentFrame,
+                        "Failed to select icon: " + ex.getMessage(),
+                        "Error",
+                        JOptionPane.ERROR_MESSAGE
+                    );
+                }
+            }
+        );
+    }
+    
     private void handleIconSelection() {
         Set<String> extensions = new HashSet<>();
         extensions.add("png");
@@ -172,8 +206,7 @@ public class ProjectMetadataPanel {
         
         try {
             FileUtils.copyFile(selected, getIconFile());
-            icon.setIcon(new ImageIcon(Thumbnails.of(getIconFile()).size(128, 128).asBufferedImage()));
-            icon.setText("");
+            showIcon(true);
             fireChangeEvent();
         } catch (Exception ex) {
             System.err.println("Error while copying icon file: " + ex.getMessage());
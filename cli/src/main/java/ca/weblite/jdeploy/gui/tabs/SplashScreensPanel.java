@@ -1,6 +1,6 @@
 package ca.weblite.jdeploy.gui.tabs;
 
-import net.coobird.thumbnailator.Thumbnails;
+import ca.weblite.jdeploy.gui.util.ThumbnailLoader;
 import org.apache.commons.io.FileUtils;
 import org.json.JSONObject;
 import org.kordamp.ikonli.material.Material;
@@ -21,20 +21,27 @@ import java.util.Objects;
  * Follows the panel pattern: getRoot(), load(JSONObject), save(JSONObject), addChangeListener()
  */
 public class SplashScreensPanel extends JPanel {
+    private static final int THUMBNAIL_HEIGHT = 200;
+
     private JButton splashButton;
     private JButton installSplashButton;
     private final File projectDirectory;
     private ActionListener changeListener;
     private JFrame parentFrame;
+    private final ThumbnailLoader thumbnailLoader;
 
     public SplashScreensPanel(File projectDirectory) {
-        this.projectDirectory = Objects.requireNonNull(projectDirectory, "projectDirectory");
-        initializeUI();
+        this(projectDirectory, null);
     }
 
     public SplashScreensPanel(File projectDirectory, JFrame parentFrame) {
+        this(projectDirectory, parentFrame, ThumbnailLoader.getDefault());
+    }
+
+    public SplashScreensPanel(File projectDirectory, JFrame parentFrame, ThumbnailLoader thumbnailLoader) {
         this.projectDirectory = Objects.requireNonNull(projectDirectory, "projectDirectory");
         this.parentFrame = parentFrame;
+        this.thumbnailLoader = Objects.requireNonNull(thumbnailLoader, "thumbnailLoader");
         initializeUI();
     }
 
@@ -55,6 +62,8 @@ public class SplashScreensPanel extends JPanel {
         splashButton = new JButton();
         installSplashButton = new JButton();
         
+        splashButton.addActionListener(evt -> handleSelectSplashImage());
+        installSplashButton.addActionListener(evt -> handleSelectInstallSplashImage());
         setupSplashButton();
         setupInstallSplashButton();
         
@@ -87,39 +96,45 @@ public class SplashScreensPanel extends JPanel {
     private void setupSplashButton() {
         File splashFile = getSplashFile(null);
         if (splashFile != null && splashFile.exists()) {
-            try {
-                splashButton.setIcon(
-                        new ImageIcon(Thumbnails.of(splashFile).height(200).asBufferedImage())
-                );
-            } catch (Exception ex) {
-                System.err.println("Failed to read splash image from " + splashFile);
-                ex.printStackTrace(System.err);
-                splashButton.setText("Select splash screen image...");
-            }
+            showThumbnail(splashButton, splashFile, "Select splash screen image...", null);
         } else {
+            splashButton.setIcon(null);
             splashButton.setText("Select splash screen image...");
         }
-        
-        splashButton.addActionListener(evt -> handleSelectSplashImage());
     }
 
     private void setupInstallSplashButton() {
         File installSplashFile = getInstallSplashFile();
         if (installSplashFile.exists()) {
-            try {
-                installSplashButton.setIcon(
-                        new ImageIcon(Thumbnails.of(installSplashFile).height(200).asBufferedImage())
-                );
-            } catch (Exception ex) {
-                System.err.println("Failed to read install splash image from " + installSplashFile);
-                ex.printStackTrace(System.err);
-                installSplashButton.setText("Select install splash screen image...");
-            }
+            showThumbnail(installSplashButton, installSplashFile, "Select install splash screen image...", null);
         } else {
+            installSplashButton.setIcon(null);
             installSplashButton.setText("Select install splash screen image...");
         }
-        
-        installSplashButton.addActionListener(evt -> handleSelectInstallSplashImage());
+    }
+
+    /**
+     * Shows a thumbnail of the image on the button once it has been decoded in the background.
+     *
+     * @param errorMessage the message to show the user if the image can't be read, or null to
+     *                     only log the failure
+     */
+    private void showThumbnail(JButton button, File imageFile, String placeholderText, String errorMessage) {
+        thumbnailLoader.load(imageFile, 0, THUMBNAIL_HEIGHT,
+                thumbnail -> {
+                    button.setText("");
+                    button.setIcon(thumbnail);
+                },
+                ex -> {
+                    System.err.println("Failed to read image from " + imageFile);
+                    ex.printStackTrace(System.err);
+                    button.setIcon(null);
+                    button.setText(placeholderText);
+                    if (errorMessage != null) {
+                        showError(errorMessage, null);
+                    }
+                }
+        );
     }
 
     private void handleSelectSplashImage() {
@@ -138,10 +153,8 @@ public class SplashScreensPanel extends JPanel {
                 oldSplashFile.delete();
             }
             FileUtils.copyFile(selected, targetFile);
-            splashButton.setText("");
-            splashButton.setIcon(
-                    new ImageIcon(Thumbnails.of(targetFile).height(200).asBufferedImage())
-            );
+            showThumbnail(splashButton, targetFile, "Select splash screen image...",
+                    "Failed to read splash image");
             fireChangeEvent();
         } catch (Exception ex) {
             System.err.println("Error while copying splash file");
@@ -157,10 +170,8 @@ public class SplashScreensPanel extends JPanel {
         try {
             File targetFile = getInstallSplashFile();
             FileUtils.copyFile(selected, targetFile);
-            installSplashButton.setText("");
-            installSplashButton.setIcon(
-                    new ImageIcon(Thumbnails.of(targetFile).height(200).asBufferedImage())
-            );
+            showThumbnail(installSplashButton, targetFile, "Select install splash screen image...",
+                    "Failed to read install splash image");
             fireChangeEvent();
         } catch (Exception ex) {
             System.err.println("Error while copying install splash file");
@@ -0,0 +1,158 @@
+package ca.weblite.jdeploy.gui.util;
+
+import net.coobird.thumbnailator.Thumbnails;
+
+import javax.swing.ImageIcon;
+import javax.swing.SwingUtilities;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Decodes and scales images for the project editor on a background thread, so that opening a
+ * project with a large icon or splash screen doesn't freeze the window.
+ *
+ * <p>Scaled images are kept in memory, keyed by the file's path, modification time and size, so
+ * that reloading package.json or reopening the editor doesn't decode the same file again.
+ * Replacing the file changes its key, which leaves the old entry to be evicted.</p>
+ *
+ * <p>Images are loaded one at a time, in the order they were requested, so the last request for
+ * a button is always the last one to be delivered.</p>
+ */
+public class ThumbnailLoader {
+
+    /**
+     * Reads an image file and scales it to the requested size.
+     */
+    public interface Decoder {
+        BufferedImage decode(File file, int width, int height) throws IOException;
+    }
+
+    private static final int MAX_CACHED_IMAGES = 32;
+
+    private static final ThumbnailLoader DEFAULT = new ThumbnailLoader(
+            Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "jdeploy-thumbnail-loader");
+                thread.setDaemon(true);
+                return thread;
+            }),
+            ThumbnailLoader::scale
+    );
+
+    private final ExecutorService executor;
+    private final Decoder decoder;
+    private final Map<Key, ImageIcon> cache = new LinkedHashMap<Key, ImageIcon>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, ImageIcon> eldest) {
+            return size() > MAX_CACHED_IMAGES;
+        }
+    };
+
+    /**
+     * @param executor runs the decoding; should run tasks one at a time to keep them in order
+     * @param decoder reads and scales the images
+     */
+    public ThumbnailLoader(ExecutorService executor, Decoder decoder) {
+        this.executor = Objects.requireNonNull(executor, "executor");
+        this.decoder = Objects.requireNonNull(decoder, "decoder");
+    }
+
+    /**
+     * @return the loader shared by the editor panels
+     */
+    public static ThumbnailLoader getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Loads a scaled copy of an image file in the background.  Both callbacks are invoked on the
+     * event dispatch thread.
+     *
+     * @param file the image file
+     * @param width the maximum width, or 0 to scale to the height alone
+     * @param height the maximum height
+     * @param onLoaded receives the scaled image
+     * @param onError receives the exception if the file can't be read or decoded
+     */
+    public void load(File file, int width, int height, Consumer<ImageIcon> onLoaded, Consumer<Exception> onError) {
+        executor.execute(() -> {
+            try {
+                ImageIcon icon = loadNow(file, width, height);
+                SwingUtilities.invokeLater(() -> onLoaded.accept(icon));
+            } catch (Exception ex) {
+                SwingUtilities.invokeLater(() -> onError.accept(ex));
+            }
+        });
+    }
+
+    private ImageIcon loadNow(File file, int width, int height) throws IOException {
+        File absoluteFile = file.getAbsoluteFile();
+        long lastModified = absoluteFile.lastModified();
+        if (lastModified == 0L) {
+            throw new FileNotFoundException(absoluteFile.getPath());
+        }
+        Key key = new Key(absoluteFile.getPath(), lastModified, absoluteFile.length(), width, height);
+        synchronized (cache) {
+            ImageIcon cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        ImageIcon icon = new ImageIcon(decoder.decode(absoluteFile, width, height));
+        synchronized (cache) {
+            cache.put(key, icon);
+        }
+        return icon;
+    }
+
+    private static BufferedImage scale(File file, int width, int height) throws IOException {
+        if (width <= 0) {
+            return Thumbnails.of(file).height(height).asBufferedImage();
+        }
+        return Thumbnails.of(file).size(width, height).asBufferedImage();
+    }
+
+    private static final class Key {
+        private final String path;
+        private final long lastModified;
+        private final long length;
+        private final int width;
+        private final int height;
+
+        private Key(String path, long lastModified, long length, int width, int height) {
+            this.path = path;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return lastModified == other.lastModified
+                    && length == other.length
+                    && width == other.width
+                    && height == other.height
+                    && path.equals(other.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, lastModified, length, width, height);
+        }
+    }
+}
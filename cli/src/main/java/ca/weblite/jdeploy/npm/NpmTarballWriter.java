@@ -0,0 +1,427 @@
+package ca.weblite.jdeploy.npm;
+
+import ca.weblite.tools.io.FileUtil;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import javax.inject.Singleton;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Writes npm package tarballs in-process, as a replacement for {@code npm pack}.
+ *
+ * Output follows npm's conventions: every file lives under {@code package/}, there are no
+ * directory entries, ownership is cleared, modification times are pinned to npm's fixed
+ * 1985-10-26T08:15:00Z, and modes are normalized to 0644, or 0755 for executables.  Entries are
+ * written in a stable order, so the same inputs always produce the same bytes.
+ */
+@Singleton
+public class NpmTarballWriter {
+
+    /**
+     * The modification time npm stamps on every entry in a packed tarball.
+     */
+    static final long NPM_MTIME_MILLIS = 499162500000L;
+
+    private static final String PACKAGE_PREFIX = "package/";
+
+    private static final Set<String> ALWAYS_EXCLUDED_NAMES = new HashSet<>(Arrays.asList(
+            ".git", "CVS", ".svn", ".hg", ".lock-wscript", ".DS_Store", ".npmrc", ".npmignore",
+            ".gitignore", "node_modules", "npm-debug.log", "package-lock.json", "config.gypi"
+    ));
+
+    /**
+     * The contents of a single tarball entry, taken either from a file or from memory.
+     */
+    public static final class Content {
+        private final File file;
+        private final byte[] bytes;
+
+        private Content(File file, byte[] bytes) {
+            this.file = file;
+            this.bytes = bytes;
+        }
+
+        public static Content of(File file) {
+            return new Content(file, null);
+        }
+
+        public static Content of(byte[] bytes) {
+            return new Content(null, bytes);
+        }
+
+        /**
+         * The file the contents are read from, or null if they are held in memory.
+         */
+        public File getFile() {
+            return file;
+        }
+
+        long length() {
+            return file != null ? file.length() : bytes.length;
+        }
+
+        boolean isExecutable() {
+            return file != null && FileUtil.isPosix() && file.canExecute();
+        }
+
+        InputStream open() throws IOException {
+            return file != null ? new FileInputStream(file) : new ByteArrayInputStream(bytes);
+        }
+    }
+
+    /**
+     * Lists the files that {@code npm pack} would include from a package directory, keyed by
+     * their '/'-separated path relative to the directory.
+     *
+     * If package.json has a "files" array, only the matching files are included, along with
+     * package.json, README, LICENSE, and the "main" and "bin" files.  Otherwise everything is
+     * included.  Version control metadata, node_modules and other files npm always ignores
+     * are excluded in either case.
+     *
+     * Files are also excluded by {@code .npmignore} files, or by {@code .gitignore} in
+     * directories without one.  As with npm, the ignore file at the package root doesn't apply
+     * when there is a "files" array, but those in subdirectories do, and the required files
+     * listed above are never ignored.  Patterns use gitignore syntax; character classes and
+     * escapes are passed through to {@link java.nio.file.PathMatcher} globs as they are.
+     */
+    public SortedMap<String, File> listPackageFiles(File packageDir) throws IOException {
+        JSONObject packageJson = readPackageJson(packageDir);
+        List<String> patterns = new ArrayList<>();
+        if (packageJson != null && packageJson.optJSONArray("files") != null) {
+            JSONArray files = packageJson.getJSONArray("files");
+            for (int i = 0; i < files.length(); i++) {
+                String pattern = normalizePath(files.getString(i));
+                if (!pattern.isEmpty()) {
+                    patterns.add(pattern);
+                }
+            }
+        }
+        Set<String> required = getRequiredFiles(packageJson);
+
+        SortedMap<String, File> out = new TreeMap<>();
+        List<PathMatcher> matchers = patterns.isEmpty() ? null : toMatchers(patterns);
+        collectFiles(packageDir, "", matchers, required, false, new ArrayList<>(), matchers != null, out);
+        return out;
+    }
+
+    /**
+     * Writes a gzipped tarball containing the given entries.
+     *
+     * @param entries the entry contents, keyed by '/'-separated path relative to the package root
+     * @param executablePaths paths that should be marked executable regardless of file mode
+     * @param tarball the file to write.  It is replaced atomically.
+     */
+    public void write(Map<String, Content> entries, Collection<String> executablePaths, File tarball) throws IOException {
+        List<String> paths = new ArrayList<>(entries.keySet());
+        // Match npm, which puts package.json first so readers find the manifest quickly
+        paths.sort((a, b) -> {
+            if (a.equals(b)) {
+                return 0;
+            }
+            if ("package.json".equals(a)) {
+                return -1;
+            }
+            if ("package.json".equals(b)) {
+                return 1;
+            }
+            return a.compareTo(b);
+        });
+
+        File parent = tarball.getAbsoluteFile().getParentFile();
+        parent.mkdirs();
+        File tmp = File.createTempFile(tarball.getName(), ".tmp", parent);
+        try {
+            try (TarArchiveOutputStream taos = new TarArchiveOutputStream(
+                    new GzipCompressorOutputStream(new BufferedOutputStream(new FileOutputStream(tmp))))) {
+                taos.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+                taos.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+                taos.setAddPaxHeadersForNonAsciiNames(true);
+
+                Date mtime = new Date(NPM_MTIME_MILLIS);
+                for (String path : paths) {
+                    Content content = entries.get(path);
+                    TarArchiveEntry entry = new TarArchiveEntry(PACKAGE_PREFIX + normalizePath(path));
+                    entry.setModTime(mtime);
+                    entry.setSize(content.length());
+                    entry.setMode(content.isExecutable() || executablePaths.contains(path) ? 0100755 : 0100644);
+                    entry.setUserId(0);
+                    entry.setGroupId(0);
+                    entry.setUserName("");
+                    entry.setGroupName("");
+                    taos.putArchiveEntry(entry);
+                    try (InputStream input = content.open()) {
+                        IOUtils.copy(input, taos);
+                    }
+                    taos.closeArchiveEntry();
+                }
+            }
+            Files.move(tmp.toPath(), tarball.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            FileUtils.deleteQuietly(tmp);
+        }
+    }
+
+    /**
+     * Gets the "bin" targets declared in package.json, which npm always packs as executable.
+     */
+    public Set<String> getBinPaths(JSONObject packageJson) {
+        Set<String> out = new HashSet<>();
+        if (packageJson == null) {
+            return out;
+        }
+        Object bin = packageJson.opt("bin");
+        if (bin instanceof String) {
+            out.add(normalizePath((String) bin));
+        } else if (bin instanceof JSONObject) {
+            JSONObject binMap = (JSONObject) bin;
+            for (String key : binMap.keySet()) {
+                out.add(normalizePath(binMap.optString(key, "")));
+            }
+        }
+        out.remove("");
+        return out;
+    }
+
+    private void collectFiles(
+            File dir,
+            String prefix,
+            List<PathMatcher> matchers,
+            Set<String> required,
+            boolean included,
+            List<IgnoreFile> ignoreFiles,
+            boolean skipIgnoreFile,
+            SortedMap<String, File> out
+    ) throws IOException {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        if (!skipIgnoreFile) {
+            IgnoreFile ignoreFile = IgnoreFile.load(dir, prefix);
+            if (ignoreFile != null) {
+                ignoreFiles = new ArrayList<>(ignoreFiles);
+                ignoreFiles.add(ignoreFile);
+            }
+        }
+        for (File child : children) {
+            String name = child.getName();
+            if (isAlwaysExcluded(name)) {
+                continue;
+            }
+            String path = prefix + name;
+            boolean directory = child.isDirectory();
+            boolean childIncluded = included || matchers == null || matches(matchers, path);
+            boolean ignored = isIgnored(ignoreFiles, path, name, directory);
+            if (directory) {
+                if (ignored) {
+                    addRequiredFiles(child, path + "/", required, out);
+                } else {
+                    collectFiles(child, path + "/", matchers, required, childIncluded, ignoreFiles, false, out);
+                }
+            } else if (child.isFile()) {
+                if (isRequiredFile(prefix, name, required) || (childIncluded && !ignored)) {
+                    out.put(path, child);
+                }
+            }
+        }
+    }
+
+    private static boolean isIgnored(List<IgnoreFile> ignoreFiles, String path, String name, boolean directory) {
+        boolean ignored = false;
+        for (IgnoreFile ignoreFile : ignoreFiles) {
+            Boolean result = ignoreFile.match(path, name, directory);
+            if (result != null) {
+                ignored = result;
+            }
+        }
+        return ignored;
+    }
+
+    private static void addRequiredFiles(File dir, String dirPrefix, Set<String> required, SortedMap<String, File> out) {
+        for (String path : required) {
+            if (path.startsWith(dirPrefix)) {
+                File file = new File(dir, path.substring(dirPrefix.length()));
+                if (file.isFile()) {
+                    out.put(path, file);
+                }
+            }
+        }
+    }
+
+    private static boolean isRequiredFile(String prefix, String name, Set<String> required) {
+        if (required.contains(prefix + name)) {
+            return true;
+        }
+        if (!prefix.isEmpty()) {
+            return false;
+        }
+        String lower = name.toLowerCase(Locale.ROOT);
+        return lower.equals("package.json")
+                || lower.startsWith("readme")
+                || lower.startsWith("license")
+                || lower.startsWith("licence");
+    }
+
+    private Set<String> getRequiredFiles(JSONObject packageJson) {
+        Set<String> out = new HashSet<>(getBinPaths(packageJson));
+        if (packageJson != null && packageJson.optString("main", null) != null) {
+            out.add(normalizePath(packageJson.getString("main")));
+        }
+        return out;
+    }
+
+    private static boolean isAlwaysExcluded(String name) {
+        return ALWAYS_EXCLUDED_NAMES.contains(name)
+                || name.startsWith("._")
+                || (name.startsWith(".") && name.endsWith(".swp"))
+                || name.endsWith(".orig");
+    }
+
+    private static List<PathMatcher> toMatchers(List<String> patterns) {
+        List<PathMatcher> out = new ArrayList<>();
+        for (String pattern : patterns) {
+            out.add(FileSystems.getDefault().getPathMatcher("glob:" + pattern));
+        }
+        return out;
+    }
+
+    private static boolean matches(List<PathMatcher> matchers, String path) {
+        for (PathMatcher matcher : matchers) {
+            if (matcher.matches(Paths.get(path))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String normalizePath(String path) {
+        String out = path.replace('\\', '/');
+        while (out.startsWith("./")) {
+            out = out.substring(2);
+        }
+        while (out.startsWith("/")) {
+            out = out.substring(1);
+        }
+        while (out.endsWith("/")) {
+            out = out.substring(0, out.length() - 1);
+        }
+        return out;
+    }
+
+    /**
+     * The rules from a single {@code .npmignore} or {@code .gitignore} file.  Later rules take
+     * precedence over earlier ones, and rules in deeper files over those in shallower ones.
+     */
+    private static final class IgnoreFile {
+        private final String basePrefix;
+        private final List<IgnoreRule> rules;
+
+        private IgnoreFile(String basePrefix, List<IgnoreRule> rules) {
+            this.basePrefix = basePrefix;
+            this.rules = rules;
+        }
+
+        static IgnoreFile load(File dir, String prefix) throws IOException {
+            File file = new File(dir, ".npmignore");
+            if (!file.isFile()) {
+                file = new File(dir, ".gitignore");
+                if (!file.isFile()) {
+                    return null;
+                }
+            }
+            List<IgnoreRule> rules = new ArrayList<>();
+            for (String line : FileUtils.readLines(file, StandardCharsets.UTF_8)) {
+                IgnoreRule rule = IgnoreRule.parse(line);
+                if (rule != null) {
+                    rules.add(rule);
+                }
+            }
+            return rules.isEmpty() ? null : new IgnoreFile(prefix, rules);
+        }
+
+        /**
+         * @return true if the path is ignored, false if it is re-included with '!', or null if
+         *     no rule matches it
+         */
+        Boolean match(String path, String name, boolean directory) {
+            String relativePath = path.substring(basePrefix.length());
+            Boolean result = null;
+            for (IgnoreRule rule : rules) {
+                if (rule.matches(relativePath, name, directory)) {
+                    result = !rule.negated;
+                }
+            }
+            return result;
+        }
+    }
+
+    private static final class IgnoreRule {
+        private final boolean negated;
+        private final boolean directoryOnly;
+        private final boolean anchored;
+        private final List<PathMatcher> matchers;
+
+        private IgnoreRule(boolean negated, boolean directoryOnly, boolean anchored, List<PathMatcher> matchers) {
+            this.negated = negated;
+            this.directoryOnly = directoryOnly;
+            this.anchored = anchored;
+            this.matchers = matchers;
+        }
+
+        static IgnoreRule parse(String line) {
+            String pattern = line.replaceAll("\\s+$", "");
+            if (pattern.isEmpty() || pattern.startsWith("#")) {
+                return null;
+            }
+            boolean negated = pattern.startsWith("!");
+            if (negated) {
+                pattern = pattern.substring(1);
+            }
+            boolean directoryOnly = pattern.endsWith("/");
+            while (pattern.endsWith("/")) {
+                pattern = pattern.substring(0, pattern.length() - 1);
+            }
+            // Like git, a pattern with a leading or inner slash is relative to the ignore file's
+            // directory, and one without matches a name at any depth
+            boolean anchored = pattern.contains("/");
+            pattern = normalizePath(pattern);
+            if (pattern.isEmpty()) {
+                return null;
+            }
+            List<String> globs = new ArrayList<>();
+            globs.add(pattern);
+            if (pattern.startsWith("**/")) {
+                globs.add(pattern.substring(3));
+            }
+            return new IgnoreRule(negated, directoryOnly, anchored, toMatchers(globs));
+        }
+
+        boolean matches(String relativePath, String name, boolean directory) {
+            if (directoryOnly && !directory) {
+                return false;
+            }
+            return NpmTarballWriter.matches(matchers, anchored ? relativePath : name);
+        }
+    }
+
+    private static JSONObject readPackageJson(File packageDir) throws IOException {
+        File packageJsonFile = new File(packageDir, "package.json");
+        if (!packageJsonFile.isFile()) {
+            return null;
+        }
+        return new JSONObject(FileUtils.readFileToString(packageJsonFile, StandardCharsets.UTF_8));
+    }
+}
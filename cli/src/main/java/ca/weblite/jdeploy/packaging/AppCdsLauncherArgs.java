@@ -0,0 +1,77 @@
+package ca.weblite.jdeploy.packaging;
+
+import ca.weblite.jdeploy.installer.util.CliCommandBinDirResolver;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import javax.inject.Singleton;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Adds the JVM options that enable dynamic AppCDS to the {@code jdeploy.args} of the package.json
+ * that is published, so that apps started by the native launcher get the same class data sharing
+ * as apps started by jdeploy.js.
+ *
+ * jdeploy.js decides on each launch whether to train an archive or use it (see
+ * {@code prepareAppCdsArgs()} in jdeploy.js).  The native launcher only passes on the args listed
+ * in package.json, so it relies on {@code -XX:+AutoCreateSharedArchive} instead: the JVM creates
+ * the archive on exit the first time, maps it on later launches, and recreates it when the app's
+ * jars or the JVM change.  That option was added in Java 19 and older JVMs refuse to start with
+ * it, so the args are only added when the package's {@code javaVersion} is 19 or newer.  Apps on
+ * Java 13 to 18 get AppCDS through jdeploy.js only.
+ */
+@Singleton
+public class AppCdsLauncherArgs {
+
+    static final int MIN_JAVA_VERSION = 19;
+
+    private static final String SHARED_ARCHIVE_FILE = "-XX:SharedArchiveFile=";
+
+    private static final Pattern JAVA_VERSION = Pattern.compile("^(?:1\\.)?(\\d+)");
+
+    /**
+     * Adds the AppCDS args to the jdeploy object of a package.json if it sets {@code "appCds": true}.
+     *
+     * The archive is kept at {@code ~/.jdeploy/appcds-{fqpn}.jsa}.  The JVM doesn't create
+     * missing directories for it, and a failed dump changes the app's exit status to 1, so it goes
+     * directly in {@code ~/.jdeploy}, which the installer and the launcher's JRE download already
+     * created.  Nothing is added if the package's Java version is too old or its args already
+     * name a shared archive.
+     *
+     * @param packageJSON the package.json that is published
+     * @return true if the args were added
+     */
+    public boolean addTo(JSONObject packageJSON) {
+        JSONObject jdeploy = packageJSON.optJSONObject("jdeploy");
+        if (jdeploy == null || !jdeploy.optBoolean("appCds", false)) {
+            return false;
+        }
+        Matcher version = JAVA_VERSION.matcher(jdeploy.optString("javaVersion", ""));
+        if (!version.find() || Integer.parseInt(version.group(1)) < MIN_JAVA_VERSION) {
+            return false;
+        }
+        JSONArray args = jdeploy.optJSONArray("args");
+        if (args == null) {
+            args = new JSONArray();
+            jdeploy.put("args", args);
+        }
+        for (int i = 0; i < args.length(); i++) {
+            if (args.optString(i, "").startsWith(SHARED_ARCHIVE_FILE)) {
+                return false;
+            }
+        }
+
+        String fqpn = CliCommandBinDirResolver.computeFullyQualifiedPackageName(
+                packageJSON.getString("name"),
+                packageJSON.optString("source", null)
+        );
+        // Scoped package names contain a slash
+        String archiveName = "appcds-" + fqpn.replaceAll("[^A-Za-z0-9@._-]", "_") + ".jsa";
+        args.put("-XX:+AutoCreateSharedArchive");
+        args.put(SHARED_ARCHIVE_FILE + "{{ user.home }}/.jdeploy/" + archiveName);
+        // The JVM warns whenever it has to recreate the archive, e.g. after an update
+        args.put("-Xlog:cds*=off");
+        return true;
+    }
+}
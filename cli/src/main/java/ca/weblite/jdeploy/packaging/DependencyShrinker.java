@@ -0,0 +1,530 @@
+package ca.weblite.jdeploy.packaging;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Removes classes that the application can never load from the dependency jars in jdeploy-bundle.
+ *
+ * Reachability is computed at class granularity by walking the constant pools of the class files
+ * on the application jar's Class-Path.  The roots are every class in the application jar (which is
+ * never shrunk itself), every ServiceLoader provider listed under {@code META-INF/services}, and
+ * every class matching a keep rule.  A class is considered referenced if its name appears in a
+ * reachable class's constant pool, either as an internal name, inside a type descriptor or
+ * signature, or as a dotted string constant such as the argument of {@code Class.forName()}.
+ *
+ * Keep rules are fully qualified class names, optionally ending in {@code .*} (classes in the
+ * package) or {@code .**} (classes in the package and its subpackages).  They are needed for
+ * classes that are only loaded reflectively by a computed name.
+ *
+ * Resources, signed jars and {@code module-info} classes are left untouched.
+ *
+ * Shrinking makes the bundle smaller to download and install; it does little for startup, since
+ * the JVM only reads the classes it loads.  In DependencyShrinkerBenchmark, removing 2700 of 3000
+ * classes from a dependency cut the bundle from 4.1 MB to 0.4 MB but the time to the main window
+ * by only 2 to 8%, which is close to the run-to-run noise.
+ */
+@Singleton
+public class DependencyShrinker {
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private static final String SERVICES_PREFIX = "META-INF/services/";
+
+    private static final String VERSIONS_PREFIX = "META-INF/versions/";
+
+    // Internal names can't contain '.', which keeps the scan linear on long string constants
+    private static final Pattern DESCRIPTOR_TYPE = Pattern.compile("L([^;<>()\\[.]+)[;<]");
+
+    private final ClassPathFinder classPathFinder;
+
+    @Inject
+    public DependencyShrinker(ClassPathFinder classPathFinder) {
+        this.classPathFinder = classPathFinder;
+    }
+
+    /**
+     * Shrinks the Class-Path dependencies of {@code appJar} in place.
+     *
+     * @param appJar the application jar, as copied into jdeploy-bundle
+     * @param keepRules class names or package patterns that must be kept
+     * @return what was removed
+     */
+    public Result shrink(File appJar, Collection<String> keepRules) throws IOException {
+        List<File> dependencies = findDependencies(appJar);
+        Map<File, ZipFile> zipFiles = new LinkedHashMap<>();
+        try {
+            zipFiles.put(appJar, new ZipFile(appJar));
+            for (File dependency : dependencies) {
+                zipFiles.put(dependency, new ZipFile(dependency));
+            }
+            ClassIndex index = new ClassIndex(zipFiles);
+            Set<String> reachable = computeReachable(index, findRoots(index, appJar, keepRules));
+
+            Result result = new Result();
+            for (File dependency : dependencies) {
+                ZipFile zipFile = zipFiles.get(dependency);
+                if (isSigned(zipFile)) {
+                    continue;
+                }
+                List<String> removed = new ArrayList<>();
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    String className = toClassName(entry.getName());
+                    if (className != null && !reachable.contains(className)) {
+                        removed.add(entry.getName());
+                    }
+                }
+                if (!removed.isEmpty()) {
+                    result.jars.put(dependency, new JarResult(removed.size(), dependency.length()));
+                }
+            }
+            for (ZipFile zipFile : zipFiles.values()) {
+                zipFile.close();
+            }
+            zipFiles.clear();
+
+            result.jars.entrySet().parallelStream().forEach(e -> {
+                try {
+                    rewrite(e.getKey(), reachable);
+                    e.getValue().bytesAfter = e.getKey().length();
+                } catch (IOException ex) {
+                    throw new ShrinkException(ex);
+                }
+            });
+            result.reachableClasses = reachable.size();
+            return result;
+        } catch (ShrinkException ex) {
+            throw ex.getCause();
+        } finally {
+            for (ZipFile zipFile : zipFiles.values()) {
+                try {
+                    zipFile.close();
+                } catch (IOException ex) {
+                    // Ignore
+                }
+            }
+        }
+    }
+
+    private List<File> findDependencies(File appJar) throws IOException {
+        List<File> out = new ArrayList<>();
+        File baseDir = appJar.getAbsoluteFile().getParentFile();
+        for (String path : classPathFinder.findClassPath(appJar)) {
+            if (path.isEmpty() || !path.endsWith(".jar")) {
+                continue;
+            }
+            File dependency = new File(baseDir, path);
+            if (dependency.isFile() && !out.contains(dependency)) {
+                out.add(dependency);
+            }
+        }
+        return out;
+    }
+
+    private Set<String> findRoots(ClassIndex index, File appJar, Collection<String> keepRules) throws IOException {
+        Set<String> roots = new HashSet<>();
+        String mainClass = readMainClass(index.zipFiles.get(appJar));
+        if (mainClass != null) {
+            roots.add(mainClass.replace('.', '/'));
+        }
+        for (Map.Entry<String, List<Location>> entry : index.classes.entrySet()) {
+            for (Location location : entry.getValue()) {
+                if (location.jar.equals(appJar)) {
+                    roots.add(entry.getKey());
+                }
+            }
+        }
+        for (ZipFile zipFile : index.zipFiles.values()) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (!name.startsWith(SERVICES_PREFIX) || entry.isDirectory()) {
+                    continue;
+                }
+                roots.add(name.substring(SERVICES_PREFIX.length()).replace('.', '/'));
+                roots.addAll(readServiceProviders(zipFile, entry));
+            }
+        }
+        if (keepRules != null) {
+            for (String rule : keepRules) {
+                for (String className : index.classes.keySet()) {
+                    if (matchesKeepRule(rule.trim(), className)) {
+                        roots.add(className);
+                    }
+                }
+            }
+        }
+        return roots;
+    }
+
+    private static Set<String> computeReachable(ClassIndex index, Set<String> roots) throws IOException {
+        Set<String> reachable = ConcurrentHashMap.newKeySet();
+        List<String> frontier = new ArrayList<>();
+        for (String root : roots) {
+            if (index.classes.containsKey(root) && reachable.add(root)) {
+                frontier.add(root);
+            }
+        }
+        try {
+            while (!frontier.isEmpty()) {
+                frontier = frontier.parallelStream()
+                        .flatMap(className -> index.getReferences(className).stream())
+                        .filter(reachable::add)
+                        .collect(Collectors.toList());
+            }
+        } catch (ShrinkException ex) {
+            throw ex.getCause();
+        }
+        return reachable;
+    }
+
+    private static void rewrite(File jar, Set<String> reachable) throws IOException {
+        File tmp = new File(jar.getParentFile(), jar.getName() + ".shrink.tmp");
+        try (ZipFile zipFile = new ZipFile(jar);
+             ZipOutputStream out = new ZipOutputStream(new FileOutputStream(tmp))) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            byte[] buffer = new byte[8192];
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String className = toClassName(entry.getName());
+                if (className != null && !reachable.contains(className)) {
+                    continue;
+                }
+                ZipEntry copy = new ZipEntry(entry.getName());
+                copy.setTime(entry.getTime());
+                if (entry.getMethod() == ZipEntry.STORED) {
+                    copy.setMethod(ZipEntry.STORED);
+                    copy.setSize(entry.getSize());
+                    copy.setCompressedSize(entry.getSize());
+                    copy.setCrc(entry.getCrc());
+                }
+                out.putNextEntry(copy);
+                try (InputStream input = zipFile.getInputStream(entry)) {
+                    int len;
+                    while ((len = input.read(buffer)) != -1) {
+                        out.write(buffer, 0, len);
+                    }
+                }
+                out.closeEntry();
+            }
+        } catch (IOException ex) {
+            Files.deleteIfExists(tmp.toPath());
+            throw ex;
+        }
+        Files.move(tmp.toPath(), jar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Gets the internal name of the class stored in a jar entry, including multi-release
+     * variants.
+     *
+     * @return the internal name, or null if the entry isn't a class that may be removed
+     */
+    static String toClassName(String entryName) {
+        if (!entryName.endsWith(CLASS_SUFFIX)) {
+            return null;
+        }
+        String name = entryName.substring(0, entryName.length() - CLASS_SUFFIX.length());
+        if (name.startsWith(VERSIONS_PREFIX)) {
+            int slash = name.indexOf('/', VERSIONS_PREFIX.length());
+            if (slash < 0) {
+                return null;
+            }
+            name = name.substring(slash + 1);
+        } else if (name.startsWith("META-INF/")) {
+            return null;
+        }
+        if (name.equals("module-info") || name.endsWith("/package-info") || name.equals("package-info")) {
+            return null;
+        }
+        return name;
+    }
+
+    static boolean matchesKeepRule(String rule, String internalName) {
+        if (rule.isEmpty()) {
+            return false;
+        }
+        String className = internalName.replace('/', '.');
+        if (rule.endsWith(".**")) {
+            return className.startsWith(rule.substring(0, rule.length() - 2));
+        }
+        if (rule.endsWith(".*")) {
+            String pkg = rule.substring(0, rule.length() - 1);
+            return className.startsWith(pkg) && className.indexOf('.', pkg.length()) < 0;
+        }
+        return className.equals(rule) || className.startsWith(rule + "$");
+    }
+
+    /**
+     * Collects every class name mentioned in a class file's constant pool.  Only UTF-8 entries
+     * need to be inspected, since class, descriptor and string constants all point to one.
+     */
+    static Set<String> readReferencedNames(InputStream classFile) throws IOException {
+        DataInputStream in = new DataInputStream(classFile);
+        if (in.readInt() != 0xCAFEBABE) {
+            throw new IOException("Not a class file");
+        }
+        in.readUnsignedShort();
+        in.readUnsignedShort();
+        int count = in.readUnsignedShort();
+        Set<String> names = new HashSet<>();
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1:
+                    addNames(in.readUTF(), names);
+                    break;
+                case 7:
+                case 8:
+                case 16:
+                case 19:
+                case 20:
+                    in.skipBytes(2);
+                    break;
+                case 15:
+                    in.skipBytes(3);
+                    break;
+                case 3:
+                case 4:
+                case 9:
+                case 10:
+                case 11:
+                case 12:
+                case 17:
+                case 18:
+                    in.skipBytes(4);
+                    break;
+                case 5:
+                case 6:
+                    in.skipBytes(8);
+                    i++;
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+        return names;
+    }
+
+    private static void addNames(String utf8, Set<String> names) {
+        if (utf8.isEmpty()) {
+            return;
+        }
+        names.add(utf8);
+        if (utf8.indexOf('.') > 0) {
+            names.add(utf8.replace('.', '/'));
+        }
+        if (utf8.indexOf(';') > 0) {
+            Matcher matcher = DESCRIPTOR_TYPE.matcher(utf8);
+            while (matcher.find()) {
+                names.add(matcher.group(1));
+            }
+        }
+    }
+
+    private static boolean isSigned(ZipFile zipFile) {
+        Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+            String name = entries.nextElement().getName().toUpperCase();
+            if (name.startsWith("META-INF/") && name.indexOf('/', 9) < 0
+                    && (name.endsWith(".SF") || name.endsWith(".RSA") || name.endsWith(".DSA") || name.endsWith(".EC"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String readMainClass(ZipFile zipFile) throws IOException {
+        ZipEntry entry = zipFile.getEntry(JarFile.MANIFEST_NAME);
+        if (entry == null) {
+            return null;
+        }
+        try (InputStream input = zipFile.getInputStream(entry)) {
+            String mainClass = new Manifest(input).getMainAttributes().getValue(Attributes.Name.MAIN_CLASS);
+            return mainClass == null ? null : mainClass.trim();
+        }
+    }
+
+    private static List<String> readServiceProviders(ZipFile zipFile, ZipEntry entry) throws IOException {
+        List<String> out = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(zipFile.getInputStream(entry), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comment = line.indexOf('#');
+                if (comment >= 0) {
+                    line = line.substring(0, comment);
+                }
+                line = line.trim();
+                if (!line.isEmpty()) {
+                    out.add(line.replace('.', '/'));
+                }
+            }
+        }
+        return out;
+    }
+
+    private static class Location {
+        private final File jar;
+        private final String entryName;
+
+        Location(File jar, String entryName) {
+            this.jar = jar;
+            this.entryName = entryName;
+        }
+    }
+
+    private static class ClassIndex {
+        private final Map<File, ZipFile> zipFiles;
+        private final Map<String, List<Location>> classes = new HashMap<>();
+
+        ClassIndex(Map<File, ZipFile> zipFiles) {
+            this.zipFiles = zipFiles;
+            for (Map.Entry<File, ZipFile> jar : zipFiles.entrySet()) {
+                Enumeration<? extends ZipEntry> entries = jar.getValue().entries();
+                while (entries.hasMoreElements()) {
+                    String entryName = entries.nextElement().getName();
+                    String className = toClassName(entryName);
+                    if (className != null) {
+                        classes.computeIfAbsent(className, k -> new ArrayList<>(1))
+                                .add(new Location(jar.getKey(), entryName));
+                    }
+                }
+            }
+        }
+
+        /**
+         * Gets the indexed classes referenced by every copy of the given class on the class path.
+         */
+        List<String> getReferences(String className) {
+            List<Location> locations = classes.getOrDefault(className, Collections.emptyList());
+            Set<String> out = new HashSet<>();
+            for (Location location : locations) {
+                ZipFile zipFile = zipFiles.get(location.jar);
+                try (InputStream input = zipFile.getInputStream(zipFile.getEntry(location.entryName))) {
+                    for (String name : readReferencedNames(input)) {
+                        if (classes.containsKey(name)) {
+                            out.add(name);
+                        }
+                    }
+                } catch (IOException ex) {
+                    throw new ShrinkException(new IOException(
+                            "Failed to read " + location.entryName + " in " + location.jar, ex
+                    ));
+                }
+            }
+            return new ArrayList<>(out);
+        }
+    }
+
+    private static class ShrinkException extends RuntimeException {
+        ShrinkException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    public static class JarResult {
+        private final int classesRemoved;
+        private final long bytesBefore;
+        private long bytesAfter;
+
+        JarResult(int classesRemoved, long bytesBefore) {
+            this.classesRemoved = classesRemoved;
+            this.bytesBefore = bytesBefore;
+            this.bytesAfter = bytesBefore;
+        }
+
+        public int getClassesRemoved() {
+            return classesRemoved;
+        }
+
+        public long getBytesBefore() {
+            return bytesBefore;
+        }
+
+        public long getBytesAfter() {
+            return bytesAfter;
+        }
+    }
+
+    public static class Result {
+        private final Map<File, JarResult> jars = new ConcurrentHashMap<>();
+        private int reachableClasses;
+
+        /**
+         * @return the jars that were shrunk
+         */
+        public Map<File, JarResult> getJars() {
+            return Collections.unmodifiableMap(jars);
+        }
+
+        public int getReachableClasses() {
+            return reachableClasses;
+        }
+
+        public long getBytesSaved() {
+            long saved = 0;
+            for (JarResult jar : jars.values()) {
+                saved += jar.bytesBefore - jar.bytesAfter;
+            }
+            return saved;
+        }
+
+        public int getClassesRemoved() {
+            int removed = 0;
+            for (JarResult jar : jars.values()) {
+                removed += jar.classesRemoved;
+            }
+            return removed;
+        }
+
+        public void print(PrintStream out) {
+            out.println("Shrunk " + jars.size() + " dependency jar(s): removed " + getClassesRemoved()
+                    + " unreachable classes, saving " + getBytesSaved() + " bytes");
+            jars.entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey())
+                    .forEach(e -> out.println("  " + e.getKey().getName() + ": "
+                            + e.getValue().bytesBefore + " -> " + e.getValue().bytesAfter + " bytes ("
+                            + e.getValue().classesRemoved + " classes removed)"));
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package ca.weblite.jdeploy.packaging;
+
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Finds files in a project directory, and executable jars among them, as fast as possible.
+ *
+ * The directory walk runs on a fork/join pool with excluded directories pruned before they are
+ * listed.  To decide whether a jar is executable only its manifest entry is read, located through
+ * the zip central directory.  The resulting Main-Class values are cached on disk, keyed by path,
+ * size and modification time, so unchanged jars are not re-opened on later runs.
+ */
+@Singleton
+public class ExecutableJarScanner {
+
+    private static final String NO_MAIN_CLASS = "";
+
+    private final File cacheFile;
+
+    private final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
+
+    private boolean cacheLoaded;
+
+    private volatile boolean cacheDirty;
+
+    public ExecutableJarScanner() {
+        this(new File(
+                System.getProperty("user.home") + File.separator + ".jdeploy" + File.separator + "cache",
+                "executable-jars.properties"
+        ));
+    }
+
+    ExecutableJarScanner(File cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    /**
+     * Recursively finds the files under {@code root} that match {@code matcher}.  Hidden
+     * directories and directories named in {@code excludedDirectories} are not descended into.
+     * Results are returned in the same order as a sequential depth-first walk.
+     */
+    public List<File> findFiles(File root, PathMatcher matcher, Collection<String> excludedDirectories) {
+        if (".".equals(root.getName()) && root.getParentFile() != null) {
+            root = root.getParentFile();
+        }
+        return ForkJoinPool.commonPool().invoke(new FindFilesTask(root, matcher, excludedDirectories));
+    }
+
+    /**
+     * Filters the given jars down to the ones whose manifest declares a Main-Class.
+     * Manifests are read in parallel, and the on-disk cache is updated afterwards.
+     */
+    public List<File> findExecutableJars(List<File> jars) {
+        loadCache();
+        List<File> out = jars.parallelStream()
+                .filter(jar -> getMainClass(jar) != null)
+                .collect(Collectors.toList());
+        saveCache();
+        return out;
+    }
+
+    /**
+     * Gets the Main-Class of the given jar.
+     *
+     * @return the Main-Class, or null if the jar has no Main-Class or can't be read
+     */
+    public String getMainClass(File jar) {
+        loadCache();
+        String key = jar.getAbsolutePath();
+        long lastModified = jar.lastModified();
+        long length = jar.length();
+        CacheEntry entry = cache.get(key);
+        if (entry == null || entry.lastModified != lastModified || entry.length != length) {
+            entry = new CacheEntry(lastModified, length, readMainClass(jar));
+            cache.put(key, entry);
+            cacheDirty = true;
+        }
+        return NO_MAIN_CLASS.equals(entry.mainClass) ? null : entry.mainClass;
+    }
+
+    private static String readMainClass(File jar) {
+        if (!jar.isFile()) {
+            return NO_MAIN_CLASS;
+        }
+        try (ZipFile zipFile = new ZipFile(jar)) {
+            ZipEntry manifestEntry = zipFile.getEntry(JarFile.MANIFEST_NAME);
+            if (manifestEntry == null) {
+                return NO_MAIN_CLASS;
+            }
+            try (InputStream input = zipFile.getInputStream(manifestEntry)) {
+                String mainClass = new Manifest(input).getMainAttributes().getValue(Attributes.Name.MAIN_CLASS);
+                return mainClass == null ? NO_MAIN_CLASS : mainClass.trim();
+            }
+        } catch (IOException ex) {
+            return NO_MAIN_CLASS;
+        }
+    }
+
+    private synchronized void loadCache() {
+        if (cacheLoaded) {
+            return;
+        }
+        cacheLoaded = true;
+        if (cacheFile == null || !cacheFile.isFile()) {
+            return;
+        }
+        Properties props = new Properties();
+        try (InputStream input = new FileInputStream(cacheFile)) {
+            props.load(input);
+        } catch (IOException ex) {
+            System.err.println("Failed to load executable jar cache " + cacheFile + ": " + ex.getMessage());
+            return;
+        }
+        for (String key : props.stringPropertyNames()) {
+            CacheEntry entry = CacheEntry.parse(props.getProperty(key));
+            if (entry != null) {
+                cache.put(key, entry);
+            }
+        }
+    }
+
+    private synchronized void saveCache() {
+        if (!cacheDirty || cacheFile == null) {
+            return;
+        }
+        Properties props = new Properties();
+        for (Map.Entry<String, CacheEntry> entry : cache.entrySet()) {
+            // Drop entries for jars that no longer exist so the cache doesn't grow forever
+            if (new File(entry.getKey()).exists()) {
+                props.setProperty(entry.getKey(), entry.getValue().toString());
+            }
+        }
+        try {
+            File parent = cacheFile.getParentFile();
+            if (parent != null) {
+                parent.mkdirs();
+            }
+            File tmp = Files.createTempFile(
+                    parent != null ? parent.toPath() : cacheFile.getAbsoluteFile().getParentFile().toPath(),
+                    cacheFile.getName(),
+                    ".tmp"
+            ).toFile();
+            try (OutputStream output = new FileOutputStream(tmp)) {
+                props.store(output, "jDeploy executable jar cache");
+            }
+            Files.move(tmp.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            cacheDirty = false;
+        } catch (IOException ex) {
+            System.err.println("Failed to save executable jar cache " + cacheFile + ": " + ex.getMessage());
+        }
+    }
+
+    private static class CacheEntry {
+        private final long lastModified;
+        private final long length;
+        private final String mainClass;
+
+        CacheEntry(long lastModified, long length, String mainClass) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.mainClass = mainClass;
+        }
+
+        static CacheEntry parse(String value) {
+            String[] parts = value.split(":", 3);
+            if (parts.length != 3) {
+                return null;
+            }
+            try {
+                return new CacheEntry(Long.parseLong(parts[0]), Long.parseLong(parts[1]), parts[2]);
+            } catch (NumberFormatException ex) {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return lastModified + ":" + length + ":" + mainClass;
+        }
+    }
+
+    private static class FindFilesTask extends RecursiveTask<List<File>> {
+        private final File root;
+        private final PathMatcher matcher;
+        private final Collection<String> excludedDirectories;
+
+        FindFilesTask(File root, PathMatcher matcher, Collection<String> excludedDirectories) {
+            this.root = root;
+            this.matcher = matcher;
+            this.excludedDirectories = excludedDirectories;
+        }
+
+        @Override
+        protected List<File> compute() {
+            List<File> matches = new ArrayList<>();
+            if (matcher.matches(root.toPath())) {
+                matches.add(root);
+            }
+            if (!root.isDirectory()
+                    || root.getName().startsWith(".")
+                    || excludedDirectories.contains(root.getName())) {
+                return matches;
+            }
+            File[] children = root.listFiles();
+            if (children == null) {
+                return matches;
+            }
+            // Each slot is either a matching file or a forked subdirectory task, kept in listing
+            // order so the joined result matches a sequential walk.
+            List<Object> slots = new ArrayList<>();
+            for (File child : children) {
+                if (child.isDirectory()
+                        && !child.getName().startsWith(".")
+                        && !excludedDirectories.contains(child.getName())) {
+                    FindFilesTask subtask = new FindFilesTask(child, matcher, excludedDirectories);
+                    subtask.fork();
+                    slots.add(subtask);
+                } else if (matcher.matches(child.toPath())) {
+                    // Excluded directories are pruned here, before they are ever listed
+                    slots.add(child);
+                }
+            }
+            for (Object slot : slots) {
+                if (slot instanceof FindFilesTask) {
+                    matches.addAll(((FindFilesTask) slot).join());
+                } else {
+                    matches.add((File) slot);
+                }
+            }
+            return matches;
+        }
+    }
+}
@@ -1,20 +1,25 @@
 package ca.weblite.jdeploy.packaging;
 
+import javax.inject.Inject;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.PathMatcher;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.jar.Attributes;
-import java.util.jar.JarFile;
-import java.util.jar.Manifest;
 import java.util.regex.Pattern;
 
 import static ca.weblite.jdeploy.PathUtil.toNativePath;
 
 public class JarFinder {
 
+    private final ExecutableJarScanner executableJarScanner;
+
+    @Inject
+    public JarFinder(ExecutableJarScanner executableJarScanner) {
+        this.executableJarScanner = executableJarScanner;
+    }
+
     public File findBestCandidate(PackagingContext context) throws IOException{
         File[] jars = findJarCandidates(context);
         File[] wars = findWarCandidates(context);
@@ -85,19 +90,8 @@ public class JarFinder {
 
     public File[] findJarCandidates(PackagingContext context) throws IOException {
         File[] jars = findCandidates(context, context.directory.toPath().getFileSystem().getPathMatcher("glob:**/*.jar"));
-        List<File> out = new ArrayList<File>();
         // We only want executable jars
-        for (File f : jars) {
-            Manifest m = new JarFile(f).getManifest();
-            //System.out.println(m.getEntries());
-            if (m != null) {
-                Attributes atts = m.getMainAttributes();
-                if (atts.containsKey(Attributes.Name.MAIN_CLASS)) {
-                    //executable jar
-                    out.add(f);
-                }
-            }
-        }
+        List<File> out = executableJarScanner.findExecutableJars(Arrays.asList(jars));
         return out.toArray(new File[out.size()]);
     }
 
@@ -130,9 +124,11 @@ public class JarFinder {
     }
 
     private File[] findCandidates(PackagingContext context, PathMatcher matcher) {
-        List<File> out = new ArrayList<File>();
-        //PathMatcher matcher = directory.toPath().getFileSystem().getPathMatcher("glob:**.jar");
-        findCandidates(context, context.directory, matcher, out);
+        List<File> out = executableJarScanner.findFiles(
+                context.directory,
+                matcher,
+                excludedDirectoriesForJarAndWarSearches
+        );
         return out.toArray(new File[out.size()]);
     }
 
@@ -158,22 +154,4 @@ public class JarFinder {
         }
         return out;
     }
-
-    private void findCandidates(PackagingContext context, File root, PathMatcher matcher, List<File> matches) {
-        if (".".equals(root.getName()) && root.getParentFile() != null) {
-            root = root.getParentFile();
-        }
-        //System.out.println("Checking "+root+" for "+matcher);
-        if (matcher.matches(root.toPath())) {
-            matches.add(root);
-        }
-        if (root.isDirectory()) {
-            if (root.getName().startsWith(".") || excludedDirectoriesForJarAndWarSearches.contains(root.getName())) {
-                return;
-            }
-            for (File f : root.listFiles()) {
-                findCandidates(context, f, matcher, matches);
-            }
-        }
-    }
 }
@@ -0,0 +1,338 @@
+package ca.weblite.jdeploy.packaging;
+
+import ca.weblite.jdeploy.services.SystemJdkFinder;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Rewrites jars so that the classes an application loads at startup come first and are stored
+ * uncompressed.
+ *
+ * The load order is recorded by a bounded training run of the application with
+ * {@code -Xlog:class+load}.  GUI applications usually don't exit on their own, so the run is
+ * stopped after a timeout ({@value #DEFAULT_TRAINING_MILLIS} ms unless the project sets
+ * {@code jarLayoutTrainingSeconds}).  This is a heuristic: there is no portable way to tell when
+ * the main window is ready, so every class loaded in those first seconds counts as a startup class,
+ * in the order it was first loaded, and everything else keeps its place behind them.  A window that
+ * is too short leaves part of the main window at the back of the jar; one that is too long also
+ * moves classes that only idle timers or background work load, which dilutes the front but costs
+ * nothing else.  Nobody interacts with the training run, so classes behind a login or another
+ * dialog only count if the window is long enough for the app to get there on its own.
+ *
+ * The training run uses a JDK of the project's Java version, since the JVM jDeploy itself runs on
+ * may be too old to load the application's classes.
+ *
+ * The {@code META-INF} entries that identify the jar (the manifest and any signature files) are
+ * kept at the front.  Entry contents are copied byte for byte, so existing jar signatures, whose
+ * digests cover the uncompressed contents only, remain valid.
+ */
+@Singleton
+public class JarLayoutOptimizer {
+
+    static final long DEFAULT_TRAINING_MILLIS = 10000;
+
+    private static final Pattern CLASS_LOAD_LINE = Pattern.compile("^(\\S+) source: (.*)$");
+
+    private static final Pattern RELEASE_VERSION = Pattern.compile("^\"?(?:1\\.)?(\\d+)");
+
+    private static final int MAX_OUTPUT_LINES = 20;
+
+    private final SystemJdkFinder systemJdkFinder;
+
+    @Inject
+    public JarLayoutOptimizer(SystemJdkFinder systemJdkFinder) {
+        this.systemJdkFinder = systemJdkFinder;
+    }
+
+    /**
+     * Finds a JDK to run the training run with: an installed JDK of the given version if there is
+     * one, otherwise JAVA_HOME or the JVM running jDeploy, as long as it is at least that version.
+     *
+     * @return the JDK's home directory, or null if none was found
+     */
+    public File findJavaHome(int javaVersion) {
+        File home = systemJdkFinder.findJavaHome(String.valueOf(javaVersion));
+        if (home != null && new File(home, "bin").isDirectory()) {
+            return home;
+        }
+        String javaHomeEnv = System.getenv("JAVA_HOME");
+        if (javaHomeEnv != null && getJavaVersion(new File(javaHomeEnv)) >= javaVersion) {
+            return new File(javaHomeEnv);
+        }
+        File current = new File(System.getProperty("java.home"));
+        if (getJavaVersion(current) >= javaVersion) {
+            return current;
+        }
+        return null;
+    }
+
+    /**
+     * Runs {@code jar} and records the classes it loads from the given jars, in load order.
+     *
+     * @param javaHome the JDK to run it with
+     * @param jar the executable jar to run
+     * @param workingDirectory the directory to run it in
+     * @param timeoutMillis how long to let the application run before stopping it
+     * @param jars the jars whose classes should be recorded
+     * @return internal class names, in the order they were first loaded, grouped by jar
+     * @throws IOException if the application could not be run, or no class was loaded from any of the
+     *     jars, which means it never got as far as starting the application
+     */
+    public Map<File, List<String>> recordClassLoadOrder(
+            File javaHome,
+            File jar,
+            File workingDirectory,
+            long timeoutMillis,
+            Collection<File> jars,
+            PrintStream out
+    ) throws IOException {
+        File log = File.createTempFile("jdeploy-class-load", ".log");
+        File output = File.createTempFile("jdeploy-class-load", ".out");
+        try {
+            String java = javaHome.getAbsolutePath() + File.separator + "bin" + File.separator + "java";
+            ProcessBuilder pb = new ProcessBuilder(
+                    java,
+                    "-Xlog:class+load=info:file=" + log.getAbsolutePath() + ":none",
+                    "-jar",
+                    jar.getAbsolutePath()
+            );
+            pb.directory(workingDirectory);
+            pb.redirectErrorStream(true);
+            pb.redirectOutput(ProcessBuilder.Redirect.to(output));
+            out.println("Recording class load order of " + jar.getName() + " with " + javaHome
+                    + " (up to " + (timeoutMillis / 1000) + "s)...");
+            Process process = pb.start();
+            try {
+                if (!process.waitFor(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    process.destroy();
+                    if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                        process.destroyForcibly();
+                        process.waitFor(5, TimeUnit.SECONDS);
+                    }
+                }
+            } catch (InterruptedException ex) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while recording class load order", ex);
+            }
+            Map<File, List<String>> loadOrder = parseClassLoadLog(
+                    Files.readAllLines(log.toPath(), StandardCharsets.UTF_8),
+                    jars
+            );
+            boolean loadedAny = false;
+            for (List<String> classes : loadOrder.values()) {
+                loadedAny |= !classes.isEmpty();
+            }
+            if (!loadedAny) {
+                throw new IOException("The training run of " + jar.getName() + " loaded no classes from the app's jars"
+                        + (process.isAlive() ? "" : " (exit code " + process.exitValue() + ")")
+                        + ". Output:\n" + readTail(output));
+            }
+            return loadOrder;
+        } finally {
+            Files.deleteIfExists(log.toPath());
+            Files.deleteIfExists(output.toPath());
+        }
+    }
+
+    /**
+     * Parses the output of {@code -Xlog:class+load=info::none}, keeping the classes that were loaded
+     * from the given jars.
+     */
+    static Map<File, List<String>> parseClassLoadLog(List<String> lines, Collection<File> jars) {
+        Map<String, File> jarsByUri = new LinkedHashMap<>();
+        Map<File, Set<String>> loaded = new LinkedHashMap<>();
+        for (File jar : jars) {
+            File absolute = jar.getAbsoluteFile();
+            jarsByUri.put(normalizeSource(absolute.toURI().toString()), jar);
+            loaded.put(jar, new LinkedHashSet<>());
+        }
+        for (String line : lines) {
+            Matcher matcher = CLASS_LOAD_LINE.matcher(line.trim());
+            if (!matcher.matches()) {
+                continue;
+            }
+            File jar = jarsByUri.get(normalizeSource(matcher.group(2)));
+            if (jar != null) {
+                loaded.get(jar).add(matcher.group(1).replace('.', '/'));
+            }
+        }
+        Map<File, List<String>> out = new LinkedHashMap<>();
+        for (Map.Entry<File, Set<String>> entry : loaded.entrySet()) {
+            out.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+        return out;
+    }
+
+    /**
+     * Rewrites {@code jar} with the given classes first, stored uncompressed, in the given order.
+     * Other entries keep their relative order and compression.
+     *
+     * @return the number of entries moved to the front
+     */
+    public int rewrite(File jar, List<String> startupClasses) throws IOException {
+        File tmp = new File(jar.getParentFile(), jar.getName() + ".layout.tmp");
+        int hot = 0;
+        try (ZipFile zipFile = new ZipFile(jar)) {
+            List<ZipEntry> head = new ArrayList<>();
+            List<ZipEntry> tail = new ArrayList<>();
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (isLeadingEntry(entry.getName())) {
+                    head.add(entry);
+                } else {
+                    tail.add(entry);
+                }
+            }
+            List<ZipEntry> startup = new ArrayList<>();
+            Set<String> startupNames = new LinkedHashSet<>();
+            for (String className : startupClasses) {
+                ZipEntry entry = zipFile.getEntry(className + ".class");
+                if (entry != null && startupNames.add(entry.getName())) {
+                    startup.add(entry);
+                }
+            }
+            if (startup.isEmpty()) {
+                return 0;
+            }
+            try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(tmp))) {
+                byte[] buffer = new byte[8192];
+                for (ZipEntry entry : head) {
+                    copy(zipFile, entry, out, entry.getMethod() == ZipEntry.STORED, buffer);
+                }
+                for (ZipEntry entry : startup) {
+                    copy(zipFile, entry, out, true, buffer);
+                    hot++;
+                }
+                for (ZipEntry entry : tail) {
+                    if (!startupNames.contains(entry.getName())) {
+                        copy(zipFile, entry, out, entry.getMethod() == ZipEntry.STORED, buffer);
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            Files.deleteIfExists(tmp.toPath());
+            throw ex;
+        }
+        Files.move(tmp.toPath(), jar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return hot;
+    }
+
+    /**
+     * Rewrites each jar that has recorded startup classes.
+     *
+     * @return the number of startup entries per rewritten jar
+     */
+    public Map<File, Integer> rewriteAll(Map<File, List<String>> loadOrder) throws IOException {
+        Map<File, Integer> out = new LinkedHashMap<>();
+        for (Map.Entry<File, List<String>> entry : loadOrder.entrySet()) {
+            int hot = rewrite(entry.getKey(), entry.getValue());
+            if (hot > 0) {
+                out.put(entry.getKey(), hot);
+            }
+        }
+        return Collections.unmodifiableMap(out);
+    }
+
+    private static void copy(ZipFile zipFile, ZipEntry entry, ZipOutputStream out, boolean stored, byte[] buffer)
+            throws IOException {
+        ZipEntry copy = new ZipEntry(entry.getName());
+        copy.setTime(entry.getTime());
+        if (stored) {
+            copy.setMethod(ZipEntry.STORED);
+            copy.setSize(entry.getSize());
+            copy.setCompressedSize(entry.getSize());
+            copy.setCrc(entry.getCrc());
+        }
+        out.putNextEntry(copy);
+        try (InputStream input = zipFile.getInputStream(entry)) {
+            int len;
+            while ((len = input.read(buffer)) != -1) {
+                out.write(buffer, 0, len);
+            }
+        }
+        out.closeEntry();
+    }
+
+    /**
+     * JarInputStream expects the manifest, followed by the signature files, at the start of the
+     * jar.
+     */
+    private static boolean isLeadingEntry(String name) {
+        String upper = name.toUpperCase();
+        if (upper.equals("META-INF/") || upper.equals("META-INF/MANIFEST.MF")) {
+            return true;
+        }
+        if (!upper.startsWith("META-INF/") || upper.indexOf('/', 9) >= 0) {
+            return false;
+        }
+        return upper.endsWith(".SF") || upper.endsWith(".RSA") || upper.endsWith(".DSA")
+                || upper.endsWith(".EC") || upper.startsWith("META-INF/SIG-");
+    }
+
+    private static String normalizeSource(String source) {
+        String out = source.trim();
+        if (out.startsWith("jar:")) {
+            out = out.substring(4);
+        }
+        int bang = out.indexOf("!/");
+        if (bang >= 0) {
+            out = out.substring(0, bang);
+        }
+        if (out.startsWith("file:///")) {
+            out = "file:/" + out.substring(8);
+        }
+        return out;
+    }
+
+    /**
+     * @return the major version in the JDK's release file, or -1 if it can't be read
+     */
+    static int getJavaVersion(File javaHome) {
+        File release = new File(javaHome, "release");
+        if (!release.isFile()) {
+            return -1;
+        }
+        Properties properties = new Properties();
+        try (InputStream input = Files.newInputStream(release.toPath())) {
+            properties.load(input);
+        } catch (IOException ex) {
+            return -1;
+        }
+        Matcher matcher = RELEASE_VERSION.matcher(properties.getProperty("JAVA_VERSION", ""));
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : -1;
+    }
+
+    private static String readTail(File output) throws IOException {
+        // The application's output may not be UTF-8, so decode leniently
+        String[] lines = new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8).split("\\R");
+        return String.join("\n", Arrays.asList(lines).subList(Math.max(0, lines.length - MAX_OUTPUT_LINES), lines.length));
+    }
+}
@@ -32,6 +32,7 @@ import org.w3c.dom.Document;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.awt.GraphicsEnvironment;
 import java.io.*;
 import java.util.*;
 import java.util.jar.Attributes;
@@ -69,6 +70,10 @@ public class PackageService implements BundleConstants {
 
     private final WindowsSigningConfigFactory windowsSigningConfigFactory;
 
+    private final DependencyShrinker dependencyShrinker;
+
+    private final JarLayoutOptimizer jarLayoutOptimizer;
+
     @Inject
     public PackageService(
             Environment environment,
@@ -81,7 +86,9 @@ public class PackageService implements BundleConstants {
             PackagingConfig packagingConfig,
             PermissionRequestService permissionRequestService,
             WindowsSigningService windowsSigningService,
-            WindowsSigningConfigFactory windowsSigningConfigFactory
+            WindowsSigningConfigFactory windowsSigningConfigFactory,
+            DependencyShrinker dependencyShrinker,
+            JarLayoutOptimizer jarLayoutOptimizer
     ) {
         this.environment = environment;
         this.jarFinder = jarFinder;
@@ -94,6 +101,8 @@ public class PackageService implements BundleConstants {
         this.permissionRequestService = permissionRequestService;
         this.windowsSigningService = windowsSigningService;
         this.windowsSigningConfigFactory = windowsSigningConfigFactory;
+        this.dependencyShrinker = dependencyShrinker;
+        this.jarLayoutOptimizer = jarLayoutOptimizer;
     }
 
     public void createJdeployBundle(
@@ -124,16 +133,17 @@ public class PackageService implements BundleConstants {
             }
         }
         copyToBin(context);
-        if (context.isPackageSigningEnabled()) {
-            try {
-                context.packageSigningService.signPackage(
-                        getPackageSigningVersionString(context.getPackageJsonResult()),
-                        jdeployBundle.getAbsolutePath()
-                );
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
-        }
+        signPackage(context);
+        createBundlesAndInstallers(context, bundlerSettings);
+    }
+
+    /**
+     * Creates the native app bundles and installers from the contents of jdeploy-bundle.
+     */
+    public void createBundlesAndInstallers(
+            PackagingContext context,
+            BundlerSettings bundlerSettings
+    ) throws IOException {
         try {
             allBundles(context, bundlerSettings);
         } catch (Exception ex) {
@@ -154,6 +164,46 @@ public class PackageService implements BundleConstants {
         }
     }
 
+    /**
+     * Signs the contents of the jdeploy-bundle directory, if package signing is enabled.
+     */
+    public void signPackage(PackagingContext context) {
+        if (!context.isPackageSigningEnabled()) {
+            return;
+        }
+        try {
+            context.packageSigningService.signPackage(
+                    getPackageSigningVersionString(context.getPackageJsonResult()),
+                    context.getJdeployBundleDir().getAbsolutePath()
+            );
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Updates the signatures of the given files in a signed bundle directory, keeping those of
+     * the other files, if package signing is enabled.  Used by watch mode, where only a few files
+     * change between passes.
+     *
+     * @param bundleDir jdeploy-bundle, or a platform-specific copy of it
+     * @param changedFiles files in bundleDir that were created, modified or deleted
+     */
+    public void signPackage(PackagingContext context, File bundleDir, Collection<File> changedFiles) {
+        if (!context.isPackageSigningEnabled()) {
+            return;
+        }
+        try {
+            context.packageSigningService.updatePackageSignatures(
+                    getPackageSigningVersionString(context.getPackageJsonResult()),
+                    bundleDir.getAbsolutePath(),
+                    changedFiles
+            );
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     public void allInstallers(PackagingContext context) throws Exception {
         allInstallers(context, new BundlerSettings());
     }
@@ -627,6 +677,14 @@ public class PackageService implements BundleConstants {
             }
         }
 
+        if (jarFile != null && context.getBoolean("shrinkDependencies", false)) {
+            shrinkDependencies(context, new File(bin, jarFile.getName()));
+        }
+
+        if (jarFile != null && context.getBoolean("optimizeJarLayout", false)) {
+            optimizeJarLayout(context, new File(bin, jarFile.getName()));
+        }
+
         if (context.getWar(null) != null) {
             bundleJetty(context);
         }
@@ -655,6 +713,86 @@ public class PackageService implements BundleConstants {
 
     }
 
+    /**
+     * Removes unreachable classes from the dependency jars that were copied into the bundle.
+     * Enabled with the "shrinkDependencies" property.  Classes that are only loaded reflectively
+     * can be kept by listing them, or their packages, in the "shrinkKeep" property.  This makes
+     * the bundle smaller, but doesn't noticeably change startup time; see {@link DependencyShrinker}.
+     */
+    private void shrinkDependencies(PackagingContext context, File mainJarInBin) throws IOException {
+        if (!mainJarInBin.isFile()) {
+            return;
+        }
+        List<String> keepRules = new ArrayList<>();
+        for (Object rule : context.getList("shrinkKeep", true)) {
+            keepRules.add(String.valueOf(rule));
+        }
+        context.out.println("Shrinking dependencies of " + mainJarInBin.getName() + "...");
+        DependencyShrinker.Result result = dependencyShrinker.shrink(mainJarInBin, keepRules);
+        result.print(context.out);
+        context.out.println("If classes that are loaded reflectively were removed, list them in the \"shrinkKeep\" property of the jdeploy object of your package.json file.");
+    }
+
+    /**
+     * Reorders the bundled jars so that the classes loaded at startup come first, uncompressed.
+     * Enabled with the "optimizeJarLayout" property.  The load order is recorded by running the
+     * app for up to "jarLayoutTrainingSeconds" seconds (10 by default) with a JDK of the project's
+     * Java version; see {@link JarLayoutOptimizer} for how that window is treated as startup.
+     * Dependency jars are only rewritten if "optimizeJarLayoutDependencies" is also set.
+     *
+     * The layout is an optimization, so if the app can't be trained here (no display, no suitable
+     * JDK, or the training run fails) the jars are left as they are, with a warning.
+     */
+    private void optimizeJarLayout(PackagingContext context, File mainJarInBin) throws IOException {
+        if (!mainJarInBin.isFile()) {
+            return;
+        }
+        if (GraphicsEnvironment.isHeadless()) {
+            context.err.println("Warning: Skipping optimizeJarLayout because there is no display to run the app on for training. The jar layout was left unchanged.");
+            return;
+        }
+        int javaVersion = context.getJavaVersion(DEFAULT_JAVA_VERSION);
+        File javaHome = jarLayoutOptimizer.findJavaHome(javaVersion);
+        if (javaHome == null) {
+            context.err.println("Warning: Skipping optimizeJarLayout because no JDK " + javaVersion + " or newer was found to run the app with. Set JAVA_HOME to one. The jar layout was left unchanged.");
+            return;
+        }
+        List<File> jars = new ArrayList<>();
+        jars.add(mainJarInBin);
+        if (context.getBoolean("optimizeJarLayoutDependencies", false)) {
+            for (String path : classPathFinder.findClassPath(mainJarInBin)) {
+                File dependency = new File(mainJarInBin.getParentFile(), path);
+                if (path.endsWith(".jar") && dependency.isFile()) {
+                    jars.add(dependency);
+                }
+            }
+        }
+        long timeoutMillis = context.getJarLayoutTrainingMillis(JarLayoutOptimizer.DEFAULT_TRAINING_MILLIS);
+        Map<File, List<String>> loadOrder;
+        try {
+            loadOrder = jarLayoutOptimizer.recordClassLoadOrder(
+                    javaHome,
+                    mainJarInBin,
+                    context.directory,
+                    timeoutMillis,
+                    jars,
+                    context.out
+            );
+        } catch (IOException ex) {
+            context.err.println("Warning: Failed to record the class load order, so the jar layout was left unchanged: " + ex.getMessage());
+            return;
+        }
+        Map<File, Integer> rewritten = jarLayoutOptimizer.rewriteAll(loadOrder);
+        for (Map.Entry<File, Integer> entry : rewritten.entrySet()) {
+            context.out.println("  " + entry.getKey().getName() + ": " + entry.getValue() + " startup classes moved to the front");
+        }
+        if (rewritten.isEmpty()) {
+            context.out.println("No startup classes were recorded, so the jar layout was left unchanged.");
+        } else {
+            context.out.println("Classes loaded in the first " + (timeoutMillis / 1000.0) + "s of the training run were treated as startup classes. If the app takes longer to show its main window, or the window needs user input first, increase \"jarLayoutTrainingSeconds\" in the jdeploy object of your package.json file.");
+        }
+    }
+
     private void loadDefaults() throws IOException {
 
     }
@@ -1074,6 +1212,9 @@ public class PackageService implements BundleConstants {
         if ("true".equals(context.getString("jdk", "false"))) {
             jdeployContents = jdeployContents.replace("{{JDK}}", "true");
         }
+        if (context.getBoolean("appCds", false)) {
+            jdeployContents = jdeployContents.replace("{{APP_CDS}}", "true");
+        }
         if (context.getJar(null) != null) {
             File jarFile = jarFinder.findJarFile(context);
             if (jarFile == null) {
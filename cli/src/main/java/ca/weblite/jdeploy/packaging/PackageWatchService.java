@@ -0,0 +1,440 @@
+package ca.weblite.jdeploy.packaging;
+
+import ca.weblite.jdeploy.appbundler.BundlerSettings;
+import ca.weblite.jdeploy.factories.JDeployProjectFactory;
+import ca.weblite.jdeploy.models.JDeployProject;
+import ca.weblite.jdeploy.models.Platform;
+import ca.weblite.jdeploy.services.PlatformBundleGenerator;
+import ca.weblite.jdeploy.services.PlatformSpecificJarProcessor;
+import org.apache.commons.io.FileUtils;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the jdeploy-bundle directory up to date while the project is being rebuilt.
+ *
+ * The first pass is a full {@link PackageService#createJdeployBundle(PackagingContext, BundlerSettings)}.
+ * When platform bundles are enabled, it also writes a copy of jdeploy-bundle for each platform
+ * with a .jdpignore file to jdeploy/platform-bundles/{platform}, with the jars stripped for that
+ * platform, the way they will be published.  After that the project directory is watched, and
+ * each debounced batch of changes only re-runs the stages it affects:
+ *
+ * <ul>
+ *     <li>Changes to the application jar or its Class-Path dependencies are copied straight into
+ *     jdeploy-bundle.</li>
+ *     <li>Changes to package.json, or the project icon and splash screen, reload the context,
+ *     copy whatever changed into jdeploy-bundle, and recreate the native bundles and
+ *     installers.</li>
+ *     <li>Changes to .jdpignore files re-strip the platform bundles.</li>
+ *     <li>Everything else is ignored.</li>
+ * </ul>
+ *
+ * Only the files that changed in jdeploy-bundle are copied into the platform bundles, stripped
+ * and re-signed; the signatures of the other files are kept.  Everything is rebuilt from scratch
+ * only if the watcher lost events.
+ *
+ * Projects whose copy step can't be reproduced file-by-file (war apps, maven dependencies,
+ * JavaFX stripping, dependency shrinking, jar layout optimization, pre/post copy hooks) re-run
+ * {@link PackageService#copyToBin(PackagingContext)} when a jar or war changes, and the files it
+ * changed are found by comparing jdeploy-bundle before and after.
+ */
+@Singleton
+public class PackageWatchService {
+
+    static final long DEFAULT_DEBOUNCE_MILLIS = 300;
+
+    static final String PLATFORM_BUNDLES_DIRECTORY = "jdeploy/platform-bundles";
+
+    private static final List<String> EXCLUDED_DIRECTORIES = Arrays.asList(
+            "jdeploy-bundle",
+            "jdeploy",
+            "node_modules",
+            "src"
+    );
+
+    private final PackageService packageService;
+
+    private final JarFinder jarFinder;
+
+    private final ClassPathFinder classPathFinder;
+
+    private final PlatformBundleGenerator platformBundleGenerator;
+
+    private final PlatformSpecificJarProcessor jarProcessor;
+
+    private final JDeployProjectFactory projectFactory;
+
+    @Inject
+    public PackageWatchService(
+            PackageService packageService,
+            JarFinder jarFinder,
+            ClassPathFinder classPathFinder,
+            PlatformBundleGenerator platformBundleGenerator,
+            PlatformSpecificJarProcessor jarProcessor,
+            JDeployProjectFactory projectFactory
+    ) {
+        this.packageService = packageService;
+        this.jarFinder = jarFinder;
+        this.classPathFinder = classPathFinder;
+        this.platformBundleGenerator = platformBundleGenerator;
+        this.jarProcessor = jarProcessor;
+        this.projectFactory = projectFactory;
+    }
+
+    /**
+     * Packages the project, then watches it and repackages incrementally until the thread is
+     * interrupted.
+     *
+     * @param contextFactory creates a fresh context.  It is called again whenever the project
+     *                       configuration changes, since the context caches package.json.
+     */
+    public void watch(
+            Supplier<PackagingContext> contextFactory,
+            BundlerSettings bundlerSettings
+    ) throws IOException, InterruptedException {
+        PackagingContext context = contextFactory.get();
+        packageService.createJdeployBundle(context, bundlerSettings);
+        Map<Path, Path> copyPlan = buildCopyPlan(context);
+        Map<Platform, File> platformBundles = createPlatformBundles(context);
+
+        try (RecursiveFileWatcher watcher = new RecursiveFileWatcher(context.directory.toPath(), EXCLUDED_DIRECTORIES)) {
+            context.out.println("Watching " + context.directory.getAbsoluteFile().toPath().normalize()
+                    + " for changes.  Press Ctrl-C to stop.");
+            while (!Thread.currentThread().isInterrupted()) {
+                RecursiveFileWatcher.Changes changes = watcher.takeChanges(DEFAULT_DEBOUNCE_MILLIS);
+                try {
+                    if (changes.isOverflowed()) {
+                        context.out.println("Too many changes to track.  Repackaging...");
+                        context = contextFactory.get();
+                        packageService.createJdeployBundle(context, bundlerSettings);
+                        copyPlan = buildCopyPlan(context);
+                        platformBundles = createPlatformBundles(context);
+                        context.out.println("Repackaged.");
+                        continue;
+                    }
+
+                    boolean configChanged = containsConfigChange(context.directory, changes.getPaths());
+                    List<Path> bundleChanges;
+                    if (configChanged) {
+                        context.out.println("Project configuration changed.  Updating jdeploy-bundle...");
+                        context = contextFactory.get();
+                        bundleChanges = copyToBin(context);
+                        copyPlan = buildCopyPlan(context);
+                    } else if (copyPlan == null) {
+                        bundleChanges = containsArchive(changes.getPaths())
+                                ? copyToBin(context)
+                                : Collections.<Path>emptyList();
+                    } else {
+                        bundleChanges = new ArrayList<>();
+                        Map<Path, Path> newPlan = copyPlan;
+                        Set<Path> changed = new LinkedHashSet<>(changes.getPaths());
+                        Path mainJar = copyPlan.keySet().iterator().next();
+                        if (changed.contains(mainJar) && Files.exists(mainJar)) {
+                            // The manifest Class-Path may have changed along with the jar
+                            newPlan = buildCopyPlan(context);
+                            if (newPlan != null) {
+                                for (Path source : newPlan.keySet()) {
+                                    if (!copyPlan.containsKey(source)) {
+                                        changed.add(source);
+                                    }
+                                }
+                                for (Map.Entry<Path, Path> entry : copyPlan.entrySet()) {
+                                    if (!newPlan.containsKey(entry.getKey()) && Files.deleteIfExists(entry.getValue())) {
+                                        bundleChanges.add(entry.getValue());
+                                    }
+                                }
+                            }
+                        }
+                        if (newPlan == null) {
+                            copyPlan = null;
+                            bundleChanges.addAll(copyToBin(context));
+                        } else {
+                            copyPlan = newPlan;
+                            bundleChanges.addAll(syncChanges(copyPlan, changed));
+                        }
+                    }
+
+                    if (!bundleChanges.isEmpty()) {
+                        packageService.signPackage(context, new File(context.directory, context.getBinDir()), toFiles(bundleChanges));
+                        context.out.println("Updated " + bundleChanges.size() + " file(s) in jdeploy-bundle.");
+                    }
+                    if (configChanged || containsIgnoreFileChange(changes.getPaths())) {
+                        platformBundles = createPlatformBundles(context);
+                    } else {
+                        updatePlatformBundles(context, platformBundles, bundleChanges);
+                    }
+                    if (configChanged) {
+                        packageService.createBundlesAndInstallers(context, bundlerSettings);
+                        context.out.println("Updated bundles and installers.");
+                    }
+                } catch (Exception ex) {
+                    // Keep watching; the next change may well fix the problem
+                    context.err.println("Failed to update jdeploy-bundle: " + ex.getMessage());
+                    ex.printStackTrace(context.err);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a copy of jdeploy-bundle for each platform that gets its own bundle, with the jars
+     * stripped using the platform's .jdpignore rules, replacing any existing copies.
+     *
+     * @return the bundle directory of each platform, empty if platform bundles are disabled
+     */
+    Map<Platform, File> createPlatformBundles(PackagingContext context) throws IOException {
+        File root = new File(context.directory, PLATFORM_BUNDLES_DIRECTORY);
+        if (root.exists()) {
+            FileUtils.deleteDirectory(root);
+        }
+        JDeployProject project = projectFactory.createProject(context.packageJsonFile.toPath());
+        List<Platform> platforms = platformBundleGenerator.getPlatformsForBundleGeneration(project);
+        if (platforms.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        File bin = new File(context.directory, context.getBinDir());
+        Map<Platform, File> platformBundles = new LinkedHashMap<>();
+        for (Platform platform : platforms) {
+            File bundleDir = new File(root, platform.getIdentifier());
+            FileUtils.copyDirectory(bin, bundleDir);
+            Collection<File> jars = FileUtils.listFiles(bundleDir, new String[]{"jar"}, true);
+            for (File jar : jars) {
+                jarProcessor.processJarForPlatform(jar, project, platform);
+            }
+            // The copied signatures are still valid for everything but the stripped jars
+            packageService.signPackage(context, bundleDir, jars);
+            platformBundles.put(platform, bundleDir);
+        }
+        context.out.println("Wrote platform bundles for " + platforms.stream()
+                .map(Platform::getIdentifier)
+                .collect(Collectors.joining(", ")) + " to " + PLATFORM_BUNDLES_DIRECTORY + ".");
+        return platformBundles;
+    }
+
+    /**
+     * Copies the files that changed in jdeploy-bundle into each platform bundle, stripping the
+     * jars for the platform, and re-signs just those files.
+     *
+     * @param bundleChanges files in jdeploy-bundle that were created, modified or deleted
+     */
+    void updatePlatformBundles(
+            PackagingContext context,
+            Map<Platform, File> platformBundles,
+            Collection<Path> bundleChanges
+    ) throws IOException {
+        if (platformBundles.isEmpty() || bundleChanges.isEmpty()) {
+            return;
+        }
+        JDeployProject project = projectFactory.createProject(context.packageJsonFile.toPath());
+        Path bin = normalize(new File(context.directory, context.getBinDir()));
+        for (Map.Entry<Platform, File> platformBundle : platformBundles.entrySet()) {
+            Path bundleDir = normalize(platformBundle.getValue());
+            List<File> changed = new ArrayList<>();
+            for (Path path : bundleChanges) {
+                Path destination = bundleDir.resolve(bin.relativize(path));
+                if (Files.isRegularFile(path)) {
+                    Files.createDirectories(destination.getParent());
+                    Files.copy(path, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+                    if (destination.getFileName().toString().endsWith(".jar")) {
+                        jarProcessor.processJarForPlatform(destination.toFile(), project, platformBundle.getKey());
+                    }
+                } else {
+                    Files.deleteIfExists(destination);
+                }
+                changed.add(destination.toFile());
+            }
+            packageService.signPackage(context, platformBundle.getValue(), changed);
+        }
+    }
+
+    /**
+     * Maps the absolute path of each file that copyToBin() takes from the project to its
+     * destination in jdeploy-bundle.  The main jar is always the first key.
+     *
+     * @return the plan, or null if the copy step can't be reproduced file-by-file
+     */
+    Map<Path, Path> buildCopyPlan(PackagingContext context) throws IOException {
+        if (context.getJar(null) == null
+                || context.getWar(null) != null
+                || !context.getList("mavenDependencies", true).isEmpty()
+                || isStripJavaFXFiles(context)
+                || context.getBoolean("shrinkDependencies", false)
+                || context.getBoolean("optimizeJarLayout", false)
+                || context.getPreCopyScript(null) != null
+                || context.getPostCopyScript(null) != null
+                || context.getPreCopyTarget(null) != null
+                || context.getPostCopyTarget(null) != null) {
+            return null;
+        }
+        File jarFile = jarFinder.findJarFile(context);
+        if (jarFile == null) {
+            return null;
+        }
+        jarFile = jarFile.getAbsoluteFile();
+        File bin = new File(context.directory, context.getBinDir());
+        Map<Path, Path> plan = new LinkedHashMap<>();
+        plan.put(normalize(jarFile), normalize(new File(bin, jarFile.getName())));
+        for (String path : classPathFinder.findClassPath(jarFile)) {
+            if (path.isEmpty()) {
+                continue;
+            }
+            File source = new File(jarFile.getParentFile(), path);
+            if (new File(path).isAbsolute() || source.isDirectory()) {
+                return null;
+            }
+            plan.put(normalize(source), normalize(new File(bin, path)));
+        }
+        return plan;
+    }
+
+    /**
+     * Copies each changed file that appears in the plan to its destination, or deletes the
+     * destination if the source is gone.
+     *
+     * @return the destinations that were updated
+     */
+    List<Path> syncChanges(Map<Path, Path> copyPlan, Collection<Path> changed) throws IOException {
+        List<Path> updated = new ArrayList<>();
+        for (Path path : changed) {
+            Path destination = copyPlan.get(path);
+            if (destination == null) {
+                continue;
+            }
+            if (Files.isRegularFile(path)) {
+                Files.createDirectories(destination.getParent());
+                Files.copy(
+                        path,
+                        destination,
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.COPY_ATTRIBUTES
+                );
+                updated.add(destination);
+            } else if (Files.deleteIfExists(destination)) {
+                updated.add(destination);
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Runs {@link PackageService#copyToBin(PackagingContext)} and finds the files it created,
+     * modified or deleted in jdeploy-bundle, by size and modification time.
+     */
+    private List<Path> copyToBin(PackagingContext context) throws IOException {
+        File bin = new File(context.directory, context.getBinDir());
+        Map<Path, String> before = snapshot(bin);
+        packageService.copyToBin(context);
+        Map<Path, String> after = snapshot(bin);
+        List<Path> changed = new ArrayList<>();
+        for (Map.Entry<Path, String> entry : after.entrySet()) {
+            if (!entry.getValue().equals(before.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (Path path : before.keySet()) {
+            if (!after.containsKey(path)) {
+                changed.add(path);
+            }
+        }
+        return changed;
+    }
+
+    private static Map<Path, String> snapshot(File directory) throws IOException {
+        Map<Path, String> snapshot = new HashMap<>();
+        if (!directory.isDirectory()) {
+            return snapshot;
+        }
+        try (Stream<Path> paths = Files.walk(normalize(directory))) {
+            for (Path path : paths.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                snapshot.put(path, Files.size(path) + ":" + Files.getLastModifiedTime(path).toMillis());
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Whether any of the paths is part of the project configuration, such that the context needs
+     * to be reloaded and the bundles and installers regenerated.
+     */
+    boolean containsConfigChange(File projectDirectory, Collection<Path> paths) {
+        Path root = normalize(projectDirectory);
+        for (Path path : paths) {
+            if (!root.equals(path.getParent())) {
+                continue;
+            }
+            String name = path.getFileName().toString();
+            if (name.equals("package.json")
+                    || name.equals("icon.png")
+                    || name.equals("splash.png")
+                    || name.equals("splash.jpg")
+                    || name.equals("splash.gif")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether any of the paths is a .jdpignore file, such that the platform bundles need to be
+     * stripped again.
+     */
+    boolean containsIgnoreFileChange(Collection<Path> paths) {
+        for (Path path : paths) {
+            if (path.getFileName().toString().startsWith(".jdpignore")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<File> toFiles(Collection<Path> paths) {
+        List<File> files = new ArrayList<>();
+        for (Path path : paths) {
+            files.add(path.toFile());
+        }
+        return files;
+    }
+
+    private static boolean containsArchive(Collection<Path> paths) {
+        for (Path path : paths) {
+            String name = path.getFileName().toString();
+            if (name.endsWith(".jar") || name.endsWith(".war")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isStripJavaFXFiles(PackagingContext context) {
+        if (context.doNotStripJavaFXFiles) {
+            return false;
+        }
+        boolean serverProvidedJavaFX = "true".equals(context.getString("javafx", "false"));
+        boolean stripJavaFXFilesFlag = "true".equals(context.getString("stripJavaFXFiles", "true"));
+        boolean javafxVersionProvided = !context.getString("javafxVersion", "").isEmpty();
+        return stripJavaFXFilesFlag && (serverProvidedJavaFX || javafxVersionProvided);
+    }
+
+    private static Path normalize(File file) {
+        return file.getAbsoluteFile().toPath().normalize();
+    }
+}
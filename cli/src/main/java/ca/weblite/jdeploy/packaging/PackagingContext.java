@@ -246,6 +246,34 @@ public class PackagingContext {
         return getInt("javaVersion", defaultValue);
     }
 
+    /**
+     * How long the training run of "optimizeJarLayout" lets the app run before it is stopped, from
+     * the "jarLayoutTrainingSeconds" property.  Every class loaded before then counts as a startup
+     * class.  Fractions of a second are allowed.
+     *
+     * @throws IllegalArgumentException if the property isn't a positive number
+     */
+    public long getJarLayoutTrainingMillis(long defaultValue) {
+        Object value = mj().get("jarLayoutTrainingSeconds");
+        if (value == null) {
+            return defaultValue;
+        }
+        double seconds;
+        try {
+            seconds = value instanceof Number
+                    ? ((Number) value).doubleValue()
+                    : Double.parseDouble(String.valueOf(value).trim());
+        } catch (NumberFormatException ex) {
+            seconds = Double.NaN;
+        }
+        if (!(seconds > 0)) {
+            throw new IllegalArgumentException(
+                    "Invalid jarLayoutTrainingSeconds: " + value + ".  It must be a positive number of seconds."
+            );
+        }
+        return Math.round(seconds * 1000);
+    }
+
     public String getPreCopyScript(String defaultValue) {
         return getString("preCopyScript", defaultValue);
     }
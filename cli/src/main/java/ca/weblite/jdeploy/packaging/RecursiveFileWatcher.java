@@ -0,0 +1,176 @@
+package ca.weblite.jdeploy.packaging;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a directory tree for changes and reports them in debounced batches.
+ *
+ * Every directory under the root is registered with a {@link WatchService}, except hidden
+ * directories and those named in the excluded set.  Directories created while watching are
+ * registered as they appear.  {@link #takeChanges(long)} blocks until something changes and then
+ * keeps collecting events until the tree has been quiet for the debounce interval, so a build
+ * tool rewriting many files produces a single batch.
+ */
+public class RecursiveFileWatcher implements Closeable {
+
+    private static final WatchEvent.Kind<?>[] EVENT_KINDS = {
+            StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY,
+            StandardWatchEventKinds.ENTRY_DELETE
+    };
+
+    /**
+     * Asks the polling watch service used on macOS to poll every 2 seconds instead of every 10.
+     * The modifier is JDK-internal, so it is looked up reflectively and left out where the JDK
+     * doesn't have it.
+     */
+    private static final WatchEvent.Modifier[] MODIFIERS = findHighSensitivityModifier();
+
+    private final Path root;
+
+    private final Collection<String> excludedDirectories;
+
+    private final WatchService watchService;
+
+    private boolean overflowed;
+
+    public RecursiveFileWatcher(Path root, Collection<String> excludedDirectories) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        this.excludedDirectories = excludedDirectories;
+        this.watchService = this.root.getFileSystem().newWatchService();
+        registerTree(this.root, null);
+    }
+
+    /**
+     * A batch of changes.
+     */
+    public static final class Changes {
+        private final Set<Path> paths;
+        private final boolean overflowed;
+
+        Changes(Set<Path> paths, boolean overflowed) {
+            this.paths = Collections.unmodifiableSet(paths);
+            this.overflowed = overflowed;
+        }
+
+        /**
+         * The absolute paths that were created, modified or deleted.
+         */
+        public Set<Path> getPaths() {
+            return paths;
+        }
+
+        /**
+         * True if events were lost, in which case the caller can't trust {@link #getPaths()}
+         * to be complete.
+         */
+        public boolean isOverflowed() {
+            return overflowed;
+        }
+    }
+
+    /**
+     * Blocks until at least one change occurs, then waits until no further changes have been
+     * seen for {@code debounceMillis} and returns everything collected.
+     *
+     * @throws ClosedWatchServiceException if the watcher is closed while waiting
+     */
+    public Changes takeChanges(long debounceMillis) throws InterruptedException, IOException {
+        Set<Path> changed = new LinkedHashSet<>();
+        overflowed = false;
+        WatchKey key = watchService.take();
+        while (key != null) {
+            processKey(key, changed);
+            key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+        }
+        return new Changes(changed, overflowed);
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void processKey(WatchKey key, Set<Path> changed) {
+        Path dir = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflowed = true;
+                continue;
+            }
+            Path child = dir.resolve((Path) event.context());
+            if (isExcluded(child)) {
+                continue;
+            }
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+                    && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                // Files may already exist in the new directory before it was registered
+                try {
+                    registerTree(child, changed);
+                } catch (IOException ex) {
+                    // The directory may have been deleted again already
+                }
+            }
+            changed.add(child);
+        }
+        key.reset();
+    }
+
+    private boolean isExcluded(Path path) {
+        String name = path.getFileName() == null ? "" : path.getFileName().toString();
+        return Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)
+                && (name.startsWith(".") || excludedDirectories.contains(name));
+    }
+
+    private static WatchEvent.Modifier[] findHighSensitivityModifier() {
+        try {
+            Class<?> type = Class.forName("com.sun.nio.file.SensitivityWatchEventModifier");
+            Object high = type.getField("HIGH").get(null);
+            if (high instanceof WatchEvent.Modifier) {
+                return new WatchEvent.Modifier[]{(WatchEvent.Modifier) high};
+            }
+        } catch (ReflectiveOperationException | LinkageError | SecurityException ex) {
+            // Not available on this JDK
+        }
+        return new WatchEvent.Modifier[0];
+    }
+
+    private void registerTree(Path start, Set<Path> discovered) throws IOException {
+        Set<Path> visited = new HashSet<>();
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (!dir.equals(root) && isExcluded(dir) || !visited.add(dir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                dir.register(watchService, EVENT_KINDS, MODIFIERS);
+                if (discovered != null) {
+                    discovered.add(dir);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (discovered != null) {
+                    discovered.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -1,6 +1,7 @@
 package ca.weblite.jdeploy.publishing;
 
 import ca.weblite.jdeploy.appbundler.BundlerSettings;
+import ca.weblite.jdeploy.packaging.AppCdsLauncherArgs;
 import ca.weblite.jdeploy.packaging.PackageService;
 import ca.weblite.jdeploy.publishTargets.PublishTargetInterface;
 import ca.weblite.jdeploy.services.PackageNameService;
@@ -24,9 +25,12 @@ public class BasePublishDriver implements PublishDriverInterface {
 
     private final PackageService packageService;
 
+    private final AppCdsLauncherArgs appCdsLauncherArgs;
+
     @Inject
-    public BasePublishDriver(PackageService packageService) {
+    public BasePublishDriver(PackageService packageService, AppCdsLauncherArgs appCdsLauncherArgs) {
         this.packageService = packageService;
+        this.appCdsLauncherArgs = appCdsLauncherArgs;
     }
 
     @Override
@@ -124,6 +128,10 @@ public class BasePublishDriver implements PublishDriverInterface {
             }
         }
 
+        // The native launcher reads its JVM args from the published package.json; jdeploy.js
+        // already had its AppCDS args baked in by the PackageService
+        appCdsLauncherArgs.addTo(packageJSON);
+
         FileUtils.writeStringToFile(new File(context.getPublishDir(),"package.json"), packageJSON.toString(), "UTF-8");
 
         if (context.packagingContext.isPackageSigningEnabled()) {
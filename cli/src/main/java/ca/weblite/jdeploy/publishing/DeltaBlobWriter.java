@@ -0,0 +1,216 @@
+package ca.weblite.jdeploy.publishing;
+
+import ca.weblite.jdeploy.delta.DeltaManifest;
+import ca.weblite.jdeploy.models.Platform;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.io.FileUtils;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Writes the delta update indexes and blob packs for a published release into the GitHub release
+ * files directory.
+ *
+ * The universal bundle and each platform tarball get their own index, since installers of a
+ * platform bundle have that bundle's filtered jars.  The distinct files of all bundles are
+ * concatenated, in hash order, into packs of up to {@value #MAX_PACK_SIZE} bytes, so a release
+ * has a handful of blob assets however many files its bundles have.  Installers that already have
+ * an earlier version download only the byte ranges of the blobs whose content changed.  See
+ * {@link DeltaManifest}.
+ */
+@Singleton
+public class DeltaBlobWriter {
+
+    static final long MAX_PACK_SIZE = 128L * 1024 * 1024;
+
+    private static final String BUNDLE_DIR = "jdeploy-bundle";
+
+    private static final String PACKAGE_JSON = "package.json";
+
+    private static final String TARBALL_PREFIX = "package/";
+
+    @Inject
+    public DeltaBlobWriter() {
+    }
+
+    /**
+     * @param publishDir the universal package, containing package.json and the jdeploy-bundle
+     * @param platformTarballs the platform tarballs published alongside it
+     * @return the number of distinct blobs packed, or 0 if the release has no bundle
+     */
+    public int write(
+            File publishDir,
+            Map<Platform, File> platformTarballs,
+            File releaseFilesDir,
+            PrintStream out
+    ) throws IOException {
+        File jdeployBundleDir = new File(publishDir, BUNDLE_DIR);
+        if (!jdeployBundleDir.isDirectory()) {
+            return 0;
+        }
+        File blobsDir = Files.createTempDirectory("jdeploy-delta-blobs").toFile();
+        try {
+            Map<String, File> blobs = new HashMap<>();
+            DeltaManifest universal = DeltaManifest.fromDirectory(jdeployBundleDir);
+            for (Map.Entry<String, DeltaManifest.Entry> entry : universal.getEntries().entrySet()) {
+                blobs.putIfAbsent(entry.getValue().getHash(), new File(jdeployBundleDir, entry.getKey()));
+            }
+            DeltaManifest.Entry packageJson = null;
+            File packageJsonFile = new File(publishDir, PACKAGE_JSON);
+            if (packageJsonFile.isFile()) {
+                packageJson = new DeltaManifest.Entry(DeltaManifest.sha256(packageJsonFile), packageJsonFile.length(), false);
+                blobs.putIfAbsent(packageJson.getHash(), packageJsonFile);
+            }
+
+            Map<String, DeltaManifest> platformManifests = new LinkedHashMap<>();
+            for (Map.Entry<Platform, File> tarball : platformTarballs.entrySet()) {
+                platformManifests.put(
+                        tarball.getKey().getIdentifier(),
+                        readTarball(tarball.getValue(), blobsDir, blobs)
+                );
+            }
+
+            releaseFilesDir.mkdirs();
+            Map<String, DeltaManifest.Location> locations = new HashMap<>();
+            int packs = writePacks(new TreeMap<>(blobs), releaseFilesDir, locations);
+
+            writeIndex(
+                    new DeltaManifest(universal.getEntries(), packageJson, platformManifests.keySet()),
+                    new File(releaseFilesDir, DeltaManifest.FILE_NAME),
+                    locations
+            );
+            for (Map.Entry<String, DeltaManifest> platformManifest : platformManifests.entrySet()) {
+                writeIndex(
+                        platformManifest.getValue(),
+                        new File(releaseFilesDir, DeltaManifest.getFileName(platformManifest.getKey())),
+                        locations
+                );
+            }
+            out.println("Added delta update indexes for " + (1 + platformManifests.size()) + " bundle(s), with "
+                    + blobs.size() + " blob(s) in " + packs + " pack(s), to release files");
+            return blobs.size();
+        } finally {
+            FileUtils.deleteQuietly(blobsDir);
+        }
+    }
+
+    /**
+     * Indexes the jdeploy-bundle and package.json of a platform tarball, extracting the files
+     * that aren't already in {@code blobs} into {@code blobsDir}.
+     */
+    private DeltaManifest readTarball(File tarball, File blobsDir, Map<String, File> blobs) throws IOException {
+        String bundlePrefix = TARBALL_PREFIX + BUNDLE_DIR + "/";
+        SortedMap<String, DeltaManifest.Entry> entries = new TreeMap<>();
+        DeltaManifest.Entry packageJson = null;
+        try (TarArchiveInputStream input = new TarArchiveInputStream(
+                new GzipCompressorInputStream(new BufferedInputStream(new FileInputStream(tarball))))) {
+            TarArchiveEntry tarEntry;
+            while ((tarEntry = input.getNextTarEntry()) != null) {
+                String name = tarEntry.getName();
+                boolean isPackageJson = name.equals(TARBALL_PREFIX + PACKAGE_JSON);
+                if (!tarEntry.isFile() || !(isPackageJson || name.startsWith(bundlePrefix))) {
+                    continue;
+                }
+                File extracted = File.createTempFile("blob", null, blobsDir);
+                Files.copy(input, extracted.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                String hash = DeltaManifest.sha256(extracted);
+                if (blobs.containsKey(hash)) {
+                    Files.delete(extracted.toPath());
+                } else {
+                    blobs.put(hash, extracted);
+                }
+                DeltaManifest.Entry entry = new DeltaManifest.Entry(
+                        hash, tarEntry.getSize(), (tarEntry.getMode() & 0100) != 0
+                );
+                if (isPackageJson) {
+                    packageJson = entry;
+                } else {
+                    entries.put(name.substring(bundlePrefix.length()), entry);
+                }
+            }
+        }
+        return new DeltaManifest(entries, packageJson, Collections.emptyList());
+    }
+
+    /**
+     * Concatenates the blobs, in hash order, into packs named after their content.
+     *
+     * @param locations receives the location of each blob
+     * @return the number of packs written
+     */
+    private int writePacks(
+            SortedMap<String, File> blobs,
+            File releaseFilesDir,
+            Map<String, DeltaManifest.Location> locations
+    ) throws IOException {
+        List<List<String>> packs = new ArrayList<>();
+        List<String> current = null;
+        long currentSize = 0;
+        for (Map.Entry<String, File> blob : blobs.entrySet()) {
+            long size = blob.getValue().length();
+            if (current == null || (currentSize > 0 && currentSize + size > MAX_PACK_SIZE)) {
+                current = new ArrayList<>();
+                packs.add(current);
+                currentSize = 0;
+            }
+            current.add(blob.getKey());
+            currentSize += size;
+        }
+
+        for (List<String> pack : packs) {
+            File tmp = File.createTempFile(DeltaManifest.PACK_PREFIX, ".tmp", releaseFilesDir);
+            Map<String, Long> offsets = new LinkedHashMap<>();
+            MessageDigest digest = DeltaManifest.newDigest();
+            try {
+                try (OutputStream output = new DigestOutputStream(
+                        new BufferedOutputStream(new FileOutputStream(tmp)), digest)) {
+                    long offset = 0;
+                    for (String hash : pack) {
+                        offsets.put(hash, offset);
+                        offset += Files.copy(blobs.get(hash).toPath(), output);
+                    }
+                }
+                String packName = DeltaManifest.getPackName(DeltaManifest.toHex(digest.digest()));
+                Files.move(tmp.toPath(), new File(releaseFilesDir, packName).toPath(), StandardCopyOption.REPLACE_EXISTING);
+                for (Map.Entry<String, Long> offset : offsets.entrySet()) {
+                    locations.put(offset.getKey(), new DeltaManifest.Location(packName, offset.getValue()));
+                }
+            } finally {
+                FileUtils.deleteQuietly(tmp);
+            }
+        }
+        return packs.size();
+    }
+
+    private static void writeIndex(
+            DeltaManifest manifest,
+            File file,
+            Map<String, DeltaManifest.Location> locations
+    ) throws IOException {
+        FileUtils.writeStringToFile(file, manifest.withLocations(locations).toJson(), StandardCharsets.UTF_8);
+    }
+}
@@ -14,6 +14,7 @@ import ca.weblite.jdeploy.publishTargets.PublishTargetType;
 import ca.weblite.jdeploy.publishing.BasePublishDriver;
 import ca.weblite.jdeploy.publishing.BundleChecksumWriter;
 import ca.weblite.jdeploy.publishing.BundleUploadRouter;
+import ca.weblite.jdeploy.publishing.DeltaBlobWriter;
 import ca.weblite.jdeploy.publishing.OneTimePasswordProviderInterface;
 import ca.weblite.jdeploy.publishing.PublishDriverInterface;
 import ca.weblite.jdeploy.publishing.PublishingContext;
@@ -42,6 +43,7 @@ import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.file.Files;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -84,6 +86,8 @@ public class GitHubPublishDriver implements PublishDriverInterface {
 
     private final BundleChecksumWriter bundleChecksumWriter;
 
+    private final DeltaBlobWriter deltaBlobWriter;
+
     @Inject
     public GitHubPublishDriver(
             BasePublishDriver baseDriver,
@@ -99,7 +103,8 @@ public class GitHubPublishDriver implements PublishDriverInterface {
             ca.weblite.jdeploy.services.JDeployFilesZipGenerator jdeployFilesZipGenerator,
             PublishBundleService publishBundleService,
             BundleUploadRouter bundleUploadRouter,
-            BundleChecksumWriter bundleChecksumWriter
+            BundleChecksumWriter bundleChecksumWriter,
+            DeltaBlobWriter deltaBlobWriter
     ) {
         this.baseDriver = baseDriver;
         this.bundleCodeService = bundleCodeService;
@@ -115,6 +120,7 @@ public class GitHubPublishDriver implements PublishDriverInterface {
         this.publishBundleService = publishBundleService;
         this.bundleUploadRouter = bundleUploadRouter;
         this.bundleChecksumWriter = bundleChecksumWriter;
+        this.deltaBlobWriter = deltaBlobWriter;
     }
 
     public void setGithubUrl(String githubUrl) {
@@ -267,7 +273,7 @@ public class GitHubPublishDriver implements PublishDriverInterface {
         context.getGithubReleaseFilesDir().mkdirs();
 
         // Generate platform-specific tarballs if platform bundles are enabled
-        generatePlatformSpecificTarballs(context);
+        Map<Platform, File> platformTarballs = generatePlatformSpecificTarballs(context);
         
         // Process the default bundle AFTER platform bundles to apply global ignore rules
         defaultBundleService.processDefaultBundle(context);
@@ -279,6 +285,14 @@ public class GitHubPublishDriver implements PublishDriverInterface {
 
         saveGithubReleaseFiles(context, target);
 
+        // Let installers that already have an earlier version fetch only the files that changed
+        deltaBlobWriter.write(
+                context.getPublishDir(),
+                platformTarballs,
+                context.getGithubReleaseFilesDir(),
+                context.out()
+        );
+
         // Build and upload pre-built bundles if enabled
         maybePublishBundles(context, target);
 
@@ -736,8 +750,10 @@ public class GitHubPublishDriver implements PublishDriverInterface {
      * - Use dual-list resolution (strip ignore + other platforms, keep target platform)
      * 
      * Creates additional .tgz files alongside the processed universal tarball for GitHub releases.
+     *
+     * @return the generated tarballs, empty if platform bundles are disabled or generation failed
      */
-    private void generatePlatformSpecificTarballs(PublishingContext context) throws IOException {
+    private Map<Platform, File> generatePlatformSpecificTarballs(PublishingContext context) throws IOException {
         try {
             // Load the project configuration from package.json
             JDeployProject project = projectFactory.createProject(context.packagingContext.packageJsonFile.toPath());
@@ -745,7 +761,7 @@ public class GitHubPublishDriver implements PublishDriverInterface {
             // Check if platform bundles are enabled and needed
             if (!platformBundleGenerator.shouldGeneratePlatformBundles(project)) {
                 context.out().println("Platform bundles not enabled or not needed, skipping platform-specific processing");
-                return;
+                return Collections.emptyMap();
             }
             
             // Note: Default bundle is already processed before packing in the prepare() method
@@ -766,8 +782,6 @@ public class GitHubPublishDriver implements PublishDriverInterface {
                     project,
                     context.getPublishDir(),
                     context.getGithubReleaseFilesDir(),
-                    context.npm,
-                    context.packagingContext.exitOnFail,
                     signingService,
                     signingVersionString
             );
@@ -786,13 +800,14 @@ public class GitHubPublishDriver implements PublishDriverInterface {
                 context.out().println("Successfully generated " + tarballs.size() + 
                                     " platform-specific tarballs for GitHub release");
             }
-            
+            return tarballs;
         } catch (Exception e) {
             // Log the error but don't fail the entire publishing process
             // The universal bundle will still be available
             context.err().println("Warning: Failed to generate platform-specific tarballs: " + e.getMessage());
             context.err().println("Universal bundle will still be published to GitHub release");
             e.printStackTrace(context.err());
+            return Collections.emptyMap();
         }
     }
 }
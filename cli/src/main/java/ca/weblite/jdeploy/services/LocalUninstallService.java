@@ -2,6 +2,7 @@ package ca.weblite.jdeploy.services;
 
 import ca.weblite.jdeploy.installer.uninstall.FileUninstallManifestRepository;
 import ca.weblite.jdeploy.installer.uninstall.UninstallService;
+import ca.weblite.jdeploy.installer.util.ContentStore;
 import ca.weblite.jdeploy.installer.win.JnaRegistryOperations;
 import ca.weblite.jdeploy.installer.win.RegistryOperations;
 import ca.weblite.tools.platform.Platform;
@@ -112,7 +113,11 @@ public class LocalUninstallService {
     private UninstallService createUninstallService() {
         FileUninstallManifestRepository manifestRepository = new FileUninstallManifestRepository();
         RegistryOperations registryOperations = createRegistryOperations();
-        return new UninstallService(manifestRepository, registryOperations);
+        return new UninstallService(
+                manifestRepository,
+                registryOperations,
+                ContentStore.isSupported() ? new ContentStore() : null
+        );
     }
 
     /**
@@ -0,0 +1,391 @@
+package ca.weblite.jdeploy.services;
+
+import ca.weblite.jdeploy.models.JDeployProject;
+import ca.weblite.jdeploy.models.Platform;
+import org.apache.commons.io.FileUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Scans dependency jars for native libraries and reports how much of the bundle they take up
+ * on each platform.
+ *
+ * Jars are scanned in parallel, and only the zip central directory is read; no entry is ever
+ * decompressed.  Results are cached on disk keyed by path, size and modification time, so
+ * unchanged Maven artifacts are not re-scanned on later runs.
+ */
+@Singleton
+public class NativeLibraryScanner {
+
+    private static final int CACHE_VERSION = 1;
+
+    private static final String UNKNOWN = "unknown";
+
+    private final JDeployIgnoreService ignoreService;
+
+    private final File cacheFile;
+
+    private final Map<String, JarScan> cache = new ConcurrentHashMap<>();
+
+    private boolean cacheLoaded;
+
+    private volatile boolean cacheDirty;
+
+    @Inject
+    public NativeLibraryScanner(JDeployIgnoreService ignoreService) {
+        this(ignoreService, new File(
+                System.getProperty("user.home") + File.separator + ".jdeploy" + File.separator + "cache",
+                "native-libraries.json"
+        ));
+    }
+
+    NativeLibraryScanner(JDeployIgnoreService ignoreService, File cacheFile) {
+        this.ignoreService = ignoreService;
+        this.cacheFile = cacheFile;
+    }
+
+    /**
+     * The native libraries found in a single jar.
+     */
+    public static final class JarScan {
+        private final long lastModified;
+        private final long length;
+        private final List<String> namespaces;
+        private final SortedMap<String, Long> nativeFiles;
+
+        JarScan(long lastModified, long length, List<String> namespaces, SortedMap<String, Long> nativeFiles) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.namespaces = Collections.unmodifiableList(namespaces);
+            this.nativeFiles = Collections.unmodifiableSortedMap(nativeFiles);
+        }
+
+        /**
+         * The native namespaces detected, in the format used by
+         * {@link PlatformSpecificJarProcessor#scanJarForNativeNamespaces(File)}.
+         */
+        public List<String> getNamespaces() {
+            return namespaces;
+        }
+
+        /**
+         * The compressed size of each native library file, keyed by entry name.
+         */
+        public SortedMap<String, Long> getNativeFiles() {
+            return nativeFiles;
+        }
+    }
+
+    /**
+     * The combined native footprint of a set of jars.
+     */
+    public static final class Report {
+        private final Map<File, JarScan> jars;
+        private final SortedMap<String, Long> bytesByPlatform = new TreeMap<>();
+        private final Map<Platform, Long> savings = new EnumMap<>(Platform.class);
+
+        Report(Map<File, JarScan> jars) {
+            this.jars = Collections.unmodifiableMap(jars);
+        }
+
+        public Map<File, JarScan> getJars() {
+            return jars;
+        }
+
+        /**
+         * Compressed bytes of native libraries per platform, keyed by "os-arch", just "os" when
+         * the architecture can't be determined, or "unknown".
+         */
+        public SortedMap<String, Long> getBytesByPlatform() {
+            return Collections.unmodifiableSortedMap(bytesByPlatform);
+        }
+
+        public long getTotalNativeBytes() {
+            long total = 0;
+            for (long bytes : bytesByPlatform.values()) {
+                total += bytes;
+            }
+            return total;
+        }
+
+        /**
+         * Compressed bytes of native libraries that would be left out of each platform-specific
+         * bundle.
+         */
+        public Map<Platform, Long> getSavings() {
+            return Collections.unmodifiableMap(savings);
+        }
+
+        /**
+         * The native namespaces detected across all jars, sorted.
+         */
+        public SortedSet<String> getNamespaces() {
+            SortedSet<String> namespaces = new TreeSet<>();
+            for (JarScan scan : jars.values()) {
+                namespaces.addAll(scan.getNamespaces());
+            }
+            return namespaces;
+        }
+
+        public void print(PrintStream out) {
+            out.println("Native libraries: " + formatBytes(getTotalNativeBytes()) + " in "
+                    + countJarsWithNatives() + " of " + jars.size() + " jar(s)");
+            for (Map.Entry<String, Long> entry : bytesByPlatform.entrySet()) {
+                out.println("  " + entry.getKey() + ": " + formatBytes(entry.getValue()));
+            }
+            SortedSet<String> namespaces = getNamespaces();
+            if (!namespaces.isEmpty()) {
+                out.println("JNI namespaces:");
+                for (String namespace : namespaces) {
+                    out.println("  " + namespace);
+                }
+            }
+            if (!savings.isEmpty()) {
+                out.println("Savings in platform-specific bundles:");
+                for (Map.Entry<Platform, Long> entry : savings.entrySet()) {
+                    out.println("  " + entry.getKey().getIdentifier() + ": " + formatBytes(entry.getValue()));
+                }
+            }
+        }
+
+        private int countJarsWithNatives() {
+            int count = 0;
+            for (JarScan scan : jars.values()) {
+                if (!scan.getNativeFiles().isEmpty()) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Scans the given jars.
+     *
+     * @param project if not null, savings are calculated from the project's .jdpignore rules.
+     *                Otherwise they are estimated from the platform each library was built for.
+     */
+    public Report scan(Collection<File> jars, JDeployProject project) {
+        loadCache();
+        Map<File, JarScan> results = new ConcurrentHashMap<>();
+        jars.parallelStream()
+                .filter(File::isFile)
+                .forEach(jar -> {
+                    try {
+                        results.put(jar, scan(jar));
+                    } catch (IOException ex) {
+                        System.err.println("Failed to scan " + jar + " for native libraries: " + ex.getMessage());
+                    }
+                });
+        saveCache();
+
+        Report report = new Report(new TreeMap<>(results));
+        for (JarScan scan : results.values()) {
+            for (Map.Entry<String, Long> file : scan.getNativeFiles().entrySet()) {
+                report.bytesByPlatform.merge(classify(file.getKey()), file.getValue(), Long::sum);
+            }
+        }
+        for (Platform platform : Platform.values()) {
+            if (platform == Platform.DEFAULT) {
+                continue;
+            }
+            long saved = 0;
+            for (JarScan scan : results.values()) {
+                for (Map.Entry<String, Long> file : scan.getNativeFiles().entrySet()) {
+                    if (isStripped(project, file.getKey(), platform)) {
+                        saved += file.getValue();
+                    }
+                }
+            }
+            report.savings.put(platform, saved);
+        }
+        return report;
+    }
+
+    /**
+     * Scans a single jar, using the cached result if the jar hasn't changed.
+     */
+    public JarScan scan(File jar) throws IOException {
+        loadCache();
+        String key = jar.getAbsolutePath();
+        long lastModified = jar.lastModified();
+        long length = jar.length();
+        JarScan cached = cache.get(key);
+        if (cached != null && cached.lastModified == lastModified && cached.length == length) {
+            return cached;
+        }
+        Set<String> namespaces = new TreeSet<>();
+        SortedMap<String, Long> nativeFiles = new TreeMap<>();
+        try (ZipFile zip = new ZipFile(jar)) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                String name = entry.getName();
+                PlatformSpecificJarProcessor.detectNativeNamespaces(name, namespaces);
+                if (PlatformSpecificJarProcessor.isNativeLibraryFile(name)) {
+                    long size = entry.getCompressedSize() >= 0 ? entry.getCompressedSize() : entry.getSize();
+                    nativeFiles.put(name, Math.max(0, size));
+                }
+            }
+        }
+        JarScan scan = new JarScan(lastModified, length, new ArrayList<>(namespaces), nativeFiles);
+        cache.put(key, scan);
+        cacheDirty = true;
+        return scan;
+    }
+
+    private boolean isStripped(JDeployProject project, String path, Platform platform) {
+        if (project != null) {
+            return !ignoreService.shouldIncludeFile(project, path, platform);
+        }
+        String classification = classify(path);
+        if (UNKNOWN.equals(classification)) {
+            return false;
+        }
+        String[] target = platform.getIdentifier().split("-");
+        String[] library = classification.split("-");
+        return !library[0].equals(target[0]) || (library.length > 1 && !library[1].equals(target[1]));
+    }
+
+    /**
+     * Guesses the platform a native library was built for from its path.
+     *
+     * @return "os-arch", "os", or "unknown"
+     */
+    static String classify(String path) {
+        String lower = path.toLowerCase(Locale.ROOT);
+        List<String> tokens = Arrays.asList(lower.split("[/\\\\._\\-]+"));
+        String os = null;
+        if (containsAny(tokens, "mac", "macos", "macosx", "osx", "darwin")) {
+            os = "mac";
+        } else if (containsAny(tokens, "win", "windows", "win32", "win64")) {
+            os = "win";
+        } else if (containsAny(tokens, "linux")) {
+            os = "linux";
+        } else if (lower.endsWith(".dll")) {
+            os = "win";
+        } else if (lower.endsWith(".dylib") || lower.endsWith(".jnilib")) {
+            os = "mac";
+        } else if (lower.endsWith(".so")) {
+            os = "linux";
+        }
+        if (os == null) {
+            return UNKNOWN;
+        }
+
+        String arch = null;
+        if (containsAny(tokens, "aarch64", "arm64")) {
+            arch = "arm64";
+        } else if (containsAny(tokens, "x64", "amd64", "win64") || lower.contains("x86_64") || lower.contains("x86-64")) {
+            arch = "x64";
+        } else if (containsAny(tokens, "x86", "i386", "i686", "win32")) {
+            arch = "x86";
+        }
+        return arch == null ? os : os + "-" + arch;
+    }
+
+    private static boolean containsAny(List<String> tokens, String... candidates) {
+        for (String candidate : candidates) {
+            if (tokens.contains(candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format(Locale.ROOT, "%.1f KB", bytes / 1024.0);
+        }
+        return String.format(Locale.ROOT, "%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
+    private synchronized void loadCache() {
+        if (cacheLoaded) {
+            return;
+        }
+        cacheLoaded = true;
+        if (cacheFile == null || !cacheFile.isFile()) {
+            return;
+        }
+        try {
+            JSONObject root = new JSONObject(FileUtils.readFileToString(cacheFile, StandardCharsets.UTF_8));
+            if (root.optInt("version") != CACHE_VERSION) {
+                return;
+            }
+            JSONObject jars = root.getJSONObject("jars");
+            for (String key : jars.keySet()) {
+                JSONObject json = jars.getJSONObject(key);
+                List<String> namespaces = new ArrayList<>();
+                JSONArray namespacesJson = json.getJSONArray("namespaces");
+                for (int i = 0; i < namespacesJson.length(); i++) {
+                    namespaces.add(namespacesJson.getString(i));
+                }
+                SortedMap<String, Long> nativeFiles = new TreeMap<>();
+                JSONObject nativeFilesJson = json.getJSONObject("nativeFiles");
+                for (String name : nativeFilesJson.keySet()) {
+                    nativeFiles.put(name, nativeFilesJson.getLong(name));
+                }
+                cache.put(key, new JarScan(json.getLong("lastModified"), json.getLong("length"), namespaces, nativeFiles));
+            }
+        } catch (Exception ex) {
+            System.err.println("Failed to load native library cache " + cacheFile + ": " + ex.getMessage());
+        }
+    }
+
+    private synchronized void saveCache() {
+        if (!cacheDirty || cacheFile == null) {
+            return;
+        }
+        JSONObject jars = new JSONObject();
+        for (Map.Entry<String, JarScan> entry : cache.entrySet()) {
+            // Drop entries for jars that no longer exist so the cache doesn't grow forever
+            if (!new File(entry.getKey()).exists()) {
+                continue;
+            }
+            JarScan scan = entry.getValue();
+            JSONObject json = new JSONObject();
+            json.put("lastModified", scan.lastModified);
+            json.put("length", scan.length);
+            json.put("namespaces", new JSONArray(scan.getNamespaces()));
+            json.put("nativeFiles", new JSONObject(scan.getNativeFiles()));
+            jars.put(entry.getKey(), json);
+        }
+        JSONObject root = new JSONObject();
+        root.put("version", CACHE_VERSION);
+        root.put("jars", jars);
+        try {
+            File parent = cacheFile.getAbsoluteFile().getParentFile();
+            parent.mkdirs();
+            File tmp = Files.createTempFile(parent.toPath(), cacheFile.getName(), ".tmp").toFile();
+            try {
+                FileUtils.writeStringToFile(tmp, root.toString(), StandardCharsets.UTF_8);
+                Files.move(tmp.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                cacheDirty = false;
+            } finally {
+                Files.deleteIfExists(tmp.toPath());
+            }
+        } catch (IOException ex) {
+            System.err.println("Failed to save native library cache " + cacheFile + ": " + ex.getMessage());
+        }
+    }
+}
@@ -3,7 +3,7 @@ package ca.weblite.jdeploy.services;
 import ca.weblite.jdeploy.models.JDeployIgnorePattern;
 import ca.weblite.jdeploy.models.JDeployProject;
 import ca.weblite.jdeploy.models.Platform;
-import ca.weblite.jdeploy.npm.NPM;
+import ca.weblite.jdeploy.npm.NpmTarballWriter;
 import ca.weblite.jdeploy.downloadPage.DownloadPageSettingsService;
 import ca.weblite.jdeploy.downloadPage.DownloadPageSettings;
 import ca.weblite.jdeploy.services.PackageSigningService;
@@ -14,15 +14,20 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Service for generating platform-specific bundles from a universal bundle.
  * Creates optimized bundles by stripping native libraries for other platforms.
  * 
  * Compatible with existing publishing drivers:
- * - GitHub: Creates directories that can be packed with npm pack
+ * - GitHub: Streams the universal bundle straight into per-platform tarballs
  * - NPM: Creates directories that can be published with npm publish
  */
 @Singleton
@@ -31,12 +36,18 @@ public class PlatformBundleGenerator {
     private final PlatformSpecificJarProcessor jarProcessor;
     private final DownloadPageSettingsService downloadPageSettingsService;
     private final JDeployIgnoreService ignoreService;
+    private final NpmTarballWriter tarballWriter;
 
     @Inject
-    public PlatformBundleGenerator(PlatformSpecificJarProcessor jarProcessor, DownloadPageSettingsService downloadPageSettingsService, JDeployIgnoreService ignoreService) {
+    public PlatformBundleGenerator(
+            PlatformSpecificJarProcessor jarProcessor,
+            DownloadPageSettingsService downloadPageSettingsService,
+            JDeployIgnoreService ignoreService,
+            NpmTarballWriter tarballWriter) {
         this.jarProcessor = jarProcessor;
         this.downloadPageSettingsService = downloadPageSettingsService;
         this.ignoreService = ignoreService;
+        this.tarballWriter = tarballWriter;
     }
 
     /**
@@ -177,35 +188,34 @@ public class PlatformBundleGenerator {
     }
 
     /**
-     * Generates platform-specific tarballs using npm pack.
+     * Generates platform-specific tarballs.
      * This is useful for GitHub releases where tarballs are directly uploaded.
      * 
      * @param project the jDeploy project configuration  
      * @param universalPublishDir the universal bundle directory
      * @param outputDir the directory where tarballs will be created
-     * @param npm the NPM instance to use for packing
-     * @param exitOnFail whether to exit on failure
      * @return map of platform to generated tarball file
      * @throws IOException if generation fails
      */
     public Map<Platform, File> generatePlatformTarballs(
             JDeployProject project,
             File universalPublishDir,
-            File outputDir,
-            NPM npm,
-            boolean exitOnFail) throws IOException {
-        return generatePlatformTarballs(project, universalPublishDir, outputDir, npm, exitOnFail, null, null);
+            File outputDir) throws IOException {
+        return generatePlatformTarballs(project, universalPublishDir, outputDir, null, null);
     }
 
     /**
-     * Generates platform-specific tarballs using npm pack, re-signing each bundle
-     * after JAR filtering if a signing service is provided.
+     * Generates platform-specific tarballs, re-signing each bundle after JAR filtering if a
+     * signing service is provided.
+     *
+     * The universal bundle is streamed straight into each tarball, with package.json rewritten
+     * and JARs filtered on the way, so the bundle is never copied.  Tarballs follow npm's
+     * {@code package/} layout with normalized metadata, and are byte-for-byte reproducible
+     * unless signing is enabled (signatures are timestamped).  Platforms are written concurrently.
      *
      * @param project the jDeploy project configuration
      * @param universalPublishDir the universal bundle directory
      * @param outputDir the directory where tarballs will be created
-     * @param npm the NPM instance to use for packing
-     * @param exitOnFail whether to exit on failure
      * @param signingService the signing service to re-sign after filtering (nullable)
      * @param signingVersionString the version string for signing (required if signingService is non-null)
      * @return map of platform to generated tarball file
@@ -215,37 +225,160 @@ public class PlatformBundleGenerator {
             JDeployProject project,
             File universalPublishDir,
             File outputDir,
-            NPM npm,
-            boolean exitOnFail,
             PackageSigningService signingService,
             String signingVersionString) throws IOException {
 
-        // First generate platform bundles in a temp directory
-        File tempDir = Files.createTempDirectory("platform-bundles").toFile();
+        if (!project.isPlatformBundlesEnabled()) {
+            return Collections.emptyMap();
+        }
 
-        try {
-            Map<Platform, File> platformBundles = generatePlatformBundles(project, universalPublishDir, tempDir, signingService, signingVersionString);
-            Map<Platform, File> tarballs = new HashMap<>();
+        List<Platform> platforms = getPlatformsForBundleGeneration(project);
+        if (platforms.isEmpty()) {
+            return Collections.emptyMap();
+        }
 
-            for (Map.Entry<Platform, File> entry : platformBundles.entrySet()) {
-                Platform platform = entry.getKey();
-                File bundleDir = entry.getValue();
+        if (!universalPublishDir.exists() || !universalPublishDir.isDirectory()) {
+            throw new IllegalArgumentException("Universal publish directory must exist: " + universalPublishDir);
+        }
 
-                // Create tarball using npm pack (generates file based on package.json name)
-                createTarball(bundleDir, outputDir, npm, exitOnFail);
+        if (!outputDir.exists()) {
+            outputDir.mkdirs();
+        }
 
-                // Find the actual generated tarball file and rename it to RFC convention
-                File renamedTarball = findAndRenameTarball(project, platform, bundleDir, outputDir);
-                tarballs.put(platform, renamedTarball);
+        SortedMap<String, File> packageFiles = tarballWriter.listPackageFiles(universalPublishDir);
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(platforms.size(), Runtime.getRuntime().availableProcessors()))
+        );
+        try {
+            Map<Platform, Future<File>> futures = new LinkedHashMap<>();
+            for (Platform platform : platforms) {
+                futures.put(platform, executor.submit(() -> writePlatformTarball(
+                        project, universalPublishDir, packageFiles, outputDir, platform,
+                        signingService, signingVersionString
+                )));
             }
 
+            Map<Platform, File> tarballs = new LinkedHashMap<>();
+            for (Map.Entry<Platform, Future<File>> entry : futures.entrySet()) {
+                tarballs.put(entry.getKey(), getResult(entry.getValue()));
+            }
             return tarballs;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 
+    /**
+     * Writes the tarball for a single platform.  Only the filtered JARs are written to disk
+     * before being streamed into the tarball; everything else is read from the universal bundle.
+     */
+    private File writePlatformTarball(
+            JDeployProject project,
+            File universalPublishDir,
+            SortedMap<String, File> packageFiles,
+            File outputDir,
+            Platform platform,
+            PackageSigningService signingService,
+            String signingVersionString) throws IOException {
+
+        File jarDir = Files.createTempDirectory("platform-jars-" + platform.getIdentifier()).toFile();
+        try {
+            Map<String, NpmTarballWriter.Content> entries = new LinkedHashMap<>();
+            for (Map.Entry<String, File> file : packageFiles.entrySet()) {
+                entries.put(file.getKey(), NpmTarballWriter.Content.of(file.getValue()));
+            }
+
+            JSONObject packageJson = null;
+            File packageJsonFile = new File(universalPublishDir, "package.json");
+            if (packageJsonFile.exists()) {
+                packageJson = createPlatformPackageJson(
+                        FileUtils.readFileToString(packageJsonFile, "UTF-8"), project, platform
+                );
+                entries.put("package.json", NpmTarballWriter.Content.of(
+                        packageJson.toString(2).getBytes(StandardCharsets.UTF_8)
+                ));
+            }
+
+            if (ignoreService.hasIgnoreFiles(project)) {
+                int index = 0;
+                for (Map.Entry<String, File> file : packageFiles.entrySet()) {
+                    if (!file.getKey().endsWith(".jar")) {
+                        continue;
+                    }
+                    File filteredJar = new File(jarDir, (index++) + ".jar");
+                    try {
+                        jarProcessor.writeProcessedJar(file.getValue(), filteredJar, project, platform);
+                        entries.put(file.getKey(), NpmTarballWriter.Content.of(filteredJar));
+                    } catch (Exception e) {
+                        // Log warning but continue processing other JARs
+                        System.err.println("Warning: Failed to process JAR with ignore service " + file.getValue().getName() + ": " + e.getMessage());
+                    }
+                }
+
+                // Re-sign after filtering to fix certificate pinning
+                if (signingService != null) {
+                    signJdeployBundleEntries(entries, signingService, signingVersionString, platform);
+                }
+            }
+
+            File tarball = new File(outputDir, getPlatformTarballName(project, platform));
+            tarballWriter.write(entries, tarballWriter.getBinPaths(packageJson), tarball);
+            return tarball;
         } finally {
-            // Clean up temp directory
-            if (tempDir.exists()) {
-                FileUtils.deleteDirectory(tempDir);
+            FileUtils.deleteQuietly(jarDir);
+        }
+    }
+
+    /**
+     * Replaces the signature files in the jdeploy-bundle entries with ones covering the
+     * filtered contents.
+     */
+    private void signJdeployBundleEntries(
+            Map<String, NpmTarballWriter.Content> entries,
+            PackageSigningService signingService,
+            String signingVersionString,
+            Platform platform) throws IOException {
+        String prefix = "jdeploy-bundle/";
+        Map<String, File> bundleFiles = new TreeMap<>();
+        for (Map.Entry<String, NpmTarballWriter.Content> entry : entries.entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                File file = entry.getValue().getFile();
+                if (file == null) {
+                    continue;
+                }
+                // Same relative path format that signing the directory in place would record
+                String relativePath = entry.getKey().substring(prefix.length()).replace('/', File.separatorChar);
+                bundleFiles.put(relativePath, file);
+            }
+        }
+        if (bundleFiles.isEmpty()) {
+            return;
+        }
+        try {
+            Map<String, byte[]> signatureFiles = signingService.createSignatureFiles(signingVersionString, bundleFiles);
+            for (Map.Entry<String, byte[]> signatureFile : signatureFiles.entrySet()) {
+                entries.put(prefix + signatureFile.getKey(), NpmTarballWriter.Content.of(signatureFile.getValue()));
             }
+        } catch (Exception ex) {
+            throw new IOException("Failed to re-sign platform bundle after filtering for " + platform.getIdentifier(), ex);
+        }
+    }
+
+    private static <T> T getResult(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while generating platform tarballs", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Failed to generate platform tarball", cause);
         }
     }
 
@@ -301,8 +434,18 @@ public class PlatformBundleGenerator {
 
         // Read current package.json
         String content = FileUtils.readFileToString(packageJsonFile, "UTF-8");
+        JSONObject packageJson = createPlatformPackageJson(content, project, platform);
+
+        // Write updated package.json
+        FileUtils.writeStringToFile(packageJsonFile, packageJson.toString(2), "UTF-8");
+    }
+
+    /**
+     * Creates the platform-specific variant of a package.json.
+     */
+    private JSONObject createPlatformPackageJson(String content, JDeployProject project, Platform platform) {
         JSONObject packageJson = new JSONObject(content);
-        
+
         // Always update name to ensure unique npm pack output
         String platformPackageName = project.getPackageName(platform);
         if (platformPackageName != null) {
@@ -323,9 +466,7 @@ public class PlatformBundleGenerator {
         }
         jdeploy.put("platformVariant", platform.getIdentifier());
         jdeploy.put("universalPackage", project.getPackageJSON().optString("name"));
-
-        // Write updated package.json
-        FileUtils.writeStringToFile(packageJsonFile, packageJson.toString(2), "UTF-8");
+        return packageJson;
     }
 
     
@@ -352,71 +493,6 @@ public class PlatformBundleGenerator {
         }
     }
 
-    /**
-     * Creates a tarball from a bundle directory using npm pack.
-     * Uses npm pack which is cross-platform and produces npm-compatible tarballs.
-     * 
-     * @param bundleDir the directory to pack
-     * @param outputDir the directory where the tarball will be created
-     * @param npm the NPM instance
-     * @param exitOnFail whether to exit on failure
-     */
-    private void createTarball(File bundleDir, File outputDir, NPM npm, boolean exitOnFail) throws IOException {
-        // Ensure output directory exists
-        if (!outputDir.exists()) {
-            outputDir.mkdirs();
-        }
-
-        // Use npm.pack() which is cross-platform
-        npm.pack(bundleDir, outputDir, exitOnFail);
-    }
-    
-    /**
-     * Finds the tarball generated by npm pack and renames it to RFC naming convention.
-     * npm pack generates: {packageName}-{version}.tgz
-     * We rename to: {originalAppName}-{version}-{platform}.tgz
-     */
-    private File findAndRenameTarball(JDeployProject project, Platform platform, File bundleDir, File outputDir) throws IOException {
-        // Read the package.json from the bundle to get the name used by npm pack
-        File packageJsonFile = new File(bundleDir, "package.json");
-        if (!packageJsonFile.exists()) {
-            throw new IOException("package.json not found in bundle directory: " + bundleDir);
-        }
-        
-        String content = FileUtils.readFileToString(packageJsonFile, "UTF-8");
-        JSONObject packageJson = new JSONObject(content);
-        String packageName = packageJson.optString("name", "app");
-        String version = packageJson.optString("version", "1.0.0");
-        
-        // This is the filename that npm pack generated
-        String npmPackFilename = packageName + "-" + version + ".tgz";
-        File npmPackFile = new File(outputDir, npmPackFilename);
-        
-        if (!npmPackFile.exists()) {
-            throw new IOException("Expected tarball not found: " + npmPackFile.getAbsolutePath());
-        }
-        
-        // This is the RFC-compliant filename we want
-        String rfcCompliantName = getPlatformTarballName(project, platform);
-        File rfcCompliantFile = new File(outputDir, rfcCompliantName);
-        
-        // If they're the same, no need to rename
-        if (npmPackFilename.equals(rfcCompliantName)) {
-            return npmPackFile;
-        }
-        
-        // Rename to RFC-compliant name
-        if (rfcCompliantFile.exists()) {
-            rfcCompliantFile.delete(); // Remove any existing file
-        }
-        
-        if (!npmPackFile.renameTo(rfcCompliantFile)) {
-            throw new IOException("Failed to rename tarball from " + npmPackFilename + " to " + rfcCompliantName);
-        }
-        
-        return rfcCompliantFile;
-    }
-
     /**
      * Utility method to check if platform bundles should be generated.
      */
@@ -9,6 +9,7 @@ import java.io.*;
 import java.util.*;
 import java.util.jar.*;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 /**
  * Service for processing JAR files to create platform-specific bundles by stripping
@@ -115,30 +116,15 @@ public class PlatformSpecificJarProcessor {
         
         Set<String> detectedNamespaces = new HashSet<>();
         
-        try (JarFile jar = new JarFile(jarFile)) {
-            Enumeration<JarEntry> entries = jar.entries();
+        try (ZipFile zip = new ZipFile(jarFile)) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
             
             while (entries.hasMoreElements()) {
-                JarEntry entry = entries.nextElement();
-                String entryName = entry.getName();
+                ZipEntry entry = entries.nextElement();
                 
                 // Skip directories
-                if (entry.isDirectory()) {
-                    continue;
-                }
-                
-                // Look for patterns that suggest native libraries
-                if (isNativeLibraryPath(entryName)) {
-                    // Try to extract Java package namespace
-                    String namespace = extractNamespaceFromPath(entryName);
-                    if (namespace != null && isLikelyNativeNamespace(namespace)) {
-                        detectedNamespaces.add(namespace);
-                    }
-                    
-                    // Also add path-based namespace for native files in root or custom paths
-                    if (isNativeFileInRootOrCustomPath(entryName)) {
-                        detectedNamespaces.add("/" + entryName);
-                    }
+                if (!entry.isDirectory()) {
+                    detectNativeNamespaces(entry.getName(), detectedNamespaces);
                 }
             }
         }
@@ -240,6 +226,20 @@ public class PlatformSpecificJarProcessor {
         return outputFile;
     }
 
+    /**
+     * Writes a copy of a JAR filtered with the .jdpignore rules for a platform, leaving the
+     * original untouched.
+     *
+     * @param sourceJar the JAR to filter
+     * @param targetJar the file to write the filtered JAR to
+     * @param project the JDeploy project (for accessing .jdpignore files)
+     * @param platform the target platform
+     * @throws IOException if processing fails
+     */
+    public void writeProcessedJar(File sourceJar, File targetJar, JDeployProject project, Platform platform) throws IOException {
+        createProcessedJarWithIgnoreService(sourceJar, targetJar, project, platform);
+    }
+
     /**
      * Creates a new JAR file using .jdpignore files for filtering.
      */
@@ -510,17 +510,46 @@ public class PlatformSpecificJarProcessor {
     }
 
     /**
-     * Heuristic to determine if a path looks like it contains native libraries.
+     * Adds the native namespaces suggested by a single jar entry, in both Java package and
+     * path-based notation.
+     */
+    static void detectNativeNamespaces(String entryName, Set<String> out) {
+        // Look for patterns that suggest native libraries
+        if (!isNativeLibraryPath(entryName)) {
+            return;
+        }
+        // Try to extract Java package namespace
+        String namespace = extractNamespaceFromPath(entryName);
+        if (namespace != null && isLikelyNativeNamespace(namespace)) {
+            out.add(namespace);
+        }
+
+        // Also add path-based namespace for native files in root or custom paths
+        if (isNativeFileInRootOrCustomPath(entryName)) {
+            out.add("/" + entryName);
+        }
+    }
+
+    /**
+     * Whether a path names a native library file.
      */
-    private boolean isNativeLibraryPath(String path) {
+    static boolean isNativeLibraryFile(String path) {
         String lowerPath = path.toLowerCase();
-        
+        return lowerPath.endsWith(".dll") || lowerPath.endsWith(".so") ||
+               lowerPath.endsWith(".dylib") || lowerPath.endsWith(".jnilib");
+    }
+
+    /**
+     * Heuristic to determine if a path looks like it contains native libraries.
+     */
+    private static boolean isNativeLibraryPath(String path) {
         // Look for native library files
-        if (lowerPath.endsWith(".dll") || lowerPath.endsWith(".so") || 
-            lowerPath.endsWith(".dylib") || lowerPath.endsWith(".jnilib")) {
+        if (isNativeLibraryFile(path)) {
             return true;
         }
         
+        String lowerPath = path.toLowerCase();
+        
         // Look for common native library package patterns
         return lowerPath.contains("/native/") || 
                lowerPath.contains("/jni/") ||
@@ -531,7 +560,7 @@ public class PlatformSpecificJarProcessor {
     /**
      * Extracts a namespace from a file path by finding the common package structure.
      */
-    private String extractNamespaceFromPath(String path) {
+    private static String extractNamespaceFromPath(String path) {
         if (path == null || path.isEmpty()) {
             return null;
         }
@@ -559,7 +588,7 @@ public class PlatformSpecificJarProcessor {
     /**
      * Heuristic to determine if a namespace looks like it contains native code.
      */
-    private boolean isLikelyNativeNamespace(String namespace) {
+    private static boolean isLikelyNativeNamespace(String namespace) {
         if (namespace == null) {
             return false;
         }
@@ -575,12 +604,9 @@ public class PlatformSpecificJarProcessor {
      * Determines if a native file is located in the root of the JAR or in a custom path
      * that doesn't follow typical Java package structures.
      */
-    private boolean isNativeFileInRootOrCustomPath(String path) {
-        String lowerPath = path.toLowerCase();
-        
+    private static boolean isNativeFileInRootOrCustomPath(String path) {
         // Check if it's a native library file
-        if (!lowerPath.endsWith(".dll") && !lowerPath.endsWith(".so") && 
-            !lowerPath.endsWith(".dylib") && !lowerPath.endsWith(".jnilib")) {
+        if (!isNativeLibraryFile(path)) {
             return false;
         }
         
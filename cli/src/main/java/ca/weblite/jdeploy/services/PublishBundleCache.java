@@ -0,0 +1,330 @@
+package ca.weblite.jdeploy.services;
+
+import org.apache.commons.io.FileUtils;
+
+import javax.inject.Singleton;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * On-disk cache of wrapped publish bundles, keyed by a fingerprint of everything that goes into
+ * the bundle except, for unsigned bundles, the app version.
+ *
+ * When a publish is retried, or re-run against an unchanged project, the wrapped tar.gz and its
+ * SHA-256 are taken from the cache instead of rebuilding, re-signing and re-hashing the bundle.
+ * Each entry records the version it was built for, so a new release of an unchanged project can
+ * restore it and only patch the version into its app.xml.
+ * Entries live in {@code ~/.jdeploy/cache/publish-bundles/<fingerprint>/}; only the most recently
+ * used {@value #MAX_ENTRIES} are kept.
+ */
+@Singleton
+public class PublishBundleCache {
+
+    private static final int MAX_ENTRIES = 32;
+
+    private static final String ENTRY_FILE = "entry.properties";
+
+    private final File cacheDir;
+
+    private final AtomicInteger hits = new AtomicInteger();
+
+    private final AtomicInteger misses = new AtomicInteger();
+
+    public PublishBundleCache() {
+        this(new File(
+                System.getProperty("user.home") + File.separator + ".jdeploy" + File.separator + "cache",
+                "publish-bundles"
+        ));
+    }
+
+    /**
+     * @param cacheDir the cache directory, or null to disable caching
+     */
+    PublishBundleCache(File cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * A cache that never hits and never stores anything.
+     */
+    public static PublishBundleCache disabled() {
+        return new PublishBundleCache(null);
+    }
+
+    public boolean isEnabled() {
+        return cacheDir != null;
+    }
+
+    /**
+     * A cached artifact restored into the caller's output directory.
+     */
+    public static final class Entry {
+        private final File file;
+        private final String sha256;
+        private final String version;
+
+        Entry(File file, String sha256, String version) {
+            this.file = file;
+            this.sha256 = sha256;
+            this.version = version;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+
+        /**
+         * The app version written into the bundle's app.xml.
+         */
+        public String getVersion() {
+            return version;
+        }
+    }
+
+    /**
+     * Looks up the artifact for a fingerprint and, if found, copies it into {@code destDir}.
+     * Every call counts as either a hit or a miss.
+     *
+     * @return the restored artifact, or null on a miss
+     */
+    public Entry restore(String fingerprint, File destDir) {
+        Entry entry = isEnabled() ? doRestore(fingerprint, destDir) : null;
+        if (entry == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * Stores an artifact under a fingerprint, replacing any earlier one.  Failures are reported
+     * but never fatal, since the cache is only an optimization.
+     *
+     * @param version the app version written into the bundle's app.xml
+     */
+    public void store(String fingerprint, File artifact, String sha256, String version, PrintStream err) {
+        if (!isEnabled()) {
+            return;
+        }
+        File entryDir = new File(cacheDir, fingerprint);
+        File tmpDir = null;
+        try {
+            cacheDir.mkdirs();
+            tmpDir = Files.createTempDirectory(cacheDir.toPath(), fingerprint + ".tmp").toFile();
+            Files.copy(artifact.toPath(), new File(tmpDir, artifact.getName()).toPath());
+            Properties props = new Properties();
+            props.setProperty("filename", artifact.getName());
+            props.setProperty("sha256", sha256);
+            props.setProperty("version", version);
+            props.setProperty("length", String.valueOf(artifact.length()));
+            try (OutputStream output = new FileOutputStream(new File(tmpDir, ENTRY_FILE))) {
+                props.store(output, "jDeploy publish bundle cache entry");
+            }
+            FileUtils.deleteDirectory(entryDir);
+            Files.move(tmpDir.toPath(), entryDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            tmpDir = null;
+            prune();
+        } catch (IOException ex) {
+            err.println("Warning: Failed to cache bundle " + artifact.getName() + ": " + ex.getMessage());
+        } finally {
+            if (tmpDir != null) {
+                FileUtils.deleteQuietly(tmpDir);
+            }
+        }
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    public int getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Creates a builder for a fingerprint.
+     */
+    public static Fingerprint fingerprint() {
+        return new Fingerprint();
+    }
+
+    /**
+     * Accumulates bundle inputs into a SHA-256 fingerprint.  Each value is length-prefixed so
+     * that adjacent values can't run together.
+     */
+    public static final class Fingerprint {
+        private final MessageDigest digest;
+
+        private Fingerprint() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 algorithm not available", e);
+            }
+        }
+
+        private Fingerprint(MessageDigest digest) {
+            this.digest = digest;
+        }
+
+        public Fingerprint add(String key, Object value) {
+            update(key);
+            update(value == null ? "\u0000null" : canonicalize(value));
+            return this;
+        }
+
+        /**
+         * Adds the contents of a file, or of every file under a directory in path order.
+         */
+        public Fingerprint addFile(String key, File file) throws IOException {
+            update(key);
+            if (file.isDirectory()) {
+                List<File> files = new ArrayList<>(FileUtils.listFiles(file, null, true));
+                Collections.sort(files);
+                String rootPath = file.getAbsolutePath();
+                for (File child : files) {
+                    update(child.getAbsolutePath().substring(rootPath.length()).replace('\\', '/'));
+                    updateContents(child);
+                }
+            } else if (file.isFile()) {
+                updateContents(file);
+            } else {
+                update("\u0000missing");
+            }
+            return this;
+        }
+
+        /**
+         * A copy of this fingerprint, so a shared prefix only needs to be hashed once.
+         */
+        public Fingerprint copy() {
+            try {
+                return new Fingerprint((MessageDigest) digest.clone());
+            } catch (CloneNotSupportedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        public String build() {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        }
+
+        private void update(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            updateLength(bytes.length);
+            digest.update(bytes);
+        }
+
+        private void updateContents(File file) throws IOException {
+            updateLength(file.length());
+            byte[] buffer = new byte[8192];
+            try (InputStream is = new FileInputStream(file)) {
+                int bytesRead;
+                while ((bytesRead = is.read(buffer)) != -1) {
+                    digest.update(buffer, 0, bytesRead);
+                }
+            }
+        }
+
+        private void updateLength(long length) {
+            for (int i = 7; i >= 0; i--) {
+                digest.update((byte) (length >>> (i * 8)));
+            }
+        }
+
+        /**
+         * Renders maps with sorted keys so that equal package.json content always produces the
+         * same fingerprint, regardless of map implementation.
+         */
+        private static String canonicalize(Object value) {
+            StringBuilder sb = new StringBuilder();
+            canonicalize(value, sb);
+            return sb.toString();
+        }
+
+        private static void canonicalize(Object value, StringBuilder sb) {
+            if (value instanceof Map) {
+                TreeMap<String, Object> sorted = new TreeMap<>();
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    sorted.put(String.valueOf(entry.getKey()), entry.getValue());
+                }
+                sb.append('{');
+                for (Map.Entry<String, Object> entry : sorted.entrySet()) {
+                    sb.append(entry.getKey().length()).append(':').append(entry.getKey()).append('=');
+                    canonicalize(entry.getValue(), sb);
+                    sb.append(',');
+                }
+                sb.append('}');
+            } else if (value instanceof Collection) {
+                sb.append('[');
+                for (Object item : (Collection<?>) value) {
+                    canonicalize(item, sb);
+                    sb.append(',');
+                }
+                sb.append(']');
+            } else {
+                String s = String.valueOf(value);
+                sb.append(s.length()).append(':').append(s);
+            }
+        }
+    }
+
+    private Entry doRestore(String fingerprint, File destDir) {
+        File entryDir = new File(cacheDir, fingerprint);
+        File entryFile = new File(entryDir, ENTRY_FILE);
+        if (!entryFile.isFile()) {
+            return null;
+        }
+        Properties props = new Properties();
+        try (InputStream input = new FileInputStream(entryFile)) {
+            props.load(input);
+        } catch (IOException ex) {
+            return null;
+        }
+        String filename = props.getProperty("filename");
+        String sha256 = props.getProperty("sha256");
+        String version = props.getProperty("version");
+        if (filename == null || sha256 == null || version == null) {
+            return null;
+        }
+        File cached = new File(entryDir, filename);
+        if (!cached.isFile() || !String.valueOf(cached.length()).equals(props.getProperty("length"))) {
+            return null;
+        }
+        File dest = new File(destDir, filename);
+        try {
+            Files.copy(cached.toPath(), dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            return null;
+        }
+        // Mark as recently used so pruning keeps it
+        entryDir.setLastModified(System.currentTimeMillis());
+        return new Entry(dest, sha256, version);
+    }
+
+    private void prune() {
+        File[] entries = cacheDir.listFiles(File::isDirectory);
+        if (entries == null || entries.length <= MAX_ENTRIES) {
+            return;
+        }
+        Arrays.sort(entries, Comparator.comparingLong(File::lastModified).reversed());
+        for (int i = MAX_ENTRIES; i < entries.length; i++) {
+            FileUtils.deleteQuietly(entries[i]);
+        }
+    }
+}
@@ -2,8 +2,10 @@ package ca.weblite.jdeploy.services;
 
 import ca.weblite.jdeploy.appbundler.BundlerResult;
 import ca.weblite.jdeploy.appbundler.BundlerSettings;
+import ca.weblite.jdeploy.appbundler.C4JPublisherSettings;
 import ca.weblite.jdeploy.appbundler.Bundler;
 import ca.weblite.jdeploy.app.AppInfo;
+import ca.weblite.jdeploy.helpers.LauncherWriterHelper;
 import ca.weblite.jdeploy.helpers.NpmPackageUtils;
 import ca.weblite.jdeploy.installer.util.CliCommandBinDirResolver;
 import ca.weblite.jdeploy.models.BundleArtifact;
@@ -12,8 +14,11 @@ import ca.weblite.jdeploy.packaging.PackagingConfig;
 import ca.weblite.jdeploy.packaging.PackagingContext;
 import ca.weblite.jdeploy.models.CommandSpecParser;
 import ca.weblite.tools.io.FileUtil;
+import com.joshondesign.appbundler.mac.RcodesignConfig;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
@@ -26,6 +31,8 @@ import java.nio.file.Files;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static ca.weblite.jdeploy.BundleConstants.*;
 
@@ -42,19 +49,27 @@ import static ca.weblite.jdeploy.BundleConstants.*;
 @Singleton
 public class PublishBundleService {
 
+    /**
+     * The version attribute of the app element in app.xml, quoted with ' or ".
+     */
+    private static final Pattern APP_XML_VERSION = Pattern.compile("(<app\\s[^>]*?\\sversion=)(['\"])[^'\"]*\\2");
+
     private final PackagingConfig packagingConfig;
     private final WindowsSigningService windowsSigningService;
     private final WindowsSigningConfigFactory windowsSigningConfigFactory;
+    private final PublishBundleCache bundleCache;
 
     @Inject
     public PublishBundleService(
             PackagingConfig packagingConfig,
             WindowsSigningService windowsSigningService,
-            WindowsSigningConfigFactory windowsSigningConfigFactory
+            WindowsSigningConfigFactory windowsSigningConfigFactory,
+            PublishBundleCache bundleCache
     ) {
         this.packagingConfig = packagingConfig;
         this.windowsSigningService = windowsSigningService;
         this.windowsSigningConfigFactory = windowsSigningConfigFactory;
+        this.bundleCache = bundleCache;
     }
 
     /**
@@ -95,6 +110,11 @@ public class PublishBundleService {
         jarOutputDir.mkdirs();
 
         List<BundleArtifact> artifacts = new ArrayList<>();
+        PublishBundleCache.Fingerprint baseFingerprint = bundleCache.isEnabled()
+                ? createBaseFingerprint(context, source, fqpn, version)
+                : null;
+        int hitsBefore = bundleCache.getHits();
+        int missesBefore = bundleCache.getMisses();
 
         try {
             for (String platformKey : platformKeys) {
@@ -111,29 +131,23 @@ public class PublishBundleService {
 
                 try {
                     // Build GUI bundle
-                    BundlerResult result = buildBundle(context, bundleTarget, source, false);
-                    if (result != null && result.getOutputFile() != null) {
-                        signWindowsExeIfConfigured(result, context);
-                        BundleArtifact guiArtifact = wrapBundle(
-                                result.getOutputFile(), jarOutputDir, fqpn,
-                                platformName, arch, version, false
-                        );
+                    BundleArtifact guiArtifact = buildArtifact(
+                            context, baseFingerprint, bundleTarget, source, jarOutputDir,
+                            fqpn, platformName, arch, version, false
+                    );
+                    if (guiArtifact != null) {
                         artifacts.add(guiArtifact);
-                        context.out.println("  Created: " + guiArtifact.getFilename());
                     }
 
                     // Build CLI bundle if commands exist (Windows only -
                     // macOS includes CLI binary inside the .app bundle)
                     if (hasCliCommands && "win".equals(platformName)) {
-                        BundlerResult cliResult = buildBundle(context, bundleTarget, source, true);
-                        if (cliResult != null && cliResult.getOutputFile() != null) {
-                            signWindowsExeIfConfigured(cliResult, context);
-                            BundleArtifact cliArtifact = wrapBundle(
-                                    cliResult.getOutputFile(), jarOutputDir, fqpn,
-                                    platformName, arch, version, true
-                            );
+                        BundleArtifact cliArtifact = buildArtifact(
+                                context, baseFingerprint, bundleTarget, source, jarOutputDir,
+                                fqpn, platformName, arch, version, true
+                        );
+                        if (cliArtifact != null) {
                             artifacts.add(cliArtifact);
-                            context.out.println("  Created: " + cliArtifact.getFilename());
                         }
                     }
                 } catch (Exception e) {
@@ -149,9 +163,309 @@ public class PublishBundleService {
         }
 
         context.out.println("Built " + artifacts.size() + " bundle artifact(s)");
+        if (bundleCache.isEnabled()) {
+            context.out.println("Bundle cache: " + (bundleCache.getHits() - hitsBefore) + " hit(s), "
+                    + (bundleCache.getMisses() - missesBefore) + " miss(es)");
+        }
         return new BundleManifest(artifacts);
     }
 
+    /**
+     * Builds, signs and wraps a single bundle, or restores it from the bundle cache if nothing
+     * that goes into it has changed since it was last built.
+     *
+     * @return the artifact, or null if the bundler produced no output
+     */
+    private BundleArtifact buildArtifact(
+            PackagingContext context,
+            PublishBundleCache.Fingerprint baseFingerprint,
+            String bundleTarget,
+            String source,
+            File jarOutputDir,
+            String fqpn,
+            String platformName,
+            String arch,
+            String version,
+            boolean cliMode
+    ) throws Exception {
+        String appVersion = getAppVersion(context);
+        String fingerprint = null;
+        if (baseFingerprint != null) {
+            PublishBundleCache.Fingerprint targetFingerprint = baseFingerprint.copy()
+                    .add("target", bundleTarget)
+                    .add("cli", cliMode);
+            if (maybeSigned(context, platformName)) {
+                // Signatures cover app.xml, so the version can't be patched in afterwards
+                targetFingerprint.add("appVersion", appVersion);
+            }
+            fingerprint = targetFingerprint.build();
+            PublishBundleCache.Entry cached = bundleCache.restore(fingerprint, jarOutputDir);
+            if (cached != null && cached.getVersion().equals(appVersion)) {
+                String filename = cached.getFile().getName();
+                context.out.println("  Reused cached bundle: " + filename);
+                return new BundleArtifact(
+                        cached.getFile(), platformName, arch, version, cliMode, cached.getSha256(), filename
+                );
+            }
+            if (cached != null) {
+                try {
+                    BundleArtifact artifact = updateCachedBundleVersion(
+                            cached, appVersion, jarOutputDir, fqpn, platformName, arch, version, cliMode
+                    );
+                    context.out.println("  Reused cached bundle from " + cached.getVersion() + ": "
+                            + artifact.getFilename());
+                    bundleCache.store(fingerprint, artifact.getFile(), artifact.getSha256(), appVersion, context.err);
+                    return artifact;
+                } catch (IOException ex) {
+                    context.err.println("Warning: Failed to update cached bundle " + cached.getFile().getName()
+                            + " to version " + appVersion + ", rebuilding: " + ex.getMessage());
+                }
+            }
+        }
+
+        BundlerResult result = buildBundle(context, bundleTarget, source, cliMode);
+        if (result == null || result.getOutputFile() == null) {
+            return null;
+        }
+        signWindowsExeIfConfigured(result, context);
+        BundleArtifact artifact = wrapBundle(
+                result.getOutputFile(), jarOutputDir, fqpn,
+                platformName, arch, version, cliMode
+        );
+        context.out.println("  Created: " + artifact.getFilename());
+        if (fingerprint != null) {
+            bundleCache.store(fingerprint, artifact.getFile(), artifact.getSha256(), appVersion, context.err);
+        }
+        return artifact;
+    }
+
+    /**
+     * Whether bundles for a platform may be code signed, in which case their app.xml can't be
+     * changed after they are built.  macOS bundles are only signed when they have a bundle ID.
+     */
+    private boolean maybeSigned(PackagingContext context, String platformName) {
+        if ("mac".equals(platformName)) {
+            String bundleId = context.getString("macAppBundleId", null);
+            return bundleId != null && !bundleId.isEmpty();
+        }
+        if ("win".equals(platformName)) {
+            return windowsSigningConfigFactory.createFromEnvironment() != null;
+        }
+        return false;
+    }
+
+    /**
+     * Makes a copy of a cached bundle for another version: unwraps it, sets the version in its
+     * app.xml, and wraps it again under this version's name.  The restored artifact is removed.
+     */
+    private BundleArtifact updateCachedBundleVersion(
+            PublishBundleCache.Entry cached,
+            String appVersion,
+            File jarOutputDir,
+            String fqpn,
+            String platformName,
+            String arch,
+            String version,
+            boolean cliMode
+    ) throws IOException {
+        File tempDir = Files.createTempDirectory("jdeploy-cached-bundle").toFile();
+        try {
+            File bundleFile = unwrapBundle(cached.getFile(), tempDir);
+            FileUtils.deleteQuietly(cached.getFile());
+            setAppXmlVersion(bundleFile, appVersion);
+            return wrapBundle(bundleFile, jarOutputDir, fqpn, platformName, arch, version, cliMode);
+        } catch (IOException ex) {
+            FileUtils.deleteQuietly(cached.getFile());
+            throw ex;
+        } finally {
+            FileUtils.deleteQuietly(tempDir);
+        }
+    }
+
+    /**
+     * Sets the version in the app.xml of a macOS .app bundle, or in the payload of a Windows or
+     * Linux launcher.
+     */
+    private static void setAppXmlVersion(File bundleFile, String appVersion) throws IOException {
+        if (bundleFile.isDirectory()) {
+            File appXml = new File(bundleFile, "Contents" + File.separator + "app.xml");
+            if (!appXml.isFile()) {
+                throw new IOException("No app.xml in " + bundleFile.getName());
+            }
+            String xml = FileUtils.readFileToString(appXml, "UTF-8");
+            FileUtils.writeStringToFile(appXml, replaceAppXmlVersion(xml, appVersion), "UTF-8");
+        } else if (!LauncherWriterHelper.rewriteAppXml(bundleFile, xml -> replaceAppXmlVersion(xml, appVersion))) {
+            throw new IOException("No app.xml payload in " + bundleFile.getName());
+        }
+    }
+
+    private static String replaceAppXmlVersion(String xml, String appVersion) {
+        Matcher matcher = APP_XML_VERSION.matcher(xml);
+        if (!matcher.find()) {
+            throw new IllegalStateException("No version in app.xml");
+        }
+        String quote = matcher.group(2);
+        String escaped = appVersion.replace("&", "&amp;").replace("<", "&lt;").replace(quote, "\"".equals(quote) ? "&quot;" : "&apos;");
+        return xml.substring(0, matcher.start()) + matcher.group(1) + quote + escaped + quote + xml.substring(matcher.end());
+    }
+
+    /**
+     * Extracts a bundle wrapped by {@link #wrapBundle}, with its file permissions.
+     *
+     * @return the extracted bundle, i.e. the .app directory or the launcher
+     */
+    private static File unwrapBundle(File tarGzFile, File destDir) throws IOException {
+        File bundleFile = null;
+        String canonicalDest = destDir.getCanonicalPath() + File.separator;
+        try (TarArchiveInputStream tais = new TarArchiveInputStream(
+                new GzipCompressorInputStream(new BufferedInputStream(new FileInputStream(tarGzFile))))) {
+            TarArchiveEntry entry;
+            while ((entry = tais.getNextTarEntry()) != null) {
+                if (!entry.isFile()) {
+                    continue;
+                }
+                String name = entry.getName().startsWith("./") ? entry.getName().substring(2) : entry.getName();
+                File file = new File(destDir, name);
+                if (!file.getCanonicalPath().startsWith(canonicalDest)) {
+                    throw new IOException("Invalid entry in cached bundle: " + entry.getName());
+                }
+                file.getParentFile().mkdirs();
+                Files.copy(tais, file.toPath());
+                if (FileUtil.isPosix()) {
+                    FileUtil.setPosixPermissions(entry.getMode(), file);
+                }
+                File topLevel = new File(destDir, name.split("/", 2)[0]);
+                if (bundleFile != null && !bundleFile.equals(topLevel)) {
+                    throw new IOException("Cached bundle has more than one top-level entry");
+                }
+                bundleFile = topLevel;
+            }
+        }
+        if (bundleFile == null) {
+            throw new IOException("Cached bundle is empty");
+        }
+        return bundleFile;
+    }
+
+    /**
+     * The version that goes into app.xml.
+     */
+    private static String getAppVersion(PackagingContext context) {
+        return context.m().get("version") != null ? context.m().get("version").toString() : "latest";
+    }
+
+    /**
+     * Fingerprints the inputs shared by every bundle of this publish: the bundle jar set and
+     * icon, the launcher templates, the package.json fields that reach app.xml, the host OS,
+     * and the Windows and macOS signing identities.
+     *
+     * The version is left out, since it only reaches the bundle through app.xml and the file
+     * name, which are updated when a bundle cached for another version is reused.
+     */
+    private PublishBundleCache.Fingerprint createBaseFingerprint(
+            PackagingContext context,
+            String source,
+            String fqpn,
+            String version
+    ) throws IOException {
+        AppInfo appInfo = new AppInfo();
+        loadAppInfo(context, appInfo);
+        File appJar;
+        try {
+            appJar = new File(appInfo.getAppURL().toURI());
+        } catch (Exception e) {
+            throw new IOException("Invalid app URL " + appInfo.getAppURL(), e);
+        }
+
+        PublishBundleCache.Fingerprint fingerprint = PublishBundleCache.fingerprint()
+                .add("format", 2)
+                .add("launcher", getLauncherVersion())
+                .add("source", source)
+                .add("fqpn", fqpn)
+                .add("name", context.m().get("name"))
+                .add("packageSource", context.m().get("source"))
+                .add("jdeploy", context.mj())
+                .add("registry", packagingConfig.getJdeployRegistry())
+                .add("hostOs", System.getProperty("os.name") + "/" + System.getProperty("os.arch"));
+
+        File appDir = appJar.getAbsoluteFile().getParentFile();
+        if (appDir.equals(context.getJdeployBundleDir().getAbsoluteFile())) {
+            fingerprint.addFile("bundle", appDir);
+        } else {
+            File jarFile = new File(context.getString("jar", ""));
+            if (!jarFile.isAbsolute()) {
+                jarFile = new File(context.directory, jarFile.getPath());
+            }
+            fingerprint.addFile("jar", jarFile);
+            fingerprint.addFile("icon", new File(appDir, "icon.png"));
+            fingerprint.addFile("projectIcon", new File(context.directory, "icon.png"));
+        }
+
+        WindowsSigningConfig signingConfig = windowsSigningConfigFactory.createFromEnvironment();
+        if (signingConfig != null) {
+            fingerprint.add("signingKeystore", signingConfig.getKeystorePath())
+                    .add("signingKeystoreType", signingConfig.getKeystoreType())
+                    .add("signingAlias", signingConfig.getAlias())
+                    .add("signingPkcs11", signingConfig.getPkcs11ConfigPath())
+                    .add("signingHashAlgorithm", signingConfig.getHashAlgorithm())
+                    .add("signingDescription", signingConfig.getDescription())
+                    .add("signingUrl", signingConfig.getUrl());
+        }
+        addMacSigningInputs(fingerprint, appInfo);
+        return fingerprint;
+    }
+
+    /**
+     * Adds the macOS signing and notarization settings, which come from the environment, the
+     * jDeploy settings file and user preferences rather than package.json.  Whether a bundle is
+     * signed with codesign or rcodesign also depends on the host, which is covered by "hostOs".
+     */
+    private static void addMacSigningInputs(PublishBundleCache.Fingerprint fingerprint, AppInfo appInfo)
+            throws IOException {
+        fingerprint.add("macCodeSignSettings", appInfo.getCodeSignSettings())
+                .add("macSigningSettings", C4JPublisherSettings.getMacSigningSettings())
+                .add("macCertificateName", C4JPublisherSettings.getMacDeveloperCertificateName())
+                .add("macDeveloperId", C4JPublisherSettings.getMacDeveloperID())
+                .add("macNotarizationPassword", C4JPublisherSettings.getMacNotarizationPassword())
+                .add("macAppCertificateName", C4JPublisherSettings.getMacDeveloperCertificateName(appInfo))
+                .add("macAppDeveloperId", C4JPublisherSettings.getMacDeveloperID(appInfo))
+                .add("macAppTeamId", C4JPublisherSettings.getMacDeveloperTeamID(appInfo))
+                .add("macAppNotarizationPassword", C4JPublisherSettings.getMacNotarizationPassword(appInfo))
+                .addFile("jdeploySettings", new File(System.getProperty("user.home"),
+                        ".jdeploy" + File.separator + "private" + File.separator + "jdeploy_settings.properties"));
+
+        String p12File = RcodesignConfig.getP12File();
+        String apiKeyPath = RcodesignConfig.getApiKeyPath();
+        fingerprint.add("rcodesignForce", RcodesignConfig.isForceRcodesign())
+                .add("rcodesignP12File", p12File)
+                .add("rcodesignP12Password", RcodesignConfig.getP12Password())
+                .add("rcodesignApiKeyPath", apiKeyPath)
+                .add("rcodesignApiIssuer", RcodesignConfig.getApiIssuer())
+                .add("rcodesignApiKey", RcodesignConfig.getApiKey());
+        if (p12File != null) {
+            fingerprint.addFile("rcodesignP12", new File(p12File))
+                    .add("rcodesignAvailable", RcodesignConfig.isRcodesignAvailable());
+        }
+        if (apiKeyPath != null) {
+            fingerprint.addFile("rcodesignApiKeyFile", new File(apiKeyPath));
+        }
+    }
+
+    /**
+     * Identifies the launcher binaries bundled with this copy of jDeploy.
+     */
+    private static String getLauncherVersion() {
+        String version = Bundler.class.getPackage() != null
+                ? Bundler.class.getPackage().getImplementationVersion()
+                : null;
+        try {
+            File codeSource = new File(Bundler.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            return version + ":" + codeSource.getAbsolutePath() + ":" + codeSource.length() + ":" + codeSource.lastModified();
+        } catch (Exception e) {
+            return String.valueOf(version);
+        }
+    }
+
     /**
      * Returns the list of platform keys (e.g. "mac-arm64", "win-x64") that have
      * "enabled": true in jdeploy.artifacts.
@@ -24,6 +24,12 @@ if ('{{JAVAFX}}' === 'true') {
 if ('{{JDK}}' === 'true') {
     bundleType = 'jdk';
 }
+// When enabled, the first launch on a given JVM records a dynamic AppCDS
+// archive that later launches map in, to cut class loading time at startup.
+var appCds = false;
+if ('{{APP_CDS}}' === 'true') {
+    appCds = true;
+}
 
 var jdk = (bundleType === 'jdk');
 var jdkProvider = 'zulu';
@@ -696,6 +702,99 @@ function appendPackageArgs(rawArgs, javaArgs, programArgs) {
     });
 }
 
+// Gets the JVM args that enable dynamic AppCDS (JDK 13+) for this launch.
+//
+// Archives live in .appcds next to this script, named after a hash of the JVM
+// (its path and release file) and of the size and mtime of the app's jars, so
+// that a new app version or a different JVM gets a fresh archive.  When the
+// app is launched with -jar, its dependencies come from the manifest's
+// Class-Path, so every jar in the bundle is hashed rather than just the main one.  If there is
+// no archive for the current key, stale ones are deleted and the JVM is asked
+// to dump one when this launch exits; it is written to a temp file and only
+// moved into place by commitAppCdsArchive() after a clean exit.
+//
+// Returns {args: [...], pending: <temp file or null>, archive: <path>}.
+function prepareAppCdsArgs(javaHome) {
+    var none = {args: [], pending: null, archive: null};
+    if (!appCds || !javaHome) {
+        return none;
+    }
+    try {
+        var crypto = require('crypto');
+        var release = fs.readFileSync(path.join(javaHome, 'release'), 'utf8');
+        var match = /JAVA_VERSION="(\d+)/.exec(release);
+        if (!match || parseInt(match[1], 10) < 13) {
+            return none;
+        }
+        var appFiles = (jarName !== '{'+'{JAR_NAME}}')
+            ? listAppCdsJars(__dirname, [])
+            : classPath.split(path.delimiter);
+        var hash = crypto.createHash('sha256');
+        hash.update(fs.realpathSync(javaHome) + '\n' + release);
+        appFiles.forEach(function(file) {
+            var stat = fs.statSync(file);
+            hash.update('\n' + file + ':' + stat.size + ':' + stat.mtimeMs);
+        });
+        var cdsDir = path.join(__dirname, '.appcds');
+        fs.mkdirSync(cdsDir, {recursive: true});
+        var archive = path.join(cdsDir, hash.digest('hex').substring(0, 16) + '.jsa');
+        if (fs.existsSync(archive)) {
+            return {args: ['-XX:SharedArchiveFile=' + archive, '-Xlog:cds*=off'], pending: null, archive: archive};
+        }
+        fs.readdirSync(cdsDir).forEach(function(name) {
+            if (name.endsWith('.jsa')) {
+                try { fs.unlinkSync(path.join(cdsDir, name)); } catch (e) {}
+            }
+        });
+        var pending = archive + '.' + process.pid + '.tmp';
+        return {args: ['-XX:ArchiveClassesAtExit=' + pending, '-Xlog:cds*=off'], pending: pending, archive: archive};
+    } catch (e) {
+        // CDS is only an optimization; never let it stop the app from launching
+        return none;
+    }
+}
+
+// Lists the jars under dir in a stable order, skipping the archive directory
+// and any installed node modules.
+function listAppCdsJars(dir, out) {
+    fs.readdirSync(dir).sort().forEach(function(name) {
+        if (name === '.appcds' || name === 'node_modules') {
+            return;
+        }
+        var file = path.join(dir, name);
+        var stat = fs.statSync(file);
+        if (stat.isDirectory()) {
+            listAppCdsJars(file, out);
+        } else if (name.endsWith('.jar')) {
+            out.push(file);
+        }
+    });
+    return out;
+}
+
+function commitAppCdsArchive(appCdsArgs, exitCode) {
+    if (!appCdsArgs.pending) {
+        return;
+    }
+    try {
+        if (exitCode === 0 && fs.existsSync(appCdsArgs.pending)) {
+            fs.renameSync(appCdsArgs.pending, appCdsArgs.archive);
+        } else {
+            fs.unlinkSync(appCdsArgs.pending);
+        }
+    } catch (e) {}
+}
+
+function resolveJavaHome(_javaHome) {
+    var candidates = [_javaHome, env['JAVA_HOME'], getEmbeddedJavaHome()];
+    for (var i = 0; i < candidates.length; i++) {
+        if (candidates[i] && fs.existsSync(path.join(candidates[i], 'release'))) {
+            return candidates[i];
+        }
+    }
+    return null;
+}
+
 function run(_javaHome) {
     var fail = reason => {
         console.error(reason);
@@ -742,6 +841,9 @@ function run(_javaHome) {
         cmd = _javaHome + path.sep + 'bin' + path.sep + 'java';
     }
 
+    var appCdsArgs = prepareAppCdsArgs(resolveJavaHome(_javaHome));
+    javaArgs = appCdsArgs.args.concat(javaArgs);
+
     javaArgs.forEach(function(arg) {
         cmd += ' "'+arg+'"';
     });
@@ -766,6 +868,7 @@ function run(_javaHome) {
       }
     });
     child.on('close', function(code) {
+        commitAppCdsArchive(appCdsArgs, code);
         process.exit(code);
     });
 
@@ -0,0 +1,314 @@
+package ca.weblite.jdeploy.gui.navigation;
+
+import ca.weblite.jdeploy.gui.tabs.ProjectMetadataPanel;
+import ca.weblite.jdeploy.gui.tabs.SplashScreensPanel;
+import ca.weblite.jdeploy.gui.util.ThumbnailLoader;
+import net.coobird.thumbnailator.Thumbnails;
+import org.apache.commons.io.FileUtils;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JTabbedPane;
+import javax.swing.SwingUtilities;
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Dimension;
+import java.awt.event.ActionListener;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link LazyNavigablePanel}.
+ */
+public class LazyNavigablePanelTest {
+
+    private AtomicInteger buildCount;
+    private RecordingPanel delegate;
+    private LazyNavigablePanel panel;
+
+    @BeforeEach
+    public void setUp() {
+        buildCount = new AtomicInteger();
+        delegate = new RecordingPanel();
+        panel = new LazyNavigablePanel("Lazy", "http://example.com/help", null, () -> {
+            buildCount.incrementAndGet();
+            return delegate;
+        });
+    }
+
+    @Test
+    public void testMetadataIsAvailableWithoutBuilding() {
+        assertEquals("Lazy", panel.getTitle());
+        assertEquals("http://example.com/help", panel.getHelpUrl());
+        assertTrue(panel.shouldDisplay());
+        assertNotNull(panel.getRoot());
+        assertEquals(0, panel.getRoot().getComponentCount());
+        assertFalse(panel.isBuilt());
+        assertEquals(0, buildCount.get());
+    }
+
+    @Test
+    public void testSelectionBuildsOnceWithListenersAndConfiguration() {
+        ActionListener listener = evt -> { };
+        JSONObject packageJSON = new JSONObject().put("name", "app");
+        JSONObject jdeploy = new JSONObject();
+        panel.addChangeListener(listener);
+        panel.load(packageJSON, jdeploy);
+
+        panel.getOnSelected().run();
+        panel.getOnSelected().run();
+
+        assertEquals(1, buildCount.get());
+        assertTrue(panel.isBuilt());
+        assertSame(delegate.root, panel.getRoot().getComponent(0));
+        assertEquals(1, delegate.listeners.size());
+        assertSame(listener, delegate.listeners.get(0));
+        assertEquals(1, delegate.loadCount);
+        assertSame(packageJSON, delegate.loadedPackageJSON);
+        assertSame(jdeploy, delegate.loadedJdeploy);
+        assertEquals(2, delegate.selectedCount);
+    }
+
+    @Test
+    public void testSaveIsSkippedUntilBuilt() {
+        JSONObject jdeploy = new JSONObject().put("args", "-Xmx1g");
+        panel.load(null, jdeploy);
+
+        panel.save(null, jdeploy);
+        assertEquals(0, delegate.saveCount);
+        assertEquals("-Xmx1g", jdeploy.getString("args"));
+
+        panel.ensureBuilt();
+        panel.save(null, jdeploy);
+        assertEquals(1, delegate.saveCount);
+    }
+
+    @Test
+    public void testCallsAfterBuildingGoStraightToPanel() {
+        panel.ensureBuilt();
+        ActionListener listener = evt -> { };
+
+        panel.addChangeListener(listener);
+        panel.load(new JSONObject(), null);
+
+        assertEquals(1, delegate.listeners.size());
+        assertEquals(1, delegate.loadCount);
+    }
+
+    @Test
+    public void testDisplayConditionDoesNotBuild() {
+        LazyNavigablePanel hidden = new LazyNavigablePanel("Hidden", null, null, () -> {
+            buildCount.incrementAndGet();
+            return delegate;
+        }, () -> false);
+
+        EditorPanelRegistry registry = new EditorPanelRegistry();
+        registry.register(hidden);
+        registry.populateHost(new TabbedPaneNavigationHost(null, null));
+
+        assertFalse(hidden.shouldDisplay());
+        assertEquals(0, buildCount.get());
+    }
+
+    /**
+     * Opens a project with a large icon and splash screen the way the editor does, and checks
+     * that the first tab is ready to show before any image has been decoded, that none of the
+     * decoding happens on the event dispatch thread, and that tabs not yet selected are not built.
+     */
+    @Test
+    public void testEditorContentIsReadyBeforeImagesAreDecoded() throws Exception {
+        File projectDir = Files.createTempDirectory("lazy-panel-startup-test").toFile();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            writeImage(new File(projectDir, "icon.png"), 2048, 2048);
+            writeImage(new File(projectDir, "splash.png"), 4096, 2048);
+
+            CountDownLatch contentReady = new CountDownLatch(1);
+            CountDownLatch imagesLoaded = new CountDownLatch(2);
+            AtomicBoolean decodedOnEventThread = new AtomicBoolean();
+            ThumbnailLoader loader = new ThumbnailLoader(executor, (file, width, height) -> {
+                if (SwingUtilities.isEventDispatchThread()) {
+                    decodedOnEventThread.set(true);
+                }
+                try {
+                    // Hold the decoding back until the content has been laid out, so that the
+                    // content can't depend on it
+                    contentReady.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                try {
+                    return width > 0
+                            ? Thumbnails.of(file).size(width, height).asBufferedImage()
+                            : Thumbnails.of(file).height(height).asBufferedImage();
+                } finally {
+                    imagesLoaded.countDown();
+                }
+            });
+
+            JSONObject packageJSON = new JSONObject().put("name", "app").put("jdeploy", new JSONObject());
+            ProjectMetadataPanel[] metadataPanel = new ProjectMetadataPanel[1];
+            SplashScreensPanel[] splashPanel = new SplashScreensPanel[1];
+            LazyNavigablePanel[] lazySplash = new LazyNavigablePanel[1];
+            JTabbedPane[] tabs = new JTabbedPane[1];
+            long[] elapsedNanos = new long[1];
+
+            SwingUtilities.invokeAndWait(() -> {
+                long start = System.nanoTime();
+                metadataPanel[0] = new ProjectMetadataPanel(null, projectDir, null, loader);
+                EditorPanelRegistry registry = new EditorPanelRegistry();
+                registry.register(NavigablePanelAdapter.forPackageJsonPanel(
+                        "Project", null, metadataPanel[0].getRoot(),
+                        metadataPanel[0]::load, metadataPanel[0]::save, metadataPanel[0]::addChangeListener));
+                lazySplash[0] = new LazyNavigablePanel("Splash Screens", null, null, () -> {
+                    splashPanel[0] = new SplashScreensPanel(projectDir, null, loader);
+                    return NavigablePanelAdapter.forJdeployPanel(
+                            "Splash Screens", null, splashPanel[0].getRoot(),
+                            splashPanel[0]::load, splashPanel[0]::save, splashPanel[0]::addChangeListener);
+                });
+                registry.register(lazySplash[0]);
+                registry.attachChangeListeners(() -> { });
+                registry.loadAll(packageJSON, packageJSON.getJSONObject("jdeploy"));
+
+                TabbedPaneNavigationHost host = new TabbedPaneNavigationHost(null, null);
+                registry.populateHost(host);
+                JPanel content = new JPanel(new BorderLayout());
+                content.add(host.getComponent(), BorderLayout.CENTER);
+                content.setSize(new Dimension(1024, 768));
+                layoutTree(content);
+                tabs[0] = (JTabbedPane) host.getComponent();
+                elapsedNanos[0] = System.nanoTime() - start;
+            });
+            contentReady.countDown();
+
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos[0]);
+            assertTrue(elapsedMillis < 5000, "Content took " + elapsedMillis + " ms to be ready");
+            assertFalse(lazySplash[0].isBuilt(), "Tabs that haven't been selected should not be built");
+            assertNull(splashPanel[0]);
+
+            SwingUtilities.invokeAndWait(() -> tabs[0].setSelectedIndex(1));
+            assertTrue(lazySplash[0].isBuilt());
+
+            assertTrue(imagesLoaded.await(30, TimeUnit.SECONDS), "Images should be decoded in the background");
+            assertTrue(waitForButtonWithIcon(metadataPanel[0].getRoot()), "Icon should be shown");
+            assertTrue(waitForButtonWithIcon(splashPanel[0]), "Splash screen should be shown");
+            assertFalse(decodedOnEventThread.get(), "Images must not be decoded on the event dispatch thread");
+        } finally {
+            executor.shutdownNow();
+            FileUtils.deleteDirectory(projectDir);
+        }
+    }
+
+    private static void layoutTree(Container container) {
+        container.doLayout();
+        for (Component child : container.getComponents()) {
+            if (child instanceof Container) {
+                layoutTree((Container) child);
+            }
+        }
+    }
+
+    private static boolean waitForButtonWithIcon(Container container) throws Exception {
+        long deadline = System.currentTimeMillis() + 10000;
+        AtomicBoolean found = new AtomicBoolean();
+        while (!found.get() && System.currentTimeMillis() < deadline) {
+            SwingUtilities.invokeAndWait(() -> found.set(findButtonWithIcon(container) != null));
+            if (!found.get()) {
+                Thread.sleep(20);
+            }
+        }
+        return found.get();
+    }
+
+    private static JButton findButtonWithIcon(Container container) {
+        for (Component child : container.getComponents()) {
+            if (child instanceof JButton && ((JButton) child).getIcon() != null) {
+                return (JButton) child;
+            }
+            if (child instanceof Container) {
+                JButton found = findButtonWithIcon((Container) child);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void writeImage(File file, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y += 16) {
+            for (int x = 0; x < width; x += 16) {
+                image.setRGB(x, y, (x * 31 + y * 17) & 0xFFFFFF);
+            }
+        }
+        ImageIO.write(image, "png", file);
+    }
+
+    private static class RecordingPanel implements NavigablePanel {
+        private final JComponent root = new JLabel("content");
+        private final List<ActionListener> listeners = new ArrayList<>();
+        private int loadCount;
+        private int saveCount;
+        private int selectedCount;
+        private JSONObject loadedPackageJSON;
+        private JSONObject loadedJdeploy;
+
+        @Override
+        public String getTitle() {
+            return "Recording";
+        }
+
+        @Override
+        public String getHelpUrl() {
+            return null;
+        }
+
+        @Override
+        public JComponent getRoot() {
+            return root;
+        }
+
+        @Override
+        public void load(JSONObject packageJSON, JSONObject jdeploy) {
+            loadCount++;
+            loadedPackageJSON = packageJSON;
+            loadedJdeploy = jdeploy;
+        }
+
+        @Override
+        public void save(JSONObject packageJSON, JSONObject jdeploy) {
+            saveCount++;
+        }
+
+        @Override
+        public void addChangeListener(ActionListener listener) {
+            listeners.add(listener);
+        }
+
+        @Override
+        public Runnable getOnSelected() {
+            return () -> selectedCount++;
+        }
+    }
+}
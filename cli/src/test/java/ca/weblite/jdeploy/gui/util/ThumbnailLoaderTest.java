@@ -0,0 +1,122 @@
+package ca.weblite.jdeploy.gui.util;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import javax.swing.ImageIcon;
+import javax.swing.SwingUtilities;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ThumbnailLoaderTest {
+
+    private File tempDir;
+    private ExecutorService executor;
+    private AtomicInteger decodeCount;
+    private AtomicBoolean decodedOnEventThread;
+    private ThumbnailLoader loader;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("thumbnail-loader-test").toFile();
+        executor = Executors.newSingleThreadExecutor();
+        decodeCount = new AtomicInteger();
+        decodedOnEventThread = new AtomicBoolean();
+        loader = new ThumbnailLoader(executor, (file, width, height) -> {
+            decodeCount.incrementAndGet();
+            if (SwingUtilities.isEventDispatchThread()) {
+                decodedOnEventThread.set(true);
+            }
+            BufferedImage image = ImageIO.read(file);
+            return new BufferedImage(width > 0 ? width : image.getWidth() * height / image.getHeight(),
+                    height, BufferedImage.TYPE_INT_ARGB);
+        });
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        FileUtils.deleteDirectory(tempDir);
+    }
+
+    @Test
+    public void testDecodesInBackgroundAndDeliversOnEventThread() throws Exception {
+        File image = writeImage("icon.png", 256, 256);
+        AtomicBoolean deliveredOnEventThread = new AtomicBoolean();
+
+        ImageIcon icon = load(image, 128, 128, deliveredOnEventThread);
+
+        assertEquals(128, icon.getIconWidth());
+        assertTrue(deliveredOnEventThread.get());
+        assertFalse(decodedOnEventThread.get());
+    }
+
+    @Test
+    public void testScalesToHeightWhenWidthIsZero() throws Exception {
+        File image = writeImage("splash.png", 400, 200);
+
+        ImageIcon icon = load(image, 0, 100, new AtomicBoolean());
+
+        assertEquals(200, icon.getIconWidth());
+        assertEquals(100, icon.getIconHeight());
+    }
+
+    @Test
+    public void testCachesUntilFileChanges() throws Exception {
+        File image = writeImage("icon.png", 64, 64);
+        assertTrue(image.setLastModified(1000000000L));
+
+        ImageIcon first = load(image, 32, 32, new AtomicBoolean());
+        ImageIcon second = load(image, 32, 32, new AtomicBoolean());
+        assertSame(first, second);
+        assertEquals(1, decodeCount.get());
+
+        load(image, 16, 16, new AtomicBoolean());
+        assertEquals(2, decodeCount.get(), "A different size is a different entry");
+
+        assertTrue(image.setLastModified(2000000000L));
+        assertNotSame(first, load(image, 32, 32, new AtomicBoolean()));
+        assertEquals(3, decodeCount.get());
+    }
+
+    @Test
+    public void testMissingFileReportsError() throws Exception {
+        CompletableFuture<Exception> error = new CompletableFuture<>();
+        loader.load(new File(tempDir, "missing.png"), 32, 32,
+                icon -> error.completeExceptionally(new AssertionError("Should not load")),
+                error::complete);
+
+        assertNotNull(error.get(10, TimeUnit.SECONDS));
+        assertEquals(0, decodeCount.get());
+    }
+
+    private ImageIcon load(File image, int width, int height, AtomicBoolean deliveredOnEventThread) throws Exception {
+        CompletableFuture<ImageIcon> result = new CompletableFuture<>();
+        loader.load(image, width, height,
+                icon -> {
+                    deliveredOnEventThread.set(SwingUtilities.isEventDispatchThread());
+                    result.complete(icon);
+                },
+                result::completeExceptionally);
+        return result.get(10, TimeUnit.SECONDS);
+    }
+
+    private File writeImage(String name, int width, int height) throws IOException {
+        File file = new File(tempDir, name);
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", file);
+        return file;
+    }
+}
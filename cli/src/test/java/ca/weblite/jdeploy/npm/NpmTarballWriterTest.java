@@ -0,0 +1,137 @@
+package ca.weblite.jdeploy.npm;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.io.FileUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NpmTarballWriterTest {
+
+    @Test
+    void listsFilesTheWayNpmPackDoes(@TempDir Path tempDir) throws IOException {
+        File dir = createPackage(tempDir);
+
+        SortedMap<String, File> files = new NpmTarballWriter().listPackageFiles(dir);
+
+        assertEquals(
+                Arrays.asList("LICENSE", "README.md", "jdeploy-bundle/app.jar", "jdeploy-bundle/jdeploy.js", "package.json"),
+                new ArrayList<>(files.keySet())
+        );
+    }
+
+    @Test
+    void writesNormalizedReproducibleTarball(@TempDir Path tempDir) throws IOException {
+        File dir = createPackage(tempDir);
+        NpmTarballWriter writer = new NpmTarballWriter();
+        Map<String, NpmTarballWriter.Content> entries = new LinkedHashMap<>();
+        for (Map.Entry<String, File> file : writer.listPackageFiles(dir).entrySet()) {
+            entries.put(file.getKey(), NpmTarballWriter.Content.of(file.getValue()));
+        }
+        entries.put("package.json", NpmTarballWriter.Content.of("{\"name\":\"rewritten\"}".getBytes(StandardCharsets.UTF_8)));
+        Set<String> bin = writer.getBinPaths(new JSONObject(FileUtils.readFileToString(new File(dir, "package.json"), StandardCharsets.UTF_8)));
+
+        File first = tempDir.resolve("first.tgz").toFile();
+        File second = tempDir.resolve("second.tgz").toFile();
+        writer.write(entries, bin, first);
+        writer.write(entries, bin, second);
+        assertArrayEquals(FileUtils.readFileToByteArray(first), FileUtils.readFileToByteArray(second));
+
+        List<String> names = new ArrayList<>();
+        try (TarArchiveInputStream tis = new TarArchiveInputStream(new GZIPInputStream(new FileInputStream(first)))) {
+            TarArchiveEntry entry;
+            while ((entry = tis.getNextTarEntry()) != null) {
+                names.add(entry.getName());
+                assertEquals(NpmTarballWriter.NPM_MTIME_MILLIS, entry.getModTime().getTime());
+                assertEquals(0, entry.getLongUserId());
+                assertEquals("", entry.getUserName());
+                int expectedMode = entry.getName().equals("package/jdeploy-bundle/jdeploy.js") ? 0755 : 0644;
+                assertEquals(expectedMode, entry.getMode() & 0777, entry.getName());
+                if (entry.getName().equals("package/package.json")) {
+                    assertEquals("{\"name\":\"rewritten\"}", new String(org.apache.commons.io.IOUtils.toByteArray(tis), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        assertEquals("package/package.json", names.get(0));
+        assertEquals(5, names.size());
+    }
+
+    @Test
+    void honoursNpmignoreWithoutFilesField(@TempDir Path tempDir) throws IOException {
+        File dir = tempDir.resolve("pkg").toFile();
+        JSONObject packageJson = new JSONObject()
+                .put("name", "myapp")
+                .put("bin", new JSONObject().put("myapp", "bin/cli.js"));
+        FileUtils.writeStringToFile(new File(dir, "package.json"), packageJson.toString(), StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(dir, ".npmignore"),
+                "# comment\n*.log\n/build/\nbin/\ndocs/*\n!docs/keep.md\n", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(dir, ".gitignore"), "index.js\n", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(dir, "index.js"), "main", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(dir, "debug.log"), "log", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(dir, "lib/trace.log"), "log", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(dir, "lib/util.js"), "util", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(dir, "build/out.js"), "built", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(dir, "lib/build/kept.js"), "nested", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(dir, "bin/cli.js"), "cli", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(dir, "bin/helper.js"), "helper", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(dir, "docs/guide.md"), "guide", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(dir, "docs/keep.md"), "keep", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(dir, "vendor/.gitignore"), "*.tmp\n", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(dir, "vendor/lib.js"), "vendor", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(dir, "vendor/cache.tmp"), "tmp", StandardCharsets.UTF_8);
+
+        SortedMap<String, File> files = new NpmTarballWriter().listPackageFiles(dir);
+
+        assertEquals(
+                Arrays.asList("bin/cli.js", "docs/keep.md", "index.js", "lib/build/kept.js", "lib/util.js",
+                        "package.json", "vendor/lib.js"),
+                new ArrayList<>(files.keySet())
+        );
+    }
+
+    @Test
+    void rootNpmignoreDoesNotOverrideFilesField(@TempDir Path tempDir) throws IOException {
+        File dir = createPackage(tempDir);
+        FileUtils.writeStringToFile(new File(dir, ".npmignore"), "*.jar\n", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(dir, "jdeploy-bundle/.npmignore"), "*.map\n", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(dir, "jdeploy-bundle/jdeploy.js.map"), "map", StandardCharsets.UTF_8);
+
+        SortedMap<String, File> files = new NpmTarballWriter().listPackageFiles(dir);
+
+        assertEquals(
+                Arrays.asList("LICENSE", "README.md", "jdeploy-bundle/app.jar", "jdeploy-bundle/jdeploy.js", "package.json"),
+                new ArrayList<>(files.keySet())
+        );
+    }
+
+    private static File createPackage(Path tempDir) throws IOException {
+        File dir = tempDir.resolve("pkg").toFile();
+        JSONObject packageJson = new JSONObject();
+        packageJson.put("name", "myapp");
+        packageJson.put("version", "1.0.0");
+        packageJson.put("files", new JSONArray().put("jdeploy-bundle"));
+        packageJson.put("bin", new JSONObject().put("myapp", "jdeploy-bundle/jdeploy.js"));
+        FileUtils.writeStringToFile(new File(dir, "package.json"), packageJson.toString(), StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(dir, "README.md"), "readme", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(dir, "LICENSE"), "license", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(dir, ".jdpignore"), "com.example", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(dir, "notes.txt"), "not in files", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(dir, "jdeploy-bundle/jdeploy.js"), "// launcher", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(dir, "jdeploy-bundle/app.jar"), "jar", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(dir, "jdeploy-bundle/.DS_Store"), "junk", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(dir, "node_modules/dep/index.js"), "dep", StandardCharsets.UTF_8);
+        return dir;
+    }
+}
@@ -0,0 +1,72 @@
+package ca.weblite.jdeploy.packaging;
+
+import ca.weblite.tools.io.MD5;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AppCdsLauncherArgsTest {
+
+    private final AppCdsLauncherArgs appCdsLauncherArgs = new AppCdsLauncherArgs();
+
+    @Test
+    public void testAddsArgsForJava19AndNewer() {
+        JSONObject packageJSON = packageJson("my-app", "21", true);
+        packageJSON.getJSONObject("jdeploy").put("args", new JSONArray().put("-Xmx1G"));
+
+        assertTrue(appCdsLauncherArgs.addTo(packageJSON));
+
+        JSONArray args = packageJSON.getJSONObject("jdeploy").getJSONArray("args");
+        assertEquals("-Xmx1G", args.getString(0));
+        assertEquals("-XX:+AutoCreateSharedArchive", args.getString(1));
+        assertEquals("-XX:SharedArchiveFile={{ user.home }}/.jdeploy/appcds-my-app.jsa", args.getString(2));
+        assertEquals("-Xlog:cds*=off", args.getString(3));
+    }
+
+    @Test
+    public void testSkipsJavaVersionsWithoutAutoCreateSharedArchive() {
+        for (String javaVersion : new String[]{"1.8", "11", "17", "18.0.2"}) {
+            JSONObject packageJSON = packageJson("my-app", javaVersion, true);
+
+            assertFalse(appCdsLauncherArgs.addTo(packageJSON), javaVersion);
+            assertFalse(packageJSON.getJSONObject("jdeploy").has("args"), javaVersion);
+        }
+        assertTrue(appCdsLauncherArgs.addTo(packageJson("my-app", "19.0.1", true)));
+    }
+
+    @Test
+    public void testSkipsWhenDisabledOrArchiveAlreadyConfigured() {
+        assertFalse(appCdsLauncherArgs.addTo(packageJson("my-app", "21", false)));
+
+        JSONObject packageJSON = packageJson("my-app", "21", true);
+        packageJSON.getJSONObject("jdeploy").put("args",
+                new JSONArray().put("-XX:SharedArchiveFile=/opt/my-app.jsa"));
+        assertFalse(appCdsLauncherArgs.addTo(packageJSON));
+        assertEquals(1, packageJSON.getJSONObject("jdeploy").getJSONArray("args").length());
+    }
+
+    @Test
+    public void testArchiveNameForScopedAndGitHubPackages() {
+        JSONObject scoped = packageJson("@acme/my-app", "21", true);
+        appCdsLauncherArgs.addTo(scoped);
+        assertEquals("-XX:SharedArchiveFile={{ user.home }}/.jdeploy/appcds-@acme_my-app.jsa",
+                scoped.getJSONObject("jdeploy").getJSONArray("args").getString(1));
+
+        String source = "https://github.com/acme/my-app";
+        JSONObject github = packageJson("my-app", "21", true).put("source", source);
+        appCdsLauncherArgs.addTo(github);
+        assertEquals("-XX:SharedArchiveFile={{ user.home }}/.jdeploy/appcds-" + MD5.getMd5(source) + ".my-app.jsa",
+                github.getJSONObject("jdeploy").getJSONArray("args").getString(1));
+    }
+
+    private static JSONObject packageJson(String name, String javaVersion, boolean appCds) {
+        JSONObject jdeploy = new JSONObject()
+                .put("javaVersion", javaVersion)
+                .put("appCds", appCds);
+        return new JSONObject()
+                .put("name", name)
+                .put("jdeploy", jdeploy);
+    }
+}
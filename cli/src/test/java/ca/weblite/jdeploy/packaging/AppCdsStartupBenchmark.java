@@ -0,0 +1,197 @@
+package ca.weblite.jdeploy.packaging;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Measures the wall-clock time of launching a small app that parses and transforms XML, compiles
+ * regular expressions and formats dates, without AppCDS, with the args jdeploy.js uses
+ * ({@code -XX:ArchiveClassesAtExit} once, then {@code -XX:SharedArchiveFile}), and with the args
+ * {@link AppCdsLauncherArgs} adds for the native launcher.  The first, archive-creating launch of
+ * each AppCDS variant is reported separately.
+ *
+ * The app runs on the JDK given by the {@code appcds.javaHome} system property, or the JDK
+ * running the tests.  jdeploy.js needs Java 13 and the native launcher args Java 19.
+ *
+ * Not part of the regular test run (the name doesn't end in Test). Run it with:
+ *
+ * <pre>
+ * mvn -pl cli test -Dtest=AppCdsStartupBenchmark -Dsurefire.failIfNoSpecifiedTests=false -Dappcds.javaHome=/path/to/jdk-21
+ * </pre>
+ */
+public class AppCdsStartupBenchmark {
+
+    private static final int ROUNDS = 9;
+
+    private static final Pattern RELEASE_VERSION = Pattern.compile("^JAVA_VERSION=\"(?:1\\.)?(\\d+)", Pattern.MULTILINE);
+
+    private static final String APP_SOURCE = "public class Main {\n"
+            + "    public static void main(String[] args) throws Exception {\n"
+            + "        org.w3c.dom.Document doc = javax.xml.parsers.DocumentBuilderFactory.newInstance()\n"
+            + "                .newDocumentBuilder().parse(new java.io.ByteArrayInputStream(\n"
+            + "                        \"<app><item id='1'/><item id='2'/></app>\".getBytes(\"UTF-8\")));\n"
+            + "        java.io.StringWriter out = new java.io.StringWriter();\n"
+            + "        javax.xml.transform.TransformerFactory.newInstance().newTransformer().transform(\n"
+            + "                new javax.xml.transform.dom.DOMSource(doc), new javax.xml.transform.stream.StreamResult(out));\n"
+            + "        java.util.regex.Matcher m = java.util.regex.Pattern.compile(\"id=\\\"(\\\\d+)\\\"\").matcher(out.toString());\n"
+            + "        int count = 0;\n"
+            + "        while (m.find()) {\n"
+            + "            count++;\n"
+            + "        }\n"
+            + "        String date = java.time.format.DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(java.time.LocalDateTime.now());\n"
+            + "        java.util.logging.Logger.getLogger(\"app\").fine(date);\n"
+            + "        System.out.println(count + \" \" + date.length());\n"
+            + "    }\n"
+            + "}\n";
+
+    private File tempDir;
+    private File java;
+    private int javaVersion;
+    private File jar;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        tempDir = Files.createTempDirectory("appcds-benchmark").toFile();
+        File javaHome = new File(System.getProperty("appcds.javaHome", System.getProperty("java.home")));
+        java = new File(javaHome, "bin" + File.separator + "java");
+        Matcher version = RELEASE_VERSION.matcher(
+                FileUtils.readFileToString(new File(javaHome, "release"), StandardCharsets.UTF_8));
+        assumeTrue(version.find(), "No release file in " + javaHome);
+        javaVersion = Integer.parseInt(version.group(1));
+        assumeTrue(javaVersion >= 13, "Dynamic AppCDS needs Java 13, got " + javaVersion);
+        jar = buildApp();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(tempDir);
+    }
+
+    @Test
+    public void benchmarkStartup() throws Exception {
+        long baseline = medianLaunch(Collections.emptyList());
+
+        File jsArchive = new File(tempDir, "jdeploy-js.jsa");
+        long jsTraining = launch(Arrays.asList("-XX:ArchiveClassesAtExit=" + jsArchive, "-Xlog:cds*=off"));
+        assertTrue(jsArchive.isFile(), "jdeploy.js args didn't create an archive");
+        long jsShared = medianLaunch(Arrays.asList("-XX:SharedArchiveFile=" + jsArchive, "-Xlog:cds*=off"));
+
+        System.out.println("App launch on Java " + javaVersion + ", median of " + ROUNDS + " runs:");
+        System.out.println("  no AppCDS:                         " + millis(baseline) + " ms");
+        System.out.println("  jdeploy.js, training run:          " + millis(jsTraining) + " ms");
+        System.out.println("  jdeploy.js, with archive:          " + millis(jsShared) + " ms");
+
+        if (javaVersion < AppCdsLauncherArgs.MIN_JAVA_VERSION) {
+            System.out.println("  native launcher:                   skipped (needs Java "
+                    + AppCdsLauncherArgs.MIN_JAVA_VERSION + ")");
+            return;
+        }
+        List<String> launcherArgs = nativeLauncherArgs();
+        long launcherTraining = launch(launcherArgs);
+        assertEquals(1, new File(tempDir, ".jdeploy").listFiles((dir, name) -> name.endsWith(".jsa")).length,
+                "Native launcher args didn't create an archive");
+        long launcherShared = medianLaunch(launcherArgs);
+        System.out.println("  native launcher, training run:     " + millis(launcherTraining) + " ms");
+        System.out.println("  native launcher, with archive:     " + millis(launcherShared) + " ms");
+    }
+
+    /**
+     * Gets the args {@link AppCdsLauncherArgs} publishes, with the placeholder the native launcher
+     * fills in pointing at the temp directory.
+     */
+    private List<String> nativeLauncherArgs() {
+        JSONObject packageJSON = new JSONObject()
+                .put("name", "appcds-benchmark")
+                .put("jdeploy", new JSONObject().put("javaVersion", String.valueOf(javaVersion)).put("appCds", true));
+        assertTrue(new AppCdsLauncherArgs().addTo(packageJSON));
+        assertTrue(new File(tempDir, ".jdeploy").mkdirs());
+        List<String> args = new ArrayList<>();
+        JSONArray jsonArgs = packageJSON.getJSONObject("jdeploy").getJSONArray("args");
+        for (int i = 0; i < jsonArgs.length(); i++) {
+            args.add(jsonArgs.getString(i).replace("{{ user.home }}", tempDir.getAbsolutePath()));
+        }
+        return args;
+    }
+
+    private long medianLaunch(List<String> jvmArgs) throws Exception {
+        long[] times = new long[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            times[round] = launch(jvmArgs);
+        }
+        Arrays.sort(times);
+        return times[ROUNDS / 2];
+    }
+
+    private long launch(List<String> jvmArgs) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(java.getAbsolutePath());
+        command.addAll(jvmArgs);
+        command.add("-jar");
+        command.add(jar.getAbsolutePath());
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output = IOUtils.toString(process.getInputStream(), StandardCharsets.UTF_8).trim();
+        assertTrue(process.waitFor(1, TimeUnit.MINUTES));
+        long elapsed = System.nanoTime() - start;
+        assertEquals(0, process.exitValue(), output);
+        assertTrue(output.startsWith("2 "), "Unexpected output: " + output);
+        return elapsed;
+    }
+
+    /**
+     * Compiles the app and packages it as an executable jar; AppCDS only archives classes loaded
+     * from jars.
+     */
+    private File buildApp() throws Exception {
+        File src = new File(tempDir, "src");
+        File classes = new File(tempDir, "classes");
+        assertTrue(src.mkdirs() && classes.mkdirs());
+        File mainSource = new File(src, "Main.java");
+        FileUtils.writeStringToFile(mainSource, APP_SOURCE, StandardCharsets.UTF_8);
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assumeTrue(compiler != null, "Tests aren't running on a JDK");
+        assertEquals(0, compiler.run(null, null, null,
+                "-source", "8", "-target", "8", "-nowarn", "-d", classes.getAbsolutePath(), mainSource.getAbsolutePath()));
+
+        File appJar = new File(tempDir, "app.jar");
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, "Main");
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(appJar), manifest)) {
+            out.putNextEntry(new JarEntry("Main.class"));
+            out.write(FileUtils.readFileToByteArray(new File(classes, "Main.class")));
+            out.closeEntry();
+        }
+        return appJar;
+    }
+
+    private static long millis(long nanos) {
+        return nanos / 1_000_000L;
+    }
+}
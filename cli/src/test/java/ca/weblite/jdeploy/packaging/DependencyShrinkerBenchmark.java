@@ -0,0 +1,116 @@
+package ca.weblite.jdeploy.packaging;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.GraphicsEnvironment;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures the bundle size and the time from launching an app until its main window is ready,
+ * before and after {@link DependencyShrinker} removed the unreachable classes from its dependency.
+ *
+ * The generated app uses {@value #USED_CLASSES} of the {@value #DEPENDENCY_CLASSES} classes in a
+ * dependency jar on its Class-Path.  {@link StartupBenchmarkApp} times each launch until the window
+ * opens (or, headless, until those classes are loaded), the same bounded run that
+ * {@link JarLayoutStartupBenchmark} uses.  {@code -Djarlayout.dropCaches=true} drops the page cache
+ * before every launch, on Linux when running as root.
+ *
+ * Not part of the regular test run (the name doesn't end in Test). Run it with:
+ *
+ * <pre>
+ * mvn -pl cli test -Dtest=DependencyShrinkerBenchmark -Dsurefire.failIfNoSpecifiedTests=false
+ * </pre>
+ */
+public class DependencyShrinkerBenchmark {
+
+    private static final int DEPENDENCY_CLASSES = 3000;
+    private static final int USED_CLASSES = 300;
+    private static final int ROUNDS = 9;
+
+    private File tempDir;
+    private File javaHome;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        tempDir = Files.createTempDirectory("dependency-shrinker-benchmark").toFile();
+        javaHome = new File(System.getProperty("java.home"));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(tempDir);
+    }
+
+    @Test
+    public void benchmarkStartupAndSize() throws Exception {
+        File before = buildApp();
+        File after = new File(tempDir, "after/app.jar");
+        FileUtils.copyDirectory(before.getParentFile(), after.getParentFile());
+
+        DependencyShrinker.Result result = new DependencyShrinker(new ClassPathFinder())
+                .shrink(after, Collections.emptyList());
+        assertEquals(DEPENDENCY_CLASSES - USED_CLASSES, result.getClassesRemoved());
+
+        boolean dropCaches = Boolean.getBoolean("jarlayout.dropCaches");
+        long[] beforeTimes = new long[ROUNDS];
+        long[] afterTimes = new long[ROUNDS];
+        // Warm up, then alternate so both apps see the same machine state
+        StartupBenchmarkApp.timeToReady(javaHome, before, false);
+        StartupBenchmarkApp.timeToReady(javaHome, after, false);
+        for (int round = 0; round < ROUNDS; round++) {
+            beforeTimes[round] = StartupBenchmarkApp.timeToReady(javaHome, before, dropCaches);
+            afterTimes[round] = StartupBenchmarkApp.timeToReady(javaHome, after, dropCaches);
+        }
+
+        System.out.println("Time to main window (" + (GraphicsEnvironment.isHeadless() ? "headless" : "display")
+                + ", " + (dropCaches ? "cold" : "warm") + " page cache), median of " + ROUNDS + " launches:");
+        System.out.println("  dependency as built:  " + StartupBenchmarkApp.median(beforeTimes) + " ms ("
+                + bundleSize(before) / 1024 + " KB)");
+        System.out.println("  shrunk dependency:    " + StartupBenchmarkApp.median(afterTimes) + " ms ("
+                + bundleSize(after) / 1024 + " KB, " + result.getClassesRemoved() + " classes removed)");
+    }
+
+    private static long bundleSize(File appJar) {
+        return FileUtils.sizeOfDirectory(appJar.getParentFile());
+    }
+
+    /**
+     * Generates, compiles and packages the app and its dependency, in {@code before/app.jar} and
+     * {@code before/lib/dep.jar}.
+     */
+    private File buildApp() throws Exception {
+        File classes = new File(tempDir, "classes");
+        Random random = new Random(42);
+        Map<String, String> sources = new LinkedHashMap<>();
+        StringBuilder startup = new StringBuilder();
+        int step = DEPENDENCY_CLASSES / USED_CLASSES;
+        for (int i = 0; i < DEPENDENCY_CLASSES; i++) {
+            String packageName = String.format("dep.p%02d", i / 100);
+            String name = String.format("D%04d", i);
+            sources.put(packageName.replace('.', '/') + "/" + name + ".java",
+                    StartupBenchmarkApp.classSource(packageName, name, random));
+            if (i % step == 0) {
+                startup.append("        total += ").append(packageName).append('.').append(name).append(".run();\n");
+            }
+        }
+        sources.put("app/Main.java", StartupBenchmarkApp.mainSource(startup));
+        StartupBenchmarkApp.compile(new File(tempDir, "src"), classes, sources);
+
+        File appJar = new File(tempDir, "before/app.jar");
+        StartupBenchmarkApp.writeJar(appJar, classes,
+                FileUtils.listFiles(new File(classes, "app"), new String[]{"class"}, true), "app.Main", "lib/dep.jar");
+        StartupBenchmarkApp.writeJar(new File(tempDir, "before/lib/dep.jar"), classes,
+                FileUtils.listFiles(new File(classes, "dep"), new String[]{"class"}, true), null, null);
+        return appJar;
+    }
+}
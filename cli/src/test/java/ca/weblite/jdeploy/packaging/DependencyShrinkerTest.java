@@ -0,0 +1,179 @@
+package ca.weblite.jdeploy.packaging;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class DependencyShrinkerTest {
+
+    @Test
+    void removesClassesUnreachableFromTheApplication(@TempDir Path tempDir) throws IOException {
+        File classes = compile(tempDir,
+                "app/Main.java", "package app; public class Main { public static void main(String[] a) throws Exception {"
+                        + " new lib.Used().run(); Class.forName(\"lib.Reflected\"); } }",
+                "lib/Used.java", "package lib; public class Used { public void run() { Helper.help(new java.util.ArrayList<Generic>()); } }",
+                "lib/Helper.java", "package lib; public class Helper { static void help(java.util.List<Generic> l) {} }",
+                "lib/Generic.java", "package lib; public class Generic {}",
+                "lib/Reflected.java", "package lib; public class Reflected {}",
+                "lib/Unused.java", "package lib; public class Unused { Used used; }",
+                "lib/Service.java", "package lib; public interface Service {}",
+                "lib/ServiceImpl.java", "package lib; public class ServiceImpl implements Service {}",
+                "lib/keep/Plugin.java", "package lib.keep; public class Plugin {}"
+        );
+        File bin = tempDir.resolve("bin").toFile();
+        File appJar = jar(new File(bin, "app.jar"), classes, "app.Main", "libs/lib.jar", "app/Main.class");
+        File libJar = jar(new File(bin, "libs/lib.jar"), classes, null, null,
+                "lib/Used.class", "lib/Helper.class", "lib/Generic.class", "lib/Reflected.class",
+                "lib/Unused.class", "lib/Service.class", "lib/ServiceImpl.class", "lib/keep/Plugin.class",
+                "META-INF/services/lib.Service");
+        long appJarLength = appJar.length();
+
+        DependencyShrinker.Result result = new DependencyShrinker(new ClassPathFinder())
+                .shrink(appJar, Collections.singletonList("lib.keep.*"));
+
+        assertEquals(Arrays.asList(
+                "META-INF/services/lib.Service",
+                "lib/Generic.class",
+                "lib/Helper.class",
+                "lib/Reflected.class",
+                "lib/Service.class",
+                "lib/ServiceImpl.class",
+                "lib/Used.class",
+                "lib/keep/Plugin.class"
+        ), entries(libJar));
+        assertEquals(1, result.getClassesRemoved());
+        assertTrue(result.getBytesSaved() > 0);
+        assertEquals(appJarLength, appJar.length());
+    }
+
+    @Test
+    void leavesSignedJarsAlone(@TempDir Path tempDir) throws IOException {
+        File classes = compile(tempDir,
+                "app/Main.java", "package app; public class Main { public static void main(String[] a) {} }",
+                "lib/Unused.java", "package lib; public class Unused {}"
+        );
+        File bin = tempDir.resolve("bin").toFile();
+        File appJar = jar(new File(bin, "app.jar"), classes, "app.Main", "lib.jar", "app/Main.class");
+        FileUtils.writeStringToFile(new File(classes, "META-INF/SIGNER.SF"), "Signature-Version: 1.0\n", StandardCharsets.UTF_8);
+        File libJar = jar(new File(bin, "lib.jar"), classes, null, null, "lib/Unused.class", "META-INF/SIGNER.SF");
+
+        DependencyShrinker.Result result = new DependencyShrinker(new ClassPathFinder())
+                .shrink(appJar, Collections.emptyList());
+
+        assertEquals(0, result.getClassesRemoved());
+        assertTrue(entries(libJar).contains("lib/Unused.class"));
+    }
+
+    @Test
+    void readsClassNamesFromLongConstants(@TempDir Path tempDir) throws IOException {
+        StringBuilder type = new StringBuilder("lib.Deep");
+        for (int i = 0; i < 40; i++) {
+            type.insert(0, "java.util.Map<java.lang.String, ").append(">");
+        }
+        File classes = compile(tempDir,
+                "app/Main.java", "package app; public class Main { public static java.util.List<" + type + "> deep; }",
+                "lib/Deep.java", "package lib; public class Deep {}"
+        );
+
+        Set<String> names;
+        try (FileInputStream input = new FileInputStream(new File(classes, "app/Main.class"))) {
+            names = DependencyShrinker.readReferencedNames(input);
+        }
+
+        assertTrue(type.length() > 1024);
+        assertTrue(names.contains("lib/Deep"), "Class names in long generic signatures must be found");
+    }
+
+    @Test
+    void mapsEntriesToClassNames() {
+        assertEquals("com/foo/Bar", DependencyShrinker.toClassName("com/foo/Bar.class"));
+        assertEquals("com/foo/Bar", DependencyShrinker.toClassName("META-INF/versions/11/com/foo/Bar.class"));
+        assertNull(DependencyShrinker.toClassName("module-info.class"));
+        assertNull(DependencyShrinker.toClassName("META-INF/versions/9/module-info.class"));
+        assertNull(DependencyShrinker.toClassName("com/foo/package-info.class"));
+        assertNull(DependencyShrinker.toClassName("com/foo/bar.properties"));
+    }
+
+    @Test
+    void matchesKeepRules() {
+        assertTrue(DependencyShrinker.matchesKeepRule("com.foo.Bar", "com/foo/Bar"));
+        assertTrue(DependencyShrinker.matchesKeepRule("com.foo.Bar", "com/foo/Bar$Inner"));
+        assertFalse(DependencyShrinker.matchesKeepRule("com.foo.Bar", "com/foo/BarBaz"));
+        assertTrue(DependencyShrinker.matchesKeepRule("com.foo.*", "com/foo/Bar"));
+        assertFalse(DependencyShrinker.matchesKeepRule("com.foo.*", "com/foo/sub/Bar"));
+        assertTrue(DependencyShrinker.matchesKeepRule("com.foo.**", "com/foo/sub/Bar"));
+    }
+
+    private static File compile(Path tempDir, String... pathsAndSources) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assumeTrue(compiler != null, "A JDK is required to compile test fixtures");
+        File src = tempDir.resolve("src").toFile();
+        File classes = tempDir.resolve("classes").toFile();
+        classes.mkdirs();
+        List<String> args = new ArrayList<>(Arrays.asList("-d", classes.getPath()));
+        for (int i = 0; i < pathsAndSources.length; i += 2) {
+            File file = new File(src, pathsAndSources[i]);
+            FileUtils.writeStringToFile(file, pathsAndSources[i + 1], StandardCharsets.UTF_8);
+            args.add(file.getPath());
+        }
+        assertEquals(0, compiler.run(null, null, null, args.toArray(new String[0])));
+        FileUtils.writeStringToFile(new File(classes, "META-INF/services/lib.Service"), "lib.ServiceImpl\n", StandardCharsets.UTF_8);
+        return classes;
+    }
+
+    private static File jar(File jar, File classes, String mainClass, String classPath, String... entries) throws IOException {
+        jar.getParentFile().mkdirs();
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        if (mainClass != null) {
+            manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, mainClass);
+        }
+        if (classPath != null) {
+            manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, classPath);
+        }
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar), manifest)) {
+            for (String entry : entries) {
+                out.putNextEntry(new ZipEntry(entry));
+                try (FileInputStream input = new FileInputStream(new File(classes, entry))) {
+                    org.apache.commons.io.IOUtils.copy(input, out);
+                }
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    private static List<String> entries(File jar) throws IOException {
+        List<String> out = new ArrayList<>();
+        try (ZipFile zipFile = new ZipFile(jar)) {
+            zipFile.stream()
+                    .map(ZipEntry::getName)
+                    .filter(name -> !name.startsWith("META-INF/MANIFEST") && !name.equals("META-INF/"))
+                    .forEach(out::add);
+        }
+        Collections.sort(out);
+        return out;
+    }
+}
@@ -0,0 +1,130 @@
+package ca.weblite.jdeploy.packaging;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutableJarScannerTest {
+
+    private static final List<String> EXCLUDED = Arrays.asList("src", "jdeploy-bundle", "node_modules");
+
+    @Test
+    void findsOnlyExecutableJarsOutsideExcludedDirectories(@TempDir Path tempDir) throws IOException {
+        File project = tempDir.resolve("project").toFile();
+        File app = createJar(new File(project, "target/app.jar"), "com.example.Main");
+        createJar(new File(project, "target/libs/dependency.jar"), null);
+        createJar(new File(project, "node_modules/pkg/tool.jar"), "com.example.Tool");
+        createJar(new File(project, "src/main/resources/embedded.jar"), "com.example.Embedded");
+        createJar(new File(project, ".gradle/cache/cached.jar"), "com.example.Cached");
+
+        ExecutableJarScanner scanner = new ExecutableJarScanner(tempDir.resolve("cache.properties").toFile());
+        List<File> jars = scanner.findFiles(project, jarMatcher(project), EXCLUDED);
+        assertEquals(2, jars.size(), "Jars under excluded and hidden directories should be pruned");
+
+        List<File> executable = scanner.findExecutableJars(jars);
+        assertEquals(1, executable.size());
+        assertEquals(app, executable.get(0));
+        assertEquals("com.example.Main", scanner.getMainClass(app));
+    }
+
+    @Test
+    void walkOrderMatchesSequentialDepthFirstOrder(@TempDir Path tempDir) throws IOException {
+        File project = tempDir.resolve("project").toFile();
+        for (int i = 0; i < 20; i++) {
+            createJar(new File(project, "module" + i + "/build/libs/module" + i + ".jar"), "com.example.Main" + i);
+            createJar(new File(project, "module" + i + "/module" + i + "-top.jar"), null);
+            createJar(new File(project, "module" + i + "/build/libs/deps/dep" + i + ".jar"), null);
+            createJar(new File(project, "module" + i + "/src/test/fixture" + i + ".jar"), null);
+            createJar(new File(project, "module" + i + "/.cache/cached" + i + ".jar"), null);
+        }
+        createJar(new File(project, "root.jar"), "com.example.Root");
+        createJar(new File(project, "node_modules/pkg/tool.jar"), "com.example.Tool");
+
+        List<File> expected = new ArrayList<>();
+        walkSequentially(project, jarMatcher(project), expected);
+
+        ExecutableJarScanner scanner = new ExecutableJarScanner(tempDir.resolve("cache.properties").toFile());
+        List<File> actual = scanner.findFiles(project, jarMatcher(project), EXCLUDED);
+        assertEquals(61, expected.size());
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * The walk JarFinder did before it used {@link ExecutableJarScanner}.
+     */
+    private static void walkSequentially(File root, PathMatcher matcher, List<File> matches) {
+        if (matcher.matches(root.toPath())) {
+            matches.add(root);
+        }
+        if (root.isDirectory()) {
+            if (root.getName().startsWith(".") || EXCLUDED.contains(root.getName())) {
+                return;
+            }
+            for (File f : root.listFiles()) {
+                walkSequentially(f, matcher, matches);
+            }
+        }
+    }
+
+    @Test
+    void persistsMainClassCacheAndInvalidatesOnChange(@TempDir Path tempDir) throws IOException {
+        File cacheFile = tempDir.resolve("cache/executable-jars.properties").toFile();
+        File jar = createJar(tempDir.resolve("app.jar").toFile(), "com.example.Main");
+
+        new ExecutableJarScanner(cacheFile).findExecutableJars(Arrays.asList(jar));
+        assertTrue(cacheFile.isFile(), "Cache should be written after a scan");
+        String cacheContent = new String(Files.readAllBytes(cacheFile.toPath()), StandardCharsets.ISO_8859_1);
+        assertTrue(cacheContent.contains("com.example.Main"));
+
+        // Rewrite the jar without a Main-Class; a new scanner must notice the change
+        createJar(jar, null);
+        assertTrue(jar.setLastModified(jar.lastModified() + 2000));
+        ExecutableJarScanner secondRun = new ExecutableJarScanner(cacheFile);
+        assertTrue(secondRun.findExecutableJars(Arrays.asList(jar)).isEmpty());
+        assertNull(secondRun.getMainClass(jar));
+    }
+
+    @Test
+    void unreadableJarsAreNotExecutable(@TempDir Path tempDir) throws IOException {
+        File notAJar = tempDir.resolve("broken.jar").toFile();
+        Files.write(notAJar.toPath(), "not a zip".getBytes(StandardCharsets.UTF_8));
+
+        ExecutableJarScanner scanner = new ExecutableJarScanner(tempDir.resolve("cache.properties").toFile());
+        assertTrue(scanner.findExecutableJars(Arrays.asList(notAJar)).isEmpty());
+    }
+
+    private static PathMatcher jarMatcher(File project) {
+        return project.toPath().getFileSystem().getPathMatcher("glob:**/*.jar");
+    }
+
+    private static File createJar(File file, String mainClass) throws IOException {
+        file.getParentFile().mkdirs();
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        if (mainClass != null) {
+            manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, mainClass);
+        }
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(file), manifest)) {
+            out.putNextEntry(new ZipEntry("com/example/Placeholder.txt"));
+            out.write("placeholder".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,183 @@
+package ca.weblite.jdeploy.packaging;
+
+import ca.weblite.jdeploy.services.SystemJdkFinder;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class JarLayoutOptimizerTest {
+
+    @Test
+    void parsesClassLoadLog(@TempDir Path tempDir) {
+        File app = tempDir.resolve("bin/app.jar").toFile();
+        File lib = tempDir.resolve("bin/libs/lib.jar").toFile();
+        List<String> log = Arrays.asList(
+                "java.lang.Object source: shared objects file",
+                "com.example.Main source: " + app.toURI(),
+                "com.example.lib.Util source: " + lib.toURI(),
+                "com.example.Window source: jar:" + app.toURI() + "!/",
+                "com.example.Main source: " + app.toURI(),
+                "java.util.regex.Pattern source: jrt:/java.base"
+        );
+
+        Map<File, List<String>> order = JarLayoutOptimizer.parseClassLoadLog(log, Arrays.asList(app, lib));
+
+        assertEquals(Arrays.asList("com/example/Main", "com/example/Window"), order.get(app));
+        assertEquals(Collections.singletonList("com/example/lib/Util"), order.get(lib));
+    }
+
+    @Test
+    void movesStartupClassesToTheFrontUncompressed(@TempDir Path tempDir) throws IOException {
+        File jar = tempDir.resolve("app.jar").toFile();
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar), manifest)) {
+            for (String name : Arrays.asList("META-INF/APP.SF", "a/A.class", "a/B.class", "a/C.class", "a/strings.properties")) {
+                out.putNextEntry(new ZipEntry(name));
+                out.write(("content of " + name).getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+
+        int hot = new JarLayoutOptimizer(new SystemJdkFinder()).rewrite(jar, Arrays.asList("a/C", "a/Missing", "a/A"));
+
+        assertEquals(2, hot);
+        try (ZipFile zipFile = new ZipFile(jar)) {
+            List<String> names = new ArrayList<>();
+            zipFile.stream().map(ZipEntry::getName).forEach(names::add);
+            assertEquals(Arrays.asList(
+                    "META-INF/MANIFEST.MF",
+                    "META-INF/APP.SF",
+                    "a/C.class",
+                    "a/A.class",
+                    "a/B.class",
+                    "a/strings.properties"
+            ), names);
+            assertEquals(ZipEntry.STORED, zipFile.getEntry("a/C.class").getMethod());
+            assertEquals(ZipEntry.STORED, zipFile.getEntry("a/A.class").getMethod());
+            assertEquals(ZipEntry.DEFLATED, zipFile.getEntry("a/B.class").getMethod());
+            assertEquals("content of a/C.class",
+                    IOUtils.toString(zipFile.getInputStream(zipFile.getEntry("a/C.class")), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void recordsClassesLoadedByTrainingRun(@TempDir Path tempDir) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assumeTrue(compiler != null, "A JDK is required to compile test fixtures");
+        File src = tempDir.resolve("src/app/Main.java").toFile();
+        FileUtils.writeStringToFile(src,
+                "package app; public class Main { public static void main(String[] a) { new Used(); } }\n"
+                        + "class Used {}\n"
+                        + "class Unused {}\n",
+                StandardCharsets.UTF_8);
+        File classes = tempDir.resolve("classes").toFile();
+        assertEquals(0, compiler.run(null, null, null, "-d", classes.getPath(), src.getPath()));
+        File jar = tempDir.resolve("app.jar").toFile();
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, "app.Main");
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar), manifest)) {
+            for (String name : Arrays.asList("app/Unused.class", "app/Used.class", "app/Main.class")) {
+                out.putNextEntry(new ZipEntry(name));
+                out.write(Files.readAllBytes(new File(classes, name).toPath()));
+                out.closeEntry();
+            }
+        }
+
+        JarLayoutOptimizer optimizer = new JarLayoutOptimizer(new SystemJdkFinder());
+        Map<File, List<String>> order = optimizer.recordClassLoadOrder(
+                new File(System.getProperty("java.home")),
+                jar,
+                tempDir.toFile(),
+                JarLayoutOptimizer.DEFAULT_TRAINING_MILLIS,
+                Collections.singletonList(jar),
+                new PrintStream(new java.io.ByteArrayOutputStream())
+        );
+
+        assertEquals(Arrays.asList("app/Main", "app/Used"), order.get(jar));
+    }
+
+    @Test
+    void failsWhenTheAppDoesNotRun(@TempDir Path tempDir) throws Exception {
+        File jar = tempDir.resolve("app.jar").toFile();
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, "app.Missing");
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar), manifest)) {
+            out.putNextEntry(new ZipEntry("app/"));
+            out.closeEntry();
+        }
+
+        JarLayoutOptimizer optimizer = new JarLayoutOptimizer(new SystemJdkFinder());
+        IOException ex = assertThrows(IOException.class, () -> optimizer.recordClassLoadOrder(
+                new File(System.getProperty("java.home")),
+                jar,
+                tempDir.toFile(),
+                JarLayoutOptimizer.DEFAULT_TRAINING_MILLIS,
+                Collections.singletonList(jar),
+                new PrintStream(new java.io.ByteArrayOutputStream())
+        ));
+
+        assertTrue(ex.getMessage().contains("app.Missing"), ex.getMessage());
+    }
+
+    @Test
+    void readsJavaVersionFromReleaseFile(@TempDir Path tempDir) throws Exception {
+        Files.write(tempDir.resolve("release"), "IMPLEMENTOR=\"Test\"\nJAVA_VERSION=\"1.8.0_392\"\n".getBytes(StandardCharsets.UTF_8));
+        assertEquals(8, JarLayoutOptimizer.getJavaVersion(tempDir.toFile()));
+
+        Files.write(tempDir.resolve("release"), "JAVA_VERSION=\"17.0.9\"\n".getBytes(StandardCharsets.UTF_8));
+        assertEquals(17, JarLayoutOptimizer.getJavaVersion(tempDir.toFile()));
+    }
+
+    @Test
+    void readsTrainingTimeoutFromPackageJson(@TempDir Path tempDir) {
+        assertEquals(JarLayoutOptimizer.DEFAULT_TRAINING_MILLIS,
+                trainingMillis(tempDir, null));
+        assertEquals(3000, trainingMillis(tempDir, 3));
+        assertEquals(2500, trainingMillis(tempDir, 2.5));
+        assertEquals(4000, trainingMillis(tempDir, "4"));
+        assertThrows(IllegalArgumentException.class, () -> trainingMillis(tempDir, 0));
+        assertThrows(IllegalArgumentException.class, () -> trainingMillis(tempDir, "soon"));
+    }
+
+    private static long trainingMillis(Path tempDir, Object seconds) {
+        Map<String, Object> jdeploy = new HashMap<>();
+        if (seconds != null) {
+            jdeploy.put("jarLayoutTrainingSeconds", seconds);
+        }
+        Map<String, Object> packageJson = new HashMap<>();
+        packageJson.put("jdeploy", jdeploy);
+        PackagingContext context = PackagingContext.builder()
+                .directory(tempDir.toFile())
+                .packageJsonMap(packageJson)
+                .build();
+        return context.getJarLayoutTrainingMillis(JarLayoutOptimizer.DEFAULT_TRAINING_MILLIS);
+    }
+}
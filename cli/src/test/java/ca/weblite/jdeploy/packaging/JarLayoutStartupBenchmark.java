@@ -0,0 +1,123 @@
+package ca.weblite.jdeploy.packaging;
+
+import ca.weblite.jdeploy.services.SystemJdkFinder;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.GraphicsEnvironment;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures the time from launching an app until its main window is ready, with the jar as built
+ * and after {@link JarLayoutOptimizer} reordered it from a training run.
+ *
+ * The generated app loads {@value #STARTUP_CLASSES} of its {@value #STARTUP_CLASSES} +
+ * {@value #OTHER_CLASSES} classes before it opens a window, and its jar lists them in random
+ * order, compressed.  {@link StartupBenchmarkApp} times each launch until the window opens (or,
+ * headless, until the same classes are loaded).
+ *
+ * By default the jars are in the page cache, so the numbers show the saving from storing startup
+ * classes uncompressed.  The layout matters most on a cold cache; on Linux, when running as root,
+ * {@code -Djarlayout.dropCaches=true} drops the page cache before every launch.
+ *
+ * Not part of the regular test run (the name doesn't end in Test). Run it with:
+ *
+ * <pre>
+ * mvn -pl cli test -Dtest=JarLayoutStartupBenchmark -Dsurefire.failIfNoSpecifiedTests=false
+ * </pre>
+ */
+public class JarLayoutStartupBenchmark {
+
+    private static final int STARTUP_CLASSES = 800;
+    private static final int OTHER_CLASSES = 800;
+    private static final int ROUNDS = 9;
+    private static final long TRAINING_MILLIS = 5000;
+
+    private File tempDir;
+    private File javaHome;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        tempDir = Files.createTempDirectory("jar-layout-benchmark").toFile();
+        javaHome = new File(System.getProperty("java.home"));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(tempDir);
+    }
+
+    @Test
+    public void benchmarkTimeToMainWindow() throws Exception {
+        File before = buildApp();
+        File after = new File(tempDir, "after/app.jar");
+        FileUtils.copyFile(before, after);
+
+        JarLayoutOptimizer optimizer = new JarLayoutOptimizer(new SystemJdkFinder());
+        Map<File, List<String>> loadOrder = optimizer.recordClassLoadOrder(
+                javaHome,
+                after,
+                tempDir,
+                TRAINING_MILLIS,
+                Collections.singletonList(after),
+                new PrintStream(new ByteArrayOutputStream())
+        );
+        Map<File, Integer> rewritten = optimizer.rewriteAll(loadOrder);
+        assertTrue(rewritten.get(after) > STARTUP_CLASSES, "Training run missed startup classes: " + rewritten);
+
+        boolean dropCaches = Boolean.getBoolean("jarlayout.dropCaches");
+        long[] beforeTimes = new long[ROUNDS];
+        long[] afterTimes = new long[ROUNDS];
+        // Warm up, then alternate so both jars see the same machine state
+        StartupBenchmarkApp.timeToReady(javaHome, before, false);
+        StartupBenchmarkApp.timeToReady(javaHome, after, false);
+        for (int round = 0; round < ROUNDS; round++) {
+            beforeTimes[round] = StartupBenchmarkApp.timeToReady(javaHome, before, dropCaches);
+            afterTimes[round] = StartupBenchmarkApp.timeToReady(javaHome, after, dropCaches);
+        }
+
+        System.out.println("Time to main window (" + (GraphicsEnvironment.isHeadless() ? "headless" : "display")
+                + ", " + (dropCaches ? "cold" : "warm") + " page cache), median of " + ROUNDS + " launches:");
+        System.out.println("  jar as built:      " + StartupBenchmarkApp.median(beforeTimes) + " ms (" + before.length() / 1024 + " KB)");
+        System.out.println("  optimized layout:  " + StartupBenchmarkApp.median(afterTimes) + " ms (" + after.length() / 1024 + " KB, "
+                + rewritten.get(after) + " entries moved)");
+    }
+
+    /**
+     * Generates, compiles and packages the app, with the jar entries in random order.
+     */
+    private File buildApp() throws Exception {
+        File classes = new File(tempDir, "classes");
+        Random random = new Random(42);
+        Map<String, String> sources = new LinkedHashMap<>();
+        StringBuilder startup = new StringBuilder();
+        for (int i = 0; i < STARTUP_CLASSES + OTHER_CLASSES; i++) {
+            String name = String.format("C%04d", i);
+            sources.put("app/c/" + name + ".java", StartupBenchmarkApp.classSource("app.c", name, random));
+            if (i < 2 * STARTUP_CLASSES && i % 2 == 0) {
+                startup.append("        total += app.c.").append(name).append(".run();\n");
+            }
+        }
+        sources.put("app/Main.java", StartupBenchmarkApp.mainSource(startup));
+        StartupBenchmarkApp.compile(new File(tempDir, "src"), classes, sources);
+
+        List<File> classFiles = new ArrayList<>(FileUtils.listFiles(classes, new String[]{"class"}, true));
+        Collections.shuffle(classFiles, random);
+        File jar = new File(tempDir, "before/app.jar");
+        StartupBenchmarkApp.writeJar(jar, classes, classFiles, "app.Main", null);
+        return jar;
+    }
+}
@@ -7,6 +7,7 @@ import ca.weblite.jdeploy.appbundler.BundlerSettings;
 import ca.weblite.jdeploy.environment.Environment;
 import ca.weblite.jdeploy.services.BundleCodeService;
 import ca.weblite.jdeploy.services.ProjectBuilderService;
+import ca.weblite.jdeploy.services.SystemJdkFinder;
 import ca.weblite.jdeploy.services.WindowsSigningService;
 import ca.weblite.jdeploy.services.WindowsSigningConfigFactory;
 import org.apache.commons.io.FileUtils;
@@ -92,7 +93,9 @@ public class PackageServiceIntegrationTest {
             packagingConfig,
             permissionRequestService,
             windowsSigningService,
-            windowsSigningConfigFactory
+            windowsSigningConfigFactory,
+            new DependencyShrinker(classPathFinder),
+            new JarLayoutOptimizer(new SystemJdkFinder())
         );
     }
     
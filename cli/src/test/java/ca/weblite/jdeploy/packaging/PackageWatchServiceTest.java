@@ -0,0 +1,242 @@
+package ca.weblite.jdeploy.packaging;
+
+import ca.weblite.jdeploy.downloadPage.DownloadPageSettingsJsonReader;
+import ca.weblite.jdeploy.downloadPage.DownloadPageSettingsJsonWriter;
+import ca.weblite.jdeploy.downloadPage.DownloadPageSettingsService;
+import ca.weblite.jdeploy.factories.JDeployProjectFactory;
+import ca.weblite.jdeploy.io.DefaultFileSystemInterface;
+import ca.weblite.jdeploy.models.Platform;
+import ca.weblite.jdeploy.npm.NpmTarballWriter;
+import ca.weblite.jdeploy.services.JDeployIgnoreFileParser;
+import ca.weblite.jdeploy.services.JDeployIgnoreService;
+import ca.weblite.jdeploy.services.PlatformBundleGenerator;
+import ca.weblite.jdeploy.services.PlatformSpecificJarProcessor;
+import org.apache.commons.io.FileUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PackageWatchServiceTest {
+
+    @Test
+    void copyPlanMapsJarAndClassPathIntoBundle(@TempDir Path tempDir) throws IOException {
+        File project = createProject(tempDir, new JSONObject());
+        PackagingContext context = PackagingContext.builder().directory(project).build();
+
+        Map<Path, Path> plan = createService(tempDir).buildCopyPlan(context);
+
+        assertNotNull(plan);
+        File bin = new File(project, "jdeploy-bundle");
+        assertEquals(Arrays.asList(path(new File(project, "target/app.jar")), path(new File(project, "target/lib/dep.jar"))),
+                Arrays.asList(plan.keySet().toArray()));
+        assertEquals(path(new File(bin, "app.jar")), plan.get(path(new File(project, "target/app.jar"))));
+        assertEquals(path(new File(bin, "lib/dep.jar")), plan.get(path(new File(project, "target/lib/dep.jar"))));
+    }
+
+    @Test
+    void copyPlanIsUnavailableWhenCopyStepIsNotFileByFile(@TempDir Path tempDir) throws IOException {
+        JSONObject jdeploy = new JSONObject();
+        jdeploy.put("mavenDependencies", new JSONArray().put("com.example:dep:1.0"));
+        File project = createProject(tempDir, jdeploy);
+        PackagingContext context = PackagingContext.builder().directory(project).build();
+
+        assertNull(createService(tempDir).buildCopyPlan(context));
+    }
+
+    @Test
+    void syncCopiesChangedFilesAndRemovesDeletedOnes(@TempDir Path tempDir) throws IOException {
+        File project = createProject(tempDir, new JSONObject());
+        PackagingContext context = PackagingContext.builder().directory(project).build();
+        PackageWatchService service = createService(tempDir);
+        Map<Path, Path> plan = service.buildCopyPlan(context);
+        Path dep = path(new File(project, "target/lib/dep.jar"));
+        Path unrelated = path(new File(project, "README.md"));
+        Files.write(unrelated, "readme".getBytes(StandardCharsets.UTF_8));
+
+        Path bundledDep = plan.get(dep);
+        assertEquals(Collections.singletonList(bundledDep), service.syncChanges(plan, Arrays.asList(dep, unrelated)));
+        assertArrayEquals(Files.readAllBytes(dep), Files.readAllBytes(bundledDep));
+        assertFalse(Files.exists(path(new File(project, "jdeploy-bundle/README.md"))));
+
+        Files.delete(dep);
+        assertEquals(Collections.singletonList(bundledDep), service.syncChanges(plan, Collections.singletonList(dep)));
+        assertFalse(Files.exists(bundledDep));
+    }
+
+    @Test
+    void detectsConfigurationChanges(@TempDir Path tempDir) throws IOException {
+        File project = createProject(tempDir, new JSONObject());
+        PackageWatchService service = createService(tempDir);
+
+        assertTrue(service.containsConfigChange(project, Collections.singletonList(path(new File(project, "package.json")))));
+        assertTrue(service.containsConfigChange(project, Collections.singletonList(path(new File(project, "icon.png")))));
+        assertFalse(service.containsConfigChange(project, Collections.singletonList(path(new File(project, "target/app.jar")))));
+        assertFalse(service.containsConfigChange(project, Collections.singletonList(path(new File(project, "target/package.json")))));
+        assertFalse(service.containsConfigChange(project, Collections.singletonList(path(new File(project, ".jdpignore.mac-x64")))));
+
+        assertTrue(service.containsIgnoreFileChange(Collections.singletonList(path(new File(project, ".jdpignore.mac-x64")))));
+        assertTrue(service.containsIgnoreFileChange(Collections.singletonList(path(new File(project, ".jdpignore")))));
+        assertFalse(service.containsIgnoreFileChange(Collections.singletonList(path(new File(project, "package.json")))));
+    }
+
+    @Test
+    void platformBundlesOnlyStripAndSignChangedJars(@TempDir Path tempDir) throws IOException {
+        JSONObject jdeploy = new JSONObject();
+        jdeploy.put("platformBundlesEnabled", true);
+        jdeploy.put("downloadPage", new JSONObject().put("platforms", new JSONArray().put("mac-x64")));
+        File project = createProject(tempDir, jdeploy);
+        FileUtils.writeStringToFile(new File(project, ".jdpignore.mac-x64"), "/native/windows\n", StandardCharsets.UTF_8);
+        File bin = new File(project, "jdeploy-bundle");
+        File bundledApp = new File(bin, "app.jar");
+        File bundledDep = new File(bin, "lib/dep.jar");
+        writeJar(bundledApp, "com/example/Main.class", "native/windows/app.dll");
+        writeJar(bundledDep, "com/example/Dep.class", "native/windows/dep.dll");
+        PackagingContext context = PackagingContext.builder().directory(project).build();
+        PackageService packageService = mock(PackageService.class);
+        PackageWatchService service = createService(tempDir, packageService);
+
+        Map<Platform, File> platformBundles = service.createPlatformBundles(context);
+
+        File macBundle = new File(project, PackageWatchService.PLATFORM_BUNDLES_DIRECTORY + "/mac-x64");
+        assertEquals(Collections.singletonMap(Platform.MAC_X64, macBundle), platformBundles);
+        assertEquals(Collections.singletonList("com/example/Dep.class"), entries(new File(macBundle, "lib/dep.jar")));
+        assertEquals(Collections.singletonList("com/example/Main.class"), entries(new File(macBundle, "app.jar")));
+
+        writeJar(bundledDep, "com/example/Dep.class", "com/example/Dep2.class", "native/windows/dep.dll");
+        File bundledReadme = new File(bin, "README.md");
+        FileUtils.writeStringToFile(bundledReadme, "readme", StandardCharsets.UTF_8);
+        Files.delete(bundledApp.toPath());
+        clearInvocations(packageService);
+
+        service.updatePlatformBundles(context, platformBundles, Arrays.asList(path(bundledDep), path(bundledReadme), path(bundledApp)));
+
+        assertEquals(Arrays.asList("com/example/Dep.class", "com/example/Dep2.class"), entries(new File(macBundle, "lib/dep.jar")));
+        assertTrue(new File(macBundle, "README.md").isFile());
+        assertFalse(new File(macBundle, "app.jar").exists());
+        verify(packageService).signPackage(context, macBundle, Arrays.asList(
+                path(new File(macBundle, "lib/dep.jar")).toFile(),
+                path(new File(macBundle, "README.md")).toFile(),
+                path(new File(macBundle, "app.jar")).toFile()
+        ));
+    }
+
+    @Test
+    void watcherBatchesChangesInNewDirectories(@TempDir Path tempDir) throws Exception {
+        File project = createProject(tempDir, new JSONObject());
+        try (RecursiveFileWatcher watcher = new RecursiveFileWatcher(project.toPath(), Arrays.asList("jdeploy-bundle"))) {
+            File newDir = new File(project, "build/libs");
+            newDir.mkdirs();
+            File jar = new File(newDir, "app.jar");
+            FileUtils.writeStringToFile(jar, "jar", StandardCharsets.UTF_8);
+            FileUtils.writeStringToFile(new File(project, "jdeploy-bundle/ignored.jar"), "jar", StandardCharsets.UTF_8);
+
+            RecursiveFileWatcher.Changes changes = assertTimeoutPreemptively(
+                    Duration.ofSeconds(30),
+                    () -> {
+                        RecursiveFileWatcher.Changes batch = watcher.takeChanges(500);
+                        while (!batch.getPaths().contains(path(jar)) && !batch.isOverflowed()) {
+                            batch = watcher.takeChanges(500);
+                        }
+                        return batch;
+                    }
+            );
+            assertTrue(changes.getPaths().contains(path(jar)) || changes.isOverflowed());
+            for (Path changed : changes.getPaths()) {
+                assertFalse(changed.startsWith(path(new File(project, "jdeploy-bundle"))));
+            }
+        }
+    }
+
+    private static PackageWatchService createService(Path tempDir) {
+        return createService(tempDir, null);
+    }
+
+    private static PackageWatchService createService(Path tempDir, PackageService packageService) {
+        JDeployIgnoreService ignoreService = new JDeployIgnoreService(new JDeployIgnoreFileParser());
+        PlatformSpecificJarProcessor jarProcessor = new PlatformSpecificJarProcessor(ignoreService);
+        return new PackageWatchService(
+                packageService,
+                new JarFinder(new ExecutableJarScanner(tempDir.resolve("jar-cache.properties").toFile())),
+                new ClassPathFinder(),
+                new PlatformBundleGenerator(
+                        jarProcessor,
+                        new DownloadPageSettingsService(new DownloadPageSettingsJsonReader(), new DownloadPageSettingsJsonWriter()),
+                        ignoreService,
+                        new NpmTarballWriter()
+                ),
+                jarProcessor,
+                new JDeployProjectFactory(new DefaultFileSystemInterface())
+        );
+    }
+
+    private static void writeJar(File jar, String... entries) throws IOException {
+        jar.getParentFile().mkdirs();
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            for (String entry : entries) {
+                out.putNextEntry(new ZipEntry(entry));
+                out.write(entry.getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+    }
+
+    private static List<String> entries(File jar) throws IOException {
+        try (JarFile jarFile = new JarFile(jar)) {
+            return jarFile.stream()
+                    .map(ZipEntry::getName)
+                    .filter(name -> !name.startsWith("META-INF/"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static File createProject(Path tempDir, JSONObject jdeploy) throws IOException {
+        File project = tempDir.resolve("project").toFile();
+        project.mkdirs();
+        jdeploy.put("jar", "target/app.jar");
+        JSONObject packageJSON = new JSONObject();
+        packageJSON.put("name", "watch-test");
+        packageJSON.put("version", "1.0.0");
+        packageJSON.put("jdeploy", jdeploy);
+        FileUtils.writeStringToFile(new File(project, "package.json"), packageJSON.toString(), StandardCharsets.UTF_8);
+
+        File dep = new File(project, "target/lib/dep.jar");
+        dep.getParentFile().mkdirs();
+        FileUtils.writeStringToFile(dep, "dependency", StandardCharsets.UTF_8);
+
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, "com.example.Main");
+        manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, "lib/dep.jar");
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(new File(project, "target/app.jar")), manifest)) {
+            // Manifest only
+        }
+        return project;
+    }
+
+    private static Path path(File file) {
+        return file.getAbsoluteFile().toPath().normalize();
+    }
+}
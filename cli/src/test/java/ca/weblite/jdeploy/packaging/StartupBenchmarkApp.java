@@ -0,0 +1,211 @@
+package ca.weblite.jdeploy.packaging;
+
+import org.apache.commons.io.FileUtils;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Generates apps for the startup benchmarks and times how long they take to show their main window.
+ *
+ * The generated {@code app.Main} calls the given startup code, then opens a window.  With a display
+ * it reports that it is ready from the window's {@code windowOpened} event; headless, right after
+ * the startup code.  It then keeps running like a GUI app, so the launch is bounded the same way
+ * as the training run of {@link JarLayoutOptimizer}: the harness stops it once it is ready.
+ */
+final class StartupBenchmarkApp {
+
+    private static final String READY = "READY ";
+
+    private static final String[] WORDS = {
+        "window", "button", "label", "panel", "layout", "border", "action", "listener", "model", "view",
+        "document", "table", "column", "row", "cell", "render", "editor", "focus", "mouse", "key",
+        "event", "dialog", "frame", "menu", "item", "toolbar", "status", "progress", "icon", "image",
+        "font", "color", "theme", "scroll", "split", "tab", "tree", "node", "path", "selection"
+    };
+
+    private StartupBenchmarkApp() {
+    }
+
+    /**
+     * Generates a class of a few KB with a static {@code run()} method that touches all of it.
+     */
+    static String classSource(String packageName, String name, Random random) {
+        StringBuilder out = new StringBuilder("package ").append(packageName).append(";\n\n")
+                .append("public class ").append(name).append(" {\n");
+        for (int field = 0; field < 8; field++) {
+            out.append("    private static final String TEXT").append(field).append(" = \"");
+            for (int word = 0; word < 24; word++) {
+                out.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            out.append("\";\n");
+        }
+        out.append("\n    public static int run() {\n        int hash = 0;\n");
+        for (int field = 0; field < 8; field++) {
+            out.append("        hash = 31 * hash + step").append(field).append("(TEXT").append(field).append(");\n");
+        }
+        out.append("        return hash;\n    }\n");
+        for (int field = 0; field < 8; field++) {
+            out.append("\n    private static int step").append(field).append("(String text) {\n")
+                    .append("        int h = ").append(random.nextInt(1000)).append(";\n")
+                    .append("        for (int i = 0; i < text.length(); i += ").append(1 + random.nextInt(7)).append(") {\n")
+                    .append("            h = h * ").append(3 + random.nextInt(40)).append(" + text.charAt(i);\n")
+                    .append("        }\n")
+                    .append("        return h;\n")
+                    .append("    }\n");
+        }
+        return out.append("}\n").toString();
+    }
+
+    /**
+     * Generates {@code app.Main}.
+     *
+     * @param startup statements run before the window opens; they may add to an int named
+     *                {@code total}
+     */
+    static String mainSource(CharSequence startup) {
+        return "package app;\n\n"
+                + "public class Main {\n"
+                + "    public static void main(String[] args) throws Exception {\n"
+                + "        if (java.awt.GraphicsEnvironment.isHeadless()) {\n"
+                + "            startup();\n"
+                + "            ready();\n"
+                + "        } else {\n"
+                + "            javax.swing.SwingUtilities.invokeLater(() -> {\n"
+                + "                javax.swing.JFrame frame = new javax.swing.JFrame(\"Benchmark \" + startup());\n"
+                + "                frame.addWindowListener(new java.awt.event.WindowAdapter() {\n"
+                + "                    @Override\n"
+                + "                    public void windowOpened(java.awt.event.WindowEvent e) {\n"
+                + "                        ready();\n"
+                + "                    }\n"
+                + "                });\n"
+                + "                frame.setSize(320, 200);\n"
+                + "                frame.setVisible(true);\n"
+                + "            });\n"
+                + "        }\n"
+                + "        Thread.sleep(Long.MAX_VALUE);\n"
+                + "    }\n\n"
+                + "    private static int startup() {\n"
+                + "        int total = 0;\n"
+                + startup
+                + "        return total;\n"
+                + "    }\n\n"
+                + "    private static void ready() {\n"
+                + "        String launched = System.getProperty(\"benchmark.launched\");\n"
+                + "        long elapsed = launched == null ? 0 : System.currentTimeMillis() - Long.parseLong(launched);\n"
+                + "        System.out.println(\"" + READY + "\" + elapsed);\n"
+                + "        System.out.flush();\n"
+                + "    }\n"
+                + "}\n";
+    }
+
+    /**
+     * Writes the sources under {@code src} and compiles them into {@code classes} for Java 8.
+     *
+     * @param sources source code by path relative to {@code src}
+     */
+    static void compile(File src, File classes, Map<String, String> sources) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assumeTrue(compiler != null, "A JDK is required to compile the benchmark app");
+        List<String> args = new ArrayList<>(Arrays.asList("-source", "8", "-target", "8", "-nowarn",
+                "-d", classes.getAbsolutePath()));
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            File file = new File(src, source.getKey());
+            FileUtils.writeStringToFile(file, source.getValue(), StandardCharsets.UTF_8);
+            args.add(file.getAbsolutePath());
+        }
+        assertTrue(classes.isDirectory() || classes.mkdirs());
+        assertEquals(0, compiler.run(null, null, null, args.toArray(new String[0])));
+    }
+
+    /**
+     * Writes a compressed jar of the given class files, in the given order.
+     *
+     * @param mainClass the Main-Class, or null for a library jar
+     * @param classPath the Class-Path, or null
+     */
+    static void writeJar(File jar, File classes, Collection<File> classFiles, String mainClass, String classPath)
+            throws Exception {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        if (mainClass != null) {
+            manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, mainClass);
+        }
+        if (classPath != null) {
+            manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, classPath);
+        }
+        assertTrue(jar.getParentFile().isDirectory() || jar.getParentFile().mkdirs());
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar), manifest)) {
+            for (File classFile : classFiles) {
+                out.putNextEntry(new ZipEntry(classes.toURI().relativize(classFile.toURI()).getPath()));
+                out.write(Files.readAllBytes(classFile.toPath()));
+                out.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Launches the app and stops it once it reports that its main window is ready.
+     *
+     * @param dropCaches whether to drop the page cache first, which needs root on Linux
+     * @return the milliseconds from launch until ready, as measured by the app
+     */
+    static long timeToReady(File javaHome, File jar, boolean dropCaches) throws Exception {
+        if (dropCaches) {
+            dropPageCache();
+        }
+        String java = javaHome.getAbsolutePath() + File.separator + "bin" + File.separator + "java";
+        Process process = new ProcessBuilder(java, "-Dbenchmark.launched=" + System.currentTimeMillis(),
+                "-jar", jar.getAbsolutePath())
+                .redirectErrorStream(true)
+                .start();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            List<String> output = new ArrayList<>();
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith(READY)) {
+                    return Long.parseLong(line.substring(READY.length()).trim());
+                }
+                output.add(line);
+            }
+            fail("The app exited without becoming ready: " + output);
+            return -1;
+        } finally {
+            process.destroyForcibly();
+            process.waitFor(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void dropPageCache() throws Exception {
+        File dropCaches = new File("/proc/sys/vm/drop_caches");
+        assumeTrue(dropCaches.canWrite(), "Dropping the page cache needs root on Linux");
+        assertEquals(0, new ProcessBuilder("sync").inheritIO().start().waitFor());
+        FileUtils.writeStringToFile(dropCaches, "3", StandardCharsets.US_ASCII);
+    }
+
+    static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
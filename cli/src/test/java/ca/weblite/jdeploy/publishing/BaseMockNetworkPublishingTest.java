@@ -275,7 +275,8 @@ public abstract class BaseMockNetworkPublishingTest {
                 cheerpjServiceFactory, releaseCreator, downloadPageSettingsService,
                 platformBundleGenerator, defaultBundleService, projectFactory,
                 environment, jdeployFilesZipGenerator,
-                publishBundleService, bundleUploadRouter, bundleChecksumWriter
+                publishBundleService, bundleUploadRouter, bundleChecksumWriter,
+                new DeltaBlobWriter()
         );
         githubDriver.setGithubUrl(getGithubBaseUrl());
 
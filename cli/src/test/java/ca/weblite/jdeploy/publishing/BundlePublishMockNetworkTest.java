@@ -230,7 +230,8 @@ class BundlePublishMockNetworkTest extends BaseMockNetworkPublishingTest {
                 cheerpjServiceFactory, releaseCreator, downloadPageSettingsService,
                 platformBundleGenerator, defaultBundleService, projectFactory,
                 environment, jdeployFilesZipGenerator,
-                publishBundleService, bundleUploadRouter, bundleChecksumWriter
+                publishBundleService, bundleUploadRouter, bundleChecksumWriter,
+                new DeltaBlobWriter()
         );
         githubDriver.setGithubUrl(getGithubBaseUrl());
 
@@ -694,7 +695,8 @@ class BundlePublishMockNetworkTest extends BaseMockNetworkPublishingTest {
 
         // Use REAL PublishBundleService with mocked signing
         PublishBundleService publishBundleService = new PublishBundleService(
-                packagingConfig, signingService, signingConfigFactory
+                packagingConfig, signingService, signingConfigFactory,
+                PublishBundleCache.disabled()
         );
 
         // Use REAL BundleUploadRouter (with S3 disabled)
@@ -710,7 +712,8 @@ class BundlePublishMockNetworkTest extends BaseMockNetworkPublishingTest {
                 cheerpjServiceFactory, releaseCreator, downloadPageSettingsService,
                 platformBundleGenerator, defaultBundleService, projectFactory,
                 environment, jdeployFilesZipGenerator,
-                publishBundleService, bundleUploadRouter, bundleChecksumWriter
+                publishBundleService, bundleUploadRouter, bundleChecksumWriter,
+                new DeltaBlobWriter()
         );
         githubDriver.setGithubUrl(getGithubBaseUrl());
 
@@ -0,0 +1,106 @@
+package ca.weblite.jdeploy.publishing;
+
+import ca.weblite.jdeploy.delta.DeltaManifest;
+import ca.weblite.jdeploy.models.Platform;
+import ca.weblite.jdeploy.npm.NpmTarballWriter;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeltaBlobWriterTest {
+
+    @Test
+    void writesIndexPerBundleAndPacksDistinctBlobs(@TempDir Path tempDir) throws IOException {
+        File publishDir = tempDir.resolve("publish").toFile();
+        write(new File(publishDir, "package.json"), "{\"name\":\"myapp\",\"version\":\"1.0.1\"}");
+        write(new File(publishDir, "jdeploy-bundle/app.jar"), "app");
+        write(new File(publishDir, "jdeploy-bundle/lib/native.jar"), "all natives");
+
+        Map<String, NpmTarballWriter.Content> entries = new LinkedHashMap<>();
+        entries.put("package.json", content("{\"name\":\"myapp-mac-arm64\",\"version\":\"1.0.1\"}"));
+        entries.put("jdeploy-bundle/app.jar", content("app"));
+        entries.put("jdeploy-bundle/lib/native.jar", content("mac natives"));
+        entries.put("jdeploy-bundle/bin/launcher", content("launcher"));
+        File tarball = tempDir.resolve("myapp-1.0.1-mac-arm64.tgz").toFile();
+        new NpmTarballWriter().write(entries, Collections.singleton("jdeploy-bundle/bin/launcher"), tarball);
+
+        File releaseDir = tempDir.resolve("release").toFile();
+        int blobs = new DeltaBlobWriter().write(
+                publishDir,
+                Collections.singletonMap(Platform.MAC_ARM64, tarball),
+                releaseDir,
+                new PrintStream(new ByteArrayOutputStream())
+        );
+
+        // package.json x2, app.jar (shared), two native jars, launcher
+        assertEquals(6, blobs);
+        File[] packs = releaseDir.listFiles((dir, name) -> name.endsWith(DeltaManifest.PACK_SUFFIX));
+        assertEquals(1, packs.length);
+        assertEquals(DeltaManifest.getPackName(DeltaManifest.sha256(packs[0])), packs[0].getName());
+
+        DeltaManifest universal = read(new File(releaseDir, DeltaManifest.FILE_NAME));
+        assertEquals(Collections.singletonList("mac-arm64"), universal.getPlatforms());
+        assertEquals("all natives", blob(packs[0], universal.getEntries().get("lib/native.jar")));
+        assertEquals("{\"name\":\"myapp\",\"version\":\"1.0.1\"}", blob(packs[0], universal.getPackageJson()));
+
+        DeltaManifest mac = read(new File(releaseDir, DeltaManifest.getFileName("mac-arm64")));
+        assertEquals(Arrays.asList("app.jar", "bin/launcher", "lib/native.jar"),
+                Arrays.asList(mac.getEntries().keySet().toArray()));
+        assertEquals("mac natives", blob(packs[0], mac.getEntries().get("lib/native.jar")));
+        assertEquals("{\"name\":\"myapp-mac-arm64\",\"version\":\"1.0.1\"}", blob(packs[0], mac.getPackageJson()));
+        assertTrue(mac.getEntries().get("bin/launcher").isExecutable());
+        assertEquals(
+                universal.getEntries().get("app.jar").getLocation().getOffset(),
+                mac.getEntries().get("app.jar").getLocation().getOffset()
+        );
+    }
+
+    @Test
+    void splitsLargeReleasesIntoSeveralPacks(@TempDir Path tempDir) throws IOException {
+        File publishDir = tempDir.resolve("publish").toFile();
+        byte[] large = new byte[(int) (DeltaBlobWriter.MAX_PACK_SIZE / 2 + 1)];
+        for (int i = 0; i < 3; i++) {
+            large[0] = (byte) i;
+            FileUtils.writeByteArrayToFile(new File(publishDir, "jdeploy-bundle/lib/large" + i + ".jar"), large);
+        }
+
+        File releaseDir = tempDir.resolve("release").toFile();
+        new DeltaBlobWriter().write(publishDir, Collections.emptyMap(), releaseDir, new PrintStream(new ByteArrayOutputStream()));
+
+        assertEquals(3, releaseDir.listFiles((dir, name) -> name.endsWith(DeltaManifest.PACK_SUFFIX)).length);
+        for (DeltaManifest.Entry entry : read(new File(releaseDir, DeltaManifest.FILE_NAME)).getEntries().values()) {
+            assertEquals(0, entry.getLocation().getOffset());
+        }
+    }
+
+    private static NpmTarballWriter.Content content(String text) {
+        return NpmTarballWriter.Content.of(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String blob(File pack, DeltaManifest.Entry entry) throws IOException {
+        byte[] bytes = Files.readAllBytes(pack.toPath());
+        return new String(bytes, (int) entry.getLocation().getOffset(), (int) entry.getSize(), StandardCharsets.UTF_8);
+    }
+
+    private static DeltaManifest read(File index) throws IOException {
+        return DeltaManifest.fromJson(FileUtils.readFileToString(index, StandardCharsets.UTF_8));
+    }
+
+    private static void write(File file, String content) throws IOException {
+        FileUtils.writeStringToFile(file, content, StandardCharsets.UTF_8);
+    }
+}
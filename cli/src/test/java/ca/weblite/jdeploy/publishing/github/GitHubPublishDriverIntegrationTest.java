@@ -11,12 +11,14 @@ import ca.weblite.jdeploy.packaging.*;
 import ca.weblite.jdeploy.publishTargets.PublishTargetInterface;
 import ca.weblite.jdeploy.publishTargets.PublishTargetType;
 import ca.weblite.jdeploy.publishing.BasePublishDriver;
+import ca.weblite.jdeploy.publishing.DeltaBlobWriter;
 import ca.weblite.jdeploy.publishing.PublishingContext;
 import ca.weblite.jdeploy.services.BundleCodeService;
 import ca.weblite.jdeploy.services.PackageNameService;
 import ca.weblite.jdeploy.services.CheerpjService;
 import ca.weblite.jdeploy.environment.Environment;
 import ca.weblite.jdeploy.services.ProjectBuilderService;
+import ca.weblite.jdeploy.services.SystemJdkFinder;
 import ca.weblite.jdeploy.services.WindowsSigningService;
 import ca.weblite.jdeploy.services.WindowsSigningConfigFactory;
 import org.apache.commons.io.FileUtils;
@@ -110,7 +112,9 @@ public class GitHubPublishDriverIntegrationTest {
             packagingConfig,
             permissionRequestService,
             windowsSigningService,
-            windowsSigningConfigFactory
+            windowsSigningConfigFactory,
+            new DependencyShrinker(classPathFinder),
+            new JarLayoutOptimizer(new SystemJdkFinder())
         );
         
         // Create BasePublishDriver that uses our real PackageService
@@ -167,7 +171,8 @@ public class GitHubPublishDriverIntegrationTest {
             mock(ca.weblite.jdeploy.services.JDeployFilesZipGenerator.class),
             mock(ca.weblite.jdeploy.services.PublishBundleService.class),
             mock(ca.weblite.jdeploy.publishing.BundleUploadRouter.class),
-            mock(ca.weblite.jdeploy.publishing.BundleChecksumWriter.class)
+            mock(ca.weblite.jdeploy.publishing.BundleChecksumWriter.class),
+            new DeltaBlobWriter()
         );
         
         // Setup test target
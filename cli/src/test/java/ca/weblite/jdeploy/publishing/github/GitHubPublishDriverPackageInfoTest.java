@@ -5,6 +5,7 @@ import ca.weblite.jdeploy.environment.Environment;
 import ca.weblite.jdeploy.npm.NPM;
 import ca.weblite.jdeploy.packaging.PackagingContext;
 import ca.weblite.jdeploy.publishTargets.PublishTargetInterface;
+import ca.weblite.jdeploy.publishing.DeltaBlobWriter;
 import ca.weblite.jdeploy.publishing.PublishingContext;
 import ca.weblite.jdeploy.services.BundleCodeService;
 import ca.weblite.jdeploy.services.PackageNameService;
@@ -142,7 +143,8 @@ class GitHubPublishDriverPackageInfoTest {
                 mock(ca.weblite.jdeploy.services.JDeployFilesZipGenerator.class),
                 mock(ca.weblite.jdeploy.services.PublishBundleService.class),
                 mock(ca.weblite.jdeploy.publishing.BundleUploadRouter.class),
-                mock(ca.weblite.jdeploy.publishing.BundleChecksumWriter.class)
+                mock(ca.weblite.jdeploy.publishing.BundleChecksumWriter.class),
+                new DeltaBlobWriter()
         );
     }
 
@@ -10,6 +10,7 @@ import ca.weblite.jdeploy.publishTargets.PublishTargetInterface;
 import ca.weblite.jdeploy.publishTargets.PublishTargetType;
 import ca.weblite.jdeploy.publishing.BasePublishDriver;
 import ca.weblite.jdeploy.publishing.OneTimePasswordProviderInterface;
+import ca.weblite.jdeploy.publishing.DeltaBlobWriter;
 import ca.weblite.jdeploy.publishing.PublishingContext;
 import ca.weblite.jdeploy.services.BundleCodeService;
 import ca.weblite.jdeploy.services.CheerpjService;
@@ -115,7 +116,8 @@ class GitHubPublishDriverTest {
                 mock(ca.weblite.jdeploy.services.JDeployFilesZipGenerator.class),
                 mock(ca.weblite.jdeploy.services.PublishBundleService.class),
                 mock(ca.weblite.jdeploy.publishing.BundleUploadRouter.class),
-                mock(ca.weblite.jdeploy.publishing.BundleChecksumWriter.class)
+                mock(ca.weblite.jdeploy.publishing.BundleChecksumWriter.class),
+                new DeltaBlobWriter()
         );
 
         packageJsonFile = new File(tempDir, "package.json");
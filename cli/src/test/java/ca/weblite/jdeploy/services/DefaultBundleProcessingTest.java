@@ -2,6 +2,7 @@ package ca.weblite.jdeploy.services;
 
 import ca.weblite.jdeploy.models.JDeployProject;
 import ca.weblite.jdeploy.models.Platform;
+import ca.weblite.jdeploy.npm.NpmTarballWriter;
 import org.apache.commons.io.FileUtils;
 import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
@@ -39,7 +40,7 @@ public class DefaultBundleProcessingTest {
         parser = new JDeployIgnoreFileParser();
         ignoreService = new JDeployIgnoreService(parser);
         jarProcessor = new PlatformSpecificJarProcessor(ignoreService);
-        bundleGenerator = new PlatformBundleGenerator(jarProcessor, null, ignoreService);
+        bundleGenerator = new PlatformBundleGenerator(jarProcessor, null, ignoreService, new NpmTarballWriter());
     }
 
     @Test
@@ -2,6 +2,7 @@ package ca.weblite.jdeploy.services;
 
 import ca.weblite.jdeploy.models.JDeployProject;
 import ca.weblite.jdeploy.models.Platform;
+import ca.weblite.jdeploy.npm.NpmTarballWriter;
 import ca.weblite.jdeploy.downloadPage.DownloadPageSettingsService;
 import ca.weblite.jdeploy.downloadPage.DownloadPageSettings;
 import org.apache.commons.io.FileUtils;
@@ -53,7 +54,7 @@ public class JDeployIgnoreWorkflowTest {
         when(mockSettings.getResolvedPlatforms()).thenReturn(defaultPlatforms);
         when(downloadPageSettingsService.read(any(JSONObject.class))).thenReturn(mockSettings);
         
-        bundleGenerator = new PlatformBundleGenerator(jarProcessor, downloadPageSettingsService, ignoreService);
+        bundleGenerator = new PlatformBundleGenerator(jarProcessor, downloadPageSettingsService, ignoreService, new NpmTarballWriter());
     }
 
     @Test
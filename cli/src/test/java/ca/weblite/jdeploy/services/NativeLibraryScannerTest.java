@@ -0,0 +1,134 @@
+package ca.weblite.jdeploy.services;
+
+import ca.weblite.jdeploy.models.Platform;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+
+class NativeLibraryScannerTest {
+
+    @Test
+    void reportsFootprintPerPlatform(@TempDir Path tempDir) throws IOException {
+        File jar = createJar(tempDir.resolve("natives.jar").toFile(),
+                "com/sun/jna/darwin-aarch64/libjnidispatch.jnilib",
+                "com/sun/jna/win32-x86-64/jnidispatch.dll",
+                "com/sun/jna/linux-x86-64/libjnidispatch.so",
+                "com/sun/jna/Native.class"
+        );
+        File plain = createJar(tempDir.resolve("plain.jar").toFile(), "com/example/App.class");
+        NativeLibraryScanner scanner = createScanner(tempDir);
+
+        NativeLibraryScanner.Report report = scanner.scan(Arrays.asList(jar, plain), null);
+
+        assertEquals(Arrays.asList("linux-x64", "mac-arm64", "win-x64"),
+                Arrays.asList(report.getBytesByPlatform().keySet().toArray()));
+        long dylib = report.getJars().get(jar).getNativeFiles().get("com/sun/jna/darwin-aarch64/libjnidispatch.jnilib");
+        assertEquals(report.getTotalNativeBytes() - dylib, (long) report.getSavings().get(Platform.MAC_ARM64));
+        assertEquals(report.getTotalNativeBytes(), (long) report.getSavings().get(Platform.MAC_X64));
+        assertTrue(report.getJars().get(plain).getNativeFiles().isEmpty());
+    }
+
+    @Test
+    void namespacesMatchJarProcessor(@TempDir Path tempDir) throws IOException {
+        File jar = createJar(tempDir.resolve("natives.jar").toFile(),
+                "ca/weblite/native/mac/x64/libfoo.dylib",
+                "native/windows/foo.dll",
+                "com/example/App.class"
+        );
+
+        NativeLibraryScanner.JarScan scan = createScanner(tempDir).scan(jar);
+
+        assertEquals(
+                new java.util.TreeSet<>(new PlatformSpecificJarProcessor(mock(JDeployIgnoreService.class)).scanJarForNativeNamespaces(jar)),
+                new java.util.TreeSet<>(scan.getNamespaces())
+        );
+    }
+
+    @Test
+    void printsDetectedNamespaces(@TempDir Path tempDir) throws IOException {
+        File jar = createJar(tempDir.resolve("natives.jar").toFile(),
+                "ca/weblite/native/mac/x64/libfoo.dylib",
+                "com/example/App.class"
+        );
+        NativeLibraryScanner.Report report = createScanner(tempDir).scan(Arrays.asList(jar), null);
+        assertFalse(report.getNamespaces().isEmpty());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        report.print(new PrintStream(out, true, "UTF-8"));
+
+        String printed = out.toString("UTF-8");
+        assertTrue(printed.contains("JNI namespaces:"), printed);
+        for (String namespace : report.getNamespaces()) {
+            assertTrue(printed.contains("  " + namespace + "\n") || printed.contains("  " + namespace + System.lineSeparator()),
+                    printed);
+        }
+    }
+
+    @Test
+    void removesTempFileWhenCacheCannotBeSaved(@TempDir Path tempDir) throws IOException {
+        File jar = createJar(tempDir.resolve("natives.jar").toFile(), "lib/foo.so");
+        // A non-empty directory where the cache file should go makes the final move fail
+        File cacheFile = tempDir.resolve("cache").resolve("native-cache.json").toFile();
+        assertTrue(new File(cacheFile, "blocker").mkdirs());
+
+        new NativeLibraryScanner(mock(JDeployIgnoreService.class), cacheFile).scan(Arrays.asList(jar), null);
+
+        String[] leftovers = cacheFile.getParentFile().list((dir, name) -> name.endsWith(".tmp"));
+        assertEquals(0, leftovers.length, Arrays.toString(leftovers));
+    }
+
+    @Test
+    void reusesCachedResultsForUnchangedJars(@TempDir Path tempDir) throws IOException {
+        File jar = createJar(tempDir.resolve("natives.jar").toFile(), "lib/foo.so");
+        createScanner(tempDir).scan(Arrays.asList(jar), null);
+        long lastModified = jar.lastModified();
+        long length = jar.length();
+
+        // Replace the jar with different content of the same size and timestamp
+        createJar(jar, "lib/bar.so");
+        assertTrue(jar.setLastModified(lastModified));
+        assumeTrue(jar.length() == length);
+        NativeLibraryScanner.JarScan cached = createScanner(tempDir).scan(jar);
+        assertTrue(cached.getNativeFiles().containsKey("lib/foo.so"), "Unchanged size and timestamp should hit the cache");
+
+        jar.setLastModified(lastModified + 2000);
+        assertTrue(createScanner(tempDir).scan(jar).getNativeFiles().containsKey("lib/bar.so"));
+    }
+
+    @Test
+    void classifiesCommonLayouts() {
+        assertEquals("mac-arm64", NativeLibraryScanner.classify("org/lwjgl/macos/arm64/liblwjgl.dylib"));
+        assertEquals("win-x64", NativeLibraryScanner.classify("natives/windows-amd64/sqlite.dll"));
+        assertEquals("linux-x64", NativeLibraryScanner.classify("org/sqlite/native/Linux/x86_64/libsqlitejdbc.so"));
+        assertEquals("win-x86", NativeLibraryScanner.classify("com/sun/jna/win32-x86/jnidispatch.dll"));
+        assertEquals("mac", NativeLibraryScanner.classify("com/sun/jna/darwin/libjnidispatch.jnilib"));
+    }
+
+    private static NativeLibraryScanner createScanner(Path tempDir) {
+        return new NativeLibraryScanner(mock(JDeployIgnoreService.class), tempDir.resolve("native-cache.json").toFile());
+    }
+
+    private static File createJar(File file, String... entries) throws IOException {
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+            for (String entry : entries) {
+                out.putNextEntry(new ZipEntry(entry));
+                out.write(("content of " + entry).getBytes());
+                out.closeEntry();
+            }
+        }
+        return file;
+    }
+}
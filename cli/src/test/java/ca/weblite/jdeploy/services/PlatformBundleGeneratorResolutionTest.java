@@ -2,6 +2,7 @@ package ca.weblite.jdeploy.services;
 
 import ca.weblite.jdeploy.models.JDeployProject;
 import ca.weblite.jdeploy.models.Platform;
+import ca.weblite.jdeploy.npm.NpmTarballWriter;
 import ca.weblite.jdeploy.downloadPage.DownloadPageSettingsService;
 import ca.weblite.jdeploy.downloadPage.DownloadPageSettings;
 import org.apache.commons.io.FileUtils;
@@ -55,7 +56,7 @@ class PlatformBundleGeneratorResolutionTest {
         DownloadPageSettings defaultSettings = new DownloadPageSettings();
         when(downloadPageSettingsService.read(any(JSONObject.class))).thenReturn(defaultSettings);
         
-        generator = new PlatformBundleGenerator(jarProcessor, downloadPageSettingsService, mockIgnoreService);
+        generator = new PlatformBundleGenerator(jarProcessor, downloadPageSettingsService, mockIgnoreService, new NpmTarballWriter());
         project = createTestProject();
     }
 
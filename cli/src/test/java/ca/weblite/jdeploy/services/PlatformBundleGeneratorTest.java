@@ -2,7 +2,7 @@ package ca.weblite.jdeploy.services;
 
 import ca.weblite.jdeploy.models.JDeployProject;
 import ca.weblite.jdeploy.models.Platform;
-import ca.weblite.jdeploy.npm.NPM;
+import ca.weblite.jdeploy.npm.NpmTarballWriter;
 import ca.weblite.jdeploy.downloadPage.DownloadPageSettingsService;
 import ca.weblite.jdeploy.downloadPage.DownloadPageSettings;
 import org.apache.commons.io.FileUtils;
@@ -29,9 +29,6 @@ public class PlatformBundleGeneratorTest {
     private PlatformSpecificJarProcessor jarProcessor;
     private PlatformBundleGenerator generator;
     
-    @Mock
-    private NPM npm;
-    
     @Mock
     private DownloadPageSettingsService downloadPageSettingsService;
 
@@ -52,7 +49,7 @@ public class PlatformBundleGeneratorTest {
         DownloadPageSettings defaultSettings = new DownloadPageSettings();
         when(downloadPageSettingsService.read(any(JSONObject.class))).thenReturn(defaultSettings);
         
-        generator = new PlatformBundleGenerator(jarProcessor, downloadPageSettingsService, mockIgnoreService);
+        generator = new PlatformBundleGenerator(jarProcessor, downloadPageSettingsService, mockIgnoreService, new NpmTarballWriter());
     }
 
     @Test
@@ -88,7 +85,7 @@ public class PlatformBundleGeneratorTest {
         // Update to use real ignore service that can detect the files
         JDeployIgnoreService realIgnoreService = new JDeployIgnoreService(new JDeployIgnoreFileParser());
         jarProcessor = new PlatformSpecificJarProcessor(realIgnoreService);
-        generator = new PlatformBundleGenerator(jarProcessor, downloadPageSettingsService, realIgnoreService);
+        generator = new PlatformBundleGenerator(jarProcessor, downloadPageSettingsService, realIgnoreService, new NpmTarballWriter());
         
         assertTrue(generator.shouldGeneratePlatformBundles(project));
         
@@ -132,7 +129,7 @@ public class PlatformBundleGeneratorTest {
         // Update mock to return true when ignore files exist
         JDeployIgnoreService realIgnoreService = new JDeployIgnoreService(new JDeployIgnoreFileParser());
         jarProcessor = new PlatformSpecificJarProcessor(realIgnoreService);
-        generator = new PlatformBundleGenerator(jarProcessor, downloadPageSettingsService, realIgnoreService);
+        generator = new PlatformBundleGenerator(jarProcessor, downloadPageSettingsService, realIgnoreService, new NpmTarballWriter());
         
         File universalDir = createUniversalBundle();
         File outputDir = tempDir.resolve("output").toFile();
@@ -224,42 +221,71 @@ public class PlatformBundleGeneratorTest {
         // Update to use real ignore service
         JDeployIgnoreService realIgnoreService = new JDeployIgnoreService(new JDeployIgnoreFileParser());
         jarProcessor = new PlatformSpecificJarProcessor(realIgnoreService);
-        generator = new PlatformBundleGenerator(jarProcessor, downloadPageSettingsService, realIgnoreService);
+        generator = new PlatformBundleGenerator(jarProcessor, downloadPageSettingsService, realIgnoreService, new NpmTarballWriter());
         
         File universalDir = createUniversalBundle();
         File outputDir = tempDir.resolve("tarballs").toFile();
         outputDir.mkdirs();
 
-        // Mock npm.pack() to create the expected tarball files
-        doAnswer(invocation -> {
-            File bundleDir = invocation.getArgument(0);
-            File targetOutputDir = invocation.getArgument(1);
-            
-            // Read the package.json to get the name npm pack would use
-            File packageJsonFile = new File(bundleDir, "package.json");
-            if (packageJsonFile.exists()) {
-                String content = FileUtils.readFileToString(packageJsonFile, "UTF-8");
-                JSONObject packageJson = new JSONObject(content);
-                String packageName = packageJson.optString("name", "app");
-                String version = packageJson.optString("version", "1.0.0");
-                
-                // Create the tarball file that npm pack would create
-                File tarballFile = new File(targetOutputDir, packageName + "-" + version + ".tgz");
-                tarballFile.createNewFile();
-            }
-            return null;
-        }).when(npm).pack(any(File.class), any(File.class), anyBoolean());
-
-        Map<Platform, File> tarballs = generator.generatePlatformTarballs(project, universalDir, outputDir, npm, false);
+        Map<Platform, File> tarballs = generator.generatePlatformTarballs(project, universalDir, outputDir);
 
         assertEquals(1, tarballs.size());
         
         File macTarball = tarballs.get(Platform.MAC_X64);
         assertNotNull(macTarball);
         assertEquals("myapp-1.0.0-mac-x64.tgz", macTarball.getName());
-        
-        // Verify npm.pack was called for each platform
-        verify(npm, times(1)).pack(any(File.class), eq(outputDir), eq(false));
+        assertTrue(macTarball.isFile());
+
+        // Tarballs are written in-process using npm's package/ layout
+        Map<String, byte[]> entries = readTarball(macTarball);
+        assertEquals(Arrays.asList("package/package.json", "package/jdeploy.js", "package/test.jar"),
+                new ArrayList<>(entries.keySet()));
+        JSONObject packageJson = new JSONObject(new String(entries.get("package/package.json"), "UTF-8"));
+        assertEquals("myapp-temp-mac-x64", packageJson.getString("name"));
+        assertEquals("mac-x64", packageJson.getJSONObject("jdeploy").getString("platformVariant"));
+
+        // Output is reproducible byte-for-byte
+        byte[] firstRun = FileUtils.readFileToByteArray(macTarball);
+        generator.generatePlatformTarballs(project, universalDir, outputDir);
+        assertArrayEquals(firstRun, FileUtils.readFileToByteArray(macTarball));
+    }
+
+    @Test
+    public void testGeneratePlatformTarballs_FiltersJarsWithoutTouchingUniversalBundle() throws IOException {
+        JDeployProject project = createProject(true, Collections.emptyMap(), Collections.emptyMap());
+        File projectDir = project.getPackageJSONFile().toFile().getParentFile();
+        FileUtils.writeStringToFile(new File(projectDir, ".jdpignore"), "com.example.test.native\n", "UTF-8");
+        FileUtils.writeStringToFile(new File(projectDir, ".jdpignore.mac-x64"), "!ca.weblite.native.mac.x64\n", "UTF-8");
+        FileUtils.writeStringToFile(new File(projectDir, ".jdpignore.win-x64"), "ca.weblite.native.mac.x64\n", "UTF-8");
+
+        JDeployIgnoreService realIgnoreService = new JDeployIgnoreService(new JDeployIgnoreFileParser());
+        jarProcessor = new PlatformSpecificJarProcessor(realIgnoreService);
+        generator = new PlatformBundleGenerator(jarProcessor, downloadPageSettingsService, realIgnoreService, new NpmTarballWriter());
+
+        File universalDir = createUniversalBundle();
+        File jar = new File(universalDir, "jdeploy-bundle/app.jar");
+        jar.getParentFile().mkdirs();
+        createTestJar(jar,
+                "com/example/App.class",
+                "com/example/test/native/lib.so",
+                "ca/weblite/native/mac/x64/lib.dylib");
+        byte[] originalJar = FileUtils.readFileToByteArray(jar);
+        File outputDir = tempDir.resolve("tarballs").toFile();
+
+        Map<Platform, File> tarballs = generator.generatePlatformTarballs(project, universalDir, outputDir);
+
+        assertArrayEquals(originalJar, FileUtils.readFileToByteArray(jar), "Universal bundle must not be modified");
+        assertTrue(tarballs.containsKey(Platform.MAC_X64));
+        assertTrue(tarballs.containsKey(Platform.WIN_X64));
+
+        Set<String> macEntries = readJarEntries(readTarball(tarballs.get(Platform.MAC_X64)).get("package/jdeploy-bundle/app.jar"));
+        assertTrue(macEntries.contains("com/example/App.class"));
+        assertFalse(macEntries.contains("com/example/test/native/lib.so"));
+        assertTrue(macEntries.contains("ca/weblite/native/mac/x64/lib.dylib"));
+
+        Set<String> winEntries = readJarEntries(readTarball(tarballs.get(Platform.WIN_X64)).get("package/jdeploy-bundle/app.jar"));
+        assertTrue(winEntries.contains("com/example/App.class"));
+        assertFalse(winEntries.contains("ca/weblite/native/mac/x64/lib.dylib"));
     }
 
     @Test
@@ -277,7 +303,7 @@ public class PlatformBundleGeneratorTest {
         // Update to use real ignore service
         JDeployIgnoreService realIgnoreService = new JDeployIgnoreService(new JDeployIgnoreFileParser());
         jarProcessor = new PlatformSpecificJarProcessor(realIgnoreService);
-        generator = new PlatformBundleGenerator(jarProcessor, downloadPageSettingsService, realIgnoreService);
+        generator = new PlatformBundleGenerator(jarProcessor, downloadPageSettingsService, realIgnoreService, new NpmTarballWriter());
         
         File nonExistentDir = new File(tempDir.toFile(), "nonexistent");
         File outputDir = tempDir.resolve("output").toFile();
@@ -698,6 +724,31 @@ public class PlatformBundleGeneratorTest {
         return universalDir;
     }
 
+    private Map<String, byte[]> readTarball(File tarball) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (org.apache.commons.compress.archivers.tar.TarArchiveInputStream tis =
+                     new org.apache.commons.compress.archivers.tar.TarArchiveInputStream(
+                             new java.util.zip.GZIPInputStream(new java.io.FileInputStream(tarball)))) {
+            org.apache.commons.compress.archivers.tar.TarArchiveEntry entry;
+            while ((entry = tis.getNextTarEntry()) != null) {
+                entries.put(entry.getName(), org.apache.commons.io.IOUtils.toByteArray(tis));
+            }
+        }
+        return entries;
+    }
+
+    private Set<String> readJarEntries(byte[] jarBytes) throws IOException {
+        assertNotNull(jarBytes);
+        Set<String> names = new HashSet<>();
+        try (java.util.jar.JarInputStream jis = new java.util.jar.JarInputStream(new java.io.ByteArrayInputStream(jarBytes))) {
+            java.util.jar.JarEntry entry;
+            while ((entry = jis.getNextJarEntry()) != null) {
+                names.add(entry.getName());
+            }
+        }
+        return names;
+    }
+
     private void createTestJar(File jarFile, String... entryNames) throws IOException {
         try (java.util.jar.JarOutputStream jos = new java.util.jar.JarOutputStream(new java.io.FileOutputStream(jarFile))) {
             for (String entryName : entryNames) {
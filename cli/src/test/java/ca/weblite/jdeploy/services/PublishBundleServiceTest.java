@@ -1,15 +1,22 @@
 package ca.weblite.jdeploy.services;
 
+import ca.weblite.jdeploy.app.AppInfo;
+import ca.weblite.jdeploy.appbundler.AppDescription;
 import ca.weblite.jdeploy.appbundler.Bundler;
 import ca.weblite.jdeploy.appbundler.BundlerResult;
 import ca.weblite.jdeploy.models.BundleArtifact;
 import ca.weblite.jdeploy.models.BundleManifest;
 import ca.weblite.jdeploy.config.Config;
+import ca.weblite.jdeploy.helpers.LauncherWriterHelper;
 import ca.weblite.jdeploy.packaging.PackagingConfig;
 import ca.weblite.jdeploy.packaging.PackagingContext;
 import ca.weblite.jdeploy.publishing.BundleChecksumWriter;
 import com.codename1.io.JSONParser;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -47,7 +54,8 @@ class PublishBundleServiceTest {
         publishBundleService = new PublishBundleService(
                 new PackagingConfig(new Config()),
                 new WindowsSigningService(),
-                new WindowsSigningConfigFactory()
+                new WindowsSigningConfigFactory(),
+                PublishBundleCache.disabled()
         );
 
         // Create a fake JAR file so the bundler has something to reference
@@ -760,7 +768,8 @@ class PublishBundleServiceTest {
         PublishBundleService service = new PublishBundleService(
                 new PackagingConfig(new Config()),
                 mockSigningService,
-                mockConfigFactory
+                mockConfigFactory,
+                PublishBundleCache.disabled()
         );
 
         Map<String, Object> packageJson = createPackageJson(true, "win-x64", "win-arm64");
@@ -792,7 +801,8 @@ class PublishBundleServiceTest {
         PublishBundleService service = new PublishBundleService(
                 new PackagingConfig(new Config()),
                 mockSigningService,
-                mockConfigFactory
+                mockConfigFactory,
+                PublishBundleCache.disabled()
         );
 
         Map<String, Object> packageJson = createPackageJson(false, "mac-arm64", "linux-x64");
@@ -832,7 +842,8 @@ class PublishBundleServiceTest {
         PublishBundleService service = new PublishBundleService(
                 new PackagingConfig(new Config()),
                 mockSigningService,
-                mockConfigFactory
+                mockConfigFactory,
+                PublishBundleCache.disabled()
         );
 
         Map<String, Object> packageJson = createPackageJson(true, "win-x64");
@@ -860,7 +871,8 @@ class PublishBundleServiceTest {
         PublishBundleService service = new PublishBundleService(
                 new PackagingConfig(new Config()),
                 mockSigningService,
-                mockConfigFactory
+                mockConfigFactory,
+                PublishBundleCache.disabled()
         );
 
         // Include commands to trigger CLI bundle creation for Windows
@@ -904,7 +916,8 @@ class PublishBundleServiceTest {
         PublishBundleService service = new PublishBundleService(
                 new PackagingConfig(new Config()),
                 mockSigningService,
-                mockConfigFactory
+                mockConfigFactory,
+                PublishBundleCache.disabled()
         );
 
         Map<String, Object> packageJson = createPackageJson(false, "win-x64");
@@ -923,6 +936,196 @@ class PublishBundleServiceTest {
         }
     }
 
+    // -- bundle cache tests --
+
+    @Test
+    @DisplayName("buildBundles reuses cached bundles when inputs are unchanged")
+    void buildBundles_reusesCachedBundles_whenInputsUnchanged() throws IOException {
+        PublishBundleService service = new PublishBundleService(
+                new PackagingConfig(new Config()),
+                new WindowsSigningService(),
+                new WindowsSigningConfigFactory(),
+                new PublishBundleCache(new File(tempDir, "bundle-cache"))
+        );
+        Map<String, Object> packageJson = createPackageJson(true, "win-x64", "linux-x64");
+        writePackageJson(packageJson);
+
+        List<BundlerRunitCall> calls = new ArrayList<>();
+        try (MockedStatic<Bundler> bundlerMock = mockStatic(Bundler.class)) {
+            mockBundlerRunit(bundlerMock, calls);
+
+            BundleManifest first = service.buildBundles(createContext(packageJson), null);
+            assertEquals(3, calls.size());
+
+            calls.clear();
+            BundleManifest second = service.buildBundles(createContext(packageJson), null);
+            assertTrue(calls.isEmpty(), "Unchanged inputs should not invoke the bundler");
+            assertEquals(3, second.getArtifacts().size());
+            for (int i = 0; i < first.getArtifacts().size(); i++) {
+                BundleArtifact expected = first.getArtifacts().get(i);
+                BundleArtifact actual = second.getArtifacts().get(i);
+                assertEquals(expected.getFilename(), actual.getFilename());
+                assertEquals(expected.getSha256(), actual.getSha256());
+                assertEquals(expected.isCli(), actual.isCli());
+                assertTrue(actual.getFile().isFile());
+            }
+            assertEquals(3, service.buildBundles(createContext(packageJson), null).getArtifacts().size());
+        }
+    }
+
+    @Test
+    @DisplayName("buildBundles rebuilds bundles when package.json or the jar changes")
+    void buildBundles_rebuilds_whenInputsChange() throws IOException {
+        PublishBundleService service = new PublishBundleService(
+                new PackagingConfig(new Config()),
+                new WindowsSigningService(),
+                new WindowsSigningConfigFactory(),
+                new PublishBundleCache(new File(tempDir, "bundle-cache"))
+        );
+        Map<String, Object> packageJson = createPackageJson(false, "linux-x64");
+        writePackageJson(packageJson);
+
+        List<BundlerRunitCall> calls = new ArrayList<>();
+        try (MockedStatic<Bundler> bundlerMock = mockStatic(Bundler.class)) {
+            mockBundlerRunit(bundlerMock, calls);
+            service.buildBundles(createContext(packageJson), null);
+            assertEquals(1, calls.size());
+
+            ((Map<String, Object>) packageJson.get("jdeploy")).put("title", "Renamed App");
+            service.buildBundles(createContext(packageJson), null);
+            assertEquals(2, calls.size(), "A package.json change should miss the cache");
+
+            FileUtils.writeStringToFile(jarFile, "changed", StandardCharsets.UTF_8);
+            service.buildBundles(createContext(packageJson), null);
+            assertEquals(3, calls.size(), "A jar change should miss the cache");
+        }
+    }
+
+    @Test
+    @DisplayName("buildBundles rebuilds bundles when the jDeploy settings file changes")
+    void buildBundles_rebuilds_whenMacSigningSettingsChange() throws IOException {
+        PublishBundleService service = new PublishBundleService(
+                new PackagingConfig(new Config()),
+                new WindowsSigningService(),
+                new WindowsSigningConfigFactory(),
+                new PublishBundleCache(new File(tempDir, "bundle-cache"))
+        );
+        Map<String, Object> packageJson = createPackageJson(false, "mac-arm64");
+        writePackageJson(packageJson);
+        File home = new File(tempDir, "home");
+        File settingsFile = new File(home, ".jdeploy/private/jdeploy_settings.properties");
+
+        String originalHome = System.getProperty("user.home");
+        System.setProperty("user.home", home.getAbsolutePath());
+        List<BundlerRunitCall> calls = new ArrayList<>();
+        try (MockedStatic<Bundler> bundlerMock = mockStatic(Bundler.class)) {
+            mockBundlerRunit(bundlerMock, calls);
+            service.buildBundles(createContext(packageJson), null);
+            assertEquals(1, calls.size());
+
+            FileUtils.writeStringToFile(settingsFile, "mac.developer-id=someone@example.com\n", StandardCharsets.UTF_8);
+            service.buildBundles(createContext(packageJson), null);
+            assertEquals(2, calls.size(), "A signing settings change should miss the cache");
+
+            service.buildBundles(createContext(packageJson), null);
+            assertEquals(2, calls.size());
+        } finally {
+            System.setProperty("user.home", originalHome);
+        }
+    }
+
+    @Test
+    @DisplayName("buildBundles reuses cached bundles for a new version, updating the version in app.xml")
+    void buildBundles_updatesVersionOfCachedBundles_whenOnlyVersionChanges() throws Exception {
+        PublishBundleService service = new PublishBundleService(
+                new PackagingConfig(new Config()),
+                new WindowsSigningService(),
+                new WindowsSigningConfigFactory(),
+                new PublishBundleCache(new File(tempDir, "bundle-cache"))
+        );
+        Map<String, Object> packageJson = createPackageJson(false, "mac-arm64", "linux-x64");
+        writePackageJson(packageJson);
+
+        List<String> targets = new ArrayList<>();
+        try (MockedStatic<Bundler> bundlerMock = mockStatic(Bundler.class)) {
+            bundlerMock.when(() -> Bundler.runit(
+                    any(), any(), anyString(), anyString(), anyString(), anyString()
+            )).thenAnswer(invocation -> {
+                AppInfo appInfo = invocation.getArgument(1);
+                String target = invocation.getArgument(3);
+                File destDir = new File((String) invocation.getArgument(4));
+                targets.add(target);
+                BundlerResult result = new BundlerResult(target);
+                if (target.startsWith("mac")) {
+                    File app = new File(destDir, "Test App.app");
+                    FileUtils.writeStringToFile(
+                            new File(app, "Contents/app.xml"),
+                            "<?xml version=\"1.0\"?>\n<app name=\"Test App\" version=\"" + appInfo.getNpmVersion() + "\"/>",
+                            StandardCharsets.UTF_8
+                    );
+                    result.setOutputFile(app);
+                } else {
+                    AppDescription app = new AppDescription();
+                    app.setName("Test App");
+                    app.setNpmPackage(appInfo.getNpmPackage());
+                    app.setNpmVersion(appInfo.getNpmVersion());
+                    File launcher = new File(destDir, "test-app");
+                    new LauncherWriterHelper().writeLauncher(
+                            app, launcher, new ByteArrayInputStream(new byte[]{'E', 'L', 'F'})
+                    );
+                    result.setOutputFile(launcher);
+                }
+                return result;
+            });
+
+            service.buildBundles(createContext(packageJson), null);
+            assertEquals(2, targets.size());
+
+            packageJson.put("version", "1.0.1");
+            BundleManifest manifest = service.buildBundles(createContext(packageJson), null);
+            assertEquals(2, targets.size(), "A version change alone should not invoke the bundler");
+            assertEquals(2, manifest.getArtifacts().size());
+            for (BundleArtifact artifact : manifest.getArtifacts()) {
+                assertTrue(artifact.getFilename().endsWith("-1.0.1.tar.gz"), artifact.getFilename());
+                Map<String, byte[]> entries = readTarGz(artifact.getFile());
+                if ("mac".equals(artifact.getPlatform())) {
+                    String appXml = new String(entries.get("./Test App.app/Contents/app.xml"), StandardCharsets.UTF_8);
+                    assertTrue(appXml.contains("version=\"1.0.1\""), appXml);
+                } else {
+                    File launcher = new File(tempDir, "unwrapped-launcher");
+                    FileUtils.writeByteArrayToFile(launcher, entries.get("./test-app"));
+                    AppDescription app = new AppDescription();
+                    app.setName("Test App");
+                    app.setNpmPackage("test-app");
+                    app.setNpmVersion("1.0.1");
+                    File expected = new File(tempDir, "expected-launcher");
+                    new LauncherWriterHelper().writeLauncher(
+                            app, expected, new ByteArrayInputStream(new byte[]{'E', 'L', 'F'})
+                    );
+                    assertArrayEquals(FileUtils.readFileToByteArray(expected), entries.get("./test-app"));
+                }
+            }
+            File outputDir = manifest.getArtifacts().get(0).getFile().getParentFile();
+            assertEquals(0, outputDir.listFiles((dir, name) -> name.endsWith("-1.0.0.tar.gz")).length,
+                    "The 1.0.0 bundles should be replaced");
+
+            service.buildBundles(createContext(packageJson), null);
+            assertEquals(2, targets.size());
+        }
+    }
+
+    private static Map<String, byte[]> readTarGz(File tarGz) throws IOException {
+        Map<String, byte[]> entries = new HashMap<>();
+        try (TarArchiveInputStream in = new TarArchiveInputStream(
+                new GzipCompressorInputStream(new FileInputStream(tarGz)))) {
+            TarArchiveEntry entry;
+            while ((entry = in.getNextTarEntry()) != null) {
+                entries.put(entry.getName(), IOUtils.toByteArray(in));
+            }
+        }
+        return entries;
+    }
+
     /**
      * Helper class to record Bundler.runit() calls for assertion.
      */
@@ -28,6 +28,7 @@ import ca.weblite.jdeploy.installer.npm.RunAsAdministratorSettings;
 import ca.weblite.jdeploy.installer.util.CliCommandBinDirResolver;
 import ca.weblite.jdeploy.installer.util.JarClassLoader;
 import ca.weblite.jdeploy.installer.util.ResourceUtil;
+import ca.weblite.jdeploy.installer.views.BootstrapWindow;
 import ca.weblite.jdeploy.installer.views.DefaultUIFactory;
 import ca.weblite.jdeploy.installer.views.InstallationForm;
 import ca.weblite.jdeploy.installer.views.UIFactory;
@@ -65,6 +66,10 @@ import ca.weblite.jdeploy.installer.ai.models.AiIntegrationInstallResult;
 import ca.weblite.jdeploy.installer.ai.models.AiIntegrationManifestEntry;
 import ca.weblite.jdeploy.installer.ai.services.AiIntegrationInstaller;
 import ca.weblite.jdeploy.installer.prebuilt.PrebuiltBundleDownloader;
+import ca.weblite.jdeploy.installer.delta.DeltaBundleUpdater;
+import ca.weblite.jdeploy.installer.util.ContentStore;
+import ca.weblite.jdeploy.installer.util.PackagePathResolver;
+import ca.weblite.jdeploy.installer.util.StartupMetrics;
 import ca.weblite.tools.io.*;
 import ca.weblite.tools.io.MD5;
 import ca.weblite.tools.platform.Platform;
@@ -80,6 +85,7 @@ import java.util.*;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import static ca.weblite.tools.io.IOUtil.copyResourceToFile;
 
 public class Main implements Runnable, Constants {
@@ -91,6 +97,9 @@ public class Main implements Runnable, Constants {
     private final InstallationSettings installationSettings;
     private UIFactory uiFactory = new DefaultUIFactory();
     private InstallationForm installationForm;
+    private BootstrapWindow bootstrapWindow;
+    private CompletableFuture<Void> themeLoader;
+    private volatile boolean desktopEnvironmentDetected;
     private InstallationDetectionService installationDetectionService = new InstallationDetectionService();
     private ca.weblite.jdeploy.installer.services.ServiceLifecycleProgressCallback serviceLifecycleProgressCallback;
 
@@ -111,6 +120,34 @@ public class Main implements Runnable, Constants {
         return installationContext.getAppXMLDocument();
     }
 
+    /**
+     * When upgrading a GitHub-hosted app, assembles the new version's package directory from the
+     * installed version plus the files that changed, so the launcher doesn't need to download the
+     * full bundle.  Any failure leaves the launcher to do its usual full download.
+     */
+    private void applyDeltaUpdate() {
+        String source = appInfo().getNpmSource();
+        if (npmPackageVersion() == null || source == null || !source.startsWith("https://github.com/")) {
+            return;
+        }
+        try {
+            String version = npmPackageVersion().getVersion();
+            File packageDir = PackagePathResolver.getInstallPackagePath(appInfo().getNpmPackage(), null, source);
+            File installedVersion = DeltaBundleUpdater.findInstalledVersion(packageDir, version);
+            if (installedVersion == null) {
+                return;
+            }
+            String releaseUrl = source.replaceAll("/+$", "") + "/releases/download/" + version + "/";
+            DeltaBundleUpdater updater = new DeltaBundleUpdater(new DeltaBundleUpdater.UrlAssetSource(releaseUrl));
+            File targetVersion = PackagePathResolver.getInstallPackagePath(appInfo().getNpmPackage(), version, source);
+            if (updater.update(installedVersion, targetVersion)) {
+                System.out.println("Applied delta update from " + installedVersion.getName() + " to " + version);
+            }
+        } catch (Exception ex) {
+            System.err.println("Warning: Delta update check failed: " + ex.getMessage());
+        }
+    }
+
     private NPMPackageVersion npmPackageVersion() {
         return installationSettings.getNpmPackageVersion();
     }
@@ -155,6 +192,17 @@ public class Main implements Runnable, Constants {
 
 
 
+    /**
+     * Waits for the installer theme, if one is being loaded in the background.
+     */
+    private void awaitTheme() {
+        CompletableFuture<Void> loader = themeLoader;
+        if (loader != null) {
+            loader.join();
+            themeLoader = null;
+        }
+    }
+
     private void loadNPMPackageInfo() throws IOException {
         if (installationSettings.getNpmPackageVersion() == null) {
             if (appInfo() == null) {
@@ -181,12 +229,17 @@ public class Main implements Runnable, Constants {
             String installerTheme = System.getProperty("jdeploy.installerTheme", installationSettings.getNpmPackageVersion().getInstallerTheme());
             System.out.println("Installer theme is "+installerTheme);
             if (installerTheme != null) {
-                try {
-                    loadThemeByName(installerTheme);
-                } catch (Exception ex) {
-                    System.err.println("Failed to load installer theme "+installerTheme+".  Falling back to default theme.");
-                    ex.printStackTrace(System.err);
-                }
+                // The theme jar is extracted and loaded while the rest of the package info is
+                // processed.  awaitTheme() must be called before the UI factory is used.
+                themeLoader = CompletableFuture.runAsync(() -> {
+                    try {
+                        loadThemeByName(installerTheme);
+                        StartupMetrics.mark("theme-loaded");
+                    } catch (Exception ex) {
+                        System.err.println("Failed to load installer theme "+installerTheme+".  Falling back to default theme.");
+                        ex.printStackTrace(System.err);
+                    }
+                });
             }
 
             if (appInfo().getDescription() == null || appInfo().getDescription().isEmpty()) {
@@ -440,6 +493,14 @@ public class Main implements Runnable, Constants {
     }
 
     private void loadAppInfo() throws IOException {
+        loadAppXmlInfo();
+        loadPackageInfo();
+    }
+
+    /**
+     * Loads the app info that is available from app.xml alone.
+     */
+    private void loadAppXmlInfo() throws IOException {
         File appXml = findAppXmlFile();
         if (appXml == null) {
             throw new IOException("Cannot load app info because the app.xml file could not be found");
@@ -458,13 +519,9 @@ public class Main implements Runnable, Constants {
                 null
         ));
         appInfo().setNpmPackage(ifEmpty(root.getAttribute("package"), null));
-        String fullyQualifiedPackageName = appInfo().getNpmPackage();
         if (root.hasAttribute("source")) {
             appInfo().setNpmSource(root.getAttribute("source"));
         }
-        if (appInfo().getNpmSource() != null && !appInfo().getNpmSource().isEmpty()) {
-            fullyQualifiedPackageName = MD5.getMd5(appInfo().getNpmSource()) + "." + fullyQualifiedPackageName;
-        }
         appInfo().setFork(false);
 
         // Parse local development mode attributes
@@ -477,6 +534,17 @@ public class Main implements Runnable, Constants {
 
         // First we set the version in appInfo according to the app.xml file
         appInfo().setNpmVersion(ifEmpty(root.getAttribute("version"), "latest"));
+    }
+
+    /**
+     * Loads the package info for the app described by app.xml.  Requires loadAppXmlInfo().
+     */
+    private void loadPackageInfo() throws IOException {
+        Element root = getAppXMLDocument().getDocumentElement();
+        String fullyQualifiedPackageName = appInfo().getNpmPackage();
+        if (appInfo().getNpmSource() != null && !appInfo().getNpmSource().isEmpty()) {
+            fullyQualifiedPackageName = MD5.getMd5(appInfo().getNpmSource()) + "." + fullyQualifiedPackageName;
+        }
 
         // For background helper mode, NPM package info is optional since it may run offline.
         // The helper only needs app.xml info (package name, source, title) for uninstallation.
@@ -649,6 +717,7 @@ public class Main implements Runnable, Constants {
             }
         }
 
+        StartupMetrics.mark("main");
         Main main = headlessInstall ? new Main(new HeadlessInstallationSettings()) :new Main();
         main.run();
     }
@@ -733,6 +802,14 @@ public class Main implements Runnable, Constants {
             } else {
                 ex.printStackTrace(System.err);
                 System.err.flush();
+                try {
+                    awaitTheme();
+                } catch (Exception themeEx) {
+                    // Show the error with the default theme
+                }
+                if (bootstrapWindow != null) {
+                    bootstrapWindow.close();
+                }
                 invokeLater(()->{
                     String message = ex.getMessage();
                     if (ex instanceof UserLangRuntimeException) {
@@ -900,26 +977,10 @@ public class Main implements Runnable, Constants {
             System.err.println("Warning: Failed to load installer preferences: " + e.getMessage());
         }
 
-        // Check if app is already in the dock (macOS only)
-        if (Platform.getSystemPlatform().isMac() && appInfo() != null) {
-            String nameSuffix = "";
-            if (appInfo().getNpmVersion().startsWith("0.0.0-")) {
-                nameSuffix = " " + appInfo().getNpmVersion().substring(appInfo().getNpmVersion().indexOf("-") + 1).trim();
-            }
-            String appName = appInfo().getTitle() + nameSuffix;
-            String appPath = System.getProperty("user.home") + "/Applications/" + appName + ".app";
-
-            // Only check if the app exists on disk - if it doesn't exist, it can't be in the dock
-            File appFile = new File(appPath);
-            if (appFile.exists()) {
-                installationSettings.setAlreadyAddedToDock(isAppInDock(appPath));
-            }
-        }
+        detectDesktopEnvironment();
 
         // Check for desktop environment on Linux
         if (Platform.getSystemPlatform().isLinux()) {
-            installationSettings.setHasDesktopEnvironment(isDesktopEnvironmentAvailable());
-
             // Set command line path if ~/.local/bin exists
             File localBinDir = new File(System.getProperty("user.home"), ".local" + File.separator + "bin");
             String commandName = deriveCommandName();
@@ -1148,7 +1209,12 @@ public class Main implements Runnable, Constants {
 
     private void run0() throws Exception {
         // Output suppression for headless mode is handled in main() via setupStaticHeadlessOutputSuppression()
+        if (!headlessInstall && !runAsBackgroundHelper && !(uninstall && Platform.getSystemPlatform().isWindows())) {
+            runStagedBootstrap();
+            return;
+        }
         loadAppInfo();
+        awaitTheme();
 
         if (uninstall && Platform.getSystemPlatform().isWindows()) {
             System.out.println("Running Windows uninstall...");
@@ -1205,6 +1271,37 @@ public class Main implements Runnable, Constants {
 
     }
 
+    /**
+     * Starts the GUI installer in stages so that a window appears before anything is downloaded.
+     *
+     * A bootstrap window is shown immediately.  Once app.xml has been read, the desktop
+     * environment checks run in the background while the package info is fetched (and the
+     * installer theme loaded), and the bootstrap window is then replaced by the installation form.
+     */
+    private void runStagedBootstrap() throws Exception {
+        bootstrapWindow = new BootstrapWindow(() -> StartupMetrics.mark("first-paint"));
+        bootstrapWindow.open();
+
+        loadAppXmlInfo();
+        StartupMetrics.mark("app-info-loaded");
+        bootstrapWindow.setAppTitle(appInfo().getTitle());
+        bootstrapWindow.setStatus("Fetching package information...");
+        CompletableFuture<Void> environmentChecks = CompletableFuture.runAsync(this::detectDesktopEnvironment);
+
+        loadPackageInfo();
+        StartupMetrics.mark("package-info-loaded");
+        bootstrapWindow.setStatus("Preparing installer...");
+        awaitTheme();
+        environmentChecks.join();
+
+        invokeLater(()->{
+            buildUI();
+            installationForm.showInstallationForm();
+            bootstrapWindow.close();
+            StartupMetrics.mark("install-enabled");
+        });
+    }
+
     /**
      * Runs the application as a background helper with system tray menu.
      *
@@ -1559,7 +1656,11 @@ public class Main implements Runnable, Constants {
     private UninstallService createUninstallService() {
         FileUninstallManifestRepository manifestRepository = new FileUninstallManifestRepository();
         RegistryOperations registryOperations = new JnaRegistryOperations();
-        return new UninstallService(manifestRepository, registryOperations);
+        return new UninstallService(
+                manifestRepository,
+                registryOperations,
+                ContentStore.isSupported() ? new ContentStore() : null
+        );
     }
 
     private ServiceDescriptorService createServiceDescriptorService() {
@@ -2017,6 +2118,7 @@ public class Main implements Runnable, Constants {
             final InstallationLogger macInstallLogger = macLogger;
 
             try {
+                UninstallManifestBuilder manifestBuilder = startUninstallManifest();
                 File jdeployAppsDir = new File(System.getProperty("user.home") + File.separator + "Applications");
                 if (!jdeployAppsDir.exists()) {
                     jdeployAppsDir.mkdirs();
@@ -2083,6 +2185,9 @@ public class Main implements Runnable, Constants {
                     throw new UserLangRuntimeException(technicalMessage, userMessage);
                 }
                 installedApp = installAppPath;
+                manifestBuilder.addDirectory(installAppPath.getAbsolutePath(),
+                        UninstallManifest.CleanupStrategy.ALWAYS,
+                        "Installed application bundle: " + appName + ".app");
                 File adminWrapper = null;
                 File desktopAlias = null;
 
@@ -2094,6 +2199,9 @@ public class Main implements Runnable, Constants {
                         FileUtils.deleteDirectory(adminWrapper);
                     }
                     adminWrapper = new MacAdminLauncherGenerator().generateAdminLauncher(installedApp);
+                    manifestBuilder.addDirectory(adminWrapper.getAbsolutePath(),
+                            UninstallManifest.CleanupStrategy.ALWAYS,
+                            "Admin launcher wrapper for " + appName);
                     if (macInstallLogger != null) {
                         macInstallLogger.logDirectoryOperation(InstallationLogger.DirectoryOperation.CREATED,
                                 adminWrapper.getAbsolutePath(), "Admin launcher wrapper");
@@ -2113,6 +2221,9 @@ public class Main implements Runnable, Constants {
                     if (result != 0) {
                         throw new RuntimeException("Failed to make desktop alias.");
                     }
+                    manifestBuilder.addFile(desktopAlias.getAbsolutePath(),
+                            UninstallManifest.FileType.LINK,
+                            "Desktop alias for " + appName);
                     if (macInstallLogger != null) {
                         macInstallLogger.logShortcut(InstallationLogger.FileOperation.CREATED,
                                 desktopAlias.getAbsolutePath(), targetPath);
@@ -2186,8 +2297,7 @@ public class Main implements Runnable, Constants {
                 }
 
                 // Build and persist uninstall manifest
-                persistMacInstallationManifest(installAppPath, adminWrapper, desktopAlias,
-                        cliScriptFiles, cliLauncherSymlink, appName);
+                persistMacInstallationManifest(manifestBuilder, cliScriptFiles, cliLauncherSymlink, appName);
             } finally {
                 // Close the installation logger
                 if (macInstallLogger != null) {
@@ -2222,6 +2332,10 @@ public class Main implements Runnable, Constants {
                     linuxInstallLogger.logDirectoryOperation(InstallationLogger.DirectoryOperation.CREATED,
                             appDir.getAbsolutePath(), "Application directory");
                 }
+                UninstallManifestBuilder manifestBuilder = startUninstallManifest();
+                manifestBuilder.addDirectory(appDir.getAbsolutePath(),
+                        UninstallManifest.CleanupStrategy.IF_EMPTY,
+                        "Application installation directory");
 
                 String nameSuffix = "";
                 String titleSuffix = "";
@@ -2241,6 +2355,9 @@ public class Main implements Runnable, Constants {
                         exePath.delete();
                     }
                     FileUtil.copy(tmpExePath, exePath);
+                    manifestBuilder.addFile(exePath.getAbsolutePath(),
+                            UninstallManifest.FileType.BINARY,
+                            "Application launcher executable: " + appInfo().getTitle() + titleSuffix);
                     if (linuxInstallLogger != null) {
                         linuxInstallLogger.logFileOperation(InstallationLogger.FileOperation.CREATED,
                                 exePath.getAbsolutePath(), "Application launcher");
@@ -2267,6 +2384,9 @@ public class Main implements Runnable, Constants {
                 File iconPath = new File(exePath.getParentFile(), "icon.png");
                 if (bundleIcon.exists()) {
                     FileUtil.copy(bundleIcon, iconPath);
+                    manifestBuilder.addFile(iconPath.getAbsolutePath(),
+                            UninstallManifest.FileType.ICON,
+                            "Application icon: " + appInfo().getTitle() + titleSuffix);
                     if (linuxInstallLogger != null) {
                         linuxInstallLogger.logFileOperation(InstallationLogger.FileOperation.CREATED,
                                 iconPath.getAbsolutePath(), "Application icon");
@@ -2274,7 +2394,7 @@ public class Main implements Runnable, Constants {
                 }
                 installLinuxMimetypes();
 
-                installLinuxLinks(exePath, appInfo().getTitle() + titleSuffix, linuxInstallLogger);
+                installLinuxLinks(exePath, appInfo().getTitle() + titleSuffix, linuxInstallLogger, manifestBuilder);
                 installedApp = exePath;
             } finally {
                 // Close the installation logger
@@ -2305,6 +2425,7 @@ public class Main implements Runnable, Constants {
         // Complete service lifecycle management OR run update for commands-only apps
         // This ensures JARs are downloaded during installation rather than on first launch
         if (!installationSettings.isBranchInstallation()) {
+            applyDeltaUpdate();
             if (newServiceCommands != null && !newServiceCommands.isEmpty()) {
                 // Has services - use full service lifecycle (includes update)
                 completeServicesAfterUpdate(
@@ -2790,7 +2911,7 @@ public class Main implements Runnable, Constants {
         } catch (IOException e) {
             System.err.println("Warning: Failed to create installation logger for Helper: " + e.getMessage());
         }
-        return new HelperInstallationService(logger, new HelperCopyService(logger));
+        return new HelperInstallationService(logger, createHelperCopyService(logger));
     }
 
     /**
@@ -2810,11 +2931,19 @@ public class Main implements Runnable, Constants {
         } catch (IOException e) {
             System.err.println("Warning: Failed to create installation logger for Helper update: " + e.getMessage());
         }
-        HelperInstallationService installationService = new HelperInstallationService(logger, new HelperCopyService(logger));
+        HelperInstallationService installationService = new HelperInstallationService(logger, createHelperCopyService(logger));
         HelperProcessManager processManager = new HelperProcessManager();
         return new HelperUpdateService(installationService, processManager, logger);
     }
 
+    /**
+     * Creates a HelperCopyService that links helper files from the shared content store where
+     * the platform supports it.
+     */
+    private static HelperCopyService createHelperCopyService(InstallationLogger logger) {
+        return new HelperCopyService(logger, ContentStore.isSupported() ? new ContentStore() : null);
+    }
+
     /**
      * Updates the Helper application during an application update.
      *
@@ -2891,58 +3020,49 @@ public class Main implements Runnable, Constants {
         }
     }
 
+    /**
+     * Creates the uninstall manifest builder for this installation and journals its entries to disk
+     * as they are added, so that an installation that is interrupted can still be uninstalled.
+     * The installation goes ahead without a journal if it can't be created.
+     */
+    private UninstallManifestBuilder startUninstallManifest() {
+        UninstallManifestBuilder builder = new UninstallManifestBuilder();
+
+        String packageName = appInfo().getNpmPackage();
+        String packageSource = appInfo().getNpmSource();
+        String packageVersion = npmPackageVersion() != null ? npmPackageVersion().getVersion() : appInfo().getNpmVersion();
+        builder.withPackageInfo(packageName, packageSource, packageVersion, ArchitectureUtil.getArchitecture());
+
+        String launcherVersion = appInfo().getLauncherVersion();
+        if (launcherVersion != null && !launcherVersion.isEmpty()) {
+            builder.withInstallerVersion(launcherVersion);
+        }
+
+        try {
+            builder.withJournal(new UninstallManifestWriter().getJournalFile(packageName, packageSource));
+        } catch (IOException e) {
+            System.err.println("Warning: Failed to create uninstall manifest journal: " + e.getMessage());
+        }
+        return builder;
+    }
+
     /**
      * Persists the uninstall manifest for a macOS installation.
-     * Collects all installed artifacts and writes them to the manifest.
+     * The app bundle, admin wrapper and desktop alias were recorded as they were created; this
+     * adds the CLI artifacts and shell profile changes and writes the manifest.
      *
-     * @param appBundle       The installed .app bundle directory
-     * @param adminWrapper    The admin launcher wrapper if created (may be null)
-     * @param desktopAlias    The desktop alias if created (may be null)
+     * @param builder         The manifest builder the installation has been recording into
      * @param cliScriptFiles  List of CLI script files installed
      * @param cliLauncherSymlink The CLI launcher symlink if created (may be null)
      * @param appName         The application name (for descriptions)
      */
-    private void persistMacInstallationManifest(File appBundle, File adminWrapper, File desktopAlias,
+    private void persistMacInstallationManifest(UninstallManifestBuilder builder,
                                                 List<File> cliScriptFiles, File cliLauncherSymlink,
                                                 String appName) {
         try {
-            // Create builder with package info
-            UninstallManifestBuilder builder = new UninstallManifestBuilder();
-            
             String packageName = appInfo().getNpmPackage();
             String packageSource = appInfo().getNpmSource();
-            String packageVersion = npmPackageVersion() != null ? npmPackageVersion().getVersion() : appInfo().getNpmVersion();
-            String arch = ArchitectureUtil.getArchitecture();
-            
-            builder.withPackageInfo(packageName, packageSource, packageVersion, arch);
-            
-            // Set installer version
-            String launcherVersion = appInfo().getLauncherVersion();
-            if (launcherVersion != null && !launcherVersion.isEmpty()) {
-                builder.withInstallerVersion(launcherVersion);
-            }
-            
-            // Add .app bundle as installed directory (always delete completely)
-            if (appBundle != null && appBundle.exists()) {
-                builder.addDirectory(appBundle.getAbsolutePath(), 
-                        UninstallManifest.CleanupStrategy.ALWAYS,
-                        "Installed application bundle: " + appName + ".app");
-            }
-            
-            // Add admin wrapper if created
-            if (adminWrapper != null && adminWrapper.exists()) {
-                builder.addDirectory(adminWrapper.getAbsolutePath(),
-                        UninstallManifest.CleanupStrategy.ALWAYS,
-                        "Admin launcher wrapper for " + appName);
-            }
-            
-            // Add desktop alias if created
-            if (desktopAlias != null && desktopAlias.exists()) {
-                builder.addFile(desktopAlias.getAbsolutePath(),
-                        UninstallManifest.FileType.LINK,
-                        "Desktop alias for " + appName);
-            }
-            
+
             // Add CLI script files
             if (cliScriptFiles != null && !cliScriptFiles.isEmpty()) {
                 for (File scriptFile : cliScriptFiles) {
@@ -3020,73 +3140,18 @@ public class Main implements Runnable, Constants {
 
     /**
      * Persists the uninstall manifest for a Linux installation.
-     * Collects all installed artifacts and writes them to the manifest.
+     * The launcher, icon and desktop files were recorded as they were created; this adds the
+     * remaining artifacts and shell profile changes and writes the manifest.
      *
-     * @param launcherFile        The installed launcher executable
-     * @param iconFile            The icon file (icon.png)
-     * @param desktopFiles        List of desktop .desktop files created on Desktop
-     * @param applicationsFiles   List of .desktop files created in ~/.local/share/applications
+     * @param builder             The manifest builder the installation has been recording into
      * @param adminLauncher       The admin launcher wrapper if created (may be null)
      * @param cliScriptFiles      List of CLI script files installed
      * @param appName             The application name (for descriptions)
      */
-    private void persistLinuxInstallationManifest(File launcherFile, File iconFile,
-                                                  List<File> desktopFiles, List<File> applicationsFiles,
+    private void persistLinuxInstallationManifest(UninstallManifestBuilder builder,
                                                   File adminLauncher, List<File> cliScriptFiles,
                                                   String appName) {
         try {
-            // Create builder with package info
-            UninstallManifestBuilder builder = new UninstallManifestBuilder();
-            
-            String packageName = appInfo().getNpmPackage();
-            String packageSource = appInfo().getNpmSource();
-            String packageVersion = npmPackageVersion() != null ? npmPackageVersion().getVersion() : appInfo().getNpmVersion();
-            String arch = ArchitectureUtil.getArchitecture();
-            
-            builder.withPackageInfo(packageName, packageSource, packageVersion, arch);
-            
-            // Set installer version
-            String launcherVersion = appInfo().getLauncherVersion();
-            if (launcherVersion != null && !launcherVersion.isEmpty()) {
-                builder.withInstallerVersion(launcherVersion);
-            }
-            
-            // Add launcher executable as installed file
-            if (launcherFile != null && launcherFile.exists()) {
-                builder.addFile(launcherFile.getAbsolutePath(),
-                        UninstallManifest.FileType.BINARY,
-                        "Application launcher executable: " + appName);
-            }
-            
-            // Add icon file
-            if (iconFile != null && iconFile.exists()) {
-                builder.addFile(iconFile.getAbsolutePath(),
-                        UninstallManifest.FileType.ICON,
-                        "Application icon: " + appName);
-            }
-            
-            // Add desktop .desktop files if created
-            if (desktopFiles != null && !desktopFiles.isEmpty()) {
-                for (File desktopFile : desktopFiles) {
-                    if (desktopFile.exists()) {
-                        builder.addFile(desktopFile.getAbsolutePath(),
-                                UninstallManifest.FileType.CONFIG,
-                                "Desktop shortcut for " + appName);
-                    }
-                }
-            }
-            
-            // Add applications directory .desktop files if created
-            if (applicationsFiles != null && !applicationsFiles.isEmpty()) {
-                for (File appFile : applicationsFiles) {
-                    if (appFile.exists()) {
-                        builder.addFile(appFile.getAbsolutePath(),
-                                UninstallManifest.FileType.CONFIG,
-                                "Applications menu entry for " + appName);
-                    }
-                }
-            }
-            
             // Add admin launcher if created
             if (adminLauncher != null && adminLauncher.exists()) {
                 builder.addFile(adminLauncher.getAbsolutePath(),
@@ -3105,14 +3170,6 @@ public class Main implements Runnable, Constants {
                 }
             }
             
-            // Add application directory to cleanup if it exists and is empty
-            File appDir = launcherFile.getParentFile();
-            if (appDir != null && appDir.exists()) {
-                builder.addDirectory(appDir.getAbsolutePath(),
-                        UninstallManifest.CleanupStrategy.IF_EMPTY,
-                        "Application installation directory");
-            }
-            
             // Add bin directory to cleanup if CLI scripts/launcher were installed
             if ((cliScriptFiles != null && !cliScriptFiles.isEmpty()) || installationSettings.isCommandLineSymlinkCreated()) {
                 String binDirPath = System.getProperty("user.home") + File.separator + ".local" + 
@@ -3181,6 +3238,38 @@ public class Main implements Runnable, Constants {
         }
     }
 
+    /**
+     * Checks whether the app is already in the dock (macOS) and whether a desktop environment is
+     * available (Linux).  Both may spawn processes, so the staged bootstrap runs this in the
+     * background while the package info is being fetched.
+     */
+    private void detectDesktopEnvironment() {
+        if (desktopEnvironmentDetected) {
+            return;
+        }
+        // Check if app is already in the dock (macOS only)
+        if (Platform.getSystemPlatform().isMac() && appInfo() != null) {
+            String nameSuffix = "";
+            if (appInfo().getNpmVersion().startsWith("0.0.0-")) {
+                nameSuffix = " " + appInfo().getNpmVersion().substring(appInfo().getNpmVersion().indexOf("-") + 1).trim();
+            }
+            String appName = appInfo().getTitle() + nameSuffix;
+            String appPath = System.getProperty("user.home") + "/Applications/" + appName + ".app";
+
+            // Only check if the app exists on disk - if it doesn't exist, it can't be in the dock
+            File appFile = new File(appPath);
+            if (appFile.exists()) {
+                installationSettings.setAlreadyAddedToDock(isAppInDock(appPath));
+            }
+        }
+
+        // Check for desktop environment on Linux
+        if (Platform.getSystemPlatform().isLinux()) {
+            installationSettings.setHasDesktopEnvironment(isDesktopEnvironmentAvailable());
+        }
+        desktopEnvironmentDetected = true;
+    }
+
     /**
      * Detects if a desktop environment is available on Linux.
      * This checks for an actual desktop environment (GNOME, KDE, XFCE, etc.),
@@ -3406,6 +3495,15 @@ public class Main implements Runnable, Constants {
     }
 
     public void installLinuxLinks(File launcherFile, String title, InstallationLogger linuxInstallLogger) throws Exception {
+        installLinuxLinks(launcherFile, title, linuxInstallLogger, null);
+    }
+
+    /**
+     * @param manifestBuilder the manifest builder the installation has been recording into, or null
+     *                        to start one here, recording the launcher and its icon
+     */
+    private void installLinuxLinks(File launcherFile, String title, InstallationLogger linuxInstallLogger,
+                                   UninstallManifestBuilder manifestBuilder) throws Exception {
         if (!launcherFile.exists()) {
             throw new IllegalStateException("Launcher "+launcherFile+" does not exist so we cannot install a shortcut to it.");
         }
@@ -3413,19 +3511,34 @@ public class Main implements Runnable, Constants {
         launcherFile.setExecutable(true, false);
 
         File pngIcon = new File(launcherFile.getParentFile(), "icon.png");
+        boolean recordIcon = false;
+        if (manifestBuilder == null) {
+            manifestBuilder = startUninstallManifest();
+            manifestBuilder.addDirectory(launcherFile.getParentFile().getAbsolutePath(),
+                    UninstallManifest.CleanupStrategy.IF_EMPTY,
+                    "Application installation directory");
+            manifestBuilder.addFile(launcherFile.getAbsolutePath(),
+                    UninstallManifest.FileType.BINARY,
+                    "Application launcher executable: " + title);
+            recordIcon = pngIcon.exists();
+        }
         if (!pngIcon.exists()) {
             IOUtil.copyResourceToFile(Main.class, "icon.png", pngIcon);
+            recordIcon = true;
             if (linuxInstallLogger != null) {
                 linuxInstallLogger.logFileOperation(InstallationLogger.FileOperation.CREATED,
                         pngIcon.getAbsolutePath(), "Default application icon");
             }
         }
+        if (recordIcon) {
+            manifestBuilder.addFile(pngIcon.getAbsolutePath(),
+                    UninstallManifest.FileType.ICON,
+                    "Application icon: " + title);
+        }
 
         boolean hasDesktop = isDesktopEnvironmentAvailable();
 
         // Track artifacts for uninstall manifest
-        List<File> desktopFiles = new ArrayList<>();
-        List<File> applicationsDesktopFiles = new ArrayList<>();
         File adminLauncherFile = null;
         List<File> cliScriptFiles = new ArrayList<>();
 
@@ -3435,7 +3548,9 @@ public class Main implements Runnable, Constants {
                 File desktopDir = new File(System.getProperty("user.home"), "Desktop");
                 File desktopFile = addLinuxDesktopFile(desktopDir, title, title, pngIcon, launcherFile);
                 if (desktopFile != null) {
-                    desktopFiles.add(desktopFile);
+                    manifestBuilder.addFile(desktopFile.getAbsolutePath(),
+                            UninstallManifest.FileType.CONFIG,
+                            "Desktop shortcut for " + title);
                     if (linuxInstallLogger != null) {
                         linuxInstallLogger.logShortcut(InstallationLogger.FileOperation.CREATED,
                                 desktopFile.getAbsolutePath(), launcherFile.getAbsolutePath());
@@ -3453,7 +3568,9 @@ public class Main implements Runnable, Constants {
                 }
                 File desktopFile = addLinuxDesktopFile(applicationsDir, title, title, pngIcon, launcherFile);
                 if (desktopFile != null) {
-                    applicationsDesktopFiles.add(desktopFile);
+                    manifestBuilder.addFile(desktopFile.getAbsolutePath(),
+                            UninstallManifest.FileType.CONFIG,
+                            "Applications menu entry for " + title);
                     if (linuxInstallLogger != null) {
                         linuxInstallLogger.logShortcut(InstallationLogger.FileOperation.CREATED,
                                 desktopFile.getAbsolutePath(), launcherFile.getAbsolutePath());
@@ -3496,8 +3613,7 @@ public class Main implements Runnable, Constants {
         }
 
         // Persist uninstall manifest with all collected artifacts
-        persistLinuxInstallationManifest(launcherFile, pngIcon, desktopFiles, applicationsDesktopFiles,
-                adminLauncherFile, cliScriptFiles, title);
+        persistLinuxInstallationManifest(manifestBuilder, adminLauncherFile, cliScriptFiles, title);
     }
 
     /**
@@ -3,6 +3,7 @@ package ca.weblite.jdeploy.installer.cli;
 import ca.weblite.jdeploy.installer.CliInstallerConstants;
 import ca.weblite.jdeploy.installer.logging.InstallationLogger;
 import ca.weblite.jdeploy.installer.models.InstallationSettings;
+import ca.weblite.jdeploy.installer.services.ParallelServiceStopper;
 import ca.weblite.jdeploy.installer.services.ServiceDescriptorService;
 import ca.weblite.jdeploy.installer.services.ServiceDescriptor;
 import ca.weblite.jdeploy.installer.util.CliCommandBinDirResolver;
@@ -360,6 +361,19 @@ public abstract class AbstractUnixCliCommandInstaller implements CliCommandInsta
         return UnixPathManager.addToPath(binDir, shell, pathEnv, homeDir);
     }
 
+    /**
+     * Adds several directories to the PATH, updating each shell configuration file once.
+     *
+     * @param binDirs the directories to add to PATH
+     * @return true if the PATH was successfully updated, false otherwise
+     */
+    protected boolean addAllToPath(List<File> binDirs) {
+        String shell = System.getenv("SHELL");
+        String pathEnv = System.getenv("PATH");
+        File homeDir = getHomeDir();
+        return UnixPathManager.addAllToPath(binDirs, shell, pathEnv, homeDir);
+    }
+
     /**
      * Testable overload for addToPath with explicit environment parameters.
      * Delegates to UnixPathManager for the actual implementation.
@@ -385,12 +399,31 @@ public abstract class AbstractUnixCliCommandInstaller implements CliCommandInsta
      * @return list of files created during script installation
      */
     protected List<File> installCommandScripts(File launcherPath, List<CommandSpec> commands, File binDir) {
+        return installCommandScripts(launcherPath, commands, binDir, null, null);
+    }
+
+    /**
+     * Installs command scripts for a package.  Existing scripts that the command index records as
+     * the package's own are replaced without reading them, even if the launcher has moved since
+     * they were written; any other existing script is checked for a collision.
+     *
+     * @param launcherPath the path to the main launcher executable
+     * @param commands list of command specifications to install
+     * @param binDir the directory where scripts will be installed
+     * @param packageName the package being installed, or null to only check the scripts themselves
+     * @param source the package's source URL (null for NPM packages)
+     * @return list of files created during script installation
+     */
+    protected List<File> installCommandScripts(File launcherPath, List<CommandSpec> commands, File binDir,
+                                               String packageName, String source) {
         List<File> createdFiles = new ArrayList<>();
 
         if (commands == null || commands.isEmpty()) {
             return createdFiles;
         }
 
+        CliCommandManifestRepository manifestRepository = packageName != null ? createManifestRepository() : null;
+
         // Create command scripts
         for (CommandSpec command : commands) {
             String cmdName = command.getName();
@@ -398,7 +431,9 @@ public abstract class AbstractUnixCliCommandInstaller implements CliCommandInsta
 
             // Check for collision with existing script
             if (scriptPath.exists()) {
-                String existingLauncherPath = extractLauncherPathFromScript(scriptPath);
+                String existingLauncherPath = isOwnedByPackage(manifestRepository, cmdName, binDir, packageName, source)
+                        ? null
+                        : extractLauncherPathFromScript(scriptPath);
                 
                 if (existingLauncherPath != null && !existingLauncherPath.equals(launcherPath.getAbsolutePath())) {
                     // Different app owns this command - invoke collision handler
@@ -451,6 +486,24 @@ public abstract class AbstractUnixCliCommandInstaller implements CliCommandInsta
         return createdFiles;
     }
 
+    /**
+     * Looks up in the command index whether the package owns a command's script.
+     *
+     * @return true if it does; false if it doesn't, the repository is null or the lookup failed
+     */
+    private static boolean isOwnedByPackage(CliCommandManifestRepository manifestRepository, String commandName,
+                                            File binDir, String packageName, String source) {
+        if (manifestRepository == null) {
+            return false;
+        }
+        try {
+            return manifestRepository.isOwnedBy(commandName, binDir, packageName, source);
+        } catch (Exception e) {
+            System.err.println("Warning: Failed to look up owner of command " + commandName + ": " + e.getMessage());
+            return false;
+        }
+    }
+
     /**
      * Writes a command script file for the given command.
      * Subclasses must implement this method with platform-specific script generation.
@@ -758,34 +811,14 @@ public abstract class AbstractUnixCliCommandInstaller implements CliCommandInsta
         try {
             List<ServiceDescriptor> services = serviceDescriptorService.listServices(packageName, source, branchName);
 
-            for (ServiceDescriptor service : services) {
-                // Stop the service if launcher is available
-                if (launcherPath != null && launcherPath.exists()) {
-                    try {
-                        String commandName = service.getCommandName();
-                        System.out.println("Stopping service: " + commandName);
-
-                        // Execute: <command> service stop
-                        ProcessBuilder pb = new ProcessBuilder(commandName, "service", "stop");
-                        Process process = pb.start();
-                        int exitCode = process.waitFor();
-
-                        if (exitCode == 0) {
-                            System.out.println("Successfully stopped service: " + commandName);
-                            if (installationLogger != null) {
-                                installationLogger.logInfo("Stopped service: " + commandName);
-                            }
-                        } else {
-                            System.err.println("Warning: Service stop returned exit code " + exitCode + " for " + commandName);
-                        }
-                    } catch (Exception e) {
-                        System.err.println("Warning: Failed to stop service " + service.getCommandName() + ": " + e.getMessage());
-                        if (installationLogger != null) {
-                            installationLogger.logError("Failed to stop service " + service.getCommandName() + ": " + e.getMessage());
-                        }
-                    }
-                }
+            // Stop the services if launcher is available
+            if (launcherPath != null && launcherPath.exists()) {
+                // Execute: <command> service stop
+                createServiceStopper(commandName -> new ProcessBuilder(commandName, "service", "stop"))
+                        .stopServices(services, installationLogger);
+            }
 
+            for (ServiceDescriptor service : services) {
                 // Unregister the service
                 try {
                     serviceDescriptorService.unregisterService(packageName, source, service.getCommandName(), branchName);
@@ -808,6 +841,16 @@ public abstract class AbstractUnixCliCommandInstaller implements CliCommandInsta
         }
     }
 
+    /**
+     * Creates the stopper used to stop services. Protected to allow test overrides.
+     *
+     * @param commandFactory Creates the stop command for a service
+     * @return a ParallelServiceStopper instance
+     */
+    protected ParallelServiceStopper createServiceStopper(ParallelServiceStopper.StopCommandFactory commandFactory) {
+        return new ParallelServiceStopper(commandFactory);
+    }
+
     /**
      * Creates a manifest repository instance. Protected to allow test overrides.
      *
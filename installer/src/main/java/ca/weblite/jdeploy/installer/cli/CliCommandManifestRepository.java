@@ -1,5 +1,7 @@
 package ca.weblite.jdeploy.installer.cli;
 
+import java.io.File;
+import java.util.Objects;
 import java.util.Optional;
 
 /**
@@ -37,4 +39,35 @@ public interface CliCommandManifestRepository {
      * @throws Exception if an error occurs during delete
      */
     void delete(String packageName, String source) throws Exception;
+
+    /**
+     * Finds the manifest of the package that owns the given command name.
+     *
+     * If more than one package lists the command, the most recently saved manifest wins,
+     * since installing it overwrote the other package's wrapper.
+     *
+     * @param commandName the command name (e.g. "my-cli")
+     * @return an Optional containing the owning package's manifest, empty if no package owns it
+     * @throws Exception if an error occurs during lookup
+     */
+    Optional<CliCommandManifest> findOwner(String commandName) throws Exception;
+
+    /**
+     * Returns true if the given package owns the command's wrapper in the given bin directory,
+     * according to {@link #findOwner(String)}.
+     *
+     * @param commandName the command name
+     * @param binDir the directory holding the wrapper
+     * @param packageName the package name
+     * @param source the GitHub source URL (null for NPM packages)
+     * @return true if the package's manifest is the command's owner and lists the same bin directory
+     * @throws Exception if an error occurs during lookup
+     */
+    default boolean isOwnedBy(String commandName, File binDir, String packageName, String source) throws Exception {
+        Optional<CliCommandManifest> owner = findOwner(commandName);
+        return owner.isPresent()
+                && owner.get().getPackageName().equals(packageName)
+                && Objects.equals(owner.get().getSource(), source)
+                && owner.get().getBinDir().getAbsoluteFile().equals(binDir.getAbsoluteFile());
+    }
 }
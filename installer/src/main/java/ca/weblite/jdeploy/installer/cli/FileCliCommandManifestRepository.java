@@ -6,10 +6,25 @@ import org.apache.commons.io.FileUtils;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -22,6 +37,15 @@ import java.util.Optional;
  * - {fqpn} is the fully-qualified package name (computed from packageName and source)
  * - {packageName} is the package name
  * - {timestamp} is the installation timestamp
+ *
+ * An index of the packages listing each command name is kept next to the manifests at
+ * ~/.jdeploy/manifests/commands-{arch}.idx so that {@link #findOwner(String)} doesn't need to
+ * read every manifest. Every package's claim is kept, not just the owner's, so that deleting the
+ * owner hands the command back to the package it shadowed. The index is updated under a file
+ * lock on every save and delete, and is rebuilt from the manifests when it is missing or
+ * unreadable. It also records the modification time of each {fqpn} directory, so that packages
+ * whose manifests were added or removed by something other than this class (e.g. an older
+ * installer, which doesn't know about the index) are reloaded on the next lookup.
  */
 public class FileCliCommandManifestRepository implements CliCommandManifestRepository {
 
@@ -36,6 +60,28 @@ public class FileCliCommandManifestRepository implements CliCommandManifestRepos
     private static final String JSON_PATH_UPDATED = "pathUpdated";
     private static final String JSON_TIMESTAMP = "timestamp";
 
+    // Command index
+    private static final int INDEX_VERSION = 3;
+    private static final String INDEX_HEADER = "jdeploy-cli-commands";
+    private static final String INDEX_DIRECTORY_LINE = "D\t";
+    private static final String INDEX_CLAIM_LINE = "C\t";
+
+    /**
+     * The coarsest modification time resolution expected from a filesystem (FAT's two seconds;
+     * ext3 and HFS+ keep whole seconds).
+     */
+    private static final long MTIME_GRANULARITY_MS = 2000;
+    private static final String INDEX_FILE_PREFIX = "commands-";
+
+    /**
+     * Serializes index updates within this JVM; FileLock only guards against other processes.
+     */
+    private static final Object INDEX_UPDATE_LOCK = new Object();
+
+    private File cachedIndexFile;
+    private long cachedIndexModified;
+    private CommandIndex cachedIndex;
+
     /**
      * Saves a CLI command manifest to disk.
      *
@@ -46,20 +92,28 @@ public class FileCliCommandManifestRepository implements CliCommandManifestRepos
     public void save(CliCommandManifest manifest) throws IOException {
         File manifestFile = getManifestFile(manifest.getPackageName(), manifest.getSource(), 
                                              manifest.getTimestamp());
-        
-        // Create parent directories if they don't exist
-        File parentDir = manifestFile.getParentFile();
-        if (!parentDir.exists()) {
-            if (!parentDir.mkdirs()) {
-                throw new IOException("Failed to create manifest directory: " + parentDir);
+
+        updateIndex(index -> {
+            // Create parent directories if they don't exist
+            File parentDir = manifestFile.getParentFile();
+            if (!parentDir.exists()) {
+                if (!parentDir.mkdirs()) {
+                    throw new IOException("Failed to create manifest directory: " + parentDir);
+                }
             }
-        }
 
-        // Serialize to JSON
-        JSONObject json = manifestToJson(manifest);
-        
-        // Write to file
-        FileUtils.writeStringToFile(manifestFile, json.toString(2), "UTF-8");
+            // Serialize to JSON
+            JSONObject json = manifestToJson(manifest);
+
+            // Write to file
+            FileUtils.writeStringToFile(manifestFile, json.toString(2), "UTF-8");
+
+            String directory = parentDir.getName();
+            removeClaimsIn(index.claims, directory);
+            addClaims(index.claims, manifest, directory);
+            index.directories.put(directory,
+                    Files.getLastModifiedTime(parentDir.toPath()).toMillis());
+        }, true);
     }
 
     /**
@@ -74,8 +128,37 @@ public class FileCliCommandManifestRepository implements CliCommandManifestRepos
      */
     @Override
     public Optional<CliCommandManifest> load(String packageName, String source) throws IOException {
-        File manifestDir = getManifestDirectory(packageName, source);
-        
+        return loadLatest(getManifestDirectory(packageName, source));
+    }
+
+    /**
+     * Finds the manifest of the package that owns the given command name using the command index.
+     *
+     * The index is kept in memory between calls and only re-read when the index file changes.
+     * A lookup costs a stat of the index file and of each package directory, and a single
+     * manifest load, regardless of how many manifests each package has.
+     *
+     * @param commandName the command name
+     * @return an Optional containing the owning package's manifest, empty if no package owns it
+     * @throws IOException if the index could not be rebuilt
+     */
+    @Override
+    public Optional<CliCommandManifest> findOwner(String commandName) throws IOException {
+        IndexEntry owner = findNewest(getIndex().get(commandName));
+        if (owner == null) {
+            return Optional.empty();
+        }
+        return load(owner.packageName, owner.source);
+    }
+
+    /**
+     * Loads the most recent manifest in a package's manifest directory.
+     *
+     * @param manifestDir the manifest directory of the package
+     * @return an Optional containing the manifest if found, empty otherwise
+     * @throws IOException if an error occurs during load
+     */
+    private Optional<CliCommandManifest> loadLatest(File manifestDir) throws IOException {
         if (!manifestDir.exists()) {
             return Optional.empty();
         }
@@ -108,6 +191,9 @@ public class FileCliCommandManifestRepository implements CliCommandManifestRepos
     /**
      * Deletes all manifest files for the given package.
      *
+     * If the index is missing or unreadable it is left for the next lookup to rebuild, rather
+     * than rebuilding it here only to remove one package from it.
+     *
      * @param packageName the package name
      * @param source the GitHub source URL (null for NPM packages)
      * @throws IOException if an error occurs during delete
@@ -116,9 +202,19 @@ public class FileCliCommandManifestRepository implements CliCommandManifestRepos
     public void delete(String packageName, String source) throws IOException {
         File manifestDir = getManifestDirectory(packageName, source);
         
-        if (manifestDir.exists()) {
-            FileUtils.deleteDirectory(manifestDir);
+        if (!manifestDir.exists() && !getIndexFile().exists()) {
+            return;
         }
+
+        updateIndex(index -> {
+            if (manifestDir.exists()) {
+                FileUtils.deleteDirectory(manifestDir);
+            }
+            if (index != null) {
+                removeClaimsIn(index.claims, manifestDir.getName());
+                index.directories.remove(manifestDir.getName());
+            }
+        }, false);
     }
 
     /**
@@ -131,14 +227,35 @@ public class FileCliCommandManifestRepository implements CliCommandManifestRepos
      * @return the manifest directory
      */
     private File getManifestDirectory(String packageName, String source) {
-        String arch = ArchitectureUtil.getArchitecture();
         String fqpn = CliCommandBinDirResolver.computeFullyQualifiedPackageName(packageName, source);
-        
+        return new File(getArchDirectory(), fqpn);
+    }
+
+    /**
+     * Gets the directory containing the manifest directories of all packages.
+     *
+     * Path: ~/.jdeploy/manifests/{arch}/
+     *
+     * @return the architecture-specific manifests directory
+     */
+    private File getArchDirectory() {
+        return new File(getManifestsRoot(), ArchitectureUtil.getArchitecture());
+    }
+
+    private File getManifestsRoot() {
         File jdeployHome = new File(System.getProperty("user.home"), JDEPLOY_HOME);
-        File manifestsDir = new File(jdeployHome, MANIFEST_DIR_NAME);
-        File archDir = new File(manifestsDir, arch);
-        
-        return new File(archDir, fqpn);
+        return new File(jdeployHome, MANIFEST_DIR_NAME);
+    }
+
+    /**
+     * Gets the command index file.
+     *
+     * Path: ~/.jdeploy/manifests/commands-{arch}.idx
+     *
+     * @return the index file
+     */
+    File getIndexFile() {
+        return new File(getManifestsRoot(), INDEX_FILE_PREFIX + ArchitectureUtil.getArchitecture() + ".idx");
     }
 
     /**
@@ -215,4 +332,344 @@ public class FileCliCommandManifestRepository implements CliCommandManifestRepos
             return Optional.empty();
         }
     }
+
+    /**
+     * Returns the current command index, re-reading or refreshing it only if something changed.
+     */
+    private Map<String, List<IndexEntry>> getIndex() throws IOException {
+        File indexFile = getIndexFile();
+        File archDir = getArchDirectory();
+        CommandIndex index = isCacheCurrent(indexFile) ? cachedIndex : readIndex(indexFile);
+        if (index == null && !archDir.exists()) {
+            // Nothing installed; don't create directories just to record that
+            return new HashMap<>();
+        }
+        if (index == null || needsRefresh(index, archDir)) {
+            return updateIndex(current -> { }, true).claims;
+        }
+        cacheIndex(indexFile, index);
+        return index.claims;
+    }
+
+    /**
+     * Applies a change to the manifests and the index, then writes the index back atomically.
+     *
+     * Holds an exclusive lock on a lock file beside the index so concurrent installers don't
+     * lose each other's updates. The stored index is refreshed from any package directories
+     * changed by someone else before the update is applied.
+     *
+     * @param update the change; given a null index if the index is missing or unreadable and
+     *               rebuildIfMissing is false
+     * @param rebuildIfMissing whether to rebuild a missing or unreadable index from the manifests,
+     *                         rather than leave it for the next lookup
+     * @return the updated index, or null if it wasn't rebuilt
+     */
+    private CommandIndex updateIndex(IndexUpdate update, boolean rebuildIfMissing) throws IOException {
+        File indexFile = getIndexFile();
+        File manifestsRoot = indexFile.getParentFile();
+        if (!manifestsRoot.exists() && !manifestsRoot.mkdirs()) {
+            throw new IOException("Failed to create manifest directory: " + manifestsRoot);
+        }
+        File lockFile = new File(manifestsRoot, indexFile.getName() + ".lock");
+
+        synchronized (INDEX_UPDATE_LOCK) {
+            try (FileChannel channel = FileChannel.open(lockFile.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock ignored = channel.lock()) {
+                CommandIndex index = isCacheCurrent(indexFile) ? cachedIndex : readIndex(indexFile);
+                cachedIndex = null;
+                if (index == null && !rebuildIfMissing) {
+                    // The next lookup rebuilds the index from the manifests
+                    update.apply(null);
+                    return null;
+                }
+                if (index == null) {
+                    index = new CommandIndex();
+                }
+                refresh(index, getArchDirectory());
+                update.apply(index);
+                writeIndex(indexFile, index);
+                cacheIndex(indexFile, index);
+                return index;
+            }
+        }
+    }
+
+    private boolean isCacheCurrent(File indexFile) {
+        return cachedIndex != null && indexFile.equals(cachedIndexFile)
+                && indexFile.lastModified() == cachedIndexModified;
+    }
+
+    private void cacheIndex(File indexFile, CommandIndex index) {
+        cachedIndexFile = indexFile;
+        cachedIndexModified = indexFile.lastModified();
+        cachedIndex = index;
+    }
+
+    /**
+     * Checks whether any package directory was added, removed or modified since the index last
+     * looked at it, without changing the index.
+     */
+    private static boolean needsRefresh(CommandIndex index, File archDir) throws IOException {
+        Map<String, Long> packageDirs = listPackageDirectories(archDir);
+        if (packageDirs.size() != index.directories.size()) {
+            return true;
+        }
+        for (Map.Entry<String, Long> packageDir : packageDirs.entrySet()) {
+            Long recorded = index.directories.get(packageDir.getKey());
+            if (recorded == null || !recorded.equals(packageDir.getValue()) || index.isRacy(recorded)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lists the package directories with their modification times, reading each entry's
+     * attributes once.
+     *
+     * @return the modification time of each package directory by name, empty if the {arch}
+     *         directory doesn't exist
+     */
+    private static Map<String, Long> listPackageDirectories(File archDir) throws IOException {
+        Map<String, Long> packageDirs = new HashMap<>();
+        if (!archDir.isDirectory()) {
+            return packageDirs;
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(archDir.toPath())) {
+            for (Path entry : entries) {
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                } catch (NoSuchFileException e) {
+                    // Removed while listing
+                    continue;
+                }
+                if (attributes.isDirectory()) {
+                    packageDirs.put(entry.getFileName().toString(), attributes.lastModifiedTime().toMillis());
+                }
+            }
+        }
+        return packageDirs;
+    }
+
+    /**
+     * Reloads the claims of every package directory that was added or modified since the index
+     * last looked at it, and drops the claims of directories that are gone.
+     *
+     * A directory is compared by its own modification time, which changes whenever a manifest is
+     * added to or removed from it, including by installers that write manifests without updating
+     * the index. A directory modified less than {@link #MTIME_GRANULARITY_MS} before the previous
+     * check is reloaded again, since a second change within the same tick of a coarse filesystem
+     * clock wouldn't change its modification time.
+     */
+    private void refresh(CommandIndex index, File archDir) throws IOException {
+        // Sampled before the directories so a change made while refreshing is seen next time
+        long now = System.currentTimeMillis();
+        Map<String, Long> packageDirs = listPackageDirectories(archDir);
+        for (Map.Entry<String, Long> packageDir : packageDirs.entrySet()) {
+            String directory = packageDir.getKey();
+            long modified = packageDir.getValue();
+            Long recorded = index.directories.get(directory);
+            if (recorded != null && recorded == modified && !index.isRacy(recorded)) {
+                continue;
+            }
+            removeClaimsIn(index.claims, directory);
+            Optional<CliCommandManifest> manifest = loadLatest(new File(archDir, directory));
+            if (manifest.isPresent()) {
+                addClaims(index.claims, manifest.get(), directory);
+            }
+            index.directories.put(directory, modified);
+        }
+        Iterator<String> it = index.directories.keySet().iterator();
+        while (it.hasNext()) {
+            String directory = it.next();
+            if (!packageDirs.containsKey(directory)) {
+                removeClaimsIn(index.claims, directory);
+                it.remove();
+            }
+        }
+        index.checkedAt = now;
+    }
+
+    /**
+     * Reads the index file.
+     *
+     * The file starts with a header line holding the format version and the time the package
+     * directories were last checked. It is followed by a {@code D} line per package directory
+     * with the directory's name and modification time, and a {@code C} line per package listing
+     * a command: command name, package directory, package name, manifest timestamp and source
+     * (empty for NPM packages). All fields are tab-separated; command names, directory names,
+     * package names and sources never contain tabs or line breaks.
+     *
+     * @return the index, or null if it is missing or unreadable
+     */
+    private static CommandIndex readIndex(File indexFile) {
+        if (!indexFile.isFile()) {
+            return null;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(indexFile.toPath(), StandardCharsets.UTF_8)) {
+            String[] header = String.valueOf(reader.readLine()).split("\t", 3);
+            if (header.length != 3 || !INDEX_HEADER.equals(header[0])
+                    || !String.valueOf(INDEX_VERSION).equals(header[1])) {
+                return null;
+            }
+            CommandIndex index = new CommandIndex();
+            index.checkedAt = Long.parseLong(header[2]);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(INDEX_DIRECTORY_LINE)) {
+                    String[] fields = line.split("\t", 3);
+                    if (fields.length != 3) {
+                        return null;
+                    }
+                    index.directories.put(fields[1], Long.parseLong(fields[2]));
+                } else if (line.startsWith(INDEX_CLAIM_LINE)) {
+                    String[] fields = line.split("\t", 6);
+                    if (fields.length != 6) {
+                        return null;
+                    }
+                    index.claims.computeIfAbsent(fields[1], k -> new ArrayList<>(1)).add(new IndexEntry(
+                            fields[2],
+                            fields[3],
+                            fields[5].isEmpty() ? null : fields[5],
+                            Long.parseLong(fields[4])));
+                } else {
+                    return null;
+                }
+            }
+            return index;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static void writeIndex(File indexFile, CommandIndex index) throws IOException {
+        StringBuilder content = new StringBuilder(64 * (index.claims.size() + index.directories.size() + 1));
+        content.append(INDEX_HEADER).append('\t')
+                .append(INDEX_VERSION).append('\t')
+                .append(index.checkedAt).append('\n');
+        for (Map.Entry<String, Long> directory : index.directories.entrySet()) {
+            content.append(INDEX_DIRECTORY_LINE)
+                    .append(directory.getKey()).append('\t')
+                    .append(directory.getValue()).append('\n');
+        }
+        for (Map.Entry<String, List<IndexEntry>> entry : index.claims.entrySet()) {
+            for (IndexEntry claim : entry.getValue()) {
+                content.append(INDEX_CLAIM_LINE)
+                        .append(entry.getKey()).append('\t')
+                        .append(claim.directory).append('\t')
+                        .append(claim.packageName).append('\t')
+                        .append(claim.timestamp).append('\t')
+                        .append(claim.source == null ? "" : claim.source).append('\n');
+            }
+        }
+
+        Path tmpFile = Files.createTempFile(indexFile.getParentFile().toPath(), indexFile.getName(), ".tmp");
+        boolean moved = false;
+        try {
+            Files.write(tmpFile, content.toString().getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(tmpFile, indexFile.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile, indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            moved = true;
+        } finally {
+            if (!moved) {
+                Files.deleteIfExists(tmpFile);
+            }
+        }
+    }
+
+    /**
+     * Records that the manifest's package lists each of its commands.
+     */
+    private static void addClaims(Map<String, List<IndexEntry>> index, CliCommandManifest manifest,
+            String directory) {
+        for (String commandName : manifest.getCommandNames()) {
+            List<IndexEntry> claims = index.computeIfAbsent(commandName, k -> new ArrayList<>(1));
+            boolean listed = false;
+            for (IndexEntry claim : claims) {
+                listed |= claim.directory.equals(directory);
+            }
+            if (!listed) {
+                claims.add(new IndexEntry(directory, manifest.getPackageName(), manifest.getSource(),
+                        manifest.getTimestamp()));
+            }
+        }
+    }
+
+    /**
+     * Removes the claims of a package directory, leaving any command it shadowed to the next
+     * newest package.
+     */
+    private static void removeClaimsIn(Map<String, List<IndexEntry>> index, String directory) {
+        Iterator<List<IndexEntry>> it = index.values().iterator();
+        while (it.hasNext()) {
+            List<IndexEntry> claims = it.next();
+            claims.removeIf(claim -> claim.directory.equals(directory));
+            if (claims.isEmpty()) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the claim from the most recently saved manifest; it wins because installing that
+     * package overwrote the others' wrappers.
+     */
+    private static IndexEntry findNewest(List<IndexEntry> claims) {
+        IndexEntry newest = null;
+        if (claims != null) {
+            for (IndexEntry claim : claims) {
+                if (newest == null || claim.timestamp >= newest.timestamp) {
+                    newest = claim;
+                }
+            }
+        }
+        return newest;
+    }
+
+    /**
+     * A change made while holding the index lock.
+     */
+    private interface IndexUpdate {
+        void apply(CommandIndex index) throws IOException;
+    }
+
+    /**
+     * The command claims and the package directories they were loaded from.
+     */
+    private static final class CommandIndex {
+        private final Map<String, List<IndexEntry>> claims = new HashMap<>();
+        private final Map<String, Long> directories = new HashMap<>();
+        private long checkedAt;
+
+        /**
+         * @return true if a directory with this modification time could have changed again since
+         *         the last check without its modification time changing
+         */
+        private boolean isRacy(long modified) {
+            return modified + MTIME_GRANULARITY_MS > checkedAt;
+        }
+    }
+
+    /**
+     * A package listing a command name in the index.
+     */
+    private static final class IndexEntry {
+        private final String directory;
+        private final String packageName;
+        private final String source;
+        private final long timestamp;
+
+        private IndexEntry(String directory, String packageName, String source, long timestamp) {
+            this.directory = directory;
+            this.packageName = packageName;
+            this.source = source;
+            this.timestamp = timestamp;
+        }
+    }
 }
@@ -58,6 +58,9 @@ public class LinuxCliCommandInstaller extends AbstractUnixCliCommandInstaller {
         boolean anyCreated = false;
         File commandsBinDir = null;
         File launcherBinDir = null;
+        // Directories to add to the PATH, so that the shell config files are updated once
+        List<File> pathDirs = new ArrayList<>();
+        List<String> pathContexts = new ArrayList<>();
 
         // Create command scripts in per-app directory if requested
         if (settings.isInstallCliCommands() && commands != null && !commands.isEmpty()) {
@@ -66,15 +69,14 @@ public class LinuxCliCommandInstaller extends AbstractUnixCliCommandInstaller {
             if (!ensureBinDirExists(commandsBinDir)) {
                 System.err.println("Warning: Failed to create CLI commands bin directory: " + commandsBinDir);
             } else {
-                createdFiles.addAll(installCommandScripts(launcherPath, commands, commandsBinDir));
+                createdFiles.addAll(installCommandScripts(launcherPath, commands, commandsBinDir,
+                        settings.getPackageName(), settings.getSource()));
                 anyCreated = !createdFiles.isEmpty();
 
                 if (anyCreated) {
                     // Add per-app commands directory to PATH
-                    addToPath(commandsBinDir);
-                    if (installationLogger != null) {
-                        installationLogger.logPathChange(true, commandsBinDir.getAbsolutePath(), "Linux CLI commands");
-                    }
+                    pathDirs.add(commandsBinDir);
+                    pathContexts.add("Linux CLI commands");
                 }
             }
         }
@@ -105,10 +107,8 @@ public class LinuxCliCommandInstaller extends AbstractUnixCliCommandInstaller {
                     anyCreated = true;
 
                     // Add ~/.local/bin to PATH
-                    addToPath(launcherBinDir);
-                    if (installationLogger != null) {
-                        installationLogger.logPathChange(true, launcherBinDir.getAbsolutePath(), "Linux CLI launcher");
-                    }
+                    pathDirs.add(launcherBinDir);
+                    pathContexts.add("Linux CLI launcher");
                 } catch (Exception e) {
                     System.err.println("Warning: Failed to create command-line symlink: " + e.getMessage());
                     if (installationLogger != null) {
@@ -119,6 +119,15 @@ public class LinuxCliCommandInstaller extends AbstractUnixCliCommandInstaller {
             }
         }
 
+        if (!pathDirs.isEmpty()) {
+            addAllToPath(pathDirs);
+            if (installationLogger != null) {
+                for (int i = 0; i < pathDirs.size(); i++) {
+                    installationLogger.logPathChange(true, pathDirs.get(i).getAbsolutePath(), pathContexts.get(i));
+                }
+            }
+        }
+
         // Save metadata if any files were created
         if (anyCreated) {
             File appDir = launcherPath.getParentFile();
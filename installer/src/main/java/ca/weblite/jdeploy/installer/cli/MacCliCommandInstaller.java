@@ -80,7 +80,8 @@ public class MacCliCommandInstaller extends AbstractUnixCliCommandInstaller {
             } else {
                 DebugLogger.log("ensureBinDirExists() succeeded");
                 DebugLogger.log("Starting installCommandScripts() for " + commands.size() + " commands");
-                createdFiles.addAll(installCommandScripts(launcherPath, commands, commandsBinDir));
+                createdFiles.addAll(installCommandScripts(launcherPath, commands, commandsBinDir,
+                        settings.getPackageName(), settings.getSource()));
                 DebugLogger.log("installCommandScripts() completed, created " + createdFiles.size() + " files");
                 anyCreated = !createdFiles.isEmpty();
 
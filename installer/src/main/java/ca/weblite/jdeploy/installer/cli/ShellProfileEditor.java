@@ -0,0 +1,464 @@
+package ca.weblite.jdeploy.installer.cli;
+
+import ca.weblite.jdeploy.installer.util.DebugLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Adds and removes the PATH exports that jDeploy writes to shell configuration files
+ * (.bashrc, .zshrc, .profile, ...).
+ *
+ * Edits for any number of files and bin directories are queued with {@link #addPath(File, File)}
+ * and {@link #removePath(File, File)}, then {@link #apply()} reads each file once, applies all of
+ * its edits in a single pass and writes it back atomically, only if its content changed.  A run
+ * that changes nothing leaves the files, and their modification times, untouched.
+ *
+ * The result for each file is the same as applying its edits one at a time: every removal first,
+ * in the order they were queued, followed by the additions.  Adding a directory first removes any
+ * existing export for it, so its export always ends up at the end of the file.
+ */
+public class ShellProfileEditor {
+
+    static final String JDEPLOY_COMMENT = "# Added by jDeploy installer";
+
+    private static final String EXPORT_PREFIX = "export PATH=\"";
+    private static final String EXPORT_SUFFIX = ":$PATH\"";
+
+    private final File homeDir;
+    private final Map<File, FileEdits> edits = new LinkedHashMap<>();
+
+    /**
+     * @param homeDir the user's home directory; bin directories under it are written as $HOME-relative paths
+     */
+    public ShellProfileEditor(File homeDir) {
+        this.homeDir = homeDir;
+    }
+
+    /**
+     * Queues adding binDir to the PATH in configFile.  The file is created if it does not exist.
+     * Files containing {@link UnixPathManager#NO_AUTO_PATH_MARKER} are left alone.
+     */
+    public ShellProfileEditor addPath(File configFile, File binDir) {
+        editsFor(configFile).adds.add(binDir);
+        return this;
+    }
+
+    /**
+     * Queues removing the jDeploy PATH export for binDir from configFile.
+     */
+    public ShellProfileEditor removePath(File configFile, File binDir) {
+        editsFor(configFile).removes.add(binDir);
+        return this;
+    }
+
+    private FileEdits editsFor(File configFile) {
+        return edits.computeIfAbsent(configFile, k -> new FileEdits());
+    }
+
+    /**
+     * Applies all queued edits.  A failure to update one file does not prevent the others from
+     * being updated; it is reported in that file's result.
+     *
+     * @return the result for each file, in the order the files were first queued
+     */
+    public Map<File, Result> apply() {
+        Map<File, Result> results = new LinkedHashMap<>();
+        for (Map.Entry<File, FileEdits> entry : edits.entrySet()) {
+            File configFile = entry.getKey();
+            FileEdits fileEdits = entry.getValue();
+            Result result = new Result(configFile, fileEdits.removes.size());
+            try {
+                apply(configFile, fileEdits, result);
+            } catch (IOException e) {
+                DebugLogger.log("Failed to update config file " + configFile.getAbsolutePath() + ": " + e.getMessage());
+                result.error = e;
+            }
+            results.put(configFile, result);
+        }
+        edits.clear();
+        return results;
+    }
+
+    private void apply(File configFile, FileEdits fileEdits, Result result) throws IOException {
+        boolean exists = configFile.exists();
+        if (!exists && fileEdits.adds.isEmpty()) {
+            return;
+        }
+        String original = exists ? read(configFile) : null;
+
+        List<File> adds = fileEdits.adds;
+        if (exists && !adds.isEmpty() && original.contains(UnixPathManager.NO_AUTO_PATH_MARKER)) {
+            DebugLogger.log("Skipping PATH modification in " + configFile.getAbsolutePath() + " due to " + UnixPathManager.NO_AUTO_PATH_MARKER + " marker");
+            result.optedOut = true;
+            adds = new ArrayList<>();
+        }
+
+        if (exists && fileEdits.removes.isEmpty() && !adds.isEmpty() && isUpToDate(original, adds)) {
+            result.added.addAll(adds);
+            return;
+        }
+
+        String content;
+        if (exists) {
+            List<File> removals = new ArrayList<>(fileEdits.removes);
+            removals.addAll(adds);
+            boolean[] removed = new boolean[removals.size()];
+            content = removeEntries(original, removals, removed);
+            System.arraycopy(removed, 0, result.removed, 0, result.removed.length);
+        } else {
+            content = initialContent(configFile);
+            result.created = true;
+        }
+
+        content = appendExports(content, adds);
+        result.added.addAll(adds);
+
+        if (exists && content.equals(original)) {
+            return;
+        }
+        DebugLogger.log("Writing PATH changes to: " + configFile.getAbsolutePath());
+        write(configFile, content, exists);
+        result.modified = true;
+    }
+
+    private String appendExports(String content, List<File> binDirs) {
+        for (File binDir : binDirs) {
+            String trimmed = trimTrailingWhitespace(content);
+            // Use a blank line separator only when there's existing content
+            String separator = trimmed.isEmpty() ? "" : "\n\n";
+            content = trimmed + separator + JDEPLOY_COMMENT + "\n" +
+                    EXPORT_PREFIX + UnixPathManager.computePathExportString(binDir, homeDir) + EXPORT_SUFFIX + "\n";
+        }
+        return content;
+    }
+
+    /**
+     * Checks whether adding binDirs would leave content as it is: it already ends with their
+     * exports, in order, and has no other entries for them (or orphaned comments) to clean up.
+     * Without this check, re-adding would still normalize blank lines elsewhere in the file.
+     */
+    private boolean isUpToDate(String content, List<File> binDirs) {
+        String exports = appendExports("", binDirs);
+        String prefix;
+        if (content.equals(exports)) {
+            prefix = "";
+        } else if (content.endsWith("\n\n" + exports)) {
+            prefix = content.substring(0, content.length() - exports.length() - 2);
+            if (prefix.isEmpty() || !prefix.equals(trimTrailingWhitespace(prefix))) {
+                return false;
+            }
+        } else {
+            return false;
+        }
+        boolean[] removed = new boolean[binDirs.size()];
+        removeEntries(prefix, binDirs, removed);
+        for (boolean r : removed) {
+            if (r) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Content for a config file that is about to be created.  A new .bash_profile sources .profile
+     * if it exists, since bash only reads the first of .bash_profile, .bash_login and .profile.
+     */
+    private String initialContent(File configFile) {
+        if (".bash_profile".equals(configFile.getName()) && new File(homeDir, ".profile").exists()) {
+            DebugLogger.log("Sourcing .profile from new .bash_profile to preserve existing config");
+            System.out.println("Created .bash_profile with sourcing of existing .profile");
+            return "# Source .profile to preserve existing configuration\n" +
+                    "if [ -f ~/.profile ]; then\n" +
+                    "    . ~/.profile\n" +
+                    "fi\n";
+        }
+        return "";
+    }
+
+    /**
+     * Removes the jDeploy-added PATH exports for any of the given directories, together with
+     * orphaned jDeploy comments, in one pass over the content.
+     *
+     * @param removed set to true for each directory that had an entry removed.  A line that
+     *                matches several directories is credited to the first; orphaned comments
+     *                are credited to the first directory
+     * @return the new content, or the original content if nothing was removed
+     */
+    static String removeEntries(String content, List<File> binDirs, File homeDir, boolean[] removed) {
+        String[] exportStrings = new String[binDirs.size()];
+        String[] absolutePaths = new String[binDirs.size()];
+        for (int i = 0; i < binDirs.size(); i++) {
+            exportStrings[i] = UnixPathManager.computePathExportString(binDirs.get(i), homeDir);
+            absolutePaths[i] = binDirs.get(i).getAbsolutePath();
+        }
+
+        StringBuilder result = new StringBuilder(content.length());
+        boolean anyRemoved = false;
+        boolean skipNextExport = false;
+        boolean lastEmitted = false;
+        boolean lastEmittedEmpty = false;
+
+        int lineStart = 0;
+        String line = nextLine(content, lineStart);
+        while (line != null) {
+            int nextStart = lineStart + line.length() + 1;
+            String next = nextLine(content, nextStart);
+            String trimmed = line.trim();
+            lineStart = nextStart;
+
+            if (trimmed.equals(JDEPLOY_COMMENT)) {
+                String nextTrimmed = next != null ? next.trim() : null;
+                if (nextTrimmed != null && nextTrimmed.startsWith(EXPORT_PREFIX)) {
+                    int match = findMatch(nextTrimmed, exportStrings, absolutePaths);
+                    if (match >= 0) {
+                        // Skip this comment line and the export line that follows it
+                        removed[match] = true;
+                        anyRemoved = true;
+                        skipNextExport = true;
+                        line = next;
+                        continue;
+                    }
+                } else if (binDirs.size() > 0) {
+                    // Orphaned comment: not followed by any export PATH line
+                    removed[0] = true;
+                    anyRemoved = true;
+                    line = next;
+                    continue;
+                }
+            }
+
+            if (trimmed.startsWith(EXPORT_PREFIX)) {
+                int match = findMatch(trimmed, exportStrings, absolutePaths);
+                if (match >= 0 && skipNextExport) {
+                    skipNextExport = false;
+                    line = next;
+                    continue;
+                }
+                // Also remove standalone export lines (not preceded by a jDeploy comment)
+                if (match >= 0 && trimmed.contains(EXPORT_SUFFIX)) {
+                    removed[match] = true;
+                    anyRemoved = true;
+                    line = next;
+                    continue;
+                }
+            }
+
+            skipNextExport = false;
+            // Drop leading blank lines and collapse runs of blank lines into one; this also
+            // leaves at most one trailing newline
+            boolean empty = line.isEmpty();
+            if (!empty || (lastEmitted && !lastEmittedEmpty)) {
+                if (lastEmitted) {
+                    result.append('\n');
+                }
+                result.append(line);
+                lastEmitted = true;
+                lastEmittedEmpty = empty;
+            }
+            line = next;
+        }
+
+        if (!anyRemoved) {
+            return content;
+        }
+        // Preserve trailing newline if original had one
+        if (content.endsWith("\n") && (result.length() == 0 || result.charAt(result.length() - 1) != '\n')) {
+            result.append('\n');
+        }
+        return result.toString();
+    }
+
+    private String removeEntries(String content, List<File> binDirs, boolean[] removed) {
+        return removeEntries(content, binDirs, homeDir, removed);
+    }
+
+    /**
+     * Reads a config file the way its lines are edited: \r\n and \r line endings become \n and
+     * the last line is always terminated.  A file is only rewritten, with these normalized line
+     * endings, when an edit actually changes it.
+     */
+    private static String read(File configFile) throws IOException {
+        String raw = new String(Files.readAllBytes(configFile.toPath()), StandardCharsets.UTF_8);
+        if (raw.indexOf('\r') < 0) {
+            return raw.isEmpty() || raw.endsWith("\n") ? raw : raw + "\n";
+        }
+        StringBuilder sb = new StringBuilder(raw.length() + 1);
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (c == '\r') {
+                sb.append('\n');
+                if (i + 1 < raw.length() && raw.charAt(i + 1) == '\n') {
+                    i++;
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        if (sb.length() > 0 && sb.charAt(sb.length() - 1) != '\n') {
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the line starting at start, without its terminating newline, or null past the end
+     */
+    private static String nextLine(String content, int start) {
+        if (start > content.length()) {
+            return null;
+        }
+        int end = content.indexOf('\n', start);
+        return content.substring(start, end < 0 ? content.length() : end);
+    }
+
+    private static int findMatch(String exportLine, String[] exportStrings, String[] absolutePaths) {
+        for (int i = 0; i < exportStrings.length; i++) {
+            if (exportLine.contains(exportStrings[i]) || exportLine.contains(absolutePaths[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Equivalent to {@code s.replaceAll("\\s+$", "")}, without the regex's quadratic worst case.
+     */
+    static String trimTrailingWhitespace(String s) {
+        int end = s.length();
+        while (end > 0 && isRegexWhitespace(s.charAt(end - 1))) {
+            end--;
+        }
+        return s.substring(0, end);
+    }
+
+    private static boolean isRegexWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Replaces the file's content atomically, so a shell starting concurrently never reads a
+     * partially written file.  Symlinked config files (as kept by dotfile managers) are written
+     * through to their target rather than replaced with a regular file.
+     */
+    private static void write(File configFile, String content, boolean exists) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        Path target = configFile.toPath().toAbsolutePath();
+        if (!exists) {
+            Path parent = target.getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Files.write(target, bytes);
+            return;
+        }
+        if (Files.isSymbolicLink(target)) {
+            target = target.toRealPath();
+        }
+
+        Path tmpFile = Files.createTempFile(target.getParent(), "." + target.getFileName() + ".", ".tmp");
+        boolean moved = false;
+        try {
+            Files.write(tmpFile, bytes);
+            PosixFileAttributeView posix = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+            if (posix != null) {
+                Files.setPosixFilePermissions(tmpFile, posix.readAttributes().permissions());
+            }
+            try {
+                Files.move(tmpFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            moved = true;
+        } finally {
+            if (!moved) {
+                Files.deleteIfExists(tmpFile);
+            }
+        }
+    }
+
+    private static class FileEdits {
+        private final List<File> removes = new ArrayList<>();
+        private final List<File> adds = new ArrayList<>();
+    }
+
+    /**
+     * The outcome of applying the queued edits to one config file.
+     */
+    public static class Result {
+        private final File configFile;
+        private final boolean[] removed;
+        private final List<File> added = new ArrayList<>();
+        private boolean created;
+        private boolean modified;
+        private boolean optedOut;
+        private IOException error;
+
+        Result(File configFile, int removeCount) {
+            this.configFile = configFile;
+            this.removed = new boolean[removeCount];
+        }
+
+        public File getConfigFile() {
+            return configFile;
+        }
+
+        /**
+         * @return for each {@link #removePath(File, File)} queued for this file, in order,
+         *         whether an entry was removed for it
+         */
+        public boolean[] getRemoved() {
+            return removed.clone();
+        }
+
+        /**
+         * @return the directories whose exports are now at the end of the file
+         */
+        public List<File> getAdded() {
+            return added;
+        }
+
+        /**
+         * @return true if the file did not exist and was created
+         */
+        public boolean isCreated() {
+            return created;
+        }
+
+        /**
+         * @return true if the file was written; false if its content was already up to date
+         */
+        public boolean isModified() {
+            return modified;
+        }
+
+        /**
+         * @return true if additions were skipped because the file contains the no-auto-path marker
+         */
+        public boolean isOptedOut() {
+            return optedOut;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        /**
+         * @return the error that prevented the file from being updated, or null
+         */
+        public IOException getError() {
+            return error;
+        }
+    }
+}
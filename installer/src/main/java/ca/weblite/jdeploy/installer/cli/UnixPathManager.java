@@ -6,9 +6,9 @@ import ca.weblite.tools.platform.Platform;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Utility class for managing PATH updates on Unix-like systems (macOS and Linux).
@@ -56,17 +56,46 @@ public class UnixPathManager {
      * @return true if PATH was updated or already contained the directory, false otherwise
      */
     static boolean addToPath(File binDir, String shell, String pathEnv, File homeDir, Platform platform) {
+        return addAllToPath(Collections.singletonList(binDir), shell, pathEnv, homeDir, platform);
+    }
+
+    /**
+     * Adds several directories to the PATH, reading and rewriting each shell configuration file
+     * only once.  The directories' exports are appended in the given order.
+     *
+     * @param binDirs  directories to add to PATH
+     * @param shell    shell path from environment (e.g., /bin/bash), or null to use default
+     * @param pathEnv  current PATH environment variable
+     * @param homeDir  user's home directory to update config files under
+     * @return true if PATH was updated or already contained the directories, false otherwise
+     * @see #addToPath(File, String, String, File)
+     */
+    public static boolean addAllToPath(List<File> binDirs, String shell, String pathEnv, File homeDir) {
+        return addAllToPath(binDirs, shell, pathEnv, homeDir, Platform.getSystemPlatform());
+    }
+
+    static boolean addAllToPath(List<File> binDirs, String shell, String pathEnv, File homeDir, Platform platform) {
         // Log input parameters
-        DebugLogger.log("UnixPathManager.addToPath() called with:");
-        DebugLogger.log("  binDir: " + (binDir != null ? binDir.getAbsolutePath() : "null"));
+        DebugLogger.log("UnixPathManager.addAllToPath() called with:");
+        for (File binDir : binDirs) {
+            DebugLogger.log("  binDir: " + (binDir != null ? binDir.getAbsolutePath() : "null"));
+        }
         DebugLogger.log("  shell: " + (shell != null && !shell.isEmpty() ? shell : "(null or empty)"));
         DebugLogger.log("  homeDir: " + (homeDir != null ? homeDir.getAbsolutePath() : "null"));
 
         // Verify binDir exists and is a directory before modifying shell config
-        if (binDir == null || !binDir.exists() || !binDir.isDirectory()) {
-            DebugLogger.log("Early return: binDir validation failed");
-            System.err.println("Warning: Cannot add to PATH - directory does not exist: " +
-                    (binDir != null ? binDir.getAbsolutePath() : "null"));
+        List<File> validBinDirs = new ArrayList<>();
+        for (File binDir : binDirs) {
+            if (binDir == null || !binDir.exists() || !binDir.isDirectory()) {
+                DebugLogger.log("Skipping binDir: validation failed");
+                System.err.println("Warning: Cannot add to PATH - directory does not exist: " +
+                        (binDir != null ? binDir.getAbsolutePath() : "null"));
+            } else {
+                validBinDirs.add(binDir);
+            }
+        }
+        if (validBinDirs.isEmpty()) {
+            DebugLogger.log("Early return: no valid binDir");
             return false;
         }
 
@@ -80,12 +109,10 @@ public class UnixPathManager {
         DebugLogger.log("Platform detection: isMac=" + isMac);
         DebugLogger.log("Writing to shell configuration files");
 
-        boolean anyUpdated = false;
+        List<File> configFiles = new ArrayList<>();
 
         // Update bash configuration files
-        File bashrc = new File(homeDir, ".bashrc");
-        boolean bashrcUpdated = addPathToConfigFile(bashrc, binDir, homeDir);
-        anyUpdated = bashrcUpdated;
+        configFiles.add(new File(homeDir, ".bashrc"));
 
         // Update login shell config for PATH persistence in login shells and non-interactive environments.
         // Bash reads the first file it finds among: .bash_profile, .bash_login, .profile
@@ -101,109 +128,57 @@ public class UnixPathManager {
             File bashProfile = new File(homeDir, ".bash_profile");
             File profile = new File(homeDir, ".profile");
 
-            File loginShellConfig;
             if (bashProfile.exists()) {
-                loginShellConfig = bashProfile;
+                configFiles.add(bashProfile);
             } else if (profile.exists()) {
-                loginShellConfig = profile;
+                configFiles.add(profile);
                 DebugLogger.log("Using existing .profile instead of creating .bash_profile");
             } else {
-                loginShellConfig = bashProfile;
+                configFiles.add(bashProfile);
             }
-
-            boolean profileUpdated = addPathToConfigFile(loginShellConfig, binDir, homeDir);
-            anyUpdated = anyUpdated || profileUpdated;
         } else {
             // On Linux, write to .profile for login shells and non-interactive environments.
             // .bashrc is only sourced by interactive bash shells, so .profile is needed
             // to ensure PATH is available in login shells, SSH sessions, cron jobs, etc.
-            File profile = new File(homeDir, ".profile");
-            boolean profileUpdated = addPathToConfigFile(profile, binDir, homeDir);
-            anyUpdated = anyUpdated || profileUpdated;
+            configFiles.add(new File(homeDir, ".profile"));
         }
 
         // Update zsh configuration file (.zshrc)
-        File zshrc = new File(homeDir, ".zshrc");
-        boolean zshrcUpdated = addPathToConfigFile(zshrc, binDir, homeDir);
-        anyUpdated = anyUpdated || zshrcUpdated;
+        configFiles.add(new File(homeDir, ".zshrc"));
 
-        if (anyUpdated) {
-            System.out.println("Please restart your terminal or source your shell configuration.");
-            return true;
+        ShellProfileEditor editor = new ShellProfileEditor(homeDir);
+        for (File configFile : configFiles) {
+            for (File binDir : validBinDirs) {
+                editor.addPath(configFile, binDir);
+            }
         }
-        return false;
-    }
-
-    /**
-     * Internal helper to add a PATH export to a specific configuration file.
-     *
-     * @param configFile the file to update
-     * @param binDir     the binary directory to add
-     * @param homeDir    the user's home directory
-     * @return true if the file was updated or already contained the entry, false on error
-     */
-    private static boolean addPathToConfigFile(File configFile, File binDir, File homeDir) {
-        try {
-            String pathExportString = computePathExportString(binDir, homeDir);
-            String displayPath = computeDisplayPath(binDir, homeDir);
-
-            // Ensure configFile exists (create if necessary)
-            if (!configFile.exists()) {
-                DebugLogger.log("Config file does not exist, creating: " + configFile.getAbsolutePath());
-                File parent = configFile.getParentFile();
-                if (parent != null && !parent.exists()) {
-                    parent.mkdirs();
-                }
-                configFile.createNewFile();
 
-                // If we're creating .bash_profile, source .profile if it exists
-                // This prevents breaking existing user configurations, since bash
-                // only reads the first file it finds among .bash_profile, .bash_login, .profile
-                if (".bash_profile".equals(configFile.getName())) {
-                    File profile = new File(homeDir, ".profile");
-                    if (profile.exists()) {
-                        DebugLogger.log("Sourcing .profile from new .bash_profile to preserve existing config");
-                        String sourceProfile = "# Source .profile to preserve existing configuration\n" +
-                                "if [ -f ~/.profile ]; then\n" +
-                                "    . ~/.profile\n" +
-                                "fi\n";
-                        try (FileOutputStream fos = new FileOutputStream(configFile)) {
-                            fos.write(sourceProfile.getBytes(StandardCharsets.UTF_8));
-                        }
-                        System.out.println("Created .bash_profile with sourcing of existing .profile");
-                    }
-                }
-            } else {
-                // Check for user override marker
-                String content = IOUtil.readToString(new FileInputStream(configFile));
-                if (content.contains(NO_AUTO_PATH_MARKER)) {
-                    DebugLogger.log("Skipping PATH modification in " + configFile.getAbsolutePath() + " due to " + NO_AUTO_PATH_MARKER + " marker");
-                    System.out.println("Skipping PATH modification in " + configFile.getName() + " (found " + NO_AUTO_PATH_MARKER + " marker)");
-                    return true; // Return true to indicate success (user explicitly opted out)
-                }
-
-                // Remove any existing PATH entry for this binDir first
-                removePathFromConfigFile(configFile, binDir, homeDir);
+        boolean anyUpdated = false;
+        for (ShellProfileEditor.Result result : editor.apply().values()) {
+            String fileName = result.getConfigFile().getName();
+            if (!result.isSuccess()) {
+                continue;
             }
-
-            // Append PATH export to the config file (always at the end)
-            // Read current content to ensure clean trailing whitespace before appending
-            DebugLogger.log("Writing PATH export to: " + configFile.getAbsolutePath());
-            String currentContent = IOUtil.readToString(new FileInputStream(configFile));
-            String trimmedContent = currentContent.replaceAll("\\s+$", "");
-            // Use a blank line separator only when there's existing content
-            String separator = trimmedContent.isEmpty() ? "" : "\n\n";
-            String pathExport = separator + "# Added by jDeploy installer\nexport PATH=\"" + pathExportString + ":$PATH\"\n";
-            try (FileOutputStream fos = new FileOutputStream(configFile)) {
-                fos.write((trimmedContent + pathExport).getBytes(StandardCharsets.UTF_8));
+            anyUpdated = true;
+            if (result.isOptedOut()) {
+                System.out.println("Skipping PATH modification in " + fileName + " (found " + NO_AUTO_PATH_MARKER + " marker)");
+                continue;
+            }
+            for (File binDir : result.getAdded()) {
+                String displayPath = computeDisplayPath(binDir, homeDir);
+                if (result.isModified()) {
+                    System.out.println("Added " + displayPath + " to PATH in " + fileName);
+                } else {
+                    DebugLogger.log(displayPath + " is already on the PATH in " + result.getConfigFile().getAbsolutePath());
+                }
             }
+        }
 
-            System.out.println("Added " + displayPath + " to PATH in " + configFile.getName());
+        if (anyUpdated) {
+            System.out.println("Please restart your terminal or source your shell configuration.");
             return true;
-        } catch (Exception e) {
-            DebugLogger.log("Failed to update config file " + configFile.getAbsolutePath() + ": " + e.getMessage());
-            return false;
         }
+        return false;
     }
 
     /**
@@ -215,7 +190,7 @@ public class UnixPathManager {
      * @param homeDir the user's home directory
      * @return the path string to use in export statements
      */
-    private static String computePathExportString(File binDir, File homeDir) {
+    static String computePathExportString(File binDir, File homeDir) {
         String homePath = homeDir.getAbsolutePath();
         String binPath = binDir.getAbsolutePath();
 
@@ -280,95 +255,42 @@ public class UnixPathManager {
      * @return true if any entry was removed, false otherwise
      */
     public static boolean removePathFromConfigFile(File configFile, File binDir, File homeDir) {
+        return removePathsFromConfigFile(configFile, Collections.singletonList(binDir), homeDir)[0];
+    }
+
+    /**
+     * Removes the PATH exports for several binDirs from a config file, reading and rewriting the
+     * file only once.  The result is the same as calling
+     * {@link #removePathFromConfigFile(File, File, File)} for each directory in turn.
+     *
+     * @param configFile the shell configuration file to modify
+     * @param binDirs the binary directories whose PATH entries should be removed
+     * @param homeDir the user's home directory (for computing relative paths)
+     * @return for each binDir, in the same order, whether an entry was removed for it
+     */
+    public static boolean[] removePathsFromConfigFile(File configFile, List<File> binDirs, File homeDir) {
         if (configFile == null || !configFile.exists()) {
-            return false;
+            return new boolean[binDirs.size()];
         }
-        try {
-            String content = IOUtil.readToString(new FileInputStream(configFile));
-            String pathExportString = computePathExportString(binDir, homeDir);
-            String absolutePath = binDir.getAbsolutePath();
-            
-            // Build patterns to match jDeploy-added PATH entries for this directory
-            // We want to remove both the comment line and the export line
-            String[] lines = content.split("\n", -1);
-            StringBuilder result = new StringBuilder();
-            boolean removed = false;
-            boolean skipNextExport = false;
-            
-            for (int i = 0; i < lines.length; i++) {
-                String line = lines[i];
-                String trimmed = line.trim();
-                
-                // Check if this is a jDeploy comment line
-                if (trimmed.equals("# Added by jDeploy installer")) {
-                    // Look ahead to see if the next line is an export for our binDir
-                    if (i + 1 < lines.length) {
-                        String nextLine = lines[i + 1].trim();
-                        if (nextLine.startsWith("export PATH=\"") &&
-                            (nextLine.contains(pathExportString) || nextLine.contains(absolutePath))) {
-                            // Skip this comment line and mark to skip the export line
-                            skipNextExport = true;
-                            removed = true;
-                            continue;
-                        }
-                        // Orphaned comment: not followed by any export PATH line
-                        if (!nextLine.startsWith("export PATH=\"")) {
-                            removed = true;
-                            continue;
-                        }
-                    } else {
-                        // Comment at end of file with no following line - orphaned
-                        removed = true;
-                        continue;
-                    }
-                }
-                
-                // Check if this is an export line we should skip
-                if (skipNextExport && trimmed.startsWith("export PATH=\"") &&
-                    (trimmed.contains(pathExportString) || trimmed.contains(absolutePath))) {
-                    skipNextExport = false;
-                    continue;
-                }
-                
-                // Also check for standalone export lines (not preceded by jDeploy comment)
-                if (trimmed.startsWith("export PATH=\"") &&
-                    (trimmed.contains(pathExportString) || trimmed.contains(absolutePath)) &&
-                    trimmed.contains(":$PATH\"")) {
-                    removed = true;
-                    continue;
-                }
-                
-                skipNextExport = false;
-                if (result.length() > 0 || !line.isEmpty()) {
-                    if (result.length() > 0) {
-                        result.append("\n");
-                    }
-                    result.append(line);
-                }
-            }
-            
-            if (removed) {
-                // Write back the modified content
-                String newContent = result.toString();
-                // Collapse multiple consecutive blank lines into at most one
-                newContent = newContent.replaceAll("\n{3,}", "\n\n");
-                // Trim trailing blank lines, keeping at most one trailing newline
-                newContent = newContent.replaceAll("\n{2,}$", "\n");
-                // Preserve trailing newline if original had one
-                if (content.endsWith("\n") && !newContent.endsWith("\n")) {
-                    newContent += "\n";
-                }
-                try (FileOutputStream fos = new FileOutputStream(configFile)) {
-                    fos.write(newContent.getBytes(StandardCharsets.UTF_8));
+        ShellProfileEditor editor = new ShellProfileEditor(homeDir);
+        for (File binDir : binDirs) {
+            editor.removePath(configFile, binDir);
+        }
+        ShellProfileEditor.Result result = editor.apply().get(configFile);
+        if (!result.isSuccess()) {
+            DebugLogger.log("Failed to remove PATH entry from " + configFile.getAbsolutePath() + ": " + result.getError().getMessage());
+            return new boolean[binDirs.size()];
+        }
+
+        boolean[] removed = result.getRemoved();
+        if (result.isModified()) {
+            for (int i = 0; i < binDirs.size(); i++) {
+                if (removed[i]) {
+                    DebugLogger.log("Removed existing PATH entry for " + binDirs.get(i).getAbsolutePath() + " from " + configFile.getAbsolutePath());
                 }
-                DebugLogger.log("Removed existing PATH entry for " + binDir.getAbsolutePath() + " from " + configFile.getAbsolutePath());
             }
-            
-            return removed;
-        } catch (Exception e) {
-            DebugLogger.log("Failed to remove PATH entry from " + configFile.getAbsolutePath() + ": " + e.getMessage());
-            return false;
         }
+        return removed;
     }
 
     /**
@@ -3,6 +3,7 @@ package ca.weblite.jdeploy.installer.cli;
 import ca.weblite.jdeploy.installer.CliInstallerConstants;
 import ca.weblite.jdeploy.installer.logging.InstallationLogger;
 import ca.weblite.jdeploy.installer.models.InstallationSettings;
+import ca.weblite.jdeploy.installer.services.ParallelServiceStopper;
 import ca.weblite.jdeploy.installer.services.ServiceDescriptorService;
 import ca.weblite.jdeploy.installer.services.ServiceDescriptor;
 import ca.weblite.jdeploy.installer.util.CliCommandBinDirResolver;
@@ -102,7 +103,8 @@ public class WindowsCliCommandInstaller implements CliCommandInstaller {
 
         try {
             // Write .cmd wrappers for each command
-            List<File> wrapperFiles = writeCommandWrappersForTest(userBinDir, launcherPath, commands);
+            List<File> wrapperFiles = writeCommandWrappersForTest(userBinDir, launcherPath, commands,
+                settings.getPackageName(), settings.getSource());
             createdFiles.addAll(wrapperFiles);
 
             // Update user PATH via registry using per-app directory
@@ -389,7 +391,26 @@ public class WindowsCliCommandInstaller implements CliCommandInstaller {
      * @throws IOException if wrapper creation fails
      */
     public List<File> writeCommandWrappersForTest(File binDir, File launcherPath, List<CommandSpec> commands) throws IOException {
+        return writeCommandWrappersForTest(binDir, launcherPath, commands, null, null);
+    }
+
+    /**
+     * Write .cmd wrapper scripts for a package's commands into the bin directory.  Existing
+     * wrappers that the command index records as the package's own are replaced without reading
+     * them, even if the launcher has moved since they were written.
+     *
+     * @param binDir the directory where wrappers will be created
+     * @param launcherPath the path to the launcher executable
+     * @param commands list of command specifications
+     * @param packageName the package being installed, or null to only check the wrappers themselves
+     * @param source the package's source URL (null for NPM packages)
+     * @return list of created wrapper files
+     * @throws IOException if wrapper creation fails
+     */
+    public List<File> writeCommandWrappersForTest(File binDir, File launcherPath, List<CommandSpec> commands,
+                                                  String packageName, String source) throws IOException {
         List<File> created = new ArrayList<>();
+        CliCommandManifestRepository manifestRepository = packageName != null ? createManifestRepository() : null;
 
         if (!binDir.exists()) {
             if (!binDir.mkdirs()) {
@@ -417,7 +438,9 @@ public class WindowsCliCommandInstaller implements CliCommandInstaller {
             // Check for collision with existing wrapper (check .cmd as the primary indicator)
             boolean wasOverwritten = false;
             if (cmdWrapper.exists()) {
-                String existingLauncherPath = extractLauncherPathFromCmdFile(cmdWrapper);
+                String existingLauncherPath = isOwnedByPackage(manifestRepository, name, binDir, packageName, source)
+                        ? null
+                        : extractLauncherPathFromCmdFile(cmdWrapper);
 
                 if (existingLauncherPath != null && !existingLauncherPath.equals(launcherPath.getAbsolutePath())) {
                     // Different app owns this command - invoke collision handler
@@ -758,6 +781,24 @@ public class WindowsCliCommandInstaller implements CliCommandInstaller {
         FileUtils.writeStringToFile(metadataFile, metadata.toString(), "UTF-8");
     }
 
+    /**
+     * Looks up in the command index whether the package owns a command's wrapper.
+     *
+     * @return true if it does; false if it doesn't, the repository is null or the lookup failed
+     */
+    private static boolean isOwnedByPackage(CliCommandManifestRepository manifestRepository, String commandName,
+                                            File binDir, String packageName, String source) {
+        if (manifestRepository == null) {
+            return false;
+        }
+        try {
+            return manifestRepository.isOwnedBy(commandName, binDir, packageName, source);
+        } catch (Exception e) {
+            System.err.println("Warning: Failed to look up owner of command " + commandName + ": " + e.getMessage());
+            return false;
+        }
+    }
+
     /**
      * Adds the bin directory to the Git Bash path by modifying BOTH .bashrc AND .bash_profile.
      *
@@ -958,32 +999,11 @@ public class WindowsCliCommandInstaller implements CliCommandInstaller {
         try {
             List<ServiceDescriptor> services = serviceDescriptorService.listServices(packageName, source, branchName);
 
-            for (ServiceDescriptor service : services) {
-                // Stop the service
-                try {
-                    String commandName = service.getCommandName();
-                    System.out.println("Stopping service: " + commandName);
-
-                    // On Windows, execute: <command>.cmd service stop
-                    ProcessBuilder pb = new ProcessBuilder(commandName + ".cmd", "service", "stop");
-                    Process process = pb.start();
-                    int exitCode = process.waitFor();
-
-                    if (exitCode == 0) {
-                        System.out.println("Successfully stopped service: " + commandName);
-                        if (installationLogger != null) {
-                            installationLogger.logInfo("Stopped service: " + commandName);
-                        }
-                    } else {
-                        System.err.println("Warning: Service stop returned exit code " + exitCode + " for " + commandName);
-                    }
-                } catch (Exception e) {
-                    System.err.println("Warning: Failed to stop service " + service.getCommandName() + ": " + e.getMessage());
-                    if (installationLogger != null) {
-                        installationLogger.logError("Failed to stop service " + service.getCommandName() + ": " + e.getMessage());
-                    }
-                }
+            // On Windows, execute: <command>.cmd service stop
+            createServiceStopper(commandName -> new ProcessBuilder(commandName + ".cmd", "service", "stop"))
+                    .stopServices(services, installationLogger);
 
+            for (ServiceDescriptor service : services) {
                 // Unregister the service
                 try {
                     serviceDescriptorService.unregisterService(packageName, source, service.getCommandName(), branchName);
@@ -1006,6 +1026,16 @@ public class WindowsCliCommandInstaller implements CliCommandInstaller {
         }
     }
 
+    /**
+     * Creates the stopper used to stop services. Protected to allow test overrides.
+     *
+     * @param commandFactory Creates the stop command for a service
+     * @return a ParallelServiceStopper instance
+     */
+    protected ParallelServiceStopper createServiceStopper(ParallelServiceStopper.StopCommandFactory commandFactory) {
+        return new ParallelServiceStopper(commandFactory);
+    }
+
     /**
      * Creates a manifest repository instance. Protected to allow test overrides.
      *
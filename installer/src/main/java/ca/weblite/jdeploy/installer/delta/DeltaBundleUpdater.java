@@ -0,0 +1,375 @@
+package ca.weblite.jdeploy.installer.delta;
+
+import ca.weblite.jdeploy.delta.DeltaManifest;
+import ca.weblite.jdeploy.installer.util.ArchitectureUtil;
+import ca.weblite.tools.io.FileUtil;
+import ca.weblite.tools.io.URLUtil;
+import ca.weblite.tools.platform.Platform;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Assembles a new version of an installed package from the files the previous version already
+ * has, plus the content-addressed blobs published for the files that changed.
+ *
+ * The published {@link DeltaManifest} for this platform's bundle, or the universal one if the
+ * release has no bundle for this platform, is compared against the installed jdeploy-bundle.
+ * Missing blobs are downloaded as byte ranges of the release's blob packs, in parallel, and each
+ * is checked against its SHA-256 before use.  The new
+ * version is assembled in a staging directory next to the target and only moved into place once
+ * it is complete, so a failed update leaves nothing behind and the launcher falls back to a
+ * full download.
+ */
+public class DeltaBundleUpdater {
+
+    private static final int DEFAULT_PARALLELISM = 4;
+
+    private static final String BUNDLE_DIR = "jdeploy-bundle";
+
+    private static final String PACKAGE_JSON = "package.json";
+
+    /**
+     * Blobs in the same pack that are at most this far apart are fetched with one request.
+     */
+    private static final long MAX_RANGE_GAP = 1024 * 1024;
+
+    /**
+     * Opens a named asset from the release being installed.
+     */
+    public interface AssetSource {
+        InputStream open(String assetName) throws IOException;
+
+        /**
+         * Opens {@code length} bytes of an asset, starting at {@code offset}.  By default the
+         * whole asset is opened and the bytes before the range are skipped.
+         */
+        default InputStream open(String assetName, long offset, long length) throws IOException {
+            InputStream input = open(assetName);
+            IOUtils.skipFully(input, offset);
+            return new BoundedInputStream(input, length);
+        }
+    }
+
+    /**
+     * Opens the assets of a release by URL, using HTTP range requests for byte ranges.
+     */
+    public static class UrlAssetSource implements AssetSource {
+        private final String baseUrl;
+
+        /**
+         * @param baseUrl the URL the asset names are appended to, ending in '/'
+         */
+        public UrlAssetSource(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        @Override
+        public InputStream open(String assetName) throws IOException {
+            return URLUtil.openStream(new URL(baseUrl + assetName));
+        }
+
+        @Override
+        public InputStream open(String assetName, long offset, long length) throws IOException {
+            URL url = new URL(baseUrl + assetName);
+            if (!url.getProtocol().startsWith("http")) {
+                return AssetSource.super.open(assetName, offset, length);
+            }
+            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+            conn.setInstanceFollowRedirects(true);
+            conn.setRequestProperty("Range", "bytes=" + offset + "-" + (offset + length - 1));
+            InputStream input = conn.getInputStream();
+            if (conn.getResponseCode() != HttpURLConnection.HTTP_PARTIAL) {
+                // The server sent the whole asset
+                IOUtils.skipFully(input, offset);
+            }
+            return new BoundedInputStream(input, length);
+        }
+    }
+
+    /**
+     * Blobs that are fetched with one ranged read of a pack.
+     */
+    private static final class Range {
+        private final String pack;
+        private final long offset;
+        private long end;
+        private final List<DeltaManifest.Entry> blobs = new ArrayList<>();
+
+        private Range(String pack, long offset) {
+            this.pack = pack;
+            this.offset = offset;
+            this.end = offset;
+        }
+    }
+
+    private final AssetSource assetSource;
+
+    private final String platform;
+
+    private final int parallelism;
+
+    public DeltaBundleUpdater(AssetSource assetSource) {
+        this(assetSource, getCurrentPlatform());
+    }
+
+    /**
+     * @param platform the identifier of the platform bundle to update to, e.g. "mac-arm64", or
+     *                 null for the universal bundle
+     */
+    public DeltaBundleUpdater(AssetSource assetSource, String platform) {
+        this(assetSource, platform, DEFAULT_PARALLELISM);
+    }
+
+    public DeltaBundleUpdater(AssetSource assetSource, String platform, int parallelism) {
+        this.assetSource = assetSource;
+        this.platform = platform;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Creates {@code targetVersionDir} from {@code installedVersionDir} and the release's blobs.
+     *
+     * @return true if the target version was assembled.  False if it already exists, or if the
+     *         release has no delta index or anything went wrong; the caller should then fall back
+     *         to a full download.
+     */
+    public boolean update(File installedVersionDir, File targetVersionDir) {
+        if (targetVersionDir.exists()) {
+            return false;
+        }
+        File installedBundle = new File(installedVersionDir, BUNDLE_DIR);
+        if (!installedBundle.isDirectory()) {
+            return false;
+        }
+        File parent = targetVersionDir.getAbsoluteFile().getParentFile();
+        File staging = null;
+        try {
+            DeltaManifest target = DeltaManifest.fromJson(readAsset(DeltaManifest.FILE_NAME));
+            if (platform != null && target.getPlatforms().contains(platform)) {
+                target = DeltaManifest.fromJson(readAsset(DeltaManifest.getFileName(platform)));
+            }
+            if (target.getPackageJson() == null) {
+                throw new IOException("Delta index has no package.json");
+            }
+            DeltaManifest installed = DeltaManifest.fromDirectory(installedBundle);
+            Set<String> missing = target.getMissingHashes(installed);
+            System.out.println("Delta update: downloading " + missing.size() + " of "
+                    + target.getHashes().size() + " file(s), " + target.getSize(missing) + " bytes");
+
+            parent.mkdirs();
+            staging = Files.createTempDirectory(parent.toPath(), targetVersionDir.getName() + ".delta").toFile();
+            File blobsDir = new File(staging, ".blobs");
+            blobsDir.mkdirs();
+            Map<String, File> sources = findLocalSources(installedBundle, installed);
+            List<DeltaManifest.Entry> downloads = new ArrayList<>();
+            downloads.add(target.getPackageJson());
+            for (String hash : missing) {
+                downloads.add(findEntry(target, hash));
+            }
+            sources.putAll(downloadBlobs(downloads, blobsDir));
+
+            File stagedBundle = new File(staging, BUNDLE_DIR);
+            for (Map.Entry<String, DeltaManifest.Entry> entry : target.getEntries().entrySet()) {
+                File dest = resolve(stagedBundle, entry.getKey());
+                dest.getParentFile().mkdirs();
+                Files.copy(sources.get(entry.getValue().getHash()).toPath(), dest.toPath());
+                if (entry.getValue().isExecutable() && FileUtil.isPosix()) {
+                    dest.setExecutable(true, false);
+                }
+            }
+            Files.copy(sources.get(target.getPackageJson().getHash()).toPath(), new File(staging, PACKAGE_JSON).toPath());
+            FileUtils.deleteDirectory(blobsDir);
+
+            Files.move(staging.toPath(), targetVersionDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            staging = null;
+            return true;
+        } catch (Exception ex) {
+            System.err.println("Delta update not applied, falling back to full download: " + ex.getMessage());
+            return false;
+        } finally {
+            if (staging != null) {
+                FileUtils.deleteQuietly(staging);
+            }
+        }
+    }
+
+    /**
+     * Picks the most recently modified installed version in a package directory, other than the
+     * target version, that has a jdeploy-bundle to update from.
+     *
+     * @return the version directory, or null if there is none
+     */
+    public static File findInstalledVersion(File packageDir, String targetVersion) {
+        File[] versions = packageDir.listFiles(File::isDirectory);
+        if (versions == null) {
+            return null;
+        }
+        File out = null;
+        for (File version : versions) {
+            if (version.getName().equals(targetVersion) || !new File(version, BUNDLE_DIR).isDirectory()) {
+                continue;
+            }
+            if (out == null || version.lastModified() > out.lastModified()) {
+                out = version;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * The identifier of the platform bundle the launcher installs on this machine.
+     */
+    public static String getCurrentPlatform() {
+        Platform system = Platform.getSystemPlatform();
+        String os = system.isMac() ? "mac" : system.isWindows() ? "win" : system.isLinux() ? "linux" : null;
+        if (os == null) {
+            return null;
+        }
+        return os + "-" + ArchitectureUtil.getArchitecture();
+    }
+
+    private static DeltaManifest.Entry findEntry(DeltaManifest manifest, String hash) throws IOException {
+        for (DeltaManifest.Entry entry : manifest.getEntries().values()) {
+            if (entry.getHash().equals(hash)) {
+                return entry;
+            }
+        }
+        throw new IOException("No entry for blob " + hash);
+    }
+
+    private Map<String, File> findLocalSources(File installedBundle, DeltaManifest installed) {
+        Map<String, File> out = new HashMap<>();
+        for (Map.Entry<String, DeltaManifest.Entry> entry : installed.getEntries().entrySet()) {
+            out.putIfAbsent(entry.getValue().getHash(), new File(installedBundle, entry.getKey()));
+        }
+        return out;
+    }
+
+    private Map<String, File> downloadBlobs(List<DeltaManifest.Entry> blobs, File blobsDir) throws IOException {
+        List<Range> ranges = planRanges(blobs);
+        Map<String, File> out = new HashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, ranges.size()));
+        try {
+            List<Future<List<File>>> futures = new ArrayList<>();
+            for (Range range : ranges) {
+                futures.add(executor.submit(() -> downloadRange(range, blobsDir)));
+            }
+            for (Future<List<File>> future : futures) {
+                for (File blob : getResult(future)) {
+                    out.put(blob.getName(), blob);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return out;
+    }
+
+    /**
+     * Groups the blobs into ranges of their packs, merging blobs that are close together.
+     */
+    private static List<Range> planRanges(List<DeltaManifest.Entry> blobs) throws IOException {
+        Map<String, DeltaManifest.Entry> distinct = new LinkedHashMap<>();
+        for (DeltaManifest.Entry blob : blobs) {
+            if (blob.getLocation() == null || blob.getSize() < 0) {
+                throw new IOException("Delta index has no location for blob " + blob.getHash());
+            }
+            distinct.putIfAbsent(blob.getHash(), blob);
+        }
+        List<DeltaManifest.Entry> sorted = new ArrayList<>(distinct.values());
+        sorted.sort(Comparator.comparing((DeltaManifest.Entry blob) -> blob.getLocation().getPack())
+                .thenComparingLong(blob -> blob.getLocation().getOffset()));
+        List<Range> out = new ArrayList<>();
+        Range range = null;
+        for (DeltaManifest.Entry blob : sorted) {
+            DeltaManifest.Location location = blob.getLocation();
+            if (range == null || !range.pack.equals(location.getPack())
+                    || location.getOffset() - range.end > MAX_RANGE_GAP) {
+                range = new Range(location.getPack(), location.getOffset());
+                out.add(range);
+            }
+            range.blobs.add(blob);
+            range.end = Math.max(range.end, location.getOffset() + blob.getSize());
+        }
+        return out;
+    }
+
+    private List<File> downloadRange(Range range, File blobsDir) throws IOException {
+        List<File> out = new ArrayList<>();
+        long length = range.end - range.offset;
+        try (InputStream input = length == 0
+                ? new ByteArrayInputStream(new byte[0])
+                : assetSource.open(range.pack, range.offset, length)) {
+            long position = range.offset;
+            for (DeltaManifest.Entry blob : range.blobs) {
+                IOUtils.skipFully(input, blob.getLocation().getOffset() - position);
+                File file = new File(blobsDir, blob.getHash());
+                try (OutputStream output = new FileOutputStream(file)) {
+                    if (IOUtils.copyLarge(input, output, 0, blob.getSize()) != blob.getSize()) {
+                        throw new IOException("Unexpected end of " + range.pack + " reading blob " + blob.getHash());
+                    }
+                }
+                position = blob.getLocation().getOffset() + blob.getSize();
+                String actual = DeltaManifest.sha256(file);
+                if (!actual.equals(blob.getHash())) {
+                    throw new IOException("SHA-256 mismatch for blob " + blob.getHash() + ": got " + actual);
+                }
+                out.add(file);
+            }
+        }
+        return out;
+    }
+
+    private String readAsset(String name) throws IOException {
+        try (InputStream input = assetSource.open(name)) {
+            return IOUtils.toString(input, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static File resolve(File dir, String relativePath) throws IOException {
+        File out = new File(dir, relativePath);
+        String canonicalDir = dir.getCanonicalPath();
+        if (!out.getCanonicalPath().startsWith(canonicalDir + File.separator)) {
+            throw new IOException("Invalid path in delta manifest: " + relativePath);
+        }
+        return out;
+    }
+
+    private static <T> T getResult(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while downloading delta blobs", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package ca.weblite.jdeploy.installer.helpers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A connection on the Helper control channel, either a loopback TCP socket or a Unix-domain
+ * socket channel.
+ *
+ * Unix-domain channels have no socket adapter, so read and write timeouts are implemented with a
+ * selector instead of {@link Socket#setSoTimeout(int)}.  Timeouts are reported with
+ * {@link SocketTimeoutException} for both kinds of connection.
+ */
+abstract class ControlConnection implements Closeable {
+
+    abstract InputStream getInputStream() throws IOException;
+
+    abstract OutputStream getOutputStream() throws IOException;
+
+    /**
+     * Sets the maximum time a read or write may block.
+     *
+     * @param timeoutMs Milliseconds, must be positive
+     */
+    abstract void setTimeout(int timeoutMs) throws IOException;
+
+    static ControlConnection of(Socket socket) {
+        return new SocketConnection(socket);
+    }
+
+    static ControlConnection of(SocketChannel channel) throws IOException {
+        return new ChannelConnection(channel);
+    }
+
+    private static final class SocketConnection extends ControlConnection {
+        private final Socket socket;
+
+        private SocketConnection(Socket socket) {
+            this.socket = socket;
+        }
+
+        @Override
+        InputStream getInputStream() throws IOException {
+            return socket.getInputStream();
+        }
+
+        @Override
+        OutputStream getOutputStream() throws IOException {
+            return socket.getOutputStream();
+        }
+
+        @Override
+        void setTimeout(int timeoutMs) throws IOException {
+            socket.setSoTimeout(timeoutMs);
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    private static final class ChannelConnection extends ControlConnection {
+        private final SocketChannel channel;
+        private final Selector selector;
+        private final SelectionKey key;
+        private volatile int timeoutMs;
+
+        private final InputStream in = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                int n = read(b, 0, 1);
+                return n < 0 ? -1 : b[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+                while (true) {
+                    int n = channel.read(buffer);
+                    if (n != 0) {
+                        return n;
+                    }
+                    await(SelectionKey.OP_READ);
+                }
+            }
+        };
+
+        private final OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+                while (buffer.hasRemaining()) {
+                    if (channel.write(buffer) == 0) {
+                        await(SelectionKey.OP_WRITE);
+                    }
+                }
+            }
+        };
+
+        private ChannelConnection(SocketChannel channel) throws IOException {
+            this.channel = channel;
+            channel.configureBlocking(false);
+            this.selector = Selector.open();
+            this.key = channel.register(selector, 0);
+        }
+
+        private synchronized void await(int ops) throws IOException {
+            key.interestOps(ops);
+            int timeout = timeoutMs;
+            if (selector.select(timeout) == 0) {
+                throw new SocketTimeoutException("Timed out after " + timeout + " ms");
+            }
+            selector.selectedKeys().clear();
+        }
+
+        @Override
+        InputStream getInputStream() {
+            return in;
+        }
+
+        @Override
+        OutputStream getOutputStream() {
+            return out;
+        }
+
+        @Override
+        void setTimeout(int timeoutMs) {
+            this.timeoutMs = timeoutMs;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                selector.close();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
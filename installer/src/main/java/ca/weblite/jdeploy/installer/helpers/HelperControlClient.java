@@ -0,0 +1,180 @@
+package ca.weblite.jdeploy.installer.helpers;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Sends commands to a running Helper over its control channel.
+ *
+ * See {@link HelperControlServer} for the protocol.  A Helper that was installed by an older
+ * version of jDeploy has no control channel; {@link #isAvailable()} returns false for it.
+ */
+public class HelperControlClient {
+
+    static final String SHUTDOWN = "SHUTDOWN";
+    static final String STATUS = "STATUS";
+    static final String REFRESH = "REFRESH";
+
+    private final File endpointFile;
+
+    /**
+     * Creates a client for the Helper that publishes the given endpoint file.
+     *
+     * @param endpointFile The Helper's endpoint file
+     */
+    public HelperControlClient(File endpointFile) {
+        if (endpointFile == null) {
+            throw new IllegalArgumentException("endpointFile cannot be null");
+        }
+        this.endpointFile = endpointFile;
+    }
+
+    /**
+     * @return true if the Helper has published a control channel
+     */
+    public boolean isAvailable() {
+        return endpointFile.isFile();
+    }
+
+    /**
+     * Asks the Helper to shut down and waits for its process to exit.
+     *
+     * @param timeoutMs Maximum time to wait in milliseconds
+     * @return true if the Helper acknowledged the request and exited within the timeout
+     * @throws IOException if the Helper can't be reached
+     */
+    public boolean shutdownAndWait(long timeoutMs) throws IOException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        Endpoint endpoint = readEndpoint();
+        try (ControlConnection connection = connect(endpoint, timeoutMs)) {
+            BufferedReader in = sendCommand(connection, endpoint, SHUTDOWN);
+            String reply = in.readLine();
+            if (!"OK".equals(reply)) {
+                throw new IOException("Helper rejected shutdown: " + reply);
+            }
+
+            // The Helper keeps the connection open until its process is gone
+            while (true) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                connection.setTimeout((int) Math.min(Integer.MAX_VALUE, remaining));
+                try {
+                    if (in.read() == -1) {
+                        return true;
+                    }
+                } catch (SocketTimeoutException e) {
+                    return false;
+                } catch (IOException e) {
+                    // Connection reset as the process went away
+                    return true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Asks the Helper for its status.
+     *
+     * @param timeoutMs Maximum time to wait in milliseconds
+     * @return the status reported by the Helper
+     * @throws IOException if the Helper can't be reached or returns an error
+     */
+    public String getStatus(long timeoutMs) throws IOException {
+        String reply = send(STATUS, timeoutMs);
+        return reply.length() > 3 ? reply.substring(3) : "";
+    }
+
+    /**
+     * Asks the Helper to refresh its service status.
+     *
+     * @param timeoutMs Maximum time to wait in milliseconds
+     * @throws IOException if the Helper can't be reached or returns an error
+     */
+    public void refresh(long timeoutMs) throws IOException {
+        send(REFRESH, timeoutMs);
+    }
+
+    private String send(String command, long timeoutMs) throws IOException {
+        Endpoint endpoint = readEndpoint();
+        try (ControlConnection connection = connect(endpoint, timeoutMs)) {
+            String reply = sendCommand(connection, endpoint, command).readLine();
+            if (reply == null || !(reply.equals("OK") || reply.startsWith("OK "))) {
+                throw new IOException("Helper returned an error for " + command + ": " + reply);
+            }
+            return reply;
+        }
+    }
+
+    private ControlConnection connect(Endpoint endpoint, long timeoutMs) throws IOException {
+        int timeout = (int) Math.max(1, Math.min(Integer.MAX_VALUE, timeoutMs));
+        if (endpoint.socketFile != null) {
+            // Connecting to a local socket file doesn't block, so needs no timeout of its own
+            ControlConnection connection = ControlConnection.of(UnixDomainSockets.connect(endpoint.socketFile.toPath()));
+            connection.setTimeout(timeout);
+            return connection;
+        }
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), endpoint.port), timeout);
+            socket.setSoTimeout(timeout);
+            socket.setTcpNoDelay(true);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        return ControlConnection.of(socket);
+    }
+
+    private BufferedReader sendCommand(ControlConnection connection, Endpoint endpoint, String command)
+            throws IOException {
+        Writer out = new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8);
+        out.write(endpoint.token + " " + command + "\n");
+        out.flush();
+        return new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    private Endpoint readEndpoint() throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(endpointFile), StandardCharsets.UTF_8))) {
+            String address = reader.readLine();
+            String token = reader.readLine();
+            if (address == null || token == null) {
+                throw new IOException("Invalid helper control endpoint file: " + endpointFile.getAbsolutePath());
+            }
+            address = address.trim();
+            if (address.startsWith(HelperControlServer.UNIX_ADDRESS_PREFIX)) {
+                File socketFile = new File(address.substring(HelperControlServer.UNIX_ADDRESS_PREFIX.length()));
+                return new Endpoint(-1, socketFile, token.trim());
+            }
+            try {
+                return new Endpoint(Integer.parseInt(address), null, token.trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid helper control port in " + endpointFile.getAbsolutePath(), e);
+            }
+        }
+    }
+
+    private static final class Endpoint {
+        private final int port;
+        private final File socketFile;
+        private final String token;
+
+        private Endpoint(int port, File socketFile, String token) {
+            this.port = port;
+            this.socketFile = socketFile;
+            this.token = token;
+        }
+    }
+}
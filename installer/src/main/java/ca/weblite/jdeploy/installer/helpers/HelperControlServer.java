@@ -0,0 +1,366 @@
+package ca.weblite.jdeploy.installer.helpers;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.SecureRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Control channel that a running Helper listens on for commands from the installer.
+ *
+ * On Java 16 and later the Helper listens on a Unix-domain socket file next to its lock file,
+ * readable only by the current user.  On older runtimes, or if the socket file can't be bound
+ * (some Windows versions don't support Unix-domain sockets, and socket paths are limited to
+ * about 100 characters), it binds a socket on the loopback interface instead.  The address,
+ * either {@code unix:<path>} or a port number, is published together with a random token in an
+ * endpoint file next to the lock file.  {@link HelperControlClient} reads the endpoint file,
+ * connects, and sends one command per connection:
+ * <ul>
+ *   <li>{@code SHUTDOWN} - acknowledged immediately, then the Helper exits.  The connection stays
+ *       open until the process is gone, so the client learns of the exit without polling.</li>
+ *   <li>{@code STATUS} - replies with the Helper's status.</li>
+ *   <li>{@code REFRESH} - asks the Helper to refresh its service status.</li>
+ * </ul>
+ *
+ * The accept thread blocks until a connection arrives, so an idle Helper never wakes up.
+ *
+ * Protocol: the client sends {@code <token> <COMMAND>\n}; the server replies with a single line,
+ * either {@code OK}, {@code OK <status>}, or {@code ERROR <message>}.
+ */
+public class HelperControlServer {
+
+    private static final Logger logger = Logger.getLogger(HelperControlServer.class.getName());
+
+    /**
+     * Maximum time to wait for a client to send its command.
+     */
+    private static final int READ_TIMEOUT_MS = 5000;
+
+    /**
+     * Handles the commands received by the server.  Called on the server thread.
+     */
+    public interface Listener {
+        /**
+         * Called after a shutdown request has been acknowledged.  Normally doesn't return.
+         */
+        void onShutdown();
+
+        /**
+         * Called when the installer asks the Helper to refresh its service status.
+         */
+        void onRefresh();
+
+        /**
+         * @return a short, single-line description of the Helper's status
+         */
+        String getStatus();
+    }
+
+    /**
+     * Prefix of the address line in the endpoint file for a Unix-domain socket.
+     */
+    static final String UNIX_ADDRESS_PREFIX = "unix:";
+
+    private final File endpointFile;
+    private final Listener listener;
+    private final String token;
+    private final boolean useUnixDomainSocket;
+    private volatile ServerSocket serverSocket;
+    private volatile ServerSocketChannel serverChannel;
+    private File socketFile;
+    private Thread acceptThread;
+
+    /**
+     * Creates a control server.
+     *
+     * @param endpointFile The file to publish the address and token in
+     * @param listener The listener that handles received commands
+     */
+    public HelperControlServer(File endpointFile, Listener listener) {
+        this(endpointFile, listener, UnixDomainSockets.isSupported());
+    }
+
+    /**
+     * Creates a control server.
+     *
+     * @param endpointFile The file to publish the address and token in
+     * @param listener The listener that handles received commands
+     * @param useUnixDomainSocket Whether to try a Unix-domain socket before loopback TCP
+     */
+    HelperControlServer(File endpointFile, Listener listener, boolean useUnixDomainSocket) {
+        if (endpointFile == null) {
+            throw new IllegalArgumentException("endpointFile cannot be null");
+        }
+        if (listener == null) {
+            throw new IllegalArgumentException("listener cannot be null");
+        }
+        this.endpointFile = endpointFile;
+        this.listener = listener;
+        this.token = createToken();
+        this.useUnixDomainSocket = useUnixDomainSocket;
+    }
+
+    /**
+     * Binds the server socket, publishes the endpoint file and starts accepting commands.
+     *
+     * @throws IOException if the socket can't be bound or the endpoint file can't be written
+     */
+    public synchronized void start() throws IOException {
+        if (isRunning()) {
+            logger.warning("Helper control server is already running");
+            return;
+        }
+
+        String address = useUnixDomainSocket ? bindUnixDomainSocket() : null;
+        if (address == null) {
+            serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            address = String.valueOf(serverSocket.getLocalPort());
+        }
+        try {
+            writeEndpointFile(address);
+        } catch (IOException e) {
+            closeServer();
+            throw e;
+        }
+
+        acceptThread = new Thread(this::acceptLoop, "HelperControlServer");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+
+        logger.info("Helper control server listening on " + address);
+    }
+
+    /**
+     * Binds a Unix-domain socket file next to the endpoint file.
+     *
+     * @return the address to publish, or null if the socket file couldn't be bound
+     */
+    private String bindUnixDomainSocket() {
+        File file = getSocketFile(endpointFile);
+        try {
+            File parentDir = file.getParentFile();
+            if (parentDir != null && !parentDir.exists() && !parentDir.mkdirs()) {
+                throw new IOException("Failed to create directory: " + parentDir.getAbsolutePath());
+            }
+            serverChannel = UnixDomainSockets.bind(file.toPath());
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.FINE, "Unix-domain socket unavailable, using loopback TCP", e);
+            return null;
+        }
+        file.setReadable(false, false);
+        file.setReadable(true, true);
+        file.setWritable(false, false);
+        file.setWritable(true, true);
+        socketFile = file;
+        return UNIX_ADDRESS_PREFIX + file.getAbsolutePath();
+    }
+
+    /**
+     * Stops accepting commands and removes the endpoint file.
+     */
+    public synchronized void stop() {
+        if (!isRunning()) {
+            return;
+        }
+        closeServer();
+        if (endpointFile.exists() && !endpointFile.delete()) {
+            logger.warning("Failed to delete helper control endpoint file: " + endpointFile.getAbsolutePath());
+        }
+        acceptThread = null;
+    }
+
+    private void closeServer() {
+        ServerSocket socket = serverSocket;
+        ServerSocketChannel channel = serverChannel;
+        serverSocket = null;
+        serverChannel = null;
+        try {
+            if (socket != null) {
+                socket.close();
+            }
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Error closing helper control socket", e);
+        }
+        if (socketFile != null) {
+            if (socketFile.exists() && !socketFile.delete()) {
+                logger.warning("Failed to delete helper control socket file: " + socketFile.getAbsolutePath());
+            }
+            socketFile = null;
+        }
+    }
+
+    /**
+     * @return true if the server is accepting commands
+     */
+    public boolean isRunning() {
+        return serverSocket != null || serverChannel != null;
+    }
+
+    /**
+     * @return the port the server is listening on, or -1 if it isn't running or is listening on
+     *         a Unix-domain socket
+     */
+    public int getPort() {
+        ServerSocket socket = serverSocket;
+        return socket != null ? socket.getLocalPort() : -1;
+    }
+
+    /**
+     * @return true if the server is listening on a Unix-domain socket
+     */
+    public boolean isUnixDomainSocket() {
+        return serverChannel != null;
+    }
+
+    /**
+     * Gets the Unix-domain socket file used with an endpoint file.
+     */
+    static File getSocketFile(File endpointFile) {
+        String name = endpointFile.getName();
+        if (name.endsWith(".control")) {
+            name = name.substring(0, name.length() - ".control".length());
+        }
+        return new File(endpointFile.getParentFile(), name + ".sock");
+    }
+
+    private void acceptLoop() {
+        while (true) {
+            ControlConnection connection;
+            try {
+                connection = accept();
+            } catch (IOException e) {
+                if (isRunning()) {
+                    logger.log(Level.WARNING, "Helper control server stopped accepting connections", e);
+                }
+                // Otherwise the server was closed by stop()
+                return;
+            }
+            if (connection == null) {
+                return;
+            }
+            try {
+                handleConnection(connection);
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Error handling helper control connection", e);
+            }
+        }
+    }
+
+    /**
+     * Blocks until a client connects.
+     *
+     * @return the connection, or null if the server has been stopped
+     */
+    private ControlConnection accept() throws IOException {
+        ServerSocketChannel channel = serverChannel;
+        if (channel != null) {
+            return ControlConnection.of(channel.accept());
+        }
+        ServerSocket socket = serverSocket;
+        if (socket != null) {
+            return ControlConnection.of(socket.accept());
+        }
+        return null;
+    }
+
+    private void handleConnection(ControlConnection client) throws IOException {
+        boolean shutdown = false;
+        try {
+            client.setTimeout(READ_TIMEOUT_MS);
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+            Writer out = new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8);
+
+            String line = in.readLine();
+            String[] parts = line == null ? new String[0] : line.trim().split(" ", 2);
+            if (parts.length != 2 || !token.equals(parts[0])) {
+                reply(out, "ERROR unauthorized");
+                return;
+            }
+
+            String command = parts[1].trim();
+            if (HelperControlClient.SHUTDOWN.equals(command)) {
+                reply(out, "OK");
+                shutdown = true;
+            } else if (HelperControlClient.STATUS.equals(command)) {
+                reply(out, "OK " + listener.getStatus());
+            } else if (HelperControlClient.REFRESH.equals(command)) {
+                listener.onRefresh();
+                reply(out, "OK");
+            } else {
+                reply(out, "ERROR unknown command " + command);
+            }
+        } finally {
+            if (shutdown) {
+                // Leave the connection open so that it closes when the process exits
+                logger.info("Shutdown requested over helper control channel");
+                try {
+                    listener.onShutdown();
+                } finally {
+                    client.close();
+                }
+            } else {
+                client.close();
+            }
+        }
+    }
+
+    private void reply(Writer out, String message) throws IOException {
+        out.write(message);
+        out.write('\n');
+        out.flush();
+    }
+
+    /**
+     * Writes the endpoint file readable only by the current user, replacing it atomically so a
+     * client never reads a partial file.
+     */
+    private void writeEndpointFile(String address) throws IOException {
+        File parentDir = endpointFile.getParentFile();
+        if (parentDir != null && !parentDir.exists() && !parentDir.mkdirs()) {
+            throw new IOException("Failed to create directory: " + parentDir.getAbsolutePath());
+        }
+
+        File tmpFile = new File(parentDir, endpointFile.getName() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmpFile)) {
+            tmpFile.setReadable(false, false);
+            tmpFile.setReadable(true, true);
+            tmpFile.setWritable(false, false);
+            tmpFile.setWritable(true, true);
+            out.write((address + "\n" + token + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        try {
+            Files.move(tmpFile.toPath(), endpointFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmpFile.toPath(), endpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static String createToken() {
+        byte[] bytes = new byte[16];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+}
@@ -1,6 +1,8 @@
 package ca.weblite.jdeploy.installer.helpers;
 
 import ca.weblite.jdeploy.installer.logging.InstallationLogger;
+import ca.weblite.jdeploy.installer.util.ContentStore;
+import ca.weblite.jdeploy.installer.util.FileCloner;
 import ca.weblite.tools.platform.Platform;
 
 import java.io.File;
@@ -20,12 +22,19 @@ import java.util.concurrent.TimeUnit;
  *
  * This class uses platform-appropriate methods:
  * <ul>
- *   <li>macOS: Uses the {@code ditto} command to preserve symlinks, resource forks, and code signing</li>
+ *   <li>macOS: Clones the bundle with {@code clonefile(2)} on APFS, otherwise uses the {@code ditto}
+ *       command to preserve symlinks, resource forks, and code signing</li>
  *   <li>Windows: Uses {@code Files.copy()} with {@code REPLACE_EXISTING}</li>
- *   <li>Linux: Uses {@code Files.copy()} with {@code REPLACE_EXISTING} and {@code COPY_ATTRIBUTES},
- *       then sets executable permission</li>
+ *   <li>Linux: Clones each file with the {@code FICLONE} ioctl on copy-on-write filesystems
+ *       (btrfs, XFS), otherwise uses {@code Files.copy()} with {@code REPLACE_EXISTING} and
+ *       {@code COPY_ATTRIBUTES}, then sets executable permission</li>
  * </ul>
  *
+ * When constructed with a {@link ContentStore}, Linux installer copies and context directory copies
+ * on macOS and Linux are instead hard-linked from the store, so that the many helpers installed
+ * for the same user share a single copy of each file.  Clones are only tried if the store can't
+ * be used.
+ *
  * @author jDeploy Team
  */
 public class HelperCopyService {
@@ -34,13 +43,26 @@ public class HelperCopyService {
 
     private final InstallationLogger logger;
 
+    private final ContentStore contentStore;
+
     /**
      * Creates a new HelperCopyService.
      *
      * @param logger The installation logger for recording operations
      */
     public HelperCopyService(InstallationLogger logger) {
+        this(logger, null);
+    }
+
+    /**
+     * Creates a new HelperCopyService that materializes copies from a content store.
+     *
+     * @param logger The installation logger for recording operations
+     * @param contentStore The store to link files from, or null to always copy
+     */
+    public HelperCopyService(InstallationLogger logger, ContentStore contentStore) {
         this.logger = logger;
+        this.contentStore = contentStore;
     }
 
     /**
@@ -48,11 +70,12 @@ public class HelperCopyService {
      *
      * Platform-specific behavior:
      * <ul>
-     *   <li>macOS: Uses {@code ditto} command to preserve symlinks, resource forks, and code signing.
-     *       This is essential for maintaining the integrity of .app bundles.</li>
+     *   <li>macOS: Clones the bundle if the volume is APFS, otherwise uses the {@code ditto} command
+     *       to preserve symlinks, resource forks, and code signing.  Both are essential for
+     *       maintaining the integrity of .app bundles.</li>
      *   <li>Windows: Uses {@code Files.copy()} with {@code REPLACE_EXISTING}</li>
-     *   <li>Linux: Uses {@code Files.copy()} with {@code REPLACE_EXISTING} and {@code COPY_ATTRIBUTES},
-     *       then sets executable permission</li>
+     *   <li>Linux: Clones files where the filesystem supports it, otherwise uses {@code Files.copy()}
+     *       with {@code REPLACE_EXISTING} and {@code COPY_ATTRIBUTES}, then sets executable permission</li>
      * </ul>
      *
      * @param source The source file or directory to copy (installer bundle or executable)
@@ -78,9 +101,16 @@ public class HelperCopyService {
 
         Platform platform = Platform.getSystemPlatform();
         if (platform.isMac()) {
-            executeDitto(source, destination);
+            if (cloneTree(source, destination)) {
+                removeQuarantineAttribute(destination);
+            } else {
+                executeDitto(source, destination);
+            }
         } else if (platform.isWindows()) {
             copyForWindows(source, destination);
+        } else if (contentStore != null) {
+            logInfo("Using content store for Linux");
+            materializeOrCopy(source, destination, () -> copyForLinux(source, destination));
         } else {
             copyForLinux(source, destination);
         }
@@ -123,11 +153,57 @@ public class HelperCopyService {
             deleteRecursively(destination);
         }
 
-        copyDirectoryRecursively(source, destination);
+        if (contentStore != null && !Platform.getSystemPlatform().isWindows()) {
+            materializeOrCopy(source, destination, () -> cloneOrCopyDirectory(source, destination));
+        } else {
+            cloneOrCopyDirectory(source, destination);
+        }
 
         logInfo("Context directory copy completed successfully");
     }
 
+    private interface CopyAction {
+        void run() throws IOException;
+    }
+
+    /**
+     * Materializes the destination from the content store, falling back to a plain copy if
+     * the store can't be used.
+     */
+    private void materializeOrCopy(File source, File destination, CopyAction fallback) throws IOException {
+        try {
+            int count = contentStore.materialize(source, destination);
+            logInfo("Linked " + count + " file(s) from content store");
+            logFileCopied(source, destination);
+        } catch (IOException e) {
+            logInfo("Warning: Content store unavailable, copying instead: " + e.getMessage());
+            if (destination.exists()) {
+                deleteRecursively(destination);
+            }
+            fallback.run();
+        }
+    }
+
+    /**
+     * Clones a whole directory tree in one step, which only macOS supports.
+     *
+     * @return true if the tree was cloned, false if it has to be copied
+     */
+    private boolean cloneTree(File source, File destination) {
+        if (!FileCloner.cloneTree(source.toPath(), destination.toPath())) {
+            return false;
+        }
+        logInfo("Cloned using copy-on-write");
+        logFileCopied(source, destination);
+        return true;
+    }
+
+    private void cloneOrCopyDirectory(File source, File destination) throws IOException {
+        if (!cloneTree(source, destination)) {
+            copyDirectoryRecursively(source, destination);
+        }
+    }
+
     /**
      * Executes the macOS {@code ditto} command to copy files while preserving
      * symlinks, resource forks, and code signing.
@@ -275,6 +351,9 @@ public class HelperCopyService {
 
         if (source.isDirectory()) {
             copyDirectoryRecursively(source, destination);
+        } else if (FileCloner.cloneFile(source.toPath(), destination.toPath())) {
+            logInfo("Cloned using copy-on-write");
+            logFileCopied(source, destination);
         } else {
             try {
                 Files.copy(
@@ -304,6 +383,9 @@ public class HelperCopyService {
     /**
      * Recursively copies a directory and all its contents.
      *
+     * Regular files are cloned rather than copied until the filesystem refuses a clone, after
+     * which the remaining files are copied.
+     *
      * @param source The source directory
      * @param destination The destination directory
      * @throws IOException if the copy fails
@@ -311,6 +393,8 @@ public class HelperCopyService {
     private void copyDirectoryRecursively(File source, File destination) throws IOException {
         Path sourcePath = source.toPath();
         Path destPath = destination.toPath();
+        boolean[] cloning = { !Platform.getSystemPlatform().isWindows() && FileCloner.isSupported() };
+        int[] clonedCount = new int[1];
 
         Files.walkFileTree(sourcePath, new SimpleFileVisitor<Path>() {
             @Override
@@ -333,6 +417,16 @@ public class HelperCopyService {
             public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
                 Path targetFile = destPath.resolve(sourcePath.relativize(file));
 
+                if (cloning[0] && attrs.isRegularFile()) {
+                    if (FileCloner.cloneFile(file, targetFile)) {
+                        clonedCount[0]++;
+                        logFileCopied(file.toFile(), targetFile.toFile());
+                        return FileVisitResult.CONTINUE;
+                    }
+                    // The rest of the tree is on the same filesystem, so don't keep trying
+                    cloning[0] = false;
+                }
+
                 CopyOption[] options;
                 if (Platform.getSystemPlatform().isWindows()) {
                     options = new CopyOption[] { StandardCopyOption.REPLACE_EXISTING };
@@ -368,6 +462,10 @@ public class HelperCopyService {
                 throw new IOException(errorMessage + ": " + exc.getMessage(), exc);
             }
         });
+
+        if (clonedCount[0] > 0) {
+            logInfo("Cloned " + clonedCount[0] + " file(s) using copy-on-write");
+        }
     }
 
     /**
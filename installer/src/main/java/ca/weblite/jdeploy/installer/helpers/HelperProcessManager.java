@@ -37,6 +37,8 @@ public class HelperProcessManager {
 
     private static final int PROCESS_KILL_TIMEOUT_SECONDS = 10;
 
+    private static final long EXIT_CHECK_INTERVAL_MS = 100;
+
     /**
      * Checks if a Helper is currently running for the given package.
      *
@@ -122,7 +124,8 @@ public class HelperProcessManager {
     /**
      * Attempts to terminate a running Helper.
      *
-     * This method first attempts graceful termination by creating a shutdown signal file.
+     * This method first attempts graceful termination over the Helper's control channel, or by
+     * creating a shutdown signal file for Helpers that don't have one.
      * If the Helper doesn't exit within the timeout, it falls back to force kill.
      *
      * @param packageName The package name (e.g., "@foo/bar")
@@ -147,7 +150,7 @@ public class HelperProcessManager {
 
         logger.info("Attempting to terminate Helper for: " + packageName);
 
-        // Try graceful termination first via shutdown signal file
+        // Try graceful termination first via the control channel or shutdown signal file
         boolean gracefulSuccess = tryGracefulTermination(packageName, source, timeoutMs);
 
         if (gracefulSuccess) {
@@ -281,10 +284,12 @@ public class HelperProcessManager {
     }
 
     /**
-     * Attempts graceful termination by creating a shutdown signal file.
+     * Attempts graceful termination of the Helper.
      *
-     * The Helper should periodically check for this file and exit gracefully.
-     * Note: This requires the Helper to implement shutdown signal checking.
+     * Sends a shutdown command over the Helper's control channel, which is acknowledged straight
+     * away and tells us when the process has exited.  Helpers installed by older versions have no
+     * control channel; for those a shutdown signal file is created instead, and the lock is checked
+     * until the Helper exits.
      *
      * @param packageName The package name
      * @param source The package source (may be null)
@@ -292,6 +297,21 @@ public class HelperProcessManager {
      * @return true if Helper exited within timeout, false otherwise
      */
     private boolean tryGracefulTermination(String packageName, String source, long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+
+        HelperControlClient client = new HelperControlClient(getControlEndpointFile(packageName, source));
+        if (client.isAvailable()) {
+            try {
+                if (!client.shutdownAndWait(timeoutMs)) {
+                    return false;
+                }
+                // The process has gone; its lock is released as it is torn down
+                return waitForExit(packageName, source, deadline);
+            } catch (IOException e) {
+                logger.log(Level.FINE, "Helper control channel unavailable, using shutdown signal file", e);
+            }
+        }
+
         // Create shutdown signal file
         File shutdownSignal = getShutdownSignalFile(packageName, source);
 
@@ -306,35 +326,106 @@ public class HelperProcessManager {
             shutdownSignal.createNewFile();
 
             // Wait for Helper to exit
-            long startTime = System.currentTimeMillis();
-            long elapsed = 0;
-
-            while (elapsed < timeoutMs) {
-                if (!isHelperRunning(packageName, source)) {
-                    // Helper has exited
-                    shutdownSignal.delete();
-                    return true;
-                }
+            boolean exited = waitForExit(packageName, source, deadline);
 
-                // Sleep a bit before checking again
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
+            // Clean up signal file
+            shutdownSignal.delete();
+            return exited;
+
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to create shutdown signal file", e);
+            return false;
+        }
+    }
 
-                elapsed = System.currentTimeMillis() - startTime;
+    /**
+     * Waits until the Helper's lock is released.
+     *
+     * @param packageName The package name
+     * @param source The package source (may be null)
+     * @param deadline Time, in milliseconds since the epoch, to stop waiting at
+     * @return true if Helper exited before the deadline, false otherwise
+     */
+    private boolean waitForExit(String packageName, String source, long deadline) {
+        while (isHelperRunning(packageName, source)) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
             }
 
-            // Timeout reached - clean up signal file
-            shutdownSignal.delete();
-            return false;
+            // Sleep a bit before checking again
+            try {
+                Thread.sleep(EXIT_CHECK_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Asks a running Helper for its status over its control channel.
+     *
+     * @param packageName The package name (e.g., "@foo/bar")
+     * @param source The package source (e.g., null for npm, GitHub URL for github)
+     * @param timeoutMs Maximum time to wait for a reply in milliseconds
+     * @return the status reported by the Helper, or null if it can't be reached
+     */
+    public String getHelperStatus(String packageName, String source, long timeoutMs) {
+        if (packageName == null || packageName.trim().isEmpty()) {
+            throw new IllegalArgumentException("packageName cannot be null or empty");
+        }
 
+        HelperControlClient client = new HelperControlClient(getControlEndpointFile(packageName, source));
+        if (!client.isAvailable()) {
+            return null;
+        }
+        try {
+            return client.getStatus(timeoutMs);
         } catch (IOException e) {
-            logger.log(Level.WARNING, "Failed to create shutdown signal file", e);
+            logger.log(Level.FINE, "Failed to get Helper status", e);
+            return null;
+        }
+    }
+
+    /**
+     * Asks a running Helper to refresh its service status, e.g. after services were changed.
+     *
+     * @param packageName The package name (e.g., "@foo/bar")
+     * @param source The package source (e.g., null for npm, GitHub URL for github)
+     * @param timeoutMs Maximum time to wait for a reply in milliseconds
+     * @return true if the Helper acknowledged the request
+     */
+    public boolean refreshHelper(String packageName, String source, long timeoutMs) {
+        if (packageName == null || packageName.trim().isEmpty()) {
+            throw new IllegalArgumentException("packageName cannot be null or empty");
+        }
+
+        HelperControlClient client = new HelperControlClient(getControlEndpointFile(packageName, source));
+        if (!client.isAvailable()) {
             return false;
         }
+        try {
+            client.refresh(timeoutMs);
+            return true;
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Failed to refresh Helper", e);
+            return false;
+        }
+    }
+
+    /**
+     * Gets the control channel endpoint file for a package.
+     *
+     * The running Helper publishes its control port and token in this file.
+     *
+     * @param packageName The package name
+     * @param source The package source (may be null)
+     * @return The control endpoint file
+     */
+    File getControlEndpointFile(String packageName, String source) {
+        String fullyQualifiedName = createFullyQualifiedName(packageName, source);
+        return new File(LOCK_DIR_PATH, fullyQualifiedName + ".control");
     }
 
     /**
@@ -0,0 +1,116 @@
+package ca.weblite.jdeploy.installer.helpers;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Unix-domain socket channels, looked up reflectively.
+ *
+ * {@code StandardProtocolFamily.UNIX} and {@code UnixDomainSocketAddress} were added in Java 16,
+ * while this module targets Java 8.  On older runtimes {@link #isSupported()} returns false and
+ * callers use a loopback TCP socket instead.
+ */
+final class UnixDomainSockets {
+
+    private static final ProtocolFamily UNIX;
+    private static final Method OPEN_SERVER_CHANNEL;
+    private static final Method OPEN_CHANNEL;
+    private static final Method ADDRESS_OF;
+
+    static {
+        ProtocolFamily family = null;
+        Method openServerChannel = null;
+        Method openChannel = null;
+        Method addressOf = null;
+        try {
+            family = StandardProtocolFamily.valueOf("UNIX");
+            openServerChannel = ServerSocketChannel.class.getMethod("open", ProtocolFamily.class);
+            openChannel = SocketChannel.class.getMethod("open", ProtocolFamily.class);
+            addressOf = Class.forName("java.net.UnixDomainSocketAddress").getMethod("of", Path.class);
+        } catch (IllegalArgumentException | ReflectiveOperationException | LinkageError | SecurityException e) {
+            // Not available on this JDK
+            family = null;
+        }
+        UNIX = family;
+        OPEN_SERVER_CHANNEL = openServerChannel;
+        OPEN_CHANNEL = openChannel;
+        ADDRESS_OF = addressOf;
+    }
+
+    private UnixDomainSockets() {
+    }
+
+    /**
+     * @return true if the runtime can open Unix-domain socket channels
+     */
+    static boolean isSupported() {
+        return UNIX != null;
+    }
+
+    /**
+     * Binds a server channel to a socket file, replacing a socket file left behind by a previous
+     * process.
+     *
+     * @throws IOException if the channel can't be opened or bound, e.g. because the path is too
+     *                     long or the platform doesn't support Unix-domain sockets
+     */
+    static ServerSocketChannel bind(Path socketFile) throws IOException {
+        Files.deleteIfExists(socketFile);
+        ServerSocketChannel channel = (ServerSocketChannel) invoke(OPEN_SERVER_CHANNEL, UNIX);
+        try {
+            channel.bind(address(socketFile));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    /**
+     * Connects a blocking channel to the server listening on a socket file.
+     *
+     * @throws IOException if nothing is listening or the runtime doesn't support Unix-domain sockets
+     */
+    static SocketChannel connect(Path socketFile) throws IOException {
+        SocketChannel channel = (SocketChannel) invoke(OPEN_CHANNEL, UNIX);
+        try {
+            channel.connect(address(socketFile));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    private static SocketAddress address(Path socketFile) throws IOException {
+        return (SocketAddress) invoke(ADDRESS_OF, socketFile);
+    }
+
+    private static Object invoke(Method method, Object argument) throws IOException {
+        if (!isSupported()) {
+            throw new IOException("Unix-domain sockets require Java 16 or later");
+        }
+        try {
+            return method.invoke(null, argument);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        } catch (IllegalAccessException e) {
+            throw new IOException(e);
+        }
+    }
+}
@@ -3,6 +3,8 @@ package ca.weblite.jdeploy.installer.logging;
 import java.io.*;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Comprehensive logger for installation and uninstallation operations.
@@ -12,6 +14,14 @@ import java.util.Date;
  * Log files are stored at:
  * - Installs: ~/.jdeploy/log/jdeploy-installer/installs/{packageName}-{timestamp}.log
  * - Uninstalls: ~/.jdeploy/log/jdeploy-installer/uninstalls/{packageName}-{timestamp}.log
+ *
+ * Logging calls do not block on I/O. Messages are placed in a bounded ring buffer and written
+ * by a background thread, which formats timestamps and flushes a batch at most every
+ * {@value #FLUSH_INTERVAL_MS} ms while messages keep arriving. Once the buffer is empty the
+ * thread parks until the next message unparks it, so an idle logger doesn't wake up at all.
+ * A caller only waits when the buffer is full, when starting a section (so everything logged
+ * before the section is on disk), when logging an error (so the error is on disk even if the
+ * process dies right after) and on {@link #close()}.
  */
 public class InstallationLogger implements Closeable {
 
@@ -50,23 +60,51 @@ public class InstallationLogger implements Closeable {
         FAILED
     }
 
-    private static final SimpleDateFormat TIMESTAMP_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
     private static final SimpleDateFormat FILE_TIMESTAMP_FORMAT = new SimpleDateFormat("yyyyMMdd-HHmmss");
 
+    static final int BUFFER_CAPACITY = 8192;
+    static final long FLUSH_INTERVAL_MS = 10;
+    private static final int MAX_BATCH_SIZE = 1024;
+    private static final long WAIT_PARK_NANOS = 50_000L;
+
     private final PrintWriter writer;
     private final File logFile;
     private final String packageName;
     private final OperationType operationType;
     private final long startTime;
 
-    private int filesCreated = 0;
-    private int filesDeleted = 0;
-    private int filesOverwritten = 0;
-    private int filesSkipped = 0;
-    private int filesFailed = 0;
-    private int registryOperations = 0;
-    private int directoriesCreated = 0;
-    private int directoriesDeleted = 0;
+    private final LogRingBuffer<Entry> buffer = new LogRingBuffer<>(BUFFER_CAPACITY);
+    private final Thread writerThread;
+    private volatile boolean writerParked;
+    private volatile long flushedPosition;
+    private volatile boolean closed;
+
+    // Only used by the writer thread
+    private final SimpleDateFormat secondFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    private long formattedSecond = Long.MIN_VALUE;
+    private String formattedSecondText;
+
+    private final AtomicInteger filesCreated = new AtomicInteger();
+    private final AtomicInteger filesDeleted = new AtomicInteger();
+    private final AtomicInteger filesOverwritten = new AtomicInteger();
+    private final AtomicInteger filesSkipped = new AtomicInteger();
+    private final AtomicInteger filesFailed = new AtomicInteger();
+    private final AtomicInteger registryOperations = new AtomicInteger();
+    private final AtomicInteger directoriesCreated = new AtomicInteger();
+    private final AtomicInteger directoriesDeleted = new AtomicInteger();
+
+    /**
+     * A line waiting to be written. Lines with a timestamp of -1 are written as-is.
+     */
+    private static final class Entry {
+        final long timestamp;
+        final String text;
+
+        Entry(long timestamp, String text) {
+            this.timestamp = timestamp;
+            this.text = text;
+        }
+    }
 
     /**
      * Creates a new installation logger.
@@ -93,9 +131,20 @@ public class InstallationLogger implements Closeable {
         String safePackageName = packageName.replaceAll("[^a-zA-Z0-9.-]", "_");
         this.logFile = new File(logDir, safePackageName + "-" + timestamp + ".log");
 
-        this.writer = new PrintWriter(new BufferedWriter(new FileWriter(logFile)), true);
+        this.writer = new PrintWriter(new BufferedWriter(new FileWriter(logFile)));
 
         writeHeader();
+
+        this.writerThread = new Thread(this::drain, "jdeploy-installation-logger");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * The background thread that writes the log file.
+     */
+    Thread getWriterThread() {
+        return writerThread;
     }
 
     private void writeHeader() {
@@ -103,27 +152,146 @@ public class InstallationLogger implements Closeable {
         writeLine(operationType == OperationType.INSTALL ? "INSTALLATION LOG" : "UNINSTALLATION LOG");
         writeLine("================================================================================");
         writeLine("Package: " + packageName);
-        writeLine("Started: " + TIMESTAMP_FORMAT.format(new Date(startTime)));
+        writeLine("Started: " + createTimestampFormat().format(new Date(startTime)));
         writeLine("Log File: " + logFile.getAbsolutePath());
         writeLine("--------------------------------------------------------------------------------");
         writeLine("");
     }
 
-    private synchronized void writeLine(String message) {
-        writer.println(message);
+    private long writeLine(String message) {
+        return enqueue(new Entry(-1, message));
     }
 
-    private synchronized void writeTimestampedLine(String message) {
-        String timestamp = TIMESTAMP_FORMAT.format(new Date());
-        writer.println("[" + timestamp + "] " + message);
+    private long writeTimestampedLine(String message) {
+        return enqueue(new Entry(System.currentTimeMillis(), message));
+    }
+
+    private long enqueue(Entry entry) {
+        if (closed) {
+            return -1;
+        }
+        long position;
+        while ((position = buffer.offer(entry)) < 0) {
+            // Buffer is full: let the writer catch up rather than grow without bound
+            if (writerThread != null && !writerThread.isAlive()) {
+                return -1;
+            }
+            LockSupport.unpark(writerThread);
+            LockSupport.parkNanos(this, WAIT_PARK_NANOS);
+        }
+        if (writerParked || position - buffer.getHead() >= BUFFER_CAPACITY / 2) {
+            // Wake a writer that is waiting for work, and don't wait for the next flush interval
+            // to start draining a filling buffer
+            LockSupport.unpark(writerThread);
+        }
+        return position;
     }
 
     /**
-     * Logs the start of a major section.
+     * Blocks until the line at the given position has been flushed to the log file.
+     */
+    private void awaitFlushed(long position) {
+        if (position < 0) {
+            return;
+        }
+        LockSupport.unpark(writerThread);
+        while (flushedPosition <= position && writerThread.isAlive()) {
+            LockSupport.parkNanos(this, WAIT_PARK_NANOS);
+        }
+    }
+
+    private void drain() {
+        long intervalNanos = FLUSH_INTERVAL_MS * 1_000_000L;
+        while (true) {
+            int batchSize = writeBatch();
+            if (batchSize == MAX_BATCH_SIZE) {
+                continue;
+            }
+            if (closed) {
+                // close() writes anything that is still arriving once this thread has exited
+                return;
+            }
+            if (batchSize > 0) {
+                // More lines are likely to follow; collect them into the next batch
+                LockSupport.parkNanos(this, intervalNanos);
+                continue;
+            }
+            writerParked = true;
+            if (buffer.isEmpty() && !closed) {
+                // Producers unpark us after publishing an entry if they see writerParked
+                LockSupport.park(this);
+            } else if (!closed) {
+                // A producer has claimed a slot but not yet published its entry
+                Thread.yield();
+            }
+            writerParked = false;
+        }
+    }
+
+    /**
+     * Writes and flushes up to {@value #MAX_BATCH_SIZE} queued lines. Must only be called from
+     * the thread consuming the buffer.
+     *
+     * @return the number of lines written
+     */
+    private int writeBatch() {
+        int batchSize = 0;
+        Entry entry;
+        while (batchSize < MAX_BATCH_SIZE && (entry = buffer.poll()) != null) {
+            write(entry);
+            batchSize++;
+        }
+        if (batchSize > 0) {
+            writer.flush();
+            flushedPosition = buffer.getHead();
+        }
+        return batchSize;
+    }
+
+    private void write(Entry entry) {
+        if (entry.timestamp < 0) {
+            writer.println(entry.text);
+            return;
+        }
+        writer.print('[');
+        writer.print(formatTimestamp(entry.timestamp));
+        writer.print("] ");
+        writer.println(entry.text);
+    }
+
+    /**
+     * Formats a timestamp as yyyy-MM-dd HH:mm:ss.SSS, reusing the formatted date and time of
+     * the previous line when it falls within the same second.
+     */
+    private String formatTimestamp(long millis) {
+        long second = Math.floorDiv(millis, 1000L);
+        if (second != formattedSecond) {
+            formattedSecondText = secondFormat.format(new Date(second * 1000L));
+            formattedSecond = second;
+        }
+        int ms = (int) Math.floorMod(millis, 1000L);
+        StringBuilder sb = new StringBuilder(formattedSecondText.length() + 4);
+        sb.append(formattedSecondText).append('.');
+        if (ms < 100) {
+            sb.append('0');
+        }
+        if (ms < 10) {
+            sb.append('0');
+        }
+        return sb.append(ms).toString();
+    }
+
+    private static SimpleDateFormat createTimestampFormat() {
+        return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+    }
+
+    /**
+     * Logs the start of a major section. Returns once everything logged so far,
+     * including the section heading, has been flushed to the log file.
      */
     public void logSection(String sectionName) {
         writeLine("");
-        writeLine("--- " + sectionName + " ---");
+        awaitFlushed(writeLine("--- " + sectionName + " ---"));
     }
 
     /**
@@ -141,21 +309,21 @@ public class InstallationLogger implements Closeable {
         switch (operation) {
             case CREATED:
             case COPIED:
-                filesCreated++;
+                filesCreated.incrementAndGet();
                 break;
             case DELETED:
-                filesDeleted++;
+                filesDeleted.incrementAndGet();
                 break;
             case OVERWRITTEN:
             case MODIFIED:
-                filesOverwritten++;
+                filesOverwritten.incrementAndGet();
                 break;
             case SKIPPED_EXISTS:
             case SKIPPED_COLLISION:
-                filesSkipped++;
+                filesSkipped.incrementAndGet();
                 break;
             case FAILED:
-                filesFailed++;
+                filesFailed.incrementAndGet();
                 break;
         }
     }
@@ -196,10 +364,10 @@ public class InstallationLogger implements Closeable {
         // Update counters
         switch (operation) {
             case CREATED:
-                directoriesCreated++;
+                directoriesCreated.incrementAndGet();
                 break;
             case DELETED:
-                directoriesDeleted++;
+                directoriesDeleted.incrementAndGet();
                 break;
         }
     }
@@ -234,7 +402,7 @@ public class InstallationLogger implements Closeable {
         writeTimestampedLine(message);
 
         if (operation != RegistryOperation.FAILED) {
-            registryOperations++;
+            registryOperations.incrementAndGet();
         }
     }
 
@@ -297,18 +465,25 @@ public class InstallationLogger implements Closeable {
     }
 
     /**
-     * Logs an error message.
+     * Logs an error message. Returns once the error has been flushed to the log file.
      */
     public void logError(String message) {
-        writeTimestampedLine("[ERROR] " + message);
+        awaitFlushed(writeTimestampedLine("[ERROR] " + message));
     }
 
     /**
-     * Logs an error with exception details.
+     * Logs an error with exception details. Returns once the error and its stack trace
+     * have been flushed to the log file.
      */
     public void logError(String message, Throwable ex) {
         writeTimestampedLine("[ERROR] " + message + ": " + ex.getMessage());
-        ex.printStackTrace(writer);
+        StringWriter stackTrace = new StringWriter();
+        ex.printStackTrace(new PrintWriter(stackTrace));
+        String text = stackTrace.toString();
+        if (text.endsWith(System.lineSeparator())) {
+            text = text.substring(0, text.length() - System.lineSeparator().length());
+        }
+        awaitFlushed(writeLine(text));
     }
 
     /**
@@ -331,10 +506,13 @@ public class InstallationLogger implements Closeable {
     }
 
     /**
-     * Writes a summary and closes the logger.
+     * Writes a summary, waits for all pending lines to reach the log file and closes the logger.
      */
     @Override
     public void close() {
+        if (closed) {
+            return;
+        }
         long endTime = System.currentTimeMillis();
         long duration = endTime - startTime;
 
@@ -342,22 +520,42 @@ public class InstallationLogger implements Closeable {
         writeLine("--------------------------------------------------------------------------------");
         writeLine("SUMMARY");
         writeLine("--------------------------------------------------------------------------------");
-        writeLine("Completed: " + TIMESTAMP_FORMAT.format(new Date(endTime)));
+        writeLine("Completed: " + createTimestampFormat().format(new Date(endTime)));
         writeLine("Duration: " + formatDuration(duration));
         writeLine("");
-        writeLine("Files created: " + filesCreated);
-        writeLine("Files deleted: " + filesDeleted);
-        writeLine("Files overwritten: " + filesOverwritten);
-        writeLine("Files skipped: " + filesSkipped);
-        writeLine("Files failed: " + filesFailed);
-        writeLine("Directories created: " + directoriesCreated);
-        writeLine("Directories deleted: " + directoriesDeleted);
-        writeLine("Registry operations: " + registryOperations);
+        writeLine("Files created: " + filesCreated.get());
+        writeLine("Files deleted: " + filesDeleted.get());
+        writeLine("Files overwritten: " + filesOverwritten.get());
+        writeLine("Files skipped: " + filesSkipped.get());
+        writeLine("Files failed: " + filesFailed.get());
+        writeLine("Directories created: " + directoriesCreated.get());
+        writeLine("Directories deleted: " + directoriesDeleted.get());
+        writeLine("Registry operations: " + registryOperations.get());
         writeLine("");
         writeLine("================================================================================");
         writeLine("END OF LOG");
         writeLine("================================================================================");
 
+        closed = true;
+        LockSupport.unpark(writerThread);
+        boolean interrupted = false;
+        while (writerThread.isAlive()) {
+            try {
+                writerThread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        // The writer thread has exited, so this thread is now the only consumer. Write entries
+        // that producers queued while it was shutting down.
+        while (!buffer.isEmpty()) {
+            if (writeBatch() == 0) {
+                Thread.yield();
+            }
+        }
         writer.close();
 
         // Also print log file location to stdout for visibility
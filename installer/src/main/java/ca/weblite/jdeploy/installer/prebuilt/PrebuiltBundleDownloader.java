@@ -1,6 +1,7 @@
 package ca.weblite.jdeploy.installer.prebuilt;
 
 import ca.weblite.jdeploy.installer.npm.NPMPackageVersion;
+import ca.weblite.jdeploy.installer.util.ContentStore;
 import ca.weblite.jdeploy.installer.views.InstallationForm;
 import ca.weblite.tools.io.FileUtil;
 import ca.weblite.tools.platform.Platform;
@@ -356,8 +357,8 @@ public class PrebuiltBundleDownloader {
             }
             // Rename for fast backup
             if (!installedApp.renameTo(backup)) {
-                // Fall back to copy
-                FileUtils.copyDirectory(installedApp, backup);
+                // Fall back to hard links, which are nearly as fast and take no extra space
+                ContentStore.linkOrCopyTree(installedApp, backup);
             }
         } else {
             backup = new File(installedApp.getParentFile(), installedApp.getName() + ".bak");
@@ -0,0 +1,323 @@
+package ca.weblite.jdeploy.installer.services;
+
+import ca.weblite.jdeploy.installer.logging.InstallationLogger;
+import ca.weblite.tools.platform.Platform;
+
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops all services of a package at the same time.
+ *
+ * Every {@code <command> service stop} process is started up front and then awaited against a
+ * shared deadline, so stopping several services takes about as long as the slowest one.  A stop
+ * command that doesn't finish in time is asked to terminate, then killed forcibly.  On Windows the
+ * stop command is a .cmd script whose children outlive cmd.exe, so the whole process tree is
+ * killed with {@code taskkill /T /F} instead.
+ *
+ * Single Responsibility: Run service stop commands concurrently with bounded waits.
+ */
+public class ParallelServiceStopper {
+
+    /**
+     * Default time to wait for the stop commands, matching {@link ServiceOperationExecutor}.
+     */
+    public static final long DEFAULT_STOP_TIMEOUT_MS = 30000;
+
+    /**
+     * Default time to wait after each termination request before escalating.
+     */
+    public static final long DEFAULT_KILL_TIMEOUT_MS = 5000;
+
+    /**
+     * Creates the process that stops a service.
+     */
+    public interface StopCommandFactory {
+        /**
+         * @param commandName The service command name
+         * @return a process builder for the service's stop command
+         */
+        ProcessBuilder createStopCommand(String commandName);
+    }
+
+    private final StopCommandFactory commandFactory;
+    private final long stopTimeoutMs;
+    private final long killTimeoutMs;
+    private final boolean killProcessTree;
+
+    public ParallelServiceStopper(StopCommandFactory commandFactory) {
+        this(commandFactory, DEFAULT_STOP_TIMEOUT_MS, DEFAULT_KILL_TIMEOUT_MS);
+    }
+
+    public ParallelServiceStopper(StopCommandFactory commandFactory, long stopTimeoutMs, long killTimeoutMs) {
+        this(commandFactory, stopTimeoutMs, killTimeoutMs, Platform.getSystemPlatform().isWindows());
+    }
+
+    /**
+     * @param killProcessTree true to kill timed out stop commands with their child processes,
+     *                        using {@link #createKillTreeCommand(long)}
+     */
+    ParallelServiceStopper(StopCommandFactory commandFactory, long stopTimeoutMs, long killTimeoutMs,
+                           boolean killProcessTree) {
+        if (commandFactory == null) {
+            throw new IllegalArgumentException("commandFactory cannot be null");
+        }
+        this.commandFactory = commandFactory;
+        this.stopTimeoutMs = stopTimeoutMs;
+        this.killTimeoutMs = killTimeoutMs;
+        this.killProcessTree = killProcessTree;
+    }
+
+    /**
+     * Stops the given services, reporting each outcome on the console and in the installation log.
+     *
+     * @param services The services to stop
+     * @param installationLogger The installation log (may be null)
+     * @return the outcome for each service
+     */
+    public Result stopServices(List<ServiceDescriptor> services, InstallationLogger installationLogger) {
+        List<String> commandNames = new ArrayList<>();
+        for (ServiceDescriptor service : services) {
+            System.out.println("Stopping service: " + service.getCommandName());
+            commandNames.add(service.getCommandName());
+        }
+        if (commandNames.isEmpty()) {
+            return new Result(new LinkedHashMap<>());
+        }
+
+        Result result = stopAll(commandNames);
+        for (Map.Entry<String, ServiceOperationResult> entry : result.getResults().entrySet()) {
+            String commandName = entry.getKey();
+            ServiceOperationResult stopResult = entry.getValue();
+            if (stopResult.isSuccess()) {
+                System.out.println("Successfully stopped service: " + commandName);
+                if (installationLogger != null) {
+                    installationLogger.logInfo("Stopped service: " + commandName);
+                }
+            } else {
+                System.err.println("Warning: Failed to stop service " + commandName + ": " + stopResult.getMessage());
+                if (installationLogger != null) {
+                    installationLogger.logError("Failed to stop service " + commandName + ": " + stopResult.getMessage());
+                }
+            }
+        }
+        if (!result.isAllStopped() && installationLogger != null) {
+            installationLogger.logInfo(result.toString());
+        }
+        return result;
+    }
+
+    /**
+     * Stops the given services and waits for all stop commands to finish or time out.
+     *
+     * @param commandNames The service command names
+     * @return the outcome for each service
+     */
+    public Result stopAll(List<String> commandNames) {
+        Map<String, Process> processes = new LinkedHashMap<>();
+        Map<String, ServiceOperationResult> results = new LinkedHashMap<>();
+
+        for (String commandName : commandNames) {
+            try {
+                ProcessBuilder pb = commandFactory.createStopCommand(commandName);
+                pb.redirectErrorStream(true);
+                Process process = pb.start();
+                drainOutput(process, commandName);
+                processes.put(commandName, process);
+            } catch (Exception e) {
+                results.put(commandName, ServiceOperationResult.failure("Service stop error: " + e.getMessage()));
+            }
+        }
+
+        long deadline = System.currentTimeMillis() + stopTimeoutMs;
+        List<String> timedOut = new ArrayList<>();
+        for (Map.Entry<String, Process> entry : processes.entrySet()) {
+            Process process = entry.getValue();
+            try {
+                long remaining = Math.max(0, deadline - System.currentTimeMillis());
+                if (process.waitFor(remaining, TimeUnit.MILLISECONDS)) {
+                    results.put(entry.getKey(), resultFor(process.exitValue()));
+                } else {
+                    timedOut.add(entry.getKey());
+                    terminate(process);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                timedOut.add(entry.getKey());
+                terminate(process);
+            }
+        }
+
+        // Processes that timed out were asked to terminate together; give them one grace period
+        long killDeadline = System.currentTimeMillis() + killTimeoutMs;
+        for (String commandName : timedOut) {
+            Process process = processes.get(commandName);
+            if (!waitUntil(process, killDeadline)) {
+                process.destroyForcibly();
+                waitUntil(process, System.currentTimeMillis() + killTimeoutMs);
+            }
+            results.put(commandName, ServiceOperationResult.failure(
+                    "Service stop timed out after " + (stopTimeoutMs / 1000) + " seconds and was terminated"
+            ));
+        }
+
+        Map<String, ServiceOperationResult> ordered = new LinkedHashMap<>();
+        for (String commandName : commandNames) {
+            ordered.put(commandName, results.get(commandName));
+        }
+        return new Result(ordered);
+    }
+
+    /**
+     * Asks a timed out stop command to terminate.  Where the process tree is killed, this is
+     * already forcible, and the grace period only waits for the kill to take effect.
+     */
+    private void terminate(Process process) {
+        if (killProcessTree) {
+            Long pid = getPid(process);
+            if (pid != null && killTree(pid)) {
+                return;
+            }
+        }
+        process.destroy();
+    }
+
+    private boolean killTree(long pid) {
+        try {
+            ProcessBuilder pb = createKillTreeCommand(pid);
+            pb.redirectErrorStream(true);
+            Process killer = pb.start();
+            drainOutput(killer, "kill-" + pid);
+            if (!killer.waitFor(killTimeoutMs, TimeUnit.MILLISECONDS)) {
+                killer.destroyForcibly();
+                return false;
+            }
+            return killer.exitValue() == 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Creates the command that kills a process and all of its descendants.
+     *
+     * @param pid The process id
+     * @return a process builder for the kill command
+     */
+    ProcessBuilder createKillTreeCommand(long pid) {
+        return new ProcessBuilder("taskkill", "/T", "/F", "/PID", String.valueOf(pid));
+    }
+
+    /**
+     * Gets a process id with {@code Process.pid()}, which needs Java 9.
+     *
+     * @return the process id, or null if it isn't available
+     */
+    private static Long getPid(Process process) {
+        try {
+            Method pid = Process.class.getMethod("pid");
+            return (Long) pid.invoke(process);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static ServiceOperationResult resultFor(int exitCode) {
+        if (exitCode == 0) {
+            return ServiceOperationResult.success();
+        }
+        return ServiceOperationResult.failure("Service stop returned exit code " + exitCode, exitCode);
+    }
+
+    private static boolean waitUntil(Process process, long deadline) {
+        try {
+            long remaining = Math.max(0, deadline - System.currentTimeMillis());
+            return process.waitFor(remaining, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return !process.isAlive();
+        }
+    }
+
+    /**
+     * Consumes the process output so a chatty stop command can't block on a full pipe.
+     */
+    private static void drainOutput(Process process, String commandName) {
+        Thread outputConsumer = new Thread(() -> {
+            try {
+                InputStream inputStream = process.getInputStream();
+                byte[] buffer = new byte[1024];
+                while (inputStream.read(buffer) != -1) {
+                    // Discard output
+                }
+            } catch (Exception e) {
+                // Ignore - process may have been destroyed
+            }
+        }, "ServiceStop-" + commandName);
+        outputConsumer.setDaemon(true);
+        outputConsumer.start();
+    }
+
+    /**
+     * The outcome of stopping a package's services.
+     */
+    public static final class Result {
+        private final Map<String, ServiceOperationResult> results;
+
+        Result(Map<String, ServiceOperationResult> results) {
+            this.results = Collections.unmodifiableMap(results);
+        }
+
+        /**
+         * @return the result for each service, in the order the services were given
+         */
+        public Map<String, ServiceOperationResult> getResults() {
+            return results;
+        }
+
+        public ServiceOperationResult getResult(String commandName) {
+            return results.get(commandName);
+        }
+
+        /**
+         * @return true if every stop command exited with code 0
+         */
+        public boolean isAllStopped() {
+            for (ServiceOperationResult result : results.values()) {
+                if (result.isFailure()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return the names of the services that failed to stop
+         */
+        public List<String> getFailedServices() {
+            List<String> failed = new ArrayList<>();
+            for (Map.Entry<String, ServiceOperationResult> entry : results.entrySet()) {
+                if (entry.getValue().isFailure()) {
+                    failed.add(entry.getKey());
+                }
+            }
+            return failed;
+        }
+
+        @Override
+        public String toString() {
+            int failed = getFailedServices().size();
+            return "Stopped " + (results.size() - failed) + " of " + results.size() + " services"
+                    + (failed > 0 ? "; failed: " + getFailedServices() : "");
+        }
+    }
+}
@@ -134,6 +134,17 @@ public class ServiceStatusMonitor {
         logger.info("ServiceStatusMonitor stopped");
     }
 
+    /**
+     * Polls services immediately instead of waiting for the next interval,
+     * notifying listeners of any changes.
+     */
+    public void refreshNow() {
+        if (!running) {
+            return;
+        }
+        pollAndNotify();
+    }
+
     /**
      * Checks if the monitor is currently running.
      *
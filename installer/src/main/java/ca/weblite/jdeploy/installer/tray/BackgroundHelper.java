@@ -2,6 +2,7 @@ package ca.weblite.jdeploy.installer.tray;
 
 import ca.weblite.jdeploy.app.AppInfo;
 import ca.weblite.jdeploy.installer.helpers.HelperCleanupScriptGenerator;
+import ca.weblite.jdeploy.installer.helpers.HelperControlServer;
 import ca.weblite.jdeploy.installer.helpers.HelperSelfDeleteService;
 import ca.weblite.jdeploy.installer.models.InstallationSettings;
 import ca.weblite.jdeploy.installer.models.ServiceRowModel;
@@ -10,6 +11,7 @@ import ca.weblite.jdeploy.installer.services.ServiceLogHelper;
 import ca.weblite.jdeploy.installer.services.ServiceStatusPoller;
 import ca.weblite.jdeploy.models.HelperAction;
 import ca.weblite.jdeploy.installer.uninstall.FileUninstallManifestRepository;
+import ca.weblite.jdeploy.installer.util.ContentStore;
 import ca.weblite.jdeploy.installer.uninstall.UninstallService;
 import ca.weblite.jdeploy.installer.win.JnaRegistryOperations;
 import ca.weblite.jdeploy.installer.win.RegistryOperations;
@@ -19,6 +21,7 @@ import ca.weblite.tools.platform.Platform;
 import javax.swing.*;
 import java.awt.*;
 import java.io.File;
+import java.io.IOException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 
@@ -38,13 +41,14 @@ public class BackgroundHelper {
     private static final Logger logger = Logger.getLogger(BackgroundHelper.class.getName());
 
     /**
-     * Directory where lock and shutdown signal files are stored.
+     * Directory where lock, control endpoint and shutdown signal files are stored.
      */
     private static final String LOCK_DIR_PATH = System.getProperty("user.home") +
             File.separator + ".jdeploy" + File.separator + "locks";
 
     /**
-     * Interval in milliseconds between shutdown signal checks.
+     * Interval in milliseconds between shutdown signal checks when the control server couldn't
+     * be started.
      */
     private static final long SHUTDOWN_CHECK_INTERVAL_MS = 500;
 
@@ -52,7 +56,12 @@ public class BackgroundHelper {
     private ServiceTrayController trayController;
 
     /**
-     * Thread for monitoring shutdown signal file.
+     * Control channel for shutdown, status and refresh commands.
+     */
+    private HelperControlServer controlServer;
+
+    /**
+     * Thread for monitoring the shutdown signal file, only used when there is no control server.
      */
     private Thread shutdownMonitorThread;
 
@@ -110,8 +119,20 @@ public class BackgroundHelper {
                 return; // Won't reach here, but explicit for clarity
             }
 
-            // Start shutdown signal monitoring
-            startShutdownMonitor();
+            // Honour a shutdown requested with a signal file while the Helper was starting
+            if (consumeShutdownSignalFile()) {
+                stop();
+                System.exit(0);
+                return;
+            }
+
+            // Start listening for shutdown, status and refresh commands
+            startControlServer();
+
+            // Without a control channel, installers fall back to the signal file
+            if (controlServer == null) {
+                startShutdownMonitor(SHUTDOWN_CHECK_INTERVAL_MS);
+            }
 
             logger.info("Background helper started successfully");
         } catch (Exception e) {
@@ -123,11 +144,12 @@ public class BackgroundHelper {
     /**
      * Stops the background helper.
      *
-     * Stops the shutdown monitor and tray controller, cleans up resources.
+     * Stops the control server and tray controller, cleans up resources.
      * Lock is automatically released by ServiceTrayController.
      */
     public void stop() {
-        // Stop shutdown monitor first
+        // Stop the control server and shutdown monitor first
+        stopControlServer();
         stopShutdownMonitor();
 
         if (trayController != null) {
@@ -342,38 +364,123 @@ public class BackgroundHelper {
         System.exit(0);
     }
 
+    // ========== Control Channel ==========
+
+    /**
+     * Starts the control server that receives shutdown, status and refresh commands from
+     * HelperProcessManager.
+     *
+     * The server blocks waiting for connections, so the Helper doesn't wake up while idle.
+     */
+    private void startControlServer() {
+        if (controlServer != null) {
+            logger.warning("Control server is already running");
+            return;
+        }
+
+        File endpointFile = getControlEndpointFile();
+        if (endpointFile == null) {
+            logger.warning("Cannot start control server: package name is not available");
+            return;
+        }
+
+        HelperControlServer server = new HelperControlServer(endpointFile, new HelperControlServer.Listener() {
+            @Override
+            public void onShutdown() {
+                handleShutdownSignal(null);
+            }
+
+            @Override
+            public void onRefresh() {
+                SwingUtilities.invokeLater(() -> {
+                    if (trayController != null) {
+                        trayController.refreshServiceStatus();
+                    }
+                });
+            }
+
+            @Override
+            public String getStatus() {
+                return trayController != null && trayController.isRunning() ? "running" : "stopping";
+            }
+        });
+
+        try {
+            server.start();
+            controlServer = server;
+        } catch (IOException e) {
+            logger.warning("Failed to start control server: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops the control server.
+     */
+    private void stopControlServer() {
+        if (controlServer == null) {
+            return;
+        }
+        controlServer.stop();
+        controlServer = null;
+    }
+
     // ========== Shutdown Signal Monitoring ==========
 
+    /**
+     * Checks once for a shutdown signal file and deletes it if found.
+     *
+     * Installers that predate the control channel request a shutdown by creating a signal file
+     * (see HelperProcessManager.tryGracefulTermination()).  The file isn't watched while the
+     * control server is running, so that an idle Helper never wakes up; an older installer that
+     * gets no response kills the Helper after its timeout.  A request made while the Helper was
+     * starting is still honoured here.
+     *
+     * @return true if a shutdown was requested
+     */
+    private boolean consumeShutdownSignalFile() {
+        File signalFile = getShutdownSignalFile();
+        if (signalFile == null || !signalFile.exists()) {
+            return false;
+        }
+        logger.info("Shutdown signal file detected at startup: " + signalFile.getAbsolutePath());
+        if (!signalFile.delete()) {
+            logger.warning("Failed to delete shutdown signal file: " + signalFile.getAbsolutePath());
+        }
+        return true;
+    }
+
     /**
      * Starts the shutdown signal monitor thread.
      *
-     * The monitor periodically checks for a shutdown signal file created by
-     * HelperProcessManager.tryGracefulTermination(). When detected, the Helper
-     * performs a graceful shutdown.
+     * Only used when the control server couldn't be started, in which case HelperProcessManager
+     * falls back to creating a shutdown signal file.
+     *
+     * @param intervalMs Milliseconds between checks
      */
-    private void startShutdownMonitor() {
+    private void startShutdownMonitor(long intervalMs) {
         if (shutdownMonitorRunning.get()) {
             logger.warning("Shutdown monitor is already running");
             return;
         }
+        File signalFile = getShutdownSignalFile();
+        if (signalFile == null) {
+            logger.warning("Cannot start shutdown monitor: package name is not available");
+            return;
+        }
 
         shutdownMonitorRunning.set(true);
-
         shutdownMonitorThread = new Thread(() -> {
             logger.info("Shutdown monitor started");
-
             while (shutdownMonitorRunning.get()) {
                 try {
-                    // Check for shutdown signal file
-                    File signalFile = getShutdownSignalFile();
-                    if (signalFile != null && signalFile.exists()) {
+                    if (signalFile.exists()) {
                         logger.info("Shutdown signal file detected: " + signalFile.getAbsolutePath());
                         handleShutdownSignal(signalFile);
                         return; // Exit monitor thread
                     }
 
                     // Sleep before next check
-                    Thread.sleep(SHUTDOWN_CHECK_INTERVAL_MS);
+                    Thread.sleep(intervalMs);
 
                 } catch (InterruptedException e) {
                     // Thread was interrupted - exit gracefully
@@ -385,10 +492,8 @@ public class BackgroundHelper {
                     logger.warning("Error in shutdown monitor: " + e.getMessage());
                 }
             }
-
             logger.info("Shutdown monitor stopped");
         }, "BackgroundHelper-ShutdownMonitor");
-
         shutdownMonitorThread.setDaemon(true);
         shutdownMonitorThread.start();
     }
@@ -397,39 +502,44 @@ public class BackgroundHelper {
      * Stops the shutdown signal monitor thread.
      */
     private void stopShutdownMonitor() {
-        if (!shutdownMonitorRunning.get()) {
+        if (!shutdownMonitorRunning.getAndSet(false)) {
             return;
         }
 
-        shutdownMonitorRunning.set(false);
-
-        if (shutdownMonitorThread != null) {
-            shutdownMonitorThread.interrupt();
+        Thread thread = shutdownMonitorThread;
+        shutdownMonitorThread = null;
+        if (thread != null && thread != Thread.currentThread()) {
+            thread.interrupt();
             try {
                 // Wait briefly for thread to finish
-                shutdownMonitorThread.join(1000);
+                thread.join(1000);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
-            shutdownMonitorThread = null;
         }
     }
 
     /**
-     * Handles detection of the shutdown signal file.
+     * Handles a shutdown request received over the control channel or through the signal file.
      *
      * Performs graceful shutdown:
-     * 1. Logs the shutdown signal
-     * 2. Cleans up (removes tray icon, releases locks)
-     * 3. Deletes the shutdown signal file
+     * 1. Logs the shutdown request
+     * 2. Cleans up (removes tray icon, releases locks, closes the control channel)
+     * 3. Deletes the shutdown signal file, if that is how the request was made
      * 4. Exits gracefully
      *
-     * @param signalFile The shutdown signal file that was detected
+     * @param signalFile The shutdown signal file that was detected, or null for a request
+     *                   received over the control channel
      */
     private void handleShutdownSignal(File signalFile) {
         logger.info("Shutdown signal received, exiting gracefully");
 
-        // Clean up - this will stop the shutdown monitor and tray controller
+        if (signalFile != null) {
+            // Called from the monitor thread, which exits once this returns, so stop() mustn't wait for it
+            shutdownMonitorRunning.set(false);
+        }
+
+        // Clean up - this will stop the control server, shutdown monitor and tray controller
         // Do this on the EDT to avoid threading issues with the tray icon
         try {
             SwingUtilities.invokeAndWait(() -> {
@@ -437,15 +547,15 @@ public class BackgroundHelper {
             });
         } catch (Exception e) {
             logger.warning("Error during shutdown cleanup: " + e.getMessage());
-            // Continue with signal file deletion and exit
+            // Continue with exit
         }
 
-        // Delete the signal file
-        boolean deleted = signalFile.delete();
-        if (deleted) {
-            logger.info("Shutdown signal file deleted");
-        } else {
-            logger.warning("Failed to delete shutdown signal file: " + signalFile.getAbsolutePath());
+        if (signalFile != null) {
+            if (signalFile.delete()) {
+                logger.info("Shutdown signal file deleted");
+            } else {
+                logger.warning("Failed to delete shutdown signal file: " + signalFile.getAbsolutePath());
+            }
         }
 
         // Exit gracefully
@@ -453,9 +563,29 @@ public class BackgroundHelper {
         System.exit(0);
     }
 
+    /**
+     * Gets the control channel endpoint file for this Helper.
+     *
+     * The file path matches what HelperProcessManager reads:
+     * ~/.jdeploy/locks/{fullyQualifiedName}.control
+     *
+     * @return The control endpoint file, or null if package name is not available
+     */
+    File getControlEndpointFile() {
+        String packageName = getPackageName();
+        if (packageName == null || packageName.isEmpty()) {
+            return null;
+        }
+
+        String source = getSource();
+        String fullyQualifiedName = createFullyQualifiedName(packageName, source);
+        return new File(LOCK_DIR_PATH, fullyQualifiedName + ".control");
+    }
+
     /**
      * Gets the shutdown signal file for this Helper.
      *
+     * Older versions of HelperProcessManager create this file to request a shutdown.
      * The signal file path matches what HelperProcessManager creates:
      * ~/.jdeploy/locks/{fullyQualifiedName}.shutdown
      *
@@ -515,12 +645,13 @@ public class BackgroundHelper {
     }
 
     /**
-     * Checks if the shutdown monitor is currently running.
+     * Checks if the Helper is currently accepting shutdown requests, over the control channel
+     * or through the signal file.
      *
-     * @return true if the monitor is running, false otherwise
+     * @return true if the control server or shutdown monitor is running, false otherwise
      */
     boolean isShutdownMonitorRunning() {
-        return shutdownMonitorRunning.get();
+        return (controlServer != null && controlServer.isRunning()) || shutdownMonitorRunning.get();
     }
 
     /**
@@ -576,7 +707,11 @@ public class BackgroundHelper {
     private UninstallService createUninstallService() {
         FileUninstallManifestRepository manifestRepository = new FileUninstallManifestRepository();
         RegistryOperations registryOperations = createRegistryOperations();
-        return new UninstallService(manifestRepository, registryOperations);
+        return new UninstallService(
+                manifestRepository,
+                registryOperations,
+                ContentStore.isSupported() ? new ContentStore() : null
+        );
     }
 
     /**
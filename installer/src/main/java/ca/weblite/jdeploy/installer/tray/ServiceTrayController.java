@@ -333,6 +333,16 @@ public class ServiceTrayController {
         return PackagePathResolver.getJDeployHome();
     }
 
+    /**
+     * Refreshes service status right away, e.g. when asked to by the installer after
+     * services were changed.
+     */
+    public void refreshServiceStatus() {
+        if (statusMonitor != null) {
+            statusMonitor.refreshNow();
+        }
+    }
+
     /**
      * Starts the status monitor for event-driven updates.
      *
@@ -4,16 +4,11 @@ import ca.weblite.jdeploy.installer.uninstall.model.UninstallManifest;
 import ca.weblite.jdeploy.installer.util.ArchitectureUtil;
 import ca.weblite.jdeploy.installer.util.CliCommandBinDirResolver;
 import org.apache.commons.io.FileUtils;
-import org.w3c.dom.Document;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.IOException;
-import java.io.StringReader;
+import java.io.FileInputStream;
+import java.io.InputStream;
 import java.util.Optional;
 
 /**
@@ -24,6 +19,11 @@ import java.util.Optional;
  * Where:
  * - {arch} is the system architecture (e.g., "x64" or "arm64")
  * - {fqpn} is the fully-qualified package name (computed from packageName and source)
+ *
+ * Manifests are written and read with the StAX based UninstallManifestStreamWriter and
+ * UninstallManifestStreamParser, validating against the schema in the same pass.  If an
+ * installation was interrupted before its manifest was written, the entries recorded in its
+ * UninstallManifestJournal are loaded instead.
  */
 public class FileUninstallManifestRepository implements UninstallManifestRepository {
 
@@ -31,49 +31,38 @@ public class FileUninstallManifestRepository implements UninstallManifestReposit
     private static final String JDEPLOY_HOME = ".jdeploy";
     private static final String MANIFEST_FILENAME = "uninstall-manifest.xml";
 
-    private final UninstallManifestXmlGenerator xmlGenerator;
+    private final UninstallManifestStreamWriter streamWriter = new UninstallManifestStreamWriter();
+    private final UninstallManifestStreamParser streamParser = new UninstallManifestStreamParser();
     private final UninstallManifestValidator validator;
-    private final UninstallManifestXmlParser xmlParser;
     private final boolean skipSchemaValidation;
 
     /**
-     * Creates a repository with default XML generator and validator.
+     * Creates a repository with the default validator.
      */
     public FileUninstallManifestRepository() {
-        this(new UninstallManifestXmlGenerator(), 
-             new UninstallManifestValidator(), 
-             new UninstallManifestXmlParser(), 
-             false);
+        this(new UninstallManifestValidator(), false);
     }
 
     /**
      * Creates a repository with custom schema validation setting.
      */
     public FileUninstallManifestRepository(boolean skipSchemaValidation) {
-        this(new UninstallManifestXmlGenerator(), 
-             new UninstallManifestValidator(), 
-             new UninstallManifestXmlParser(), 
-             skipSchemaValidation);
+        this(new UninstallManifestValidator(), skipSchemaValidation);
     }
 
     /**
-     * Creates a repository with custom XML generator and validator.
+     * Creates a repository with a custom validator.
      */
-    public FileUninstallManifestRepository(UninstallManifestXmlGenerator xmlGenerator,
-                                           UninstallManifestValidator validator) {
-        this(xmlGenerator, validator, new UninstallManifestXmlParser(), false);
+    public FileUninstallManifestRepository(UninstallManifestValidator validator) {
+        this(validator, false);
     }
 
     /**
      * Creates a repository with all dependencies provided.
      */
-    public FileUninstallManifestRepository(UninstallManifestXmlGenerator xmlGenerator,
-                                           UninstallManifestValidator validator,
-                                           UninstallManifestXmlParser xmlParser,
+    public FileUninstallManifestRepository(UninstallManifestValidator validator,
                                            boolean skipSchemaValidation) {
-        this.xmlGenerator = xmlGenerator;
         this.validator = validator;
-        this.xmlParser = xmlParser;
         this.skipSchemaValidation = skipSchemaValidation;
     }
 
@@ -88,25 +77,7 @@ public class FileUninstallManifestRepository implements UninstallManifestReposit
         File manifestFile = getManifestFile(manifest.getPackageInfo().getName(), 
                                             manifest.getPackageInfo().getSource());
         
-        // Create parent directories if they don't exist
-        File parentDir = manifestFile.getParentFile();
-        if (!parentDir.exists()) {
-            if (!parentDir.mkdirs()) {
-                throw new IOException("Failed to create manifest directory: " + parentDir);
-            }
-        }
-
-        // Generate XML document
-        Document doc = xmlGenerator.generate(manifest);
-        
-        // Validate the document (unless skipped)
-        if (!skipSchemaValidation) {
-            validator.validate(doc);
-        }
-
-        // Write to file
-        String xmlContent = documentToString(doc);
-        FileUtils.writeStringToFile(manifestFile, xmlContent, "UTF-8");
+        streamWriter.writeFile(manifest, manifestFile, skipSchemaValidation ? null : validator);
     }
 
     /**
@@ -122,19 +93,12 @@ public class FileUninstallManifestRepository implements UninstallManifestReposit
         File manifestFile = getManifestFile(packageName, source);
         
         if (!manifestFile.exists()) {
-            return Optional.empty();
+            // An interrupted installation leaves only its journal behind
+            return UninstallManifestJournal.recover(UninstallManifestJournal.getJournalFile(manifestFile));
         }
 
-        try {
-            String xmlContent = FileUtils.readFileToString(manifestFile, "UTF-8");
-            Document doc = parseXml(xmlContent);
-            
-            // Validate the document (unless skipped)
-            if (!skipSchemaValidation) {
-                validator.validate(doc);
-            }
-            
-            UninstallManifest manifest = xmlParser.parse(doc);
+        try (InputStream in = new BufferedInputStream(new FileInputStream(manifestFile))) {
+            UninstallManifest manifest = streamParser.parse(in, skipSchemaValidation ? null : validator);
             return Optional.of(manifest);
         } catch (Exception e) {
             // If parsing or validation fails, return empty
@@ -191,41 +155,4 @@ public class FileUninstallManifestRepository implements UninstallManifestReposit
         File manifestDir = getManifestDirectory(packageName, source);
         return new File(manifestDir, MANIFEST_FILENAME);
     }
-
-    /**
-     * Converts an XML Document to a string.
-     *
-     * @param doc the XML document
-     * @return the XML as a string
-     * @throws Exception if conversion fails
-     */
-    private String documentToString(Document doc) throws Exception {
-        javax.xml.transform.TransformerFactory tf = javax.xml.transform.TransformerFactory.newInstance();
-        javax.xml.transform.Transformer transformer = tf.newTransformer();
-        transformer.setOutputProperty(javax.xml.transform.OutputKeys.INDENT, "yes");
-        transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-        transformer.setOutputProperty(javax.xml.transform.OutputKeys.ENCODING, "UTF-8");
-        
-        javax.xml.transform.dom.DOMSource source = new javax.xml.transform.dom.DOMSource(doc);
-        java.io.StringWriter writer = new java.io.StringWriter();
-        javax.xml.transform.stream.StreamResult result = new javax.xml.transform.stream.StreamResult(writer);
-        transformer.transform(source, result);
-        return writer.toString();
-    }
-
-    /**
-     * Parses an XML string into a Document.
-     *
-     * @param xmlContent the XML content as a string
-     * @return the parsed Document
-     * @throws ParserConfigurationException if parser configuration fails
-     * @throws SAXException if XML parsing fails
-     * @throws IOException if I/O error occurs
-     */
-    private Document parseXml(String xmlContent) throws ParserConfigurationException, SAXException, IOException {
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        factory.setNamespaceAware(true);
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        return builder.parse(new InputSource(new StringReader(xmlContent)));
-    }
 }
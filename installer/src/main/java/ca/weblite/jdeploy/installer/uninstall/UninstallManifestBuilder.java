@@ -4,6 +4,7 @@ import ca.weblite.jdeploy.installer.uninstall.model.UninstallManifest;
 import ca.weblite.jdeploy.installer.util.CliCommandBinDirResolver;
 
 import java.io.File;
+import java.io.IOException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -43,6 +44,8 @@ public class UninstallManifestBuilder {
     private List<UninstallManifest.AgentEntry> agentEntries;
 
     private Map<String, String> variableSubstitutions;
+
+    private UninstallManifestJournal journal;
     
     /**
      * Creates a new UninstallManifestBuilder with default substitution variables.
@@ -175,6 +178,63 @@ public class UninstallManifestBuilder {
         return this;
     }
     
+    /**
+     * Record entries in a journal file as they are added, so that an installation that is
+     * interrupted before the manifest is written can still be uninstalled.
+     * Entries added before this call are written to the journal straight away.
+     * Must be called after {@link #withPackageInfo}.  The journal is closed by {@link #build()}
+     * and deleted once the manifest has been written.
+     *
+     * @param journalFile the journal file, usually from {@link UninstallManifestWriter#getJournalFile(String, String)}
+     * @return this builder instance
+     * @throws IOException if the journal can't be created
+     * @throws IllegalStateException if package info hasn't been set
+     */
+    public UninstallManifestBuilder withJournal(File journalFile) throws IOException {
+        Objects.requireNonNull(journalFile, "journalFile cannot be null");
+        validateRequiredFields();
+        closeJournal();
+
+        UninstallManifestJournal newJournal = UninstallManifestJournal.create(journalFile, buildPackageInfo());
+        try {
+            for (UninstallManifest.InstalledFile file : files) {
+                newJournal.append(file);
+            }
+            for (UninstallManifest.InstalledDirectory directory : directories) {
+                newJournal.append(directory);
+            }
+            for (UninstallManifest.RegistryKey key : registryKeys) {
+                newJournal.append(key);
+            }
+            for (UninstallManifest.ModifiedRegistryValue value : modifiedRegistryValues) {
+                newJournal.append(value);
+            }
+            for (UninstallManifest.WindowsPathEntry entry : windowsPathEntries) {
+                newJournal.append(entry);
+            }
+            for (UninstallManifest.ShellProfileEntry entry : shellProfileEntries) {
+                newJournal.append(entry);
+            }
+            for (UninstallManifest.GitBashProfileEntry entry : gitBashProfileEntries) {
+                newJournal.append(entry);
+            }
+            for (UninstallManifest.McpServerEntry entry : mcpServerEntries) {
+                newJournal.append(entry);
+            }
+            for (UninstallManifest.SkillEntry entry : skillEntries) {
+                newJournal.append(entry);
+            }
+            for (UninstallManifest.AgentEntry entry : agentEntries) {
+                newJournal.append(entry);
+            }
+        } catch (IOException e) {
+            newJournal.close();
+            throw e;
+        }
+        journal = newJournal;
+        return this;
+    }
+
     /**
      * Add an installed file to the manifest.
      * 
@@ -194,6 +254,7 @@ public class UninstallManifestBuilder {
             .description(description)
             .build();
         files.add(file);
+        appendToJournal(j -> j.append(file));
         return this;
     }
     
@@ -216,6 +277,7 @@ public class UninstallManifestBuilder {
             .description(description)
             .build();
         directories.add(directory);
+        appendToJournal(j -> j.append(directory));
         return this;
     }
     
@@ -248,6 +310,7 @@ public class UninstallManifestBuilder {
             .description(description)
             .build();
         registryKeys.add(key);
+        appendToJournal(j -> j.append(key));
         return this;
     }
     
@@ -302,6 +365,7 @@ public class UninstallManifestBuilder {
             .description(description)
             .build();
         modifiedRegistryValues.add(value);
+        appendToJournal(j -> j.append(value));
         return this;
     }
     
@@ -331,6 +395,7 @@ public class UninstallManifestBuilder {
             .description(description)
             .build();
         windowsPathEntries.add(entry);
+        appendToJournal(j -> j.append(entry));
         return this;
     }
     
@@ -366,6 +431,7 @@ public class UninstallManifestBuilder {
             .description(description)
             .build();
         shellProfileEntries.add(entry);
+        appendToJournal(j -> j.append(entry));
         return this;
     }
     
@@ -401,6 +467,7 @@ public class UninstallManifestBuilder {
             .description(description)
             .build();
         gitBashProfileEntries.add(entry);
+        appendToJournal(j -> j.append(entry));
         return this;
     }
 
@@ -424,6 +491,7 @@ public class UninstallManifestBuilder {
             .toolName(toolName)
             .build();
         mcpServerEntries.add(entry);
+        appendToJournal(j -> j.append(entry));
         return this;
     }
 
@@ -444,6 +512,7 @@ public class UninstallManifestBuilder {
             .name(name)
             .build();
         skillEntries.add(entry);
+        appendToJournal(j -> j.append(entry));
         return this;
     }
 
@@ -464,6 +533,7 @@ public class UninstallManifestBuilder {
             .name(name)
             .build();
         agentEntries.add(entry);
+        appendToJournal(j -> j.append(entry));
         return this;
     }
 
@@ -476,16 +546,9 @@ public class UninstallManifestBuilder {
      */
     public UninstallManifest build() {
         validateRequiredFields();
-        
-        UninstallManifest.PackageInfo packageInfo = UninstallManifest.PackageInfo.builder()
-            .name(packageName)
-            .source(packageSource)
-            .version(packageVersion)
-            .fullyQualifiedName(fullyQualifiedName)
-            .architecture(architecture)
-            .installedAt(installedAt)
-            .installerVersion(installerVersion != null ? installerVersion : "1.0")
-            .build();
+        closeJournal();
+
+        UninstallManifest.PackageInfo packageInfo = buildPackageInfo();
         
         UninstallManifest.RegistryInfo registryInfo = null;
         if (!registryKeys.isEmpty() || !modifiedRegistryValues.isEmpty()) {
@@ -524,6 +587,50 @@ public class UninstallManifestBuilder {
             .build();
     }
     
+    private UninstallManifest.PackageInfo buildPackageInfo() {
+        return UninstallManifest.PackageInfo.builder()
+            .name(packageName)
+            .source(packageSource)
+            .version(packageVersion)
+            .fullyQualifiedName(fullyQualifiedName)
+            .architecture(architecture)
+            .installedAt(installedAt)
+            .installerVersion(installerVersion != null ? installerVersion : "1.0")
+            .build();
+    }
+
+    /**
+     * Write an entry to the journal, if there is one.  A journal that can't be written to is
+     * dropped; the manifest itself is still built from the entries kept in memory.
+     */
+    private void appendToJournal(JournalAppender appender) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            appender.append(journal);
+        } catch (IOException e) {
+            System.err.println("Warning: Failed to write to uninstall manifest journal " + journal.getFile() + ": " + e.getMessage());
+            closeJournal();
+        }
+    }
+
+    private void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.err.println("Warning: Failed to close uninstall manifest journal " + journal.getFile() + ": " + e.getMessage());
+        }
+        journal = null;
+    }
+
+    private interface JournalAppender {
+        void append(UninstallManifestJournal journal) throws IOException;
+    }
+
     /**
      * Substitute all known path variables in the given string.
      * Variables are replaced in the format ${VARIABLE_NAME}.
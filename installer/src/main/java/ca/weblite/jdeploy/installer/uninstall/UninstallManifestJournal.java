@@ -0,0 +1,251 @@
+package ca.weblite.jdeploy.installer.uninstall;
+
+import ca.weblite.jdeploy.installer.uninstall.model.UninstallManifest;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Optional;
+
+/**
+ * An append-only record of installed artifacts, written next to the uninstall manifest while the
+ * installer runs.
+ *
+ * Each entry is written and flushed as soon as it is added, wrapped in its own section element, so
+ * that if the installer is interrupted the journal still lists everything installed up to that
+ * point.  {@link FileUninstallManifestRepository} falls back to the journal when no manifest was
+ * written.  Once the complete manifest has been written the journal is deleted.
+ */
+public class UninstallManifestJournal implements Closeable {
+    private static final String JOURNAL_SUFFIX = ".journal";
+
+    private final File file;
+    private final OutputStream out;
+    private final XMLStreamWriter xml;
+    private final UninstallManifestStreamWriter.Output output;
+    private boolean closed;
+
+    private UninstallManifestJournal(File file, OutputStream out, XMLStreamWriter xml) {
+        this.file = file;
+        this.out = out;
+        this.xml = xml;
+        this.output = new UninstallManifestStreamWriter.Output(xml);
+    }
+
+    /**
+     * Creates a new journal, replacing any existing one, and writes the package info to it.
+     *
+     * @param file the journal file
+     * @param packageInfo the package being installed
+     * @return the open journal
+     * @throws IOException if the journal can't be created
+     */
+    public static UninstallManifestJournal create(File file, UninstallManifest.PackageInfo packageInfo)
+            throws IOException {
+        File parentDir = file.getParentFile();
+        if (parentDir != null && !parentDir.exists() && !parentDir.mkdirs()) {
+            throw new IOException("Failed to create manifest directory: " + parentDir.getAbsolutePath());
+        }
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            XMLStreamWriter xml = UninstallManifestStreamWriter.createXmlStreamWriter(out);
+            UninstallManifestJournal journal = new UninstallManifestJournal(file, out, xml);
+            journal.output.startDocument(packageInfo);
+            journal.flush();
+            return journal;
+        } catch (XMLStreamException | IOException e) {
+            out.close();
+            throw e instanceof IOException ? (IOException) e : new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return the journal file that belongs to the given manifest file
+     */
+    public static File getJournalFile(File manifestFile) {
+        return new File(manifestFile.getParentFile(), manifestFile.getName() + JOURNAL_SUFFIX);
+    }
+
+    /**
+     * Reads a journal back as a manifest.  Entries that were only partly written are dropped.
+     *
+     * @param file the journal file
+     * @return the recovered manifest, or empty if the journal doesn't exist or can't be read
+     */
+    public static Optional<UninstallManifest> recover(File file) {
+        if (!file.exists()) {
+            return Optional.empty();
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            return Optional.of(new UninstallManifestStreamParser().parseJournal(in));
+        } catch (IOException | ManifestValidationException e) {
+            return Optional.empty();
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public void append(UninstallManifest.InstalledFile entry) throws IOException {
+        try {
+            output.start(1, "files");
+            output.file(2, entry);
+            output.end(1);
+        } catch (XMLStreamException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        flush();
+    }
+
+    public void append(UninstallManifest.InstalledDirectory entry) throws IOException {
+        try {
+            output.start(1, "directories");
+            output.directory(2, entry);
+            output.end(1);
+        } catch (XMLStreamException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        flush();
+    }
+
+    public void append(UninstallManifest.RegistryKey entry) throws IOException {
+        try {
+            output.start(1, "registry");
+            output.start(2, "createdKeys");
+            output.createdKey(3, entry);
+            output.end(2);
+            output.end(1);
+        } catch (XMLStreamException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        flush();
+    }
+
+    public void append(UninstallManifest.ModifiedRegistryValue entry) throws IOException {
+        try {
+            output.start(1, "registry");
+            output.start(2, "modifiedValues");
+            output.modifiedValue(3, entry);
+            output.end(2);
+            output.end(1);
+        } catch (XMLStreamException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        flush();
+    }
+
+    public void append(UninstallManifest.WindowsPathEntry entry) throws IOException {
+        try {
+            output.start(1, "pathModifications");
+            output.start(2, "windowsPaths");
+            output.windowsPath(3, entry);
+            output.end(2);
+            output.end(1);
+        } catch (XMLStreamException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        flush();
+    }
+
+    public void append(UninstallManifest.ShellProfileEntry entry) throws IOException {
+        try {
+            output.start(1, "pathModifications");
+            output.start(2, "shellProfiles");
+            output.shellProfile(3, entry);
+            output.end(2);
+            output.end(1);
+        } catch (XMLStreamException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        flush();
+    }
+
+    public void append(UninstallManifest.GitBashProfileEntry entry) throws IOException {
+        try {
+            output.start(1, "pathModifications");
+            output.start(2, "gitBashProfiles");
+            output.gitBashProfile(3, entry);
+            output.end(2);
+            output.end(1);
+        } catch (XMLStreamException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        flush();
+    }
+
+    public void append(UninstallManifest.McpServerEntry entry) throws IOException {
+        try {
+            output.start(1, "aiIntegrations");
+            output.start(2, "mcpServers");
+            output.mcpServer(3, entry);
+            output.end(2);
+            output.end(1);
+        } catch (XMLStreamException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        flush();
+    }
+
+    public void append(UninstallManifest.SkillEntry entry) throws IOException {
+        try {
+            output.start(1, "aiIntegrations");
+            output.start(2, "skills");
+            output.skill(3, entry);
+            output.end(2);
+            output.end(1);
+        } catch (XMLStreamException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        flush();
+    }
+
+    public void append(UninstallManifest.AgentEntry entry) throws IOException {
+        try {
+            output.start(1, "aiIntegrations");
+            output.start(2, "agents");
+            output.agent(3, entry);
+            output.end(2);
+            output.end(1);
+        } catch (XMLStreamException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        flush();
+    }
+
+    /**
+     * Closes the root element and the file.  The journal stays on disk until the complete
+     * manifest has been written.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            output.endDocument();
+            xml.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e.getMessage(), e);
+        } finally {
+            out.close();
+        }
+    }
+
+    private void flush() throws IOException {
+        try {
+            output.flush();
+        } catch (XMLStreamException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        out.flush();
+    }
+}
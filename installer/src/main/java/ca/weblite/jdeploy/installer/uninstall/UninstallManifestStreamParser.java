@@ -0,0 +1,405 @@
+package ca.weblite.jdeploy.installer.uninstall;
+
+import ca.weblite.jdeploy.installer.uninstall.model.UninstallManifest;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses uninstall manifest XML into an UninstallManifest using the StAX streaming API.
+ *
+ * Reads documents written by {@link UninstallManifestStreamWriter}, never holding more than one
+ * entry's worth of XML in memory.  When given a validator, the document is checked against the
+ * schema in the same pass.
+ */
+public class UninstallManifestStreamParser {
+
+    private static final String NAMESPACE = UninstallManifestStreamWriter.NAMESPACE;
+    private static final String ROOT = "uninstallManifest";
+
+    /**
+     * Maps each entry element to the element that contains it.
+     */
+    private static final Map<String, String> ENTRY_PARENTS = new HashMap<>();
+    static {
+        ENTRY_PARENTS.put("packageInfo", ROOT);
+        ENTRY_PARENTS.put("file", "files");
+        ENTRY_PARENTS.put("directory", "directories");
+        ENTRY_PARENTS.put("createdKey", "createdKeys");
+        ENTRY_PARENTS.put("modifiedValue", "modifiedValues");
+        ENTRY_PARENTS.put("windowsPath", "windowsPaths");
+        ENTRY_PARENTS.put("shellProfile", "shellProfiles");
+        ENTRY_PARENTS.put("gitBashProfile", "gitBashProfiles");
+        ENTRY_PARENTS.put("mcpServer", "mcpServers");
+        ENTRY_PARENTS.put("skill", "skills");
+        ENTRY_PARENTS.put("agent", "agents");
+    }
+
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+    /**
+     * Parses a manifest without schema validation.  Basic structural checks still apply.
+     *
+     * @param in the XML to parse
+     * @return the parsed manifest
+     * @throws ManifestValidationException if the XML is malformed or not an uninstall manifest
+     */
+    public UninstallManifest parse(InputStream in) throws ManifestValidationException {
+        return parse(in, null);
+    }
+
+    /**
+     * Parses a manifest, validating it against the schema while it is read.
+     *
+     * @param in the XML to parse
+     * @param validator the validator whose schema to apply, or null to skip schema validation
+     * @return the parsed manifest
+     * @throws ManifestValidationException if the XML is malformed or does not conform to the schema
+     */
+    public UninstallManifest parse(InputStream in, UninstallManifestValidator validator)
+            throws ManifestValidationException {
+        UninstallManifestValidator.StreamingValidation validation =
+                validator != null ? validator.newStreamingValidation() : null;
+        return read(in, validation, false);
+    }
+
+    /**
+     * Parses a journal written by {@link UninstallManifestJournal}.  Journals may repeat sections
+     * and may end abruptly if the installer was interrupted; every entry that was written completely
+     * is returned.
+     */
+    UninstallManifest parseJournal(InputStream in) throws ManifestValidationException {
+        return read(in, null, true);
+    }
+
+    /**
+     * Performs basic structural validation of a manifest: the root element and its version.
+     * Only the start of the document is read, so this is cheap enough to run on every manifest
+     * that is written without schema validation.
+     *
+     * @param in the XML to check
+     * @throws ManifestValidationException if the XML is malformed or not an uninstall manifest
+     */
+    void validateBasicStructure(InputStream in) throws ManifestValidationException {
+        XMLStreamReader reader = null;
+        try {
+            reader = INPUT_FACTORY.createXMLStreamReader(in);
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                    checkRootElement(reader);
+                    return;
+                }
+            }
+            throw new ManifestValidationException("Document has no root element");
+        } catch (XMLStreamException e) {
+            throw new ManifestValidationException("Malformed uninstall manifest: " + e.getMessage(), e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    // Nothing left to read
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that the reader is positioned on the manifest's root element.
+     *
+     * @return the manifest version
+     */
+    private static String checkRootElement(XMLStreamReader reader) throws ManifestValidationException {
+        if (!ROOT.equals(reader.getLocalName())) {
+            throw new ManifestValidationException(
+                "Expected root element '" + ROOT + "', got '" + reader.getLocalName() + "'"
+            );
+        }
+        String version = reader.getAttributeValue(null, "version");
+        if (version == null) {
+            throw new ManifestValidationException("Root element missing required 'version' attribute");
+        }
+        return version;
+    }
+
+    private UninstallManifest read(
+            InputStream in,
+            UninstallManifestValidator.StreamingValidation validation,
+            boolean journal
+    ) throws ManifestValidationException {
+        Handler handler = new Handler();
+        XMLStreamReader reader = null;
+        try {
+            reader = INPUT_FACTORY.createXMLStreamReader(in);
+            if (validation != null) {
+                validation.event(reader, reader.getEventType());
+            }
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (validation != null) {
+                    validation.event(reader, event);
+                }
+                handler.handle(reader, event);
+            }
+        } catch (XMLStreamException e) {
+            // A journal cut short by a crash ends in the middle of the document
+            if (!journal || handler.packageInfo == null) {
+                throw new ManifestValidationException("Malformed uninstall manifest: " + e.getMessage(), e);
+            }
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    // Nothing left to read
+                }
+            }
+        }
+        if (validation != null) {
+            validation.finish();
+        }
+        return handler.build();
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * Collects the manifest as the document is read.  Each entry element's children are gathered
+     * into a map of field values, and turned into a model object when the entry ends.
+     */
+    private static final class Handler {
+        private final Deque<String> elements = new ArrayDeque<>();
+        private final StringBuilder text = new StringBuilder();
+        private Map<String, String> fields;
+        private int entryDepth;
+
+        private String version;
+        private UninstallManifest.PackageInfo packageInfo;
+        private boolean hasRegistry;
+        private boolean hasPathModifications;
+        private boolean hasAiIntegrations;
+
+        private final List<UninstallManifest.InstalledFile> files = new ArrayList<>();
+        private final List<UninstallManifest.InstalledDirectory> directories = new ArrayList<>();
+        private final List<UninstallManifest.RegistryKey> createdKeys = new ArrayList<>();
+        private final List<UninstallManifest.ModifiedRegistryValue> modifiedValues = new ArrayList<>();
+        private final List<UninstallManifest.WindowsPathEntry> windowsPaths = new ArrayList<>();
+        private final List<UninstallManifest.ShellProfileEntry> shellProfiles = new ArrayList<>();
+        private final List<UninstallManifest.GitBashProfileEntry> gitBashProfiles = new ArrayList<>();
+        private final List<UninstallManifest.McpServerEntry> mcpServers = new ArrayList<>();
+        private final List<UninstallManifest.SkillEntry> skills = new ArrayList<>();
+        private final List<UninstallManifest.AgentEntry> agents = new ArrayList<>();
+
+        void handle(XMLStreamReader reader, int event) throws ManifestValidationException {
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT:
+                    startElement(reader);
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (fields != null && elements.size() == entryDepth + 1) {
+                        text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    endElement();
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void startElement(XMLStreamReader reader) throws ManifestValidationException {
+            String parent = elements.peek();
+            String name = NAMESPACE.equals(reader.getNamespaceURI()) ? reader.getLocalName() : "";
+            elements.push(name);
+            text.setLength(0);
+
+            if (parent == null) {
+                version = checkRootElement(reader);
+            } else if (fields == null && parent.equals(ENTRY_PARENTS.get(name))) {
+                fields = new HashMap<>();
+                entryDepth = elements.size();
+            } else if (elements.size() == 2) {
+                hasRegistry |= "registry".equals(name);
+                hasPathModifications |= "pathModifications".equals(name);
+                hasAiIntegrations |= "aiIntegrations".equals(name);
+            }
+        }
+
+        private void endElement() throws ManifestValidationException {
+            int depth = elements.size();
+            String name = elements.pop();
+            if (fields != null) {
+                if (depth == entryDepth + 1) {
+                    fields.put(name, text.toString());
+                } else if (depth == entryDepth) {
+                    try {
+                        addEntry(name, fields);
+                    } catch (RuntimeException e) {
+                        throw new ManifestValidationException("Invalid " + name + " entry: " + e.getMessage(), e);
+                    }
+                    fields = null;
+                }
+            }
+            text.setLength(0);
+        }
+
+        private void addEntry(String name, Map<String, String> fields) {
+            switch (name) {
+                case "packageInfo":
+                    packageInfo = UninstallManifest.PackageInfo.builder()
+                        .name(get(fields, "name"))
+                        .source(getOptional(fields, "source"))
+                        .version(get(fields, "version"))
+                        .fullyQualifiedName(get(fields, "fullyQualifiedName"))
+                        .architecture(get(fields, "architecture"))
+                        .installedAt(Instant.parse(get(fields, "installedAt")))
+                        .installerVersion(get(fields, "installerVersion"))
+                        .build();
+                    break;
+                case "file":
+                    files.add(UninstallManifest.InstalledFile.builder()
+                        .path(get(fields, "path"))
+                        .type(UninstallManifest.FileType.fromValue(get(fields, "type")))
+                        .description(getOptional(fields, "description"))
+                        .build());
+                    break;
+                case "directory":
+                    directories.add(UninstallManifest.InstalledDirectory.builder()
+                        .path(get(fields, "path"))
+                        .cleanup(UninstallManifest.CleanupStrategy.fromValue(get(fields, "cleanup")))
+                        .description(getOptional(fields, "description"))
+                        .build());
+                    break;
+                case "createdKey":
+                    createdKeys.add(UninstallManifest.RegistryKey.builder()
+                        .root(UninstallManifest.RegistryRoot.fromValue(get(fields, "root")))
+                        .path(get(fields, "path"))
+                        .description(getOptional(fields, "description"))
+                        .build());
+                    break;
+                case "modifiedValue":
+                    modifiedValues.add(UninstallManifest.ModifiedRegistryValue.builder()
+                        .root(UninstallManifest.RegistryRoot.fromValue(get(fields, "root")))
+                        .path(get(fields, "path"))
+                        .name(get(fields, "name"))
+                        .previousValue(getOptional(fields, "previousValue"))
+                        .previousType(UninstallManifest.RegistryValueType.fromValue(get(fields, "previousType")))
+                        .description(getOptional(fields, "description"))
+                        .build());
+                    break;
+                case "windowsPath":
+                    windowsPaths.add(UninstallManifest.WindowsPathEntry.builder()
+                        .addedEntry(get(fields, "addedEntry"))
+                        .description(getOptional(fields, "description"))
+                        .build());
+                    break;
+                case "shellProfile":
+                    shellProfiles.add(UninstallManifest.ShellProfileEntry.builder()
+                        .file(get(fields, "file"))
+                        .exportLine(get(fields, "exportLine"))
+                        .description(getOptional(fields, "description"))
+                        .build());
+                    break;
+                case "gitBashProfile":
+                    gitBashProfiles.add(UninstallManifest.GitBashProfileEntry.builder()
+                        .file(get(fields, "file"))
+                        .exportLine(get(fields, "exportLine"))
+                        .description(getOptional(fields, "description"))
+                        .build());
+                    break;
+                case "mcpServer":
+                    mcpServers.add(UninstallManifest.McpServerEntry.builder()
+                        .configFile(get(fields, "configFile"))
+                        .entryKey(get(fields, "entryKey"))
+                        .toolName(get(fields, "toolName"))
+                        .build());
+                    break;
+                case "skill":
+                    skills.add(UninstallManifest.SkillEntry.builder()
+                        .path(get(fields, "path"))
+                        .name(get(fields, "name"))
+                        .build());
+                    break;
+                case "agent":
+                    agents.add(UninstallManifest.AgentEntry.builder()
+                        .path(get(fields, "path"))
+                        .name(get(fields, "name"))
+                        .build());
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        UninstallManifest build() throws ManifestValidationException {
+            if (packageInfo == null) {
+                throw new ManifestValidationException("Manifest is missing the 'packageInfo' element");
+            }
+
+            UninstallManifest.RegistryInfo registry = null;
+            if (hasRegistry) {
+                registry = UninstallManifest.RegistryInfo.builder()
+                    .createdKeys(createdKeys)
+                    .modifiedValues(modifiedValues)
+                    .build();
+            }
+
+            UninstallManifest.PathModifications pathMods = null;
+            if (hasPathModifications) {
+                pathMods = UninstallManifest.PathModifications.builder()
+                    .windowsPaths(windowsPaths)
+                    .shellProfiles(shellProfiles)
+                    .gitBashProfiles(gitBashProfiles)
+                    .build();
+            }
+
+            UninstallManifest.AiIntegrations aiIntegrations = null;
+            if (hasAiIntegrations) {
+                aiIntegrations = UninstallManifest.AiIntegrations.builder()
+                    .mcpServers(mcpServers)
+                    .skills(skills)
+                    .agents(agents)
+                    .build();
+            }
+
+            return UninstallManifest.builder()
+                .version(version)
+                .packageInfo(packageInfo)
+                .files(files)
+                .directories(directories)
+                .registry(registry)
+                .pathModifications(pathMods)
+                .aiIntegrations(aiIntegrations)
+                .build();
+        }
+
+        private static String get(Map<String, String> fields, String name) {
+            String value = fields.get(name);
+            return value != null ? value : "";
+        }
+
+        private static String getOptional(Map<String, String> fields, String name) {
+            String value = fields.get(name);
+            return value == null || value.isEmpty() ? null : value;
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package ca.weblite.jdeploy.installer.uninstall;
+
+import ca.weblite.jdeploy.installer.uninstall.model.UninstallManifest;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Writes an UninstallManifest as XML using the StAX streaming API.
+ *
+ * The document is pretty-printed with two space indentation and written without building a DOM
+ * tree first, so memory use doesn't grow with the number of files in the manifest.
+ */
+public class UninstallManifestStreamWriter {
+    static final String NAMESPACE = "http://jdeploy.ca/uninstall-manifest/1.0";
+    static final String MANIFEST_VERSION = "1.0";
+
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    /**
+     * Writes the manifest to the given stream as UTF-8.  The stream is flushed but not closed.
+     *
+     * @param manifest the manifest to write
+     * @param out the stream to write to
+     * @throws XMLStreamException if writing fails
+     */
+    public void write(UninstallManifest manifest, OutputStream out) throws XMLStreamException {
+        XMLStreamWriter xml = createXmlStreamWriter(out);
+        try {
+            Output output = new Output(xml);
+            output.startDocument(manifest.getPackageInfo());
+
+            output.start(1, "files");
+            for (UninstallManifest.InstalledFile file : manifest.getFiles()) {
+                output.file(2, file);
+            }
+            output.end(1);
+
+            output.start(1, "directories");
+            for (UninstallManifest.InstalledDirectory directory : manifest.getDirectories()) {
+                output.directory(2, directory);
+            }
+            output.end(1);
+
+            if (manifest.getRegistry() != null) {
+                UninstallManifest.RegistryInfo registry = manifest.getRegistry();
+                output.start(1, "registry");
+                output.start(2, "createdKeys");
+                for (UninstallManifest.RegistryKey key : registry.getCreatedKeys()) {
+                    output.createdKey(3, key);
+                }
+                output.end(2);
+                output.start(2, "modifiedValues");
+                for (UninstallManifest.ModifiedRegistryValue value : registry.getModifiedValues()) {
+                    output.modifiedValue(3, value);
+                }
+                output.end(2);
+                output.end(1);
+            }
+
+            if (manifest.getPathModifications() != null) {
+                UninstallManifest.PathModifications pathMods = manifest.getPathModifications();
+                output.start(1, "pathModifications");
+                if (!pathMods.getWindowsPaths().isEmpty()) {
+                    output.start(2, "windowsPaths");
+                    for (UninstallManifest.WindowsPathEntry entry : pathMods.getWindowsPaths()) {
+                        output.windowsPath(3, entry);
+                    }
+                    output.end(2);
+                }
+                if (!pathMods.getShellProfiles().isEmpty()) {
+                    output.start(2, "shellProfiles");
+                    for (UninstallManifest.ShellProfileEntry entry : pathMods.getShellProfiles()) {
+                        output.shellProfile(3, entry);
+                    }
+                    output.end(2);
+                }
+                if (!pathMods.getGitBashProfiles().isEmpty()) {
+                    output.start(2, "gitBashProfiles");
+                    for (UninstallManifest.GitBashProfileEntry entry : pathMods.getGitBashProfiles()) {
+                        output.gitBashProfile(3, entry);
+                    }
+                    output.end(2);
+                }
+                output.end(1);
+            }
+
+            if (manifest.getAiIntegrations() != null) {
+                UninstallManifest.AiIntegrations ai = manifest.getAiIntegrations();
+                output.start(1, "aiIntegrations");
+                if (!ai.getMcpServers().isEmpty()) {
+                    output.start(2, "mcpServers");
+                    for (UninstallManifest.McpServerEntry entry : ai.getMcpServers()) {
+                        output.mcpServer(3, entry);
+                    }
+                    output.end(2);
+                }
+                if (!ai.getSkills().isEmpty()) {
+                    output.start(2, "skills");
+                    for (UninstallManifest.SkillEntry entry : ai.getSkills()) {
+                        output.skill(3, entry);
+                    }
+                    output.end(2);
+                }
+                if (!ai.getAgents().isEmpty()) {
+                    output.start(2, "agents");
+                    for (UninstallManifest.AgentEntry entry : ai.getAgents()) {
+                        output.agent(3, entry);
+                    }
+                    output.end(2);
+                }
+                output.end(1);
+            }
+
+            output.endDocument();
+        } finally {
+            xml.close();
+        }
+    }
+
+    /**
+     * Writes the manifest to a file.  The manifest is written to a temporary file next to the
+     * destination, validated against the schema if a validator is given (otherwise only its basic
+     * structure is checked), and then moved into place, so a failed
+     * write never leaves a partial manifest behind.  Any journal left for the destination is
+     * deleted once the manifest is in place.
+     *
+     * @param manifest the manifest to write
+     * @param destination the manifest file
+     * @param validator the validator to check the written XML against, or null to skip schema validation
+     * @throws IOException if the file can't be written
+     * @throws ManifestValidationException if the written XML fails validation
+     */
+    void writeFile(UninstallManifest manifest, File destination, UninstallManifestValidator validator)
+            throws IOException, ManifestValidationException {
+        File parentDir = destination.getParentFile();
+        if (parentDir != null && !parentDir.exists()) {
+            if (!parentDir.mkdirs()) {
+                throw new IOException("Failed to create manifest directory: " + parentDir.getAbsolutePath());
+            }
+        }
+
+        File tmpFile = new File(parentDir, destination.getName() + ".tmp");
+        boolean moved = false;
+        try {
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tmpFile))) {
+                write(manifest, out);
+            } catch (XMLStreamException e) {
+                throw new IOException("Failed to write manifest: " + e.getMessage(), e);
+            }
+
+            try (InputStream in = new BufferedInputStream(new FileInputStream(tmpFile))) {
+                if (validator != null) {
+                    new UninstallManifestStreamParser().parse(in, validator);
+                } else {
+                    // Basic structure validation still runs when schema validation is skipped
+                    new UninstallManifestStreamParser().validateBasicStructure(in);
+                }
+            }
+
+            try {
+                Files.move(tmpFile.toPath(), destination.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            moved = true;
+        } finally {
+            if (!moved) {
+                tmpFile.delete();
+            }
+        }
+
+        UninstallManifestJournal.getJournalFile(destination).delete();
+    }
+
+    /**
+     * Creates a writer that encodes to the stream as UTF-8.  The JDK's stream writer is much
+     * slower when handed an OutputStream directly, so it writes through a buffered Writer; flushing
+     * the XMLStreamWriter flushes the buffer through to the stream.
+     */
+    static XMLStreamWriter createXmlStreamWriter(OutputStream out) throws XMLStreamException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        return OUTPUT_FACTORY.createXMLStreamWriter(writer);
+    }
+
+    /**
+     * Writes indented manifest elements to an XMLStreamWriter.  Shared with
+     * {@link UninstallManifestJournal}, which writes the same entries one at a time.
+     */
+    static final class Output {
+        private final XMLStreamWriter xml;
+
+        Output(XMLStreamWriter xml) {
+            this.xml = xml;
+        }
+
+        void startDocument(UninstallManifest.PackageInfo packageInfo) throws XMLStreamException {
+            xml.writeStartDocument("UTF-8", "1.0");
+            xml.writeCharacters("\n");
+            xml.setDefaultNamespace(NAMESPACE);
+            xml.writeStartElement(NAMESPACE, "uninstallManifest");
+            xml.writeDefaultNamespace(NAMESPACE);
+            xml.writeAttribute("version", MANIFEST_VERSION);
+
+            start(1, "packageInfo");
+            text(2, "name", packageInfo.getName());
+            if (packageInfo.getSource() != null) {
+                text(2, "source", packageInfo.getSource());
+            }
+            text(2, "version", packageInfo.getVersion());
+            text(2, "fullyQualifiedName", packageInfo.getFullyQualifiedName());
+            text(2, "architecture", packageInfo.getArchitecture());
+            text(2, "installedAt", packageInfo.getInstalledAt().toString());
+            text(2, "installerVersion", packageInfo.getInstallerVersion());
+            end(1);
+        }
+
+        void endDocument() throws XMLStreamException {
+            xml.writeCharacters("\n");
+            xml.writeEndElement();
+            xml.writeCharacters("\n");
+            xml.writeEndDocument();
+            xml.flush();
+        }
+
+        void file(int depth, UninstallManifest.InstalledFile file) throws XMLStreamException {
+            start(depth, "file");
+            text(depth + 1, "path", file.getPath());
+            text(depth + 1, "type", file.getType().getValue());
+            optionalText(depth + 1, "description", file.getDescription());
+            end(depth);
+        }
+
+        void directory(int depth, UninstallManifest.InstalledDirectory directory) throws XMLStreamException {
+            start(depth, "directory");
+            text(depth + 1, "path", directory.getPath());
+            text(depth + 1, "cleanup", directory.getCleanup().getValue());
+            optionalText(depth + 1, "description", directory.getDescription());
+            end(depth);
+        }
+
+        void createdKey(int depth, UninstallManifest.RegistryKey key) throws XMLStreamException {
+            start(depth, "createdKey");
+            text(depth + 1, "root", key.getRoot().getValue());
+            text(depth + 1, "path", key.getPath());
+            optionalText(depth + 1, "description", key.getDescription());
+            end(depth);
+        }
+
+        void modifiedValue(int depth, UninstallManifest.ModifiedRegistryValue value) throws XMLStreamException {
+            start(depth, "modifiedValue");
+            text(depth + 1, "root", value.getRoot().getValue());
+            text(depth + 1, "path", value.getPath());
+            text(depth + 1, "name", value.getName());
+            optionalText(depth + 1, "previousValue", value.getPreviousValue());
+            text(depth + 1, "previousType", value.getPreviousType().getValue());
+            optionalText(depth + 1, "description", value.getDescription());
+            end(depth);
+        }
+
+        void windowsPath(int depth, UninstallManifest.WindowsPathEntry entry) throws XMLStreamException {
+            start(depth, "windowsPath");
+            text(depth + 1, "addedEntry", entry.getAddedEntry());
+            optionalText(depth + 1, "description", entry.getDescription());
+            end(depth);
+        }
+
+        void shellProfile(int depth, UninstallManifest.ShellProfileEntry entry) throws XMLStreamException {
+            start(depth, "shellProfile");
+            text(depth + 1, "file", entry.getFile());
+            text(depth + 1, "exportLine", entry.getExportLine());
+            optionalText(depth + 1, "description", entry.getDescription());
+            end(depth);
+        }
+
+        void gitBashProfile(int depth, UninstallManifest.GitBashProfileEntry entry) throws XMLStreamException {
+            start(depth, "gitBashProfile");
+            text(depth + 1, "file", entry.getFile());
+            text(depth + 1, "exportLine", entry.getExportLine());
+            optionalText(depth + 1, "description", entry.getDescription());
+            end(depth);
+        }
+
+        void mcpServer(int depth, UninstallManifest.McpServerEntry entry) throws XMLStreamException {
+            start(depth, "mcpServer");
+            text(depth + 1, "configFile", entry.getConfigFile());
+            text(depth + 1, "entryKey", entry.getEntryKey());
+            text(depth + 1, "toolName", entry.getToolName());
+            end(depth);
+        }
+
+        void skill(int depth, UninstallManifest.SkillEntry entry) throws XMLStreamException {
+            start(depth, "skill");
+            text(depth + 1, "path", entry.getPath());
+            text(depth + 1, "name", entry.getName());
+            end(depth);
+        }
+
+        void agent(int depth, UninstallManifest.AgentEntry entry) throws XMLStreamException {
+            start(depth, "agent");
+            text(depth + 1, "path", entry.getPath());
+            text(depth + 1, "name", entry.getName());
+            end(depth);
+        }
+
+        void start(int depth, String name) throws XMLStreamException {
+            indent(depth);
+            xml.writeStartElement(NAMESPACE, name);
+        }
+
+        void end(int depth) throws XMLStreamException {
+            indent(depth);
+            xml.writeEndElement();
+        }
+
+        void flush() throws XMLStreamException {
+            xml.flush();
+        }
+
+        private void text(int depth, String name, String value) throws XMLStreamException {
+            indent(depth);
+            xml.writeStartElement(NAMESPACE, name);
+            if (value != null) {
+                xml.writeCharacters(value);
+            }
+            xml.writeEndElement();
+        }
+
+        private void optionalText(int depth, String name, String value) throws XMLStreamException {
+            if (value != null) {
+                text(depth, name, value);
+            }
+        }
+
+        private void indent(int depth) throws XMLStreamException {
+            StringBuilder sb = new StringBuilder(1 + depth * 2).append('\n');
+            for (int i = 0; i < depth; i++) {
+                sb.append("  ");
+            }
+            xml.writeCharacters(sb.toString());
+        }
+    }
+}
@@ -2,14 +2,20 @@ package ca.weblite.jdeploy.installer.uninstall;
 
 import org.w3c.dom.Document;
 import org.xml.sax.ErrorHandler;
+import org.xml.sax.Locator;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.AttributesImpl;
 
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.Source;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
 import javax.xml.validation.Validator;
+import javax.xml.validation.ValidatorHandler;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -18,6 +24,9 @@ import java.util.List;
 /**
  * Validates uninstall manifest XML documents against the uninstall-manifest XSD schema.
  * Uses javax.xml.validation.SchemaFactory to load and apply the schema from classpath.
+ *
+ * DOM documents are validated with {@link #validate(Document)}.  Documents read with StAX are
+ * validated while they are parsed, by passing each event to a {@link StreamingValidation}.
  */
 public class UninstallManifestValidator {
     private static final String SCHEMA_RESOURCE = "/ca/weblite/jdeploy/installer/schemas/uninstall-manifest.xsd";
@@ -51,6 +60,16 @@ public class UninstallManifestValidator {
         this.schemaAvailable = available;
     }
 
+    /**
+     * Constructs an UninstallManifestValidator that validates against the given schema.
+     *
+     * @param schema the schema to validate against
+     */
+    UninstallManifestValidator(Schema schema) {
+        this.schema = schema;
+        this.schemaAvailable = schema != null;
+    }
+
     /**
      * Validates an XML document against the uninstall manifest schema.
      * Performs basic structural validation even if XSD schema is not available.
@@ -103,60 +122,13 @@ public class UninstallManifestValidator {
         try {
             Validator validator = schema.newValidator();
             
-            // Collect validation errors
-            List<String> errors = new ArrayList<>();
-            List<String> warnings = new ArrayList<>();
-            
-            validator.setErrorHandler(new ErrorHandler() {
-                @Override
-                public void warning(SAXParseException exception) {
-                    warnings.add(formatException(exception));
-                }
+            ErrorCollector errors = new ErrorCollector();
+            validator.setErrorHandler(errors);
 
-                @Override
-                public void error(SAXParseException exception) {
-                    errors.add(formatException(exception));
-                }
-
-                @Override
-                public void fatalError(SAXParseException exception) throws SAXException {
-                    errors.add(formatException(exception));
-                    throw exception;
-                }
-                
-                private String formatException(SAXParseException e) {
-                    return String.format("Line %d, Column %d: %s", 
-                        e.getLineNumber(), e.getColumnNumber(), e.getMessage());
-                }
-            });
-            
             Source source = new DOMSource(document);
             validator.validate(source);
-            
-            // If there were errors, throw exception with detailed messages
-            if (!errors.isEmpty()) {
-                StringBuilder detailedMessage = new StringBuilder();
-                detailedMessage.append("Schema validation failed with ").append(errors.size()).append(" error(s):\n");
-                for (int i = 0; i < errors.size(); i++) {
-                    detailedMessage.append(i + 1).append(". ").append(errors.get(i)).append("\n");
-                }
-                
-                if (!warnings.isEmpty()) {
-                    detailedMessage.append("\nWarnings (").append(warnings.size()).append("):\n");
-                    for (int i = 0; i < warnings.size(); i++) {
-                        detailedMessage.append(i + 1).append(". ").append(warnings.get(i)).append("\n");
-                    }
-                }
-                
-                String errorMessage = "Manifest XML does not conform to schema:\n" + detailedMessage.toString();
-                System.err.println(errorMessage);
-                
-                throw new ManifestValidationException(
-                    "Manifest XML does not conform to schema",
-                    detailedMessage.toString()
-                );
-            }
-            
+
+            errors.throwIfInvalid();
         } catch (ManifestValidationException e) {
             throw e;
         } catch (SAXException e) {
@@ -170,4 +142,183 @@ public class UninstallManifestValidator {
             throw new ManifestValidationException("IO error during validation: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Starts validating a document that is being read with StAX.
+     *
+     * @return a validation to pass each parser event to, or null if the schema isn't available
+     */
+    StreamingValidation newStreamingValidation() {
+        if (!schemaAvailable || schema == null) {
+            return null;
+        }
+        return new StreamingValidation(schema.newValidatorHandler());
+    }
+
+    /**
+     * Validates a document against the schema one StAX event at a time, so the document is
+     * validated in the same pass that parses it.
+     */
+    static final class StreamingValidation {
+        private final ValidatorHandler handler;
+        private final ErrorCollector errors = new ErrorCollector();
+
+        private StreamingValidation(ValidatorHandler handler) {
+            this.handler = handler;
+            handler.setErrorHandler(errors);
+        }
+
+        /**
+         * Passes the event the reader is currently positioned at to the validator.
+         */
+        void event(XMLStreamReader reader, int eventType) throws ManifestValidationException {
+            try {
+                switch (eventType) {
+                    case XMLStreamConstants.START_DOCUMENT:
+                        handler.setDocumentLocator(new ReaderLocator(reader));
+                        handler.startDocument();
+                        break;
+                    case XMLStreamConstants.START_ELEMENT:
+                        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                            handler.startPrefixMapping(nullToEmpty(reader.getNamespacePrefix(i)),
+                                    nullToEmpty(reader.getNamespaceURI(i)));
+                        }
+                        AttributesImpl attributes = new AttributesImpl();
+                        for (int i = 0; i < reader.getAttributeCount(); i++) {
+                            attributes.addAttribute(
+                                    nullToEmpty(reader.getAttributeNamespace(i)),
+                                    reader.getAttributeLocalName(i),
+                                    qName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)),
+                                    "CDATA",
+                                    reader.getAttributeValue(i));
+                        }
+                        handler.startElement(nullToEmpty(reader.getNamespaceURI()), reader.getLocalName(),
+                                qName(reader.getPrefix(), reader.getLocalName()), attributes);
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        handler.characters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        handler.endElement(nullToEmpty(reader.getNamespaceURI()), reader.getLocalName(),
+                                qName(reader.getPrefix(), reader.getLocalName()));
+                        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                            handler.endPrefixMapping(nullToEmpty(reader.getNamespacePrefix(i)));
+                        }
+                        break;
+                    case XMLStreamConstants.END_DOCUMENT:
+                        handler.endDocument();
+                        break;
+                    default:
+                        break;
+                }
+            } catch (SAXException e) {
+                throw new ManifestValidationException("XML parsing error during validation: " + e.getMessage(), e);
+            }
+        }
+
+        /**
+         * Reports the errors found in the document, once it has been read completely.
+         */
+        void finish() throws ManifestValidationException {
+            errors.throwIfInvalid();
+        }
+
+        private static String qName(String prefix, String localName) {
+            return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+        }
+
+        private static String nullToEmpty(String s) {
+            return s == null ? "" : s;
+        }
+    }
+
+    private static final class ReaderLocator implements Locator {
+        private final XMLStreamReader reader;
+
+        private ReaderLocator(XMLStreamReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public String getPublicId() {
+            return reader.getLocation().getPublicId();
+        }
+
+        @Override
+        public String getSystemId() {
+            return reader.getLocation().getSystemId();
+        }
+
+        @Override
+        public int getLineNumber() {
+            Location location = reader.getLocation();
+            return location == null ? -1 : location.getLineNumber();
+        }
+
+        @Override
+        public int getColumnNumber() {
+            Location location = reader.getLocation();
+            return location == null ? -1 : location.getColumnNumber();
+        }
+    }
+
+    /**
+     * Collects schema errors and warnings, and reports them all at once.
+     */
+    private static final class ErrorCollector implements ErrorHandler {
+        private final List<String> errors = new ArrayList<>();
+        private final List<String> warnings = new ArrayList<>();
+
+        @Override
+        public void warning(SAXParseException exception) {
+            warnings.add(formatException(exception));
+        }
+
+        @Override
+        public void error(SAXParseException exception) {
+            errors.add(formatException(exception));
+        }
+
+        @Override
+        public void fatalError(SAXParseException exception) throws SAXException {
+            errors.add(formatException(exception));
+            throw exception;
+        }
+
+        private String formatException(SAXParseException e) {
+            return String.format("Line %d, Column %d: %s",
+                e.getLineNumber(), e.getColumnNumber(), e.getMessage());
+        }
+
+        /**
+         * If there were errors, throws an exception with detailed messages.
+         */
+        void throwIfInvalid() throws ManifestValidationException {
+            if (errors.isEmpty()) {
+                return;
+            }
+            StringBuilder detailedMessage = new StringBuilder();
+            detailedMessage.append("Schema validation failed with ").append(errors.size()).append(" error(s):\n");
+            for (int i = 0; i < errors.size(); i++) {
+                detailedMessage.append(i + 1).append(". ").append(errors.get(i)).append("\n");
+            }
+
+            if (!warnings.isEmpty()) {
+                detailedMessage.append("\nWarnings (").append(warnings.size()).append("):\n");
+                for (int i = 0; i < warnings.size(); i++) {
+                    detailedMessage.append(i + 1).append(". ").append(warnings.get(i)).append("\n");
+                }
+            }
+
+            String errorMessage = "Manifest XML does not conform to schema:\n" + detailedMessage.toString();
+            System.err.println(errorMessage);
+
+            throw new ManifestValidationException(
+                "Manifest XML does not conform to schema",
+                detailedMessage.toString()
+            );
+        }
+    }
 }
@@ -3,15 +3,9 @@ package ca.weblite.jdeploy.installer.uninstall;
 import ca.weblite.jdeploy.installer.uninstall.model.UninstallManifest;
 import ca.weblite.jdeploy.installer.util.ArchitectureUtil;
 import ca.weblite.jdeploy.installer.util.CliCommandBinDirResolver;
-import org.w3c.dom.Document;
 
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
 import java.io.File;
 import java.io.IOException;
 
@@ -19,9 +13,9 @@ import java.io.IOException;
  * High-level coordinator for writing UninstallManifest objects to disk.
  * 
  * Orchestrates:
- * 1. XML generation via UninstallManifestXmlGenerator
- * 2. Validation via UninstallManifestValidator
- * 3. Disk writing using javax.xml.transform.Transformer
+ * 1. Streaming XML output via UninstallManifestStreamWriter
+ * 2. Validation via UninstallManifestValidator, in a single streaming pass over the written file
+ * 3. Atomically moving the finished file into place
  * 
  * Manifests are stored at: ~/.jdeploy/manifests/{arch}/{fqpn}/uninstall-manifest.xml
  * 
@@ -34,15 +28,15 @@ public class UninstallManifestWriter {
     private static final String JDEPLOY_HOME = ".jdeploy";
     private static final String MANIFEST_FILENAME = "uninstall-manifest.xml";
 
-    private final UninstallManifestXmlGenerator xmlGenerator;
+    private final UninstallManifestStreamWriter streamWriter = new UninstallManifestStreamWriter();
     private final UninstallManifestValidator validator;
     private final boolean skipSchemaValidation;
 
     /**
-     * Constructs an UninstallManifestWriter with default generator and validator.
+     * Constructs an UninstallManifestWriter with the default validator.
      */
     public UninstallManifestWriter() {
-        this(new UninstallManifestXmlGenerator(), new UninstallManifestValidator(), false);
+        this(new UninstallManifestValidator(), false);
     }
 
     /**
@@ -52,32 +46,26 @@ public class UninstallManifestWriter {
      * @param skipSchemaValidation if true, skip XSD schema validation (basic structure validation still runs)
      */
     public UninstallManifestWriter(boolean skipSchemaValidation) {
-        this(new UninstallManifestXmlGenerator(), new UninstallManifestValidator(), skipSchemaValidation);
+        this(new UninstallManifestValidator(), skipSchemaValidation);
     }
 
     /**
-     * Constructs an UninstallManifestWriter with provided generator and validator.
+     * Constructs an UninstallManifestWriter with provided validator.
      * Useful for testing with mocks.
      *
-     * @param xmlGenerator the XML generator to use
      * @param validator the validator to use
      */
-    public UninstallManifestWriter(UninstallManifestXmlGenerator xmlGenerator, 
-                                   UninstallManifestValidator validator) {
-        this(xmlGenerator, validator, false);
+    public UninstallManifestWriter(UninstallManifestValidator validator) {
+        this(validator, false);
     }
 
     /**
      * Constructs an UninstallManifestWriter with all parameters.
      *
-     * @param xmlGenerator the XML generator to use
      * @param validator the validator to use
-     * @param skipSchemaValidation if true, skip XSD schema validation
+     * @param skipSchemaValidation if true, skip XSD schema validation (basic structure validation still runs)
      */
-    public UninstallManifestWriter(UninstallManifestXmlGenerator xmlGenerator, 
-                                   UninstallManifestValidator validator,
-                                   boolean skipSchemaValidation) {
-        this.xmlGenerator = xmlGenerator;
+    public UninstallManifestWriter(UninstallManifestValidator validator, boolean skipSchemaValidation) {
         this.validator = validator;
         this.skipSchemaValidation = skipSchemaValidation;
     }
@@ -99,15 +87,16 @@ public class UninstallManifestWriter {
      */
     public File write(UninstallManifest manifest) throws IOException, ManifestValidationException, 
                                                          TransformerException, ParserConfigurationException {
-        File destination = computeDefaultDestinationFile(manifest.getPackageInfo());
+        UninstallManifest.PackageInfo packageInfo = manifest.getPackageInfo();
+        File destination = computeDefaultDestinationFile(packageInfo.getName(), packageInfo.getSource());
         return write(manifest, destination);
     }
 
     /**
      * Writes an UninstallManifest to a specified destination file.
      * 
-     * Creates parent directories if they don't exist, generates XML, validates it,
-     * then writes to disk with proper formatting.
+     * Creates parent directories if they don't exist, streams the XML to a temporary file,
+     * validates it, then moves it into place.
      *
      * @param manifest the UninstallManifest to write
      * @param destination the File where the manifest should be written
@@ -121,110 +110,21 @@ public class UninstallManifestWriter {
                                                                            ManifestValidationException, 
                                                                            TransformerException,
                                                                            ParserConfigurationException {
-        // Create parent directories if they don't exist
-        File parentDir = destination.getParentFile();
-        if (parentDir != null && !parentDir.exists()) {
-            if (!parentDir.mkdirs()) {
-                throw new IOException("Failed to create manifest directory: " + parentDir.getAbsolutePath());
-            }
-        }
-
-        // Generate XML from manifest
-        Document document = xmlGenerator.generate(manifest);
-
-        // Validate the generated XML (basic structure validation always runs)
-        if (!skipSchemaValidation) {
-            validator.validate(document);
-        } else {
-            // Still perform basic structural validation even when skipping schema validation
-            validateBasicStructure(document);
-        }
-
-        // Write to disk using Transformer
-        writeDocumentToFile(document, destination);
+        streamWriter.writeFile(manifest, destination, skipSchemaValidation ? null : validator);
 
         return destination;
     }
 
     /**
-     * Writes a DOM Document to a file with pretty-printing.
-     *
-     * @param document the XML Document to write
-     * @param file the File to write to
-     * @throws TransformerException if XML transformation fails
-     * @throws IOException if file writing fails
-     */
-    private void writeDocumentToFile(Document document, File file) throws TransformerException, IOException {
-        TransformerFactory transformerFactory = TransformerFactory.newInstance();
-        Transformer transformer = transformerFactory.newTransformer();
-        
-        // Configure for pretty-printing
-        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-        transformer.setOutputProperty(OutputKeys.METHOD, "xml");
-        transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-        transformer.setOutputProperty(OutputKeys.VERSION, "1.0");
-        transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-
-        DOMSource source = new DOMSource(document);
-        StreamResult result = new StreamResult(file);
-
-        transformer.transform(source, result);
-    }
-
-    /**
-     * Converts a Document to a pretty-printed string for debugging.
-     *
-     * @param document the XML Document to convert
-     * @return the XML as a string
-     * @throws TransformerException if transformation fails
-     */
-    private String documentToString(Document document) throws TransformerException {
-        TransformerFactory transformerFactory = TransformerFactory.newInstance();
-        Transformer transformer = transformerFactory.newTransformer();
-        
-        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-        transformer.setOutputProperty(OutputKeys.METHOD, "xml");
-        transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-        transformer.setOutputProperty(OutputKeys.VERSION, "1.0");
-        transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-
-        DOMSource source = new DOMSource(document);
-        javax.xml.transform.stream.StreamResult result = new javax.xml.transform.stream.StreamResult(new java.io.StringWriter());
-        transformer.transform(source, result);
-        
-        return result.getWriter().toString();
-    }
-
-    /**
-     * Performs basic structural validation of the manifest document.
-     * This runs even when schema validation is skipped.
+     * Gets the journal file that records entries while a package is being installed.
+     * It lives next to the default manifest file and is deleted once the manifest is written.
      *
-     * @param document the XML Document to validate
-     * @throws ManifestValidationException if basic structure is invalid
+     * @param packageName the package name
+     * @param source the package source (null for NPM packages)
+     * @return the journal file for the package
      */
-    private void validateBasicStructure(Document document) throws ManifestValidationException {
-        if (document == null) {
-            throw new ManifestValidationException("Document cannot be null");
-        }
-        
-        if (document.getDocumentElement() == null) {
-            throw new ManifestValidationException("Document has no root element");
-        }
-        
-        String rootName = document.getDocumentElement().getLocalName();
-        if (rootName == null) {
-            rootName = document.getDocumentElement().getNodeName();
-        }
-        
-        if (!"uninstallManifest".equals(rootName)) {
-            throw new ManifestValidationException(
-                "Expected root element 'uninstallManifest', got '" + rootName + "'"
-            );
-        }
-        
-        if (!document.getDocumentElement().hasAttribute("version")) {
-            throw new ManifestValidationException("Root element missing required 'version' attribute");
-        }
+    public File getJournalFile(String packageName, String source) {
+        return UninstallManifestJournal.getJournalFile(computeDefaultDestinationFile(packageName, source));
     }
 
     /**
@@ -232,15 +132,13 @@ public class UninstallManifestWriter {
      * 
      * Path: ~/.jdeploy/manifests/{arch}/{fqpn}/uninstall-manifest.xml
      *
-     * @param packageInfo the package info containing name and source
+     * @param packageName the package name
+     * @param source the package source (null for NPM packages)
      * @return the File path where the manifest should be written
      */
-    private File computeDefaultDestinationFile(UninstallManifest.PackageInfo packageInfo) {
+    private File computeDefaultDestinationFile(String packageName, String source) {
         String arch = ArchitectureUtil.getArchitecture();
-        String fqpn = CliCommandBinDirResolver.computeFullyQualifiedPackageName(
-            packageInfo.getName(), 
-            packageInfo.getSource()
-        );
+        String fqpn = CliCommandBinDirResolver.computeFullyQualifiedPackageName(packageName, source);
 
         File jdeployHome = new File(System.getProperty("user.home"), JDEPLOY_HOME);
         File manifestsDir = new File(jdeployHome, MANIFEST_DIR_NAME);
@@ -0,0 +1,134 @@
+package ca.weblite.jdeploy.installer.uninstall;
+
+import ca.weblite.jdeploy.installer.uninstall.model.UninstallManifest.InstalledDirectory;
+import ca.weblite.jdeploy.installer.uninstall.model.UninstallManifest.InstalledFile;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Orders the files and directories of an uninstall manifest into batches that can be deleted
+ * independently of each other.
+ *
+ * Files are grouped by parent directory, keeping the order in which they are listed in the
+ * manifest.  Directories are grouped into subtrees: a directory that lies inside another listed
+ * directory belongs to the same subtree and is processed before it, so that an enclosing
+ * {@link ca.weblite.jdeploy.installer.uninstall.model.UninstallManifest.CleanupStrategy#IF_EMPTY}
+ * directory sees its nested directories already removed.  Different batches never touch the same
+ * part of the filesystem, so they can run in parallel.
+ */
+final class UninstallPlan {
+
+    private final List<List<InstalledFile>> fileBatches;
+
+    private final List<List<InstalledDirectory>> directoryBatches;
+
+    private UninstallPlan(List<List<InstalledFile>> fileBatches, List<List<InstalledDirectory>> directoryBatches) {
+        this.fileBatches = fileBatches;
+        this.directoryBatches = directoryBatches;
+    }
+
+    static UninstallPlan create(List<InstalledFile> files, List<InstalledDirectory> directories) {
+        return new UninstallPlan(planFiles(files), planDirectories(directories));
+    }
+
+    /**
+     * @return the manifest files grouped by parent directory, each group in manifest order
+     */
+    List<List<InstalledFile>> getFileBatches() {
+        return fileBatches;
+    }
+
+    /**
+     * @return the manifest directories grouped by subtree, each group ordered so that nested
+     *         directories come before the directories that contain them
+     */
+    List<List<InstalledDirectory>> getDirectoryBatches() {
+        return directoryBatches;
+    }
+
+    private static List<List<InstalledFile>> planFiles(List<InstalledFile> files) {
+        if (files == null || files.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Path, List<InstalledFile>> byParent = new LinkedHashMap<>();
+        for (InstalledFile file : files) {
+            Path parent = normalize(file.getPath()).getParent();
+            byParent.computeIfAbsent(parent, k -> new ArrayList<>()).add(file);
+        }
+        return Collections.unmodifiableList(new ArrayList<>(byParent.values()));
+    }
+
+    private static List<List<InstalledDirectory>> planDirectories(List<InstalledDirectory> directories) {
+        if (directories == null || directories.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // The first entry for a path wins, as it would when processing the manifest in order
+        Map<Path, Node> nodes = new LinkedHashMap<>();
+        for (InstalledDirectory directory : directories) {
+            Path path = normalize(directory.getPath());
+            if (!nodes.containsKey(path)) {
+                nodes.put(path, new Node(directory, nodes.size()));
+            }
+        }
+
+        // Attach each directory to its nearest listed ancestor.  Visiting shallow paths first
+        // guarantees that ancestors are in place before their descendants.
+        List<Map.Entry<Path, Node>> byDepth = new ArrayList<>(nodes.entrySet());
+        byDepth.sort(Comparator.comparingInt(e -> e.getKey().getNameCount()));
+        List<Node> roots = new ArrayList<>();
+        for (Map.Entry<Path, Node> entry : byDepth) {
+            Node parent = null;
+            for (Path ancestor = entry.getKey().getParent(); ancestor != null; ancestor = ancestor.getParent()) {
+                parent = nodes.get(ancestor);
+                if (parent != null) {
+                    break;
+                }
+            }
+            if (parent == null) {
+                roots.add(entry.getValue());
+            } else {
+                parent.children.add(entry.getValue());
+            }
+        }
+        roots.sort(Comparator.comparingInt(node -> node.index));
+
+        List<List<InstalledDirectory>> out = new ArrayList<>();
+        for (Node root : roots) {
+            List<InstalledDirectory> batch = new ArrayList<>();
+            addDepthFirst(root, batch);
+            out.add(Collections.unmodifiableList(batch));
+        }
+        return Collections.unmodifiableList(out);
+    }
+
+    private static void addDepthFirst(Node node, List<InstalledDirectory> out) {
+        node.children.sort(Comparator.comparingInt(child -> child.index));
+        for (Node child : node.children) {
+            addDepthFirst(child, out);
+        }
+        out.add(node.directory);
+    }
+
+    private static Path normalize(String path) {
+        return Paths.get(path).toAbsolutePath().normalize();
+    }
+
+    private static final class Node {
+        private final InstalledDirectory directory;
+        private final int index;
+        private final List<Node> children = new ArrayList<>();
+
+        private Node(InstalledDirectory directory, int index) {
+            this.directory = directory;
+            this.index = index;
+        }
+    }
+}
@@ -13,6 +13,7 @@ import ca.weblite.jdeploy.installer.uninstall.model.UninstallManifest.ShellProfi
 import ca.weblite.jdeploy.installer.uninstall.model.UninstallManifest.GitBashProfileEntry;
 import ca.weblite.jdeploy.installer.uninstall.model.UninstallManifest.WindowsPathEntry;
 import ca.weblite.jdeploy.installer.util.CliCommandBinDirResolver;
+import ca.weblite.jdeploy.installer.util.ContentStore;
 import ca.weblite.jdeploy.installer.util.PackagePathResolver;
 import ca.weblite.jdeploy.installer.util.WindowsAppDirResolver;
 import ca.weblite.jdeploy.installer.win.InstallWindowsRegistry;
@@ -28,8 +29,14 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 /**
@@ -45,23 +52,35 @@ import java.util.logging.Logger;
  *
  * If no manifest exists, logs a warning and continues with package directory cleanup.
  *
+ * Files and directories are first arranged into an {@link UninstallPlan}.  Batches that touch
+ * independent parts of the filesystem are deleted in parallel, and all PATH entries in the same
+ * shell profile are removed with a single rewrite of that profile.
+ *
  * Idempotent and fault-tolerant: skips already-deleted items with logging,
  * continues on individual failures, and aggregates all errors for reporting.
  */
 @Singleton
 public class UninstallService {
     private static final Logger LOGGER = Logger.getLogger(UninstallService.class.getName());
+
+    private static final int PARALLELISM = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
     
     private final FileUninstallManifestRepository manifestRepository;
     private final RegistryOperations registryOperations;
+    private final ContentStore contentStore;
 
+    /**
+     * @param contentStore the shared content store to garbage-collect after uninstalling, or null
+     */
     @Inject
     public UninstallService(
             FileUninstallManifestRepository manifestRepository,
-            RegistryOperations registryOperations
+            RegistryOperations registryOperations,
+            ContentStore contentStore
     ) {
         this.manifestRepository = manifestRepository;
         this.registryOperations = registryOperations;
+        this.contentStore = contentStore;
     }
 
     /**
@@ -94,11 +113,13 @@ public class UninstallService {
             if (manifestOpt.isPresent()) {
                 UninstallManifest manifest = manifestOpt.get();
 
+                UninstallPlan plan = UninstallPlan.create(manifest.getFiles(), manifest.getDirectories());
+
                 // Phase 1: Delete files
-                deleteInstalledFiles(manifest.getFiles(), result);
+                deleteInstalledFiles(plan.getFileBatches(), result);
 
                 // Phase 2: Clean up directories
-                cleanupDirectories(manifest.getDirectories(), result);
+                cleanupDirectories(plan.getDirectoryBatches(), result);
 
                 // Phase 3: Clean up registry (Windows only)
                 cleanupRegistry(manifest.getRegistry(), result);
@@ -121,6 +142,9 @@ public class UninstallService {
                 LOGGER.info("Skipping manifest deletion due to prior errors - manifest preserved for retry");
             }
 
+            // Phase 7: Release content store blobs no longer used by any installed app
+            collectContentStoreGarbage();
+
         } catch (Exception e) {
             LOGGER.severe("Unexpected error during uninstall: " + e.getMessage());
             result.addError("Unexpected error during uninstall: " + e.getMessage());
@@ -139,11 +163,34 @@ public class UninstallService {
     }
 
     /**
-     * Phase 1: Delete installed files in the order they are listed.
+     * Phase 7: Delete content store blobs that no remaining helper or context directory links to.
+     * Failures are logged but never fail the uninstall, since the blobs only cost disk space.
+     */
+    private void collectContentStoreGarbage() {
+        if (contentStore == null) {
+            return;
+        }
+        try {
+            int deleted = contentStore.collectGarbage();
+            if (deleted > 0) {
+                LOGGER.info("Deleted " + deleted + " unused content store blob(s)");
+            }
+        } catch (IOException e) {
+            LOGGER.warning("Failed to clean up content store: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Phase 1: Delete installed files.  Each batch holds the files of one directory, in the order
+     * they are listed; batches are deleted in parallel.
      * Skips non-existent files with logging (idempotent).
      */
-    private void deleteInstalledFiles(List<InstalledFile> files, UninstallResult result) {
-        deleteFiles(files, result);
+    private void deleteInstalledFiles(List<List<InstalledFile>> fileBatches, UninstallResult result) {
+        List<Runnable> tasks = new ArrayList<>();
+        for (List<InstalledFile> batch : fileBatches) {
+            tasks.add(() -> deleteFiles(batch, result));
+        }
+        runInParallel(tasks, result);
     }
 
     /**
@@ -179,14 +226,23 @@ public class UninstallService {
     }
 
     /**
-     * Phase 2: Clean up directories according to their cleanup strategy.
+     * Phase 2: Clean up directories according to their cleanup strategy.  Each batch is a subtree
+     * of nested directories, ordered deepest first; batches are cleaned up in parallel.
      * 
      * Strategies:
      * - ALWAYS: delete directory and all contents recursively
      * - IF_EMPTY: delete only if empty after file removal
      * - CONTENTS_ONLY: delete contents but keep the directory itself
      */
-    private void cleanupDirectories(List<InstalledDirectory> directories, UninstallResult result) {
+    private void cleanupDirectories(List<List<InstalledDirectory>> directoryBatches, UninstallResult result) {
+        List<Runnable> tasks = new ArrayList<>();
+        for (List<InstalledDirectory> batch : directoryBatches) {
+            tasks.add(() -> cleanupDirectoryBatch(batch, result));
+        }
+        runInParallel(tasks, result);
+    }
+
+    private void cleanupDirectoryBatch(List<InstalledDirectory> directories, UninstallResult result) {
         if (directories == null || directories.isEmpty()) {
             return;
         }
@@ -328,11 +384,8 @@ public class UninstallService {
         // Windows PATH cleanup
         cleanupWindowsPaths(pathMods.getWindowsPaths(), result);
         
-        // Unix shell profile cleanup
-        cleanupUnixShellProfiles(pathMods.getShellProfiles(), result);
-        
-        // Git Bash profile cleanup
-        cleanupGitBashProfiles(pathMods.getGitBashProfiles(), result);
+        // Unix shell profile and Git Bash profile cleanup
+        cleanupShellProfiles(pathMods.getShellProfiles(), pathMods.getGitBashProfiles(), result);
     }
 
     /**
@@ -367,72 +420,66 @@ public class UninstallService {
     }
 
     /**
-     * Clean up Unix/macOS shell profile entries from configuration files.
+     * Clean up Unix/macOS shell profile and Git Bash profile (.bashrc, .bash_profile) entries.
+     * Entries are grouped by profile so that each profile is read and rewritten once; different
+     * profiles are processed in parallel.
      */
-    private void cleanupUnixShellProfiles(List<ShellProfileEntry> shellProfiles, UninstallResult result) {
-        if (shellProfiles == null || shellProfiles.isEmpty()) {
-            return;
+    private void cleanupShellProfiles(
+            List<ShellProfileEntry> shellProfiles,
+            List<GitBashProfileEntry> gitBashProfiles,
+            UninstallResult result) {
+        Map<File, List<ProfileEdit>> editsByFile = new LinkedHashMap<>();
+        if (shellProfiles != null) {
+            for (ShellProfileEntry entry : shellProfiles) {
+                addProfileEdit(editsByFile, "shell profile", entry.getFile(), entry.getExportLine());
+            }
         }
-        
-        String homeDir = System.getProperty("user.home");
-        File homeDirFile = new File(homeDir);
-        
-        for (ShellProfileEntry entry : shellProfiles) {
-            try {
-                File configFile = new File(entry.getFile());
-                File binDir = extractBinDirFromExportLine(entry.getExportLine());
-                
-                boolean removed = false;
-                if (binDir != null) {
-                    removed = UnixPathManager.removePathFromConfigFile(configFile, binDir, homeDirFile);
-                }
-                if (removed) {
-                    result.incrementSuccessCount();
-                    LOGGER.fine("Removed from shell profile: " + entry.getFile());
-                } else {
-                    LOGGER.fine("Shell profile entry not found or already removed: " + 
-                              entry.getFile());
-                }
-            } catch (Exception e) {
-                String errorMsg = "Failed to remove from shell profile: " + 
-                                entry.getFile() + " - " + e.getMessage();
-                LOGGER.warning(errorMsg);
-                result.addError(errorMsg);
-                result.incrementFailureCount();
+        if (gitBashProfiles != null) {
+            for (GitBashProfileEntry entry : gitBashProfiles) {
+                addProfileEdit(editsByFile, "Git Bash profile", entry.getFile(), entry.getExportLine());
             }
         }
-    }
-
-    /**
-     * Clean up Git Bash profile entries from configuration files (.bashrc, .bash_profile).
-     */
-    private void cleanupGitBashProfiles(List<GitBashProfileEntry> gitBashProfiles, UninstallResult result) {
-        if (gitBashProfiles == null || gitBashProfiles.isEmpty()) {
+        if (editsByFile.isEmpty()) {
             return;
         }
-        
-        String homeDir = System.getProperty("user.home");
-        File homeDirFile = new File(homeDir);
-        
-        for (GitBashProfileEntry entry : gitBashProfiles) {
-            try {
-                File configFile = new File(entry.getFile());
-                File binDir = extractBinDirFromExportLine(entry.getExportLine());
-                
-                boolean removed = false;
-                if (binDir != null) {
-                    removed = UnixPathManager.removePathFromConfigFile(configFile, binDir, homeDirFile);
+
+        File homeDirFile = new File(System.getProperty("user.home"));
+        List<Runnable> tasks = new ArrayList<>();
+        for (Map.Entry<File, List<ProfileEdit>> entry : editsByFile.entrySet()) {
+            tasks.add(() -> cleanupShellProfile(entry.getKey(), entry.getValue(), homeDirFile, result));
+        }
+        runInParallel(tasks, result);
+    }
+
+    private void addProfileEdit(Map<File, List<ProfileEdit>> editsByFile, String kind, String file, String exportLine) {
+        File configFile = new File(file).getAbsoluteFile();
+        editsByFile.computeIfAbsent(configFile, k -> new ArrayList<>())
+                .add(new ProfileEdit(kind, file, extractBinDirFromExportLine(exportLine)));
+    }
+
+    private void cleanupShellProfile(File configFile, List<ProfileEdit> edits, File homeDirFile, UninstallResult result) {
+        try {
+            List<File> binDirs = new ArrayList<>();
+            for (ProfileEdit edit : edits) {
+                if (edit.binDir != null) {
+                    binDirs.add(edit.binDir);
                 }
-                if (removed) {
+            }
+            boolean[] removed = UnixPathManager.removePathsFromConfigFile(configFile, binDirs, homeDirFile);
+
+            int index = 0;
+            for (ProfileEdit edit : edits) {
+                if (edit.binDir != null && removed[index++]) {
                     result.incrementSuccessCount();
-                    LOGGER.fine("Removed from Git Bash profile: " + entry.getFile());
+                    LOGGER.fine("Removed from " + edit.kind + ": " + edit.file);
                 } else {
-                    LOGGER.fine("Git Bash profile entry not found or already removed: " + 
-                              entry.getFile());
+                    LOGGER.fine(capitalize(edit.kind) + " entry not found or already removed: " + edit.file);
                 }
-            } catch (Exception e) {
-                String errorMsg = "Failed to remove from Git Bash profile: " + 
-                                entry.getFile() + " - " + e.getMessage();
+            }
+        } catch (Exception e) {
+            for (ProfileEdit edit : edits) {
+                String errorMsg = "Failed to remove from " + edit.kind + ": " +
+                                edit.file + " - " + e.getMessage();
                 LOGGER.warning(errorMsg);
                 result.addError(errorMsg);
                 result.incrementFailureCount();
@@ -440,6 +487,10 @@ public class UninstallService {
         }
     }
 
+    private static String capitalize(String s) {
+        return Character.toUpperCase(s.charAt(0)) + s.substring(1);
+    }
+
     /**
      * Phase 4.5: Clean up AI integrations (MCP servers, skills, agents).
      */
@@ -494,29 +545,59 @@ public class UninstallService {
      * - Commands directory (from CliCommandBinDirResolver - per-app bin directory)
      * - Apps directory (~/.jdeploy/apps/{fullyQualifiedPackageName})
      * - Uninstallers directory (~/.jdeploy/uninstallers/{fullyQualifiedPackageName})
+     *
+     * These directories don't overlap, so they are deleted in parallel.
      */
     private void cleanupPackageDirectories(String packageName, String source, UninstallResult result) {
+        List<Runnable> tasks = new ArrayList<>();
+
         // Clean up package directories (both architecture-specific and legacy)
         File[] packagePaths = PackagePathResolver.getAllPossiblePackagePaths(packageName, null, source);
         for (File packagePath : packagePaths) {
-            if (packagePath.exists()) {
-                try {
-                    FileUtils.deleteDirectory(packagePath);
-                    result.incrementSuccessCount();
-                    LOGGER.info("Deleted package directory: " + packagePath.getAbsolutePath());
-                } catch (IOException e) {
-                    String errorMsg = "Failed to delete package directory: " + packagePath.getAbsolutePath() +
-                                    " - " + e.getMessage();
-                    LOGGER.warning(errorMsg);
-                    result.addError(errorMsg);
-                    result.incrementFailureCount();
-                }
-            } else {
-                LOGGER.fine("Package directory does not exist: " + packagePath.getAbsolutePath());
-            }
+            tasks.add(() -> deletePackageDirectory(packagePath, result));
         }
 
         // Clean up commands directory (per-app bin directory)
+        tasks.add(() -> deleteCommandsDirectory(packageName, source, result));
+
+        // Clean up apps directory
+        tasks.add(() -> deleteAppsDirectory(packageName, source, result));
+
+        // Clean up uninstallers directory (~/.jdeploy/uninstallers/{fullyQualifiedPackageName})
+        tasks.add(() -> deleteUninstallersDirectory(packageName, source, result));
+
+        runInParallel(tasks, result);
+
+        // Clean up macOS app bundles in ~/Applications/
+        if (Platform.getSystemPlatform().isMac()) {
+            cleanupMacOSAppBundles(packageName, source, result);
+        }
+
+        // Clean up Windows registry entries
+        if (Platform.getSystemPlatform().isWindows()) {
+            cleanupWindowsRegistry(packageName, source, result);
+        }
+    }
+
+    private void deletePackageDirectory(File packagePath, UninstallResult result) {
+        if (packagePath.exists()) {
+            try {
+                FileUtils.deleteDirectory(packagePath);
+                result.incrementSuccessCount();
+                LOGGER.info("Deleted package directory: " + packagePath.getAbsolutePath());
+            } catch (IOException e) {
+                String errorMsg = "Failed to delete package directory: " + packagePath.getAbsolutePath() +
+                                " - " + e.getMessage();
+                LOGGER.warning(errorMsg);
+                result.addError(errorMsg);
+                result.incrementFailureCount();
+            }
+        } else {
+            LOGGER.fine("Package directory does not exist: " + packagePath.getAbsolutePath());
+        }
+    }
+
+    private void deleteCommandsDirectory(String packageName, String source, UninstallResult result) {
         try {
             File commandsDir = CliCommandBinDirResolver.getPerAppBinDir(packageName, source);
             if (commandsDir.exists()) {
@@ -533,8 +614,9 @@ public class UninstallService {
             result.addError(errorMsg);
             result.incrementFailureCount();
         }
+    }
 
-        // Clean up apps directory
+    private void deleteAppsDirectory(String packageName, String source, UninstallResult result) {
         try {
             String fullyQualifiedName = CliCommandBinDirResolver.computeFullyQualifiedPackageName(packageName, source);
 
@@ -565,8 +647,9 @@ public class UninstallService {
             result.addError(errorMsg);
             result.incrementFailureCount();
         }
+    }
 
-        // Clean up uninstallers directory (~/.jdeploy/uninstallers/{fullyQualifiedPackageName})
+    private void deleteUninstallersDirectory(String packageName, String source, UninstallResult result) {
         try {
             String fullyQualifiedName = CliCommandBinDirResolver.computeFullyQualifiedPackageName(packageName, source);
             File jdeployHome = new File(System.getProperty("user.home"), ".jdeploy");
@@ -587,21 +670,12 @@ public class UninstallService {
             result.addError(errorMsg);
             result.incrementFailureCount();
         }
-
-        // Clean up macOS app bundles in ~/Applications/
-        if (Platform.getSystemPlatform().isMac()) {
-            cleanupMacOSAppBundles(packageName, source, result);
-        }
-
-        // Clean up Windows registry entries
-        if (Platform.getSystemPlatform().isWindows()) {
-            cleanupWindowsRegistry(packageName, source, result);
-        }
     }
 
     /**
      * Cleans up macOS .app bundles in ~/Applications/ that belong to this package.
-     * Scans for .app bundles containing .jdeploy-cli.json metadata that matches the package.
+     * Scans for .app bundles whose Contents/app.xml matches the package.  Bundles are checked and
+     * deleted in parallel.
      */
     private void cleanupMacOSAppBundles(String packageName, String source, UninstallResult result) {
         File userHome = new File(System.getProperty("user.home"));
@@ -618,21 +692,25 @@ public class UninstallService {
             return;
         }
 
+        List<Runnable> tasks = new ArrayList<>();
         for (File appBundle : appBundles) {
-            if (isAppBundleForPackage(appBundle, packageName, source)) {
-                try {
-                    FileUtils.deleteDirectory(appBundle);
-                    result.incrementSuccessCount();
-                    LOGGER.info("Deleted macOS app bundle: " + appBundle.getAbsolutePath());
-                } catch (IOException e) {
-                    String errorMsg = "Failed to delete macOS app bundle: " + appBundle.getAbsolutePath() +
-                                    " - " + e.getMessage();
-                    LOGGER.warning(errorMsg);
-                    result.addError(errorMsg);
-                    result.incrementFailureCount();
+            tasks.add(() -> {
+                if (isAppBundleForPackage(appBundle, packageName, source)) {
+                    try {
+                        FileUtils.deleteDirectory(appBundle);
+                        result.incrementSuccessCount();
+                        LOGGER.info("Deleted macOS app bundle: " + appBundle.getAbsolutePath());
+                    } catch (IOException e) {
+                        String errorMsg = "Failed to delete macOS app bundle: " + appBundle.getAbsolutePath() +
+                                        " - " + e.getMessage();
+                        LOGGER.warning(errorMsg);
+                        result.addError(errorMsg);
+                        result.incrementFailureCount();
+                    }
                 }
-            }
+            });
         }
+        runInParallel(tasks, result);
     }
 
     /**
@@ -866,44 +944,102 @@ public class UninstallService {
         registryOperations.deleteKey(key);
     }
 
+    /**
+     * Runs independent cleanup tasks on a bounded thread pool and waits for all of them.
+     * Tasks record their own successes and failures; anything they fail to catch is recorded as
+     * a failure here.  A single task runs on the calling thread.
+     */
+    private void runInParallel(List<Runnable> tasks, UninstallResult result) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        if (tasks.size() == 1) {
+            tasks.get(0).run();
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(PARALLELISM, tasks.size()), r -> {
+            Thread thread = new Thread(r, "jdeploy-uninstall");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Runnable task : tasks) {
+                futures.add(executor.submit(task));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    String errorMsg = "Unexpected error during uninstall: " + e.getCause();
+                    LOGGER.warning(errorMsg);
+                    result.addError(errorMsg);
+                    result.incrementFailureCount();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.addError("Interrupted during uninstall");
+            result.incrementFailureCount();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * A PATH entry to remove from a shell profile.
+     */
+    private static final class ProfileEdit {
+        private final String kind;
+        private final String file;
+        private final File binDir;
+
+        private ProfileEdit(String kind, String file, File binDir) {
+            this.kind = kind;
+            this.file = file;
+            this.binDir = binDir;
+        }
+    }
+
     /**
      * Result object tracking uninstall operation success/failure counts and errors.
+     * Safe to update from parallel cleanup tasks.
      */
     public static final class UninstallResult {
         private int successCount = 0;
         private int failureCount = 0;
         private final List<String> errors = new ArrayList<>();
 
-        public void incrementSuccessCount() {
+        public synchronized void incrementSuccessCount() {
             this.successCount++;
         }
 
-        public void incrementFailureCount() {
+        public synchronized void incrementFailureCount() {
             this.failureCount++;
         }
 
-        public void addError(String error) {
+        public synchronized void addError(String error) {
             this.errors.add(error);
         }
 
-        public int getSuccessCount() {
+        public synchronized int getSuccessCount() {
             return successCount;
         }
 
-        public int getFailureCount() {
+        public synchronized int getFailureCount() {
             return failureCount;
         }
 
-        public List<String> getErrors() {
-            return Collections.unmodifiableList(errors);
+        public synchronized List<String> getErrors() {
+            return Collections.unmodifiableList(new ArrayList<>(errors));
         }
 
-        public boolean isSuccess() {
+        public synchronized boolean isSuccess() {
             return failureCount == 0;
         }
 
         @Override
-        public String toString() {
+        public synchronized String toString() {
             return "UninstallResult{" +
                    "successCount=" + successCount +
                    ", failureCount=" + failureCount +
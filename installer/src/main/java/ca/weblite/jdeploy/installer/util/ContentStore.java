@@ -0,0 +1,296 @@
+package ca.weblite.jdeploy.installer.util;
+
+import ca.weblite.jdeploy.delta.DeltaManifest;
+import ca.weblite.tools.io.MD5;
+import ca.weblite.tools.platform.Platform;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Content-addressed file store shared by every jDeploy app installed for the current user.
+ *
+ * Directory trees that are largely identical from app to app (the background helper's copy of
+ * the installer and its .jdeploy-files context) are materialized from the store instead of being
+ * copied: each distinct file is stored once under {@code ~/.jdeploy/store/blobs/} and linked into
+ * place with a hard link.  Where a hard link isn't possible (e.g. the destination is on another
+ * filesystem) a symbolic link is used, and if that fails too the file is copied.
+ *
+ * Blobs are made read-only so that no single app can change a file shared with others.  Every
+ * materialized tree records the blobs it uses in {@code ~/.jdeploy/store/refs/}; a reference is
+ * dropped once its tree is gone, and {@link #collectGarbage()} deletes blobs that are no longer
+ * referenced.  Materializing and collecting garbage hold a lock on the whole store, so a blob
+ * can't be deleted between being stored and being recorded in its tree's references.
+ *
+ * The store is only used on POSIX systems.  Windows can't delete read-only files without first
+ * clearing their attributes, which the existing cleanup code doesn't do.
+ */
+public class ContentStore {
+
+    private static final String BLOBS_DIR = "blobs";
+
+    private static final String REFS_DIR = "refs";
+
+    private static final String EXECUTABLE_SUFFIX = "-x";
+
+    private static final String LOCK_FILE = "store.lock";
+
+    /**
+     * Serializes store access within this JVM; FileLock only guards against other processes.
+     */
+    private static final Object STORE_LOCK = new Object();
+
+    private final File root;
+
+    public ContentStore() {
+        this(new File(PackagePathResolver.getJDeployHome(), "store"));
+    }
+
+    public ContentStore(File root) {
+        this.root = root;
+    }
+
+    public static boolean isSupported() {
+        return !Platform.getSystemPlatform().isWindows();
+    }
+
+    /**
+     * Recreates {@code source} at {@code destination} from the store, adding any files the store
+     * doesn't have yet.  The destination must not exist.
+     *
+     * @return the number of files materialized
+     */
+    public int materialize(File source, File destination) throws IOException {
+        return withStoreLock(() -> {
+            Path sourcePath = source.toPath();
+            Path destPath = destination.toPath();
+            Set<String> blobNames = new LinkedHashSet<>();
+            int[] count = new int[1];
+            Files.walkFileTree(sourcePath, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    Files.createDirectories(destPath.resolve(sourcePath.relativize(dir).toString()));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Path target = destPath.resolve(sourcePath.relativize(file).toString());
+                    if (attrs.isSymbolicLink()) {
+                        Files.createSymbolicLink(target, Files.readSymbolicLink(file));
+                        return FileVisitResult.CONTINUE;
+                    }
+                    File blob = store(file.toFile());
+                    blobNames.add(blob.getName());
+                    link(blob.toPath(), target);
+                    count[0]++;
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            writeRefs(destination, blobNames);
+            return count[0];
+        });
+    }
+
+    /**
+     * Deletes the reference files of trees that no longer exist, then every blob that isn't
+     * referenced by a remaining tree.
+     *
+     * @return the number of blobs deleted
+     */
+    public int collectGarbage() throws IOException {
+        return withStoreLock(() -> {
+            File refsDir = new File(root, REFS_DIR);
+            File blobsDir = new File(root, BLOBS_DIR);
+            Set<String> live = new HashSet<>();
+            File[] refs = refsDir.listFiles();
+            if (refs != null) {
+                for (File ref : refs) {
+                    Set<String> blobs = new HashSet<>();
+                    String owner = readRefs(ref, blobs);
+                    if (owner == null || !new File(owner).exists()) {
+                        Files.deleteIfExists(ref.toPath());
+                    } else {
+                        live.addAll(blobs);
+                    }
+                }
+            }
+            int deleted = 0;
+            File[] shards = blobsDir.listFiles(File::isDirectory);
+            if (shards == null) {
+                return 0;
+            }
+            for (File shard : shards) {
+                File[] blobs = shard.listFiles();
+                if (blobs == null) {
+                    continue;
+                }
+                for (File blob : blobs) {
+                    if (!live.contains(blob.getName())) {
+                        if (Files.deleteIfExists(blob.toPath())) {
+                            deleted++;
+                        }
+                    }
+                }
+                String[] remaining = shard.list();
+                if (remaining != null && remaining.length == 0) {
+                    shard.delete();
+                }
+            }
+            return deleted;
+        });
+    }
+
+    /**
+     * Recreates a tree with hard links to the original files, falling back to copying.  The result
+     * survives deletion of the original, so this is a cheap way to take a backup.
+     */
+    public static void linkOrCopyTree(File source, File destination) throws IOException {
+        Path sourcePath = source.toPath();
+        Path destPath = destination.toPath();
+        Files.walkFileTree(sourcePath, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(destPath.resolve(sourcePath.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Path target = destPath.resolve(sourcePath.relativize(file).toString());
+                if (attrs.isSymbolicLink()) {
+                    Files.createSymbolicLink(target, Files.readSymbolicLink(file));
+                    return FileVisitResult.CONTINUE;
+                }
+                try {
+                    Files.createLink(target, file);
+                } catch (IOException | UnsupportedOperationException e) {
+                    Files.copy(file, target, StandardCopyOption.COPY_ATTRIBUTES);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private interface StoreOperation<T> {
+        T run() throws IOException;
+    }
+
+    private <T> T withStoreLock(StoreOperation<T> operation) throws IOException {
+        root.mkdirs();
+        synchronized (STORE_LOCK) {
+            try (FileChannel channel = FileChannel.open(new File(root, LOCK_FILE).toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock ignored = channel.lock()) {
+                return operation.run();
+            }
+        }
+    }
+
+    File getBlobFile(String blobName) {
+        return new File(new File(root, BLOBS_DIR), blobName.substring(0, 2) + File.separator + blobName);
+    }
+
+    private File store(File file) throws IOException {
+        // Executable and non-executable copies of the same content need separate blobs, since
+        // hard links share permissions
+        String blobName = DeltaManifest.sha256(file) + (file.canExecute() ? EXECUTABLE_SUFFIX : "");
+        File blob = getBlobFile(blobName);
+        if (blob.isFile() && blob.length() == file.length()) {
+            return blob;
+        }
+        File shard = blob.getParentFile();
+        shard.mkdirs();
+        Path tmp = Files.createTempFile(shard.toPath(), blobName, ".tmp");
+        try {
+            Files.copy(file.toPath(), tmp, StandardCopyOption.REPLACE_EXISTING);
+            File tmpFile = tmp.toFile();
+            tmpFile.setExecutable(file.canExecute(), false);
+            tmpFile.setReadable(true, false);
+            tmpFile.setWritable(false, false);
+            try {
+                Files.move(tmp, blob.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, blob.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (FileAlreadyExistsException e) {
+                // Another installer stored the same content first
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return blob;
+    }
+
+    private static void link(Path blob, Path target) throws IOException {
+        try {
+            Files.createLink(target, blob);
+            return;
+        } catch (IOException | UnsupportedOperationException e) {
+            // Most likely a different filesystem
+        }
+        try {
+            Files.createSymbolicLink(target, blob);
+            return;
+        } catch (IOException | UnsupportedOperationException e) {
+            // Fall back to a plain copy
+        }
+        Files.copy(blob, target, StandardCopyOption.COPY_ATTRIBUTES);
+        target.toFile().setWritable(true);
+    }
+
+    private void writeRefs(File owner, Set<String> blobNames) throws IOException {
+        File refsDir = new File(root, REFS_DIR);
+        refsDir.mkdirs();
+        String ownerPath = owner.getAbsolutePath();
+        File ref = new File(refsDir, MD5.getMd5(ownerPath) + ".refs");
+        Path tmp = Files.createTempFile(refsDir.toPath(), ref.getName(), ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                writer.write(ownerPath);
+                writer.newLine();
+                for (String blobName : blobNames) {
+                    writer.write(blobName);
+                    writer.newLine();
+                }
+            }
+            Files.move(tmp, ref.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * @return the owning tree's path, or null if the file is empty or unreadable
+     */
+    private static String readRefs(File ref, Set<String> blobNames) {
+        try (BufferedReader reader = Files.newBufferedReader(ref.toPath(), StandardCharsets.UTF_8)) {
+            String owner = reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    blobNames.add(line);
+                }
+            }
+            return owner;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
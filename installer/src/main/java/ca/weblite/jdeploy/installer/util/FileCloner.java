@@ -0,0 +1,223 @@
+package ca.weblite.jdeploy.installer.util;
+
+import ca.weblite.tools.platform.Platform;
+import com.sun.jna.LastErrorException;
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Creates copy-on-write clones of files, so that a copy shares its data blocks with the original
+ * until one of them is modified.  Cloning takes about as long as creating an empty file and uses
+ * no extra disk space.
+ *
+ * <ul>
+ *   <li>Linux: the {@code FICLONE} ioctl, supported by btrfs, XFS (with reflink enabled) and bcachefs</li>
+ *   <li>macOS: {@code clonefile(2)}, supported by APFS, which can also clone a whole directory tree</li>
+ * </ul>
+ *
+ * The methods return false instead of throwing whenever a clone can't be made (another
+ * filesystem, an unsupported platform, the native library failing to load), leaving nothing
+ * behind at the destination, so that callers can fall back to an ordinary copy.  The native
+ * library is only loaded once a file is found on a filesystem type that can clone.
+ */
+public final class FileCloner {
+
+    // Linux open(2) flags; identical on every architecture enabled in isSupported()
+    private static final int O_RDONLY = 0;
+    private static final int O_WRONLY = 01;
+    private static final int O_CREAT = 0100;
+    private static final int O_EXCL = 0200;
+    private static final int O_CLOEXEC = 02000000;
+
+    // _IOW(0x94, 9, int)
+    private static final long FICLONE = 0x40049409L;
+
+    // Clone symbolic links themselves rather than their targets
+    private static final int CLONE_NOFOLLOW = 0x0001;
+
+    private static final Set<String> CLONING_FILESYSTEMS = new HashSet<>(Arrays.asList(
+            "btrfs", "xfs", "bcachefs", "zfs", "apfs"
+    ));
+
+    private static final Map<String, Object> LIBRARY_OPTIONS =
+            Collections.singletonMap(Library.OPTION_STRING_ENCODING, "UTF-8");
+
+    /**
+     * The most recently checked directory, since looking up a file store takes a while and
+     * files are usually cloned a directory at a time.
+     */
+    private static volatile FilesystemCheck lastCheck;
+
+    private FileCloner() {
+    }
+
+    interface LinuxC extends Library {
+        int open(String path, int flags, int mode) throws LastErrorException;
+
+        int ioctl(int fd, NativeLong request, int arg) throws LastErrorException;
+
+        int close(int fd) throws LastErrorException;
+    }
+
+    interface MacC extends Library {
+        int clonefile(String source, String destination, int flags) throws LastErrorException;
+    }
+
+    private static class LinuxHolder {
+        static final LinuxC C = Native.load("c", LinuxC.class, LIBRARY_OPTIONS);
+    }
+
+    private static class MacHolder {
+        static final MacC C = Native.load("c", MacC.class, LIBRARY_OPTIONS);
+    }
+
+    /**
+     * @return true if cloning may work on this platform; whether it does depends on the filesystem
+     */
+    public static boolean isSupported() {
+        Platform platform = Platform.getSystemPlatform();
+        if (platform.isMac()) {
+            return true;
+        }
+        if (!platform.isLinux()) {
+            return false;
+        }
+        String arch = System.getProperty("os.arch", "");
+        return arch.equals("amd64") || arch.equals("x86_64") || arch.equals("aarch64")
+                || arch.equals("riscv64");
+    }
+
+    /**
+     * Clones a regular file, copying its permissions and modification time.
+     *
+     * @param source the file to clone
+     * @param destination the clone to create; must not exist
+     * @return true if the clone was created, false if the file must be copied instead
+     */
+    public static boolean cloneFile(Path source, Path destination) {
+        if (!isSupported() || !Files.isRegularFile(source, LinkOption.NOFOLLOW_LINKS)
+                || !isOnCloningFilesystem(source)) {
+            return false;
+        }
+        try {
+            if (Platform.getSystemPlatform().isMac()) {
+                return cloneWithClonefile(source, destination);
+            }
+            return cloneWithFiclone(source, destination);
+        } catch (LinkageError e) {
+            // JNA or the C library isn't available
+            return false;
+        }
+    }
+
+    /**
+     * Clones a directory and everything in it in one step.  Only macOS can do this; on Linux
+     * the files have to be cloned one at a time with {@link #cloneFile(Path, Path)}.
+     *
+     * @param source the directory to clone
+     * @param destination the clone to create; must not exist
+     * @return true if the tree was cloned, false if it must be copied instead
+     */
+    public static boolean cloneTree(Path source, Path destination) {
+        if (!Platform.getSystemPlatform().isMac() || !isOnCloningFilesystem(source)) {
+            return false;
+        }
+        try {
+            return cloneWithClonefile(source, destination);
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    private static boolean isOnCloningFilesystem(Path path) {
+        Path dir = path.toAbsolutePath().getParent();
+        FilesystemCheck check = lastCheck;
+        if (check != null && dir != null && dir.equals(check.dir)) {
+            return check.canClone;
+        }
+        boolean canClone;
+        try {
+            canClone = CLONING_FILESYSTEMS.contains(Files.getFileStore(path).type().toLowerCase(Locale.ROOT));
+        } catch (IOException | SecurityException e) {
+            canClone = false;
+        }
+        if (dir != null) {
+            lastCheck = new FilesystemCheck(dir, canClone);
+        }
+        return canClone;
+    }
+
+    private static final class FilesystemCheck {
+        private final Path dir;
+        private final boolean canClone;
+
+        private FilesystemCheck(Path dir, boolean canClone) {
+            this.dir = dir;
+            this.canClone = canClone;
+        }
+    }
+
+    private static boolean cloneWithClonefile(Path source, Path destination) {
+        try {
+            return MacHolder.C.clonefile(source.toString(), destination.toString(), CLONE_NOFOLLOW) == 0;
+        } catch (LastErrorException e) {
+            // clonefile(2) never leaves a partial clone behind
+            return false;
+        }
+    }
+
+    private static boolean cloneWithFiclone(Path source, Path destination) {
+        LinuxC c = LinuxHolder.C;
+        int sourceFd = -1;
+        int destinationFd = -1;
+        boolean created = false;
+        boolean cloned = false;
+        try {
+            sourceFd = c.open(source.toString(), O_RDONLY | O_CLOEXEC, 0);
+            destinationFd = c.open(destination.toString(), O_WRONLY | O_CREAT | O_EXCL | O_CLOEXEC, 0600);
+            created = true;
+            c.ioctl(destinationFd, new NativeLong(FICLONE), sourceFd);
+            close(c, destinationFd);
+            destinationFd = -1;
+
+            Files.setPosixFilePermissions(destination, Files.getPosixFilePermissions(source));
+            Files.setLastModifiedTime(destination, Files.getLastModifiedTime(source));
+            cloned = true;
+        } catch (LastErrorException | IOException | UnsupportedOperationException e) {
+            // EOPNOTSUPP or EXDEV when the filesystem can't share blocks between these files
+        } finally {
+            close(c, destinationFd);
+            close(c, sourceFd);
+            if (created && !cloned) {
+                try {
+                    Files.deleteIfExists(destination);
+                } catch (IOException e) {
+                    // The caller's copy replaces it
+                }
+            }
+        }
+        return cloned;
+    }
+
+    private static void close(LinuxC c, int fd) {
+        if (fd >= 0) {
+            try {
+                c.close(fd);
+            } catch (LastErrorException e) {
+                // Nothing useful to do
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package ca.weblite.jdeploy.installer.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records how long the installer takes to reach each stage of startup, measured from JVM start.
+ *
+ * Each mark is logged once, the first time it is reached, so the installer log shows e.g. the
+ * time to first paint and the time until the install button is enabled.
+ */
+public final class StartupMetrics {
+
+    private static final long START_MILLIS = findStartMillis();
+
+    private static final Map<String, Long> marks = new LinkedHashMap<>();
+
+    private StartupMetrics() {
+    }
+
+    /**
+     * Records that startup has reached the given stage.  Later marks with the same name are
+     * ignored.
+     */
+    public static void mark(String stage) {
+        long elapsed = System.currentTimeMillis() - START_MILLIS;
+        synchronized (marks) {
+            if (marks.containsKey(stage)) {
+                return;
+            }
+            marks.put(stage, elapsed);
+        }
+        System.out.println("[startup] " + stage + " after " + elapsed + "ms");
+    }
+
+    /**
+     * @return milliseconds from JVM start to the given stage, or -1 if it hasn't been reached
+     */
+    public static long getMillis(String stage) {
+        synchronized (marks) {
+            Long elapsed = marks.get(stage);
+            return elapsed == null ? -1 : elapsed;
+        }
+    }
+
+    private static long findStartMillis() {
+        try {
+            return java.lang.management.ManagementFactory.getRuntimeMXBean().getStartTime();
+        } catch (Throwable t) {
+            // java.management may not be included in the bundled runtime
+            return System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package ca.weblite.jdeploy.installer.views;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * A lightweight window shown as soon as the installer starts, while app.xml, the package
+ * metadata and the installer theme are loaded in the background.
+ *
+ * It is replaced by the installation form once everything is ready.  All methods may be called
+ * from any thread.
+ */
+public class BootstrapWindow {
+
+    private final Runnable onFirstPaint;
+
+    private JFrame frame;
+
+    private JLabel titleLabel;
+
+    private JLabel statusLabel;
+
+    private volatile boolean closed;
+
+    /**
+     * @param onFirstPaint called on the event dispatch thread the first time the window is
+     *                     painted
+     */
+    public BootstrapWindow(Runnable onFirstPaint) {
+        this.onFirstPaint = onFirstPaint;
+    }
+
+    public void open() {
+        onEdt(() -> {
+            if (closed || frame != null) {
+                return;
+            }
+            frame = new JFrame("Installer");
+            frame.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
+            frame.setResizable(false);
+
+            JPanel content = new JPanel(new BorderLayout(10, 10)) {
+                private boolean painted;
+
+                @Override
+                protected void paintComponent(Graphics g) {
+                    super.paintComponent(g);
+                    if (!painted) {
+                        painted = true;
+                        if (onFirstPaint != null) {
+                            onFirstPaint.run();
+                        }
+                    }
+                }
+            };
+            content.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+
+            titleLabel = new JLabel("Preparing installer");
+            titleLabel.setHorizontalAlignment(SwingConstants.CENTER);
+            titleLabel.setFont(titleLabel.getFont().deriveFont(Font.BOLD));
+            content.add(titleLabel, BorderLayout.NORTH);
+
+            JProgressBar progressBar = new JProgressBar();
+            progressBar.setIndeterminate(true);
+            progressBar.setPreferredSize(new Dimension(300, 20));
+            content.add(progressBar, BorderLayout.CENTER);
+
+            statusLabel = new JLabel("Loading application info...");
+            statusLabel.setHorizontalAlignment(SwingConstants.CENTER);
+            content.add(statusLabel, BorderLayout.SOUTH);
+
+            frame.setContentPane(content);
+            frame.pack();
+            frame.setLocationRelativeTo(null);
+            frame.setVisible(true);
+        });
+    }
+
+    public void setAppTitle(String title) {
+        onEdt(() -> {
+            if (frame != null && title != null) {
+                frame.setTitle(title + " Installer");
+                titleLabel.setText("Preparing to install " + title);
+            }
+        });
+    }
+
+    public void setStatus(String status) {
+        onEdt(() -> {
+            if (frame != null) {
+                statusLabel.setText(status);
+            }
+        });
+    }
+
+    public void close() {
+        closed = true;
+        onEdt(() -> {
+            if (frame != null) {
+                frame.dispose();
+                frame = null;
+            }
+        });
+    }
+
+    private static void onEdt(Runnable r) {
+        if (EventQueue.isDispatchThread()) {
+            r.run();
+        } else {
+            EventQueue.invokeLater(r);
+        }
+    }
+}
@@ -1,22 +1,82 @@
 package ca.weblite.jdeploy.installer.win;
 
-import java.io.BufferedReader;
+import ca.weblite.jdeploy.installer.win.AuthenticodeSignatureReader.AuthenticodeSignature;
+import ca.weblite.jdeploy.installer.win.AuthenticodeSignatureReader.Timestamp;
+import ca.weblite.tools.platform.Platform;
+
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.cert.CertPathBuilder;
+import java.security.cert.CertPathBuilderException;
+import java.security.cert.CertStore;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.CertificateParsingException;
+import java.security.cert.CollectionCertStoreParameters;
+import java.security.cert.PKIXBuilderParameters;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509CertSelector;
+import java.security.cert.X509Certificate;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
- * Checks Authenticode signatures on Windows executables using PowerShell.
+ * Checks Authenticode signatures on Windows executables.
  * Determines if an exe is signed and whether its certificate is trusted.
+ *
+ * The signature is read directly from the PE file, so no PowerShell process is started and the
+ * check also works on other platforms.  A certificate is trusted if it chains to a certificate in
+ * the Windows root store (including the current user's) or the JVM's default trust store, and is
+ * issued for code signing.
  */
 public class AuthenticodeSignatureChecker {
 
+    static final String STATUS_VALID = "Signature verified.";
+    static final String STATUS_NOT_TRUSTED = "A certificate chain processed, but terminated in a root certificate "
+            + "which is not trusted by the trust provider.";
+    static final String STATUS_HASH_MISMATCH = "The contents of the file might have been changed by an unauthorized "
+            + "user or process, because the hash of the file does not match the hash stored in the digital signature.";
+
+    private static final String OID_CODE_SIGNING = "1.3.6.1.5.5.7.3.3";
+    private static final String OID_TIME_STAMPING = "1.3.6.1.5.5.7.3.8";
+
+    private final AuthenticodeSignatureReader reader = new AuthenticodeSignatureReader();
+
+    private Collection<X509Certificate> trustedCertificates;
+
+    public AuthenticodeSignatureChecker() {
+    }
+
+    /**
+     * Creates a checker that trusts only the given certificates.
+     *
+     * @param trustedCertificates the trusted root certificates
+     */
+    AuthenticodeSignatureChecker(Collection<X509Certificate> trustedCertificates) {
+        this.trustedCertificates = new ArrayList<>(trustedCertificates);
+    }
+
     /**
      * Result of an Authenticode signature check.
      */
     public static class SignatureCheckResult {
         private final boolean signed;
         private final boolean trusted;
+        private final boolean digestValid;
         private final String subject;
         private final String issuer;
         private final String thumbprint;
@@ -33,9 +93,24 @@ public class AuthenticodeSignatureChecker {
                 String validFrom,
                 String validTo,
                 String statusMessage
+        ) {
+            this(signed, trusted, true, subject, issuer, thumbprint, validFrom, validTo, statusMessage);
+        }
+
+        public SignatureCheckResult(
+                boolean signed,
+                boolean trusted,
+                boolean digestValid,
+                String subject,
+                String issuer,
+                String thumbprint,
+                String validFrom,
+                String validTo,
+                String statusMessage
         ) {
             this.signed = signed;
             this.trusted = trusted;
+            this.digestValid = digestValid;
             this.subject = subject;
             this.issuer = issuer;
             this.thumbprint = thumbprint;
@@ -46,6 +121,11 @@ public class AuthenticodeSignatureChecker {
 
         public boolean isSigned() { return signed; }
         public boolean isTrusted() { return trusted; }
+
+        /**
+         * Returns true if the file matches its signature, i.e. it hasn't been modified since it was signed.
+         */
+        public boolean isDigestValid() { return digestValid; }
         public String getSubject() { return subject; }
         public String getIssuer() { return issuer; }
         public String getThumbprint() { return thumbprint; }
@@ -56,9 +136,11 @@ public class AuthenticodeSignatureChecker {
         /**
          * Returns true if the exe is signed but the certificate is not trusted
          * (i.e., self-signed or signed with an untrusted CA).
+         * A file that doesn't match its signature is never reported here, since its
+         * certificate shouldn't be offered for trust.
          */
         public boolean isSignedButUntrusted() {
-            return signed && !trusted;
+            return signed && digestValid && !trusted;
         }
     }
 
@@ -68,7 +150,7 @@ public class AuthenticodeSignatureChecker {
      * @param exeFile the executable file to check
      * @return the signature check result (never null)
      * @throws IllegalArgumentException if exeFile is null, does not exist, or is not an .exe file
-     * @throws IOException if the PowerShell process fails or returns a non-zero exit code
+     * @throws IOException if the file can't be read or its signature is malformed
      */
     public SignatureCheckResult checkSignature(File exeFile) throws IOException {
         if (exeFile == null) {
@@ -81,92 +163,166 @@ public class AuthenticodeSignatureChecker {
             throw new IllegalArgumentException("File is not an .exe: " + exeFile.getName());
         }
 
-        String script = buildPowerShellScript(exeFile);
-        ProcessBuilder pb = new ProcessBuilder(
-                "powershell.exe", "-NoProfile", "-NonInteractive", "-Command", script
+        AuthenticodeSignature signature = reader.read(exeFile);
+        if (signature == null) {
+            return new SignatureCheckResult(false, false, "", "", "", "", "", "Not signed");
+        }
+
+        X509Certificate cert = signature.getSignerCertificate();
+        boolean digestValid = signature.isDigestValid();
+        boolean trusted = digestValid && isTrusted(signature);
+        String statusMessage = !digestValid ? STATUS_HASH_MISMATCH : trusted ? STATUS_VALID : STATUS_NOT_TRUSTED;
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+
+        return new SignatureCheckResult(
+                true,
+                trusted,
+                digestValid,
+                cert.getSubjectX500Principal().toString(),
+                cert.getIssuerX500Principal().toString(),
+                getThumbprint(cert),
+                dateFormat.format(cert.getNotBefore()),
+                dateFormat.format(cert.getNotAfter()),
+                statusMessage
         );
-        pb.redirectErrorStream(true);
-        Process process = pb.start();
-
-        StringBuilder output = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                output.append(line).append("\n");
-            }
+    }
+
+    /**
+     * Returns true if the signer's certificate is for code signing and chains to a trusted root.
+     * As on Windows, the certificates are checked as of the signature's timestamp if the timestamp
+     * authority is itself trusted, so a timestamped signature stays valid after the signing
+     * certificate expires.  Otherwise they are checked as of now.
+     */
+    private boolean isTrusted(AuthenticodeSignature signature) {
+        Collection<X509Certificate> trusted = getTrustedCertificates();
+        if (trusted.isEmpty()) {
+            return false;
+        }
+        X509Certificate signer = signature.getSignerCertificate();
+        if (!hasExtendedKeyUsage(signer, OID_CODE_SIGNING)) {
+            return false;
         }
 
+        Timestamp timestamp = signature.getTimestamp();
+        Date validationDate = isTrustedTimestamp(timestamp, trusted) ? timestamp.getTime() : new Date();
+        return chainsToTrustedRoot(signer, signature.getCertificates(), trusted, validationDate);
+    }
+
+    private static boolean isTrustedTimestamp(Timestamp timestamp, Collection<X509Certificate> trusted) {
+        return timestamp != null
+                && hasExtendedKeyUsage(timestamp.getSignerCertificate(), OID_TIME_STAMPING)
+                && chainsToTrustedRoot(timestamp.getSignerCertificate(), timestamp.getCertificates(),
+                        trusted, timestamp.getTime());
+    }
+
+    private static boolean hasExtendedKeyUsage(X509Certificate cert, String purpose) {
         try {
-            int exitCode = process.waitFor();
-            if (exitCode != 0) {
-                throw new IOException("PowerShell Get-AuthenticodeSignature failed with exit code " + exitCode + ": " + output);
+            List<String> usage = cert.getExtendedKeyUsage();
+            return usage != null && usage.contains(purpose);
+        } catch (CertificateParsingException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns true if the certificate was valid on the given date and chains to one of the trusted
+     * certificates through the intermediates.
+     */
+    private static boolean chainsToTrustedRoot(
+            X509Certificate cert,
+            Collection<X509Certificate> intermediates,
+            Collection<X509Certificate> trusted,
+            Date validationDate
+    ) {
+        if (trusted.contains(cert)) {
+            try {
+                cert.checkValidity(validationDate);
+                return true;
+            } catch (GeneralSecurityException e) {
+                return false;
             }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new IOException("Interrupted while waiting for PowerShell process", e);
         }
 
-        return parseResult(output.toString());
+        try {
+            Set<TrustAnchor> anchors = new HashSet<>();
+            for (X509Certificate trustedCert : trusted) {
+                anchors.add(new TrustAnchor(trustedCert, null));
+            }
+            X509CertSelector target = new X509CertSelector();
+            target.setCertificate(cert);
+
+            PKIXBuilderParameters params = new PKIXBuilderParameters(anchors, target);
+            params.setRevocationEnabled(false);
+            params.setDate(validationDate);
+            params.addCertStore(CertStore.getInstance(
+                    "Collection", new CollectionCertStoreParameters(intermediates)));
+
+            CertPathBuilder.getInstance("PKIX").build(params);
+            return true;
+        } catch (CertPathBuilderException e) {
+            return false;
+        } catch (GeneralSecurityException e) {
+            System.err.println("Failed to validate certificate chain: " + e.getMessage());
+            return false;
+        }
     }
 
-    private String buildPowerShellScript(File exeFile) {
-        String escapedPath = exeFile.getAbsolutePath().replace("'", "''");
-        return "$sig = Get-AuthenticodeSignature -FilePath '" + escapedPath + "'; " +
-                "if ($sig.SignerCertificate -ne $null) { " +
-                "  $cert = $sig.SignerCertificate; " +
-                "  Write-Output \"SIGNED=true\"; " +
-                "  Write-Output \"STATUS=$($sig.Status)\"; " +
-                "  Write-Output \"STATUS_MESSAGE=$($sig.StatusMessage)\"; " +
-                "  Write-Output \"SUBJECT=$($cert.Subject)\"; " +
-                "  Write-Output \"ISSUER=$($cert.Issuer)\"; " +
-                "  Write-Output \"THUMBPRINT=$($cert.Thumbprint)\"; " +
-                "  Write-Output \"VALID_FROM=$($cert.NotBefore.ToString('yyyy-MM-dd'))\"; " +
-                "  Write-Output \"VALID_TO=$($cert.NotAfter.ToString('yyyy-MM-dd'))\" " +
-                "} else { " +
-                "  Write-Output \"SIGNED=false\" " +
-                "}";
+    private synchronized Collection<X509Certificate> getTrustedCertificates() {
+        if (trustedCertificates == null) {
+            trustedCertificates = loadPlatformTrustedCertificates();
+        }
+        return trustedCertificates;
     }
 
-    private SignatureCheckResult parseResult(String output) {
-        boolean signed = false;
-        boolean trusted = false;
-        String subject = "";
-        String issuer = "";
-        String thumbprint = "";
-        String validFrom = "";
-        String validTo = "";
-        String statusMessage = "";
-        String status = "";
-
-        for (String line : output.split("\n")) {
-            line = line.trim();
-            if (line.startsWith("SIGNED=")) {
-                signed = "true".equals(line.substring("SIGNED=".length()));
-            } else if (line.startsWith("STATUS=")) {
-                status = line.substring("STATUS=".length());
-            } else if (line.startsWith("STATUS_MESSAGE=")) {
-                statusMessage = line.substring("STATUS_MESSAGE=".length());
-            } else if (line.startsWith("SUBJECT=")) {
-                subject = line.substring("SUBJECT=".length());
-            } else if (line.startsWith("ISSUER=")) {
-                issuer = line.substring("ISSUER=".length());
-            } else if (line.startsWith("THUMBPRINT=")) {
-                thumbprint = line.substring("THUMBPRINT=".length());
-            } else if (line.startsWith("VALID_FROM=")) {
-                validFrom = line.substring("VALID_FROM=".length());
-            } else if (line.startsWith("VALID_TO=")) {
-                validTo = line.substring("VALID_TO=".length());
+    /**
+     * Loads the Windows root store (which includes certificates added by {@link CertificateTrustService})
+     * and the JVM's default trust store.
+     */
+    private static Collection<X509Certificate> loadPlatformTrustedCertificates() {
+        List<X509Certificate> certificates = new ArrayList<>();
+        if (Platform.getSystemPlatform().isWindows()) {
+            try {
+                KeyStore windowsRoot = KeyStore.getInstance("Windows-ROOT");
+                windowsRoot.load(null, null);
+                Enumeration<String> aliases = windowsRoot.aliases();
+                while (aliases.hasMoreElements()) {
+                    Certificate cert = windowsRoot.getCertificate(aliases.nextElement());
+                    if (cert instanceof X509Certificate) {
+                        certificates.add((X509Certificate) cert);
+                    }
+                }
+            } catch (Exception e) {
+                System.err.println("Failed to load Windows root certificates: " + e.getMessage());
             }
         }
-
-        if (!signed) {
-            return new SignatureCheckResult(false, false, "", "", "", "", "", "Not signed");
+        try {
+            TrustManagerFactory factory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            factory.init((KeyStore) null);
+            for (TrustManager trustManager : factory.getTrustManagers()) {
+                if (trustManager instanceof X509TrustManager) {
+                    Collections.addAll(certificates, ((X509TrustManager) trustManager).getAcceptedIssuers());
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to load default trusted certificates: " + e.getMessage());
         }
+        return certificates;
+    }
 
-        // "Valid" status means the certificate chain is trusted
-        trusted = "Valid".equals(status);
-
-        return new SignatureCheckResult(signed, trusted, subject, issuer, thumbprint, validFrom, validTo, statusMessage);
+    /**
+     * Returns the SHA-1 thumbprint of a certificate in the format Windows displays it.
+     */
+    static String getThumbprint(X509Certificate cert) throws IOException {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(cert.getEncoded());
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(String.format("%02X", b));
+            }
+            return sb.toString();
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Failed to compute certificate thumbprint", e);
+        }
     }
 
     /**
@@ -185,48 +341,19 @@ public class AuthenticodeSignatureChecker {
             throw new IllegalArgumentException("File does not exist: " + exeFile.getAbsolutePath());
         }
 
-        File certFile = File.createTempFile("jdeploy_cert_", ".cer");
-        certFile.deleteOnExit();
-
-        String escapedExePath = exeFile.getAbsolutePath().replace("'", "''");
-        String escapedCertPath = certFile.getAbsolutePath().replace("'", "''");
-
-        String script = "$sig = Get-AuthenticodeSignature -FilePath '" + escapedExePath + "'; " +
-                "if ($sig.SignerCertificate -ne $null) { " +
-                "  [System.IO.File]::WriteAllBytes('" + escapedCertPath + "', $sig.SignerCertificate.RawData); " +
-                "  Write-Output 'OK' " +
-                "} else { " +
-                "  Write-Output 'NO_CERT' " +
-                "}";
-
-        ProcessBuilder pb = new ProcessBuilder(
-                "powershell.exe", "-NoProfile", "-NonInteractive", "-Command", script
-        );
-        pb.redirectErrorStream(true);
-        Process process = pb.start();
-
-        StringBuilder output = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                output.append(line);
-            }
+        AuthenticodeSignature signature = reader.read(exeFile);
+        if (signature == null) {
+            throw new IOException("Failed to export certificate from " + exeFile.getName() + ": NO_CERT");
         }
 
+        File certFile = File.createTempFile("jdeploy_cert_", ".cer");
+        certFile.deleteOnExit();
         try {
-            process.waitFor();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+            Files.write(certFile.toPath(), signature.getSignerCertificate().getEncoded());
+        } catch (CertificateEncodingException | IOException e) {
             certFile.delete();
-            throw new IOException("Interrupted while waiting for PowerShell process", e);
-        }
-
-        if (output.toString().trim().equals("OK") && certFile.length() > 0) {
-            return certFile;
+            throw new IOException("Failed to export certificate from " + exeFile.getName() + ": " + e.getMessage(), e);
         }
-
-        certFile.delete();
-        throw new IOException("Failed to export certificate from " + exeFile.getName()
-                + ": " + output.toString().trim());
+        return certFile;
     }
 }
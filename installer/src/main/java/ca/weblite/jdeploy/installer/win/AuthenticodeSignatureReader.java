@@ -0,0 +1,523 @@
+package ca.weblite.jdeploy.installer.win;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Signature;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and verifies the Authenticode signature embedded in a PE (Windows executable) file.
+ *
+ * The signature lives in the PE security directory as a PKCS#7 SignedData structure whose content
+ * is a digest of the file.  This class checks that the digest matches the file and that the signer
+ * produced the signature, but not whether the signer's certificate is trusted.  Likewise, a
+ * timestamp is only returned if the timestamp authority signed this signature, leaving whether the
+ * authority is trusted to the caller.
+ *
+ * @see <a href="https://learn.microsoft.com/en-us/windows/win32/debug/pe-format">PE Format</a>
+ */
+class AuthenticodeSignatureReader {
+
+    private static final String OID_SIGNED_DATA = "1.2.840.113549.1.7.2";
+    private static final String OID_SPC_INDIRECT_DATA = "1.3.6.1.4.1.311.2.1.4";
+    private static final String OID_MESSAGE_DIGEST = "1.2.840.113549.1.9.4";
+    private static final String OID_SIGNING_TIME = "1.2.840.113549.1.9.5";
+    private static final String OID_COUNTER_SIGNATURE = "1.2.840.113549.1.9.6";
+    private static final String OID_RFC3161_TIMESTAMP = "1.3.6.1.4.1.311.3.3.1";
+    private static final String OID_TST_INFO = "1.2.840.113549.1.9.16.1.4";
+    private static final String OID_SUBJECT_KEY_IDENTIFIER = "2.5.29.14";
+
+    private static final int WIN_CERT_TYPE_PKCS_SIGNED_DATA = 0x0002;
+    private static final int SECURITY_DIRECTORY_INDEX = 4;
+    private static final int MAX_SIGNATURE_SIZE = 16 * 1024 * 1024;
+
+    private static final Map<String, String> DIGEST_ALGORITHMS = new HashMap<>();
+
+    static {
+        DIGEST_ALGORITHMS.put("1.3.14.3.2.26", "SHA-1");
+        DIGEST_ALGORITHMS.put("2.16.840.1.101.3.4.2.1", "SHA-256");
+        DIGEST_ALGORITHMS.put("2.16.840.1.101.3.4.2.2", "SHA-384");
+        DIGEST_ALGORITHMS.put("2.16.840.1.101.3.4.2.3", "SHA-512");
+    }
+
+    /**
+     * A signature read from a file.
+     */
+    static class AuthenticodeSignature {
+        private final X509Certificate signerCertificate;
+        private final List<X509Certificate> certificates;
+        private final boolean digestValid;
+        private final Timestamp timestamp;
+
+        AuthenticodeSignature(
+                X509Certificate signerCertificate,
+                List<X509Certificate> certificates,
+                boolean digestValid,
+                Timestamp timestamp
+        ) {
+            this.signerCertificate = signerCertificate;
+            this.certificates = Collections.unmodifiableList(certificates);
+            this.digestValid = digestValid;
+            this.timestamp = timestamp;
+        }
+
+        X509Certificate getSignerCertificate() { return signerCertificate; }
+
+        /**
+         * @return all certificates embedded in the signature, including the signer's
+         */
+        List<X509Certificate> getCertificates() { return certificates; }
+
+        /**
+         * @return true if the file's digest matches the signed digest and the signer's signature verifies
+         */
+        boolean isDigestValid() { return digestValid; }
+
+        /**
+         * @return the countersignature or RFC 3161 timestamp whose signature over this signature
+         *         verifies, or null if there is none
+         */
+        Timestamp getTimestamp() { return timestamp; }
+    }
+
+    /**
+     * A timestamp whose signature has been verified.  Its time can only be relied on if the
+     * timestamp authority's certificate is trusted.
+     */
+    static class Timestamp {
+        private final Date time;
+        private final X509Certificate signerCertificate;
+        private final List<X509Certificate> certificates;
+
+        Timestamp(Date time, X509Certificate signerCertificate, List<X509Certificate> certificates) {
+            this.time = time;
+            this.signerCertificate = signerCertificate;
+            this.certificates = Collections.unmodifiableList(certificates);
+        }
+
+        Date getTime() { return time; }
+
+        /**
+         * @return the timestamp authority's certificate
+         */
+        X509Certificate getSignerCertificate() { return signerCertificate; }
+
+        /**
+         * @return the certificates available to build the timestamp authority's chain
+         */
+        List<X509Certificate> getCertificates() { return certificates; }
+    }
+
+    /**
+     * Reads the signature of a PE file.
+     *
+     * @param peFile the file to read
+     * @return the signature, or null if the file is not a PE file or is not signed
+     * @throws IOException if the file can't be read or its signature is malformed
+     */
+    AuthenticodeSignature read(File peFile) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(peFile, "r")) {
+            PeLayout layout = PeLayout.read(file);
+            if (layout == null || layout.certTableOffset == 0 || layout.certTableSize < 8) {
+                return null;
+            }
+
+            byte[] winCertificate = new byte[8];
+            file.seek(layout.certTableOffset);
+            file.readFully(winCertificate);
+            long length = readUInt32(winCertificate, 0);
+            int certificateType = readUInt16(winCertificate, 6);
+            if (certificateType != WIN_CERT_TYPE_PKCS_SIGNED_DATA) {
+                return null;
+            }
+            if (length < 8 || length > layout.certTableSize || length > MAX_SIGNATURE_SIZE) {
+                throw new IOException("Invalid Authenticode certificate table in " + peFile.getName());
+            }
+            byte[] pkcs7 = new byte[(int) length - 8];
+            file.readFully(pkcs7);
+
+            return parseSignedData(pkcs7, file, layout);
+        }
+    }
+
+    private AuthenticodeSignature parseSignedData(byte[] pkcs7, RandomAccessFile file, PeLayout layout)
+            throws IOException {
+        SignedData signedData = SignedData.parse(DerValue.parse(pkcs7));
+        if (signedData == null) {
+            throw new IOException("Authenticode signature is not PKCS#7 SignedData");
+        }
+
+        if (!OID_SPC_INDIRECT_DATA.equals(signedData.encapContentInfo.getChild(0).getObjectIdentifier())) {
+            throw new IOException("Authenticode signature does not contain SpcIndirectDataContent");
+        }
+        DerValue indirectData = signedData.encapContentInfo.getChild(1).getChild(0).expect(DerValue.SEQUENCE);
+        DerValue digestInfo = indirectData.getChild(1).expect(DerValue.SEQUENCE);
+        String imageDigestAlgorithm = digestAlgorithm(digestInfo.getChild(0));
+        byte[] signedImageDigest = digestInfo.getChild(1).getOctetString();
+
+        if (signedData.signerInfos == null || signedData.signerInfos.getChildren().isEmpty()) {
+            throw new IOException("Authenticode signature has no signer");
+        }
+
+        List<DerValue> signerInfo = signedData.signerInfos.getChild(0).expect(DerValue.SEQUENCE).getChildren();
+        X509Certificate signer = findSigner(signerInfo.get(1), signedData.certificates);
+        if (signer == null) {
+            throw new IOException("Authenticode signer certificate not found in signature");
+        }
+
+        // The digest covers the content octets of SpcIndirectDataContent, without its tag and length
+        boolean digestValid = Arrays.equals(signedImageDigest, computeImageDigest(file, layout, imageDigestAlgorithm))
+                && verifySignerInfo(signerInfo, indirectData.getContent(), signer);
+
+        return new AuthenticodeSignature(signer, signedData.certificates, digestValid,
+                findTimestamp(signerInfo, signedData.certificates));
+    }
+
+    /**
+     * The parts of a PKCS#7 SignedData structure.
+     */
+    private static final class SignedData {
+        private DerValue encapContentInfo;
+        private final List<X509Certificate> certificates = new ArrayList<>();
+        private DerValue signerInfos;
+
+        /**
+         * @return the SignedData held by the ContentInfo, or null if it holds something else
+         */
+        static SignedData parse(DerValue contentInfo) throws IOException {
+            contentInfo.expect(DerValue.SEQUENCE);
+            if (!OID_SIGNED_DATA.equals(contentInfo.getChild(0).getObjectIdentifier())) {
+                return null;
+            }
+            List<DerValue> children = contentInfo.getChild(1).getChild(0).expect(DerValue.SEQUENCE).getChildren();
+
+            // version, digestAlgorithms, contentInfo, [0] certificates, [1] crls, signerInfos
+            SignedData signedData = new SignedData();
+            signedData.encapContentInfo = children.get(2).expect(DerValue.SEQUENCE);
+            for (int i = 3; i < children.size(); i++) {
+                DerValue value = children.get(i);
+                if (value.isContext(0)) {
+                    signedData.certificates.addAll(parseCertificates(value));
+                } else if (value.getTag() == DerValue.SET) {
+                    signedData.signerInfos = value;
+                }
+            }
+            return signedData;
+        }
+    }
+
+    private static List<X509Certificate> parseCertificates(DerValue certificateSet) throws IOException {
+        List<X509Certificate> certificates = new ArrayList<>();
+        try {
+            CertificateFactory factory = CertificateFactory.getInstance("X.509");
+            for (DerValue certificate : certificateSet.getChildren()) {
+                if (certificate.getTag() == DerValue.SEQUENCE) {
+                    certificates.add((X509Certificate) factory.generateCertificate(
+                            new ByteArrayInputStream(certificate.getEncoded())));
+                }
+            }
+        } catch (CertificateException e) {
+            throw new IOException("Invalid certificate in Authenticode signature", e);
+        }
+        return certificates;
+    }
+
+    private static X509Certificate findSigner(DerValue signerIdentifier, List<X509Certificate> certificates)
+            throws IOException {
+        if (signerIdentifier.isContext(0)) {
+            // [0] subjectKeyIdentifier, used by some timestamp authorities
+            byte[] keyIdentifier = signerIdentifier.getContent();
+            for (X509Certificate certificate : certificates) {
+                byte[] extension = certificate.getExtensionValue(OID_SUBJECT_KEY_IDENTIFIER);
+                if (extension != null && Arrays.equals(keyIdentifier,
+                        DerValue.parse(DerValue.parse(extension).getOctetString()).getOctetString())) {
+                    return certificate;
+                }
+            }
+            return null;
+        }
+        byte[] issuer = signerIdentifier.getChild(0).getEncoded();
+        BigInteger serialNumber = signerIdentifier.getChild(1).getInteger();
+        for (X509Certificate certificate : certificates) {
+            if (certificate.getSerialNumber().equals(serialNumber)
+                    && Arrays.equals(certificate.getIssuerX500Principal().getEncoded(), issuer)) {
+                return certificate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks that the signed attributes hold the digest of the signed content, and that the
+     * signer's key signed them.
+     *
+     * @param signerInfo the SignerInfo's fields
+     * @param content the content the signature covers
+     * @param signer the signer's certificate
+     */
+    private static boolean verifySignerInfo(List<DerValue> signerInfo, byte[] content, X509Certificate signer)
+            throws IOException {
+        // version, issuerAndSerialNumber, digestAlgorithm, [0] signedAttrs, signatureAlgorithm, signature, [1] unsignedAttrs
+        String digestAlgorithm = digestAlgorithm(signerInfo.get(2));
+        DerValue signedAttributes = signedAttributes(signerInfo);
+        byte[] signature = signatureValue(signerInfo);
+
+        byte[] signedContent;
+        if (signedAttributes != null) {
+            byte[] contentDigest = digest(digestAlgorithm).digest(content);
+            DerValue messageDigest = findAttribute(signedAttributes, OID_MESSAGE_DIGEST);
+            if (messageDigest == null || !Arrays.equals(contentDigest, messageDigest.getOctetString())) {
+                return false;
+            }
+            // Signed attributes are signed as a SET, not with their [0] IMPLICIT tag
+            signedContent = signedAttributes.getEncoded();
+            signedContent[0] = (byte) DerValue.SET;
+        } else {
+            signedContent = content;
+        }
+
+        try {
+            Signature verifier = Signature.getInstance(signatureAlgorithm(digestAlgorithm, signer));
+            verifier.initVerify(signer.getPublicKey());
+            verifier.update(signedContent);
+            return verifier.verify(signature);
+        } catch (GeneralSecurityException e) {
+            return false;
+        }
+    }
+
+    private static DerValue signedAttributes(List<DerValue> signerInfo) {
+        return signerInfo.get(3).isContext(0) ? signerInfo.get(3) : null;
+    }
+
+    private static byte[] signatureValue(List<DerValue> signerInfo) throws IOException {
+        return signerInfo.get(signedAttributes(signerInfo) != null ? 5 : 4).getOctetString();
+    }
+
+    private static String signatureAlgorithm(String digestAlgorithm, X509Certificate signer) {
+        String keyAlgorithm = signer.getPublicKey().getAlgorithm();
+        if ("EC".equals(keyAlgorithm)) {
+            keyAlgorithm = "ECDSA";
+        }
+        return digestAlgorithm.replace("-", "") + "with" + keyAlgorithm;
+    }
+
+    /**
+     * Finds a legacy countersignature or an RFC 3161 timestamp over the signature, and verifies
+     * that the timestamp authority signed it.
+     *
+     * @param signerInfo the signer's SignerInfo fields
+     * @param certificates the certificates embedded in the signature
+     * @return the timestamp, or null if there is none or it doesn't verify
+     */
+    private static Timestamp findTimestamp(List<DerValue> signerInfo, List<X509Certificate> certificates) {
+        try {
+            DerValue unsignedAttributes = signerInfo.get(signerInfo.size() - 1);
+            if (!unsignedAttributes.isContext(1)) {
+                return null;
+            }
+            byte[] signature = signatureValue(signerInfo);
+
+            DerValue counterSignature = findAttribute(unsignedAttributes, OID_COUNTER_SIGNATURE);
+            if (counterSignature != null) {
+                // A SignerInfo over the signature value; its signer is among the outer certificates
+                List<DerValue> counterSignerInfo = counterSignature.expect(DerValue.SEQUENCE).getChildren();
+                X509Certificate authority = findSigner(counterSignerInfo.get(1), certificates);
+                DerValue signedAttributes = signedAttributes(counterSignerInfo);
+                if (authority == null || signedAttributes == null
+                        || !verifySignerInfo(counterSignerInfo, signature, authority)) {
+                    return null;
+                }
+                DerValue signingTime = findAttribute(signedAttributes, OID_SIGNING_TIME);
+                return signingTime != null ? new Timestamp(signingTime.getTime(), authority, certificates) : null;
+            }
+
+            DerValue timestampToken = findAttribute(unsignedAttributes, OID_RFC3161_TIMESTAMP);
+            if (timestampToken != null) {
+                return readTimestampToken(timestampToken, signature);
+            }
+        } catch (IOException | RuntimeException e) {
+            // A malformed timestamp just means the signature isn't timestamped
+        }
+        return null;
+    }
+
+    /**
+     * Verifies an RFC 3161 timestamp token: its message imprint must be the digest of the signature
+     * value, and the timestamp authority must have signed the TSTInfo.
+     */
+    private static Timestamp readTimestampToken(DerValue timestampToken, byte[] signature) throws IOException {
+        SignedData token = SignedData.parse(timestampToken);
+        if (token == null || token.signerInfos == null || token.signerInfos.getChildren().isEmpty()
+                || !OID_TST_INFO.equals(token.encapContentInfo.getChild(0).getObjectIdentifier())) {
+            return null;
+        }
+        byte[] tstInfo = token.encapContentInfo.getChild(1).getChild(0).getOctetString();
+
+        // version, policy, messageImprint, serialNumber, genTime
+        DerValue tst = DerValue.parse(tstInfo).expect(DerValue.SEQUENCE);
+        DerValue messageImprint = tst.getChild(2).expect(DerValue.SEQUENCE);
+        byte[] expectedImprint = digest(digestAlgorithm(messageImprint.getChild(0))).digest(signature);
+        if (!Arrays.equals(expectedImprint, messageImprint.getChild(1).getOctetString())) {
+            return null;
+        }
+
+        List<DerValue> signerInfo = token.signerInfos.getChild(0).expect(DerValue.SEQUENCE).getChildren();
+        X509Certificate authority = findSigner(signerInfo.get(1), token.certificates);
+        if (authority == null || !verifySignerInfo(signerInfo, tstInfo, authority)) {
+            return null;
+        }
+        return new Timestamp(tst.getChild(4).getTime(), authority, token.certificates);
+    }
+
+    private static DerValue findAttribute(DerValue attributes, String oid) throws IOException {
+        for (DerValue attribute : attributes.getChildren()) {
+            if (oid.equals(attribute.getChild(0).getObjectIdentifier())) {
+                List<DerValue> values = attribute.getChild(1).expect(DerValue.SET).getChildren();
+                return values.isEmpty() ? null : values.get(0);
+            }
+        }
+        return null;
+    }
+
+    private static String digestAlgorithm(DerValue algorithmIdentifier) throws IOException {
+        String oid = algorithmIdentifier.getChild(0).getObjectIdentifier();
+        String algorithm = DIGEST_ALGORITHMS.get(oid);
+        if (algorithm == null) {
+            throw new IOException("Unsupported digest algorithm in Authenticode signature: " + oid);
+        }
+        return algorithm;
+    }
+
+    private static MessageDigest digest(String algorithm) throws IOException {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("Digest algorithm not available: " + algorithm, e);
+        }
+    }
+
+    /**
+     * Computes the Authenticode digest of a PE file: every byte except the checksum, the security
+     * directory entry and the certificate table itself.
+     */
+    private static byte[] computeImageDigest(RandomAccessFile file, PeLayout layout, String algorithm)
+            throws IOException {
+        MessageDigest digest = digest(algorithm);
+        long certTableEnd = layout.certTableOffset + layout.certTableSize;
+        updateDigest(digest, file, 0, layout.checksumOffset);
+        updateDigest(digest, file, layout.checksumOffset + 4, layout.securityDirectoryOffset);
+        updateDigest(digest, file, layout.securityDirectoryOffset + 8, layout.certTableOffset);
+        updateDigest(digest, file, certTableEnd, file.length());
+        return digest.digest();
+    }
+
+    private static void updateDigest(MessageDigest digest, RandomAccessFile file, long from, long to)
+            throws IOException {
+        byte[] buffer = new byte[65536];
+        file.seek(from);
+        long remaining = to - from;
+        while (remaining > 0) {
+            int read = file.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) {
+                throw new IOException("Unexpected end of file while hashing");
+            }
+            digest.update(buffer, 0, read);
+            remaining -= read;
+        }
+    }
+
+    /**
+     * The locations of the PE header fields that Authenticode excludes from the digest.
+     */
+    private static final class PeLayout {
+        private long checksumOffset;
+        private long securityDirectoryOffset;
+        private long certTableOffset;
+        private long certTableSize;
+
+        /**
+         * @return the layout, or null if the file isn't a PE file
+         */
+        static PeLayout read(RandomAccessFile file) throws IOException {
+            long fileLength = file.length();
+            if (fileLength < 0x40) {
+                return null;
+            }
+            byte[] dosHeader = new byte[0x40];
+            file.seek(0);
+            file.readFully(dosHeader);
+            if (dosHeader[0] != 'M' || dosHeader[1] != 'Z') {
+                return null;
+            }
+
+            long peOffset = readUInt32(dosHeader, 0x3C);
+            // PE signature (4) + COFF header (20) + optional header up to the data directories (112)
+            // + the first five data directories (40)
+            byte[] headers = new byte[4 + 20 + 112 + 40];
+            if (peOffset + headers.length > fileLength) {
+                return null;
+            }
+            file.seek(peOffset);
+            file.readFully(headers);
+            if (headers[0] != 'P' || headers[1] != 'E' || headers[2] != 0 || headers[3] != 0) {
+                return null;
+            }
+
+            int optionalHeader = 24;
+            int magic = readUInt16(headers, optionalHeader);
+            int numberOfRvaAndSizes;
+            int dataDirectories;
+            if (magic == 0x10B) {
+                numberOfRvaAndSizes = (int) readUInt32(headers, optionalHeader + 92);
+                dataDirectories = optionalHeader + 96;
+            } else if (magic == 0x20B) {
+                numberOfRvaAndSizes = (int) readUInt32(headers, optionalHeader + 108);
+                dataDirectories = optionalHeader + 112;
+            } else {
+                return null;
+            }
+
+            PeLayout layout = new PeLayout();
+            layout.checksumOffset = peOffset + optionalHeader + 64;
+            int securityDirectory = dataDirectories + SECURITY_DIRECTORY_INDEX * 8;
+            layout.securityDirectoryOffset = peOffset + securityDirectory;
+            if (numberOfRvaAndSizes > SECURITY_DIRECTORY_INDEX) {
+                // For the security directory, the "virtual address" is a file offset
+                layout.certTableOffset = readUInt32(headers, securityDirectory);
+                layout.certTableSize = readUInt32(headers, securityDirectory + 4);
+                if (layout.certTableOffset != 0 && (layout.certTableOffset + layout.certTableSize > fileLength
+                        || layout.certTableOffset < layout.securityDirectoryOffset + 8)) {
+                    throw new IOException("Authenticode certificate table lies outside the file");
+                }
+            }
+            return layout;
+        }
+    }
+
+    private static long readUInt32(byte[] data, int offset) {
+        return (data[offset] & 0xFFL)
+                | (data[offset + 1] & 0xFFL) << 8
+                | (data[offset + 2] & 0xFFL) << 16
+                | (data[offset + 3] & 0xFFL) << 24;
+    }
+
+    private static int readUInt16(byte[] data, int offset) {
+        return (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8;
+    }
+}
@@ -0,0 +1,190 @@
+package ca.weblite.jdeploy.installer.win;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * A single DER-encoded ASN.1 value, read in place from a byte array.
+ * Supports just enough of DER to walk PKCS#7 structures.
+ */
+final class DerValue {
+
+    static final int INTEGER = 0x02;
+    static final int OCTET_STRING = 0x04;
+    static final int OBJECT_IDENTIFIER = 0x06;
+    static final int UTC_TIME = 0x17;
+    static final int GENERALIZED_TIME = 0x18;
+    static final int SEQUENCE = 0x30;
+    static final int SET = 0x31;
+
+    private final byte[] data;
+    private final int start;
+    private final int contentStart;
+    private final int end;
+
+    private DerValue(byte[] data, int start, int contentStart, int end) {
+        this.data = data;
+        this.start = start;
+        this.contentStart = contentStart;
+        this.end = end;
+    }
+
+    static DerValue parse(byte[] data) throws IOException {
+        return read(data, 0, data.length);
+    }
+
+    private static DerValue read(byte[] data, int offset, int limit) throws IOException {
+        if (offset + 2 > limit) {
+            throw new IOException("Truncated DER value");
+        }
+        if ((data[offset] & 0x1F) == 0x1F) {
+            throw new IOException("Unsupported DER tag");
+        }
+        int pos = offset + 1;
+        int length = data[pos++] & 0xFF;
+        if (length == 0x80) {
+            throw new IOException("Indefinite-length encoding is not DER");
+        }
+        if (length > 0x80) {
+            int numBytes = length & 0x7F;
+            if (numBytes > 4 || pos + numBytes > limit) {
+                throw new IOException("Invalid DER length");
+            }
+            length = 0;
+            for (int i = 0; i < numBytes; i++) {
+                length = (length << 8) | (data[pos++] & 0xFF);
+            }
+            if (length < 0) {
+                throw new IOException("Invalid DER length");
+            }
+        }
+        if (length > limit - pos) {
+            throw new IOException("DER value extends past its container");
+        }
+        return new DerValue(data, offset, pos, pos + length);
+    }
+
+    int getTag() {
+        return data[start] & 0xFF;
+    }
+
+    /**
+     * @return true if this is the given context-specific, constructed tag, i.e. {@code [n]}
+     */
+    boolean isContext(int number) {
+        return getTag() == (0xA0 | number);
+    }
+
+    /**
+     * @return the values contained in this constructed value
+     */
+    List<DerValue> getChildren() throws IOException {
+        List<DerValue> children = new ArrayList<>();
+        int pos = contentStart;
+        while (pos < end) {
+            DerValue child = read(data, pos, end);
+            children.add(child);
+            pos = child.end;
+        }
+        return children;
+    }
+
+    DerValue getChild(int index) throws IOException {
+        List<DerValue> children = getChildren();
+        if (index >= children.size()) {
+            throw new IOException("Missing element " + index + " in DER structure");
+        }
+        return children.get(index);
+    }
+
+    /**
+     * @return the complete encoding, including tag and length
+     */
+    byte[] getEncoded() {
+        return Arrays.copyOfRange(data, start, end);
+    }
+
+    /**
+     * @return the content octets, excluding tag and length
+     */
+    byte[] getContent() {
+        return Arrays.copyOfRange(data, contentStart, end);
+    }
+
+    DerValue expect(int tag) throws IOException {
+        if (getTag() != tag) {
+            throw new IOException(String.format("Expected DER tag 0x%02x but found 0x%02x", tag, getTag()));
+        }
+        return this;
+    }
+
+    String getObjectIdentifier() throws IOException {
+        expect(OBJECT_IDENTIFIER);
+        if (contentStart == end) {
+            throw new IOException("Empty object identifier");
+        }
+        StringBuilder sb = new StringBuilder();
+        long value = 0;
+        boolean first = true;
+        for (int i = contentStart; i < end; i++) {
+            value = (value << 7) | (data[i] & 0x7F);
+            if ((data[i] & 0x80) == 0) {
+                if (first) {
+                    int firstArc = (int) Math.min(value / 40, 2);
+                    sb.append(firstArc).append('.').append(value - firstArc * 40L);
+                    first = false;
+                } else {
+                    sb.append('.').append(value);
+                }
+                value = 0;
+            }
+        }
+        return sb.toString();
+    }
+
+    BigInteger getInteger() throws IOException {
+        expect(INTEGER);
+        return new BigInteger(getContent());
+    }
+
+    byte[] getOctetString() throws IOException {
+        expect(OCTET_STRING);
+        return getContent();
+    }
+
+    Date getTime() throws IOException {
+        String text = new String(data, contentStart, end - contentStart, "US-ASCII");
+        if (getTag() == UTC_TIME) {
+            // Two-digit years 50-99 are 19xx (RFC 5280)
+            if (text.length() < 2 || !Character.isDigit(text.charAt(0))) {
+                throw new IOException("Invalid time: " + text);
+            }
+            text = (text.charAt(0) >= '5' ? "19" : "20") + text;
+        } else if (getTag() == GENERALIZED_TIME) {
+            int fraction = text.indexOf('.');
+            if (fraction >= 0) {
+                text = text.substring(0, fraction) + "Z";
+            }
+        } else {
+            throw new IOException(String.format("Expected a time but found DER tag 0x%02x", getTag()));
+        }
+        if (!text.endsWith("Z")) {
+            throw new IOException("Unsupported time format: " + text);
+        }
+        SimpleDateFormat format = new SimpleDateFormat("yyyyMMddHHmmss");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        format.setLenient(false);
+        try {
+            return format.parse(text.substring(0, text.length() - 1));
+        } catch (ParseException e) {
+            throw new IOException("Invalid time: " + text, e);
+        }
+    }
+}
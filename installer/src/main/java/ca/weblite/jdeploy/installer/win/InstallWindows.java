@@ -16,6 +16,7 @@ import ca.weblite.jdeploy.installer.uninstall.model.UninstallManifest;
 import ca.weblite.jdeploy.installer.util.ArchitectureUtil;
 import ca.weblite.jdeploy.installer.util.CliCommandBinDirResolver;
 import ca.weblite.jdeploy.installer.util.WindowsAppDirResolver;
+import ca.weblite.jdeploy.helpers.LauncherWriterHelper;
 import ca.weblite.tools.io.FileUtil;
 import com.izforge.izpack.util.os.ShellLink;
 import com.joshondesign.appbundler.win.WindowsPESubsystemModifier;
@@ -118,6 +119,10 @@ public class InstallWindows {
             logger.logDirectoryOperation(InstallationLogger.DirectoryOperation.CREATED, appDir.getAbsolutePath());
         }
 
+        // Start the uninstall manifest now, journalled to disk, so that an installation that is
+        // interrupted before the manifest is written can still be uninstalled
+        UninstallManifestBuilder manifestBuilder = startUninstallManifest(appInfo, installationSettings, appDir);
+
         String nameSuffix = "";
 
         if (appInfo.getNpmVersion().startsWith("0.0.0-")) {
@@ -140,8 +145,7 @@ public class InstallWindows {
                 logger.logSection("Installing Application Executable");
             }
             boolean exeExisted = exePath.exists();
-            FileUtil.copy(tmpExePath, exePath);
-            exePath.setExecutable(true, false);
+            LauncherWriterHelper.copyLauncher(tmpExePath, exePath);
             if (logger != null) {
                 logger.logFileOperation(
                     exeExisted ? InstallationLogger.FileOperation.OVERWRITTEN : InstallationLogger.FileOperation.CREATED,
@@ -150,7 +154,8 @@ public class InstallWindows {
                 );
             }
 
-            // Copy CLI launcher if CLI commands will be installed
+            // Copy CLI launcher if CLI commands will be installed.  It is stamped with the same
+            // app.xml as the GUI launcher, so it is derived from the installed copy.
             if (installationSettings.isInstallCliCommands()) {
                 cliExePath = new File(exePath.getParentFile(),
                         exePath.getName().replace(".exe", CliInstallerConstants.CLI_LAUNCHER_SUFFIX + ".exe"));
@@ -266,19 +271,10 @@ public class InstallWindows {
 
             // Build and write uninstall manifest
             try {
-                UninstallManifestBuilder manifestBuilder = new UninstallManifestBuilder();
-                
-                // Set package info
-                String arch = ArchitectureUtil.getArchitecture();
-                manifestBuilder.withPackageInfo(
-                    appInfo.getNpmPackage(),
-                    appInfo.getNpmSource(),
-                    appInfo.getNpmVersion(),
-                    arch
-                );
-                manifestBuilder.withWinAppDir(installationSettings.getWinAppDir());
-                manifestBuilder.withInstallerVersion(appInfo.getLauncherVersion() != null ? appInfo.getLauncherVersion() : "1.0");
-                
+                if (manifestBuilder == null) {
+                    throw new IllegalStateException("Uninstall manifest could not be started");
+                }
+
                 // Add executable
                 manifestBuilder.addFile(exePath.getAbsolutePath(), UninstallManifest.FileType.BINARY, "Main application executable");
                 
@@ -333,9 +329,6 @@ public class InstallWindows {
                     manifestBuilder.addWindowsPathEntry(perAppBinDir.getAbsolutePath(), "CLI commands bin directory");
                 }
                 
-                // Add app directory
-                manifestBuilder.addDirectory(appDir.getAbsolutePath(), UninstallManifest.CleanupStrategy.ALWAYS, "Application directory");
-                
                 // Write manifest
                 UninstallManifestWriter writer = new UninstallManifestWriter(true); // skip schema validation
                 UninstallManifest manifest = manifestBuilder.build();
@@ -366,6 +359,40 @@ public class InstallWindows {
         }
     }
 
+    /**
+     * Creates the uninstall manifest builder for this installation and journals its entries to disk
+     * as they are added.  Returns null if the manifest can't be started; the installation goes ahead
+     * without one, as it does when the manifest can't be written.
+     */
+    private UninstallManifestBuilder startUninstallManifest(
+            AppInfo appInfo,
+            InstallationSettings installationSettings,
+            File appDir
+    ) {
+        try {
+            UninstallManifestBuilder manifestBuilder = new UninstallManifestBuilder();
+            manifestBuilder.withPackageInfo(
+                appInfo.getNpmPackage(),
+                appInfo.getNpmSource(),
+                appInfo.getNpmVersion(),
+                ArchitectureUtil.getArchitecture()
+            );
+            manifestBuilder.withWinAppDir(installationSettings.getWinAppDir());
+            manifestBuilder.withInstallerVersion(appInfo.getLauncherVersion() != null ? appInfo.getLauncherVersion() : "1.0");
+            try {
+                manifestBuilder.withJournal(new UninstallManifestWriter(true)
+                        .getJournalFile(appInfo.getNpmPackage(), appInfo.getNpmSource()));
+            } catch (IOException e) {
+                System.err.println("Warning: Failed to create uninstall manifest journal: " + e.getMessage());
+            }
+            manifestBuilder.addDirectory(appDir.getAbsolutePath(), UninstallManifest.CleanupStrategy.ALWAYS, "Application directory");
+            return manifestBuilder;
+        } catch (Exception e) {
+            System.err.println("Warning: Failed to start uninstall manifest: " + e.getMessage());
+            return null;
+        }
+    }
+
     private File installWindowsLink(
             AppInfo appInfo,
             int type,
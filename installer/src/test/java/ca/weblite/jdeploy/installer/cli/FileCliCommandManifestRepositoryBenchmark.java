@@ -0,0 +1,161 @@
+package ca.weblite.jdeploy.installer.cli;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures command owner lookups and manifest updates with {@value #PACKAGE_COUNT} installed
+ * packages of two commands each, comparing the command index with loading every manifest.
+ * Lookups through the index still stat every package directory to notice manifests written
+ * without updating it.
+ *
+ * Not part of the regular test run (the name doesn't end in Test). Run it with:
+ *
+ * <pre>
+ * mvn -pl shared,installer test -Dtest=FileCliCommandManifestRepositoryBenchmark -Dsurefire.failIfNoSpecifiedTests=false
+ * </pre>
+ */
+public class FileCliCommandManifestRepositoryBenchmark {
+
+    private static final int PACKAGE_COUNT = 1000;
+    private static final int ROUNDS = 5;
+
+    private File tempDir;
+    private String originalUserHome;
+    private long timestamp;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        tempDir = Files.createTempDirectory("cli-manifest-benchmark").toFile();
+        originalUserHome = System.getProperty("user.home");
+        System.setProperty("user.home", tempDir.getAbsolutePath());
+
+        timestamp = System.currentTimeMillis();
+        FileCliCommandManifestRepository repository = new FileCliCommandManifestRepository();
+        for (int i = 0; i < PACKAGE_COUNT; i++) {
+            repository.save(manifest(i, timestamp));
+        }
+        // Directories modified within the last two seconds are reloaded on every lookup
+        Thread.sleep(2500);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        System.setProperty("user.home", originalUserHome);
+        FileUtils.deleteDirectory(tempDir);
+    }
+
+    @Test
+    public void benchmarkFindOwner() throws Exception {
+        String command = "app" + (PACKAGE_COUNT - 1) + "-b";
+        File indexFile = new FileCliCommandManifestRepository().getIndexFile();
+
+        long[] scan = new long[ROUNDS];
+        long[] rebuild = new long[ROUNDS];
+        long[] fresh = new long[ROUNDS];
+        long[] cached = new long[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            assertEquals("app" + (PACKAGE_COUNT - 1), scanForOwner(command));
+            scan[round] = System.nanoTime() - start;
+
+            assertTrue(indexFile.delete());
+            start = System.nanoTime();
+            assertTrue(new FileCliCommandManifestRepository().findOwner(command).isPresent());
+            rebuild[round] = System.nanoTime() - start;
+
+            FileCliCommandManifestRepository repository = new FileCliCommandManifestRepository();
+            start = System.nanoTime();
+            assertTrue(repository.findOwner(command).isPresent());
+            fresh[round] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            assertTrue(repository.findOwner(command).isPresent());
+            cached[round] = System.nanoTime() - start;
+        }
+
+        System.out.println("Owner lookup with " + PACKAGE_COUNT + " manifests, median of " + ROUNDS + " rounds:");
+        System.out.println("  load every manifest:               " + millis(median(scan)) + " ms");
+        System.out.println("  findOwner, index missing (rebuild): " + millis(median(rebuild)) + " ms");
+        System.out.println("  findOwner, new repository instance: " + millis(median(fresh)) + " ms");
+        System.out.println("  findOwner, cached index:            " + millis(median(cached)) + " ms");
+    }
+
+    @Test
+    public void benchmarkSaveAndDelete() throws Exception {
+        FileCliCommandManifestRepository repository = new FileCliCommandManifestRepository();
+        File indexFile = repository.getIndexFile();
+
+        long[] save = new long[ROUNDS];
+        long[] delete = new long[ROUNDS];
+        long[] deleteWithoutIndex = new long[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            int extra = PACKAGE_COUNT + round;
+
+            long start = System.nanoTime();
+            repository.save(manifest(extra, timestamp + 1));
+            save[round] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            repository.delete("app" + extra, null);
+            delete[round] = System.nanoTime() - start;
+
+            repository.save(manifest(extra, timestamp + 1));
+            assertTrue(indexFile.delete());
+            start = System.nanoTime();
+            repository.delete("app" + extra, null);
+            deleteWithoutIndex[round] = System.nanoTime() - start;
+            assertFalse(indexFile.exists());
+
+            // Restore the index for the next round
+            assertFalse(repository.findOwner("app" + extra + "-a").isPresent());
+        }
+
+        System.out.println("Updates with " + PACKAGE_COUNT + " manifests, median of " + ROUNDS + " rounds:");
+        System.out.println("  save:                  " + millis(median(save)) + " ms");
+        System.out.println("  delete:                " + millis(median(delete)) + " ms");
+        System.out.println("  delete, index missing: " + millis(median(deleteWithoutIndex)) + " ms");
+    }
+
+    /**
+     * Finds a command's owner the way it had to be done without the index.
+     */
+    private String scanForOwner(String command) throws Exception {
+        FileCliCommandManifestRepository repository = new FileCliCommandManifestRepository();
+        String owner = null;
+        long ownerTimestamp = Long.MIN_VALUE;
+        for (int i = 0; i < PACKAGE_COUNT; i++) {
+            Optional<CliCommandManifest> manifest = repository.load("app" + i, null);
+            if (manifest.isPresent() && manifest.get().getCommandNames().contains(command)
+                    && manifest.get().getTimestamp() >= ownerTimestamp) {
+                owner = manifest.get().getPackageName();
+                ownerTimestamp = manifest.get().getTimestamp();
+            }
+        }
+        return owner;
+    }
+
+    private CliCommandManifest manifest(int i, long timestamp) {
+        return new CliCommandManifest("app" + i, null, new File(tempDir, "bin/app" + i),
+                Arrays.asList("app" + i + "-a", "app" + i + "-b"), true, timestamp);
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f", nanos / 1_000_000.0);
+    }
+}
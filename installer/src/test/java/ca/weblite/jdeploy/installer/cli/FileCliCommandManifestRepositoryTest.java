@@ -325,4 +325,181 @@ public class FileCliCommandManifestRepositoryTest {
         assertEquals(source1, loaded1.get().getSource());
         assertEquals(source2, loaded2.get().getSource());
     }
+
+    @Test
+    public void testFindOwner() throws Exception {
+        // Arrange
+        File binDir = new File(tempDir, "bin");
+        String source = "https://github.com/user/repo";
+        long timestamp = System.currentTimeMillis();
+        repository.save(new CliCommandManifest("app1", null, binDir, Arrays.asList("cmd1", "shared"), true, timestamp));
+        repository.save(new CliCommandManifest("app2", source, binDir, Arrays.asList("cmd2"), true, timestamp));
+        // app3 was installed later and overwrote the "shared" wrapper
+        repository.save(new CliCommandManifest("app3", null, binDir, Arrays.asList("shared"), true, timestamp + 1));
+
+        // Act & Assert
+        assertEquals("app1", repository.findOwner("cmd1").get().getPackageName());
+        assertEquals(source, repository.findOwner("cmd2").get().getSource());
+        assertEquals("app3", repository.findOwner("shared").get().getPackageName());
+        assertFalse(repository.findOwner("missing").isPresent());
+
+        // A fresh repository reads the same answers from the index file
+        FileCliCommandManifestRepository other = new FileCliCommandManifestRepository();
+        assertEquals("app2", other.findOwner("cmd2").get().getPackageName());
+    }
+
+    @Test
+    public void testFindOwnerAfterReinstallAndDelete() throws Exception {
+        // Arrange
+        File binDir = new File(tempDir, "bin");
+        long timestamp = System.currentTimeMillis();
+        repository.save(new CliCommandManifest("app1", null, binDir, Arrays.asList("old-cmd"), true, timestamp));
+        repository.save(new CliCommandManifest("app1", null, binDir, Arrays.asList("new-cmd"), true, timestamp + 1));
+        repository.save(new CliCommandManifest("app2", null, binDir, Arrays.asList("cmd2"), true, timestamp));
+
+        // Act & Assert
+        assertFalse(repository.findOwner("old-cmd").isPresent(), "Commands dropped by a reinstall have no owner");
+        assertEquals("app1", repository.findOwner("new-cmd").get().getPackageName());
+
+        repository.delete("app1", null);
+        assertFalse(repository.findOwner("new-cmd").isPresent());
+        assertEquals("app2", repository.findOwner("cmd2").get().getPackageName());
+    }
+
+    @Test
+    public void testShadowedCommandReturnsToPreviousOwner() throws Exception {
+        // Arrange
+        File binDir = new File(tempDir, "bin");
+        long timestamp = System.currentTimeMillis();
+        repository.save(new CliCommandManifest("app1", null, binDir, Arrays.asList("shared"), true, timestamp));
+        repository.save(new CliCommandManifest("app2", null, binDir, Arrays.asList("shared"), true, timestamp + 1));
+        repository.save(new CliCommandManifest("app3", null, binDir, Arrays.asList("shared"), true, timestamp + 2));
+        assertEquals("app3", repository.findOwner("shared").get().getPackageName());
+
+        // Act & Assert
+        repository.save(new CliCommandManifest("app3", null, binDir, Arrays.asList("other"), true, timestamp + 3));
+        assertEquals("app2", repository.findOwner("shared").get().getPackageName(),
+                "A reinstall that drops the command hands it back");
+
+        repository.delete("app2", null);
+        assertEquals("app1", repository.findOwner("shared").get().getPackageName());
+        assertEquals("app1", new FileCliCommandManifestRepository().findOwner("shared").get().getPackageName());
+
+        repository.delete("app1", null);
+        assertFalse(repository.findOwner("shared").isPresent());
+    }
+
+    @Test
+    public void testDeleteLeavesMissingIndexToNextLookup() throws Exception {
+        // Arrange
+        File binDir = new File(tempDir, "bin");
+        long timestamp = System.currentTimeMillis();
+        repository.save(new CliCommandManifest("app1", null, binDir, Arrays.asList("cmd1"), true, timestamp));
+        repository.save(new CliCommandManifest("app2", null, binDir, Arrays.asList("cmd2"), true, timestamp));
+        File indexFile = repository.getIndexFile();
+        assertTrue(indexFile.delete());
+
+        // Act
+        repository.delete("app1", null);
+
+        // Assert
+        assertFalse(indexFile.exists(), "Delete should not rebuild the index");
+        assertFalse(repository.load("app1", null).isPresent());
+        assertFalse(repository.findOwner("cmd1").isPresent());
+        assertEquals("app2", repository.findOwner("cmd2").get().getPackageName());
+        assertTrue(indexFile.exists());
+    }
+
+    @Test
+    public void testIndexRebuiltWhenMissingOrStale() throws Exception {
+        // Arrange
+        File binDir = new File(tempDir, "bin");
+        long timestamp = System.currentTimeMillis();
+        repository.save(new CliCommandManifest("app1", null, binDir, Arrays.asList("cmd1"), true, timestamp));
+        repository.save(new CliCommandManifest("app2", null, binDir, Arrays.asList("cmd2"), true, timestamp));
+        File indexFile = repository.getIndexFile();
+        assertTrue(indexFile.exists());
+
+        // Missing index
+        assertTrue(indexFile.delete());
+        assertEquals("app1", new FileCliCommandManifestRepository().findOwner("cmd1").get().getPackageName());
+        assertTrue(indexFile.exists(), "Index should be rewritten after a rebuild");
+
+        // Corrupt index
+        FileUtils.writeStringToFile(indexFile, "garbage", "UTF-8");
+        assertEquals("app2", new FileCliCommandManifestRepository().findOwner("cmd2").get().getPackageName());
+
+        // Package directory removed behind the repository's back
+        String arch = ArchitectureUtil.getArchitecture();
+        File archDir = new File(tempDir, ".jdeploy" + File.separator + "manifests" + File.separator + arch);
+        FileUtils.deleteDirectory(new File(archDir,
+                CliCommandBinDirResolver.computeFullyQualifiedPackageName("app1", null)));
+        assertFalse(repository.findOwner("cmd1").isPresent());
+        assertEquals("app2", repository.findOwner("cmd2").get().getPackageName());
+    }
+
+    @Test
+    public void testManifestWrittenWithoutIndexIsSeen() throws Exception {
+        // Arrange
+        File binDir = new File(tempDir, "bin");
+        long timestamp = System.currentTimeMillis() - 10000;
+        repository.save(new CliCommandManifest("app1", null, binDir, Arrays.asList("cmd1"), true, timestamp));
+        repository.save(new CliCommandManifest("app2", null, binDir, Arrays.asList("cmd2"), true, timestamp));
+        File packageDir = manifestDirectory("app1");
+        File archDir = packageDir.getParentFile();
+        long archModified = archDir.lastModified();
+        backdate(packageDir, 10000);
+        backdate(manifestDirectory("app2"), 10000);
+        assertEquals("app1", repository.findOwner("cmd1").get().getPackageName());
+
+        // Act: an installer that doesn't know about the index writes a newer manifest for app1
+        FileUtils.writeStringToFile(new File(packageDir, "app1-" + (timestamp + 1) + ".json"),
+                "{\"packageName\":\"app1\",\"source\":null,\"binDir\":\"" + binDir.getAbsolutePath().replace("\\", "\\\\")
+                        + "\",\"commandNames\":[\"cmd2\"],\"pathUpdated\":true,\"timestamp\":" + (timestamp + 1) + "}",
+                "UTF-8");
+        assertTrue(archDir.setLastModified(archModified));
+
+        // Assert
+        assertFalse(repository.findOwner("cmd1").isPresent());
+        assertEquals("app1", repository.findOwner("cmd2").get().getPackageName());
+        assertEquals("app1", new FileCliCommandManifestRepository().findOwner("cmd2").get().getPackageName());
+    }
+
+    @Test
+    public void testChangeWithinModificationTimeResolutionIsSeen() throws Exception {
+        // Arrange
+        File binDir = new File(tempDir, "bin");
+        long timestamp = System.currentTimeMillis();
+        repository.save(new CliCommandManifest("app1", null, binDir, Arrays.asList("cmd1"), true, timestamp));
+        File packageDir = manifestDirectory("app1");
+        long packageModified = packageDir.lastModified();
+        assertEquals("app1", repository.findOwner("cmd1").get().getPackageName());
+
+        // Act: change the package directory without changing its modification time, as happens
+        // twice within the same tick of a filesystem that only keeps whole seconds
+        File manifestFile = packageDir.listFiles()[0];
+        FileUtils.writeStringToFile(manifestFile,
+                FileUtils.readFileToString(manifestFile, "UTF-8").replace("cmd1", "cmd3"), "UTF-8");
+        assertTrue(packageDir.setLastModified(packageModified));
+
+        // Assert
+        assertFalse(repository.findOwner("cmd1").isPresent());
+        assertEquals("app1", repository.findOwner("cmd3").get().getPackageName());
+    }
+
+    @Test
+    public void testFindOwnerWithNoManifests() throws Exception {
+        assertFalse(repository.findOwner("cmd").isPresent());
+        assertFalse(new File(tempDir, ".jdeploy").exists(), "Lookups should not create directories");
+    }
+
+    private File manifestDirectory(String packageName) {
+        File archDir = new File(tempDir, ".jdeploy" + File.separator + "manifests" + File.separator
+                + ArchitectureUtil.getArchitecture());
+        return new File(archDir, CliCommandBinDirResolver.computeFullyQualifiedPackageName(packageName, null));
+    }
+
+    private static void backdate(File file, long millis) {
+        assertTrue(file.setLastModified(file.lastModified() - millis));
+    }
 }
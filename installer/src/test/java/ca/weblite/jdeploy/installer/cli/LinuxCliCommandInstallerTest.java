@@ -724,6 +724,47 @@ public class LinuxCliCommandInstallerTest {
         assertTrue(scriptFile.exists());
     }
 
+    @Test
+    public void testIndexedOwnerCollision_silentOverwrite() throws Exception {
+        // The script was written by this package from a launcher that has since moved
+        File oldLauncher = new File(tempDir, "old-app/launcher");
+        File scriptFile = new File(binDir, "mycmd");
+        String existingContent = "#!/bin/sh\nexec \"" + oldLauncher.getAbsolutePath() + "\" --jdeploy:command=mycmd -- \"$@\"\n";
+        Files.write(scriptFile.toPath(), existingContent.getBytes(StandardCharsets.UTF_8));
+
+        String originalUserHome = System.getProperty("user.home");
+        System.setProperty("user.home", homeDir.getAbsolutePath());
+        try {
+            new FileCliCommandManifestRepository().save(new CliCommandManifest(
+                "test-package", null, binDir, java.util.Collections.singletonList("mycmd"), true,
+                System.currentTimeMillis()));
+
+            final boolean[] handlerCalled = {false};
+            installer.setCollisionHandler((cmdName, existingPath, newPath) -> {
+                handlerCalled[0] = true;
+                return CollisionAction.SKIP;
+            });
+
+            List<CommandSpec> commands = new ArrayList<>();
+            commands.add(new CommandSpec("mycmd", null, new ArrayList<>()));
+
+            InstallationSettings settings = new InstallationSettings();
+            settings.setPackageName("test-package");
+            settings.setInstallCliCommands(true);
+            settings.setInstallCliLauncher(false);
+            settings.setCommandLinePath(new File(binDir, "test-launcher").getAbsolutePath());
+
+            List<File> created = installer.installCommands(launcherPath, commands, settings);
+
+            assertFalse(handlerCalled[0], "A script the index records as this package's own is not a collision");
+            assertEquals(1, created.size());
+            String content = new String(Files.readAllBytes(scriptFile.toPath()), StandardCharsets.UTF_8);
+            assertTrue(content.contains(launcherPath.getAbsolutePath()));
+        } finally {
+            System.setProperty("user.home", originalUserHome);
+        }
+    }
+
     @Test
     public void testDifferentAppCollision_skip() throws IOException {
         // Create existing script pointing to a DIFFERENT launcher
@@ -0,0 +1,175 @@
+package ca.weblite.jdeploy.installer.cli;
+
+import ca.weblite.tools.platform.Platform;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShellProfileEditorTest {
+
+    private static final long OLD_MTIME = 1000000000L;
+
+    private File tempDir;
+    private File homeDir;
+    private File commandsBinDir;
+    private File launcherBinDir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("jdeploy-shell-profile-test-").toFile();
+        homeDir = new File(tempDir, "home");
+        commandsBinDir = new File(homeDir, ".jdeploy/bin-x64/my-app");
+        commandsBinDir.mkdirs();
+        launcherBinDir = new File(homeDir, ".local/bin");
+        launcherBinDir.mkdirs();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(tempDir);
+    }
+
+    @Test
+    public void testAddsSeveralDirectoriesToEachFileInOnePass() throws IOException {
+        File bashrc = write(".bashrc", "export FOO=bar\n\n\n");
+        File profile = new File(homeDir, ".profile");
+
+        Map<File, ShellProfileEditor.Result> results = new ShellProfileEditor(homeDir)
+                .addPath(bashrc, commandsBinDir)
+                .addPath(bashrc, launcherBinDir)
+                .addPath(profile, commandsBinDir)
+                .apply();
+
+        String expectedExports = "# Added by jDeploy installer\n" +
+                "export PATH=\"$HOME/.jdeploy/bin-x64/my-app:$PATH\"\n\n" +
+                "# Added by jDeploy installer\n" +
+                "export PATH=\"$HOME/.local/bin:$PATH\"\n";
+        assertEquals("export FOO=bar\n\n" + expectedExports, read(bashrc));
+        assertEquals("# Added by jDeploy installer\nexport PATH=\"$HOME/.jdeploy/bin-x64/my-app:$PATH\"\n",
+                read(profile));
+
+        assertTrue(results.get(bashrc).isModified());
+        assertFalse(results.get(bashrc).isCreated());
+        assertEquals(Arrays.asList(commandsBinDir, launcherBinDir), results.get(bashrc).getAdded());
+        assertTrue(results.get(profile).isCreated());
+    }
+
+    @Test
+    public void testReinstallLeavesFilesUntouched() throws IOException {
+        write(".bashrc", "# config\n\n\n\nexport FOO=bar\n");
+        Platform linux = new Platform("Linux", "x86_64");
+        UnixPathManager.addAllToPath(Arrays.asList(commandsBinDir, launcherBinDir), "/bin/bash", "", homeDir, linux);
+
+        File[] configFiles = {
+                new File(homeDir, ".bashrc"), new File(homeDir, ".profile"), new File(homeDir, ".zshrc")
+        };
+        String[] contents = new String[configFiles.length];
+        for (int i = 0; i < configFiles.length; i++) {
+            contents[i] = read(configFiles[i]);
+            assertTrue(configFiles[i].setLastModified(OLD_MTIME));
+        }
+
+        assertTrue(UnixPathManager.addAllToPath(
+                Arrays.asList(commandsBinDir, launcherBinDir), "/bin/bash", "", homeDir, linux));
+
+        for (int i = 0; i < configFiles.length; i++) {
+            assertEquals(contents[i], read(configFiles[i]));
+            assertEquals(OLD_MTIME, configFiles[i].lastModified(), configFiles[i].getName() + " should not be rewritten");
+        }
+    }
+
+    @Test
+    public void testRemovalWithNothingToRemoveDoesNotRewrite() throws IOException {
+        File zshrc = write(".zshrc", "export FOO=bar\r\nexport BAZ=qux\r\n");
+        assertTrue(zshrc.setLastModified(OLD_MTIME));
+
+        ShellProfileEditor.Result result = new ShellProfileEditor(homeDir)
+                .removePath(zshrc, commandsBinDir)
+                .apply()
+                .get(zshrc);
+
+        assertFalse(result.isModified());
+        assertArrayEquals(new boolean[]{false}, result.getRemoved());
+        assertEquals("export FOO=bar\r\nexport BAZ=qux\r\n", read(zshrc));
+        assertEquals(OLD_MTIME, zshrc.lastModified());
+    }
+
+    @Test
+    public void testNoAutoPathMarkerSkipsAdditionsButNotRemovals() throws IOException {
+        File otherBinDir = new File(tempDir, "other-bin");
+        File bashrc = write(".bashrc", UnixPathManager.NO_AUTO_PATH_MARKER + "\n\n" +
+                "# Added by jDeploy installer\n" +
+                "export PATH=\"" + otherBinDir.getAbsolutePath() + ":$PATH\"\n");
+
+        ShellProfileEditor.Result result = new ShellProfileEditor(homeDir)
+                .removePath(bashrc, otherBinDir)
+                .addPath(bashrc, commandsBinDir)
+                .apply()
+                .get(bashrc);
+
+        assertTrue(result.isOptedOut());
+        assertTrue(result.getAdded().isEmpty());
+        assertArrayEquals(new boolean[]{true}, result.getRemoved());
+        assertEquals(UnixPathManager.NO_AUTO_PATH_MARKER + "\n", read(bashrc));
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    public void testSymlinkedConfigFileIsWrittenThrough() throws IOException {
+        File dotfiles = new File(tempDir, "dotfiles");
+        dotfiles.mkdirs();
+        File target = new File(dotfiles, "bashrc");
+        Files.write(target.toPath(), "export FOO=bar\n".getBytes(StandardCharsets.UTF_8));
+        Files.setPosixFilePermissions(target.toPath(), PosixFilePermissions.fromString("rw-------"));
+        File bashrc = new File(homeDir, ".bashrc");
+        Files.createSymbolicLink(bashrc.toPath(), target.toPath());
+
+        new ShellProfileEditor(homeDir).addPath(bashrc, commandsBinDir).apply();
+
+        assertTrue(Files.isSymbolicLink(bashrc.toPath()), "The symlink should be preserved");
+        assertTrue(read(target).endsWith("export PATH=\"$HOME/.jdeploy/bin-x64/my-app:$PATH\"\n"));
+        assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(target.toPath())));
+        String[] leftovers = dotfiles.list((dir, name) -> name.endsWith(".tmp"));
+        assertEquals(0, leftovers.length, "No temporary files should be left behind");
+    }
+
+    @Test
+    public void testFailureIsReportedPerFile() throws IOException {
+        File bashrc = write(".bashrc", "export FOO=bar\n");
+        File notAFile = new File(homeDir, ".zshrc");
+        notAFile.mkdirs();
+
+        Map<File, ShellProfileEditor.Result> results = new ShellProfileEditor(homeDir)
+                .addPath(notAFile, commandsBinDir)
+                .addPath(bashrc, commandsBinDir)
+                .apply();
+
+        assertFalse(results.get(notAFile).isSuccess());
+        assertNotNull(results.get(notAFile).getError());
+        assertTrue(results.get(bashrc).isSuccess());
+        assertTrue(read(bashrc).contains("$HOME/.jdeploy/bin-x64/my-app"));
+    }
+
+    private File write(String name, String content) throws IOException {
+        File file = new File(homeDir, name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
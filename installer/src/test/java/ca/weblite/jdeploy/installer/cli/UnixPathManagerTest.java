@@ -12,6 +12,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.Arrays;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -1201,4 +1202,25 @@ public class UnixPathManagerTest {
         assertTrue(content.contains("# Added by jDeploy installer"), "Should have jDeploy comment");
         assertTrue(content.contains(existingPath), "Should have PATH entry");
     }
+
+    @Test
+    public void testRemovePathsFromConfigFileRemovesAllEntriesInOneRewrite() throws IOException {
+        File bashrc = new File(homeDir, ".bashrc");
+        File otherBinDir = new File(tempDir, "other-bin");
+        File missingBinDir = new File(tempDir, "missing-bin");
+        String originalContent = "# Some config\n\n" +
+                "# Added by jDeploy installer\n" +
+                "export PATH=\"" + binDir.getAbsolutePath() + ":$PATH\"\n\n" +
+                "export FOO=bar\n\n" +
+                "# Added by jDeploy installer\n" +
+                "export PATH=\"" + otherBinDir.getAbsolutePath() + ":$PATH\"\n";
+        Files.write(bashrc.toPath(), originalContent.getBytes(StandardCharsets.UTF_8));
+
+        boolean[] removed = UnixPathManager.removePathsFromConfigFile(
+                bashrc, Arrays.asList(binDir, missingBinDir, otherBinDir, binDir), homeDir);
+
+        assertArrayEquals(new boolean[]{true, false, true, false}, removed);
+        String content = IOUtil.readToString(new FileInputStream(bashrc));
+        assertEquals("# Some config\n\nexport FOO=bar\n", content);
+    }
 }
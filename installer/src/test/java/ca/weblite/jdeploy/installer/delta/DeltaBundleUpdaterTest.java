@@ -0,0 +1,209 @@
+package ca.weblite.jdeploy.installer.delta;
+
+import ca.weblite.jdeploy.delta.DeltaManifest;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeltaBundleUpdaterTest {
+
+    private static final String PACKAGE_JSON = "{\"name\":\"myapp\",\"version\":\"1.0.1\"}";
+
+    @Test
+    void downloadsOnlyChangedFiles(@TempDir Path tempDir) throws IOException {
+        File packageDir = tempDir.resolve("packages/myapp").toFile();
+        File installed = new File(packageDir, "1.0.0");
+        write(new File(installed, "jdeploy-bundle/app.jar"), "app v1");
+        write(new File(installed, "jdeploy-bundle/lib/dep.jar"), "dep");
+        write(new File(installed, "jdeploy-bundle/jdeploy.js"), "launcher");
+
+        File release = tempDir.resolve("release").toFile();
+        File published = tempDir.resolve("published/jdeploy-bundle").toFile();
+        write(new File(published, "app.jar"), "app v2");
+        write(new File(published, "lib/dep.jar"), "dep");
+        write(new File(published, "jdeploy.js"), "launcher");
+        publish(published, Collections.emptyMap(), release);
+
+        List<String> requested = new CopyOnWriteArrayList<>();
+        DeltaBundleUpdater updater = new DeltaBundleUpdater(new DeltaBundleUpdater.AssetSource() {
+            @Override
+            public InputStream open(String assetName) throws IOException {
+                requested.add(assetName);
+                return new FileInputStream(new File(release, assetName));
+            }
+
+            @Override
+            public InputStream open(String assetName, long offset, long length) throws IOException {
+                requested.add(assetName + "@" + offset + "+" + length);
+                byte[] asset = Files.readAllBytes(new File(release, assetName).toPath());
+                return new ByteArrayInputStream(asset, (int) offset, (int) length);
+            }
+        }, null);
+
+        File target = new File(packageDir, "1.0.1");
+        assertEquals(installed, DeltaBundleUpdater.findInstalledVersion(packageDir, "1.0.1"));
+        assertTrue(updater.update(installed, target));
+
+        assertEquals("app v2", read(new File(target, "jdeploy-bundle/app.jar")));
+        assertEquals("dep", read(new File(target, "jdeploy-bundle/lib/dep.jar")));
+        assertEquals("launcher", read(new File(target, "jdeploy-bundle/jdeploy.js")));
+        assertEquals(PACKAGE_JSON, read(new File(target, "package.json")));
+        assertFalse(new File(target, ".blobs").exists());
+
+        // The index, then one ranged read of the pack covering package.json and app.jar, since
+        // they are close together
+        DeltaManifest index = DeltaManifest.fromJson(read(new File(release, DeltaManifest.FILE_NAME)));
+        DeltaManifest.Location app = index.getEntries().get("app.jar").getLocation();
+        DeltaManifest.Location packageJson = index.getPackageJson().getLocation();
+        assertEquals(app.getPack(), packageJson.getPack());
+        long start = Math.min(app.getOffset(), packageJson.getOffset());
+        long end = Math.max(app.getOffset() + "app v2".length(), packageJson.getOffset() + PACKAGE_JSON.length());
+        assertEquals(Arrays.asList(DeltaManifest.FILE_NAME, app.getPack() + "@" + start + "+" + (end - start)),
+                requested);
+    }
+
+    @Test
+    void usesIndexOfThisPlatformsBundle(@TempDir Path tempDir) throws IOException {
+        File packageDir = tempDir.resolve("packages/myapp").toFile();
+        File installed = new File(packageDir, "1.0.0");
+        write(new File(installed, "jdeploy-bundle/app.jar"), "app v1 for mac");
+        write(new File(installed, "jdeploy-bundle/lib/native.jar"), "mac natives");
+
+        File release = tempDir.resolve("release").toFile();
+        File universal = tempDir.resolve("published/jdeploy-bundle").toFile();
+        write(new File(universal, "app.jar"), "app v2");
+        write(new File(universal, "lib/native.jar"), "all natives");
+        File mac = tempDir.resolve("published-mac/jdeploy-bundle").toFile();
+        write(new File(mac, "app.jar"), "app v2 for mac");
+        write(new File(mac, "lib/native.jar"), "mac natives");
+        Map<String, File> platforms = new TreeMap<>();
+        platforms.put("mac-arm64", mac);
+        publish(universal, platforms, release);
+
+        DeltaBundleUpdater updater = new DeltaBundleUpdater(name -> new FileInputStream(new File(release, name)), "mac-arm64");
+        File target = new File(packageDir, "1.0.1");
+        assertTrue(updater.update(installed, target));
+        assertEquals("app v2 for mac", read(new File(target, "jdeploy-bundle/app.jar")));
+        assertEquals("mac natives", read(new File(target, "jdeploy-bundle/lib/native.jar")));
+
+        // Platforms without their own bundle get the universal one
+        DeltaBundleUpdater linux = new DeltaBundleUpdater(name -> new FileInputStream(new File(release, name)), "linux-x64");
+        File linuxTarget = new File(packageDir, "1.0.2");
+        assertTrue(linux.update(installed, linuxTarget));
+        assertEquals("all natives", read(new File(linuxTarget, "jdeploy-bundle/lib/native.jar")));
+    }
+
+    @Test
+    void rejectsCorruptBlobAndLeavesNothingBehind(@TempDir Path tempDir) throws IOException {
+        File packageDir = tempDir.resolve("packages/myapp").toFile();
+        File installed = new File(packageDir, "1.0.0");
+        write(new File(installed, "jdeploy-bundle/app.jar"), "app v1");
+
+        File release = tempDir.resolve("release").toFile();
+        File published = tempDir.resolve("published/jdeploy-bundle").toFile();
+        write(new File(published, "app.jar"), "app v2");
+        publish(published, Collections.emptyMap(), release);
+
+        DeltaBundleUpdater updater = new DeltaBundleUpdater(name -> {
+            if (name.endsWith(DeltaManifest.PACK_SUFFIX)) {
+                return new ByteArrayInputStream(new byte[(int) new File(release, name).length()]);
+            }
+            return new FileInputStream(new File(release, name));
+        }, null);
+
+        File target = new File(packageDir, "1.0.1");
+        assertFalse(updater.update(installed, target));
+        assertFalse(target.exists());
+        assertArrayEquals(new String[]{"1.0.0"}, packageDir.list());
+    }
+
+    @Test
+    void fallsBackWhenReleaseHasNoDeltaIndex(@TempDir Path tempDir) throws IOException {
+        File installed = tempDir.resolve("packages/myapp/1.0.0").toFile();
+        write(new File(installed, "jdeploy-bundle/app.jar"), "app v1");
+
+        DeltaBundleUpdater updater = new DeltaBundleUpdater(name -> {
+            throw new FileNotFoundException(name);
+        }, null);
+
+        assertFalse(updater.update(installed, tempDir.resolve("packages/myapp/1.0.1").toFile()));
+    }
+
+    /**
+     * Publishes the indexes the way DeltaBlobWriter does, with all blobs in one pack.
+     */
+    private static void publish(File bundleDir, Map<String, File> platformBundleDirs, File releaseDir) throws IOException {
+        File packageJsonFile = new File(releaseDir.getParentFile(), "package.json");
+        write(packageJsonFile, PACKAGE_JSON);
+        DeltaManifest.Entry packageJson = new DeltaManifest.Entry(
+                DeltaManifest.sha256(packageJsonFile), packageJsonFile.length(), false
+        );
+        Map<String, File> blobs = new TreeMap<>();
+        blobs.put(packageJson.getHash(), packageJsonFile);
+        Map<String, DeltaManifest> manifests = new HashMap<>();
+        manifests.put(DeltaManifest.FILE_NAME, index(bundleDir, packageJson, platformBundleDirs.keySet(), blobs));
+        for (Map.Entry<String, File> platform : platformBundleDirs.entrySet()) {
+            manifests.put(DeltaManifest.getFileName(platform.getKey()),
+                    index(platform.getValue(), packageJson, Collections.emptySet(), blobs));
+        }
+
+        ByteArrayOutputStream pack = new ByteArrayOutputStream();
+        Map<String, DeltaManifest.Location> locations = new HashMap<>();
+        File packFile = new File(releaseDir, "pack.tmp");
+        for (Map.Entry<String, File> blob : blobs.entrySet()) {
+            locations.put(blob.getKey(), new DeltaManifest.Location("pack", pack.size()));
+            pack.write(Files.readAllBytes(blob.getValue().toPath()));
+        }
+        FileUtils.writeByteArrayToFile(packFile, pack.toByteArray());
+        String packName = DeltaManifest.getPackName(DeltaManifest.sha256(packFile));
+        assertTrue(packFile.renameTo(new File(releaseDir, packName)));
+        for (Map.Entry<String, DeltaManifest.Location> location : locations.entrySet()) {
+            location.setValue(new DeltaManifest.Location(packName, location.getValue().getOffset()));
+        }
+        for (Map.Entry<String, DeltaManifest> manifest : manifests.entrySet()) {
+            write(new File(releaseDir, manifest.getKey()), manifest.getValue().withLocations(locations).toJson());
+        }
+    }
+
+    private static DeltaManifest index(
+            File bundleDir,
+            DeltaManifest.Entry packageJson,
+            Collection<String> platforms,
+            Map<String, File> blobs
+    ) throws IOException {
+        DeltaManifest manifest = DeltaManifest.fromDirectory(bundleDir);
+        for (Map.Entry<String, DeltaManifest.Entry> entry : manifest.getEntries().entrySet()) {
+            blobs.putIfAbsent(entry.getValue().getHash(), new File(bundleDir, entry.getKey()));
+        }
+        return new DeltaManifest(manifest.getEntries(), packageJson, platforms);
+    }
+
+    private static void write(File file, String content) throws IOException {
+        FileUtils.writeStringToFile(file, content, StandardCharsets.UTF_8);
+    }
+
+    private static String read(File file) throws IOException {
+        return FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,170 @@
+package ca.weblite.jdeploy.installer.helpers;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Unit tests for HelperControlServer and HelperControlClient.
+ */
+public class HelperControlServerTest {
+
+    private File tempDir;
+    private File endpointFile;
+    private HelperControlServer server;
+    private final AtomicInteger refreshCount = new AtomicInteger();
+    private final CountDownLatch shutdownLatch = new CountDownLatch(1);
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        tempDir = Files.createTempDirectory("helper-control-test").toFile();
+        endpointFile = new File(tempDir, "test-app.control");
+        server = new HelperControlServer(endpointFile, new HelperControlServer.Listener() {
+            @Override
+            public void onShutdown() {
+                // A real Helper exits here, which closes the connection
+                server.stop();
+                shutdownLatch.countDown();
+            }
+
+            @Override
+            public void onRefresh() {
+                refreshCount.incrementAndGet();
+            }
+
+            @Override
+            public String getStatus() {
+                return "running";
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        server.stop();
+        FileUtils.deleteDirectory(tempDir);
+    }
+
+    @Test
+    public void testStartPublishesEndpointFile() {
+        assertTrue(server.isRunning());
+        assertTrue(endpointFile.isFile(), "Endpoint file should be written");
+        assertTrue(new HelperControlClient(endpointFile).isAvailable());
+    }
+
+    @Test
+    public void testStatusAndRefresh() throws Exception {
+        HelperControlClient client = new HelperControlClient(endpointFile);
+
+        assertEquals("running", client.getStatus(2000));
+
+        client.refresh(2000);
+        client.refresh(2000);
+        assertEquals(2, refreshCount.get());
+    }
+
+    @Test
+    public void testShutdownWaitsUntilConnectionCloses() throws Exception {
+        HelperControlClient client = new HelperControlClient(endpointFile);
+
+        assertTrue(client.shutdownAndWait(5000));
+        assertTrue(shutdownLatch.await(1, TimeUnit.SECONDS));
+        assertFalse(server.isRunning());
+        assertFalse(endpointFile.exists(), "Endpoint file should be removed when the server stops");
+        assertFalse(client.isAvailable());
+    }
+
+    @Test
+    public void testCommandWithWrongTokenIsRejected() throws Exception {
+        String port = Files.readAllLines(endpointFile.toPath(), StandardCharsets.UTF_8).get(0);
+        File forged = new File(tempDir, "forged.control");
+        FileUtils.writeStringToFile(forged, port + "\nnot-the-token\n", StandardCharsets.UTF_8);
+
+        HelperControlClient client = new HelperControlClient(forged);
+
+        assertThrows(IOException.class, () -> client.shutdownAndWait(2000));
+        assertEquals(1, shutdownLatch.getCount(), "Shutdown should not be triggered");
+        assertTrue(server.isRunning());
+    }
+
+    @Test
+    public void testUsesUnixDomainSocketWhenSupported() throws Exception {
+        assumeTrue(UnixDomainSockets.isSupported(), "Unix-domain sockets need Java 16 or later");
+        assumeTrue(server.isUnixDomainSocket(), "Unix-domain sockets aren't supported on this platform");
+
+        String address = Files.readAllLines(endpointFile.toPath(), StandardCharsets.UTF_8).get(0);
+        File socketFile = HelperControlServer.getSocketFile(endpointFile);
+        assertEquals(HelperControlServer.UNIX_ADDRESS_PREFIX + socketFile.getAbsolutePath(), address);
+        assertEquals(-1, server.getPort());
+        assertTrue(socketFile.exists());
+
+        server.stop();
+        assertFalse(socketFile.exists(), "Socket file should be removed when the server stops");
+    }
+
+    @Test
+    public void testLoopbackFallback() throws Exception {
+        File tcpEndpointFile = new File(tempDir, "tcp-app.control");
+        CountDownLatch tcpShutdown = new CountDownLatch(1);
+        HelperControlServer[] tcpServer = new HelperControlServer[1];
+        tcpServer[0] = new HelperControlServer(tcpEndpointFile, new HelperControlServer.Listener() {
+            @Override
+            public void onShutdown() {
+                tcpServer[0].stop();
+                tcpShutdown.countDown();
+            }
+
+            @Override
+            public void onRefresh() {
+            }
+
+            @Override
+            public String getStatus() {
+                return "running over tcp";
+            }
+        }, false);
+        tcpServer[0].start();
+        try {
+            assertFalse(tcpServer[0].isUnixDomainSocket());
+            String address = Files.readAllLines(tcpEndpointFile.toPath(), StandardCharsets.UTF_8).get(0);
+            assertEquals(String.valueOf(tcpServer[0].getPort()), address);
+
+            HelperControlClient client = new HelperControlClient(tcpEndpointFile);
+            assertEquals("running over tcp", client.getStatus(2000));
+            assertTrue(client.shutdownAndWait(5000));
+            assertTrue(tcpShutdown.await(1, TimeUnit.SECONDS));
+        } finally {
+            tcpServer[0].stop();
+        }
+    }
+
+    @Test
+    public void testClientFailsWhenHelperIsNotListening() throws Exception {
+        server.stop();
+        File stale = new File(tempDir, "stale.control");
+        FileUtils.writeStringToFile(stale, "1\ntoken\n", StandardCharsets.UTF_8);
+
+        HelperControlClient client = new HelperControlClient(stale);
+
+        assertTrue(client.isAvailable());
+        assertThrows(IOException.class, () -> client.getStatus(1000));
+
+        File staleSocket = new File(tempDir, "stale-socket.control");
+        FileUtils.writeStringToFile(staleSocket, HelperControlServer.UNIX_ADDRESS_PREFIX
+                + new File(tempDir, "missing.sock").getAbsolutePath() + "\ntoken\n", StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> new HelperControlClient(staleSocket).getStatus(1000));
+    }
+}
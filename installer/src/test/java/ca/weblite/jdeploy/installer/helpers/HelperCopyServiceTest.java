@@ -10,6 +10,7 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -324,7 +325,7 @@ public class HelperCopyServiceTest {
     // ========== Platform-specific method selection tests ==========
 
     @Test
-    public void testCopyInstaller_MacOS_LogsDittoUsage() throws IOException {
+    public void testCopyInstaller_MacOS_LogsCloneOrDittoUsage() throws IOException {
         if (!Platform.getSystemPlatform().isMac()) {
             return; // Skip on non-Mac
         }
@@ -335,7 +336,9 @@ public class HelperCopyServiceTest {
 
         service.copyInstaller(source, destination);
 
-        verify(mockLogger, atLeastOnce()).logInfo(contains("ditto"));
+        // APFS volumes are cloned; anything else falls back to ditto
+        verify(mockLogger, atLeastOnce()).logInfo(
+            argThat(message -> message.contains("copy-on-write") || message.contains("ditto")));
     }
 
     @Test
@@ -412,6 +415,37 @@ public class HelperCopyServiceTest {
         assertTrue(copiedExecutable.canExecute(), "Executable permission should be preserved");
     }
 
+    @Test
+    public void testCopyContextDirectory_PreservesPermissionsAndTimes() throws IOException {
+        if (Platform.getSystemPlatform().isWindows()) {
+            return; // Skip on Windows
+        }
+
+        // Cloned on copy-on-write filesystems, copied elsewhere; the result must be the same
+        File sourceDir = new File(tempDir, "source");
+        assertTrue(new File(sourceDir, "nested").mkdirs());
+        File script = new File(sourceDir, "nested/run.sh");
+        try (FileWriter w = new FileWriter(script)) {
+            w.write("#!/bin/sh\necho hello");
+        }
+        Files.setPosixFilePermissions(script.toPath(), PosixFilePermissions.fromString("rwxr-x---"));
+        assertTrue(script.setLastModified(1500000000000L));
+        File config = new File(sourceDir, "app.xml");
+        try (FileWriter w = new FileWriter(config)) {
+            w.write("<app/>");
+        }
+
+        File destDir = new File(tempDir, "dest");
+        service.copyContextDirectory(sourceDir, destDir);
+
+        File copiedScript = new File(destDir, "nested/run.sh");
+        assertEquals("#!/bin/sh\necho hello", new String(Files.readAllBytes(copiedScript.toPath())));
+        assertEquals("rwxr-x---",
+            PosixFilePermissions.toString(Files.getPosixFilePermissions(copiedScript.toPath())));
+        assertEquals(1500000000000L, copiedScript.lastModified());
+        assertEquals("<app/>", new String(Files.readAllBytes(new File(destDir, "app.xml").toPath())));
+    }
+
     // ========== macOS ditto tests ==========
 
     @Test
@@ -119,7 +119,7 @@ public class HelperUninstallIntegrationTest {
         when(mockManifestRepo.load(anyString(), anyString())).thenReturn(java.util.Optional.empty());
 
         RegistryOperations noOpRegistry = createNoOpRegistryOperations();
-        UninstallService uninstallService = new UninstallService(mockManifestRepo, noOpRegistry);
+        UninstallService uninstallService = new UninstallService(mockManifestRepo, noOpRegistry, null);
 
         // Step 3: Run uninstall (this is what BackgroundHelper.handleUninstall does)
         UninstallService.UninstallResult uninstallResult = uninstallService.uninstall(testPackageName, testSource);
@@ -262,7 +262,7 @@ public class HelperUninstallIntegrationTest {
                 .thenThrow(new RuntimeException("Simulated manifest read error"));
 
         RegistryOperations noOpRegistry = createNoOpRegistryOperations();
-        UninstallService uninstallService = new UninstallService(mockManifestRepo, noOpRegistry);
+        UninstallService uninstallService = new UninstallService(mockManifestRepo, noOpRegistry, null);
 
         // Step 3: Run uninstall - should complete despite manifest errors
         UninstallService.UninstallResult uninstallResult = uninstallService.uninstall(testPackageName, testSource);
@@ -0,0 +1,234 @@
+package ca.weblite.jdeploy.installer.logging;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Measures the cost of installation logging, comparing {@link InstallationLogger} with a
+ * synchronous logger that formats and writes each line on the calling thread.
+ *
+ * Not part of the regular test run (the name doesn't end in Test). Run it with:
+ *
+ * <pre>
+ * mvn -pl shared,installer test -Dtest=InstallationLoggerBenchmark -Dsurefire.failIfNoSpecifiedTests=false
+ * </pre>
+ */
+public class InstallationLoggerBenchmark {
+
+    private static final int FILE_COUNT = 5000;
+    private static final int ROUNDS = 7;
+    private static final int CALL_COUNT = 100_000;
+    private static final int THREAD_COUNT = 4;
+    private static final int CALLS_PER_THREAD = 50_000;
+
+    /**
+     * The logging calls being measured.
+     */
+    private interface Logger extends AutoCloseable {
+        void logFileCopied(String destination, String source);
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private interface LoggerFactory {
+        Logger create() throws IOException;
+    }
+
+    private File tempDir;
+    private String originalUserHome;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        tempDir = Files.createTempDirectory("installation-logger-benchmark").toFile();
+        originalUserHome = System.getProperty("user.home");
+        System.setProperty("user.home", tempDir.getAbsolutePath());
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        System.setProperty("user.home", originalUserHome);
+        FileUtils.deleteDirectory(tempDir);
+    }
+
+    /**
+     * Copies small files the way HelperCopyService does, logging each copy, and reports how much
+     * the logging adds to the copy loop.  Rounds with and without logging are interleaved and the
+     * median of each is compared.
+     */
+    @Test
+    public void benchmarkCopyLoopOverhead() throws Exception {
+        File sourceDir = new File(tempDir, "source");
+        sourceDir.mkdirs();
+        for (int i = 0; i < FILE_COUNT; i++) {
+            Files.write(new File(sourceDir, "file" + i + ".txt").toPath(), ("content " + i).getBytes("UTF-8"));
+        }
+
+        long[] none = new long[ROUNDS];
+        long[] synchronous = new long[ROUNDS];
+        long[] buffered = new long[ROUNDS];
+        copyFiles(sourceDir, null);
+        for (int round = 0; round < ROUNDS; round++) {
+            none[round] = copyFiles(sourceDir, null);
+            synchronous[round] = copyFiles(sourceDir, SynchronousLogger::new);
+            buffered[round] = copyFiles(sourceDir, InstallationLoggerAdapter::new);
+        }
+
+        long baseline = median(none);
+        System.out.println("Copy loop, " + FILE_COUNT + " files, median of " + ROUNDS + " rounds:");
+        System.out.println("  no logging:          " + millis(baseline) + " ms");
+        System.out.println("  synchronous logging: " + millis(median(synchronous)) + " ms ("
+                + overhead(median(synchronous), baseline) + ")");
+        System.out.println("  InstallationLogger:  " + millis(median(buffered)) + " ms ("
+                + overhead(median(buffered), baseline) + ")");
+    }
+
+    @Test
+    public void benchmarkSingleThreadedCalls() throws Exception {
+        measureCalls(SynchronousLogger::new, 1, CALL_COUNT);
+        measureCalls(InstallationLoggerAdapter::new, 1, CALL_COUNT);
+
+        long synchronous = measureCalls(SynchronousLogger::new, 1, CALL_COUNT);
+        long buffered = measureCalls(InstallationLoggerAdapter::new, 1, CALL_COUNT);
+        System.out.println(CALL_COUNT + " log calls on one thread:");
+        System.out.println("  synchronous logging: " + String.format("%.2f", synchronous / 1000.0 / CALL_COUNT)
+                + " us/call");
+        System.out.println("  InstallationLogger:  " + String.format("%.2f", buffered / 1000.0 / CALL_COUNT)
+                + " us/call");
+    }
+
+    @Test
+    public void benchmarkConcurrentCalls() throws Exception {
+        measureCalls(SynchronousLogger::new, THREAD_COUNT, CALLS_PER_THREAD);
+        measureCalls(InstallationLoggerAdapter::new, THREAD_COUNT, CALLS_PER_THREAD);
+
+        long synchronous = measureCalls(SynchronousLogger::new, THREAD_COUNT, CALLS_PER_THREAD);
+        long buffered = measureCalls(InstallationLoggerAdapter::new, THREAD_COUNT, CALLS_PER_THREAD);
+        System.out.println(THREAD_COUNT + " threads x " + CALLS_PER_THREAD + " log calls:");
+        System.out.println("  synchronous logging: " + millis(synchronous) + " ms");
+        System.out.println("  InstallationLogger:  " + millis(buffered) + " ms");
+    }
+
+    /**
+     * @return the nanoseconds taken to copy the files, including closing the logger
+     */
+    private long copyFiles(File sourceDir, LoggerFactory factory) throws Exception {
+        File destDir = new File(tempDir, "dest");
+        FileUtils.deleteDirectory(destDir);
+        destDir.mkdirs();
+        File[] sources = sourceDir.listFiles();
+        Arrays.sort(sources);
+
+        long start = System.nanoTime();
+        Logger logger = factory != null ? factory.create() : null;
+        for (File source : sources) {
+            File destination = new File(destDir, source.getName());
+            Files.copy(source.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            if (logger != null) {
+                logger.logFileCopied(destination.getAbsolutePath(), source.getAbsolutePath());
+            }
+        }
+        if (logger != null) {
+            logger.close();
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * @return the nanoseconds taken to make the calls on the given number of threads, including
+     *         closing the logger
+     */
+    private long measureCalls(LoggerFactory factory, int threadCount, int callsPerThread) throws Exception {
+        long start = System.nanoTime();
+        Logger logger = factory.create();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            final int thread = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < callsPerThread; i++) {
+                    logger.logFileCopied("/dest/t" + thread + "/file" + i, "/source/file" + i);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        logger.close();
+        return System.nanoTime() - start;
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static long millis(long nanos) {
+        return nanos / 1_000_000L;
+    }
+
+    private static String overhead(long measured, long baseline) {
+        return String.format("%+.1f%%", (measured - baseline) * 100.0 / baseline);
+    }
+
+    private static class InstallationLoggerAdapter implements Logger {
+        private final InstallationLogger logger;
+
+        InstallationLoggerAdapter() throws IOException {
+            logger = new InstallationLogger("benchmark", InstallationLogger.OperationType.INSTALL);
+        }
+
+        @Override
+        public void logFileCopied(String destination, String source) {
+            logger.logFileOperation(InstallationLogger.FileOperation.COPIED, destination, "from " + source);
+        }
+
+        @Override
+        public void close() {
+            logger.close();
+        }
+    }
+
+    /**
+     * Writes each line the way InstallationLogger did before it had a writer thread: a lock, a
+     * freshly formatted timestamp and a flush per line.
+     */
+    private class SynchronousLogger implements Logger {
+        private final SimpleDateFormat timestampFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        private final PrintWriter writer;
+
+        SynchronousLogger() throws IOException {
+            File logFile = File.createTempFile("synchronous", ".log", tempDir);
+            writer = new PrintWriter(new BufferedWriter(new FileWriter(logFile)), true);
+        }
+
+        @Override
+        public synchronized void logFileCopied(String destination, String source) {
+            String message = "[FILE COPIED] " + destination + " (from " + source + ")";
+            writer.println("[" + timestampFormat.format(new Date()) + "] " + message);
+        }
+
+        @Override
+        public void close() {
+            writer.close();
+        }
+    }
+}
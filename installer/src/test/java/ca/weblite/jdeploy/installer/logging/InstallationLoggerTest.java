@@ -0,0 +1,195 @@
+package ca.weblite.jdeploy.installer.logging;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InstallationLoggerTest {
+
+    private File tempDir;
+    private String originalUserHome;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        tempDir = Files.createTempDirectory("installation-logger-test").toFile();
+        originalUserHome = System.getProperty("user.home");
+        System.setProperty("user.home", tempDir.getAbsolutePath());
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        System.setProperty("user.home", originalUserHome);
+        FileUtils.deleteDirectory(tempDir);
+    }
+
+    @Test
+    public void testConcurrentLoggingKeepsEveryLineInOrder() throws Exception {
+        final int threadCount = 8;
+        final int linesPerThread = 5000;
+        InstallationLogger logger = new InstallationLogger("test-package", InstallationLogger.OperationType.INSTALL);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            final int thread = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < linesPerThread; i++) {
+                    logger.logFileOperation(InstallationLogger.FileOperation.COPIED, "/t" + thread + "/" + i);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        logger.close();
+
+        List<String> lines = Files.readAllLines(logger.getLogFile().toPath(), StandardCharsets.UTF_8);
+        Pattern pattern = Pattern.compile(
+            "^\\[\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}\\.\\d{3}\\] \\[FILE COPIED\\] /t(\\d+)/(\\d+)$");
+        int[] next = new int[threadCount];
+        int matched = 0;
+        for (String line : lines) {
+            Matcher m = pattern.matcher(line);
+            if (m.matches()) {
+                int thread = Integer.parseInt(m.group(1));
+                assertEquals(next[thread], Integer.parseInt(m.group(2)), "Lines from one thread must stay in order");
+                next[thread]++;
+                matched++;
+            }
+        }
+        assertEquals(threadCount * linesPerThread, matched);
+        assertTrue(lines.contains("Files created: " + threadCount * linesPerThread));
+        assertEquals("END OF LOG", lines.get(lines.size() - 2));
+    }
+
+    @Test
+    public void testSectionFlushesPendingLines() throws Exception {
+        InstallationLogger logger = new InstallationLogger("test-package", InstallationLogger.OperationType.UNINSTALL);
+        try {
+            logger.logInfo("before section");
+            logger.logSection("Deleting Files");
+
+            String content = readLog(logger);
+            assertTrue(content.contains("UNINSTALLATION LOG"));
+            assertTrue(content.contains("[INFO] before section"));
+            assertTrue(content.contains("--- Deleting Files ---"));
+        } finally {
+            logger.close();
+        }
+    }
+
+    @Test
+    public void testErrorsAreFlushedBeforeReturning() throws Exception {
+        InstallationLogger logger = new InstallationLogger("test-package", InstallationLogger.OperationType.INSTALL);
+        try {
+            logger.logInfo("before error");
+            logger.logError("Registry update failed");
+            logger.logError("Copy failed", new IOException("disk full"));
+
+            String content = readLog(logger);
+            assertTrue(content.contains("[INFO] before error"));
+            assertTrue(content.contains("[ERROR] Registry update failed"));
+            assertTrue(content.contains("[ERROR] Copy failed: disk full"));
+            assertTrue(content.contains("java.io.IOException: disk full"));
+        } finally {
+            logger.close();
+        }
+    }
+
+    @Test
+    public void testErrorsIncludeStackTrace() throws Exception {
+        InstallationLogger logger = new InstallationLogger("test-package", InstallationLogger.OperationType.INSTALL);
+        logger.logError("Copy failed", new IOException("disk full"));
+        logger.close();
+
+        String content = readLog(logger);
+        assertTrue(content.contains("[ERROR] Copy failed: disk full"));
+        assertTrue(content.contains("java.io.IOException: disk full"));
+        assertTrue(content.contains("at " + getClass().getName()));
+    }
+
+    @Test
+    public void testIdleWriterParksUntilNextLine() throws Exception {
+        InstallationLogger logger = new InstallationLogger("test-package", InstallationLogger.OperationType.INSTALL);
+        try {
+            logger.logInfo("first");
+            awaitWriterState(logger, Thread.State.WAITING);
+
+            // A parked writer must still pick up new lines without waiting for close()
+            logger.logInfo("second");
+            long deadline = System.currentTimeMillis() + 5000;
+            String content = "";
+            while (System.currentTimeMillis() < deadline && !content.contains("second")) {
+                Thread.sleep(10);
+                content = readLog(logger);
+            }
+            assertTrue(content.contains("second"), content);
+            awaitWriterState(logger, Thread.State.WAITING);
+        } finally {
+            logger.close();
+        }
+    }
+
+    @Test
+    public void testCloseIsIdempotentAndLaterLinesAreIgnored() throws Exception {
+        InstallationLogger logger = new InstallationLogger("test-package", InstallationLogger.OperationType.INSTALL);
+        logger.close();
+        String content = readLog(logger);
+
+        logger.logInfo("after close");
+        logger.close();
+
+        assertEquals(content, readLog(logger));
+        assertFalse(content.contains("after close"));
+    }
+
+    @Test
+    public void testRingBufferRejectsWhenFull() {
+        LogRingBuffer<String> buffer = new LogRingBuffer<>(3);
+        assertEquals(4, buffer.capacity());
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i, buffer.offer("line" + i));
+        }
+        assertEquals(-1, buffer.offer("overflow"));
+
+        assertEquals("line0", buffer.poll());
+        assertEquals(1, buffer.getHead());
+        assertEquals(4, buffer.offer("line4"));
+        for (int i = 1; i <= 4; i++) {
+            assertEquals("line" + i, buffer.poll());
+        }
+        assertNull(buffer.poll());
+        assertTrue(buffer.isEmpty());
+    }
+
+    private static String readLog(InstallationLogger logger) throws IOException {
+        return new String(Files.readAllBytes(logger.getLogFile().toPath()), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Waits for the writer thread to reach a state. A thread that parks without a timeout is
+     * WAITING, while one that parks for the flush interval is TIMED_WAITING.
+     */
+    private static void awaitWriterState(InstallationLogger logger, Thread.State state) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (logger.getWriterThread().getState() != state && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(state, logger.getWriterThread().getState());
+    }
+}
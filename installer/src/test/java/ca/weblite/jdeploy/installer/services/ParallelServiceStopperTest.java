@@ -0,0 +1,111 @@
+package ca.weblite.jdeploy.installer.services;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisabledOnOs(OS.WINDOWS)
+public class ParallelServiceStopperTest {
+
+    private final Map<String, String> scripts = new HashMap<>();
+
+    private ParallelServiceStopper createStopper(long stopTimeoutMs, long killTimeoutMs) {
+        return new ParallelServiceStopper(
+            commandName -> new ProcessBuilder("sh", "-c", scripts.get(commandName)),
+            stopTimeoutMs,
+            killTimeoutMs
+        );
+    }
+
+    @Test
+    public void testServicesAreStoppedConcurrently() {
+        scripts.put("server-a", "sleep 1");
+        scripts.put("server-b", "sleep 1");
+        scripts.put("server-c", "sleep 1");
+
+        long start = System.currentTimeMillis();
+        ParallelServiceStopper.Result result = createStopper(10000, 1000)
+            .stopAll(Arrays.asList("server-a", "server-b", "server-c"));
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertTrue(result.isAllStopped(), result.toString());
+        assertEquals(Arrays.asList("server-a", "server-b", "server-c"),
+            Arrays.asList(result.getResults().keySet().toArray()));
+        assertTrue(elapsed < 2500, "Stops should overlap, took " + elapsed + " ms");
+    }
+
+    @Test
+    public void testHungServiceIsKilledAfterTimeout() {
+        scripts.put("hung", "trap '' TERM; sleep 30 & wait; sleep 30");
+        scripts.put("quick", "exit 0");
+
+        long start = System.currentTimeMillis();
+        ParallelServiceStopper.Result result = createStopper(500, 500)
+            .stopAll(Arrays.asList("hung", "quick"));
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertFalse(result.isAllStopped());
+        assertEquals(Collections.singletonList("hung"), result.getFailedServices());
+        assertTrue(result.getResult("hung").getMessage().contains("timed out"),
+            result.getResult("hung").getMessage());
+        assertTrue(result.getResult("quick").isSuccess());
+        assertTrue(elapsed < 5000, "Hung stop command should be killed, took " + elapsed + " ms");
+    }
+
+    @Test
+    public void testFailuresAreAggregated() {
+        scripts.put("ok", "exit 0");
+        scripts.put("broken", "echo failing >&2; exit 3");
+
+        ParallelServiceStopper stopper = new ParallelServiceStopper(commandName ->
+            "missing".equals(commandName)
+                ? new ProcessBuilder("/nonexistent/jdeploy-test-command", "service", "stop")
+                : new ProcessBuilder("sh", "-c", scripts.get(commandName)));
+        ParallelServiceStopper.Result result = stopper.stopAll(Arrays.asList("ok", "broken", "missing"));
+
+        assertEquals(Arrays.asList("broken", "missing"), result.getFailedServices());
+        assertEquals(3, result.getResult("broken").getExitCode());
+        assertTrue(result.getResult("missing").getMessage().startsWith("Service stop error"));
+        assertEquals("Stopped 1 of 3 services; failed: [broken, missing]", result.toString());
+    }
+
+    @Test
+    public void testProcessTreeIsKilledWhereSupported() throws Exception {
+        // Stands in for taskkill /T /F: the stop command's child must be killed along with it
+        File pidFile = File.createTempFile("service-stop-child", ".pid");
+        pidFile.deleteOnExit();
+        scripts.put("hung", "sleep 30 & echo $! > " + pidFile.getAbsolutePath() + "; wait");
+        List<Long> killed = new ArrayList<>();
+        ParallelServiceStopper stopper = new ParallelServiceStopper(
+            commandName -> new ProcessBuilder("sh", "-c", scripts.get(commandName)), 500, 2000, true) {
+            @Override
+            ProcessBuilder createKillTreeCommand(long pid) {
+                killed.add(pid);
+                return new ProcessBuilder("sh", "-c", "pkill -KILL -P " + pid + "; kill -KILL " + pid);
+            }
+        };
+
+        ParallelServiceStopper.Result result = stopper.stopAll(Collections.singletonList("hung"));
+
+        assertEquals(Collections.singletonList("hung"), result.getFailedServices());
+        assertEquals(1, killed.size());
+        String childPid = new String(Files.readAllBytes(pidFile.toPath())).trim();
+        // Orphans may be left as zombies where nothing reaps them, which counts as killed
+        Process check = new ProcessBuilder("ps", "-o", "stat=", "-p", childPid).start();
+        String state = new String(IOUtils.toByteArray(check.getInputStream())).trim();
+        assertTrue(state.isEmpty() || state.startsWith("Z"),
+            "The stop command's child process should have been killed, state " + state);
+    }
+}
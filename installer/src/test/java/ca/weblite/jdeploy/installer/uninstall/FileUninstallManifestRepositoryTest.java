@@ -40,9 +40,7 @@ public class FileUninstallManifestRepositoryTest {
         
         tempDir = Files.createTempDirectory("jdeploy-test").toFile();
         repository = new FileUninstallManifestRepository(
-            new UninstallManifestXmlGenerator(),
             new UninstallManifestValidator(),
-            new UninstallManifestXmlParser(),
             true // Skip schema validation in tests
         );
     }
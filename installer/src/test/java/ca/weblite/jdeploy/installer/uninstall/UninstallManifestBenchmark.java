@@ -0,0 +1,190 @@
+package ca.weblite.jdeploy.installer.uninstall;
+
+import ca.weblite.jdeploy.installer.uninstall.model.UninstallManifest;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures writing and reading an uninstall manifest with {@value #FILE_COUNT} file entries,
+ * comparing the streaming writer and parser with a DOM round trip of the same document.
+ *
+ * The DOM numbers only cover parsing the file into a Document and serializing it again, so they
+ * are a lower bound for the DOM based generator and parser this replaced, which also mapped
+ * between the Document and the model.
+ *
+ * Schema validation is left out on both sides.  The JDK's validator checks the schema's
+ * xs:unique constraints by scanning every path seen so far, so at this size it takes minutes
+ * whichever API feeds it the document.
+ *
+ * Not part of the regular test run (the name doesn't end in Test). Run it with:
+ *
+ * <pre>
+ * mvn -pl shared,installer test -Dtest=UninstallManifestBenchmark -Dsurefire.failIfNoSpecifiedTests=false
+ * </pre>
+ */
+public class UninstallManifestBenchmark {
+
+    private static final int FILE_COUNT = 100_000;
+    private static final int DIRECTORY_COUNT = 1000;
+    private static final int ROUNDS = 7;
+
+    private File tempDir;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        tempDir = Files.createTempDirectory("uninstall-manifest-benchmark").toFile();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(tempDir);
+    }
+
+    @Test
+    public void benchmarkWriteAndRead() throws Exception {
+        UninstallManifest manifest = createManifest();
+        File streamed = new File(tempDir, "streamed.xml");
+        File serialized = new File(tempDir, "serialized.xml");
+
+        long[] streamWrite = new long[ROUNDS];
+        long[] streamRead = new long[ROUNDS];
+        long[] domWrite = new long[ROUNDS];
+        long[] domRead = new long[ROUNDS];
+        long[] streamWriteHeap = new long[ROUNDS];
+        long[] streamReadHeap = new long[ROUNDS];
+        long[] domWriteHeap = new long[ROUNDS];
+        long[] domReadHeap = new long[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            long heap = startHeapMeasurement();
+            long start = System.nanoTime();
+            new UninstallManifestWriter(true).write(manifest, streamed);
+            streamWrite[round] = System.nanoTime() - start;
+            streamWriteHeap[round] = peakHeapSince(heap);
+
+            heap = startHeapMeasurement();
+            start = System.nanoTime();
+            UninstallManifest read;
+            try (InputStream in = new BufferedInputStream(new FileInputStream(streamed))) {
+                read = new UninstallManifestStreamParser().parse(in);
+            }
+            streamRead[round] = System.nanoTime() - start;
+            streamReadHeap[round] = peakHeapSince(heap);
+            assertEquals(FILE_COUNT, read.getFiles().size());
+
+            heap = startHeapMeasurement();
+            start = System.nanoTime();
+            Document document = parseDocument(streamed);
+            domRead[round] = System.nanoTime() - start;
+            domReadHeap[round] = peakHeapSince(heap);
+
+            heap = startHeapMeasurement();
+            start = System.nanoTime();
+            serialize(document, serialized);
+            domWrite[round] = System.nanoTime() - start;
+            domWriteHeap[round] = peakHeapSince(heap);
+        }
+
+        System.out.println(FILE_COUNT + " file entries (" + (streamed.length() / 1024 / 1024)
+                + " MB), median of " + ROUNDS + " rounds:");
+        System.out.println("  stream write: " + millis(median(streamWrite)) + " ms, "
+                + megabytes(median(streamWriteHeap)) + " MB peak heap");
+        System.out.println("  DOM write:    " + millis(median(domWrite)) + " ms, "
+                + megabytes(median(domWriteHeap)) + " MB peak heap (serialize only)");
+        System.out.println("  stream read:  " + millis(median(streamRead)) + " ms, "
+                + megabytes(median(streamReadHeap)) + " MB peak heap");
+        System.out.println("  DOM read:     " + millis(median(domRead)) + " ms, "
+                + megabytes(median(domReadHeap)) + " MB peak heap (parse only)");
+    }
+
+    private static UninstallManifest createManifest() {
+        UninstallManifestBuilder builder = new UninstallManifestBuilder()
+                .withPackageInfo("benchmark-package", "https://github.com/test/repo", "1.0.0", "x64")
+                .withInstallerVersion("2.0.0");
+        for (int i = 0; i < FILE_COUNT; i++) {
+            builder.addFile("/opt/benchmark/lib/module" + (i % DIRECTORY_COUNT) + "/file" + i + ".class",
+                    UninstallManifest.FileType.CONFIG, i % 10 == 0 ? "File " + i : null);
+        }
+        for (int i = 0; i < DIRECTORY_COUNT; i++) {
+            builder.addDirectory("/opt/benchmark/lib/module" + i, UninstallManifest.CleanupStrategy.IF_EMPTY, null);
+        }
+        return builder.build();
+    }
+
+    private static Document parseDocument(File file) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        return factory.newDocumentBuilder().parse(file);
+    }
+
+    private static void serialize(Document document, File file) throws Exception {
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+        transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+        transformer.transform(new DOMSource(document), new StreamResult(file));
+    }
+
+    /**
+     * Collects garbage and resets the peak usage of the heap pools.
+     *
+     * @return the heap in use before the measured operation
+     */
+    private static long startHeapMeasurement() {
+        System.gc();
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                used += pool.getUsage().getUsed();
+            }
+        }
+        return used;
+    }
+
+    /**
+     * @return the highest heap use since {@link #startHeapMeasurement()}, less the heap in use then
+     */
+    private static long peakHeapSince(long used) {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return Math.max(0, peak - used);
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static long millis(long nanos) {
+        return nanos / 1_000_000L;
+    }
+
+    private static long megabytes(long bytes) {
+        return bytes / (1024 * 1024);
+    }
+}
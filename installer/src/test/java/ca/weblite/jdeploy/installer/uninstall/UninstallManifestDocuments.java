@@ -0,0 +1,46 @@
+package ca.weblite.jdeploy.installer.uninstall;
+
+import ca.weblite.jdeploy.installer.uninstall.model.UninstallManifest;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Test helper that writes a manifest with UninstallManifestStreamWriter and reads the result
+ * back as a namespace-aware DOM document, so tests can inspect the generated structure.
+ */
+final class UninstallManifestDocuments {
+
+    private UninstallManifestDocuments() {
+    }
+
+    /**
+     * Writes the manifest and parses it, dropping the indentation the writer adds between
+     * elements.
+     */
+    static Document write(UninstallManifest manifest) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new UninstallManifestStreamWriter().write(manifest, out);
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        Document document = factory.newDocumentBuilder().parse(new ByteArrayInputStream(out.toByteArray()));
+        removeIndentation(document.getDocumentElement());
+        return document;
+    }
+
+    private static void removeIndentation(Node node) {
+        Node child = node.getFirstChild();
+        while (child != null) {
+            Node next = child.getNextSibling();
+            if (child.getNodeType() == Node.TEXT_NODE && child.getTextContent().trim().isEmpty()) {
+                node.removeChild(child);
+            } else {
+                removeIndentation(child);
+            }
+            child = next;
+        }
+    }
+}
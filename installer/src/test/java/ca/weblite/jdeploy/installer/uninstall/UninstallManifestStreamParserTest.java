@@ -0,0 +1,165 @@
+package ca.weblite.jdeploy.installer.uninstall;
+
+import ca.weblite.jdeploy.installer.uninstall.model.UninstallManifest;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UninstallManifestStreamParserTest {
+
+    private File tempDir;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        tempDir = Files.createTempDirectory("uninstall-stream-test").toFile();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (tempDir != null && tempDir.exists()) {
+            FileUtils.deleteDirectory(tempDir);
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        UninstallManifest manifest = createCompleteBuilder().build();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new UninstallManifestStreamWriter().write(manifest, out);
+
+        UninstallManifest streamed = new UninstallManifestStreamParser().parse(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(manifest, streamed);
+    }
+
+    @Test
+    public void testSchemaErrorsAreReportedWhileParsing() throws Exception {
+        String xsd = "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\""
+            + " targetNamespace=\"" + UninstallManifestStreamWriter.NAMESPACE + "\""
+            + " elementFormDefault=\"qualified\">"
+            + "<xs:element name=\"uninstallManifest\"><xs:complexType>"
+            + "<xs:sequence><xs:any processContents=\"skip\" maxOccurs=\"unbounded\"/></xs:sequence>"
+            + "<xs:attribute name=\"version\" type=\"xs:string\" fixed=\"1.0\" use=\"required\"/>"
+            + "</xs:complexType></xs:element></xs:schema>";
+        Schema schema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI)
+            .newSchema(new StreamSource(new StringReader(xsd)));
+        UninstallManifestValidator validator = new UninstallManifestValidator(schema);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new UninstallManifestStreamWriter().write(createCompleteBuilder().build(), out);
+        String xml = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        UninstallManifestStreamParser parser = new UninstallManifestStreamParser();
+
+        assertNotNull(parser.parse(new ByteArrayInputStream(out.toByteArray()), validator));
+
+        byte[] invalid = xml.replace("version=\"1.0\">", "version=\"2.0\">").getBytes(StandardCharsets.UTF_8);
+        ManifestValidationException e = assertThrows(ManifestValidationException.class,
+            () -> parser.parse(new ByteArrayInputStream(invalid), validator));
+        assertTrue(e.getMessage().contains("schema"), e.getMessage());
+    }
+
+    @Test
+    public void testJournalRecoversEntriesWrittenBeforeInterruption() throws Exception {
+        File journalFile = new File(tempDir, "uninstall-manifest.xml.journal");
+        UninstallManifestBuilder builder = createBuilder()
+            .addFile("/opt/test/bin/test", UninstallManifest.FileType.BINARY, "Launcher");
+        builder.withJournal(journalFile);
+        builder.addDirectory("/opt/test", UninstallManifest.CleanupStrategy.ALWAYS, "App directory");
+        builder.addShellProfileEntry("/home/user/.bashrc", "export PATH=\"/opt/test/bin:$PATH\"");
+
+        // Simulate the installer dying in the middle of writing an entry
+        try (OutputStream out = new FileOutputStream(journalFile, true)) {
+            out.write("\n  <files>\n    <file>\n      <pa".getBytes(StandardCharsets.UTF_8));
+        }
+
+        Optional<UninstallManifest> recovered = UninstallManifestJournal.recover(journalFile);
+        assertTrue(recovered.isPresent());
+        UninstallManifest manifest = recovered.get();
+        assertEquals("test-package", manifest.getPackageInfo().getName());
+        assertEquals(1, manifest.getFiles().size());
+        assertEquals("/opt/test/bin/test", manifest.getFiles().get(0).getPath());
+        assertEquals(1, manifest.getDirectories().size());
+        assertEquals(UninstallManifest.CleanupStrategy.ALWAYS, manifest.getDirectories().get(0).getCleanup());
+        assertEquals(1, manifest.getPathModifications().getShellProfiles().size());
+        assertNull(manifest.getRegistry());
+
+        builder.build();
+    }
+
+    @Test
+    public void testWritingManifestReplacesJournal() throws Exception {
+        File manifestFile = new File(tempDir, "uninstall-manifest.xml");
+        File journalFile = UninstallManifestJournal.getJournalFile(manifestFile);
+        UninstallManifestBuilder builder = createCompleteBuilder();
+        builder.withJournal(journalFile);
+        UninstallManifest manifest = builder.build();
+        assertEquals(manifest, UninstallManifestJournal.recover(journalFile).orElse(null),
+            "A complete journal should hold the whole manifest");
+
+        new UninstallManifestWriter(true).write(manifest, manifestFile);
+
+        assertTrue(manifestFile.exists());
+        assertFalse(journalFile.exists(), "Journal should be deleted once the manifest is written");
+        assertFalse(new File(tempDir, "uninstall-manifest.xml.tmp").exists());
+    }
+
+    @Test
+    public void testBasicStructureIsValidatedWithoutSchema() throws Exception {
+        UninstallManifestStreamParser parser = new UninstallManifestStreamParser();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new UninstallManifestStreamWriter().write(createCompleteBuilder().build(), out);
+        parser.validateBasicStructure(new ByteArrayInputStream(out.toByteArray()));
+
+        ManifestValidationException wrongRoot = assertThrows(ManifestValidationException.class, () ->
+            parser.validateBasicStructure(xml("<manifest version=\"1.0\"/>")));
+        assertTrue(wrongRoot.getMessage().contains("uninstallManifest"));
+        assertThrows(ManifestValidationException.class, () ->
+            parser.validateBasicStructure(xml("<uninstallManifest xmlns=\"http://jdeploy.ca/uninstall-manifest/1.0\"/>")));
+        assertThrows(ManifestValidationException.class, () ->
+            parser.validateBasicStructure(xml("<uninstallManifest")));
+    }
+
+    private static ByteArrayInputStream xml(String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static UninstallManifestBuilder createBuilder() {
+        return new UninstallManifestBuilder()
+            .withPackageInfo("test-package", "https://github.com/test/repo", "1.0.0", "x64")
+            .withInstallerVersion("2.0.0");
+    }
+
+    private static UninstallManifestBuilder createCompleteBuilder() {
+        return createBuilder()
+            .addFile("/opt/test/bin/test", UninstallManifest.FileType.BINARY, "Launcher")
+            .addFile("/opt/test/icon & logo.png", UninstallManifest.FileType.ICON, null)
+            .addDirectory("/opt/test", UninstallManifest.CleanupStrategy.IF_EMPTY, "App <directory>")
+            .addCreatedRegistryKey(UninstallManifest.RegistryRoot.HKEY_CURRENT_USER, "Software\\Test")
+            .addModifiedRegistryValue(UninstallManifest.RegistryRoot.HKEY_CURRENT_USER,
+                "Software\\RegisteredApplications", "Test", null,
+                UninstallManifest.RegistryValueType.REG_SZ, "Registered application entry")
+            .addWindowsPathEntry("C:\\Users\\test\\bin", "CLI commands")
+            .addShellProfileEntry("/home/user/.bashrc", "export PATH=\"/opt/test/bin:$PATH\"")
+            .addGitBashProfileEntry("/home/user/.bash_profile", "export PATH=\"/c/test/bin:$PATH\"")
+            .addMcpServerEntry("/home/user/.claude.json", "test-server", "claude")
+            .addSkillEntry("/home/user/.claude/skills/test", "test")
+            .addAgentEntry("/home/user/.claude/agents/test.md", "test");
+    }
+}
@@ -1,13 +1,11 @@
 package ca.weblite.jdeploy.installer.uninstall;
 
 import ca.weblite.jdeploy.installer.uninstall.model.UninstallManifest;
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
-import javax.xml.parsers.ParserConfigurationException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -16,20 +14,14 @@ import java.util.List;
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
- * Unit tests for UninstallManifestXmlGenerator.
+ * Unit tests for UninstallManifestStreamWriter.
  * Verifies that the generated XML document structure matches XSD expectations.
  */
-public class UninstallManifestXmlGeneratorTest {
+public class UninstallManifestStreamWriterTest {
     private static final String NAMESPACE = "http://jdeploy.ca/uninstall-manifest/1.0";
-    private UninstallManifestXmlGenerator generator;
-
-    @BeforeEach
-    public void setUp() {
-        generator = new UninstallManifestXmlGenerator();
-    }
 
     @Test
-    public void testGenerateMinimalManifest() throws ParserConfigurationException {
+    public void testGenerateMinimalManifest() throws Exception {
         UninstallManifest manifest = UninstallManifest.builder()
                 .version("1.0")
                 .packageInfo(createMinimalPackageInfo())
@@ -37,7 +29,7 @@ public class UninstallManifestXmlGeneratorTest {
                 .directories(Collections.emptyList())
                 .build();
 
-        Document doc = generator.generate(manifest);
+        Document doc = UninstallManifestDocuments.write(manifest);
         assertNotNull(doc);
         assertEquals(1, doc.getChildNodes().getLength());
         
@@ -48,9 +40,9 @@ public class UninstallManifestXmlGeneratorTest {
     }
 
     @Test
-    public void testRootElementNamespaceAndVersion() throws ParserConfigurationException {
+    public void testRootElementNamespaceAndVersion() throws Exception {
         UninstallManifest manifest = createCompleteManifest();
-        Document doc = generator.generate(manifest);
+        Document doc = UninstallManifestDocuments.write(manifest);
 
         Element root = doc.getDocumentElement();
         assertEquals("uninstallManifest", root.getLocalName());
@@ -59,9 +51,9 @@ public class UninstallManifestXmlGeneratorTest {
     }
 
     @Test
-    public void testPackageInfoElementExists() throws ParserConfigurationException {
+    public void testPackageInfoElementExists() throws Exception {
         UninstallManifest manifest = createCompleteManifest();
-        Document doc = generator.generate(manifest);
+        Document doc = UninstallManifestDocuments.write(manifest);
 
         NodeList packageInfos = doc.getElementsByTagNameNS(NAMESPACE, "packageInfo");
         assertEquals(1, packageInfos.getLength());
@@ -71,7 +63,7 @@ public class UninstallManifestXmlGeneratorTest {
     }
 
     @Test
-    public void testPackageInfoContent() throws ParserConfigurationException {
+    public void testPackageInfoContent() throws Exception {
         UninstallManifest.PackageInfo info = createCompletePackageInfo();
         UninstallManifest manifest = UninstallManifest.builder()
                 .version("1.0")
@@ -80,7 +72,7 @@ public class UninstallManifestXmlGeneratorTest {
                 .directories(Collections.emptyList())
                 .build();
 
-        Document doc = generator.generate(manifest);
+        Document doc = UninstallManifestDocuments.write(manifest);
         Element packageInfo = (Element) doc.getElementsByTagNameNS(NAMESPACE, "packageInfo").item(0);
 
         assertEquals(info.getName(), getElementTextContent(packageInfo, "name"));
@@ -93,16 +85,16 @@ public class UninstallManifestXmlGeneratorTest {
     }
 
     @Test
-    public void testFilesElementExists() throws ParserConfigurationException {
+    public void testFilesElementExists() throws Exception {
         UninstallManifest manifest = createCompleteManifest();
-        Document doc = generator.generate(manifest);
+        Document doc = UninstallManifestDocuments.write(manifest);
 
         NodeList files = doc.getElementsByTagNameNS(NAMESPACE, "files");
         assertEquals(1, files.getLength());
     }
 
     @Test
-    public void testFileElements() throws ParserConfigurationException {
+    public void testFileElements() throws Exception {
         List<UninstallManifest.InstalledFile> fileList = new ArrayList<>();
         fileList.add(UninstallManifest.InstalledFile.builder()
                 .path("/usr/local/bin/myapp")
@@ -121,7 +113,7 @@ public class UninstallManifestXmlGeneratorTest {
                 .directories(Collections.emptyList())
                 .build();
 
-        Document doc = generator.generate(manifest);
+        Document doc = UninstallManifestDocuments.write(manifest);
         NodeList fileElements = doc.getElementsByTagNameNS(NAMESPACE, "file");
         assertEquals(2, fileElements.getLength());
 
@@ -136,16 +128,16 @@ public class UninstallManifestXmlGeneratorTest {
     }
 
     @Test
-    public void testDirectoriesElementExists() throws ParserConfigurationException {
+    public void testDirectoriesElementExists() throws Exception {
         UninstallManifest manifest = createCompleteManifest();
-        Document doc = generator.generate(manifest);
+        Document doc = UninstallManifestDocuments.write(manifest);
 
         NodeList directories = doc.getElementsByTagNameNS(NAMESPACE, "directories");
         assertEquals(1, directories.getLength());
     }
 
     @Test
-    public void testDirectoryElements() throws ParserConfigurationException {
+    public void testDirectoryElements() throws Exception {
         List<UninstallManifest.InstalledDirectory> dirList = new ArrayList<>();
         dirList.add(UninstallManifest.InstalledDirectory.builder()
                 .path("/opt/myapp")
@@ -164,7 +156,7 @@ public class UninstallManifestXmlGeneratorTest {
                 .directories(dirList)
                 .build();
 
-        Document doc = generator.generate(manifest);
+        Document doc = UninstallManifestDocuments.write(manifest);
         NodeList dirElements = doc.getElementsByTagNameNS(NAMESPACE, "directory");
         assertEquals(2, dirElements.getLength());
 
@@ -179,16 +171,16 @@ public class UninstallManifestXmlGeneratorTest {
     }
 
     @Test
-    public void testRegistryElementExists() throws ParserConfigurationException {
+    public void testRegistryElementExists() throws Exception {
         UninstallManifest manifest = createCompleteManifest();
-        Document doc = generator.generate(manifest);
+        Document doc = UninstallManifestDocuments.write(manifest);
 
         NodeList registry = doc.getElementsByTagNameNS(NAMESPACE, "registry");
         assertEquals(1, registry.getLength());
     }
 
     @Test
-    public void testRegistryCreatedKeys() throws ParserConfigurationException {
+    public void testRegistryCreatedKeys() throws Exception {
         List<UninstallManifest.RegistryKey> keys = new ArrayList<>();
         keys.add(UninstallManifest.RegistryKey.builder()
                 .root(UninstallManifest.RegistryRoot.HKEY_CURRENT_USER)
@@ -209,7 +201,7 @@ public class UninstallManifestXmlGeneratorTest {
                 .registry(registry)
                 .build();
 
-        Document doc = generator.generate(manifest);
+        Document doc = UninstallManifestDocuments.write(manifest);
         NodeList keyElements = doc.getElementsByTagNameNS(NAMESPACE, "createdKey");
         assertEquals(1, keyElements.getLength());
 
@@ -220,7 +212,7 @@ public class UninstallManifestXmlGeneratorTest {
     }
 
     @Test
-    public void testRegistryModifiedValues() throws ParserConfigurationException {
+    public void testRegistryModifiedValues() throws Exception {
         List<UninstallManifest.ModifiedRegistryValue> values = new ArrayList<>();
         values.add(UninstallManifest.ModifiedRegistryValue.builder()
                 .root(UninstallManifest.RegistryRoot.HKEY_CURRENT_USER)
@@ -244,7 +236,7 @@ public class UninstallManifestXmlGeneratorTest {
                 .registry(registry)
                 .build();
 
-        Document doc = generator.generate(manifest);
+        Document doc = UninstallManifestDocuments.write(manifest);
         NodeList valueElements = doc.getElementsByTagNameNS(NAMESPACE, "modifiedValue");
         assertEquals(1, valueElements.getLength());
 
@@ -258,16 +250,16 @@ public class UninstallManifestXmlGeneratorTest {
     }
 
     @Test
-    public void testPathModificationsElementExists() throws ParserConfigurationException {
+    public void testPathModificationsElementExists() throws Exception {
         UninstallManifest manifest = createCompleteManifest();
-        Document doc = generator.generate(manifest);
+        Document doc = UninstallManifestDocuments.write(manifest);
 
         NodeList pathMods = doc.getElementsByTagNameNS(NAMESPACE, "pathModifications");
         assertEquals(1, pathMods.getLength());
     }
 
     @Test
-    public void testWindowsPathEntries() throws ParserConfigurationException {
+    public void testWindowsPathEntries() throws Exception {
         List<UninstallManifest.WindowsPathEntry> entries = new ArrayList<>();
         entries.add(UninstallManifest.WindowsPathEntry.builder()
                 .addedEntry("C:\\Program Files\\MyApp\\bin")
@@ -288,7 +280,7 @@ public class UninstallManifestXmlGeneratorTest {
                 .pathModifications(pathMods)
                 .build();
 
-        Document doc = generator.generate(manifest);
+        Document doc = UninstallManifestDocuments.write(manifest);
 
         // Find the windowsPaths element and its windowsPath entry
         NodeList windowsElements = doc.getElementsByTagNameNS(NAMESPACE, "windowsPaths");
@@ -303,7 +295,7 @@ public class UninstallManifestXmlGeneratorTest {
     }
 
     @Test
-    public void testShellProfileEntries() throws ParserConfigurationException {
+    public void testShellProfileEntries() throws Exception {
         List<UninstallManifest.ShellProfileEntry> entries = new ArrayList<>();
         entries.add(UninstallManifest.ShellProfileEntry.builder()
                 .file("~/.bashrc")
@@ -325,7 +317,7 @@ public class UninstallManifestXmlGeneratorTest {
                 .pathModifications(pathMods)
                 .build();
 
-        Document doc = generator.generate(manifest);
+        Document doc = UninstallManifestDocuments.write(manifest);
         NodeList shellElements = doc.getElementsByTagNameNS(NAMESPACE, "shellProfiles");
         assertEquals(1, shellElements.getLength());
 
@@ -340,7 +332,7 @@ public class UninstallManifestXmlGeneratorTest {
     }
 
     @Test
-    public void testGitBashProfileEntries() throws ParserConfigurationException {
+    public void testGitBashProfileEntries() throws Exception {
         List<UninstallManifest.GitBashProfileEntry> entries = new ArrayList<>();
         entries.add(UninstallManifest.GitBashProfileEntry.builder()
                 .file("~/.bash_profile")
@@ -362,7 +354,7 @@ public class UninstallManifestXmlGeneratorTest {
                 .pathModifications(pathMods)
                 .build();
 
-        Document doc = generator.generate(manifest);
+        Document doc = UninstallManifestDocuments.write(manifest);
         NodeList gitBashElements = doc.getElementsByTagNameNS(NAMESPACE, "gitBashProfiles");
         assertEquals(1, gitBashElements.getLength());
 
@@ -377,7 +369,7 @@ public class UninstallManifestXmlGeneratorTest {
     }
 
     @Test
-    public void testEmptyPathModifications() throws ParserConfigurationException {
+    public void testEmptyPathModifications() throws Exception {
         UninstallManifest.PathModifications pathMods = UninstallManifest.PathModifications.builder()
                 .windowsPaths(Collections.emptyList())
                 .shellProfiles(Collections.emptyList())
@@ -392,7 +384,7 @@ public class UninstallManifestXmlGeneratorTest {
                 .pathModifications(pathMods)
                 .build();
 
-        Document doc = generator.generate(manifest);
+        Document doc = UninstallManifestDocuments.write(manifest);
         NodeList pathModsElements = doc.getElementsByTagNameNS(NAMESPACE, "pathModifications");
         assertEquals(1, pathModsElements.getLength());
 
@@ -402,9 +394,9 @@ public class UninstallManifestXmlGeneratorTest {
     }
 
     @Test
-    public void testCompleteManifestStructure() throws ParserConfigurationException {
+    public void testCompleteManifestStructure() throws Exception {
         UninstallManifest manifest = createCompleteManifest();
-        Document doc = generator.generate(manifest);
+        Document doc = UninstallManifestDocuments.write(manifest);
 
         Element root = doc.getDocumentElement();
         assertEquals("uninstallManifest", root.getLocalName());
@@ -427,7 +419,7 @@ public class UninstallManifestXmlGeneratorTest {
     }
 
     @Test
-    public void testNullRegistryHandling() throws ParserConfigurationException {
+    public void testNullRegistryHandling() throws Exception {
         UninstallManifest manifest = UninstallManifest.builder()
                 .version("1.0")
                 .packageInfo(createMinimalPackageInfo())
@@ -436,13 +428,13 @@ public class UninstallManifestXmlGeneratorTest {
                 .registry(null)
                 .build();
 
-        Document doc = generator.generate(manifest);
+        Document doc = UninstallManifestDocuments.write(manifest);
         NodeList registryElements = doc.getElementsByTagNameNS(NAMESPACE, "registry");
         assertEquals(0, registryElements.getLength());
     }
 
     @Test
-    public void testNullPathModificationsHandling() throws ParserConfigurationException {
+    public void testNullPathModificationsHandling() throws Exception {
         UninstallManifest manifest = UninstallManifest.builder()
                 .version("1.0")
                 .packageInfo(createMinimalPackageInfo())
@@ -451,13 +443,13 @@ public class UninstallManifestXmlGeneratorTest {
                 .pathModifications(null)
                 .build();
 
-        Document doc = generator.generate(manifest);
+        Document doc = UninstallManifestDocuments.write(manifest);
         NodeList pathModsElements = doc.getElementsByTagNameNS(NAMESPACE, "path-modifications");
         assertEquals(0, pathModsElements.getLength());
     }
 
     @Test
-    public void testMultipleFileTypes() throws ParserConfigurationException {
+    public void testMultipleFileTypes() throws Exception {
         List<UninstallManifest.InstalledFile> files = new ArrayList<>();
         for (UninstallManifest.FileType type : UninstallManifest.FileType.values()) {
             files.add(UninstallManifest.InstalledFile.builder()
@@ -473,7 +465,7 @@ public class UninstallManifestXmlGeneratorTest {
                 .directories(Collections.emptyList())
                 .build();
 
-        Document doc = generator.generate(manifest);
+        Document doc = UninstallManifestDocuments.write(manifest);
         NodeList fileElements = doc.getElementsByTagNameNS(NAMESPACE, "file");
         assertEquals(UninstallManifest.FileType.values().length, fileElements.getLength());
 
@@ -486,7 +478,7 @@ public class UninstallManifestXmlGeneratorTest {
     }
 
     @Test
-    public void testMultipleCleanupStrategies() throws ParserConfigurationException {
+    public void testMultipleCleanupStrategies() throws Exception {
         List<UninstallManifest.InstalledDirectory> directories = new ArrayList<>();
         for (UninstallManifest.CleanupStrategy strategy : UninstallManifest.CleanupStrategy.values()) {
             directories.add(UninstallManifest.InstalledDirectory.builder()
@@ -502,7 +494,7 @@ public class UninstallManifestXmlGeneratorTest {
                 .directories(directories)
                 .build();
 
-        Document doc = generator.generate(manifest);
+        Document doc = UninstallManifestDocuments.write(manifest);
         NodeList dirElements = doc.getElementsByTagNameNS(NAMESPACE, "directory");
         assertEquals(UninstallManifest.CleanupStrategy.values().length, dirElements.getLength());
 
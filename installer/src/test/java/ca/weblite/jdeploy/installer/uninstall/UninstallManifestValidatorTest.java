@@ -22,12 +22,10 @@ public class UninstallManifestValidatorTest {
     private static final String NAMESPACE = "http://jdeploy.ca/uninstall-manifest/1.0";
     
     private UninstallManifestValidator validator;
-    private UninstallManifestXmlGenerator generator;
 
     @BeforeEach
     public void setUp() {
         validator = new UninstallManifestValidator();
-        generator = new UninstallManifestXmlGenerator();
     }
 
     @Test
@@ -58,7 +56,7 @@ public class UninstallManifestValidatorTest {
                 .directories(Collections.emptyList())
                 .build();
 
-        Document doc = generator.generate(manifest);
+        Document doc = UninstallManifestDocuments.write(manifest);
         
         // Verify document has correct root element and version
         assertNotNull(doc.getDocumentElement());
@@ -387,7 +385,7 @@ public class UninstallManifestValidatorTest {
                 )
                 .build();
 
-        Document doc = generator.generate(manifest);
+        Document doc = UninstallManifestDocuments.write(manifest);
         
         // Verify basic structure is correct
         assertNotNull(doc.getDocumentElement());
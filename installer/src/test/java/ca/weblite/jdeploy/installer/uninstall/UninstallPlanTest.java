@@ -0,0 +1,98 @@
+package ca.weblite.jdeploy.installer.uninstall;
+
+import ca.weblite.jdeploy.installer.uninstall.model.UninstallManifest.CleanupStrategy;
+import ca.weblite.jdeploy.installer.uninstall.model.UninstallManifest.FileType;
+import ca.weblite.jdeploy.installer.uninstall.model.UninstallManifest.InstalledDirectory;
+import ca.weblite.jdeploy.installer.uninstall.model.UninstallManifest.InstalledFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UninstallPlanTest {
+
+    private static final String ROOT = new File("uninstall-plan-root").getAbsolutePath();
+
+    @Test
+    public void testFilesAreGroupedByParentDirectoryInManifestOrder() {
+        List<InstalledFile> files = Arrays.asList(
+            file("bin/a"),
+            file("lib/x.jar"),
+            file("bin/b"),
+            file("lib/y.jar")
+        );
+
+        UninstallPlan plan = UninstallPlan.create(files, Collections.emptyList());
+
+        assertEquals(2, plan.getFileBatches().size());
+        assertEquals(Arrays.asList(path("bin/a"), path("bin/b")), filePaths(plan.getFileBatches().get(0)));
+        assertEquals(Arrays.asList(path("lib/x.jar"), path("lib/y.jar")), filePaths(plan.getFileBatches().get(1)));
+    }
+
+    @Test
+    public void testNestedDirectoriesAreOrderedDeepestFirstWithinTheirSubtree() {
+        List<InstalledDirectory> directories = Arrays.asList(
+            directory("app", CleanupStrategy.IF_EMPTY),
+            directory("other", CleanupStrategy.ALWAYS),
+            directory("app/jre", CleanupStrategy.ALWAYS),
+            directory("app/jre/lib", CleanupStrategy.ALWAYS),
+            directory("app/bin", CleanupStrategy.CONTENTS_ONLY),
+            directory("app-data", CleanupStrategy.ALWAYS),
+            directory("app/./jre", CleanupStrategy.IF_EMPTY)
+        );
+
+        UninstallPlan plan = UninstallPlan.create(Collections.emptyList(), directories);
+
+        List<List<InstalledDirectory>> batches = plan.getDirectoryBatches();
+        assertEquals(3, batches.size());
+        assertEquals(
+            Arrays.asList(path("app/jre/lib"), path("app/jre"), path("app/bin"), path("app")),
+            directoryPaths(batches.get(0))
+        );
+        assertEquals(CleanupStrategy.ALWAYS, batches.get(0).get(1).getCleanup(),
+            "The first entry for a directory should win");
+        assertEquals(Collections.singletonList(path("other")), directoryPaths(batches.get(1)));
+        assertEquals(Collections.singletonList(path("app-data")), directoryPaths(batches.get(2)));
+    }
+
+    @Test
+    public void testEmptyManifest() {
+        UninstallPlan plan = UninstallPlan.create(null, null);
+
+        assertTrue(plan.getFileBatches().isEmpty());
+        assertTrue(plan.getDirectoryBatches().isEmpty());
+    }
+
+    private static String path(String relativePath) {
+        return ROOT + File.separator + relativePath.replace('/', File.separatorChar);
+    }
+
+    private static InstalledFile file(String relativePath) {
+        return InstalledFile.builder().path(path(relativePath)).type(FileType.BINARY).build();
+    }
+
+    private static InstalledDirectory directory(String relativePath, CleanupStrategy cleanup) {
+        return InstalledDirectory.builder().path(path(relativePath)).cleanup(cleanup).build();
+    }
+
+    private static List<String> filePaths(List<InstalledFile> files) {
+        List<String> out = new ArrayList<>();
+        for (InstalledFile file : files) {
+            out.add(file.getPath());
+        }
+        return out;
+    }
+
+    private static List<String> directoryPaths(List<InstalledDirectory> directories) {
+        List<String> out = new ArrayList<>();
+        for (InstalledDirectory directory : directories) {
+            out.add(directory.getPath());
+        }
+        return out;
+    }
+}
@@ -76,7 +76,7 @@ public class UninstallServiceLinuxIT {
         // Create services
         registryOps = new InMemoryRegistryOperations();
         manifestRepository = new FileUninstallManifestRepository(true);
-        service = new UninstallService(manifestRepository, registryOps);
+        service = new UninstallService(manifestRepository, registryOps, null);
     }
 
     @AfterEach
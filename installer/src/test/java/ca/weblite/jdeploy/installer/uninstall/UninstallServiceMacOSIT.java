@@ -73,7 +73,7 @@ public class UninstallServiceMacOSIT {
         // Create services with real repository
         registryOps = new InMemoryRegistryOperations();
         manifestRepository = new FileUninstallManifestRepository(true); // Skip validation
-        service = new UninstallService(manifestRepository, registryOps);
+        service = new UninstallService(manifestRepository, registryOps, null);
     }
 
     @AfterEach
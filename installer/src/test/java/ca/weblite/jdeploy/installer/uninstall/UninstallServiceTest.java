@@ -58,7 +58,7 @@ public class UninstallServiceTest {
         tempDir = Files.createTempDirectory("uninstall-test-");
         registryOps = new InMemoryRegistryOperations();
         manifestRepository = new StubFileUninstallManifestRepository();
-        service = new UninstallService(manifestRepository, registryOps);
+        service = new UninstallService(manifestRepository, registryOps, null);
     }
 
     @AfterEach
@@ -233,6 +233,41 @@ public class UninstallServiceTest {
         assertTrue(result.isSuccess());
     }
 
+    @Test
+    public void testNestedDirectoriesAreCleanedUpBeforeTheirParents() throws IOException {
+        // Setup: An IF_EMPTY directory listed before the directories nested inside it
+        File appDir = tempDir.resolve("app").toFile();
+        File jreDir = new File(appDir, "jre");
+        File binDir = new File(appDir, "bin");
+        assertTrue(new File(jreDir, "lib").mkdirs());
+        assertTrue(new File(jreDir, "lib/modules").createNewFile());
+        assertTrue(binDir.mkdirs());
+        File launcher = new File(binDir, "launcher");
+        assertTrue(launcher.createNewFile());
+
+        List<InstalledFile> files = Collections.singletonList(
+            InstalledFile.builder().path(launcher.getAbsolutePath()).type(FileType.BINARY).build()
+        );
+        List<InstalledDirectory> directories = Arrays.asList(
+            InstalledDirectory.builder().path(appDir.getAbsolutePath())
+                .cleanup(CleanupStrategy.IF_EMPTY).build(),
+            InstalledDirectory.builder().path(jreDir.getAbsolutePath())
+                .cleanup(CleanupStrategy.ALWAYS).build(),
+            InstalledDirectory.builder().path(binDir.getAbsolutePath())
+                .cleanup(CleanupStrategy.IF_EMPTY).build()
+        );
+        UninstallManifest manifest = createManifestWithFiles(files, directories);
+        manifestRepository.setManifest(manifest);
+
+        // Execute uninstall
+        UninstallService.UninstallResult result = service.uninstall(TEST_PACKAGE_NAME, TEST_SOURCE);
+
+        // Verify: Children were removed first, so the IF_EMPTY parent was empty
+        assertFalse(appDir.exists(), "Parent directory should be deleted once its children are gone");
+        assertTrue(result.getSuccessCount() >= 4, "File and all three directories should be counted");
+        assertTrue(result.isSuccess());
+    }
+
     @Test
     public void testCleanupMissingDirectoryIsIdempotent() {
         // Setup: Reference non-existent directory
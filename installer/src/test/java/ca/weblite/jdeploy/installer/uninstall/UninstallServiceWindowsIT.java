@@ -81,7 +81,7 @@ public class UninstallServiceWindowsIT {
         // Create services with real repository and in-memory registry
         registryOps = new InMemoryRegistryOperations();
         manifestRepository = new FileUninstallManifestRepository(true); // Skip validation
-        service = new UninstallService(manifestRepository, registryOps);
+        service = new UninstallService(manifestRepository, registryOps, null);
     }
 
     @AfterEach
@@ -0,0 +1,142 @@
+package ca.weblite.jdeploy.installer.util;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContentStoreTest {
+
+    @TempDir
+    File tempDir;
+
+    private ContentStore store;
+
+    @BeforeEach
+    public void setUp() {
+        Assumptions.assumeTrue(ContentStore.isSupported());
+        store = new ContentStore(new File(tempDir, "store"));
+    }
+
+    @Test
+    public void testMaterialize_SharesIdenticalFilesBetweenTrees() throws IOException {
+        File source = new File(tempDir, "source");
+        write(new File(source, "app.xml"), "<app/>");
+        write(new File(source, "icons/icon.png"), "PNG");
+        File run = new File(source, "run.sh");
+        write(run, "#!/bin/sh");
+        assertTrue(run.setExecutable(true));
+
+        File first = new File(tempDir, "first");
+        File second = new File(tempDir, "second");
+        assertEquals(3, store.materialize(source, first));
+        assertEquals(3, store.materialize(source, second));
+
+        assertEquals("PNG", read(new File(second, "icons/icon.png")));
+        assertTrue(new File(second, "run.sh").canExecute());
+        assertFalse(new File(second, "app.xml").canExecute());
+        assertTrue(Files.isSameFile(
+                new File(first, "app.xml").toPath(),
+                new File(second, "app.xml").toPath()
+        ));
+        assertFalse(
+                Files.getPosixFilePermissions(new File(first, "app.xml").toPath()).contains(PosixFilePermission.OWNER_WRITE),
+                "Shared files must be read-only"
+        );
+    }
+
+    @Test
+    public void testCollectGarbage_KeepsBlobsUntilLastTreeIsDeleted() throws IOException {
+        File source = new File(tempDir, "source");
+        write(new File(source, "shared.txt"), "shared");
+        File first = new File(tempDir, "first");
+        File second = new File(tempDir, "second");
+        store.materialize(source, first);
+        write(new File(source, "only-second.txt"), "second");
+        store.materialize(source, second);
+
+        assertEquals(0, store.collectGarbage());
+
+        FileUtils.deleteDirectory(second);
+        assertEquals(1, store.collectGarbage());
+        assertEquals("shared", read(new File(first, "shared.txt")));
+
+        FileUtils.deleteDirectory(first);
+        assertEquals(1, store.collectGarbage());
+        assertArrayEquals(new String[0], new File(tempDir, "store/blobs").list());
+    }
+
+    @Test
+    public void testCollectGarbage_DoesNotDeleteBlobsOfTreesBeingMaterialized() throws Exception {
+        File source = new File(tempDir, "source");
+        for (int i = 0; i < 20; i++) {
+            write(new File(source, "file" + i + ".txt"), "content " + i);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        AtomicBoolean done = new AtomicBoolean();
+        try {
+            Future<?> collector = executor.submit(() -> {
+                while (!done.get()) {
+                    store.collectGarbage();
+                }
+                return null;
+            });
+            List<Future<File>> trees = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                File destination = new File(tempDir, "tree" + i);
+                trees.add(executor.submit(() -> {
+                    store.materialize(source, destination);
+                    return destination;
+                }));
+            }
+            for (Future<File> tree : trees) {
+                File destination = tree.get();
+                for (int i = 0; i < 20; i++) {
+                    assertEquals("content " + i, read(new File(destination, "file" + i + ".txt")));
+                }
+            }
+            done.set(true);
+            collector.get();
+        } finally {
+            done.set(true);
+            executor.shutdownNow();
+        }
+        assertEquals(0, store.collectGarbage());
+    }
+
+    @Test
+    public void testLinkOrCopyTree_SurvivesDeletionOfOriginal() throws IOException {
+        File app = new File(tempDir, "MyApp.app");
+        write(new File(app, "Contents/Info.plist"), "<plist/>");
+        File backup = new File(tempDir, "MyApp.app.bak");
+
+        ContentStore.linkOrCopyTree(app, backup);
+        FileUtils.deleteDirectory(app);
+
+        assertEquals("<plist/>", read(new File(backup, "Contents/Info.plist")));
+    }
+
+    private static void write(File file, String content) throws IOException {
+        FileUtils.writeStringToFile(file, content, StandardCharsets.UTF_8);
+    }
+
+    private static String read(File file) throws IOException {
+        return FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,180 @@
+package ca.weblite.jdeploy.installer.util;
+
+import ca.weblite.tools.platform.Platform;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against whatever filesystem holds the temp directory: on btrfs, XFS or APFS the clone
+ * succeeds, elsewhere (ext4, tmpfs) it is refused and the fallback contract is checked instead.
+ * On Linux, when running as root with mkfs.btrfs or mkfs.xfs installed, the FICLONE path is also
+ * tested on a loopback filesystem.
+ */
+public class FileClonerTest {
+
+    private static final long LOOPBACK_IMAGE_SIZE = 512L * 1024 * 1024;
+
+    private static final int CLONED_FILE_SIZE = 64 * 1024 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testCloneFileCopiesContentAndAttributesOrLeavesNothing() throws IOException {
+        Assumptions.assumeTrue(FileCloner.isSupported());
+        Path source = write("run.sh", "#!/bin/sh\necho hello\n");
+        Files.setPosixFilePermissions(source, PosixFilePermissions.fromString("rwxr-x---"));
+        FileTime mtime = FileTime.fromMillis(1500000000000L);
+        Files.setLastModifiedTime(source, mtime);
+        Path clone = tempDir.resolve("clone.sh");
+
+        if (FileCloner.cloneFile(source, clone)) {
+            assertArrayEquals(Files.readAllBytes(source), Files.readAllBytes(clone));
+            assertEquals("rwxr-x---", PosixFilePermissions.toString(Files.getPosixFilePermissions(clone)));
+            assertEquals(mtime, Files.getLastModifiedTime(clone));
+
+            Files.write(clone, "changed".getBytes(StandardCharsets.UTF_8));
+            assertEquals("#!/bin/sh\necho hello\n", read(source), "Writing the clone must not change the original");
+        } else {
+            assertFalse(Files.exists(clone), "A refused clone must not leave a file behind");
+        }
+    }
+
+    @Test
+    public void testCloneFileSharesExtentsOnReflinkFilesystem() throws Exception {
+        Assumptions.assumeTrue(Platform.getSystemPlatform().isLinux() && FileCloner.isSupported());
+        Assumptions.assumeTrue("root".equals(System.getProperty("user.name")), "Mounting a loopback image needs root");
+        List<String> mkfs = findMkfs();
+        Assumptions.assumeTrue(mkfs != null, "Neither mkfs.btrfs nor mkfs.xfs is installed");
+
+        Path image = tempDir.resolve("reflink.img");
+        try (RandomAccessFile file = new RandomAccessFile(image.toFile(), "rw")) {
+            file.setLength(LOOPBACK_IMAGE_SIZE);
+        }
+        mkfs.add(image.toString());
+        assertEquals(0, run(mkfs), "mkfs failed: " + mkfs);
+        Path mountPoint = Files.createDirectory(tempDir.resolve("mnt"));
+        Assumptions.assumeTrue(run(Arrays.asList("mount", "-o", "loop", image.toString(), mountPoint.toString())) == 0,
+                "Loop devices aren't available");
+        try {
+            byte[] content = new byte[CLONED_FILE_SIZE];
+            new Random(42).nextBytes(content);
+            Path source = Files.write(mountPoint.resolve("app.jar"), content);
+            Path clone = mountPoint.resolve("clone.jar");
+            assertEquals(0, run(Arrays.asList("sync")));
+            long usableBefore = Files.getFileStore(mountPoint).getUsableSpace();
+
+            assertTrue(FileCloner.cloneFile(source, clone), "FICLONE was refused on "
+                    + Files.getFileStore(mountPoint).type());
+            assertEquals(0, run(Arrays.asList("sync")));
+            long used = usableBefore - Files.getFileStore(mountPoint).getUsableSpace();
+
+            assertArrayEquals(content, Files.readAllBytes(clone));
+            assertTrue(used < CLONED_FILE_SIZE / 2,
+                    "The clone used " + used + " bytes, so the data was copied rather than shared");
+            Files.write(clone, "changed".getBytes(StandardCharsets.UTF_8));
+            assertArrayEquals(content, Files.readAllBytes(source), "Writing the clone must not change the original");
+        } finally {
+            run(Arrays.asList("umount", mountPoint.toString()));
+        }
+    }
+
+    @Test
+    public void testCloneFileDoesNotReplaceExistingDestination() throws IOException {
+        Path source = write("source.txt", "new");
+        Path existing = write("existing.txt", "old");
+
+        assertFalse(FileCloner.cloneFile(source, existing));
+        assertEquals("old", read(existing));
+    }
+
+    @Test
+    public void testCloneFileOnlyClonesRegularFiles() throws IOException {
+        Path dir = Files.createDirectory(tempDir.resolve("dir"));
+        assertFalse(FileCloner.cloneFile(dir, tempDir.resolve("dir-clone")));
+        assertFalse(Files.exists(tempDir.resolve("dir-clone")));
+
+        Assumptions.assumeFalse(Platform.getSystemPlatform().isWindows());
+        Path link = Files.createSymbolicLink(tempDir.resolve("link"), write("target.txt", "x"));
+        assertFalse(FileCloner.cloneFile(link, tempDir.resolve("link-clone")));
+        assertFalse(Files.exists(tempDir.resolve("link-clone")));
+    }
+
+    @Test
+    public void testCloneTreeIsOnlyAvailableOnMac() throws IOException {
+        Assumptions.assumeFalse(Platform.getSystemPlatform().isMac());
+        Path dir = Files.createDirectory(tempDir.resolve("dir"));
+        write("dir/file.txt", "x");
+
+        assertFalse(FileCloner.cloneTree(dir, tempDir.resolve("dir-clone")));
+        assertFalse(Files.exists(tempDir.resolve("dir-clone")));
+    }
+
+    /**
+     * @return the command to create a reflink-capable filesystem, without the image argument, or
+     *         null if no suitable mkfs is installed
+     */
+    private static List<String> findMkfs() {
+        Path btrfs = findExecutable("mkfs.btrfs");
+        if (btrfs != null) {
+            return new ArrayList<>(Arrays.asList(btrfs.toString(), "-q", "-f"));
+        }
+        Path xfs = findExecutable("mkfs.xfs");
+        if (xfs != null) {
+            return new ArrayList<>(Arrays.asList(xfs.toString(), "-q", "-f", "-m", "reflink=1"));
+        }
+        return null;
+    }
+
+    private static Path findExecutable(String name) {
+        List<String> dirs = new ArrayList<>(Arrays.asList(System.getenv().getOrDefault("PATH", "").split(File.pathSeparator)));
+        dirs.addAll(Arrays.asList("/sbin", "/usr/sbin"));
+        for (String dir : dirs) {
+            Path candidate = Paths.get(dir.isEmpty() ? "." : dir, name);
+            if (Files.isExecutable(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private static int run(List<String> command) throws Exception {
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        if (!process.waitFor(1, TimeUnit.MINUTES)) {
+            process.destroyForcibly();
+            return -1;
+        }
+        return process.exitValue();
+    }
+
+    private Path write(String name, String content) throws IOException {
+        Path file = tempDir.resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}
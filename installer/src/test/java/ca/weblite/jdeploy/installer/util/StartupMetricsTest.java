@@ -0,0 +1,21 @@
+package ca.weblite.jdeploy.installer.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StartupMetricsTest {
+
+    @Test
+    public void testMark_RecordsFirstOccurrenceOnly() throws InterruptedException {
+        assertEquals(-1, StartupMetrics.getMillis("test-stage"));
+
+        StartupMetrics.mark("test-stage");
+        long first = StartupMetrics.getMillis("test-stage");
+        Thread.sleep(5);
+        StartupMetrics.mark("test-stage");
+
+        assertTrue(first >= 0);
+        assertEquals(first, StartupMetrics.getMillis("test-stage"));
+    }
+}
@@ -0,0 +1,383 @@
+package ca.weblite.jdeploy.installer.win;
+
+import net.jsign.AuthenticodeSigner;
+import net.jsign.DigestAlgorithm;
+import net.jsign.Signable;
+import net.jsign.timestamp.RFC3161Timestamper;
+import net.jsign.timestamp.TimestampingException;
+import net.jsign.timestamp.Timestamper;
+import org.apache.commons.io.FileUtils;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.oiw.OIWObjectIdentifiers;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.ExtendedKeyUsage;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.KeyPurposeId;
+import org.bouncycastle.cert.jcajce.JcaCertStore;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.cms.CMSSignedData;
+import org.bouncycastle.cms.jcajce.JcaSimpleSignerInfoGeneratorBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+import org.bouncycastle.tsp.TimeStampRequest;
+import org.bouncycastle.tsp.TimeStampRequestGenerator;
+import org.bouncycastle.tsp.TimeStampTokenGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests AuthenticodeSignatureChecker against copies of the mock launchers signed with jsign.
+ */
+public class AuthenticodeSignatureCheckerTest {
+
+    private static final File MOCK_LAUNCHER_DIR = new File("tests/mock_launcher");
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    private File tempDir;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        tempDir = Files.createTempDirectory("authenticode-test").toFile();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(tempDir);
+    }
+
+    @Test
+    public void testUnsignedExecutable() throws Exception {
+        File exe = copyLauncher("mock_launcher_win.exe");
+
+        AuthenticodeSignatureChecker.SignatureCheckResult result =
+            new AuthenticodeSignatureChecker(Collections.emptyList()).checkSignature(exe);
+
+        assertFalse(result.isSigned());
+        assertFalse(result.isTrusted());
+        assertFalse(result.isSignedButUntrusted());
+        assertEquals("Not signed", result.getStatusMessage());
+    }
+
+    @Test
+    public void testSelfSignedExecutableIsUntrusted() throws Exception {
+        KeyPair keys = generateKeyPair();
+        // Names are encoded most significant RDN first and displayed in reverse, as Windows does
+        X509Certificate cert = createCertificate("C=CA, O=Test Org, CN=Test Publisher", keys, null, null, false);
+        File exe = copyLauncher("mock_launcher_win.exe");
+        sign(exe, keys.getPrivate(), DigestAlgorithm.SHA256, cert);
+
+        AuthenticodeSignatureChecker.SignatureCheckResult result =
+            new AuthenticodeSignatureChecker(Collections.emptyList()).checkSignature(exe);
+
+        assertTrue(result.isSigned());
+        assertTrue(result.isDigestValid());
+        assertFalse(result.isTrusted());
+        assertTrue(result.isSignedButUntrusted());
+        assertEquals("CN=Test Publisher, O=Test Org, C=CA", result.getSubject());
+        assertEquals("CN=Test Publisher, O=Test Org, C=CA", result.getIssuer());
+        assertEquals(sha1Hex(cert.getEncoded()), result.getThumbprint());
+        assertEquals(AuthenticodeSignatureChecker.STATUS_NOT_TRUSTED, result.getStatusMessage());
+    }
+
+    @Test
+    public void testTrustedSelfSignedCertificate() throws Exception {
+        KeyPair keys = generateKeyPair();
+        X509Certificate cert = createCertificate("CN=Trusted Publisher", keys, null, null, false);
+        File exe = copyLauncher("mock_launcher_win_x64.exe");
+        sign(exe, keys.getPrivate(), DigestAlgorithm.SHA256, cert);
+
+        AuthenticodeSignatureChecker.SignatureCheckResult result =
+            new AuthenticodeSignatureChecker(Collections.singletonList(cert)).checkSignature(exe);
+
+        assertTrue(result.isSigned());
+        assertTrue(result.isTrusted());
+        assertFalse(result.isSignedButUntrusted());
+        assertEquals(AuthenticodeSignatureChecker.STATUS_VALID, result.getStatusMessage());
+    }
+
+    @Test
+    public void testCertificateChainingToTrustedRoot() throws Exception {
+        KeyPair rootKeys = generateKeyPair();
+        X509Certificate root = createCertificate("CN=Test Root CA", rootKeys, null, null, true);
+        KeyPair leafKeys = generateKeyPair();
+        X509Certificate leaf = createCertificate("CN=Leaf Publisher", leafKeys, root, rootKeys.getPrivate(), false);
+
+        for (String launcher : Arrays.asList("mock_launcher_win.exe", "mock_launcher_win_x64.exe",
+                "mock_launcher_win_arm64.exe")) {
+            File exe = copyLauncher(launcher);
+            sign(exe, leafKeys.getPrivate(), DigestAlgorithm.SHA1, leaf, root);
+
+            AuthenticodeSignatureChecker.SignatureCheckResult trusted =
+                new AuthenticodeSignatureChecker(Collections.singletonList(root)).checkSignature(exe);
+            assertTrue(trusted.isDigestValid(), launcher);
+            assertTrue(trusted.isTrusted(), launcher);
+            assertEquals("CN=Leaf Publisher", trusted.getSubject());
+            assertEquals("CN=Test Root CA", trusted.getIssuer());
+
+            AuthenticodeSignatureChecker.SignatureCheckResult untrusted =
+                new AuthenticodeSignatureChecker(Collections.singletonList(leaf)).checkSignature(exe);
+            assertTrue(untrusted.isTrusted(), "A directly trusted signer is trusted: " + launcher);
+        }
+    }
+
+    @Test
+    public void testCertificateWithoutCodeSigningUsageIsUntrusted() throws Exception {
+        KeyPair keys = generateKeyPair();
+        long now = System.currentTimeMillis();
+        X509Certificate cert = createCertificate("CN=Server", keys, null, null, false,
+            KeyPurposeId.id_kp_serverAuth, new Date(now - DAY_MS), new Date(now + 365 * DAY_MS));
+        File exe = copyLauncher("mock_launcher_win.exe");
+        sign(exe, keys.getPrivate(), DigestAlgorithm.SHA256, cert);
+
+        AuthenticodeSignatureChecker.SignatureCheckResult result =
+            new AuthenticodeSignatureChecker(Collections.singletonList(cert)).checkSignature(exe);
+
+        assertTrue(result.isDigestValid());
+        assertFalse(result.isTrusted(), "Only certificates issued for code signing should be trusted");
+        assertEquals(AuthenticodeSignatureChecker.STATUS_NOT_TRUSTED, result.getStatusMessage());
+    }
+
+    @Test
+    public void testTimestampKeepsExpiredCertificateTrusted() throws Exception {
+        long now = System.currentTimeMillis();
+        KeyPair rootKeys = generateKeyPair();
+        X509Certificate root = createCertificate("CN=Test Root CA", rootKeys, null, null, true);
+        KeyPair leafKeys = generateKeyPair();
+        X509Certificate leaf = createCertificate("CN=Expired Publisher", leafKeys, root, rootKeys.getPrivate(),
+            false, KeyPurposeId.id_kp_codeSigning, new Date(now - 10 * DAY_MS), new Date(now - DAY_MS));
+        KeyPair tsaKeys = generateKeyPair();
+        X509Certificate tsa = createCertificate("CN=Test TSA", tsaKeys, root, rootKeys.getPrivate(),
+            false, KeyPurposeId.id_kp_timeStamping, new Date(now - 10 * DAY_MS), new Date(now + 365 * DAY_MS));
+        AuthenticodeSignatureChecker checker = new AuthenticodeSignatureChecker(Collections.singletonList(root));
+
+        File timestamped = copyLauncher("mock_launcher_win.exe");
+        sign(timestamped, leafKeys.getPrivate(), DigestAlgorithm.SHA256,
+            new LocalTimestamper(tsaKeys.getPrivate(), tsa, new Date(now - 2 * DAY_MS)), leaf, root);
+        AuthenticodeSignatureChecker.SignatureCheckResult result = checker.checkSignature(timestamped);
+        assertTrue(result.isDigestValid());
+        assertTrue(result.isTrusted(), "Signed while the certificate was valid");
+
+        File untimestamped = copyLauncher("mock_launcher_win_x64.exe");
+        sign(untimestamped, leafKeys.getPrivate(), DigestAlgorithm.SHA256, leaf, root);
+        assertFalse(checker.checkSignature(untimestamped).isTrusted(), "The certificate has expired");
+    }
+
+    @Test
+    public void testUntrustedTimestampAuthorityIsIgnored() throws Exception {
+        long now = System.currentTimeMillis();
+        KeyPair rootKeys = generateKeyPair();
+        X509Certificate root = createCertificate("CN=Test Root CA", rootKeys, null, null, true);
+        KeyPair leafKeys = generateKeyPair();
+        X509Certificate leaf = createCertificate("CN=Expired Publisher", leafKeys, root, rootKeys.getPrivate(),
+            false, KeyPurposeId.id_kp_codeSigning, new Date(now - 10 * DAY_MS), new Date(now - DAY_MS));
+        KeyPair tsaKeys = generateKeyPair();
+        X509Certificate tsa = createCertificate("CN=Rogue TSA", tsaKeys, null, null,
+            false, KeyPurposeId.id_kp_timeStamping, new Date(now - 10 * DAY_MS), new Date(now + 365 * DAY_MS));
+
+        File exe = copyLauncher("mock_launcher_win.exe");
+        sign(exe, leafKeys.getPrivate(), DigestAlgorithm.SHA256,
+            new LocalTimestamper(tsaKeys.getPrivate(), tsa, new Date(now - 2 * DAY_MS)), leaf, root);
+
+        AuthenticodeSignatureChecker.SignatureCheckResult result =
+            new AuthenticodeSignatureChecker(Collections.singletonList(root)).checkSignature(exe);
+        assertTrue(result.isDigestValid());
+        assertFalse(result.isTrusted(), "A timestamp from an untrusted authority should not backdate the check");
+    }
+
+    @Test
+    public void testModifiedExecutableFailsDigestCheck() throws Exception {
+        KeyPair keys = generateKeyPair();
+        X509Certificate cert = createCertificate("CN=Test Publisher", keys, null, null, false);
+        File exe = copyLauncher("mock_launcher_win.exe");
+        sign(exe, keys.getPrivate(), DigestAlgorithm.SHA256, cert);
+
+        try (RandomAccessFile file = new RandomAccessFile(exe, "rw")) {
+            file.seek(0x400);
+            int b = file.read();
+            file.seek(0x400);
+            file.write(b ^ 0xFF);
+        }
+
+        AuthenticodeSignatureChecker.SignatureCheckResult result =
+            new AuthenticodeSignatureChecker(Collections.singletonList(cert)).checkSignature(exe);
+
+        assertTrue(result.isSigned());
+        assertFalse(result.isDigestValid());
+        assertFalse(result.isTrusted());
+        assertFalse(result.isSignedButUntrusted(), "A modified file should not offer its certificate for trust");
+        assertEquals(AuthenticodeSignatureChecker.STATUS_HASH_MISMATCH, result.getStatusMessage());
+    }
+
+    @Test
+    public void testExportCertificate() throws Exception {
+        KeyPair keys = generateKeyPair();
+        X509Certificate cert = createCertificate("CN=Export Test", keys, null, null, false);
+        File exe = copyLauncher("mock_launcher_win.exe");
+        sign(exe, keys.getPrivate(), DigestAlgorithm.SHA256, cert);
+
+        AuthenticodeSignatureChecker checker = new AuthenticodeSignatureChecker(Collections.emptyList());
+        File certFile = checker.exportCertificate(exe);
+        try {
+            assertArrayEquals(cert.getEncoded(), Files.readAllBytes(certFile.toPath()));
+        } finally {
+            certFile.delete();
+        }
+
+        File unsigned = new File(tempDir, "unsigned.exe");
+        FileUtils.copyFile(new File(MOCK_LAUNCHER_DIR, "mock_launcher_win.exe"), unsigned);
+        assertThrows(java.io.IOException.class, () -> checker.exportCertificate(unsigned));
+    }
+
+    @Test
+    public void testRejectsNonExeFile() throws Exception {
+        File notExe = new File(tempDir, "launcher.bin");
+        FileUtils.writeStringToFile(notExe, "x", "UTF-8");
+
+        assertThrows(IllegalArgumentException.class,
+            () -> new AuthenticodeSignatureChecker(Collections.emptyList()).checkSignature(notExe));
+    }
+
+    private File copyLauncher(String name) throws Exception {
+        File copy = new File(tempDir, name);
+        FileUtils.copyFile(new File(MOCK_LAUNCHER_DIR, name), copy);
+        return copy;
+    }
+
+    private static void sign(File exe, PrivateKey key, DigestAlgorithm digestAlgorithm, Certificate... chain)
+            throws Exception {
+        sign(exe, key, digestAlgorithm, null, chain);
+    }
+
+    private static void sign(
+            File exe,
+            PrivateKey key,
+            DigestAlgorithm digestAlgorithm,
+            Timestamper timestamper,
+            Certificate... chain
+    ) throws Exception {
+        AuthenticodeSigner signer = new AuthenticodeSigner(chain, key)
+            .withTimestamping(timestamper != null)
+            .withDigestAlgorithm(digestAlgorithm);
+        if (timestamper != null) {
+            signer.withTimestamper(timestamper);
+        }
+        try (Signable signable = Signable.of(exe)) {
+            signer.sign(signable);
+        }
+    }
+
+    private static KeyPair generateKeyPair() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return generator.generateKeyPair();
+    }
+
+    private static X509Certificate createCertificate(
+            String subject,
+            KeyPair keys,
+            X509Certificate issuer,
+            PrivateKey issuerKey,
+            boolean ca
+    ) throws Exception {
+        long now = System.currentTimeMillis();
+        return createCertificate(subject, keys, issuer, issuerKey, ca, ca ? null : KeyPurposeId.id_kp_codeSigning,
+            new Date(now - DAY_MS), new Date(now + 365 * DAY_MS));
+    }
+
+    private static X509Certificate createCertificate(
+            String subject,
+            KeyPair keys,
+            X509Certificate issuer,
+            PrivateKey issuerKey,
+            boolean ca,
+            KeyPurposeId purpose,
+            Date notBefore,
+            Date notAfter
+    ) throws Exception {
+        X500Name subjectName = new X500Name(subject);
+        X500Name issuerName = issuer != null
+            ? X500Name.getInstance(issuer.getSubjectX500Principal().getEncoded())
+            : subjectName;
+        JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(
+            issuerName,
+            BigInteger.valueOf(System.nanoTime()),
+            notBefore,
+            notAfter,
+            subjectName,
+            keys.getPublic()
+        );
+        builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(ca));
+        if (purpose != null) {
+            builder.addExtension(Extension.extendedKeyUsage, purpose == KeyPurposeId.id_kp_timeStamping,
+                new ExtendedKeyUsage(purpose));
+        }
+        PrivateKey signingKey = issuerKey != null ? issuerKey : keys.getPrivate();
+        return new JcaX509CertificateConverter().getCertificate(
+            builder.build(new JcaContentSignerBuilder("SHA256withRSA").build(signingKey)));
+    }
+
+    private static String sha1Hex(byte[] data) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-1").digest(data)) {
+            sb.append(String.format("%02X", b));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Issues RFC 3161 timestamps locally instead of asking a timestamp authority.
+     */
+    private static class LocalTimestamper extends RFC3161Timestamper {
+        private final PrivateKey key;
+        private final X509Certificate certificate;
+        private final Date time;
+
+        LocalTimestamper(PrivateKey key, X509Certificate certificate, Date time) {
+            this.key = key;
+            this.certificate = certificate;
+            this.time = time;
+        }
+
+        @Override
+        protected CMSSignedData timestamp(DigestAlgorithm algo, byte[] encryptedDigest)
+                throws IOException, TimestampingException {
+            try {
+                TimeStampRequestGenerator requestGenerator = new TimeStampRequestGenerator();
+                requestGenerator.setCertReq(true);
+                TimeStampRequest request = requestGenerator.generate(
+                    algo.oid, algo.getMessageDigest().digest(encryptedDigest));
+
+                TimeStampTokenGenerator generator = new TimeStampTokenGenerator(
+                    new JcaSimpleSignerInfoGeneratorBuilder().build("SHA256withRSA", key, certificate),
+                    new JcaDigestCalculatorProviderBuilder().build()
+                        .get(new AlgorithmIdentifier(OIWObjectIdentifiers.idSHA1)),
+                    new ASN1ObjectIdentifier("1.2.3.4"));
+                generator.addCertificates(new JcaCertStore(Collections.singletonList(certificate)));
+                return generator.generate(request, BigInteger.ONE, time).toCMSSignedData();
+            } catch (Exception e) {
+                throw new TimestampingException("Failed to create timestamp: " + e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -7,8 +7,15 @@ import java.util.Arrays;
 public class JDeployClient {
     private final String version;
 
+    private final File workingDirectory;
+
     public JDeployClient(String version) {
+        this(version, null);
+    }
+
+    public JDeployClient(String version, File workingDirectory) {
         this.version = version;
+        this.workingDirectory = workingDirectory;
     }
 
     public void execJdeploy(String... args) throws IOException {
@@ -34,6 +41,9 @@ public class JDeployClient {
         final ProcessBuilder processBuilder = new ProcessBuilder(getNpxPath(), "--yes", "jdeploy@"+getJdeployVersion());
         processBuilder.command().addAll(Arrays.asList(args));
         processBuilder.inheritIO();
+        if (workingDirectory != null) {
+            processBuilder.directory(workingDirectory);
+        }
 
         return processBuilder;
     }
@@ -42,6 +52,9 @@ public class JDeployClient {
         final ProcessBuilder processBuilder = new ProcessBuilder(getNpmPath());
         processBuilder.command().addAll(Arrays.asList(args));
         processBuilder.inheritIO();
+        if (workingDirectory != null) {
+            processBuilder.directory(workingDirectory);
+        }
 
         return processBuilder;
     }
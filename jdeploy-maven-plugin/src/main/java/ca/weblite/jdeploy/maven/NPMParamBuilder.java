@@ -1,14 +1,32 @@
 package ca.weblite.jdeploy.maven;
 
+import ca.weblite.jdeploy.maven.npm.PackageJSONEditor;
+
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 public class NPMParamBuilder {
 
+    private final File packageJSON;
+
     private final JDeployClient client;
 
+    /**
+     * Creates a builder that updates the given package.json in-process, with the same
+     * result as running {@code npm pkg set} for each parameter.
+     */
+    public NPMParamBuilder(File packageJSON) {
+        this.packageJSON = packageJSON;
+        this.client = null;
+    }
+
+    /**
+     * Creates a builder that runs {@code npm pkg set} once per parameter.
+     */
     public NPMParamBuilder(JDeployClient client) {
+        this.packageJSON = null;
         this.client = client;
     }
 
@@ -55,6 +73,26 @@ public class NPMParamBuilder {
     }
 
     public void apply() throws IOException {
+        if (packageJSON == null) {
+            applyWithNpm();
+            return;
+        }
+
+        PackageJSONEditor editor = new PackageJSONEditor(packageJSON);
+        for (NPMParam param : paramList) {
+            // npm splits the argument at the first '=', so a key containing one spills into the value
+            String arg = param.key + "=" + param.value;
+            int separator = arg.indexOf('=');
+            try {
+                editor.set(arg.substring(0, separator), arg.substring(separator + 1), param.json);
+            } catch (IOException ex) {
+                throw new IOException("Failed to set npm parameter " + param.key + " to value " + param.value, ex);
+            }
+        }
+        editor.save();
+    }
+
+    private void applyWithNpm() throws IOException {
         for (NPMParam param : paramList) {
             try {
                 client.execNpm(argsFor(param));
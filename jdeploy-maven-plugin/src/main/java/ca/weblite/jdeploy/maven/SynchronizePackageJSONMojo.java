@@ -48,7 +48,7 @@ public class SynchronizePackageJSONMojo extends AbstractMojo
             }
         }
 
-        NPMParamBuilder paramBuilder = new NPMParamBuilder(createJdeployClient());
+        NPMParamBuilder paramBuilder = new NPMParamBuilder(packageJSON);
         try {
             paramBuilder.add("jdeploy.jar", pathUtil.getRelativePath(getJarPath()));
         } catch (IOException ex) {
@@ -82,7 +82,7 @@ public class SynchronizePackageJSONMojo extends AbstractMojo
     }
 
     private JDeployClient createJdeployClient() {
-        return new JDeployClient(jdeployVersion);
+        return new JDeployClient(jdeployVersion, project.getBasedir());
     }
 
     private File getJarPath() {
@@ -0,0 +1,486 @@
+package ca.weblite.jdeploy.maven.npm;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A minimal JSON reader and writer that behaves like JavaScript's {@code JSON.parse()} and
+ * {@code JSON.stringify()}, so that package.json files come out exactly as npm would write them.
+ *
+ * Values are represented as {@link JSObject}, {@link List}, {@link String}, {@link Double},
+ * {@link Boolean} and {@code null}.
+ */
+final class JSON {
+
+    private JSON() {
+    }
+
+    /**
+     * An object whose properties are kept in JavaScript order: array index keys first in
+     * ascending order, then all other keys in insertion order.
+     */
+    static final class JSObject {
+        private final Map<Long, Object> indexProperties = new TreeMap<>();
+        private final Map<String, Object> properties = new LinkedHashMap<>();
+
+        boolean has(String key) {
+            Long index = toArrayIndex(key);
+            return index != null ? indexProperties.containsKey(index) : properties.containsKey(key);
+        }
+
+        Object get(String key) {
+            Long index = toArrayIndex(key);
+            return index != null ? indexProperties.get(index) : properties.get(key);
+        }
+
+        void put(String key, Object value) {
+            Long index = toArrayIndex(key);
+            if (index != null) {
+                indexProperties.put(index, value);
+            } else {
+                properties.put(key, value);
+            }
+        }
+
+        void remove(String key) {
+            Long index = toArrayIndex(key);
+            if (index != null) {
+                indexProperties.remove(index);
+            } else {
+                properties.remove(key);
+            }
+        }
+
+        int size() {
+            return indexProperties.size() + properties.size();
+        }
+
+        List<String> keys() {
+            List<String> out = new ArrayList<>(size());
+            for (Long index : indexProperties.keySet()) {
+                out.add(String.valueOf(index));
+            }
+            out.addAll(properties.keySet());
+            return out;
+        }
+
+        JSObject copy() {
+            JSObject out = new JSObject();
+            out.indexProperties.putAll(indexProperties);
+            out.properties.putAll(properties);
+            return out;
+        }
+    }
+
+    /**
+     * Returns the array index a property key denotes, or null if it isn't one.
+     * Array indexes are the canonical decimal integers from 0 to 2<sup>32</sup>-2.
+     */
+    static Long toArrayIndex(String key) {
+        int len = key.length();
+        if (len == 0 || len > 10 || (len > 1 && key.charAt(0) == '0')) {
+            return null;
+        }
+        for (int i = 0; i < len; i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9') {
+                return null;
+            }
+        }
+        long value = Long.parseLong(key);
+        return value < 0xFFFFFFFFL ? value : null;
+    }
+
+    // ========== Parsing ==========
+
+    static Object parse(String text) throws IOException {
+        Parser parser = new Parser(text);
+        parser.skipWhitespace();
+        Object value = parser.readValue();
+        parser.skipWhitespace();
+        if (parser.pos < text.length()) {
+            throw parser.error("Unexpected token");
+        }
+        return value;
+    }
+
+    private static final class Parser {
+        private final String text;
+        private int pos;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Object readValue() throws IOException {
+            if (pos >= text.length()) {
+                throw error("Unexpected end of JSON input");
+            }
+            char c = text.charAt(pos);
+            switch (c) {
+                case '{':
+                    return readObject();
+                case '[':
+                    return readArray();
+                case '"':
+                    return readString();
+                case 't':
+                    expectLiteral("true");
+                    return Boolean.TRUE;
+                case 'f':
+                    expectLiteral("false");
+                    return Boolean.FALSE;
+                case 'n':
+                    expectLiteral("null");
+                    return null;
+                default:
+                    if (c == '-' || (c >= '0' && c <= '9')) {
+                        return readNumber();
+                    }
+                    throw error("Unexpected token " + c);
+            }
+        }
+
+        private JSObject readObject() throws IOException {
+            JSObject out = new JSObject();
+            pos++;
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return out;
+            }
+            while (true) {
+                skipWhitespace();
+                if (peek() != '"') {
+                    throw error("Expected property name");
+                }
+                String key = readString();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                out.put(key, readValue());
+                skipWhitespace();
+                char c = next();
+                if (c == '}') {
+                    return out;
+                }
+                if (c != ',') {
+                    throw error("Expected ',' or '}'");
+                }
+            }
+        }
+
+        private List<Object> readArray() throws IOException {
+            List<Object> out = new ArrayList<>();
+            pos++;
+            skipWhitespace();
+            if (peek() == ']') {
+                pos++;
+                return out;
+            }
+            while (true) {
+                skipWhitespace();
+                out.add(readValue());
+                skipWhitespace();
+                char c = next();
+                if (c == ']') {
+                    return out;
+                }
+                if (c != ',') {
+                    throw error("Expected ',' or ']'");
+                }
+            }
+        }
+
+        private String readString() throws IOException {
+            pos++;
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c < 0x20) {
+                    throw error("Bad control character in string literal");
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                char e = next();
+                switch (e) {
+                    case '"': sb.append('"'); break;
+                    case '\\': sb.append('\\'); break;
+                    case '/': sb.append('/'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'u':
+                        if (pos + 4 > text.length()) {
+                            throw error("Bad Unicode escape");
+                        }
+                        try {
+                            sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException ex) {
+                            throw error("Bad Unicode escape");
+                        }
+                        pos += 4;
+                        break;
+                    default:
+                        throw error("Bad escaped character");
+                }
+            }
+        }
+
+        private Double readNumber() throws IOException {
+            int start = pos;
+            if (peek() == '-') {
+                pos++;
+            }
+            if (peek() == '0') {
+                pos++;
+            } else if (isDigit(peek())) {
+                skipDigits();
+            } else {
+                throw error("No number after minus sign");
+            }
+            if (peek() == '.') {
+                pos++;
+                if (!isDigit(peek())) {
+                    throw error("Unterminated fractional number");
+                }
+                skipDigits();
+            }
+            if (peek() == 'e' || peek() == 'E') {
+                pos++;
+                if (peek() == '+' || peek() == '-') {
+                    pos++;
+                }
+                if (!isDigit(peek())) {
+                    throw error("Exponent part is missing a number");
+                }
+                skipDigits();
+            }
+            return Double.parseDouble(text.substring(start, pos));
+        }
+
+        private void skipDigits() {
+            while (isDigit(peek())) {
+                pos++;
+            }
+        }
+
+        private static boolean isDigit(char c) {
+            return c >= '0' && c <= '9';
+        }
+
+        private void expectLiteral(String literal) throws IOException {
+            if (!text.startsWith(literal, pos)) {
+                throw error("Unexpected token " + text.charAt(pos));
+            }
+            pos += literal.length();
+        }
+
+        private void expect(char c) throws IOException {
+            if (next() != c) {
+                throw error("Expected '" + c + "'");
+            }
+        }
+
+        void skipWhitespace() {
+            while (pos < text.length()) {
+                char c = text.charAt(pos);
+                if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                    return;
+                }
+                pos++;
+            }
+        }
+
+        private char peek() {
+            return pos < text.length() ? text.charAt(pos) : '\0';
+        }
+
+        private char next() throws IOException {
+            if (pos >= text.length()) {
+                throw error("Unexpected end of JSON input");
+            }
+            return text.charAt(pos++);
+        }
+
+        IOException error(String message) {
+            return new IOException(message + " in JSON at position " + pos);
+        }
+    }
+
+    // ========== Writing ==========
+
+    /**
+     * Serializes a value the way {@code JSON.stringify(value, null, indent)} does.
+     */
+    static String stringify(Object value, String indent) {
+        String gap = indent.length() > 10 ? indent.substring(0, 10) : indent;
+        StringBuilder sb = new StringBuilder();
+        write(sb, value, gap, "");
+        return sb.toString();
+    }
+
+    private static void write(StringBuilder sb, Object value, String gap, String currentIndent) {
+        if (value == null) {
+            sb.append("null");
+        } else if (value instanceof String) {
+            quote(sb, (String) value);
+        } else if (value instanceof Double) {
+            double d = (Double) value;
+            sb.append(Double.isNaN(d) || Double.isInfinite(d) ? "null" : numberToString(d));
+        } else if (value instanceof Boolean) {
+            sb.append(value.toString());
+        } else if (value instanceof JSObject) {
+            JSObject object = (JSObject) value;
+            List<String> keys = object.keys();
+            if (keys.isEmpty()) {
+                sb.append("{}");
+                return;
+            }
+            String innerIndent = currentIndent + gap;
+            sb.append('{');
+            boolean first = true;
+            for (String key : keys) {
+                if (!first) {
+                    sb.append(',');
+                }
+                first = false;
+                if (!gap.isEmpty()) {
+                    sb.append('\n').append(innerIndent);
+                }
+                quote(sb, key);
+                sb.append(gap.isEmpty() ? ":" : ": ");
+                write(sb, object.get(key), gap, innerIndent);
+            }
+            if (!gap.isEmpty()) {
+                sb.append('\n').append(currentIndent);
+            }
+            sb.append('}');
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            if (list.isEmpty()) {
+                sb.append("[]");
+                return;
+            }
+            String innerIndent = currentIndent + gap;
+            sb.append('[');
+            boolean first = true;
+            for (Object item : list) {
+                if (!first) {
+                    sb.append(',');
+                }
+                first = false;
+                if (!gap.isEmpty()) {
+                    sb.append('\n').append(innerIndent);
+                }
+                write(sb, item, gap, innerIndent);
+            }
+            if (!gap.isEmpty()) {
+                sb.append('\n').append(currentIndent);
+            }
+            sb.append(']');
+        } else {
+            throw new IllegalArgumentException("Unsupported JSON value: " + value.getClass());
+        }
+    }
+
+    private static void quote(StringBuilder sb, String s) {
+        sb.append('"');
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\b': sb.append("\\b"); break;
+                case '\f': sb.append("\\f"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        unicodeEscape(sb, c);
+                    } else if (Character.isHighSurrogate(c)) {
+                        if (i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                            sb.append(c).append(s.charAt(++i));
+                        } else {
+                            unicodeEscape(sb, c);
+                        }
+                    } else if (Character.isLowSurrogate(c)) {
+                        unicodeEscape(sb, c);
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    private static void unicodeEscape(StringBuilder sb, char c) {
+        String hex = Integer.toHexString(c);
+        sb.append("\\u");
+        for (int i = hex.length(); i < 4; i++) {
+            sb.append('0');
+        }
+        sb.append(hex);
+    }
+
+    /**
+     * Formats a number the way JavaScript's {@code Number.prototype.toString()} does.
+     */
+    static String numberToString(double d) {
+        if (d == 0) {
+            return "0";
+        }
+        if (Double.isNaN(d)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(d)) {
+            return d > 0 ? "Infinity" : "-Infinity";
+        }
+
+        BigDecimal decimal = new BigDecimal(Double.toString(Math.abs(d))).stripTrailingZeros();
+        String digits = decimal.unscaledValue().toString();
+        int k = digits.length();
+        int n = k - decimal.scale();
+
+        StringBuilder sb = new StringBuilder();
+        if (d < 0) {
+            sb.append('-');
+        }
+        if (k <= n && n <= 21) {
+            sb.append(digits);
+            for (int i = k; i < n; i++) {
+                sb.append('0');
+            }
+        } else if (0 < n && n <= 21) {
+            sb.append(digits, 0, n).append('.').append(digits, n, k);
+        } else if (-6 < n && n <= 0) {
+            sb.append("0.");
+            for (int i = n; i < 0; i++) {
+                sb.append('0');
+            }
+            sb.append(digits);
+        } else {
+            sb.append(digits.charAt(0));
+            if (k > 1) {
+                sb.append('.').append(digits, 1, k);
+            }
+            int exponent = n - 1;
+            sb.append('e').append(exponent < 0 ? '-' : '+').append(Math.abs(exponent));
+        }
+        return sb.toString();
+    }
+}
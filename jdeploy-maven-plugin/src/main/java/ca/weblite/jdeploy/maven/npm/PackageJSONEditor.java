@@ -0,0 +1,571 @@
+package ca.weblite.jdeploy.maven.npm;
+
+import ca.weblite.jdeploy.maven.npm.JSON.JSObject;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Edits a package.json file in-process, producing the same bytes as running
+ * {@code npm pkg set <key>=<value> [--json]} once per key.
+ *
+ * Each {@link #set} call is applied to an in-memory copy of the file, following npm's
+ * rules for key paths ({@code a.b}, {@code a[0]}, {@code a[]}, {@code a[b.c]}), formatting
+ * (indentation and line endings are detected from the file) and normalization (dependency
+ * maps are sorted).  {@link #save()} then writes the result in one atomic step, so a failed
+ * key leaves the file untouched.
+ */
+public class PackageJSONEditor {
+
+    private static final String JS_WHITESPACE =
+            "\\t\\n\\u000B\\f\\r \\u00A0\\u1680\\u2000-\\u200A\\u2028\\u2029\\u202F\\u205F\\u3000\\uFEFF";
+
+    private static final Pattern EMPTY_FORMAT = Pattern.compile("^(?:\\{\\}|\\[\\])((?:\\r?\\n)+)?\\z");
+
+    private static final Pattern FORMAT =
+            Pattern.compile("^[" + JS_WHITESPACE + "]*[{\\[]((?:\\r?\\n)+)([" + JS_WHITESPACE + "]*)");
+
+    private static final Pattern SQUARE_BRACKETS = Pattern.compile("(.+)\\[([^\\]]+)\\]\\.?(.*)\\z");
+
+    private static final Pattern APPEND_BRACKETS = Pattern.compile("^(.*)\\[\\]\\.?(.*)\\z");
+
+    private static final Pattern JS_DECIMAL =
+            Pattern.compile("[+-]?(?:Infinity|(?:\\d+\\.?\\d*|\\.\\d+)(?:[eE][+-]?\\d+)?)");
+
+    private static final List<String> DEPENDENCY_TYPES = Arrays.asList(
+            "dependencies", "optionalDependencies", "devDependencies", "peerDependencies");
+
+    /**
+     * Marks the {@code []} (append) segment of a key path.
+     */
+    private static final Object APPEND = new Object();
+
+    /**
+     * Marks a property that doesn't exist, as distinct from one that is null.
+     */
+    private static final Object UNDEFINED = new Object();
+
+    /**
+     * Largest gap we fill with nulls when a key sets an array index past the end.
+     */
+    private static final int MAX_ARRAY_GROWTH = 100000;
+
+    private final File file;
+    private final String originalText;
+    private String text;
+
+    public PackageJSONEditor(File file) throws IOException {
+        if (!file.isFile()) {
+            throw new FileNotFoundException("Could not read package.json: " + file.getAbsolutePath());
+        }
+        this.file = file;
+        this.originalText = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        this.text = originalText;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Sets a key in the package.json, as {@code npm pkg set <key>=<value> [--json]} would.
+     *
+     * @param key The key path, e.g. {@code jdeploy.jar}
+     * @param value The value.  Parsed as JSON if {@code json} is true, otherwise stored as a string.
+     * @param json Whether to parse the value as JSON
+     * @throws IOException if the key or value is invalid, or can't be set in this package.json
+     */
+    public void set(String key, String value, boolean json) throws IOException {
+        if (key == null || key.isEmpty() || value == null || value.isEmpty()) {
+            throw new IOException("npm pkg set expects a key=value pair of args.");
+        }
+        Object parsedValue = json ? JSON.parse(value) : value;
+
+        String content = stripBOM(text);
+        String newline;
+        String indent;
+        Matcher matcher = EMPTY_FORMAT.matcher(content);
+        if (matcher.find()) {
+            newline = matcher.group(1) != null ? matcher.group(1) : "\n";
+            indent = "  ";
+        } else if ((matcher = FORMAT.matcher(content)).find()) {
+            newline = matcher.group(1);
+            indent = matcher.group(2);
+        } else {
+            newline = "";
+            indent = "";
+        }
+
+        Object root = JSON.parse(content);
+        if (!(root instanceof JSObject)) {
+            throw new IOException("package.json must contain a JSON object: " + file.getAbsolutePath());
+        }
+        JSObject manifest = (JSObject) root;
+
+        Deque<Object> keys = parseKeys(key);
+        setKeys(manifest, keys.poll(), keys, parsedValue);
+        normalize(manifest);
+
+        String updated = (JSON.stringify(manifest, indent) + "\n").replace("\n", newline);
+        // npm only writes the file if something other than surrounding whitespace changed
+        if (!jsTrim(updated).equals(jsTrim(text))) {
+            text = updated;
+        }
+    }
+
+    /**
+     * @return true if {@link #save()} would write the file
+     */
+    public boolean isModified() {
+        return !text.equals(originalText);
+    }
+
+    /**
+     * Writes the changes, if any, to the package.json.  The file is replaced atomically.
+     *
+     * @return true if the file was written
+     * @throws IOException if the file can't be written
+     */
+    public boolean save() throws IOException {
+        if (!isModified()) {
+            return false;
+        }
+        File parentDir = file.getAbsoluteFile().getParentFile();
+        File tmpFile = File.createTempFile("package.json", ".tmp", parentDir);
+        try {
+            Files.write(tmpFile.toPath(), text.getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(tmpFile.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmpFile.toPath());
+        }
+        return true;
+    }
+
+    String getText() {
+        return text;
+    }
+
+    // ========== Key paths ==========
+
+    private static Deque<Object> parseKeys(String key) {
+        Deque<Object> out = new ArrayDeque<>();
+        for (Object part : parseSquareBrackets(key)) {
+            if (part instanceof BracketKey) {
+                out.add(((BracketKey) part).key);
+            } else if (part == APPEND) {
+                out.add(APPEND);
+            } else {
+                // Unlike String.split, keeps empty segments
+                String str = (String) part;
+                int start = 0;
+                int dot;
+                while ((dot = str.indexOf('.', start)) != -1) {
+                    out.add(str.substring(start, dot));
+                    start = dot + 1;
+                }
+                out.add(str.substring(start));
+            }
+        }
+        return out;
+    }
+
+    private static List<Object> parseSquareBrackets(String str) {
+        Matcher matcher = SQUARE_BRACKETS.matcher(str);
+        if (!matcher.find()) {
+            return replaceAppendSymbols(str);
+        }
+        List<Object> out = new ArrayList<>(parseSquareBrackets(matcher.group(1)));
+        out.add(new BracketKey(matcher.group(2)));
+        if (!matcher.group(3).isEmpty()) {
+            out.addAll(parseSquareBrackets(matcher.group(3)));
+        }
+        return out;
+    }
+
+    private static List<Object> replaceAppendSymbols(String str) {
+        Matcher matcher = APPEND_BRACKETS.matcher(str);
+        if (!matcher.find()) {
+            List<Object> out = new ArrayList<>();
+            out.add(str);
+            return out;
+        }
+        List<Object> out = new ArrayList<>(replaceAppendSymbols(matcher.group(1)));
+        out.add(APPEND);
+        out.add(matcher.group(2));
+        out.removeIf(""::equals);
+        return out;
+    }
+
+    private static final class BracketKey {
+        private final String key;
+
+        private BracketKey(String key) {
+            this.key = key;
+        }
+    }
+
+    private static Object setKeys(Object data, Object key, Deque<Object> keys, Object value) throws IOException {
+        String propertyName;
+        boolean isIndex = key == APPEND;
+        if (key == APPEND) {
+            propertyName = null;
+        } else {
+            double number = toNumber((String) key);
+            isIndex = !Double.isNaN(number);
+            propertyName = isIndex ? JSON.numberToString(number) : (String) key;
+        }
+
+        if (isIndex && countKeys(data) == 0 && !(data instanceof List)) {
+            data = new ArrayList<>();
+        }
+        if (key == APPEND) {
+            if (!(data instanceof List)) {
+                throw new IOException("Can't use append syntax in non-Array element");
+            }
+            propertyName = String.valueOf(((List<?>) data).size());
+        }
+
+        if (keys.isEmpty()) {
+            put(data, propertyName, value);
+            return data;
+        }
+
+        Object existing = get(data, propertyName);
+        boolean haveContents = existing != UNDEFINED && existing != null;
+        boolean isContainer = existing instanceof JSObject || existing instanceof List;
+        if (haveContents && !isContainer) {
+            throw new IOException("Property " + propertyName + " already exists and is not an Array or Object.");
+        }
+        Object nextKey = keys.peek();
+        if (haveContents && existing instanceof List && nextKey != APPEND
+                && Double.isNaN(toNumber((String) nextKey))) {
+            throw new IOException("Can't add property " + nextKey + " to an Array.");
+        }
+        Object next = isContainer ? existing : new JSObject();
+        put(data, propertyName, setKeys(next, keys.poll(), keys, value));
+        return data;
+    }
+
+    private static int countKeys(Object data) {
+        if (data instanceof JSObject) {
+            return ((JSObject) data).size();
+        }
+        return ((List<?>) data).size();
+    }
+
+    private static Object get(Object data, String propertyName) {
+        if (data instanceof JSObject) {
+            JSObject object = (JSObject) data;
+            return object.has(propertyName) ? object.get(propertyName) : UNDEFINED;
+        }
+        List<?> list = (List<?>) data;
+        Long index = JSON.toArrayIndex(propertyName);
+        return index != null && index < list.size() ? list.get(index.intValue()) : UNDEFINED;
+    }
+
+    private static void put(Object data, String propertyName, Object value) throws IOException {
+        if (data instanceof JSObject) {
+            ((JSObject) data).put(propertyName, value);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<Object> list = (List<Object>) data;
+        Long index = JSON.toArrayIndex(propertyName);
+        if (index == null) {
+            // Named properties on arrays aren't serialized
+            return;
+        }
+        if (index < list.size()) {
+            list.set(index.intValue(), value);
+            return;
+        }
+        if (index - list.size() > MAX_ARRAY_GROWTH) {
+            throw new IOException("Array index " + propertyName + " is too large");
+        }
+        while (list.size() < index) {
+            list.add(null);
+        }
+        list.add(value);
+    }
+
+    /**
+     * Converts a string to a number the way JavaScript's {@code Number(string)} does.
+     */
+    private static double toNumber(String str) {
+        String s = jsTrim(str);
+        if (s.isEmpty()) {
+            return 0;
+        }
+        if (s.length() > 2 && s.charAt(0) == '0') {
+            int radix;
+            switch (Character.toLowerCase(s.charAt(1))) {
+                case 'x': radix = 16; break;
+                case 'o': radix = 8; break;
+                case 'b': radix = 2; break;
+                default: radix = 0;
+            }
+            if (radix != 0) {
+                double result = 0;
+                for (int i = 2; i < s.length(); i++) {
+                    int digit = Character.digit(s.charAt(i), radix);
+                    if (digit < 0 || s.charAt(i) > 0x7F) {
+                        return Double.NaN;
+                    }
+                    result = result * radix + digit;
+                }
+                return result;
+            }
+        }
+        if (!JS_DECIMAL.matcher(s).matches()) {
+            return Double.NaN;
+        }
+        if (s.endsWith("Infinity")) {
+            return s.charAt(0) == '-' ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+        return Double.parseDouble(s);
+    }
+
+    // ========== Normalization ==========
+
+    /**
+     * Applies the normalization npm performs on every save: dependency maps are sorted,
+     * optional dependencies are removed from dependencies, and scripts and workspaces are
+     * validated.
+     */
+    private static void normalize(JSObject manifest) throws IOException {
+        Object originalProd = manifest.has("dependencies") ? manifest.get("dependencies") : UNDEFINED;
+        Object originalPeer = manifest.has("peerDependencies") ? manifest.get("peerDependencies") : UNDEFINED;
+
+        JSObject ordered = new JSObject();
+        for (String type : DEPENDENCY_TYPES) {
+            Object deps = manifest.get(type);
+            if (isTruthy(deps)) {
+                ordered.put(type, orderDependencies(deps));
+            }
+        }
+        if (ordered.has("dependencies") && ordered.has("optionalDependencies")) {
+            JSObject prod = (JSObject) ordered.get("dependencies");
+            for (String name : ((JSObject) ordered.get("optionalDependencies")).keys()) {
+                prod.remove(name);
+            }
+        }
+        for (String type : DEPENDENCY_TYPES) {
+            if (ordered.has(type)) {
+                JSObject deps = (JSObject) ordered.get(type);
+                if (deps.size() == 0) {
+                    manifest.remove(type);
+                } else {
+                    manifest.put(type, deps);
+                }
+            }
+        }
+
+        // A dependency listed in both dependencies and peerDependencies keeps the peer range
+        Object newPeer = ordered.has("peerDependencies") ? ordered.get("peerDependencies") : UNDEFINED;
+        if (isTruthy(originalProd) && isTruthy(originalPeer) && isTruthy(newPeer)) {
+            for (String name : keysOf(originalPeer)) {
+                if (valueOf(originalProd, name) != UNDEFINED && valueOf(newPeer, name) != UNDEFINED) {
+                    JSObject prod = manifest.has("dependencies") && manifest.get("dependencies") instanceof JSObject
+                            ? (JSObject) manifest.get("dependencies")
+                            : new JSObject();
+                    prod.put(name, valueOf(newPeer, name));
+                    manifest.put("dependencies", prod);
+                }
+            }
+        }
+
+        Object scripts = manifest.get("scripts");
+        if (isTruthy(scripts)) {
+            JSObject copy = new JSObject();
+            for (String name : keysOf(scripts)) {
+                Object script = valueOf(scripts, name);
+                if (!(script instanceof String)) {
+                    throw new IOException("package.json scripts should be a key-value pair of strings.");
+                }
+                copy.put(name, script);
+            }
+            manifest.put("scripts", copy);
+        }
+
+        Object workspaces = manifest.get("workspaces");
+        if (isTruthy(workspaces)) {
+            if (!(workspaces instanceof List) || ((List<?>) workspaces).isEmpty()) {
+                throw new IOException("workspaces should be an array of strings.");
+            }
+            for (Object workspace : (List<?>) workspaces) {
+                if (!(workspace instanceof String)) {
+                    throw new IOException("workspaces should be an array of strings.");
+                }
+            }
+        }
+    }
+
+    private static JSObject orderDependencies(Object deps) {
+        List<String> names = keysOf(deps);
+        names.sort(LOCALE_ORDER);
+        JSObject out = new JSObject();
+        for (String name : names) {
+            out.put(name, valueOf(deps, name));
+        }
+        return out;
+    }
+
+    /**
+     * The own enumerable property names of a value, as {@code Object.keys()} returns them.
+     */
+    private static List<String> keysOf(Object value) {
+        List<String> out = new ArrayList<>();
+        if (value instanceof JSObject) {
+            out.addAll(((JSObject) value).keys());
+        } else if (value instanceof List) {
+            for (int i = 0; i < ((List<?>) value).size(); i++) {
+                out.add(String.valueOf(i));
+            }
+        } else if (value instanceof String) {
+            for (int i = 0; i < ((String) value).length(); i++) {
+                out.add(String.valueOf(i));
+            }
+        }
+        return out;
+    }
+
+    private static Object valueOf(Object value, String name) {
+        if (value instanceof JSObject) {
+            JSObject object = (JSObject) value;
+            return object.has(name) ? object.get(name) : UNDEFINED;
+        }
+        if (value instanceof List) {
+            return get(value, name);
+        }
+        if (value instanceof String) {
+            Long index = JSON.toArrayIndex(name);
+            String str = (String) value;
+            return index != null && index < str.length()
+                    ? String.valueOf(str.charAt(index.intValue()))
+                    : UNDEFINED;
+        }
+        return UNDEFINED;
+    }
+
+    private static boolean isTruthy(Object value) {
+        if (value == null || value == UNDEFINED || Boolean.FALSE.equals(value)) {
+            return false;
+        }
+        if (value instanceof String) {
+            return !((String) value).isEmpty();
+        }
+        if (value instanceof Double) {
+            double d = (Double) value;
+            return d != 0 && !Double.isNaN(d);
+        }
+        return true;
+    }
+
+    // ========== Text ==========
+
+    private static String stripBOM(String str) {
+        return str.startsWith("\uFEFF") ? str.substring(1) : str;
+    }
+
+    private static boolean isJsWhitespace(char c) {
+        return c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r' || c == ' '
+                || c == 0xA0 || c == 0x1680 || (c >= 0x2000 && c <= 0x200A) || c == 0x2028 || c == 0x2029
+                || c == 0x202F || c == 0x205F || c == 0x3000 || c == 0xFEFF;
+    }
+
+    private static String jsTrim(String str) {
+        int start = 0;
+        int end = str.length();
+        while (start < end && isJsWhitespace(str.charAt(start))) {
+            start++;
+        }
+        while (end > start && isJsWhitespace(str.charAt(end - 1))) {
+            end--;
+        }
+        return str.substring(start, end);
+    }
+
+    // ========== Collation ==========
+
+    /**
+     * ASCII characters in the order of their primary weight in the root collation,
+     * which is what {@code String.prototype.localeCompare(other, 'en')} uses.
+     */
+    private static final String PRIMARY_ORDER =
+            " _-,;:!?.'\"()[]{}@*/\\&#%`^+<=>|~$0123456789abcdefghijklmnopqrstuvwxyz";
+
+    /**
+     * Orders dependency names like npm does.  Punctuation sorts before digits and letters,
+     * case only breaks ties (lower case first), and accented letters sort right after their
+     * base letter.  Other non-ASCII characters sort after ASCII, by code point.
+     */
+    static final Comparator<String> LOCALE_ORDER = (a, b) -> {
+        int[][] keyA = collationKey(a);
+        int[][] keyB = collationKey(b);
+        for (int level = 0; level < 3; level++) {
+            int result = compareWeights(keyA[level], keyB[level]);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    };
+
+    private static int compareWeights(int[] a, int[] b) {
+        int len = Math.min(a.length, b.length);
+        for (int i = 0; i < len; i++) {
+            if (a[i] != b[i]) {
+                return a[i] < b[i] ? -1 : 1;
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    }
+
+    private static int[][] collationKey(String str) {
+        String decomposed = Normalizer.normalize(str, Normalizer.Form.NFD);
+        int[] primary = new int[decomposed.length()];
+        int[] secondary = new int[decomposed.length()];
+        int[] tertiary = new int[decomposed.length()];
+        int count = 0;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK && count > 0) {
+                secondary[count - 1] = c;
+                continue;
+            }
+            if (c < 0x20 || c == 0x7F) {
+                // Control characters are ignored
+                continue;
+            }
+            char lower = Character.toLowerCase(c);
+            int weight = lower < 0x80 ? PRIMARY_ORDER.indexOf(lower) : -1;
+            primary[count] = weight >= 0 ? weight : PRIMARY_ORDER.length() + lower;
+            tertiary[count] = c != lower ? 1 : 0;
+            count++;
+        }
+        return new int[][]{
+                Arrays.copyOf(primary, count),
+                Arrays.copyOf(secondary, count),
+                Arrays.copyOf(tertiary, count)
+        };
+    }
+}
@@ -0,0 +1,187 @@
+package ca.weblite.jdeploy.maven;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks that the in-process package.json update writes exactly the same bytes as
+ * running {@code npm pkg set} for each parameter.
+ */
+public class NPMParamBuilderTest {
+
+    private static final Map<String, String> FIXTURES = new LinkedHashMap<>();
+
+    static {
+        FIXTURES.put("two-spaces",
+                "{\n  \"name\": \"app\",\n  \"version\": \"1.0.0\",\n  \"jdeploy\": {\n    \"jar\": \"old.jar\"\n  }\n}\n");
+        FIXTURES.put("four-spaces-crlf",
+                "{\r\n    \"name\": \"app\",\r\n    \"bin\": {\r\n        \"app\": \"jdeploy-bundle/jdeploy.js\"\r\n    }\r\n}\r\n");
+        FIXTURES.put("tabs",
+                "{\n\t\"name\": \"app\",\n\t\"jdeploy\": {\n\t\t\"javafx\": true,\n\t\t\"args\": [\"-Xmx1g\"]\n\t}\n}\n");
+        FIXTURES.put("compact",
+                "{\"name\":\"app\",\"dependencies\":{\"shelljs\":\"^0.8.4\",\"command-exists-promise\":\"^2.0.2\"}}");
+        FIXTURES.put("empty-object", "{}");
+        FIXTURES.put("bom",
+                "\uFEFF{\n    \"name\": \"app\",\n    \"description\": \"Has a byte order mark\"\n}\n");
+        FIXTURES.put("unsorted-dependencies", "{\n"
+                + "  \"name\": \"app\",\n"
+                + "  \"dependencies\": {\n"
+                + "    \"zlib\": \"1\", \"B-a\": \"1\", \"b-a\": \"1\", \"a.b\": \"1\", \"ab\": \"1\", \"a-b\": \"1\",\n"
+                + "    \"a_b\": \"1\", \"A\": \"1\", \"a\": \"1\", \"a1\": \"1\", \"@scope/pkg\": \"1\", \"opt\": \"1\", \"peer\": \"1\"\n"
+                + "  },\n"
+                + "  \"optionalDependencies\": { \"opt\": \"2\" },\n"
+                + "  \"peerDependencies\": { \"peer\": \"^2\" },\n"
+                + "  \"devDependencies\": {},\n"
+                + "  \"scripts\": { \"test\": \"echo ok\" },\n"
+                + "  \"workspaces\": [\"packages/*\"]\n"
+                + "}\n");
+        FIXTURES.put("escapes-and-numbers", "{\n"
+                + "  \"name\": \"app\",\n"
+                + "  \"description\": \"line\\nbreak \\\"quoted\\\" \\/slash \\u00e9 caf\u00e9 \\u0001 \\ud83d\\ude00\",\n"
+                + "  \"numbers\": [1.50, 1e21, -0, 0.000001, 1e-7, 123456789012345678901234, 100, 2.5E+3],\n"
+                + "  \"2\": \"index key\",\n"
+                + "  \"empty\": { \"list\": [], \"map\": {} },\n"
+                + "  \"nothing\": null\n"
+                + "}");
+    }
+
+    private File tempDir;
+
+    @Before
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("npm-param-builder-test").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<java.nio.file.Path> paths = Files.walk(tempDir.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(java.nio.file.Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void testMojoParametersMatchNpm() throws Exception {
+        assumeTrue("npm is not available", isNpmAvailable());
+        for (Map.Entry<String, String> fixture : FIXTURES.entrySet()) {
+            assertSameAsNpm(fixture.getKey(), fixture.getValue(), new ParamsSetter() {
+                @Override
+                public void addTo(NPMParamBuilder builder) {
+                    builder.add("jdeploy.jar", "target/app-1.0.jar")
+                            .add("version", "1.2.3")
+                            .add("name", "my-app")
+                            .add("jdeploy.title", "My App: \"quoted\" / \\\\ \\t")
+                            .add("description", (String) null)
+                            .add("jdeploy.javaVersion", "11")
+                            .add("jdeploy.javafx", false);
+                }
+            });
+        }
+    }
+
+    @Test
+    public void testKeyPathsMatchNpm() throws Exception {
+        assumeTrue("npm is not available", isNpmAvailable());
+        for (String name : new String[]{"two-spaces", "tabs", "empty-object", "unsorted-dependencies"}) {
+            assertSameAsNpm(name, FIXTURES.get(name), new ParamsSetter() {
+                @Override
+                public void addTo(NPMParamBuilder builder) {
+                    builder.add("jdeploy.args[]", "-Dfoo=bar")
+                            .add("files[0]", "lib")
+                            .add("jdeploy.env[MY.VAR]", "x")
+                            .add("jdeploy.platforms.2", "linux")
+                            .add("bin.my-app", "jdeploy-bundle/jdeploy.js")
+                            .add("jdeploy.port", 8080)
+                            .add("dependencies.Zeta", "^1.0.0")
+                            .add("dependencies.alpha", "^2.0.0");
+                }
+            });
+        }
+    }
+
+    @Test
+    public void testUnchangedFileIsNotRewritten() throws Exception {
+        File packageJSON = writeFixture("unchanged", "{\n  \"name\": \"app\",\n  \"version\": \"1.0.0\"\n}   \n\n");
+        long lastModified = packageJSON.lastModified();
+        packageJSON.setLastModified(lastModified - 10000);
+
+        new NPMParamBuilder(packageJSON).add("version", "1.0.0").apply();
+
+        assertEquals(lastModified - 10000, packageJSON.lastModified());
+    }
+
+    @Test
+    public void testFailedParameterLeavesFileUntouched() throws Exception {
+        String original = "{\n  \"name\": \"app\",\n  \"jdeploy\": \"not an object\"\n}\n";
+        File packageJSON = writeFixture("conflict", original);
+
+        try {
+            new NPMParamBuilder(packageJSON)
+                    .add("version", "1.2.3")
+                    .add("jdeploy.jar", "target/app.jar")
+                    .apply();
+            fail("Setting a property inside a string should fail");
+        } catch (IOException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("jdeploy.jar"));
+        }
+
+        assertEquals(original, new String(Files.readAllBytes(packageJSON.toPath()), StandardCharsets.UTF_8));
+    }
+
+    private interface ParamsSetter {
+        void addTo(NPMParamBuilder builder);
+    }
+
+    private void assertSameAsNpm(String name, String content, ParamsSetter params) throws IOException {
+        File npmDir = new File(tempDir, name + "-npm");
+        File inProcessDir = new File(tempDir, name + "-in-process");
+        File npmPackageJSON = writeFile(npmDir, content);
+        File inProcessPackageJSON = writeFile(inProcessDir, content);
+
+        NPMParamBuilder npmBuilder = new NPMParamBuilder(new JDeployClient(null, npmDir));
+        params.addTo(npmBuilder);
+        npmBuilder.apply();
+
+        NPMParamBuilder inProcessBuilder = new NPMParamBuilder(inProcessPackageJSON);
+        params.addTo(inProcessBuilder);
+        inProcessBuilder.apply();
+
+        byte[] expected = Files.readAllBytes(npmPackageJSON.toPath());
+        byte[] actual = Files.readAllBytes(inProcessPackageJSON.toPath());
+        assertEquals("Fixture " + name,
+                new String(expected, StandardCharsets.UTF_8), new String(actual, StandardCharsets.UTF_8));
+        assertArrayEquals("Fixture " + name, expected, actual);
+    }
+
+    private File writeFixture(String name, String content) throws IOException {
+        return writeFile(new File(tempDir, name), content);
+    }
+
+    private static File writeFile(File dir, String content) throws IOException {
+        assertTrue(dir.mkdirs());
+        File packageJSON = new File(dir, "package.json");
+        Files.write(packageJSON.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return packageJSON;
+    }
+
+    private static boolean isNpmAvailable() {
+        try {
+            new JDeployClient(null).execNpm("--version");
+            return true;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+}
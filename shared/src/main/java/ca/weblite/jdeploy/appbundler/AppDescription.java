@@ -121,6 +121,60 @@ public class AppDescription {
         props = new ArrayList<Prop>();
     }
 
+    /**
+     * Creates a copy of the given description.  Collections are copied so that the copy can
+     * be customized for a single bundle target (e.g. bundled JVM, version qualifiers) without
+     * affecting the original or other copies.  The jars, native libs, props and certificates
+     * themselves are shared, since the bundlers never modify them.
+     *
+     * @param other the description to copy
+     */
+    public AppDescription(AppDescription other) {
+        iconDataURI = other.iconDataURI;
+        splashDataURI = other.splashDataURI;
+        npmPackage = other.npmPackage;
+        npmVersion = other.npmVersion;
+        npmSource = other.npmSource;
+        npmPrerelease = other.npmPrerelease;
+        fork = other.fork;
+        localPackageJson = other.localPackageJson;
+        localBundle = other.localBundle;
+        url = other.url;
+        jars = new ArrayList<Jar>(other.jars);
+        name = other.name;
+        extensions = new HashMap<String, String>(other.extensions);
+        icons = new HashMap<String, String>(other.icons);
+        editableExtensions = other.editableExtensions == null ? null : new HashSet<String>(other.editableExtensions);
+        appIcons = new ArrayList<String>(other.appIcons);
+        natives = new ArrayList<NativeLib>(other.natives);
+        props = new ArrayList<Prop>(other.props);
+        macBundleId = other.macBundleId;
+        enableMacCodeSigning = other.enableMacCodeSigning;
+        enableMacNotarization = other.enableMacNotarization;
+        macCertificateName = other.macCertificateName;
+        macDeveloperID = other.macDeveloperID;
+        macNotarizationPassword = other.macNotarizationPassword;
+        urlSchemes = other.urlSchemes == null ? null : new ArrayList<String>(other.urlSchemes);
+        macDeveloperTeamID = other.macDeveloperTeamID;
+        directoryAssociation = other.directoryAssociation;
+        bundleJre = other.bundleJre;
+        jcefFrameworksPath = other.jcefFrameworksPath;
+        jDeployHome = other.jDeployHome;
+        jDeployHomeWindows = other.jDeployHomeWindows;
+        jDeployHomeMac = other.jDeployHomeMac;
+        jDeployHomeLinux = other.jDeployHomeLinux;
+        jDeployRegistryUrl = other.jDeployRegistryUrl;
+        launcherVersion = other.launcherVersion;
+        initialAppVersion = other.initialAppVersion;
+        commands = other.commands;
+        macUsageDescriptions = new HashMap<String, String>(other.macUsageDescriptions);
+        isPackageCertificatePinningEnabled = other.isPackageCertificatePinningEnabled;
+        trustedCertificates = other.trustedCertificates == null ? null : new ArrayList<Certificate>(other.trustedCertificates);
+        packageSigningCertificateChainPath = other.packageSigningCertificateChainPath;
+        debugPort = other.debugPort;
+        debugSuspend = other.debugSuspend;
+    }
+
     public boolean hasUrlSchemes() {
         return urlSchemes != null && !urlSchemes.isEmpty();
     }
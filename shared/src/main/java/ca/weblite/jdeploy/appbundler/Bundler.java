@@ -27,7 +27,13 @@ import java.nio.file.Paths;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateEncodingException;
 import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  *
@@ -246,40 +252,64 @@ public class Bundler {
     }
 
     private static void setupBundledJVM(AppInfo appInfo, AppDescription app, Target target) throws IOException {
+        setupBundledJVM(appInfo, app, target, findBundledJVM(appInfo, target));
+    }
+
+    /**
+     * Finds (downloading if necessary) the JVM to bundle for the given target.
+     *
+     * @return the JVM directory, or null if the target doesn't bundle a JVM
+     */
+    private static File findBundledJVM(AppInfo appInfo, Target target) throws IOException {
+        if (target != Target.MacX64 && target != Target.MacArm) {
+            // Currently we only support bundling JVM on Mac.
+            return null;
+        }
+        if (!appInfo.isUseBundledJVM()) {
+            return null;
+        }
+        JVMSpecification jvmSpecification = appInfo.getJVMSpecification();
+        if (jvmSpecification == null) {
+            throw new RuntimeException("jvmSpecification is required when useBundledJVM is true");
+        }
+        JVMKit jvmKit = new JVMKit();
+        String arch;
+        String platform = "macos";
+        String bitness = "64";
+        switch (target) {
+            case MacX64:
+                arch = "x86";
+                break;
+            case MacArm:
+                arch = "arm";
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported target: " + target);
+        }
+        return jvmKit.createFinder(true).findJVM(
+                getBundlerJVMsPath(),
+                String.valueOf(jvmSpecification.javaVersion),
+                jvmSpecification.jdk ? "jdk" : "jre",
+                jvmSpecification.javafx,
+                platform,
+                arch,
+                bitness
+        );
+    }
+
+    private static void setupBundledJVM(
+            AppInfo appInfo,
+            AppDescription app,
+            Target target,
+            File bundledJVM
+    ) throws IOException {
         if (target != Target.MacX64 && target != Target.MacArm) {
             // Currently we only support bundling JVM on Mac.
             return;
         }
         if (appInfo.isUseBundledJVM()) {
             JVMSpecification jvmSpecification = appInfo.getJVMSpecification();
-            if (jvmSpecification == null) {
-                throw new RuntimeException("jvmSpecification is required when useBundledJVM is true");
-            }
-            JVMKit jvmKit = new JVMKit();
-            String arch;
-            String platform = "macos";
-            String bitness = "64";
-            switch (target) {
-                case MacX64:
-                    arch = "x86";
-                    break;
-                case MacArm:
-                    arch = "arm";
-                    break;
-                default:
-                    throw new IllegalArgumentException("Unsupported target: " + target);
-            }
-            app.setBundleJre(
-                    jvmKit.createFinder(true).findJVM(
-                            getBundlerJVMsPath(),
-                            String.valueOf(jvmSpecification.javaVersion),
-                            jvmSpecification.jdk ? "jdk" : "jre",
-                            jvmSpecification.javafx,
-                            platform,
-                            arch,
-                            bitness
-                    )
-            );
+            app.setBundleJre(bundledJVM);
 
             if (app.getNpmVersion() != null && !app.getNpmVersion().isEmpty()) {
                 // Add a qualifier to the version so that auto updates don't go beyond
@@ -316,10 +346,6 @@ public class Bundler {
         }
     }
 
-    private static void cleanupBundledJVM(AppDescription app) {
-        app.setBundleJre(null);
-    }
-
     public static BundlerResult runit(
             BundlerSettings bundlerSettings,
             AppInfo appInfo,
@@ -400,119 +426,134 @@ public class Bundler {
         }
         
         if(target == Target.All) {
-            BundlerResult out = new BundlerResult("all");
-            setupBundledJVM(appInfo, app, Target.MacX64);
-            out.setResultForType(
-                    "mac",
-                    MacBundler.start(bundlerSettings, MacBundler.TargetArchitecture.X64, app,DEST_DIR, RELEASE_DIR)
-            );
-            out.setResultForType(
-                    "mac-x64",
-                    out.getResultForType("mac", false)
-            );
-            cleanupBundledJVM(app);
-            setupBundledJVM(appInfo, app, Target.MacArm);
-            out.setResultForType(
-                    "mac-arm64",
-                    MacBundler.start(bundlerSettings, MacBundler.TargetArchitecture.ARM64, app,DEST_DIR, RELEASE_DIR)
-            );
-            cleanupBundledJVM(app);
-            setupBundledJVM(appInfo, app, Target.WinX64);
-            out.setResultForType(
-                    "win",
-                    WindowsBundler2.start(
-                            bundlerSettings,
-                            WindowsBundler2.TargetArchitecture.X64,
-                            app,
-                            DEST_DIR,
-                            RELEASE_DIR
-                    )
-            );
-            out.setResultForType(
-                    "win-x64",
-                    out.getResultForType("win", false)
-            );
-            cleanupBundledJVM(app);
-            out.setResultForType(
-                    "win-installer",
-                    WindowsBundler2.start(
-                            bundlerSettings,
-                            WindowsBundler2.TargetArchitecture.X64,
-                            app,
-                            DEST_DIR,
-                            RELEASE_DIR,
-                            true
-                    )
-            );
-            cleanupBundledJVM(app);
-            setupBundledJVM(appInfo, app, Target.WinArm64);
-            out.setResultForType(
-                    "win-arm64",
-                    WindowsBundler2.start(
-                            bundlerSettings,
-                            WindowsBundler2.TargetArchitecture.ARM64,
-                            app,
-                            DEST_DIR,
-                            RELEASE_DIR
-                    )
-            );
-            cleanupBundledJVM(app);
-            out.setResultForType(
-                    "win-arm64-installer",
-                    WindowsBundler2.start(
-                            bundlerSettings,
-                            WindowsBundler2.TargetArchitecture.ARM64,
-                            app,
-                            DEST_DIR,
-                            RELEASE_DIR,
-                            true
-                    )
-            );
-            cleanupBundledJVM(app);
-            setupBundledJVM(appInfo, app, Target.LinuxX64);
-            out.setResultForType(
-                    "linux",
-                    LinuxBundler.start(
-                            bundlerSettings,
-                            LinuxBundler.TargetArchitecture.X64,
-                            app,
-                            DEST_DIR,
-                            RELEASE_DIR
-                    )
-            );
-            out.setResultForType(
-                    "linux-x64",
-                    out.getResultForType("linux", false)
-            );
-            out.setResultForType(
-                    "linux-arm64",
-                    LinuxBundler.start(
-                            bundlerSettings,
-                            LinuxBundler.TargetArchitecture.ARM64,
-                            app,
-                            DEST_DIR,
-                            RELEASE_DIR
-                    )
-            );
-            cleanupBundledJVM(app);
-            out.setResultForType(
-                    "linux-installer",
-                    LinuxBundler.start(
-                            bundlerSettings,
-                            LinuxBundler.TargetArchitecture.X64,
-                            app,
-                            DEST_DIR,
-                            RELEASE_DIR,
-                            true
-                    )
-            );
-            return out;
+            return runAll(bundlerSettings, appInfo, app, DEST_DIR, RELEASE_DIR);
         }
         
         throw new IllegalArgumentException("ERROR: unrecognized target: " + target);
         
     }
 
+    /**
+     * Bundles every target concurrently.
+     *
+     * Each target is bundled from its own copy of the base {@link AppDescription}, so per-target
+     * customizations (bundled JVM, version qualifiers) can't leak from one target into another.
+     * The icon and splash data URIs are computed once in the base description, and the bundled
+     * JVMs for the Mac targets are fetched once in the background while the other targets are
+     * being bundled.
+     *
+     * @return a result containing the result of each target, keyed by target name
+     */
+    private static BundlerResult runAll(
+            BundlerSettings bundlerSettings,
+            AppInfo appInfo,
+            AppDescription app,
+            String DEST_DIR,
+            String RELEASE_DIR
+    ) throws Exception {
+        int threads = Math.max(1, Math.min(9, Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            // JVM fetches are submitted first, so a Mac task can only ever wait on a fetch that
+            // is already running or finished, even with a single thread.
+            Future<File> macX64JVM = executor.submit(() -> findBundledJVM(appInfo, Target.MacX64));
+            Future<File> macArmJVM = executor.submit(() -> findBundledJVM(appInfo, Target.MacArm));
+
+            Map<String, Future<BundlerResult>> tasks = new LinkedHashMap<>();
+            tasks.put("mac", executor.submit(() -> {
+                AppDescription macApp = new AppDescription(app);
+                setupBundledJVM(appInfo, macApp, Target.MacX64, getResult(macX64JVM));
+                return MacBundler.start(bundlerSettings, MacBundler.TargetArchitecture.X64, macApp, DEST_DIR, RELEASE_DIR);
+            }));
+            tasks.put("mac-arm64", executor.submit(() -> {
+                AppDescription macApp = new AppDescription(app);
+                setupBundledJVM(appInfo, macApp, Target.MacArm, getResult(macArmJVM));
+                return MacBundler.start(bundlerSettings, MacBundler.TargetArchitecture.ARM64, macApp, DEST_DIR, RELEASE_DIR);
+            }));
+            tasks.put("win", executor.submit(() -> WindowsBundler2.start(
+                    bundlerSettings,
+                    WindowsBundler2.TargetArchitecture.X64,
+                    new AppDescription(app),
+                    DEST_DIR,
+                    RELEASE_DIR
+            )));
+            tasks.put("win-installer", executor.submit(() -> WindowsBundler2.start(
+                    bundlerSettings,
+                    WindowsBundler2.TargetArchitecture.X64,
+                    new AppDescription(app),
+                    DEST_DIR,
+                    RELEASE_DIR,
+                    true
+            )));
+            tasks.put("win-arm64", executor.submit(() -> WindowsBundler2.start(
+                    bundlerSettings,
+                    WindowsBundler2.TargetArchitecture.ARM64,
+                    new AppDescription(app),
+                    DEST_DIR,
+                    RELEASE_DIR
+            )));
+            tasks.put("win-arm64-installer", executor.submit(() -> WindowsBundler2.start(
+                    bundlerSettings,
+                    WindowsBundler2.TargetArchitecture.ARM64,
+                    new AppDescription(app),
+                    DEST_DIR,
+                    RELEASE_DIR,
+                    true
+            )));
+            tasks.put("linux", executor.submit(() -> LinuxBundler.start(
+                    bundlerSettings,
+                    LinuxBundler.TargetArchitecture.X64,
+                    new AppDescription(app),
+                    DEST_DIR,
+                    RELEASE_DIR
+            )));
+            tasks.put("linux-arm64", executor.submit(() -> LinuxBundler.start(
+                    bundlerSettings,
+                    LinuxBundler.TargetArchitecture.ARM64,
+                    new AppDescription(app),
+                    DEST_DIR,
+                    RELEASE_DIR
+            )));
+            tasks.put("linux-installer", executor.submit(() -> LinuxBundler.start(
+                    bundlerSettings,
+                    LinuxBundler.TargetArchitecture.X64,
+                    new AppDescription(app),
+                    DEST_DIR,
+                    RELEASE_DIR,
+                    true
+            )));
+
+            BundlerResult out = new BundlerResult("all");
+            for (Map.Entry<String, Future<BundlerResult>> task : tasks.entrySet()) {
+                out.setResultForType(task.getKey(), getResult(task.getValue()));
+            }
+            out.setResultForType("mac-x64", out.getResultForType("mac", false));
+            out.setResultForType("win-x64", out.getResultForType("win", false));
+            out.setResultForType("linux-x64", out.getResultForType("linux", false));
+            return out;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Waits for a task and rethrows its failure as the original exception.
+     */
+    private static <T> T getResult(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw ex;
+        }
+    }
+
     private static void p(String[] args) {
         for(String s : args) {
             p(s);
@@ -0,0 +1,327 @@
+package ca.weblite.jdeploy.delta;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Per-file SHA-256 index of a jdeploy-bundle directory, used for delta updates.
+ *
+ * Publishing writes an index for the universal bundle as {@value #FILE_NAME}, and one for each
+ * platform bundle (see {@link #getFileName(String)}).  The distinct files of all bundles are
+ * concatenated into a few content-addressed packs, named {@code jdeploy-blobs-<sha256>.pack}, and
+ * each index entry records the pack and offset of its blob.  An updater compares the index
+ * against the files it already has and only downloads the byte ranges it is missing.
+ *
+ * The JSON is {@code {"files": {...}, "packageJson": {...}, "platforms": [...]}}.  Files are keyed
+ * by '/'-separated relative path, with the same entries as the signed jdeploy.mf manifest plus the
+ * blob location: {@code {"lib/foo.jar": {"hash": "...", "size": 1234, "executable": false,
+ * "pack": "...", "offset": 0}}}.  "platforms" lists the platform indexes published alongside the
+ * universal one.  {@link #fromJson(String)} also reads the flat jdeploy.mf layout.
+ */
+public class DeltaManifest {
+
+    public static final String FILE_NAME = "jdeploy-delta.json";
+
+    public static final String PACK_PREFIX = "jdeploy-blobs-";
+
+    public static final String PACK_SUFFIX = ".pack";
+
+    private static final String ALGORITHM = "SHA-256";
+
+    private final SortedMap<String, Entry> entries;
+
+    private final Entry packageJson;
+
+    private final List<String> platforms;
+
+    /**
+     * Where a blob is stored: a byte range of a pack asset.
+     */
+    public static final class Location {
+        private final String pack;
+        private final long offset;
+
+        public Location(String pack, long offset) {
+            this.pack = pack;
+            this.offset = offset;
+        }
+
+        public String getPack() {
+            return pack;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+    }
+
+    public static final class Entry {
+        private final String hash;
+        private final long size;
+        private final boolean executable;
+        private final Location location;
+
+        public Entry(String hash, long size, boolean executable) {
+            this(hash, size, executable, null);
+        }
+
+        public Entry(String hash, long size, boolean executable, Location location) {
+            this.hash = hash;
+            this.size = size;
+            this.executable = executable;
+            this.location = location;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public boolean isExecutable() {
+            return executable;
+        }
+
+        /**
+         * @return the blob's location, or null if the index wasn't published with one
+         */
+        public Location getLocation() {
+            return location;
+        }
+
+        private JSONObject toJson() {
+            JSONObject json = new JSONObject();
+            json.put("hash", hash);
+            json.put("size", size);
+            json.put("executable", executable);
+            if (location != null) {
+                json.put("pack", location.getPack());
+                json.put("offset", location.getOffset());
+            }
+            return json;
+        }
+
+        private static Entry fromJson(JSONObject json) {
+            Location location = null;
+            if (json.has("pack")) {
+                location = new Location(json.getString("pack"), json.getLong("offset"));
+            }
+            return new Entry(
+                    json.getString("hash").toLowerCase(),
+                    json.optLong("size", -1),
+                    json.optBoolean("executable", false),
+                    location
+            );
+        }
+    }
+
+    public DeltaManifest(Map<String, Entry> entries) {
+        this(entries, null, Collections.emptyList());
+    }
+
+    /**
+     * @param packageJson the bundle's package.json, or null
+     * @param platforms the identifiers of the platform indexes published alongside this one
+     */
+    public DeltaManifest(Map<String, Entry> entries, Entry packageJson, Collection<String> platforms) {
+        this.entries = Collections.unmodifiableSortedMap(new TreeMap<>(entries));
+        this.packageJson = packageJson;
+        this.platforms = Collections.unmodifiableList(new ArrayList<>(platforms));
+    }
+
+    /**
+     * Indexes every regular file under a directory.
+     */
+    public static DeltaManifest fromDirectory(File directory) throws IOException {
+        Path baseDir = directory.toPath();
+        SortedMap<String, Entry> entries = new TreeMap<>();
+        if (!directory.isDirectory()) {
+            return new DeltaManifest(entries);
+        }
+        try (Stream<Path> paths = Files.walk(baseDir)) {
+            for (Path path : paths.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                File file = path.toFile();
+                entries.put(
+                        baseDir.relativize(path).toString().replace('\\', '/'),
+                        new Entry(sha256(file), file.length(), file.canExecute())
+                );
+            }
+        }
+        return new DeltaManifest(entries);
+    }
+
+    public static DeltaManifest fromJson(String json) {
+        JSONObject root = new JSONObject(json);
+        JSONObject files = root.optJSONObject("files");
+        JSONObject source = files != null ? files : root;
+        SortedMap<String, Entry> entries = new TreeMap<>();
+        for (String path : source.keySet()) {
+            JSONObject entry = source.optJSONObject(path);
+            if (entry == null || !entry.has("hash")) {
+                // e.g. the "timestamp" field of jdeploy.mf
+                continue;
+            }
+            entries.put(path, Entry.fromJson(entry));
+        }
+        if (files == null) {
+            return new DeltaManifest(entries);
+        }
+        JSONObject packageJson = root.optJSONObject("packageJson");
+        List<String> platforms = new ArrayList<>();
+        JSONArray platformsJson = root.optJSONArray("platforms");
+        if (platformsJson != null) {
+            for (int i = 0; i < platformsJson.length(); i++) {
+                platforms.add(platformsJson.getString(i));
+            }
+        }
+        return new DeltaManifest(entries, packageJson == null ? null : Entry.fromJson(packageJson), platforms);
+    }
+
+    public String toJson() {
+        JSONObject files = new JSONObject();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            files.put(entry.getKey(), entry.getValue().toJson());
+        }
+        JSONObject root = new JSONObject();
+        root.put("files", files);
+        if (packageJson != null) {
+            root.put("packageJson", packageJson.toJson());
+        }
+        root.put("platforms", new JSONArray(platforms));
+        return root.toString(2);
+    }
+
+    public SortedMap<String, Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return the bundle's package.json, or null if the index doesn't include it
+     */
+    public Entry getPackageJson() {
+        return packageJson;
+    }
+
+    /**
+     * @return the identifiers of the platforms with their own index, e.g. "mac-arm64"
+     */
+    public List<String> getPlatforms() {
+        return platforms;
+    }
+
+    /**
+     * A copy of this manifest with the given blob locations, keyed by hash.
+     */
+    public DeltaManifest withLocations(Map<String, Location> locations) {
+        SortedMap<String, Entry> located = new TreeMap<>();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            located.put(entry.getKey(), withLocation(entry.getValue(), locations));
+        }
+        return new DeltaManifest(located, packageJson == null ? null : withLocation(packageJson, locations), platforms);
+    }
+
+    private static Entry withLocation(Entry entry, Map<String, Location> locations) {
+        return new Entry(entry.getHash(), entry.getSize(), entry.isExecutable(), locations.get(entry.getHash()));
+    }
+
+    /**
+     * The distinct hashes in this manifest that don't appear in {@code installed}, i.e. the blobs
+     * an updater has to download to go from {@code installed} to this manifest.
+     */
+    public Set<String> getMissingHashes(DeltaManifest installed) {
+        Set<String> available = installed.getHashes();
+        Set<String> out = new LinkedHashSet<>();
+        for (Entry entry : entries.values()) {
+            if (!available.contains(entry.getHash())) {
+                out.add(entry.getHash());
+            }
+        }
+        return out;
+    }
+
+    public Set<String> getHashes() {
+        Set<String> out = new LinkedHashSet<>();
+        for (Entry entry : entries.values()) {
+            out.add(entry.getHash());
+        }
+        return out;
+    }
+
+    /**
+     * The total size of the blobs with the given hashes.
+     */
+    public long getSize(Set<String> hashes) {
+        Set<String> counted = new LinkedHashSet<>();
+        long total = 0;
+        for (Entry entry : entries.values()) {
+            if (hashes.contains(entry.getHash()) && counted.add(entry.getHash())) {
+                total += Math.max(0, entry.getSize());
+            }
+        }
+        return total;
+    }
+
+    /**
+     * The name of the index for a platform bundle, e.g. {@code jdeploy-delta-mac-arm64.json}.
+     */
+    public static String getFileName(String platformIdentifier) {
+        return "jdeploy-delta-" + platformIdentifier + ".json";
+    }
+
+    /**
+     * The name of the pack whose content has the given hash.
+     */
+    public static String getPackName(String hash) {
+        return PACK_PREFIX + hash + PACK_SUFFIX;
+    }
+
+    public static String sha256(File file) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[8192];
+        try (InputStream input = new FileInputStream(file)) {
+            int bytesRead;
+            while ((bytesRead = input.read(buffer)) != -1) {
+                digest.update(buffer, 0, bytesRead);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    public static MessageDigest newDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 algorithm not available", e);
+        }
+    }
+
+    public static String toHex(byte[] digest) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,80 @@
+package ca.weblite.jdeploy.helpers;
+
+import ca.weblite.tools.io.IOUtil;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide cache of the Client4JLauncher templates that are embedded as class path resources.
+ *
+ * Each template is materialized to a file at most once per process, so that launchers for every
+ * target can be stamped from it with {@link java.nio.channels.FileChannel#transferTo} instead of
+ * re-reading the resource stream each time.  Resources that are already plain files on the
+ * class path are used in place.
+ */
+public class LauncherTemplateCache {
+
+    private static final LauncherTemplateCache instance = new LauncherTemplateCache();
+
+    private final Map<String, File> templates = new ConcurrentHashMap<>();
+
+    public static LauncherTemplateCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Gets a file containing the given launcher resource.
+     *
+     * @param context the class used to resolve the resource
+     * @param resource the resource path, relative to {@code context}
+     * @return a readable file with the resource content.  Callers must not modify it.
+     * @throws IOException if the resource does not exist or cannot be materialized
+     */
+    public File getTemplate(Class<?> context, String resource) throws IOException {
+        URL url = context.getResource(resource);
+        if (url == null) {
+            throw new FileNotFoundException("Launcher resource not found: " + resource);
+        }
+        String key = url.toExternalForm();
+        File template = templates.get(key);
+        if (template != null && template.isFile()) {
+            return template;
+        }
+        synchronized (this) {
+            template = templates.get(key);
+            if (template == null || !template.isFile()) {
+                template = materialize(url);
+                templates.put(key, template);
+            }
+            return template;
+        }
+    }
+
+    private static File materialize(URL url) throws IOException {
+        if ("file".equals(url.getProtocol())) {
+            try {
+                File file = new File(url.toURI());
+                if (file.isFile()) {
+                    return file;
+                }
+            } catch (URISyntaxException | IllegalArgumentException ex) {
+                // Fall through and copy the stream
+            }
+        }
+        File tmp = File.createTempFile("Client4JLauncher", ".template");
+        tmp.deleteOnExit();
+        try (InputStream input = url.openStream(); OutputStream output = new FileOutputStream(tmp)) {
+            IOUtil.copy(input, output);
+        }
+        return tmp;
+    }
+}
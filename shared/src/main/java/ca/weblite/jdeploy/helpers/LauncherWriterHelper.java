@@ -7,48 +7,184 @@ import com.joshondesign.appbundler.win.WindowsBundler2;
 import com.joshondesign.xml.XMLWriter;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.UnaryOperator;
 
 public class LauncherWriterHelper {
+
+    /**
+     * Writes a launcher by copying the given launcher stream and appending the app.xml payload.
+     *
+     * Prefer {@link #writeLauncher(AppDescription, File, File)} when the launcher template is
+     * available as a file, since that avoids streaming the launcher through the heap.
+     */
     public void writeLauncher(AppDescription app, File destFile, InputStream launcherInput) throws Exception {
 
-        try (FileOutputStream fos = new FileOutputStream(destFile)) {
-            IOUtil.copy(launcherInput, new FileOutputStream(destFile));
+        try (InputStream in = launcherInput; FileOutputStream fos = new FileOutputStream(destFile)) {
+            IOUtil.copy(in, fos);
         }
         long origSize = destFile.length();
-        File appXml = new File(destFile.getParentFile(), "app.xml");
-        processAppXml(app, appXml);
+        byte[] payload = createPayload(app, origSize);
         try (FileOutputStream fos = new FileOutputStream(destFile, true)) {
+            fos.write(payload);
+        }
+
+        destFile.setExecutable(true, false);
+
+    }
+
+    /**
+     * Writes a launcher stamped from the given launcher template file.
+     *
+     * The template is copied with {@link FileChannel#transferTo} and the app.xml payload is
+     * appended with a positional write, so the launcher bytes never pass through the Java heap.
+     *
+     * @param app the app description used to generate app.xml
+     * @param destFile the launcher to write
+     * @param launcherTemplate the Client4JLauncher template, e.g. from {@link LauncherTemplateCache}
+     */
+    public void writeLauncher(AppDescription app, File destFile, File launcherTemplate) throws Exception {
+        byte[] payload = createPayload(app, launcherTemplate.length());
+        try (FileChannel in = FileChannel.open(launcherTemplate.toPath(), StandardOpenOption.READ);
+             FileChannel out = openForWriting(destFile)) {
+            long origSize = IOUtil.transfer(in, out);
+            ByteBuffer buffer = ByteBuffer.wrap(payload);
+            while (buffer.hasRemaining()) {
+                out.write(buffer, origSize + buffer.position());
+            }
+        }
+        destFile.setExecutable(true, false);
+    }
+
+    /**
+     * Copies a launcher that needs no payload, such as the macOS launcher or an already stamped
+     * Windows launcher, with {@link FileChannel#transferTo}, and marks the copy executable.
+     *
+     * @param launcher the launcher to copy
+     * @param destFile the copy to write; replaced if it exists
+     */
+    public static void copyLauncher(File launcher, File destFile) throws IOException {
+        try (FileChannel in = FileChannel.open(launcher.toPath(), StandardOpenOption.READ);
+             FileChannel out = openForWriting(destFile)) {
+            IOUtil.transfer(in, out);
+        }
+        destFile.setExecutable(true, false);
+    }
+
+    /**
+     * Replaces the app.xml payload of a launcher stamped by this class, e.g. to update the
+     * version in a launcher that was built for an earlier release.  The launcher bytes before
+     * the payload are left as they are.
+     *
+     * @param launcher the stamped launcher
+     * @param transform maps the current app.xml to the new one
+     * @return false if the file doesn't end with an app.xml payload
+     */
+    public static boolean rewriteAppXml(File launcher, UnaryOperator<String> transform) throws IOException {
+        byte[] trailer = generateTrailerBytes();
+        try (FileChannel channel = FileChannel.open(
+                launcher.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size < trailer.length + 1) {
+                return false;
+            }
+            byte[] tail = read(channel, size - trailer.length - 1, trailer.length + 1);
+            if (!Arrays.equals(Arrays.copyOfRange(tail, 1, tail.length), trailer)) {
+                return false;
+            }
+            int positionLength = tail[0] & 0xff;
+            long positionStart = size - trailer.length - 1 - positionLength;
+            long origSize;
+            try {
+                origSize = Long.parseLong(new String(
+                        invertBytes(read(channel, positionStart, positionLength)), StandardCharsets.UTF_8
+                ));
+            } catch (NumberFormatException e) {
+                return false;
+            }
+            if (origSize < 0 || origSize > positionStart) {
+                return false;
+            }
+            String appXml = new String(
+                    invertBytes(read(channel, origSize, (int) (positionStart - origSize))), StandardCharsets.UTF_8
+            );
+            byte[] payload = createPayload(transform.apply(appXml).getBytes(StandardCharsets.UTF_8), origSize);
+            channel.truncate(origSize);
+            ByteBuffer buffer = ByteBuffer.wrap(payload);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, origSize + buffer.position());
+            }
+        }
+        return true;
+    }
+
+    private static byte[] read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        return buffer.array();
+    }
+
+    private static FileChannel openForWriting(File destFile) throws IOException {
+        return FileChannel.open(
+                destFile.toPath(),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE
+        );
+    }
+
+    /**
+     * Builds the data that is appended to the launcher executable: the inverted app.xml,
+     * followed by the position where it starts, the length of that position string, and the
+     * trailer bytes.
+     */
+    private byte[] createPayload(AppDescription app, long origSize) throws Exception {
+        File appXml = File.createTempFile("app", ".xml");
+        try {
+            processAppXml(app, appXml);
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
             try (FileInputStream fis = new FileInputStream(appXml)) {
                 IOUtil.copy(fis, baos);
             }
-            fos.write(invertBytes(baos.toByteArray()));
-            byte[] bytes = invertBytes(String.valueOf(origSize).getBytes("UTF-8"));
-
+            return createPayload(baos.toByteArray(), origSize);
+        } finally {
+            appXml.delete();
+        }
+    }
 
-            // Record the position of the start of the data file
-            // As a UTF-8 string
-            fos.write(bytes);
+    private static byte[] createPayload(byte[] xmlBytes, long origSize) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        baos.write(invertBytes(xmlBytes));
+        byte[] bytes = invertBytes(String.valueOf(origSize).getBytes("UTF-8"));
 
-            // Record the length of the position string
-            // When we read this from golang, we will walk backwards.
-            // First read the last byte of the file which will tell us
-            // where to start reading the position string from.
-            // Then read the position string, convert it to a long,
-            // and then we can read the data file from that position
-            // in the exe
 
-            fos.write(bytes.length);
+        // Record the position of the start of the data file
+        // As a UTF-8 string
+        baos.write(bytes);
 
-            // Need trailer bytes in case other things are added after this payload, so we can find it.
-            fos.write(generateTrailerBytes());
-        }
+        // Record the length of the position string
+        // When we read this from golang, we will walk backwards.
+        // First read the last byte of the file which will tell us
+        // where to start reading the position string from.
+        // Then read the position string, convert it to a long,
+        // and then we can read the data file from that position
+        // in the exe
 
-        destFile.setExecutable(true, false);
-        appXml.delete();
+        baos.write(bytes.length);
 
+        // Need trailer bytes in case other things are added after this payload, so we can find it.
+        baos.write(generateTrailerBytes());
+        return baos.toByteArray();
     }
 
     private static void processAppXml(AppDescription app, File dest) throws Exception {
@@ -121,7 +257,7 @@ public class LauncherWriterHelper {
 
     // Because windows and chrome think that exes with base64 appended is a virus,
     // trying to make the bytes not base64.
-    private byte[] invertBytes(byte[] bytes) {
+    private static byte[] invertBytes(byte[] bytes) {
         int len = bytes.length;
         byte[] out = new byte[len];
         for (int i=0; i<len; i++) {
@@ -131,7 +267,7 @@ public class LauncherWriterHelper {
         return out;
     }
 
-    private byte[] generateTrailerBytes() {
+    private static byte[] generateTrailerBytes() {
         int[] ints = new int[]{
                 0x59, 0x77, 0xab, 0x5a, 0x65, 0xc2, 0xbd, 0x04, 0x44, 0x2b, 0x92, 0x24, 0xeb, 0x80, 0xf7, 0x7d,
                 0xe9, 0xa9, 0x0f, 0x92, 0x47, 0xbb, 0x6c, 0xfb, 0xce, 0x15, 0xc4, 0x44, 0x2b, 0xe9, 0x18, 0x4c
@@ -6,9 +6,12 @@ import ca.weblite.tools.security.FileSigner;
 import ca.weblite.tools.security.KeyProvider;
 
 import java.security.cert.Certificate;
+import java.io.File;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public class PackageSigningService {
     private final KeyProvider keyProvider;
@@ -28,6 +31,22 @@ public class PackageSigningService {
         FileSigner.signDirectory(versionString, packagePath, keyProvider);
     }
 
+    /**
+     * Re-signs only the given files of a package that was already signed.  See
+     * {@link FileSigner#updateSignatures(String, String, Collection, KeyProvider)}.
+     */
+    public void updatePackageSignatures(String versionString, String packagePath, Collection<File> changedFiles) throws Exception {
+        FileSigner.updateSignatures(versionString, packagePath, changedFiles, keyProvider);
+    }
+
+    /**
+     * Creates the signature files for a set of files without requiring them to be laid out in a
+     * directory.  See {@link FileSigner#createSignatureFiles(String, Map, KeyProvider)}.
+     */
+    public Map<String, byte[]> createSignatureFiles(String versionString, Map<String, File> files) throws Exception {
+        return FileSigner.createSignatureFiles(versionString, files, keyProvider);
+    }
+
     public List<String> calculateCertificateHashes() throws Exception {
         List<String> hashes = new ArrayList<String>();
         for(Certificate certificate : keyProvider.getSigningCertificateChain()) {
@@ -8,6 +8,7 @@ package ca.weblite.tools.io;
 import java.io.*;
 import java.net.DatagramSocket;
 import java.net.ServerSocket;
+import java.nio.channels.FileChannel;
 
 /**
  *
@@ -77,6 +78,27 @@ public class IOUtil {
         }
         return nread;
     }
+
+    /**
+     * Copies the entire content of a file channel to the current position of another
+     * file channel using {@link FileChannel#transferTo}, which lets the OS move the bytes
+     * without copying them through the Java heap.
+     *
+     * @return the number of bytes transferred
+     */
+    public static long transfer(FileChannel source, FileChannel sink) throws IOException {
+        long size = source.size();
+        long position = 0L;
+        while (position < size) {
+            // transferTo() may move fewer bytes than requested
+            long n = source.transferTo(position, size - position, sink);
+            if (n <= 0) {
+                throw new EOFException("Unexpected end of channel at offset " + position);
+            }
+            position += n;
+        }
+        return position;
+    }
     
     public static Object readObject(Object lock, DataInputStream dis) throws IOException, ClassNotFoundException {
         synchronized(lock) {
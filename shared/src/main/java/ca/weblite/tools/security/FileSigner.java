@@ -20,71 +20,169 @@ public class FileSigner {
     private static final String TIMESTAMP_FORMAT = "yyyy-MM-dd'T'HH:mm:ss'Z'";
 
     public static void signDirectory(String version, String directoryPath, KeyProvider keyProvider) throws Exception {
+        Path baseDir = Paths.get(directoryPath);
+        Map<String, File> files = new LinkedHashMap<>();
+        try (Stream<Path> paths = Files.walk(baseDir)) {
+            for (Path filePath : paths.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                // Compute the relative path and use it as the key in the manifest
+                files.put(baseDir.relativize(filePath).toString(), filePath.toFile());
+            }
+        }
+
+        for (Map.Entry<String, byte[]> signatureFile : createSignatureFiles(version, files, keyProvider).entrySet()) {
+            Files.write(Paths.get(directoryPath, signatureFile.getKey()), signatureFile.getValue());
+        }
+    }
+
+    /**
+     * Brings the signature files of a directory signed by {@link #signDirectory} up to date after
+     * some of its files changed.  The manifest entries of the other files are kept as they are, so
+     * only the changed files are hashed and signed; the manifest itself is always signed again.
+     * Falls back to signing the whole directory if it has no manifest yet or was signed with a
+     * different certificate.
+     *
+     * @param changedFiles files in the directory that were created, modified or deleted.  A
+     *                     directory stands for all the files in it.
+     */
+    public static void updateSignatures(
+            String version,
+            String directoryPath,
+            Collection<File> changedFiles,
+            KeyProvider keyProvider
+    ) throws Exception {
+        Path baseDir = Paths.get(directoryPath).toAbsolutePath().normalize();
+        Path manifestPath = baseDir.resolve(MANIFEST_FILENAME);
+        Path certificatePath = baseDir.resolve(CERTIFICATE_FILENAME);
+        byte[] certificates = encodeCertificates(keyProvider);
+        if (!Files.isRegularFile(manifestPath)
+                || !Files.isRegularFile(certificatePath)
+                || !Arrays.equals(Files.readAllBytes(certificatePath), certificates)) {
+            signDirectory(version, directoryPath, keyProvider);
+            return;
+        }
+
+        JSONObject manifest = new JSONObject(new String(Files.readAllBytes(manifestPath)));
         PrivateKey privateKey = keyProvider.getSigningKey();
-        List<Certificate> certificateChain = keyProvider.getSigningCertificateChain();
-        if (certificateChain == null || certificateChain.isEmpty()) {
-            throw new IllegalArgumentException("KeyProvider failed to find any certificates in the signing certificate chain");
+        for (File changedFile : changedFiles) {
+            Path changed = changedFile.toPath().toAbsolutePath().normalize();
+            if (!changed.startsWith(baseDir) || changed.equals(baseDir)) {
+                continue;
+            }
+            String relativePath = baseDir.relativize(changed).toString();
+            for (String key : new ArrayList<>(manifest.keySet())) {
+                if (key.equals(relativePath) || key.startsWith(relativePath + File.separator)) {
+                    manifest.remove(key);
+                }
+            }
+            if (!Files.exists(changed)) {
+                continue;
+            }
+            try (Stream<Path> paths = Files.walk(changed)) {
+                for (Path filePath : paths.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                    if (!isSignatureFile(filePath.getFileName().toString())) {
+                        manifest.put(baseDir.relativize(filePath).toString(), createFileEntry(filePath.toFile(), privateKey));
+                    }
+                }
+            }
         }
+        manifest.put("timestamp", new SimpleDateFormat(TIMESTAMP_FORMAT).format(new Date()));
+
+        for (Map.Entry<String, byte[]> signatureFile : signManifest(version, manifest, privateKey, certificates).entrySet()) {
+            Files.write(baseDir.resolve(signatureFile.getKey()), signatureFile.getValue());
+        }
+    }
+
+    /**
+     * Creates the manifest, manifest signature and certificate files that {@link #signDirectory}
+     * would write, for a set of files that need not be laid out in a directory.
+     *
+     * @param files the files to sign, keyed by the relative path to record in the manifest.
+     *              Existing signature files in the set are skipped.
+     * @return the contents of jdeploy.mf, jdeploy.mf.sig and jdeploy.cer, keyed by file name
+     */
+    public static Map<String, byte[]> createSignatureFiles(
+            String version,
+            Map<String, File> files,
+            KeyProvider keyProvider
+    ) throws Exception {
+        PrivateKey privateKey = keyProvider.getSigningKey();
+        byte[] certificates = encodeCertificates(keyProvider);
 
         // Generate the manifest with timestamp
         String timestamp = new SimpleDateFormat(TIMESTAMP_FORMAT).format(new Date());
-        JSONObject manifest = generateManifest(directoryPath, privateKey, timestamp);
+        JSONObject manifest = generateManifest(files, privateKey, timestamp);
+        return signManifest(version, manifest, privateKey, certificates);
+    }
 
-        // Save the manifest file
-        Path manifestPath = Paths.get(directoryPath, MANIFEST_FILENAME);
-        try (Writer writer = new FileWriter(manifestPath.toFile())) {
-            writer.write(manifest.toString(4)); // Pretty print with 4-space indentation
-        }
+    private static Map<String, byte[]> signManifest(
+            String version,
+            JSONObject manifest,
+            PrivateKey privateKey,
+            byte[] certificates
+    ) throws Exception {
+        byte[] manifestContent = manifest.toString(4).getBytes(); // Pretty print with 4-space indentation
 
         // Sign the manifest file
-        byte[] manifestContent = Files.readAllBytes(manifestPath);
         byte[] manifestSignature = signWithVersion(manifestContent, privateKey, version);
 
-        // Save the manifest signature file
-        Path manifestSignaturePath = Paths.get(directoryPath, MANIFEST_SIGNATURE_FILENAME);
-        Files.write(manifestSignaturePath, manifestSignature);
+        Map<String, byte[]> out = new LinkedHashMap<>();
+        out.put(MANIFEST_FILENAME, manifestContent);
+        out.put(MANIFEST_SIGNATURE_FILENAME, manifestSignature);
+        out.put(CERTIFICATE_FILENAME, certificates);
+        return out;
+    }
 
-        // Save the certificate chain file
-        Path certificatePath = Paths.get(directoryPath, CERTIFICATE_FILENAME);
-        try (FileOutputStream fos = new FileOutputStream(certificatePath.toFile())) {
-            for (Certificate cert : certificateChain) {
-                fos.write(cert.getEncoded());
-            }
+    private static byte[] encodeCertificates(KeyProvider keyProvider) throws Exception {
+        List<Certificate> certificateChain = keyProvider.getSigningCertificateChain();
+        if (certificateChain == null || certificateChain.isEmpty()) {
+            throw new IllegalArgumentException("KeyProvider failed to find any certificates in the signing certificate chain");
+        }
+        ByteArrayOutputStream certificates = new ByteArrayOutputStream();
+        for (Certificate cert : certificateChain) {
+            certificates.write(cert.getEncoded());
         }
+        return certificates.toByteArray();
     }
 
-    private static JSONObject generateManifest(String directoryPath, PrivateKey privateKey, String timestamp) throws Exception {
+    private static JSONObject generateManifest(Map<String, File> files, PrivateKey privateKey, String timestamp) throws Exception {
         JSONObject manifest = new JSONObject();
-        Path baseDir = Paths.get(directoryPath);
         manifest.put("timestamp", timestamp);
 
-        try (Stream<Path> paths = Files.walk(baseDir)) {
-            List<Path> filePaths = paths.filter(Files::isRegularFile)
-                    .filter(path -> !path.getFileName().toString().equals(MANIFEST_FILENAME))
-                    .filter(path -> !path.getFileName().toString().equals(MANIFEST_SIGNATURE_FILENAME))
-                    .filter(path -> !path.getFileName().toString().equals(CERTIFICATE_FILENAME))
-                    .collect(Collectors.toList());
-
-            for (Path filePath : filePaths) {
-                byte[] fileContent = Files.readAllBytes(filePath);
-                byte[] hash = hash(fileContent);
-                byte[] signature = sign(hash, privateKey);
-
-                JSONObject fileEntry = new JSONObject();
-                fileEntry.put("hash", encodeHex(hash));
-                fileEntry.put("signature", encodeHex(signature));
-
-                // Compute the relative path and use it as the key in the manifest
-                String relativePath = baseDir.relativize(filePath).toString();
-                manifest.put(relativePath, fileEntry);
+        for (Map.Entry<String, File> file : files.entrySet()) {
+            if (isSignatureFile(file.getValue().getName())) {
+                continue;
             }
+            manifest.put(file.getKey(), createFileEntry(file.getValue(), privateKey));
         }
         return manifest;
     }
 
-    private static byte[] hash(byte[] data) throws NoSuchAlgorithmException {
+    private static boolean isSignatureFile(String fileName) {
+        return fileName.equals(MANIFEST_FILENAME)
+                || fileName.equals(MANIFEST_SIGNATURE_FILENAME)
+                || fileName.equals(CERTIFICATE_FILENAME);
+    }
+
+    private static JSONObject createFileEntry(File file, PrivateKey privateKey) throws Exception {
+        byte[] hash = hash(file);
+        byte[] signature = sign(hash, privateKey);
+
+        JSONObject fileEntry = new JSONObject();
+        fileEntry.put("hash", encodeHex(hash));
+        fileEntry.put("signature", encodeHex(signature));
+        return fileEntry;
+    }
+
+    private static byte[] hash(File file) throws IOException, NoSuchAlgorithmException {
         MessageDigest digest = MessageDigest.getInstance(ALGORITHM);
-        return digest.digest(data);
+        byte[] buffer = new byte[8192];
+        try (InputStream input = new FileInputStream(file)) {
+            int bytesRead;
+            while ((bytesRead = input.read(buffer)) != -1) {
+                digest.update(buffer, 0, bytesRead);
+            }
+        }
+        return digest.digest();
     }
 
     private static byte[] hashWithVersion(byte[] data, String version) throws NoSuchAlgorithmException {
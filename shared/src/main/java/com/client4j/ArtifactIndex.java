@@ -9,18 +9,41 @@ import ca.weblite.jdeploy.app.Workspace;
 import ca.weblite.tools.platform.Version;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Objects;
+import java.util.TreeMap;
 
 /**
- *
+ * Registry of artifacts that can be searched by name and version expression.
+ * 
+ * Besides the flat list of registered artifacts, artifacts are grouped by name
+ * in version-sorted maps so that a best-match query for a name only has to walk
+ * down from the highest version in the expression's range until it finds a
+ * supported (and, if requested, installed) artifact.  Versions are parsed once, at
+ * registration, so an artifact's name and version must not change after it is
+ * registered.
+ * 
  * @author shannah
  */
 public class ArtifactIndex<T extends Artifact> implements Iterable<T>{
     protected final Workspace workspace;
     private List<T> registeredArtifacts = new ArrayList<>();
     
+    /**
+     * Registered artifacts by name, then version.  Artifacts sharing a name and
+     * version are kept in registration order.
+     */
+    private final Map<String, NavigableMap<Version, List<T>>> artifactsByName = new HashMap<>();
+    
+    /**
+     * Artifacts that can't be indexed because their name or version is null.
+     */
+    private final List<T> unindexedArtifacts = new ArrayList<>();
+    
     public static class ArtifactQuery {
         
         public ArtifactQuery(Workspace workspace, String name, String versionExpression, boolean installedOnly) {
@@ -129,7 +152,27 @@ public class ArtifactIndex<T extends Artifact> implements Iterable<T>{
     
     @Override
     public Iterator<T> iterator() {
-        return registeredArtifacts.iterator();
+        final Iterator<T> it = registeredArtifacts.iterator();
+        return new Iterator<T>() {
+            private T current;
+            
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public T next() {
+                current = it.next();
+                return current;
+            }
+
+            @Override
+            public void remove() {
+                it.remove();
+                unindex(current);
+            }
+        };
     }
     
     
@@ -148,14 +191,82 @@ public class ArtifactIndex<T extends Artifact> implements Iterable<T>{
     }
     
     public T findBestMatch(ArtifactQuery query) {
-        if (registeredArtifacts != null) {
+        NavigableMap<Version, List<T>> candidates = query.getName() == null
+                ? null
+                : versionRange(artifactsByName.get(query.getName()), query.getVersionExpression());
+        if (query.getName() == null || candidates == null && !isValidExpression(query.getVersionExpression())) {
+            // Queries across all names, and invalid expressions (which should still
+            // fail the same way), go through every artifact
             for (T rt : registeredArtifacts) {
                 query.updateBestMatch(rt);
-            }       
+            }
+            return (T)query.getBestMatch();
+        }
+        
+        for (T rt : unindexedArtifacts) {
+            query.updateBestMatch(rt);
+        }
+        if (candidates != null) {
+            // The first artifact found walking down from the highest version is the
+            // one a scan of the whole list would pick
+            search:
+            for (List<T> sameVersion : candidates.descendingMap().values()) {
+                for (T rt : sameVersion) {
+                    if (rt.isSupported() && (!query.isInstalledOnly() || rt.isInstalled(query.workspace))) {
+                        query.updateBestMatch(rt);
+                        break search;
+                    }
+                }
+            }
         }
         return (T)query.getBestMatch();
     }
     
+    /**
+     * Narrows a version-sorted map to the versions matching an expression, following
+     * the rules of {@link Version#matches(String)}.
+     * 
+     * @return The matching part of the map, or null if the map is null or the
+     * expression isn't valid.
+     */
+    private static <V> NavigableMap<Version, V> versionRange(NavigableMap<Version, V> versions, String expression) {
+        if (versions == null) {
+            return null;
+        }
+        if (expression == null) {
+            return versions;
+        }
+        expression = expression.trim();
+        if (expression.isEmpty()) {
+            return versions;
+        }
+        if (Character.isDigit(expression.charAt(0))) {
+            Version v = Version.parse(expression);
+            return versions.subMap(v, true, v, true);
+        }
+        if (expression.startsWith("<=")) {
+            return versions.headMap(Version.parse(expression.substring(2)), true);
+        }
+        if (expression.startsWith(">=")) {
+            return versions.tailMap(Version.parse(expression.substring(2)), true);
+        }
+        if (expression.startsWith(">")) {
+            return versions.tailMap(Version.parse(expression.substring(1)), false);
+        }
+        if (expression.startsWith("<")) {
+            return versions.headMap(Version.parse(expression.substring(1)), false);
+        }
+        if (expression.startsWith("~>")) {
+            Version minVersion = Version.parse(expression.substring(2));
+            return versions.subMap(minVersion, true, minVersion.getOptimisticMatchUpperBound(), false);
+        }
+        return null;
+    }
+    
+    private static boolean isValidExpression(String expression) {
+        return versionRange(new TreeMap<Version, Object>(), expression) != null;
+    }
+    
      /**
      * Find the best runtime matching the version expression.  This gives priority
      * to runtimes that are installed (and match the version expression).  If no 
@@ -176,9 +287,59 @@ public class ArtifactIndex<T extends Artifact> implements Iterable<T>{
     
     public void register(T artifact) {
         registeredArtifacts.add(artifact);
+        Version version = parseVersion(artifact);
+        if (version == null) {
+            unindexedArtifacts.add(artifact);
+            return;
+        }
+        artifactsByName
+                .computeIfAbsent(artifact.getName(), name -> new TreeMap<>())
+                .computeIfAbsent(version, v -> new ArrayList<>(1))
+                .add(artifact);
+    }
+    
+    /**
+     * @return The artifact's parsed version, or null if it can't be indexed.
+     */
+    private static Version parseVersion(Artifact artifact) {
+        if (artifact.getName() == null || artifact.getVersion() == null) {
+            return null;
+        }
+        try {
+            return Version.parse(artifact.getVersion());
+        } catch (RuntimeException ex) {
+            // Left for queries to report, as they did before versions were indexed
+            return null;
+        }
+    }
+    
+    private void unindex(T artifact) {
+        Version version = parseVersion(artifact);
+        if (version == null) {
+            removeInstance(unindexedArtifacts, artifact);
+            return;
+        }
+        NavigableMap<Version, List<T>> versions = artifactsByName.get(artifact.getName());
+        List<T> sameVersion = versions.get(version);
+        removeInstance(sameVersion, artifact);
+        if (sameVersion.isEmpty()) {
+            versions.remove(version);
+            if (versions.isEmpty()) {
+                artifactsByName.remove(artifact.getName());
+            }
+        }
     }
     
     
+    private static <E> void removeInstance(List<E> list, E element) {
+        for (Iterator<E> it = list.iterator(); it.hasNext();) {
+            if (it.next() == element) {
+                it.remove();
+                return;
+            }
+        }
+    }
+    
     @Override
     public boolean equals(Object obj) {
         if (obj instanceof ArtifactIndex) {
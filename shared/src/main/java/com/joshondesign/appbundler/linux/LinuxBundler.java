@@ -6,6 +6,7 @@
 package com.joshondesign.appbundler.linux;
 
 import ca.weblite.jdeploy.appbundler.*;
+import ca.weblite.jdeploy.helpers.LauncherTemplateCache;
 import ca.weblite.jdeploy.helpers.LauncherWriterHelper;
 import com.joshondesign.appbundler.win.*;
 import ca.weblite.tools.io.FileUtil;
@@ -66,15 +67,15 @@ public class LinuxBundler {
         if (verboseLevel > 0) {
             System.out.println("Creating "+destFile);
         }
-        new LauncherWriterHelper().writeLauncher(app, destFile, getClient4JLauncherResource(targetArchitecture));
+        new LauncherWriterHelper().writeLauncher(app, destFile, getClient4JLauncherTemplate(targetArchitecture));
     }
 
-    private static InputStream getClient4JLauncherResource(TargetArchitecture targetArchitecture) {
+    private static File getClient4JLauncherTemplate(TargetArchitecture targetArchitecture) throws IOException {
         switch (targetArchitecture) {
             case X64:
-                return LinuxBundler.class.getResourceAsStream("x64/Client4JLauncher");
+                return LauncherTemplateCache.getInstance().getTemplate(LinuxBundler.class, "x64/Client4JLauncher");
             case ARM64:
-                return LinuxBundler.class.getResourceAsStream("arm64/Client4JLauncher");
+                return LauncherTemplateCache.getInstance().getTemplate(LinuxBundler.class, "arm64/Client4JLauncher");
             default:
                 throw new IllegalArgumentException("Target architecture " + targetArchitecture + " not supported");
         }
@@ -1,6 +1,8 @@
 package com.joshondesign.appbundler.mac;
 
 import ca.weblite.jdeploy.appbundler.*;
+import ca.weblite.jdeploy.helpers.LauncherTemplateCache;
+import ca.weblite.jdeploy.helpers.LauncherWriterHelper;
 import ca.weblite.jdeploy.installer.CliInstallerConstants;
 import ca.weblite.jdeploy.models.CommandSpec;
 import ca.weblite.tools.io.FileUtil;
@@ -88,11 +90,8 @@ public class MacBundler {
                 new FileOutputStream(new File(contentsDir,"PkgInfo"))
         );
 
-        InputStream stub_path = getClient4JLauncherResource(targetArchitecture);
         File stub_dest = new File(contentsDir,"MacOS/Client4JLauncher");
-        Bundler.copyStream(stub_path,new FileOutputStream(stub_dest));
-
-        stub_dest.setExecutable(true, false);
+        LauncherWriterHelper.copyLauncher(getClient4JLauncherTemplate(targetArchitecture), stub_dest);
 
         // If the packaging flow indicates that CLI commands should be installed for this app,
         // emit a second, byte-identical launcher named "Client4JLauncher-cli" next to the GUI
@@ -300,12 +299,12 @@ public class MacBundler {
         return out;
     }
 
-    private static InputStream getClient4JLauncherResource(TargetArchitecture targetArchitecture) {
+    private static File getClient4JLauncherTemplate(TargetArchitecture targetArchitecture) throws IOException {
         switch (targetArchitecture) {
             case X64:
-                return MacBundler.class.getResourceAsStream("x64/Client4JLauncher");
+                return LauncherTemplateCache.getInstance().getTemplate(MacBundler.class, "x64/Client4JLauncher");
             case ARM64:
-                return MacBundler.class.getResourceAsStream("arm64/Client4JLauncher");
+                return LauncherTemplateCache.getInstance().getTemplate(MacBundler.class, "arm64/Client4JLauncher");
             default:
                 throw new IllegalArgumentException("Target architecture " + targetArchitecture + " not supported");
         }
@@ -327,8 +326,7 @@ public class MacBundler {
     public static void maybeCreateCliLauncher(BundlerSettings bundlerSettings, File contentsDir, File guiLauncher) throws IOException {
         if (bundlerSettings.isCliCommandsEnabled()) {
             File cliDest = new File(contentsDir, "MacOS/" + CliInstallerConstants.CLI_LAUNCHER_NAME);
-            FileUtils.copyFile(guiLauncher, cliDest);
-            cliDest.setExecutable(true, false);
+            LauncherWriterHelper.copyLauncher(guiLauncher, cliDest);
         }
     }
 
@@ -6,6 +6,7 @@
 package com.joshondesign.appbundler.win;
 
 import ca.weblite.jdeploy.appbundler.*;
+import ca.weblite.jdeploy.helpers.LauncherTemplateCache;
 import ca.weblite.jdeploy.helpers.LauncherWriterHelper;
 import ca.weblite.jdeploy.installer.CliInstallerConstants;
 
@@ -82,16 +83,16 @@ public class WindowsBundler2 {
         new LauncherWriterHelper().writeLauncher(
                 app,
                 destFile,
-                getClient4JLauncherResource(targetArchitecture)
+                getClient4JLauncherTemplate(targetArchitecture)
         );
     }
 
-    private static InputStream getClient4JLauncherResource(TargetArchitecture targetArchitecture) {
+    private static File getClient4JLauncherTemplate(TargetArchitecture targetArchitecture) throws IOException {
         switch (targetArchitecture) {
             case X64:
-                return WindowsBundler2.class.getResourceAsStream("x64/Client4JLauncher.exe");
+                return LauncherTemplateCache.getInstance().getTemplate(WindowsBundler2.class, "x64/Client4JLauncher.exe");
             case ARM64:
-                return WindowsBundler2.class.getResourceAsStream("arm64/Client4JLauncher.exe");
+                return LauncherTemplateCache.getInstance().getTemplate(WindowsBundler2.class, "arm64/Client4JLauncher.exe");
             default:
                 throw new IllegalArgumentException("Target architecture " + targetArchitecture + " not supported");
         }
@@ -1,8 +1,11 @@
 package com.joshondesign.appbundler.win;
 
+import ca.weblite.tools.io.IOUtil;
+
 import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Utility class for modifying Windows PE executable headers.
@@ -20,6 +23,9 @@ public class WindowsPESubsystemModifier {
     
     /**
      * Copies an EXE file and modifies its PE header subsystem from GUI to Console.
+     *
+     * The copy is performed with {@link FileChannel#transferTo} so the bytes never pass
+     * through the Java heap, and the subsystem byte is then patched in place.
      * 
      * @param sourceExe the source EXE file to read
      * @param destExe the destination EXE file to write
@@ -37,11 +43,17 @@ public class WindowsPESubsystemModifier {
             throw new IllegalArgumentException("Source EXE is not a regular file: " + sourceExe);
         }
         
-        // First, copy the file
-        Files.copy(sourceExe.toPath(), destExe.toPath(), StandardCopyOption.REPLACE_EXISTING);
-        
-        // Then modify the PE header
-        modifyPEHeaderSubsystem(destExe);
+        try (FileChannel source = FileChannel.open(sourceExe.toPath(), StandardOpenOption.READ);
+             FileChannel dest = FileChannel.open(
+                     destExe.toPath(),
+                     StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING,
+                     StandardOpenOption.READ
+             )) {
+            IOUtil.transfer(source, dest);
+            modifyPEHeaderSubsystem(dest);
+        }
     }
     
     /**
@@ -62,43 +74,77 @@ public class WindowsPESubsystemModifier {
             throw new IllegalArgumentException("Target is not a regular file: " + exeFile);
         }
         
-        byte[] fileContent = Files.readAllBytes(exeFile.toPath());
-        
+        try (FileChannel channel = FileChannel.open(
+                exeFile.toPath(),
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE
+        )) {
+            modifyPEHeaderSubsystem(channel);
+        }
+    }
+
+    /**
+     * Modifies the PE header subsystem of the executable open on the given channel.
+     *
+     * Only the DOS header, the PE signature and the single subsystem byte are touched, using
+     * positional reads and writes, so the cost is independent of the executable's size.
+     * The channel's position is left unchanged.
+     *
+     * @param channel a channel opened for both reading and writing
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalArgumentException if the content is not a valid PE executable
+     */
+    public static void modifyPEHeaderSubsystem(FileChannel channel)
+            throws IOException, IllegalArgumentException {
+        long size = channel.size();
+
         // Validate that this is an MZ executable (DOS header)
-        if (fileContent.length < 64) {
+        if (size < 64) {
             throw new IllegalArgumentException("File is too small to be a valid PE executable");
         }
-        
-        if (fileContent[0] != 'M' || fileContent[1] != 'Z') {
+
+        byte[] dosHeader = readFully(channel, 0, 64);
+        if (dosHeader[0] != 'M' || dosHeader[1] != 'Z') {
             throw new IllegalArgumentException("File does not have a valid MZ executable header");
         }
-        
+
         // Read the PE header offset from the DOS header
-        int peHeaderOffset = readInt32LittleEndian(fileContent, PE_SIGNATURE_OFFSET_LOCATION);
-        
+        int peHeaderOffset = readInt32LittleEndian(dosHeader, PE_SIGNATURE_OFFSET_LOCATION);
+
         // Validate the PE header offset is within bounds
-        if (peHeaderOffset < 0 || peHeaderOffset + 4 > fileContent.length) {
+        if (peHeaderOffset < 0 || (long) peHeaderOffset + 4 > size) {
             throw new IllegalArgumentException("Invalid PE header offset: " + peHeaderOffset);
         }
-        
+
         // Validate the PE signature
-        if (!isPESignatureValid(fileContent, peHeaderOffset)) {
+        if (!isPESignatureValid(readFully(channel, peHeaderOffset, 4), 0)) {
             throw new IllegalArgumentException("File does not have a valid PE signature at offset " + peHeaderOffset);
         }
-        
+
         // Calculate the subsystem field offset within the PE header
         // The subsystem field is located 68 bytes after the PE signature
-        int subsystemOffset = peHeaderOffset + SUBSYSTEM_FIELD_OFFSET;
-        
-        if (subsystemOffset >= fileContent.length) {
+        long subsystemOffset = (long) peHeaderOffset + SUBSYSTEM_FIELD_OFFSET;
+
+        if (subsystemOffset >= size) {
             throw new IllegalArgumentException("Subsystem field offset is out of bounds");
         }
-        
+
         // Modify the subsystem field from GUI (2) to Console (3)
-        fileContent[subsystemOffset] = SUBSYSTEM_CONSOLE;
-        
-        // Write the modified content back
-        Files.write(exeFile.toPath(), fileContent);
+        ByteBuffer subsystem = ByteBuffer.wrap(new byte[]{SUBSYSTEM_CONSOLE});
+        while (subsystem.hasRemaining()) {
+            channel.write(subsystem, subsystemOffset + subsystem.position());
+        }
+    }
+
+    private static byte[] readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IllegalArgumentException("Unexpected end of file at offset " + (position + buffer.position()));
+            }
+        }
+        return buffer.array();
     }
     
     /**
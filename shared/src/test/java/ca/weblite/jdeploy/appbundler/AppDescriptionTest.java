@@ -43,4 +43,46 @@ public class AppDescriptionTest {
         assertEquals(iconURI, app.getIconDataURI());
         assertEquals(splashURI, app.getSplashDataURI());
     }
+
+    @Test
+    public void testCopyConstructorCopiesValues() {
+        AppDescription app = new AppDescription();
+        app.setName("TestApp");
+        app.setNpmPackage("test-package");
+        app.setNpmVersion("1.0.0");
+        app.setIconDataURI("data:image/png;base64,icondata");
+        app.setSplashDataURI("data:text/html;base64,splashdata");
+        app.addExtension("txt", "text/plain", null);
+        app.addUrlScheme("testapp");
+        app.setMacUsageDescription("NSCameraUsageDescription", "Camera");
+
+        AppDescription copy = new AppDescription(app);
+
+        assertEquals("TestApp", copy.getName());
+        assertEquals("test-package", copy.getNpmPackage());
+        assertEquals("1.0.0", copy.getNpmVersion());
+        assertEquals(app.getIconDataURI(), copy.getIconDataURI());
+        assertEquals(app.getSplashDataURI(), copy.getSplashDataURI());
+        assertTrue(copy.getExtensions().contains("txt"));
+        assertTrue(copy.getUrlSchemes().iterator().hasNext());
+        assertEquals("Camera", copy.getMacUsageDescriptions().get("NSCameraUsageDescription"));
+    }
+
+    @Test
+    public void testCopyIsIndependentOfOriginal() {
+        AppDescription app = new AppDescription();
+        app.setNpmVersion("1.0.0");
+        app.addExtension("txt", "text/plain", null);
+
+        AppDescription copy = new AppDescription(app);
+        copy.setNpmVersion("1.0.0[jdk17]");
+        copy.setBundleJre(new java.io.File("jre"));
+        copy.addExtension("md", "text/markdown", null);
+        copy.addUrlScheme("testapp");
+
+        assertEquals("1.0.0", app.getNpmVersion());
+        assertNull(app.getBundleJre());
+        assertFalse(app.getExtensions().contains("md"));
+        assertFalse(app.hasUrlSchemes());
+    }
 }
@@ -0,0 +1,85 @@
+package ca.weblite.jdeploy.delta;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeltaManifestTest {
+
+    @Test
+    void roundTripsThroughJson(@TempDir Path tempDir) throws IOException {
+        File dir = tempDir.toFile();
+        FileUtils.writeStringToFile(new File(dir, "app.jar"), "app", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(dir, "lib/dep.jar"), "dep", StandardCharsets.UTF_8);
+
+        DeltaManifest manifest = DeltaManifest.fromDirectory(dir);
+        DeltaManifest parsed = DeltaManifest.fromJson(manifest.toJson());
+
+        assertEquals(manifest.getEntries().keySet(), parsed.getEntries().keySet());
+        assertEquals(DeltaManifest.sha256(new File(dir, "lib/dep.jar")), parsed.getEntries().get("lib/dep.jar").getHash());
+        assertEquals(3, parsed.getEntries().get("app.jar").getSize());
+        assertNull(parsed.getEntries().get("app.jar").getLocation());
+    }
+
+    @Test
+    void roundTripsLocationsAndPlatforms(@TempDir Path tempDir) throws IOException {
+        File dir = tempDir.toFile();
+        FileUtils.writeStringToFile(new File(dir, "app.jar"), "app", StandardCharsets.UTF_8);
+        String hash = DeltaManifest.sha256(new File(dir, "app.jar"));
+        DeltaManifest.Entry packageJson = new DeltaManifest.Entry("ff", 2, false);
+        Map<String, DeltaManifest.Location> locations = new HashMap<>();
+        locations.put(hash, new DeltaManifest.Location(DeltaManifest.getPackName("aa"), 2));
+        locations.put("ff", new DeltaManifest.Location(DeltaManifest.getPackName("aa"), 0));
+
+        DeltaManifest manifest = new DeltaManifest(
+                DeltaManifest.fromDirectory(dir).getEntries(), packageJson, Arrays.asList("mac-arm64", "win-x64")
+        ).withLocations(locations);
+        DeltaManifest parsed = DeltaManifest.fromJson(manifest.toJson());
+
+        assertEquals(Arrays.asList("mac-arm64", "win-x64"), parsed.getPlatforms());
+        assertEquals("jdeploy-blobs-aa.pack", parsed.getEntries().get("app.jar").getLocation().getPack());
+        assertEquals(2, parsed.getEntries().get("app.jar").getLocation().getOffset());
+        assertEquals("ff", parsed.getPackageJson().getHash());
+        assertEquals(0, parsed.getPackageJson().getLocation().getOffset());
+        assertEquals("jdeploy-delta-mac-arm64.json", DeltaManifest.getFileName("mac-arm64"));
+    }
+
+    @Test
+    void readsSignedManifestLayout() {
+        String hash = "ab" + String.join("", Collections.nCopies(31, "00"));
+        DeltaManifest manifest = DeltaManifest.fromJson(
+                "{\"timestamp\":\"2024-01-01T00:00:00Z\",\"app.jar\":{\"hash\":\"" + hash.toUpperCase() + "\",\"signature\":\"00\"}}"
+        );
+
+        assertEquals(Collections.singleton("app.jar"), manifest.getEntries().keySet());
+        assertEquals(hash, manifest.getEntries().get("app.jar").getHash());
+    }
+
+    @Test
+    void missingHashesIgnoreRenamedAndUnchangedFiles(@TempDir Path tempDir) throws IOException {
+        File installed = tempDir.resolve("installed").toFile();
+        FileUtils.writeStringToFile(new File(installed, "app.jar"), "app v1", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(installed, "lib/dep-1.0.jar"), "dep", StandardCharsets.UTF_8);
+        File next = tempDir.resolve("next").toFile();
+        FileUtils.writeStringToFile(new File(next, "app.jar"), "app v2", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(next, "lib/renamed.jar"), "dep", StandardCharsets.UTF_8);
+
+        DeltaManifest target = DeltaManifest.fromDirectory(next);
+        assertEquals(
+                Collections.singleton(DeltaManifest.sha256(new File(next, "app.jar"))),
+                target.getMissingHashes(DeltaManifest.fromDirectory(installed))
+        );
+        assertEquals(6, target.getSize(target.getMissingHashes(DeltaManifest.fromDirectory(installed))));
+    }
+}
@@ -1,17 +1,20 @@
 package ca.weblite.jdeploy.helpers;
 
 import ca.weblite.jdeploy.appbundler.AppDescription;
+import com.joshondesign.appbundler.win.WindowsPESubsystemModifier;
 import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
- * Unit tests for LauncherWriterHelper splash attribute in app.xml.
+ * Unit tests for LauncherWriterHelper app.xml generation and launcher stamping.
  */
 public class LauncherWriterHelperTest {
 
@@ -308,4 +311,130 @@ public class LauncherWriterHelperTest {
         assertFalse(xmlContent.contains("initial-app-version"),
             "XML should not contain initial-app-version attribute when empty");
     }
+
+    @Test
+    public void testTemplateStampingMatchesStreamCopy(@TempDir Path tempDir) throws Exception {
+        AppDescription app = createNpmApp();
+        File template = createFakePEExecutable(tempDir.resolve("Client4JLauncher.exe").toFile(), 200000);
+
+        File streamed = tempDir.resolve("streamed.exe").toFile();
+        try (java.io.InputStream in = new java.io.FileInputStream(template)) {
+            new LauncherWriterHelper().writeLauncher(app, streamed, in);
+        }
+
+        File stamped = tempDir.resolve("stamped.exe").toFile();
+        new LauncherWriterHelper().writeLauncher(app, stamped, template);
+
+        assertArrayEquals(Files.readAllBytes(streamed.toPath()), Files.readAllBytes(stamped.toPath()),
+            "Template stamping should produce the same bytes as the stream copy");
+        assertTrue(stamped.canExecute(), "Launcher should be executable");
+    }
+
+    @Test
+    public void testPayloadLayout(@TempDir Path tempDir) throws Exception {
+        AppDescription app = createNpmApp();
+        File template = createFakePEExecutable(tempDir.resolve("Client4JLauncher.exe").toFile(), 4096);
+        File stamped = tempDir.resolve("stamped.exe").toFile();
+        new LauncherWriterHelper().writeLauncher(app, stamped, template);
+
+        byte[] bytes = Files.readAllBytes(stamped.toPath());
+        int trailerLength = 32;
+        int positionLength = bytes[bytes.length - trailerLength - 1];
+        byte[] position = new byte[positionLength];
+        System.arraycopy(bytes, bytes.length - trailerLength - 1 - positionLength, position, 0, positionLength);
+        for (int i = 0; i < position.length; i++) {
+            position[i] = (byte) (255 - position[i]);
+        }
+        assertEquals("4096", new String(position, StandardCharsets.UTF_8));
+
+        byte[] xml = new byte[bytes.length - trailerLength - 1 - positionLength - 4096];
+        System.arraycopy(bytes, 4096, xml, 0, xml.length);
+        for (int i = 0; i < xml.length; i++) {
+            xml[i] = (byte) (255 - xml[i]);
+        }
+        assertTrue(new String(xml, StandardCharsets.UTF_8).contains("package='test-package'"));
+    }
+
+    @Test
+    public void testRewriteAppXmlMatchesStampingWithNewAppXml(@TempDir Path tempDir) throws Exception {
+        File template = createFakePEExecutable(tempDir.resolve("Client4JLauncher.exe").toFile(), 4096);
+        File rewritten = tempDir.resolve("rewritten.exe").toFile();
+        new LauncherWriterHelper().writeLauncher(createNpmApp(), rewritten, template);
+
+        assertTrue(LauncherWriterHelper.rewriteAppXml(rewritten, xml -> xml.replace("version='1.0.0'", "version='1.0.1'")));
+
+        AppDescription next = createNpmApp();
+        next.setNpmVersion("1.0.1");
+        File stamped = tempDir.resolve("stamped.exe").toFile();
+        new LauncherWriterHelper().writeLauncher(next, stamped, template);
+        assertArrayEquals(Files.readAllBytes(stamped.toPath()), Files.readAllBytes(rewritten.toPath()));
+
+        assertFalse(LauncherWriterHelper.rewriteAppXml(template, xml -> xml), "The template has no payload");
+    }
+
+    @Test
+    public void testCopiedLauncherKeepsStampAndCliVariantUsesConsoleSubsystem(@TempDir Path tempDir) throws Exception {
+        AppDescription app = createNpmApp();
+        File template = createFakePEExecutable(tempDir.resolve("Client4JLauncher.exe").toFile(), 65536);
+        File bundled = tempDir.resolve("bundled.exe").toFile();
+        new LauncherWriterHelper().writeLauncher(app, bundled, template);
+
+        // What the installer does with the launcher from the bundle
+        File gui = tempDir.resolve("MyApp.exe").toFile();
+        File cli = tempDir.resolve("MyApp-cli.exe").toFile();
+        LauncherWriterHelper.copyLauncher(bundled, gui);
+        WindowsPESubsystemModifier.copyAndModifySubsystem(gui, cli);
+
+        byte[] bundledBytes = Files.readAllBytes(bundled.toPath());
+        byte[] guiBytes = Files.readAllBytes(gui.toPath());
+        byte[] cliBytes = Files.readAllBytes(cli.toPath());
+        assertArrayEquals(bundledBytes, guiBytes);
+        assertTrue(gui.canExecute(), "Launcher should be executable");
+        assertEquals(2, guiBytes[0x80 + 92], "GUI launcher keeps the GUI subsystem");
+        assertEquals(3, cliBytes[0x80 + 92], "CLI launcher uses the console subsystem");
+        cliBytes[0x80 + 92] = 2;
+        assertArrayEquals(guiBytes, cliBytes, "Only the subsystem differs between the launchers");
+    }
+
+    @Test
+    public void testTemplateCacheReturnsSameFile() throws Exception {
+        File first = LauncherTemplateCache.getInstance().getTemplate(
+            LauncherWriterHelperTest.class, "LauncherWriterHelperTest.class"
+        );
+        File second = LauncherTemplateCache.getInstance().getTemplate(
+            LauncherWriterHelperTest.class, "LauncherWriterHelperTest.class"
+        );
+        assertEquals(first, second);
+        assertTrue(first.isFile());
+        assertThrows(java.io.FileNotFoundException.class, () -> LauncherTemplateCache.getInstance().getTemplate(
+            LauncherWriterHelperTest.class, "does-not-exist/Client4JLauncher"
+        ));
+    }
+
+    private static AppDescription createNpmApp() {
+        AppDescription app = new AppDescription();
+        app.setName("TestApp");
+        app.setNpmPackage("test-package");
+        app.setNpmVersion("1.0.0");
+        app.setIconDataURI("data:image/png;base64,test");
+        return app;
+    }
+
+    private static File createFakePEExecutable(File file, int size) throws Exception {
+        byte[] content = new byte[size];
+        new java.util.Random(42).nextBytes(content);
+        content[0] = 'M';
+        content[1] = 'Z';
+        content[0x3C] = (byte) 0x80;
+        content[0x3D] = 0;
+        content[0x3E] = 0;
+        content[0x3F] = 0;
+        content[0x80] = 'P';
+        content[0x81] = 'E';
+        content[0x82] = 0;
+        content[0x83] = 0;
+        content[0x80 + 92] = 2;
+        Files.write(file.toPath(), content);
+        return file;
+    }
 }
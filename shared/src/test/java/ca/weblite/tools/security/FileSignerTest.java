@@ -19,6 +19,7 @@ import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
 import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
 import org.bouncycastle.operator.ContentSigner;
 import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.json.JSONObject;
 import org.junit.jupiter.api.*;
 
 public class FileSignerTest {
@@ -80,6 +81,45 @@ public class FileSignerTest {
         assertEquals(VerificationResult.SIGNED_CORRECTLY, result, "Directory verification failed");
     }
 
+    @Test
+    public void testUpdateSignaturesMatchesSigningFromScratch() throws Exception {
+        KeyProvider keyProvider = new FileKeyProvider(savePrivateKey(privateKey).toString(), saveCertificate(certificate).toString());
+        Files.createDirectories(tempDir.resolve("lib"));
+        Files.write(tempDir.resolve("lib/dep.jar"), "dependency".getBytes());
+        FileSigner.signDirectory(VERSION, tempDir.toString(), keyProvider);
+
+        Files.write(tempDir.resolve("file1.txt"), "Changed".getBytes());
+        Files.delete(tempDir.resolve("file2.txt"));
+        Files.write(tempDir.resolve("file3.txt"), "New file".getBytes());
+        FileUtils.deleteDirectory(tempDir.resolve("lib").toFile());
+        FileSigner.updateSignatures(
+                "1.0.1",
+                tempDir.toString(),
+                Arrays.asList(
+                        tempDir.resolve("file1.txt").toFile(),
+                        tempDir.resolve("file2.txt").toFile(),
+                        tempDir.resolve("file3.txt").toFile(),
+                        tempDir.resolve("lib").toFile()
+                ),
+                keyProvider
+        );
+
+        KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+        keyStore.load(null, null);
+        keyStore.setCertificateEntry("test", certificate);
+        assertEquals(
+                VerificationResult.SIGNED_CORRECTLY,
+                FileVerifier.verifyDirectory("1.0.1", tempDir.toString(), new SimpleCertificateVerifier(keyStore))
+        );
+        JSONObject updated = new JSONObject(new String(Files.readAllBytes(tempDir.resolve("jdeploy.mf"))));
+        FileSigner.signDirectory("1.0.1", tempDir.toString(), keyProvider);
+        JSONObject fromScratch = new JSONObject(new String(Files.readAllBytes(tempDir.resolve("jdeploy.mf"))));
+        updated.remove("timestamp");
+        fromScratch.remove("timestamp");
+        assertEquals(new TreeSet<>(Arrays.asList("file1.txt", "file3.txt")), new TreeSet<>(updated.keySet()));
+        assertEquals(fromScratch.toMap(), updated.toMap());
+    }
+
     private Path savePrivateKey(PrivateKey privateKey) throws IOException {
         Path keyPath = Files.createTempFile("private_key", ".der");
         Files.write(keyPath, privateKey.getEncoded());
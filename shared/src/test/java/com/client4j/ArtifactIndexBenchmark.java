@@ -0,0 +1,157 @@
+package com.client4j;
+
+import ca.weblite.jdeploy.app.Workspace;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures best-match queries on large indexes of random artifacts, comparing
+ * {@link ArtifactIndex} with a scan of every artifact.  Each query goes through
+ * {@link ArtifactIndex#findBestMatch(String, String)}, which tries installed artifacts
+ * first and then all of them, and every result is checked against the scan.
+ *
+ * Not part of the regular test run (the name doesn't end in Test).  Run it with:
+ *
+ * <pre>
+ * mvn -pl shared test -Dtest=ArtifactIndexBenchmark -Dsurefire.failIfNoSpecifiedTests=false
+ * </pre>
+ */
+public class ArtifactIndexBenchmark {
+
+    private static final int ROUNDS = 5;
+    private static final int QUERIES_PER_ROUND = 200;
+
+    private static final String[] EXPRESSIONS = {
+        null, "11", "17.0.1", ">=11", ">= 17", ">8", "<=17.0.1", "< 21", "~>11", "~> 17.0.1", "~>21"
+    };
+
+    @TempDir
+    File tempDir;
+
+    private Workspace workspace;
+
+    @BeforeEach
+    public void setUp() {
+        workspace = new Workspace(tempDir);
+    }
+
+    @Test
+    public void benchmarkManyNames() {
+        run(20000, 200);
+    }
+
+    @Test
+    public void benchmarkManyVersions() {
+        run(50000, 50);
+    }
+
+    private void run(int artifactCount, int nameCount) {
+        Random random = new Random(42);
+        List<BenchmarkArtifact> artifacts = new ArrayList<>(artifactCount);
+        for (int i = 0; i < artifactCount; i++) {
+            String version = (8 + random.nextInt(14)) + "." + random.nextInt(3) + "." + random.nextInt(30);
+            artifacts.add(new BenchmarkArtifact("lib" + random.nextInt(nameCount), version,
+                    random.nextInt(5) > 0, random.nextInt(4) == 0));
+        }
+
+        long[] register = new long[ROUNDS];
+        long[] scan = new long[ROUNDS];
+        long[] indexed = new long[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            ArtifactIndex<BenchmarkArtifact> index = new ArtifactIndex<>(workspace);
+            for (BenchmarkArtifact artifact : artifacts) {
+                index.register(artifact);
+            }
+            register[round] = System.nanoTime() - start;
+
+            String[] names = new String[QUERIES_PER_ROUND];
+            String[] expressions = new String[QUERIES_PER_ROUND];
+            for (int i = 0; i < QUERIES_PER_ROUND; i++) {
+                names[i] = "lib" + random.nextInt(nameCount);
+                expressions[i] = EXPRESSIONS[random.nextInt(EXPRESSIONS.length)];
+            }
+
+            Artifact[] expected = new Artifact[QUERIES_PER_ROUND];
+            start = System.nanoTime();
+            for (int i = 0; i < QUERIES_PER_ROUND; i++) {
+                expected[i] = scanBestMatch(artifacts, names[i], expressions[i]);
+            }
+            scan[round] = System.nanoTime() - start;
+
+            Artifact[] actual = new Artifact[QUERIES_PER_ROUND];
+            start = System.nanoTime();
+            for (int i = 0; i < QUERIES_PER_ROUND; i++) {
+                actual[i] = index.findBestMatch(names[i], expressions[i]);
+            }
+            indexed[round] = System.nanoTime() - start;
+
+            for (int i = 0; i < QUERIES_PER_ROUND; i++) {
+                assertSame(expected[i], actual[i], "name=" + names[i] + ", expression=" + expressions[i]);
+            }
+        }
+
+        System.out.println(artifactCount + " artifacts / " + nameCount + " names, median of " + ROUNDS + " rounds:");
+        System.out.println("  register all:    " + millis(median(register)) + " ms");
+        System.out.println("  scan per query:  " + millis(median(scan) / QUERIES_PER_ROUND) + " ms");
+        System.out.println("  index per query: " + millis(median(indexed) / QUERIES_PER_ROUND) + " ms");
+    }
+
+    /**
+     * Finds the best match the way ArtifactIndex did before it was indexed.
+     */
+    private Artifact scanBestMatch(List<BenchmarkArtifact> artifacts, String name, String expression) {
+        Artifact installed = scanBestMatch(artifacts, name, expression, true);
+        return installed != null ? installed : scanBestMatch(artifacts, name, expression, false);
+    }
+
+    private Artifact scanBestMatch(List<BenchmarkArtifact> artifacts, String name, String expression,
+            boolean installedOnly) {
+        ArtifactIndex.ArtifactQuery query = new ArtifactIndex.ArtifactQuery(workspace, name, expression, installedOnly);
+        for (BenchmarkArtifact artifact : artifacts) {
+            query.updateBestMatch(artifact);
+        }
+        return query.getBestMatch();
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3f", nanos / 1_000_000.0);
+    }
+
+    private static class BenchmarkArtifact extends Artifact {
+        private final boolean supported;
+        private final boolean installed;
+
+        BenchmarkArtifact(String name, String version, boolean supported, boolean installed) {
+            setName(name);
+            setVersion(version);
+            this.supported = supported;
+            this.installed = installed;
+        }
+
+        @Override
+        public boolean isSupported() {
+            return supported;
+        }
+
+        @Override
+        public boolean isInstalled(Workspace workspace) {
+            return installed;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.client4j;
+
+import ca.weblite.jdeploy.app.Workspace;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArtifactIndexTest {
+
+    private static final String[] VERSIONS = {
+        "1", "1.0", "1.0.0", "1.0.1", "1.1", "1.2.3", "1.2.10", "2", "2.0.1", "2.1",
+        "8.0.292", "11", "11.0.2", "11.0.12", "17.0.1", "17.1", "21"
+    };
+
+    private static final String[] EXPRESSIONS = {
+        null, "", "  ", "1.0", "11.0.2", "17", ">=1.1", ">= 11", ">2", "<=2.0.1", "< 11.0.12",
+        "~>1.0", "~> 11.0.2", "~>17", "<1", ">21"
+    };
+
+    @TempDir
+    File tempDir;
+
+    private Workspace workspace;
+
+    @BeforeEach
+    public void setUp() {
+        workspace = new Workspace(tempDir);
+    }
+
+    @Test
+    public void testFindBestMatchIsIdenticalToLinearScan() {
+        Random random = new Random(42);
+        ArtifactIndex<TestArtifact> index = new ArtifactIndex<>(workspace);
+        List<TestArtifact> artifacts = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            TestArtifact artifact = new TestArtifact("lib" + random.nextInt(20),
+                    VERSIONS[random.nextInt(VERSIONS.length)], random.nextInt(5) > 0, random.nextBoolean());
+            artifacts.add(artifact);
+            index.register(artifact);
+        }
+
+        for (int i = 0; i < 2000; i++) {
+            String name = random.nextInt(25) == 0 ? "missing" : "lib" + random.nextInt(20);
+            String expression = EXPRESSIONS[random.nextInt(EXPRESSIONS.length)];
+            boolean installedOnly = random.nextBoolean();
+
+            Artifact expected = linearScan(artifacts, name, expression, installedOnly);
+            TestArtifact actual = index.findBestMatch(name, expression, installedOnly);
+
+            assertSame(expected, actual, "name=" + name + ", expression=" + expression
+                    + ", installedOnly=" + installedOnly);
+        }
+    }
+
+    @Test
+    public void testQueryWithoutNameSearchesAllArtifacts() {
+        ArtifactIndex<TestArtifact> index = new ArtifactIndex<>(workspace);
+        TestArtifact a = register(index, "a", "1.0", true, true);
+        TestArtifact b = register(index, "b", "2.0", true, true);
+        register(index, "c", "2.0", true, true);
+
+        assertSame(b, index.findBestMatch(null, ">=1.0", false));
+        assertSame(a, index.findBestMatch(null, "<2", false));
+    }
+
+    @Test
+    public void testEqualVersionsReturnFirstRegistered() {
+        ArtifactIndex<TestArtifact> index = new ArtifactIndex<>(workspace);
+        register(index, "jre", "11.0.2", false, true);
+        TestArtifact first = register(index, "jre", "11.0.2", true, false);
+        TestArtifact second = register(index, "jre", "11.0.2", true, true);
+
+        assertSame(first, index.findBestMatch("jre", "~>11", false));
+        assertSame(second, index.findBestMatch("jre", "~>11"), "Installed artifacts are preferred");
+    }
+
+    @Test
+    public void testReusedQueryKeepsBetterPreviousMatch() {
+        ArtifactIndex<TestArtifact> older = new ArtifactIndex<>(workspace);
+        register(older, "jre", "11", true, true);
+        ArtifactIndex<TestArtifact> newer = new ArtifactIndex<>(workspace);
+        TestArtifact best = register(newer, "jre", "17", true, true);
+
+        ArtifactIndex.ArtifactQuery query = new ArtifactIndex.ArtifactQuery(workspace, "jre", null, false);
+        assertSame(best, newer.findBestMatch(query));
+        assertSame(best, older.findBestMatch(query));
+    }
+
+    @Test
+    public void testIteratorRemoveUpdatesIndex() {
+        ArtifactIndex<TestArtifact> index = new ArtifactIndex<>(workspace);
+        TestArtifact older = register(index, "jre", "11", true, true);
+        TestArtifact newer = register(index, "jre", "17", true, true);
+
+        for (Iterator<TestArtifact> it = index.iterator(); it.hasNext();) {
+            if (it.next() == newer) {
+                it.remove();
+            }
+        }
+
+        assertSame(older, index.findBestMatch("jre", null, false));
+    }
+
+    @Test
+    public void testInvalidExpressionStillRejected() {
+        ArtifactIndex<TestArtifact> index = new ArtifactIndex<>(workspace);
+        register(index, "jre", "11", true, true);
+
+        assertThrows(IllegalArgumentException.class, () -> index.findBestMatch("jre", "=11", false));
+        assertNull(index.findBestMatch("missing", "=11", false));
+    }
+
+    private static TestArtifact register(ArtifactIndex<TestArtifact> index, String name, String version,
+            boolean supported, boolean installed) {
+        TestArtifact artifact = new TestArtifact(name, version, supported, installed);
+        index.register(artifact);
+        return artifact;
+    }
+
+    private Artifact linearScan(List<TestArtifact> artifacts, String name, String expression, boolean installedOnly) {
+        ArtifactIndex.ArtifactQuery query = new ArtifactIndex.ArtifactQuery(workspace, name, expression, installedOnly);
+        for (TestArtifact artifact : artifacts) {
+            query.updateBestMatch(artifact);
+        }
+        return query.getBestMatch();
+    }
+
+    private static class TestArtifact extends Artifact {
+        private final boolean supported;
+        private final boolean installed;
+
+        TestArtifact(String name, String version, boolean supported, boolean installed) {
+            setName(name);
+            setVersion(version);
+            this.supported = supported;
+            this.installed = installed;
+        }
+
+        @Override
+        public boolean isSupported() {
+            return supported;
+        }
+
+        @Override
+        public boolean isInstalled(Workspace workspace) {
+            return installed;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+#!/usr/bin/env node
+/*
+ * Regression test for the dynamic AppCDS archive key in the generated
+ * launcher (cli/.../jdeploy.js).
+ *
+ * When the app is launched with -jar, its dependencies are loaded from the
+ * manifest's Class-Path, so updating a dependency without touching the main
+ * jar must still produce a new archive name.  Otherwise the JVM would map an
+ * archive built from the old dependency.
+ *
+ * The test runs the REAL prepareAppCdsArgs/listAppCdsJars functions lifted
+ * out of jdeploy.js against a fake bundle and JDK in a temp directory.
+ */
+
+'use strict';
+
+const fs = require('fs');
+const os = require('os');
+const path = require('path');
+const assert = require('assert');
+
+const JDEPLOY_JS = path.resolve(
+  __dirname,
+  '..',
+  '..',
+  'cli',
+  'src',
+  'main',
+  'resources',
+  'ca',
+  'weblite',
+  'jdeploy',
+  'jdeploy.js'
+);
+
+function extractFunctionSource(source, name) {
+  const marker = 'function ' + name;
+  const start = source.indexOf(marker);
+  if (start < 0) {
+    throw new Error('Could not find `' + marker + '` in ' + JDEPLOY_JS);
+  }
+  let depth = 0;
+  let started = false;
+  for (let i = source.indexOf('{', start); i < source.length; i++) {
+    const ch = source[i];
+    if (ch === '{') {
+      depth++;
+      started = true;
+    } else if (ch === '}') {
+      depth--;
+      if (started && depth === 0) {
+        return source.slice(start, i + 1);
+      }
+    }
+  }
+  throw new Error('Unbalanced braces while extracting `' + name + '`');
+}
+
+// Binds the launcher's globals the two functions depend on.
+function loadPrepareAppCdsArgs(bundleDir, jarName) {
+  const source = fs.readFileSync(JDEPLOY_JS, 'utf8');
+  const body =
+    extractFunctionSource(source, 'listAppCdsJars') +
+    '\n' +
+    extractFunctionSource(source, 'prepareAppCdsArgs') +
+    '\nreturn prepareAppCdsArgs;';
+  return new Function('fs', 'path', '__dirname', 'appCds', 'jarName', 'classPath', 'require', body)(
+    fs, path, bundleDir, true, jarName, '', require
+  );
+}
+
+function write(file, content) {
+  fs.mkdirSync(path.dirname(file), { recursive: true });
+  fs.writeFileSync(file, content);
+}
+
+function main() {
+  const tmp = fs.mkdtempSync(path.join(os.tmpdir(), 'jdeploy-appcds-'));
+  try {
+    const javaHome = path.join(tmp, 'jdk');
+    write(path.join(javaHome, 'release'), 'JAVA_VERSION="17.0.2"\n');
+    const bundle = path.join(tmp, 'jdeploy-bundle');
+    write(path.join(bundle, 'app.jar'), 'main');
+    write(path.join(bundle, 'libs', 'dep.jar'), 'dep v1');
+
+    const prepare = loadPrepareAppCdsArgs(bundle, 'app.jar');
+    const first = prepare(javaHome);
+    assert.ok(first.pending, 'First launch should train an archive');
+    assert.strictEqual(prepare(javaHome).archive, first.archive, 'Unchanged bundle keeps its key');
+
+    write(path.join(bundle, 'libs', 'dep.jar'), 'dep v2 is longer');
+    const updated = prepare(javaHome);
+    assert.notStrictEqual(updated.archive, first.archive,
+      'Changing a Class-Path dependency must change the archive key');
+
+    write(path.join(bundle, '.appcds', 'ignored.jar'), 'not part of the app');
+    assert.strictEqual(prepare(javaHome).archive, updated.archive,
+      'Files in .appcds must not affect the key');
+  } finally {
+    fs.rmSync(tmp, { recursive: true, force: true });
+  }
+  console.log('AppCDS key test passed');
+}
+
+main();
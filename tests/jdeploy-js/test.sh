@@ -9,11 +9,15 @@ if ! command -v node >/dev/null 2>&1; then
   exit 0
 fi
 
-# The package-args test has no native dependencies and is platform-independent
-# (it mocks process.platform), so run it everywhere before any early exit.
+# The package-args and AppCDS tests have no native dependencies and are
+# platform-independent (package-args mocks process.platform), so run them
+# everywhere before any early exit.
 echo "Running jdeploy.js package-args test..."
 node package-args.test.js
 
+echo "Running jdeploy.js AppCDS key test..."
+node appcds-key.test.js
+
 # Windows has no Unix execute bit, so the zip-mode test does not apply there.
 case "$(uname -s)" in
   MINGW*|MSYS*|CYGWIN*)